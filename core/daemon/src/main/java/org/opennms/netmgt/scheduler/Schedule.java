@@ -123,11 +123,20 @@ public class Schedule {
      * <p>schedule</p>
      */
     public void schedule() {
-        m_scheduled = true;
         schedule(0);
     }
 
-    private void schedule(long interval) {
+    /**
+     * <p>schedule</p>
+     *
+     * @param initialDelay the delay in milliseconds before the first run
+     */
+    public void schedule(long initialDelay) {
+        m_scheduled = true;
+        scheduleEntry(initialDelay);
+    }
+
+    private void scheduleEntry(long interval) {
         if (interval >= 0 && m_scheduled)
             m_timer.schedule(interval, new ScheduleEntry(++m_currentExpirationCode));
     }
@@ -143,7 +152,7 @@ public class Schedule {
      * <p>adjustSchedule</p>
      */
     public void adjustSchedule() {
-        schedule(m_interval.getInterval());
+        scheduleEntry(m_interval.getInterval());
     }
 
     /**
@@ -21,8 +21,10 @@
  */
 package org.opennms.core.tasks;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -58,8 +60,8 @@ public abstract class AbstractTask implements Task {
     private final CountDownLatch m_latch = new CountDownLatch(1);
     
     private final AtomicInteger m_pendingPrereqs = new AtomicInteger(0);
-    private final Set<AbstractTask> m_dependents = new CopyOnWriteArraySet<>();
-    private final Set<AbstractTask> m_prerequisites = new CopyOnWriteArraySet<>();
+    private final Set<AbstractTask> m_dependents = Collections.synchronizedSet(new LinkedHashSet<>());
+    private final Set<AbstractTask> m_prerequisites = ConcurrentHashMap.newKeySet();
     
     private final TaskMonitor m_monitor;
     
@@ -105,10 +107,11 @@ public abstract class AbstractTask implements Task {
         return m_dependents;
     }
     
-    final void doAddDependent(final AbstractTask dependent) {
+    final boolean doAddDependent(final AbstractTask dependent) {
         if (!isFinished()) {
-            m_dependents.add(dependent);
+            return m_dependents.add(dependent);
         }
+        return false;
     }
     
     final void doAddPrerequisite(final AbstractTask prereq) {
@@ -194,6 +197,25 @@ public abstract class AbstractTask implements Task {
         }
     }
 
+    /**
+     * Variant of {@link #submitIfReady()} that is safe to call from several threads at once.
+     * The transition to SUBMITTED is claimed atomically before the task is handed off so that
+     * a task is submitted exactly once, even when its last prerequisite completes on one thread
+     * while it is being scheduled on another.
+     */
+    final void submitIfReadyAtomically() {
+        if (isReady() && m_state.compareAndSet(State.SCHEDULED, State.SUBMITTED)) {
+            notifySubmitted();
+            try {
+                doSubmit();
+            } catch (Throwable e) {
+                LOG.error("Unexpected throwable while trying to submit task: " + this, e);
+            } finally {
+                completeSubmit();
+            }
+        }
+    }
+
     /**
      * This method submits a task to be executed and is called when all dependencies are completed for that task
      * This method should place a runnable on an executor or submit the task in some other way so that it will
@@ -0,0 +1,240 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.core.tasks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+/**
+ * Base class for {@link TaskCoordinator} implementations that holds the task factories
+ * and the named executors. Subclasses decide how the dependency bookkeeping between
+ * tasks is performed.
+ *
+ * @author brozow
+ */
+public abstract class AbstractTaskCoordinator implements TaskCoordinator, InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractTaskCoordinator.class);
+
+    private final ConcurrentHashMap<String, Executor> m_taskExecutors = new ConcurrentHashMap<String, Executor>();
+
+    private String m_defaultExecutorName = TaskCoordinator.DEFAULT_EXECUTOR;
+
+    /**
+     * <p>Constructor for AbstractTaskCoordinator.</p>
+     */
+    protected AbstractTaskCoordinator() {
+        // By default, add one single-threaded task executor to the coordinator
+        addOrUpdateExecutor(
+            m_defaultExecutorName,
+            Executors.newSingleThreadExecutor(
+                new LogPreservingThreadFactory(m_defaultExecutorName, 1)
+            )
+        );
+    }
+
+    /**
+     * <p>setDefaultExecutor</p>
+     *
+     * @param executorName a {@link java.lang.String} object.
+     */
+    public final void setDefaultExecutor(String executorName) {
+        m_defaultExecutorName = executorName;
+    }
+
+    /**
+     * <p>afterPropertiesSet</p>
+     */
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(m_defaultExecutorName, "defaultExecutor must be set");
+        Assert.notNull(getExecutor(m_defaultExecutorName), "defaultExecutor must be set to the name of an added executor");
+    }
+
+    /**
+     * <p>createTask</p>
+     *
+     * @param parent a {@link org.opennms.core.tasks.ContainerTask} object.
+     * @param r a {@link java.lang.Runnable} object.
+     * @return a {@link org.opennms.core.tasks.SyncTask} object.
+     */
+    @Override
+    public SyncTask createTask(ContainerTask<?> parent, Runnable r) {
+        return new SyncTask(this, parent, r);
+    }
+    
+    /**
+     * <p>createTask</p>
+     *
+     * @param parent a {@link org.opennms.core.tasks.ContainerTask} object.
+     * @param r a {@link java.lang.Runnable} object.
+     * @param schedulingHint a {@link java.lang.String} object.
+     * @return a {@link org.opennms.core.tasks.SyncTask} object.
+     */
+    @Override
+    public SyncTask createTask(ContainerTask<?> parent, Runnable r, String schedulingHint) {
+        return new SyncTask(this, parent, r, schedulingHint);
+    }
+    
+    /**
+     * <p>createTask</p>
+     *
+     * @param parent a {@link org.opennms.core.tasks.ContainerTask} object.
+     * @param async a {@link org.opennms.core.tasks.Async} object.
+     * @param cb a {@link org.opennms.core.tasks.Callback} object.
+     * @param <T> a T object.
+     * @return a {@link org.opennms.core.tasks.AsyncTask} object.
+     */
+    @Override
+    public <T> AsyncTask<T> createTask(ContainerTask<?> parent, Async<T> async, Callback<T> cb) {
+        return new AsyncTask<T>(this, parent, async, cb);
+    }
+
+    /**
+     * <p>createBatch</p>
+     *
+     * @param parent a {@link org.opennms.core.tasks.ContainerTask} object.
+     * @return a {@link org.opennms.core.tasks.TaskBuilder} object.
+     */
+    @Override
+    public TaskBuilder<BatchTask> createBatch(ContainerTask<?> parent) {
+        return new TaskBuilder<BatchTask>(new BatchTask(this, parent));
+    }
+    
+    /**
+     * <p>createBatch</p>
+     *
+     * @return a {@link org.opennms.core.tasks.TaskBuilder} object.
+     */
+    @Override
+    public TaskBuilder<BatchTask> createBatch() {
+        return createBatch((ContainerTask<?>)null);
+    }
+    
+    /**
+     * <p>createBatch</p>
+     *
+     * @param parent a {@link org.opennms.core.tasks.ContainerTask} object.
+     * @param tasks a {@link java.lang.Runnable} object.
+     * @return a {@link org.opennms.core.tasks.BatchTask} object.
+     */
+    @Override
+    public BatchTask createBatch(ContainerTask<?> parent, Runnable... tasks) {
+        return createBatch(parent).add(tasks).get(parent);
+    }
+
+    
+    /**
+     * <p>createBatch</p>
+     *
+     * @param tasks a {@link java.lang.Runnable} object.
+     * @return a {@link org.opennms.core.tasks.BatchTask} object.
+     */
+    @Override
+    public BatchTask createBatch(Runnable... tasks) {
+        return createBatch().add(tasks).get();
+    }
+
+    
+    /**
+     * <p>createSequence</p>
+     *
+     * @param parent a {@link org.opennms.core.tasks.ContainerTask} object.
+     * @return a {@link org.opennms.core.tasks.TaskBuilder} object.
+     */
+    @Override
+    public TaskBuilder<SequenceTask> createSequence(ContainerTask<?> parent) {
+        return new TaskBuilder<SequenceTask>(new SequenceTask(this, parent));
+    }
+    
+    /**
+     * <p>createSequence</p>
+     *
+     * @return a {@link org.opennms.core.tasks.TaskBuilder} object.
+     */
+    @Override
+    public TaskBuilder<SequenceTask> createSequence() {
+        return createSequence((ContainerTask<?>)null);
+    }
+    
+    /**
+     * <p>createSequence</p>
+     *
+     * @param parent a {@link org.opennms.core.tasks.ContainerTask} object.
+     * @param tasks a {@link java.lang.Runnable} object.
+     * @return a {@link org.opennms.core.tasks.SequenceTask} object.
+     */
+    @Override
+    public SequenceTask createSequence(ContainerTask<?> parent, Runnable... tasks) {
+        return createSequence(parent).add(tasks).get(parent);
+    }
+
+    public final Executor getExecutor(String name) {
+        Executor executor = m_taskExecutors.get(name);
+        if (executor == null) {
+            Executor defaultExecutor = m_taskExecutors.get(m_defaultExecutorName);
+            if (defaultExecutor == null) {
+                throw new IllegalStateException("No default executor in " + getClass().getName());
+            } else {
+                return defaultExecutor;
+            }
+        } else {
+            //LOG.debug("Using executor {}: {}", name, executor);
+            return executor;
+        }
+    }
+
+    /**
+     * <p>addExecutor</p>
+     *
+     * @param executorName a {@link java.lang.String} object.
+     * @param executor a {@link java.util.concurrent.Executor} object.
+     */
+    @Override
+    public final void addOrUpdateExecutor(String executorName, Executor executor) {
+        Executor service = m_taskExecutors.put(executorName, executor);
+        if (service != null) {
+            LOG.info("Replacing executor {} with {}", executorName, executor);
+        }
+    }
+
+    /**
+     * <p>setExecutors</p>
+     *
+     * @param executors a {@link java.util.Map} object.
+     */
+    @Override
+    public final void setExecutors(Map<String,Executor> executors) {
+        m_taskExecutors.clear();
+        for (Map.Entry<String, Executor> e : executors.entrySet()) {
+            addOrUpdateExecutor(e.getKey(), e.getValue());
+        }
+    }
+}
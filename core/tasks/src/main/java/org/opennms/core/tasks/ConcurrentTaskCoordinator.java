@@ -0,0 +1,211 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.core.tasks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * <p>{@link TaskCoordinator} that performs the task dependency bookkeeping on the
+ * threads that schedule and complete tasks instead of funnelling it through a single
+ * actor thread like {@link DefaultTaskCoordinator} does.</p>
+ *
+ * <ul>
+ * <li>Each task keeps an atomic count of its outstanding prerequisites. A dependency
+ * increments the count when it is added and decrements it when the prerequisite completes.</li>
+ * <li>A task is submitted by whichever thread observes it ready first; the state
+ * transition is claimed with a compare-and-set so it is submitted exactly once.</li>
+ * <li>Completing a task directly triggers the submission of its ready dependents,
+ * there is no polling loop.</li>
+ * </ul>
+ *
+ * <p>The only lock taken is the monitor of the prerequisite task while a dependent is
+ * registered with it or while it is marked as completed. Work that would recurse through
+ * chains of containers completing each other is queued on a per-thread trampoline so that
+ * arbitrarily deep task graphs do not overflow the stack.</p>
+ */
+public class ConcurrentTaskCoordinator extends AbstractTaskCoordinator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrentTaskCoordinator.class);
+
+    /**
+     * Dependency work deferred by the thread that is currently running the coordinator.
+     * {@code null} when the thread isn't inside the coordinator.
+     */
+    private final ThreadLocal<Deque<Runnable>> m_deferred = new ThreadLocal<>();
+
+    private final String m_name;
+
+    /**
+     * <p>Constructor for ConcurrentTaskCoordinator.</p>
+     *
+     * @param name a {@link java.lang.String} object.
+     */
+    public ConcurrentTaskCoordinator(String name) {
+        m_name = name;
+    }
+
+    /**
+     * There is no processing loop in this coordinator so the delay is ignored.
+     *
+     * @param millis a long.
+     */
+    @Override
+    public final void setLoopDelay(long millis) {
+        LOG.debug("{}: ignoring loop delay of {}ms", m_name, millis);
+    }
+
+    /**
+     * <p>schedule</p>
+     *
+     * @param task a {@link org.opennms.core.tasks.AbstractTask} object.
+     */
+    @Override
+    public void schedule(final AbstractTask task) {
+        Assert.notNull(task, "task must not be null");
+        runOrDefer(() -> {
+            task.scheduled();
+            task.submitIfReadyAtomically();
+        });
+    }
+
+    /**
+     * <p>addDependency</p>
+     *
+     * @param prereq a {@link org.opennms.core.tasks.AbstractTask} object.
+     * @param dependent a {@link org.opennms.core.tasks.AbstractTask} object.
+     */
+    @Override
+    public void addDependency(final AbstractTask prereq, final AbstractTask dependent) {
+        Assert.notNull(prereq, "prereq must not be null");
+        Assert.notNull(dependent, "dependent must not be null");
+
+        // Hold the dependent back until the dependency has been recorded
+        dependent.incrPendingPrereqCount();
+
+        final boolean added;
+        synchronized (prereq) {
+            added = prereq.doAddDependent(dependent);
+            if (added) {
+                dependent.doAddPrerequisite(prereq);
+            }
+        }
+
+        if (!added) {
+            // The prereq has already completed or the dependency already exists
+            dependent.decrPendingPrereqCount();
+            runOrDefer(dependent::submitIfReadyAtomically);
+        }
+    }
+
+    /**
+     * <p>markTaskAsCompleted</p>
+     *
+     * @param task a {@link org.opennms.core.tasks.AbstractTask} object.
+     */
+    @Override
+    public void markTaskAsCompleted(final AbstractTask task) {
+        runOrDefer(() -> notifyDependents(task));
+    }
+
+    /**
+     * <p>submitToExecutor</p>
+     *
+     * @param executorPreference a {@link java.lang.String} object.
+     * @param workToBeDone a {@link java.lang.Runnable} object.
+     * @param owningTask a {@link org.opennms.core.tasks.AbstractTask} object.
+     */
+    @Override
+    public void submitToExecutor(String executorPreference, Runnable workToBeDone, AbstractTask owningTask) {
+        CompletableFuture
+            // Run the work on the preferred executor
+            .runAsync(workToBeDone, getExecutor(executorPreference))
+            // Log any uncaught exceptions from the task execution
+            .exceptionally(e -> {
+                LOG.warn("Unexpected exception during task execution: " + e.getMessage(), e);
+                return null;
+            })
+            // Then complete the task on the same thread
+            .thenRun(() -> markTaskAsCompleted(owningTask))
+            // Log any uncaught exceptions from the task completer
+            .exceptionally(e -> {
+                LOG.warn("Unexpected exception during task completion: " + e.getMessage(), e);
+                return null;
+            });
+    }
+
+    private static void notifyDependents(final AbstractTask task) {
+        final List<AbstractTask> dependents;
+        synchronized (task) {
+            task.onComplete();
+            dependents = new ArrayList<>(task.getDependents());
+            task.clearDependents();
+        }
+
+        for (AbstractTask dependent : dependents) {
+            dependent.doCompletePrerequisite(task);
+            dependent.decrPendingPrereqCount();
+            dependent.submitIfReadyAtomically();
+        }
+    }
+
+    /**
+     * Runs the given work on the calling thread unless the thread is already running
+     * coordinator work further up the stack, in which case the work is queued and run
+     * by that outer invocation once it unwinds.
+     */
+    private void runOrDefer(final Runnable r) {
+        Deque<Runnable> deferred = m_deferred.get();
+        if (deferred != null) {
+            deferred.add(r);
+            return;
+        }
+
+        deferred = new ArrayDeque<>();
+        m_deferred.set(deferred);
+        try {
+            Runnable next = r;
+            while (next != null) {
+                try {
+                    next.run();
+                } catch (Throwable e) {
+                    LOG.warn("Unexpected exception during task coordination: " + e.getMessage(), e);
+                }
+                next = deferred.poll();
+            }
+        } finally {
+            m_deferred.remove();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConcurrentTaskCoordinator[%s]", m_name);
+    }
+}
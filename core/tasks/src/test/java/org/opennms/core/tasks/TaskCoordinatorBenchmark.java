@@ -0,0 +1,118 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.core.tasks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to measure how long it takes a
+ * {@link TaskCoordinator} to build and run a large task graph.
+ * <p>
+ * The graph is a batch of sequences, similar to what provisiond builds for a node scan
+ * where each interface is scanned by a sequence of detectors. Each benchmark call builds
+ * and runs {@code width * depth} tasks.
+ */
+public class TaskCoordinatorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class BState {
+
+        @Param({"default", "concurrent"})
+        public String coordinator;
+
+        @Param({"1000"})
+        public int width;
+
+        @Param({"1000"})
+        public int depth;
+
+        @Param({"16"})
+        public int threads;
+
+        private ExecutorService executor;
+        private TaskCoordinator taskCoordinator;
+
+        @Setup
+        public void setup() {
+            executor = Executors.newFixedThreadPool(threads, new LogPreservingThreadFactory("benchmark", threads));
+            taskCoordinator = "concurrent".equals(coordinator)
+                    ? new ConcurrentTaskCoordinator("benchmark")
+                    : new DefaultTaskCoordinator("benchmark");
+            taskCoordinator.addOrUpdateExecutor(TaskCoordinator.DEFAULT_EXECUTOR, executor);
+        }
+
+        @TearDown
+        public void tearDown() {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long buildAndRun(BState state) throws Exception {
+        final LongAdder counter = new LongAdder();
+        final Runnable increment = counter::increment;
+        final TaskCoordinator coordinator = state.taskCoordinator;
+
+        final BatchTask batch = coordinator.createBatch().get();
+        for (int i = 0; i < state.width; i++) {
+            final SequenceTask sequence = coordinator.createSequence(batch).get();
+            for (int j = 0; j < state.depth; j++) {
+                sequence.add(increment);
+            }
+            batch.add(sequence);
+        }
+
+        batch.schedule();
+        batch.waitFor();
+
+        if (counter.sum() != (long)state.width * state.depth) {
+            throw new IllegalStateException("Only " + counter.sum() + " tasks were run");
+        }
+        return counter.sum();
+    }
+}
@@ -62,9 +62,13 @@ public class TaskTest {
         m_executor = Executors.newFixedThreadPool(50,
             new LogPreservingThreadFactory(getClass().getSimpleName(), 50)
         );
-        m_coordinator = new DefaultTaskCoordinator("TaskTest");
+        m_coordinator = createCoordinator("TaskTest");
         m_coordinator.addOrUpdateExecutor(TaskCoordinator.DEFAULT_EXECUTOR, m_executor);
     }
+
+    protected TaskCoordinator createCoordinator(String name) {
+        return new DefaultTaskCoordinator(name);
+    }
     
     @Test
     public void testSimpleTask() throws Exception {
@@ -111,6 +111,20 @@ public class ScheduleTest extends TestCase {
         assertRunAndScheduled(1000, 1000, 2, 1);
     }
     
+    public void testScheduleWithInitialDelay() {
+        m_sched.schedule(250);
+        
+        assertRunAndScheduled(0, 250, 0, 1);
+
+        m_scheduler.next();
+
+        assertRunAndScheduled(250, 1000, 1, 1);
+
+        m_scheduler.next();
+        
+        assertRunAndScheduled(1250, 1000, 2, 1);
+    }
+    
     public void testAdjustSchedule() {
         
         m_sched.schedule();
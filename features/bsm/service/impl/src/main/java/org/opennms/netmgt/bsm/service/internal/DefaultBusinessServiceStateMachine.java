@@ -36,9 +36,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -69,6 +72,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import edu.uci.ics.jung.algorithms.layout.KKLayout;
@@ -83,8 +87,24 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
     private AlarmProvider m_alarmProvider;
 
     private final List<BusinessServiceStateChangeHandler> m_handlers = Lists.newArrayList();
+    /**
+     * Serializes the calls to the handlers, which are not required to be thread-safe, now that
+     * updates to different parts of the graph can be propagated concurrently.
+     */
+    private final Lock m_handlerLock = new ReentrantLock();
+    /**
+     * The write lock guards the graph itself and is only held when the graph is replaced
+     * or fully re-evaluated. Alarm updates hold the read lock, and the per-vertex locks
+     * of the subgraph they propagate through.
+     */
     private final ReadWriteLock m_rwLock = new ReentrantReadWriteLock();
     private BusinessServiceGraph m_g = new BusinessServiceGraphImpl(Collections.emptyList());
+    private Map<GraphVertex, VertexState> m_vertexStates = Collections.emptyMap();
+
+    /**
+     * Latest pending status by reduction key, used to coalesce bursts of updates to the same key.
+     */
+    private final ConcurrentMap<String, Status> m_pendingStatusByReductionKey = new ConcurrentHashMap<>();
 
     private boolean m_recordAndDeferStatusUpdates = false;
     private final Map<GraphVertex, StatusUpdate> m_statusUpdatesByVertex = new LinkedHashMap<>();
@@ -98,6 +118,7 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
 
             // Create a new graph
             BusinessServiceGraph g = new BusinessServiceGraphImpl(businessServices);
+            Map<GraphVertex, VertexState> vertexStates = createVertexStates(g);
 
             // Prime the graph with the state from the previous graph and
             // keep track of the new reductions keys
@@ -105,7 +126,7 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
             for (String reductionKey : g.getReductionKeys()) {
                 GraphVertex reductionKeyVertex = m_g.getVertexByReductionKey(reductionKey);
                 if (reductionKeyVertex != null) {
-                    updateAndPropagateVertex(g, g.getVertexByReductionKey(reductionKey), reductionKeyVertex.getStatus());
+                    updateAndPropagateVertex(g, vertexStates, g.getVertexByReductionKey(reductionKey), reductionKeyVertex.getStatus());
                 } else {
                     reductionsKeysToLookup.add(reductionKey);
                 }
@@ -120,19 +141,18 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
                     // graph without having to wait for calls to handleNewOrUpdatedAlarm()
                     final Map<String, AlarmWrapper> lookup = m_alarmProvider.lookup(reductionsKeysToLookup);
                     for (Entry<String, AlarmWrapper> eachEntry : lookup.entrySet()) {
-                        updateAndPropagateVertex(g, g.getVertexByReductionKey(eachEntry.getKey()), eachEntry.getValue().getStatus());
+                        updateAndPropagateVertex(g, vertexStates, g.getVertexByReductionKey(eachEntry.getKey()), eachEntry.getValue().getStatus());
                     }
                 }
             }
             m_g = g;
+            m_vertexStates = vertexStates;
 
             // Stop recording, and release the status updates
             m_recordAndDeferStatusUpdates = false;
             for (StatusUpdate statusUpdate : m_statusUpdatesByVertex.values()) {
-                for (BusinessServiceStateChangeHandler handler : m_handlers) {
-                    handler.handleBusinessServiceStateChanged(statusUpdate.graph, statusUpdate.vertex.getBusinessService(),
-                            statusUpdate.vertex.getStatus(), statusUpdate.previousStatus);
-                }
+                notifyHandlers(statusUpdate.graph, statusUpdate.vertex.getBusinessService(),
+                        statusUpdate.vertex.getStatus(), statusUpdate.previousStatus);
             }
             m_statusUpdatesByVertex.clear();
         } finally {
@@ -140,14 +160,38 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
         }
     }
 
+    /**
+     * Updates are propagated while holding the read lock and the locks of the vertices along
+     * the way, so that updates affecting disjoint parts of the graph can be processed concurrently.
+     *
+     * When an update for a reduction key arrives while another thread is already propagating an
+     * update for the same key, only the latest status is recorded and that thread will apply it
+     * once it is done, collapsing bursts of updates into a single propagation.
+     */
     @Override
     public void handleNewOrUpdatedAlarm(AlarmWrapper alarm) {
-        m_rwLock.writeLock().lock();
+        final String reductionKey = alarm.getReductionKey();
+        if (reductionKey == null) {
+            return;
+        }
+        if (m_pendingStatusByReductionKey.put(reductionKey, alarm.getStatus()) != null) {
+            // Another thread is propagating updates for this key and will pick up our status
+            return;
+        }
+
+        m_rwLock.readLock().lock();
         try {
-            // Recursively propagate the status
-            updateAndPropagateVertex(m_g, m_g.getVertexByReductionKey(alarm.getReductionKey()), alarm.getStatus());
+            Status status;
+            do {
+                status = m_pendingStatusByReductionKey.get(reductionKey);
+                // Recursively propagate the status
+                updateAndPropagateVertex(m_g, m_vertexStates, m_g.getVertexByReductionKey(reductionKey), status);
+            } while (!m_pendingStatusByReductionKey.remove(reductionKey, status));
+        } catch (RuntimeException e) {
+            m_pendingStatusByReductionKey.remove(reductionKey);
+            throw e;
         } finally {
-            m_rwLock.writeLock().unlock();
+            m_rwLock.readLock().unlock();
         }
     }
 
@@ -158,7 +202,7 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
         try {
             for (AlarmWrapper alarm : alarms) {
                 // Recursively propagate the status for all of the given alarms
-                updateAndPropagateVertex(m_g, m_g.getVertexByReductionKey(alarm.getReductionKey()), alarm.getStatus());
+                updateAndPropagateVertex(m_g, m_vertexStates, m_g.getVertexByReductionKey(alarm.getReductionKey()), alarm.getStatus());
                 // Keep track of the reduction keys that have been processed
                 reductionKeysFromGivenAlarms.add(alarm.getReductionKey());
             }
@@ -166,19 +210,76 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
             for (String missingReductionKey : Sets.difference(m_g.getReductionKeys(), reductionKeysFromGivenAlarms)) {
                 // There is a vertex on the graph that corresponds to this reduction key
                 // but no alarm with this reduction key exists
-                updateAndPropagateVertex(m_g, m_g.getVertexByReductionKey(missingReductionKey), Status.INDETERMINATE);
+                updateAndPropagateVertex(m_g, m_vertexStates, m_g.getVertexByReductionKey(missingReductionKey), Status.INDETERMINATE);
             }
         } finally {
             m_rwLock.writeLock().unlock();
         }
     }
 
-    private void updateAndPropagateVertex(BusinessServiceGraph graph, GraphVertex vertex, Status newStatus) {
+    private static Map<GraphVertex, VertexState> createVertexStates(BusinessServiceGraph graph) {
+        final Map<GraphVertex, VertexState> vertexStates = Maps.newHashMapWithExpectedSize(graph.getVertexCount());
+        for (GraphVertex vertex : graph.getVertices()) {
+            vertexStates.put(vertex, new VertexState(graph.getOutEdges(vertex)));
+        }
+        return vertexStates;
+    }
+
+    private void updateAndPropagateVertex(BusinessServiceGraph graph, Map<GraphVertex, VertexState> vertexStates, GraphVertex vertex, Status newStatus) {
         if (vertex == null) {
             // Nothing to do here
             return;
         }
 
+        final Set<GraphVertex> parentsToReduce;
+        final Lock lock = vertexStates.get(vertex).lock;
+        lock.lock();
+        try {
+            parentsToReduce = updateVertex(graph, vertexStates, vertex, newStatus);
+        } finally {
+            lock.unlock();
+        }
+
+        for (GraphVertex parent : parentsToReduce) {
+            reduceUpdateAndPropagateVertex(graph, vertexStates, parent);
+        }
+    }
+
+    private void reduceUpdateAndPropagateVertex(BusinessServiceGraph graph, Map<GraphVertex, VertexState> vertexStates, GraphVertex vertex) {
+        final VertexState vertexState = vertexStates.get(vertex);
+        final Set<GraphVertex> parentsToReduce;
+        vertexState.lock.lock();
+        try {
+            // Reduce using the weighed statuses of the child edges
+            Status newStatus = vertexState.statusCounts.reduce(vertex.getReductionFunction());
+            if (newStatus == null) {
+                // Not one of the built-in functions, fall back to the expanded list of statuses
+                newStatus = vertex.getReductionFunction().reduce(weighEdges(graph.getOutEdges(vertex)))
+                        .map(StatusWithIndices::getStatus)
+                        .orElse(MIN_SEVERITY);
+            }
+
+            // Update, the propagation to the parents happens once we've released the lock
+            parentsToReduce = updateVertex(graph, vertexStates, vertex, newStatus);
+        } finally {
+            vertexState.lock.unlock();
+        }
+
+        for (GraphVertex parent : parentsToReduce) {
+            reduceUpdateAndPropagateVertex(graph, vertexStates, parent);
+        }
+    }
+
+    /**
+     * Updates the status of the given vertex and the status of its incoming edges.
+     *
+     * Must be called while holding the lock of the vertex. The lock of each parent is acquired
+     * while updating the edge and the counts of that parent: locks are always acquired from the
+     * child to the parent, which avoids deadlocks since the graph is acyclic.
+     *
+     * @return the parents which must be reduced, since the status of one of their edges changed
+     */
+    private Set<GraphVertex> updateVertex(BusinessServiceGraph graph, Map<GraphVertex, VertexState> vertexStates, GraphVertex vertex, Status newStatus) {
         // Apply lower bound
         newStatus = newStatus.isLessThan(MIN_SEVERITY) ? MIN_SEVERITY : newStatus;
 
@@ -186,7 +287,7 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
         Status previousStatus = vertex.getStatus();
         if (previousStatus.equals(newStatus)) {
             // The status hasn't changed, there's nothing to propagate
-            return;
+            return Collections.emptySet();
         }
         vertex.setStatus(newStatus);
 
@@ -194,7 +295,7 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
         onStatusUpdated(graph, vertex, previousStatus);
 
         // Update the edges with the mapped status
-        List<GraphEdge> updatedEges = Lists.newArrayList();
+        final Set<GraphVertex> parentsToReduce = Sets.newLinkedHashSet();
         for (GraphEdge edge : graph.getInEdges(vertex)) {
             Status mappedStatus = newStatus;
             if (newStatus.isGreaterThan(MIN_SEVERITY)) {
@@ -204,43 +305,25 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
                 mappedStatus = newStatus;
             }
 
-            if (mappedStatus.equals(edge.getStatus())) {
-                // The status hasn't changed
-                continue;
-            }
-
-            // Update the status and add it to the list of edges to propagate
-            edge.setStatus(mappedStatus);
-            updatedEges.add(edge);
-        }
-
-        // Propagate once all of the edges have been updated
-        for (GraphEdge edge : updatedEges) {
-            reduceUpdateAndPropagateVertex(graph, graph.getOpposite(vertex, edge));
-        }
-    }
-
-    private void reduceUpdateAndPropagateVertex(BusinessServiceGraph graph, GraphVertex vertex) {
-        if (vertex == null) {
-            // Nothing to do here
-            return;
-        }
-
-        // Calculate the weighed statuses from the child edges
-        List<StatusWithIndex> statuses = weighEdges(graph.getOutEdges(vertex));
-
-        // Reduce
-        Optional<StatusWithIndices> reducedStatus = vertex.getReductionFunction().reduce(statuses);
+            final GraphVertex parent = graph.getOpposite(vertex, edge);
+            final VertexState parentState = vertexStates.get(parent);
+            parentState.lock.lock();
+            try {
+                final Status previousEdgeStatus = edge.getStatus();
+                if (mappedStatus.equals(previousEdgeStatus)) {
+                    // The status hasn't changed
+                    continue;
+                }
 
-        Status newStatus;
-        if (reducedStatus.isPresent()) {
-            newStatus = reducedStatus.get().getStatus();
-        } else {
-            newStatus = MIN_SEVERITY;
+                // Update the status and add the parent to the list of vertices to propagate
+                edge.setStatus(mappedStatus);
+                parentState.statusCounts.update(edge, previousEdgeStatus, mappedStatus);
+                parentsToReduce.add(parent);
+            } finally {
+                parentState.lock.unlock();
+            }
         }
-
-        // Update and propagate
-        updateAndPropagateVertex(graph, vertex, newStatus);
+        return parentsToReduce;
     }
 
     public static List<StatusWithIndex> weighEdges(Collection<GraphEdge> edges) {
@@ -303,9 +386,18 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
         if (m_recordAndDeferStatusUpdates) {
             m_statusUpdatesByVertex.computeIfAbsent(vertex, v -> new StatusUpdate(graph, v, previousStatus));
         } else {
+            notifyHandlers(graph, businessService, vertex.getStatus(), previousStatus);
+        }
+    }
+
+    private void notifyHandlers(BusinessServiceGraph graph, BusinessService businessService, Status newStatus, Status previousStatus) {
+        m_handlerLock.lock();
+        try {
             for (BusinessServiceStateChangeHandler handler : m_handlers) {
-                handler.handleBusinessServiceStateChanged(graph, businessService, vertex.getStatus(), previousStatus);
+                handler.handleBusinessServiceStateChanged(graph, businessService, newStatus, previousStatus);
             }
+        } finally {
+            m_handlerLock.unlock();
         }
     }
 
@@ -581,6 +673,15 @@ public class DefaultBusinessServiceStateMachine implements BusinessServiceStateM
         return GraphAlgorithms.calculateImpact(m_g, vertex);
     }
 
+    private static class VertexState {
+        private final Lock lock = new ReentrantLock();
+        private final WeightedStatusCounts statusCounts;
+
+        private VertexState(Collection<GraphEdge> outEdges) {
+            statusCounts = new WeightedStatusCounts(outEdges);
+        }
+    }
+
     private static class StatusUpdate {
         private final BusinessServiceGraph graph;
         private final GraphVertex vertex;
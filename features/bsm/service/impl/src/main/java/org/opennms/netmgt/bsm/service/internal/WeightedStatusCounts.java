@@ -0,0 +1,162 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.bsm.service.internal;
+
+import java.math.BigInteger;
+import java.util.Collection;
+
+import org.opennms.netmgt.bsm.service.model.Status;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.ExponentialPropagation;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.HighestSeverity;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.HighestSeverityAbove;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.ReduceFunctionVisitor;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.ReductionFunction;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.Threshold;
+import org.opennms.netmgt.bsm.service.model.graph.GraphEdge;
+
+/**
+ * Keeps track of the relative weight of the child edges of a vertex, grouped by status.
+ *
+ * This is equivalent to the list built by {@link DefaultBusinessServiceStateMachine#weighEdges(Collection)},
+ * but is updated incrementally when the status of a single edge changes and allows the built-in
+ * reduction functions to be evaluated in constant time, without re-iterating the child edges.
+ *
+ * Instances are not thread-safe and must be guarded by the lock of the vertex they belong to.
+ */
+class WeightedStatusCounts {
+
+    private static final Status[] STATUSES = Status.values();
+
+    private final long[] m_weightByStatus = new long[STATUSES.length];
+
+    private final int m_gcd;
+
+    private long m_total;
+
+    public WeightedStatusCounts(Collection<GraphEdge> edges) {
+        // Use the same greatest common divisor as weighEdges() so that the relative weights match
+        m_gcd = edges.stream()
+                .map(GraphEdge::getWeight)
+                .reduce((a,b) -> BigInteger.valueOf(a).gcd(BigInteger.valueOf(b)).intValue())
+                .orElse(1);
+        for (GraphEdge edge : edges) {
+            add(edge.getStatus(), getRelativeWeight(edge));
+        }
+    }
+
+    /**
+     * Moves the relative weight of the given edge from one status to another.
+     */
+    public void update(GraphEdge edge, Status previousStatus, Status newStatus) {
+        final long relativeWeight = getRelativeWeight(edge);
+        add(previousStatus, -relativeWeight);
+        add(newStatus, relativeWeight);
+    }
+
+    public long getWeight(Status status) {
+        return m_weightByStatus[status.ordinal()];
+    }
+
+    public long getTotal() {
+        return m_total;
+    }
+
+    /**
+     * Evaluates the given reduction function against the current counts.
+     *
+     * @return the reduced status, {@link Status#INDETERMINATE} standing in for an empty result,
+     *   or null if the function is not one of the built-in functions and must be evaluated against
+     *   the expanded list of statuses instead
+     */
+    public Status reduce(ReductionFunction reductionFunction) {
+        return reductionFunction.accept(new ReduceFunctionVisitor<Status>() {
+            @Override
+            public Status visit(HighestSeverity highestSeverity) {
+                return getHighestSeverityAbove(Status.INDETERMINATE);
+            }
+
+            @Override
+            public Status visit(HighestSeverityAbove highestSeverityAbove) {
+                return getHighestSeverityAbove(highestSeverityAbove.getThreshold());
+            }
+
+            @Override
+            public Status visit(Threshold threshold) {
+                return getThreshold(threshold.getThreshold());
+            }
+
+            @Override
+            public Status visit(ExponentialPropagation exponentialPropagation) {
+                return getExponentialPropagation(exponentialPropagation.getBase());
+            }
+        });
+    }
+
+    private Status getHighestSeverityAbove(Status threshold) {
+        for (int i = STATUSES.length - 1; i > threshold.ordinal(); i--) {
+            if (m_weightByStatus[i] > 0) {
+                return STATUSES[i];
+            }
+        }
+        return Status.INDETERMINATE;
+    }
+
+    private Status getThreshold(float threshold) {
+        // Walk the statuses from the highest severity to the lowest, accumulating the
+        // hits for each status as we go: a hit is any weight with a status that is greater
+        // than or equal to the given status
+        long hits = 0;
+        for (int i = STATUSES.length - 1; i >= 0; i--) {
+            hits += m_weightByStatus[i];
+            if (hits > 0 && hits / (double)m_total >= threshold) {
+                return STATUSES[i];
+            }
+        }
+        return Status.INDETERMINATE;
+    }
+
+    private Status getExponentialPropagation(double base) {
+        if (m_total == 0 || m_weightByStatus[Status.INDETERMINATE.ordinal()] == m_total) {
+            return Status.INDETERMINATE;
+        }
+
+        double sum = 0;
+        for (int i = Status.WARNING.ordinal(); i < STATUSES.length; i++) {
+            if (m_weightByStatus[i] > 0) {
+                sum += m_weightByStatus[i] * Math.pow(base, (double)(i - Status.WARNING.ordinal()));
+            }
+        }
+
+        final int res = (int) Math.floor(Math.log(sum) / Math.log(base)) + Status.WARNING.ordinal();
+        return Status.get(Math.max(Math.min(res, Status.CRITICAL.ordinal()), Status.NORMAL.ordinal()));
+    }
+
+    private long getRelativeWeight(GraphEdge edge) {
+        // A gcd of 0 means that all of the weights are 0
+        return m_gcd == 0 ? 0 : Math.floorDiv(edge.getWeight(), m_gcd);
+    }
+
+    private void add(Status status, long weight) {
+        m_weightByStatus[status.ordinal()] += weight;
+        m_total += weight;
+    }
+}
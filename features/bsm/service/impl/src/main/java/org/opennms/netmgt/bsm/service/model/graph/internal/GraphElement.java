@@ -25,7 +25,8 @@ import org.opennms.netmgt.bsm.service.model.Status;
 
 public abstract class GraphElement {
 
-    private Status m_status = Status.NORMAL;
+    // Alarm updates are propagated concurrently, while the status may be read at any time
+    private volatile Status m_status = Status.NORMAL;
 
     public Status getStatus() {
         return m_status;
@@ -0,0 +1,139 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.bsm.service.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.netmgt.bsm.mock.MockAlarmWrapper;
+import org.opennms.netmgt.bsm.mock.MockBusinessServiceHierarchy;
+import org.opennms.netmgt.bsm.mock.MockBusinessServiceHierarchy.HierarchyBuilder;
+import org.opennms.netmgt.bsm.mock.MockBusinessServiceHierarchy.HierarchyBuilder.BusinessServiceBuilder;
+import org.opennms.netmgt.bsm.service.model.Status;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.HighestSeverity;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.ReductionFunction;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.Threshold;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to measure the propagation of alarm updates
+ * through the business service state machine.
+ * <p>
+ * The generated graph has a single root, with groups of business services below it. Each business
+ * service in a group has its own reduction keys, which yields 251 vertices per group.
+ */
+public class BusinessServiceStateMachineBenchmark {
+
+    private static final int BUSINESS_SERVICES_PER_GROUP = 50;
+    private static final int REDUCTION_KEYS_PER_BUSINESS_SERVICE = 4;
+    private static final Status[] STATUSES = new Status[] { Status.CRITICAL, Status.NORMAL, Status.MINOR, Status.NORMAL };
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class BSMState {
+
+        @Param({"10000", "100000"})
+        public int vertices;
+
+        @Param({"HighestSeverity", "Threshold"})
+        public String reductionFunction;
+
+        public DefaultBusinessServiceStateMachine stateMachine;
+        public String[] reductionKeys;
+        public final AtomicInteger counter = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            final int groups = Math.max(1, vertices / (1 + BUSINESS_SERVICES_PER_GROUP * (1 + REDUCTION_KEYS_PER_BUSINESS_SERVICE)));
+            reductionKeys = new String[groups * BUSINESS_SERVICES_PER_GROUP * REDUCTION_KEYS_PER_BUSINESS_SERVICE];
+
+            final HierarchyBuilder builder = MockBusinessServiceHierarchy.builder();
+            final BusinessServiceBuilder root = builder.withBusinessService(1)
+                    .withReductionFunction(createReductionFunction());
+            long businessServiceId = 2;
+            long edgeId = Integer.MAX_VALUE;
+            int k = 0;
+            for (int i = 0; i < groups; i++) {
+                final BusinessServiceBuilder group = root.withBusinessService(businessServiceId++)
+                        .withReductionFunction(createReductionFunction());
+                for (int j = 0; j < BUSINESS_SERVICES_PER_GROUP; j++) {
+                    final BusinessServiceBuilder businessService = group.withBusinessService(businessServiceId++)
+                            .withReductionFunction(createReductionFunction());
+                    for (int r = 0; r < REDUCTION_KEYS_PER_BUSINESS_SERVICE; r++) {
+                        reductionKeys[k] = "uei.opennms.org/nodes/nodeDown::" + k;
+                        businessService.withReductionKey(edgeId++, reductionKeys[k++]);
+                    }
+                    businessService.commit();
+                }
+                group.commit();
+            }
+            root.commit();
+
+            stateMachine = new DefaultBusinessServiceStateMachine();
+            stateMachine.setBusinessServices(builder.build().getBusinessServices());
+        }
+
+        public MockAlarmWrapper nextAlarm() {
+            final int n = counter.getAndIncrement() & Integer.MAX_VALUE;
+            return new MockAlarmWrapper(reductionKeys[n % reductionKeys.length], STATUSES[(n / reductionKeys.length) % STATUSES.length]);
+        }
+
+        private ReductionFunction createReductionFunction() {
+            if ("Threshold".equals(reductionFunction)) {
+                final Threshold threshold = new Threshold();
+                threshold.setThreshold(0.25f);
+                return threshold;
+            }
+            return new HighestSeverity();
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void handleNewOrUpdatedAlarm(BSMState state, Blackhole blackhole) {
+        state.stateMachine.handleNewOrUpdatedAlarm(state.nextAlarm());
+        blackhole.consume(state.stateMachine.getGraph());
+    }
+
+    @Threads(4)
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void handleNewOrUpdatedAlarmConcurrently(BSMState state, Blackhole blackhole) {
+        state.stateMachine.handleNewOrUpdatedAlarm(state.nextAlarm());
+        blackhole.consume(state.stateMachine.getGraph());
+    }
+}
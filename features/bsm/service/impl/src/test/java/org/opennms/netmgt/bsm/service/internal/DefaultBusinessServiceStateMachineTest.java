@@ -30,6 +30,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -49,6 +54,7 @@ import org.opennms.netmgt.bsm.service.model.graph.GraphVertex;
 import org.opennms.netmgt.bsm.test.LoggingStateChangeHandler;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 public class DefaultBusinessServiceStateMachineTest {
@@ -234,6 +240,71 @@ public class DefaultBusinessServiceStateMachineTest {
         assertEquals("b1", impacts.get(0).getBusinessService().getName());
     }
 
+    @Test
+    public void canPropagateUpdatesConcurrently() throws Exception {
+        // Create a hierarchy where several business services share the same parent and reduction keys
+        MockBusinessServiceHierarchy.HierarchyBuilder builder = MockBusinessServiceHierarchy.builder();
+        MockBusinessServiceHierarchy.HierarchyBuilder.BusinessServiceBuilder b1 = builder.withBusinessService(1);
+        for (int i = 2; i < 10; i++) {
+            b1.withBusinessService(i)
+                .withReductionKey(i * 10, "a" + i)
+                .withReductionKey(i * 10 + 1, "shared")
+                .commit();
+        }
+        MockBusinessServiceHierarchy h = b1.commit().build();
+
+        DefaultBusinessServiceStateMachine stateMachine = new DefaultBusinessServiceStateMachine();
+        stateMachine.setBusinessServices(h.getBusinessServices());
+
+        // Handlers are not required to be thread-safe and must never be called concurrently
+        final AtomicBoolean inHandler = new AtomicBoolean();
+        final AtomicInteger concurrentCalls = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        stateMachine.addHandler((graph, businessService, newStatus, oldStatus) -> {
+            if (!inHandler.compareAndSet(false, true)) {
+                concurrentCalls.incrementAndGet();
+                return;
+            }
+            calls.incrementAndGet();
+            Thread.yield();
+            inHandler.set(false);
+        }, null);
+
+        // Flip the status of the alarms from multiple threads, always ending on the last status
+        final Status[] statuses = new Status[] { Status.CRITICAL, Status.NORMAL, Status.MAJOR, Status.WARNING };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 2; i < 10; i++) {
+                final String reductionKey = "a" + i;
+                futures.add(executor.submit(() -> {
+                    for (int k = 0; k < 1000; k++) {
+                        for (Status status : statuses) {
+                            stateMachine.handleNewOrUpdatedAlarm(new MockAlarmWrapper(reductionKey, status));
+                            stateMachine.handleNewOrUpdatedAlarm(new MockAlarmWrapper("shared", status));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // The final state must match the last status that was sent
+        assertEquals(Status.WARNING, stateMachine.getOperationalStatus("shared"));
+        for (int i = 2; i < 10; i++) {
+            assertEquals(Status.WARNING, stateMachine.getOperationalStatus("a" + i));
+            assertEquals(Status.WARNING, stateMachine.getOperationalStatus(h.getBusinessServiceById(i)));
+        }
+        assertEquals(Status.WARNING, stateMachine.getOperationalStatus(h.getBusinessServiceById(1)));
+
+        assertTrue(calls.get() > 0);
+        assertEquals(0, concurrentCalls.get());
+    }
+
     @Test
     public void canRenderGraphToPng() {
         // Create a simple hierarchy
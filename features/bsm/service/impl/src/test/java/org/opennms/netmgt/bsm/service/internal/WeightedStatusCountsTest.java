@@ -0,0 +1,149 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.bsm.service.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Test;
+import org.opennms.netmgt.bsm.mock.MockReductionKeyEdge;
+import org.opennms.netmgt.bsm.service.model.Status;
+import org.opennms.netmgt.bsm.service.model.StatusWithIndex;
+import org.opennms.netmgt.bsm.service.model.StatusWithIndices;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.ExponentialPropagation;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.HighestSeverity;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.HighestSeverityAbove;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.ReduceFunctionVisitor;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.ReductionFunction;
+import org.opennms.netmgt.bsm.service.model.functions.reduce.Threshold;
+import org.opennms.netmgt.bsm.service.model.graph.GraphEdge;
+import org.opennms.netmgt.bsm.service.model.graph.internal.GraphEdgeImpl;
+
+import com.google.common.collect.Lists;
+
+public class WeightedStatusCountsTest {
+
+    private static final Status[] STATUSES = Status.values();
+
+    @Test
+    public void canReduceLikeTheExpandedStatuses() {
+        final List<ReductionFunction> reductionFunctions = getReductionFunctions();
+        final Random random = new Random(42);
+        for (int k = 0; k < 500; k++) {
+            // Generate a random set of edges, with weights sharing a common divisor every so often
+            final List<GraphEdge> edges = Lists.newArrayList();
+            final int multiplier = 1 + random.nextInt(3);
+            for (int i = random.nextInt(8); i > 0; i--) {
+                final MockReductionKeyEdge edge = new MockReductionKeyEdge(i, "rk" + i, null);
+                edge.setWeight(multiplier * (1 + random.nextInt(4)));
+                final GraphEdge graphEdge = new GraphEdgeImpl(edge);
+                graphEdge.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+                edges.add(graphEdge);
+            }
+
+            final WeightedStatusCounts counts = new WeightedStatusCounts(edges);
+            verifyEquivalence(reductionFunctions, edges, counts);
+
+            // Now update the edges one at a time and verify the counts are kept in sync
+            for (GraphEdge edge : edges) {
+                final Status previousStatus = edge.getStatus();
+                final Status newStatus = STATUSES[random.nextInt(STATUSES.length)];
+                edge.setStatus(newStatus);
+                counts.update(edge, previousStatus, newStatus);
+                verifyEquivalence(reductionFunctions, edges, counts);
+            }
+        }
+    }
+
+    @Test
+    public void canTrackWeightsByStatus() {
+        final MockReductionKeyEdge e1 = new MockReductionKeyEdge(1, "a1", null);
+        e1.setWeight(2);
+        final MockReductionKeyEdge e2 = new MockReductionKeyEdge(2, "a2", null);
+        e2.setWeight(4);
+        final GraphEdge g1 = new GraphEdgeImpl(e1);
+        final GraphEdge g2 = new GraphEdgeImpl(e2);
+
+        final WeightedStatusCounts counts = new WeightedStatusCounts(Lists.newArrayList(g1, g2));
+        assertEquals(3, counts.getTotal());
+        assertEquals(3, counts.getWeight(Status.NORMAL));
+
+        g2.setStatus(Status.MAJOR);
+        counts.update(g2, Status.NORMAL, Status.MAJOR);
+        assertEquals(3, counts.getTotal());
+        assertEquals(1, counts.getWeight(Status.NORMAL));
+        assertEquals(2, counts.getWeight(Status.MAJOR));
+        assertEquals(Status.MAJOR, counts.reduce(new HighestSeverity()));
+    }
+
+    @Test
+    public void returnsNullForUnknownFunctions() {
+        final WeightedStatusCounts counts = new WeightedStatusCounts(Lists.newArrayList());
+        assertNull(counts.reduce(new ReductionFunction() {
+            @Override
+            public Optional<StatusWithIndices> reduce(List<StatusWithIndex> statuses) {
+                return Optional.empty();
+            }
+
+            @Override
+            public <T> T accept(ReduceFunctionVisitor<T> visitor) {
+                return null;
+            }
+        }));
+    }
+
+    private static void verifyEquivalence(List<ReductionFunction> reductionFunctions, List<GraphEdge> edges, WeightedStatusCounts counts) {
+        final List<StatusWithIndex> statuses = DefaultBusinessServiceStateMachine.weighEdges(edges);
+        assertEquals(statuses.size(), counts.getTotal());
+        for (ReductionFunction reductionFunction : reductionFunctions) {
+            final Status expected = reductionFunction.reduce(statuses)
+                    .map(StatusWithIndices::getStatus)
+                    .orElse(Status.INDETERMINATE);
+            assertEquals(reductionFunction + " on " + edges, expected, counts.reduce(reductionFunction));
+        }
+    }
+
+    private static List<ReductionFunction> getReductionFunctions() {
+        final List<ReductionFunction> reductionFunctions = Lists.newArrayList();
+        reductionFunctions.add(new HighestSeverity());
+        for (Status status : STATUSES) {
+            final HighestSeverityAbove highestSeverityAbove = new HighestSeverityAbove();
+            highestSeverityAbove.setThreshold(status);
+            reductionFunctions.add(highestSeverityAbove);
+        }
+        for (float t : new float[] { 0.1f, 0.25f, 0.33f, 0.5f, 0.75f, 1.0f }) {
+            final Threshold threshold = new Threshold();
+            threshold.setThreshold(t);
+            reductionFunctions.add(threshold);
+        }
+        for (double base : new double[] { 2.0, 3.0, 4.0 }) {
+            final ExponentialPropagation exponentialPropagation = new ExponentialPropagation();
+            exponentialPropagation.setBase(base);
+            reductionFunctions.add(exponentialPropagation);
+        }
+        return reductionFunctions;
+    }
+}
@@ -24,6 +24,7 @@ package org.opennms.netmgt.enlinkd.common;
 import java.net.InetAddress;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -38,7 +39,9 @@ import org.opennms.netmgt.model.PrimaryType;
 import org.opennms.netmgt.scheduler.Schedulable;
 import org.opennms.netmgt.topologies.service.api.OnmsTopology;
 import org.opennms.netmgt.topologies.service.api.OnmsTopologyDao;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyEdge;
 import org.opennms.netmgt.topologies.service.api.OnmsTopologyMessage;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyPort;
 import org.opennms.netmgt.topologies.service.api.OnmsTopologyProtocol;
 import org.opennms.netmgt.topologies.service.api.OnmsTopologyRef;
 import org.opennms.netmgt.topologies.service.api.OnmsTopologyUpdater;
@@ -80,6 +83,7 @@ public abstract class TopologyUpdater extends Schedulable implements OnmsTopolog
     private boolean m_runned = false;
     private boolean m_registered = false;
     private boolean m_forceRun = false;
+    private boolean m_incremental = false;
 
     public TopologyUpdater(
             TopologyService topologyService,
@@ -171,6 +175,7 @@ public abstract class TopologyUpdater extends Schedulable implements OnmsTopolog
                 OnmsTopology newTopology = buildTopology();
                 m_runned = true;
                 m_topologyService.parseUpdates();
+                m_topologyService.parseUpdatedNodes();
                 newTopology.getVertices().forEach(this::update);
                 newTopology.getEdges().forEach(this::update);
                 LOG.info("run: {} first run topology calculated", getName());
@@ -180,8 +185,14 @@ public abstract class TopologyUpdater extends Schedulable implements OnmsTopolog
                 return oldTopology;
             }
         } else if (m_topologyService.parseUpdates() || m_forceRun) {
+            final boolean forced = m_forceRun;
             m_forceRun = false;
+            final Set<Integer> updatedNodes = m_topologyService.parseUpdatedNodes();
             m_topologyService.refresh();
+            if (isIncremental() && !forced && updatedNodes != null) {
+                LOG.info("run: updates {}, patching topology for {} nodes", getName(), updatedNodes.size());
+                return patchTopology(oldTopology, updatedNodes);
+            }
             LOG.info("run: updates {}, recalculating topology ", getName());
             OnmsTopology newTopology;
             try {
@@ -200,6 +211,109 @@ public abstract class TopologyUpdater extends Schedulable implements OnmsTopolog
         return oldTopology;
     }
 
+    /**
+     * Applies the topology rebuilt for the updated nodes to a copy of the old topology.
+     * Only the vertices and edges that were added, changed or removed are sent to the
+     * {@link OnmsTopologyDao}.
+     */
+    protected OnmsTopology patchTopology(OnmsTopology oldTopology, Set<Integer> updatedNodes) {
+        if (updatedNodes.isEmpty()) {
+            return oldTopology;
+        }
+        final OnmsTopology patch;
+        try {
+            patch = buildTopology(updatedNodes);
+        } catch (Exception e) {
+            LOG.error("cannot build topology for nodes {}", updatedNodes, e);
+            return oldTopology;
+        }
+
+        final OnmsTopology newTopology = oldTopology.clone();
+        oldTopology.getEdges().stream()
+                .filter(g -> isOnNodes(g, updatedNodes) && !patch.hasEdge(g.getId()))
+                .forEach(g -> {
+                    newTopology.getEdges().remove(g);
+                    delete(g);
+                });
+        oldTopology.getVertices().stream()
+                .filter(v -> isOnNodes(v, updatedNodes) && !patch.hasVertex(v.getId()))
+                .forEach(v -> {
+                    newTopology.getVertices().remove(v);
+                    delete(v);
+                });
+
+        for (OnmsTopologyVertex vertex : patch.getVertices()) {
+            if (!isSameVertex(oldTopology.getVertex(vertex.getId()), vertex)) {
+                newTopology.getVertices().remove(vertex);
+                newTopology.getVertices().add(vertex);
+                update(vertex);
+            }
+        }
+        for (OnmsTopologyEdge edge : patch.getEdges()) {
+            if (!isSameEdge(oldTopology.getEdge(edge.getId()), edge)) {
+                newTopology.getEdges().remove(edge);
+                newTopology.getEdges().add(edge);
+                update(edge);
+            }
+        }
+        return newTopology;
+    }
+
+    /**
+     * Builds the part of the topology that belongs to the given nodes: their vertices
+     * and every edge with a port on one of them. The default implementation filters the
+     * full topology, updaters should override it when they can compute it directly.
+     */
+    public OnmsTopology buildTopology(Set<Integer> nodeIds) {
+        final OnmsTopology topology = buildTopology();
+        final OnmsTopology patch = new OnmsTopology();
+        topology.getVertices().stream().filter(v -> isOnNodes(v, nodeIds)).forEach(patch::addVertex);
+        topology.getEdges().stream().filter(g -> isOnNodes(g, nodeIds)).forEach(patch::addEdge);
+        return patch;
+    }
+
+    /**
+     * Whether the vertices and edges of this updater can be attributed to nodes,
+     * which is required to patch the topology with {@link #buildTopology(Set)}.
+     */
+    protected boolean supportsIncremental() {
+        return false;
+    }
+
+    private static boolean isOnNodes(OnmsTopologyVertex vertex, Set<Integer> nodeIds) {
+        return vertex.getNodeid() != null && nodeIds.contains(vertex.getNodeid());
+    }
+
+    private static boolean isOnNodes(OnmsTopologyEdge edge, Set<Integer> nodeIds) {
+        return isOnNodes(edge.getSource().getVertex(), nodeIds) || isOnNodes(edge.getTarget().getVertex(), nodeIds);
+    }
+
+    private static boolean isSameVertex(OnmsTopologyVertex v1, OnmsTopologyVertex v2) {
+        return v1 != null
+                && Objects.equals(v1.getLabel(), v2.getLabel())
+                && Objects.equals(v1.getAddress(), v2.getAddress())
+                && Objects.equals(v1.getIconKey(), v2.getIconKey())
+                && Objects.equals(v1.getNodeid(), v2.getNodeid())
+                && Objects.equals(v1.getToolTipText(), v2.getToolTipText());
+    }
+
+    private static boolean isSameEdge(OnmsTopologyEdge g1, OnmsTopologyEdge g2) {
+        return g1 != null
+                && isSamePort(g1.getSource(), g2.getSource())
+                && isSamePort(g1.getTarget(), g2.getTarget());
+    }
+
+    private static boolean isSamePort(OnmsTopologyPort p1, OnmsTopologyPort p2) {
+        return Objects.equals(p1.getId(), p2.getId())
+                && isSameVertex(p1.getVertex(), p2.getVertex())
+                && Objects.equals(p1.getIndex(), p2.getIndex())
+                && Objects.equals(p1.getIfindex(), p2.getIfindex())
+                && Objects.equals(p1.getIfname(), p2.getIfname())
+                && Objects.equals(p1.getAddr(), p2.getAddr())
+                && Objects.equals(p1.getSpeed(), p2.getSpeed())
+                && Objects.equals(p1.getToolTipText(), p2.getToolTipText());
+    }
+
     public OnmsTopologyDao getTopologyDao() {
         return m_topologyDao;
     }
@@ -298,6 +412,14 @@ public abstract class TopologyUpdater extends Schedulable implements OnmsTopolog
     public void forceRun() {
         m_forceRun = true;
     }
+
+    public boolean isIncremental() {
+        return m_incremental && supportsIncremental();
+    }
+
+    public void setIncremental(boolean incremental) {
+        m_incremental = incremental;
+    }
                 
 }
 
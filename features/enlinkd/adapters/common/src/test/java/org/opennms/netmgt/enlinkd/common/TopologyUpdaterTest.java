@@ -0,0 +1,287 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.enlinkd.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.enlinkd.service.api.TopologyService;
+import org.opennms.netmgt.topologies.service.api.OnmsTopology;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyConsumer;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyDao;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyEdge;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyMessage;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyMessage.TopologyMessageStatus;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyPort;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyProtocol;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyUpdater;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyVertex;
+
+public class TopologyUpdaterTest {
+
+    private final List<OnmsTopologyMessage> m_messages = new ArrayList<>();
+    private final Set<Integer> m_updatedNodes = new HashSet<>();
+    private boolean m_updates;
+    private boolean m_updatesWithoutNode;
+
+    private TestTopologyUpdater m_updater;
+
+    @Before
+    public void setUp() {
+        m_messages.clear();
+        m_updatedNodes.clear();
+        m_updates = false;
+        m_updatesWithoutNode = false;
+        m_updater = new TestTopologyUpdater(new TestTopologyService(), new RecordingTopologyDao());
+        m_updater.setIncremental(true);
+    }
+
+    @Test
+    public void testPatchTopology() {
+        final OnmsTopology oldTopology = topology(
+                vertex(1, "node1"), vertex(2, "node2"), vertex(3, "node3"));
+        oldTopology.addEdge(edge(oldTopology, 1, 2));
+        oldTopology.addEdge(edge(oldTopology, 2, 3));
+
+        // node1 is renamed, node3 is removed and node4 is added with a link to node1
+        final OnmsTopology topology = topology(
+                vertex(1, "router1"), vertex(2, "node2"), vertex(4, "node4"));
+        topology.addEdge(edge(topology, 1, 2));
+        topology.addEdge(edge(topology, 1, 4));
+        m_updater.m_built = topology;
+
+        final OnmsTopology newTopology = m_updater.patchTopology(oldTopology, new HashSet<>(Arrays.asList(1, 3, 4)));
+
+        assertEquals(ids("1", "2", "4"), newTopology.getVertices().stream().map(OnmsTopologyVertex::getId).collect(Collectors.toSet()));
+        assertEquals(ids("1|2", "1|4"), newTopology.getEdges().stream().map(OnmsTopologyEdge::getId).collect(Collectors.toSet()));
+        assertEquals("router1", newTopology.getVertex("1").getLabel());
+        assertSame(oldTopology.getVertex("2"), newTopology.getVertex("2"));
+        // the old topology is left untouched
+        assertTrue(oldTopology.hasVertex("3"));
+        assertTrue(oldTopology.hasEdge("2|3"));
+
+        assertEquals(ids("2|3", "3"), sent(TopologyMessageStatus.DELETE));
+        // the edge to node2 is sent again, since its source vertex changed
+        assertEquals(ids("1", "4", "1|2", "1|4"), sent(TopologyMessageStatus.UPDATE));
+    }
+
+    @Test
+    public void testPatchTopologyWithoutChanges() {
+        final OnmsTopology oldTopology = topology(vertex(1, "node1"), vertex(2, "node2"));
+        oldTopology.addEdge(edge(oldTopology, 1, 2));
+        final OnmsTopology topology = topology(vertex(1, "node1"), vertex(2, "node2"));
+        topology.addEdge(edge(topology, 1, 2));
+        m_updater.m_built = topology;
+
+        final OnmsTopology newTopology = m_updater.patchTopology(oldTopology, Collections.singleton(2));
+
+        assertEquals(ids("1", "2"), newTopology.getVertices().stream().map(OnmsTopologyVertex::getId).collect(Collectors.toSet()));
+        assertEquals(ids("1|2"), newTopology.getEdges().stream().map(OnmsTopologyEdge::getId).collect(Collectors.toSet()));
+        assertTrue(m_messages.isEmpty());
+
+        assertSame(oldTopology, m_updater.patchTopology(oldTopology, Collections.emptySet()));
+    }
+
+    @Test
+    public void testIncrementalRun() {
+        OnmsTopology topology = topology(vertex(1, "node1"), vertex(2, "node2"), vertex(3, "node3"));
+        topology.addEdge(edge(topology, 1, 2));
+        m_updater.m_built = topology;
+
+        // the first run sends the whole topology
+        OnmsTopology current = m_updater.runDiscoveryInternally(new OnmsTopology());
+        assertEquals(ids("1", "2", "3", "1|2"), sent(TopologyMessageStatus.UPDATE));
+
+        // a link is discovered on node3, only that part is sent
+        m_messages.clear();
+        topology = topology(vertex(1, "node1"), vertex(2, "node2"), vertex(3, "node3"));
+        topology.addEdge(edge(topology, 1, 2));
+        topology.addEdge(edge(topology, 2, 3));
+        m_updater.m_built = topology;
+        m_updatedNodes.add(3);
+        m_updates = true;
+        current = m_updater.runDiscoveryInternally(current);
+        assertEquals(ids("2|3"), sent(TopologyMessageStatus.UPDATE));
+        assertTrue(sent(TopologyMessageStatus.DELETE).isEmpty());
+        assertEquals(ids("1|2", "2|3"), current.getEdges().stream().map(OnmsTopologyEdge::getId).collect(Collectors.toSet()));
+
+        // an update without node recalculates the whole topology
+        m_messages.clear();
+        topology = topology(vertex(1, "node1"), vertex(2, "node2"));
+        topology.addEdge(edge(topology, 1, 2));
+        m_updater.m_built = topology;
+        m_updatesWithoutNode = true;
+        m_updates = true;
+        current = m_updater.runDiscoveryInternally(current);
+        assertEquals(ids("3", "2|3"), sent(TopologyMessageStatus.DELETE));
+        assertFalse(current.hasVertex("3"));
+    }
+
+    private Set<String> sent(TopologyMessageStatus status) {
+        return m_messages.stream()
+                .filter(m -> m.getMessagestatus() == status)
+                .map(m -> m.getMessagebody().getId())
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    private static OnmsTopology topology(OnmsTopologyVertex... vertices) {
+        final OnmsTopology topology = new OnmsTopology();
+        Arrays.stream(vertices).forEach(topology::addVertex);
+        return topology;
+    }
+
+    private static OnmsTopologyVertex vertex(int nodeId, String label) {
+        final OnmsTopologyVertex vertex = OnmsTopologyVertex.create(Integer.toString(nodeId), label, "10.0.0." + nodeId, "default");
+        vertex.setNodeid(nodeId);
+        return vertex;
+    }
+
+    private static OnmsTopologyEdge edge(OnmsTopology topology, int source, int target) {
+        return OnmsTopologyEdge.create(source + "|" + target,
+                OnmsTopologyPort.create(source + ":" + target, topology.getVertex(Integer.toString(source)), target),
+                OnmsTopologyPort.create(target + ":" + source, topology.getVertex(Integer.toString(target)), source));
+    }
+
+    private class TestTopologyService implements TopologyService {
+        @Override
+        public boolean parseUpdates() {
+            final boolean updates = m_updates;
+            m_updates = false;
+            return updates;
+        }
+
+        @Override
+        public void updatesAvailable() {
+            m_updatesWithoutNode = true;
+            m_updates = true;
+        }
+
+        @Override
+        public void updatesAvailable(int nodeId) {
+            m_updatedNodes.add(nodeId);
+            m_updates = true;
+        }
+
+        @Override
+        public Set<Integer> parseUpdatedNodes() {
+            final Set<Integer> updatedNodes = new HashSet<>(m_updatedNodes);
+            m_updatedNodes.clear();
+            if (m_updatesWithoutNode) {
+                m_updatesWithoutNode = false;
+                return null;
+            }
+            return updatedNodes;
+        }
+
+        @Override
+        public boolean hasUpdates() {
+            return m_updates;
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+
+    private class RecordingTopologyDao implements OnmsTopologyDao {
+        @Override
+        public OnmsTopology getTopology(String protocol) {
+            return null;
+        }
+
+        @Override
+        public Map<OnmsTopologyProtocol, OnmsTopology> getTopologies() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Set<OnmsTopologyProtocol> getSupportedProtocols() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void register(OnmsTopologyUpdater updater) {
+        }
+
+        @Override
+        public void unregister(OnmsTopologyUpdater updater) {
+        }
+
+        @Override
+        public void subscribe(OnmsTopologyConsumer consumer) {
+        }
+
+        @Override
+        public void unsubscribe(OnmsTopologyConsumer consumer) {
+        }
+
+        @Override
+        public void update(OnmsTopologyUpdater updater, OnmsTopologyMessage message) {
+            m_messages.add(message);
+        }
+    }
+
+    private static class TestTopologyUpdater extends TopologyUpdater {
+        private OnmsTopology m_built = new OnmsTopology();
+
+        TestTopologyUpdater(TopologyService topologyService, OnmsTopologyDao topologyDao) {
+            super(topologyService, topologyDao, null);
+        }
+
+        @Override
+        public OnmsTopology buildTopology() {
+            return m_built.clone();
+        }
+
+        @Override
+        protected boolean supportsIncremental() {
+            return true;
+        }
+
+        @Override
+        public OnmsTopologyProtocol getProtocol() {
+            return OnmsTopologyProtocol.create("test");
+        }
+
+        @Override
+        public String getName() {
+            return "TestTopologyUpdater";
+        }
+    }
+}
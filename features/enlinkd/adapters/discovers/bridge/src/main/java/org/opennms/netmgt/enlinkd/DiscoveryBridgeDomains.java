@@ -22,6 +22,7 @@
 package org.opennms.netmgt.enlinkd;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -36,6 +37,7 @@ import java.util.concurrent.Future;
 
 import org.opennms.netmgt.scheduler.Schedulable;
 import org.opennms.netmgt.enlinkd.service.api.BridgeForwardingTableEntry;
+import org.opennms.netmgt.enlinkd.service.api.BridgeMacIndex;
 import org.opennms.netmgt.enlinkd.service.api.BridgeTopologyException;
 import org.opennms.netmgt.enlinkd.service.api.BridgeTopologyService;
 import org.opennms.netmgt.enlinkd.service.api.BroadcastDomain;
@@ -70,6 +72,15 @@ public class DiscoveryBridgeDomains extends Schedulable {
                 || retainedSet.size() > setB.size() * DOMAIN_MATCH_MIN_RATIO;
     }
 
+    public static boolean checkMacSets(BitSet setA, BitSet setB) {
+        BitSet retainedSet = (BitSet) setB.clone();
+        retainedSet.and(setA);
+        int retained = retainedSet.cardinality();
+        return retained > DOMAIN_MATCH_MIN_SIZE
+                || retained > setA.cardinality() * DOMAIN_MATCH_MIN_RATIO
+                || retained > setB.cardinality() * DOMAIN_MATCH_MIN_RATIO;
+    }
+
     private BroadcastDomain find(Set<Integer> nodes, Set<String> setA) throws BridgeTopologyException {
         
         BroadcastDomain domain = null;
@@ -123,6 +134,11 @@ public class DiscoveryBridgeDomains extends Schedulable {
             = new HashMap<>();
         Map<Integer, Set<String>> nodeMacs 
         = new HashMap<>();
+        // the macs are interned once so that the pairwise domain match
+        // intersects bitsets instead of copying sets of strings
+        BridgeMacIndex macIndex = new BridgeMacIndex();
+        Map<Integer, BitSet> nodeMacBits
+        = new HashMap<>();
 
         Set<Integer> nodeids 
         = new HashSet<>(
@@ -144,6 +160,7 @@ public class DiscoveryBridgeDomains extends Schedulable {
             }
             LOG.debug("run: node:[{}]. macs:{}", nodeid, macs);
             nodeMacs.put(nodeid, macs);
+            nodeMacBits.put(nodeid, macIndex.toBitSet(macs));
         }
 
         Set<Integer> parsed = new HashSet<>();
@@ -160,8 +177,8 @@ public class DiscoveryBridgeDomains extends Schedulable {
                 if (parsed.contains(nodeidB)) {
                     continue;
                 }
-                if (checkMacSets(nodeMacs.get(nodeidA),
-                                                 nodeMacs.get(nodeidB))) {
+                if (checkMacSets(nodeMacBits.get(nodeidA),
+                                                 nodeMacBits.get(nodeidB))) {
                     nodeondomainbft.get(nodeidA).put(nodeidB,
                                                      nodeBft.get(nodeidB));
                     parsed.add(nodeidB);
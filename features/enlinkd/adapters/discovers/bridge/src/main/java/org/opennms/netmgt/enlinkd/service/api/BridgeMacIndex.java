@@ -0,0 +1,252 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.enlinkd.service.api;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Interns the mac addresses seen while calculating a broadcast domain
+ * into dense int ids so that the forwarding table overlap tests can run
+ * on {@link BitSet}s instead of copying and intersecting sets of strings.
+ *
+ * A mac address written as 12 lower case hex digits is keyed by its 48
+ * bit value in an open addressing table of primitive longs, anything else
+ * falls back to a string keyed map: two macs get the same id if and only
+ * if the strings are equal.
+ *
+ * Instances are not thread safe, use one per calculation.
+ */
+public class BridgeMacIndex {
+
+    private static final long FREE = -1L;
+
+    private long[] m_keys = newKeys(1024);
+    private int[] m_values = new int[1024];
+    private int m_longs = 0;
+    private final Map<String, Integer> m_others = new HashMap<>();
+    private int m_size = 0;
+    private final Map<BridgeForwardingTable, Table> m_tables = new IdentityHashMap<>();
+
+    /**
+     * <p>toLong</p>
+     *
+     * @param mac a mac address
+     * @return the 48 bit value of the mac or -1 if it is not 12 lower case hex digits
+     */
+    public static long toLong(String mac) {
+        if (mac == null || mac.length() != 12) {
+            return FREE;
+        }
+        long value = 0L;
+        for (int i = 0; i < 12; i++) {
+            char c = mac.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else {
+                return FREE;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    public int intern(String mac) {
+        final long key = toLong(mac);
+        if (key == FREE) {
+            Integer id = m_others.get(mac);
+            if (id == null) {
+                id = m_size++;
+                m_others.put(mac, id);
+            }
+            return id;
+        }
+        int slot = slot(key, m_keys.length);
+        while (m_keys[slot] != FREE) {
+            if (m_keys[slot] == key) {
+                return m_values[slot];
+            }
+            slot = (slot + 1) & (m_keys.length - 1);
+        }
+        m_keys[slot] = key;
+        m_values[slot] = m_size;
+        if (++m_longs * 2 > m_keys.length) {
+            rehash();
+        }
+        return m_size++;
+    }
+
+    /**
+     * <p>size</p>
+     *
+     * @return the number of distinct macs interned so far
+     */
+    public int size() {
+        return m_size;
+    }
+
+    public BitSet toBitSet(Collection<String> macs) {
+        final BitSet bits = new BitSet();
+        for (String mac : macs) {
+            bits.set(intern(mac));
+        }
+        return bits;
+    }
+
+    /**
+     * <p>getTable</p>
+     *
+     * The view is built from the mac to port map of the forwarding table the
+     * first time it is requested and cached afterwards: the mac to port map
+     * is not modified once the table has been created.
+     *
+     * @param bft a forwarding table
+     * @return the interned view of the learned macs of the forwarding table
+     */
+    public Table getTable(BridgeForwardingTable bft) {
+        return m_tables.computeIfAbsent(bft, this::index);
+    }
+
+    private Table index(BridgeForwardingTable bft) {
+        final Map<BridgePort, Integer> slots = new LinkedHashMap<>();
+        final int[] macIds = new int[bft.getMactoport().size()];
+        final int[] portSlots = new int[macIds.length];
+        int i = 0;
+        for (Map.Entry<String, BridgePort> entry : bft.getMactoport().entrySet()) {
+            macIds[i] = intern(entry.getKey());
+            portSlots[i] = slots.computeIfAbsent(entry.getValue(), p -> slots.size());
+            i++;
+        }
+        return new Table(slots.keySet().toArray(new BridgePort[0]), macIds, portSlots, m_size);
+    }
+
+    private void rehash() {
+        final long[] keys = m_keys;
+        final int[] values = m_values;
+        m_keys = newKeys(keys.length * 2);
+        m_values = new int[keys.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == FREE) {
+                continue;
+            }
+            int slot = slot(keys[i], m_keys.length);
+            while (m_keys[slot] != FREE) {
+                slot = (slot + 1) & (m_keys.length - 1);
+            }
+            m_keys[slot] = keys[i];
+            m_values[slot] = values[i];
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        final long[] keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        return keys;
+    }
+
+    private static int slot(long key, int capacity) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & (capacity - 1);
+    }
+
+    /**
+     * The learned macs of a {@link BridgeForwardingTable} as interned ids:
+     * one {@link BitSet} for the whole table and one per bridge port.
+     */
+    public static class Table {
+        private final BridgePort[] m_ports;
+        private final BitSet[] m_portMacs;
+        private final BitSet m_macs = new BitSet();
+        private final int[] m_macToPort;
+
+        private Table(BridgePort[] ports, int[] macIds, int[] portSlots, int size) {
+            m_ports = ports;
+            m_portMacs = new BitSet[ports.length];
+            for (int i = 0; i < ports.length; i++) {
+                m_portMacs[i] = new BitSet();
+            }
+            m_macToPort = new int[size];
+            Arrays.fill(m_macToPort, -1);
+            for (int i = 0; i < macIds.length; i++) {
+                m_macs.set(macIds[i]);
+                m_portMacs[portSlots[i]].set(macIds[i]);
+                m_macToPort[macIds[i]] = portSlots[i];
+            }
+        }
+
+        /**
+         * <p>getMacs</p>
+         *
+         * @return the ids of all the learned macs, must not be modified
+         */
+        public BitSet getMacs() {
+            return m_macs;
+        }
+
+        public int getPortCount() {
+            return m_ports.length;
+        }
+
+        public BridgePort getPortAt(int slot) {
+            return m_ports[slot];
+        }
+
+        /**
+         * <p>getMacsAt</p>
+         *
+         * @param slot a port slot between 0 and {@link #getPortCount()}
+         * @return the ids of the macs learned on the port, must not be modified
+         */
+        public BitSet getMacsAt(int slot) {
+            return m_portMacs[slot];
+        }
+
+        public BitSet getMacs(BridgePort port) {
+            for (int i = 0; i < m_ports.length; i++) {
+                if (m_ports[i].equals(port)) {
+                    return m_portMacs[i];
+                }
+            }
+            return new BitSet();
+        }
+
+        /**
+         * <p>getPort</p>
+         *
+         * @param id an interned mac id
+         * @return the port the mac is learned on or null
+         */
+        public BridgePort getPort(int id) {
+            if (id < 0 || id >= m_macToPort.length || m_macToPort[id] < 0) {
+                return null;
+            }
+            return m_ports[m_macToPort[id]];
+        }
+    }
+}
@@ -21,7 +21,7 @@
  */
 package org.opennms.netmgt.enlinkd.service.api;
 
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -33,6 +33,7 @@ public class BridgeSimpleConnection implements Topology {
 
     private final BridgeForwardingTable m_xBridge;
     private final BridgeForwardingTable m_yBridge;
+    private final BridgeMacIndex m_index;
     private BridgePort m_xyPort;
     private BridgePort m_yxPort;
 
@@ -53,10 +54,11 @@ public class BridgeSimpleConnection implements Topology {
     }
 
     private BridgeSimpleConnection(BridgeForwardingTable xBridge, 
-            BridgeForwardingTable yBridge) {
+            BridgeForwardingTable yBridge, BridgeMacIndex index) {
         super();
         m_xBridge = xBridge;
         m_yBridge = yBridge;
+        m_index = index;
     }
 
     /**
@@ -224,7 +226,7 @@ public class BridgeSimpleConnection implements Topology {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("findSimpleConnection: try condition 2 YThenX {} -> {}", m_yxPort.printTopology(), m_xBridge.getNodeId());
             }
-            m_xyPort = findPortUsingSimpleConnectionAlgorithm(m_xBridge, m_yBridge, m_yxPort);
+            m_xyPort = findPortUsingSimpleConnectionAlgorithm(m_index.getTable(m_xBridge), m_index.getTable(m_yBridge), m_yxPort);
             if (m_xyPort != null) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("findSimpleConnection: success on condition 2 YThenX {} -> {}", m_xyPort.printTopology(), m_yxPort.printTopology());
@@ -238,7 +240,7 @@ public class BridgeSimpleConnection implements Topology {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("findSimpleConnection: try condition 2 XThenY {} -> {}", m_xyPort.printTopology(), m_yBridge.getNodeId());
             }
-            m_yxPort = findPortUsingSimpleConnectionAlgorithm(m_yBridge, m_xBridge, m_xyPort);
+            m_yxPort = findPortUsingSimpleConnectionAlgorithm(m_index.getTable(m_yBridge), m_index.getTable(m_xBridge), m_xyPort);
             if (m_yxPort != null) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("findSimpleConnection: success on condition 2 XThenY {} -> {}", m_xyPort.printTopology(), m_yxPort.printTopology());
@@ -248,9 +250,9 @@ public class BridgeSimpleConnection implements Topology {
         }
 
         // try condition 3A 3B XThenY
-        m_xyPort = findPortUsingSimpleConnectionAlgorithm(m_xBridge, m_yBridge);
+        m_xyPort = findPortUsingSimpleConnectionAlgorithm(m_index.getTable(m_xBridge), m_index.getTable(m_yBridge));
         if (m_xyPort != null) {
-            m_yxPort = findPortUsingSimpleConnectionAlgorithm(m_yBridge, m_xBridge, m_xyPort);
+            m_yxPort = findPortUsingSimpleConnectionAlgorithm(m_index.getTable(m_yBridge), m_index.getTable(m_xBridge), m_xyPort);
             if (m_yxPort != null) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("findSimpleConnection: success on condition 3 XThenY {} -> {}", m_xyPort.printTopology(), m_yxPort.printTopology());
@@ -260,9 +262,9 @@ public class BridgeSimpleConnection implements Topology {
         }
 
         // try condition 3A 3B YThenX
-        m_yxPort = findPortUsingSimpleConnectionAlgorithm(m_yBridge, m_xBridge);
+        m_yxPort = findPortUsingSimpleConnectionAlgorithm(m_index.getTable(m_yBridge), m_index.getTable(m_xBridge));
         if (m_yxPort != null) {
-            m_xyPort = findPortUsingSimpleConnectionAlgorithm(m_xBridge, m_yBridge, m_yxPort);
+            m_xyPort = findPortUsingSimpleConnectionAlgorithm(m_index.getTable(m_xBridge), m_index.getTable(m_yBridge), m_yxPort);
             if (m_xyPort != null) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("findSimpleConnection: success on condition 3 YThenX {} -> {}", m_xyPort.printTopology(), m_yxPort.printTopology());
@@ -287,12 +289,10 @@ public class BridgeSimpleConnection implements Topology {
             BridgePort bridgeXElectedPort = m_xBridge
                     .getPorttomac().iterator().next().getPort();
 
-            Set<String> commonSegmentMacAddress = m_xBridge.getBridgePortWithMacs(bridgeXElectedPort).getMacs();
-            NEXT:   for (BridgePortWithMacs yBridgeBridgePortWithMac : m_yBridge.getPorttomac()) {
-                for (String mac : yBridgeBridgePortWithMac.getMacs()) {
-                    if (commonSegmentMacAddress.contains(mac)) {
-                        continue NEXT;
-                    }
+            BitSet commonSegmentMacAddress = m_index.toBitSet(m_xBridge.getBridgePortWithMacs(bridgeXElectedPort).getMacs());
+            for (BridgePortWithMacs yBridgeBridgePortWithMac : m_yBridge.getPorttomac()) {
+                if (commonSegmentMacAddress.intersects(m_index.toBitSet(yBridgeBridgePortWithMac.getMacs()))) {
+                    continue;
                 }
                 m_xyPort=bridgeXElectedPort;
                 m_yxPort= yBridgeBridgePortWithMac.getPort();
@@ -317,38 +317,39 @@ public class BridgeSimpleConnection implements Topology {
     // m_2 belongs to FDB(pyx,Y) and FDB(py2,Y)
     // m_3 belongs to TS(pyx,Y)
     private static BridgePort findPortUsingSimpleConnectionAlgorithm(
-            BridgeForwardingTable bftA,
-            BridgeForwardingTable bftB,
+            BridgeMacIndex.Table bftA,
+            BridgeMacIndex.Table bftB,
             BridgePort pba) {
 
-        for (String mac : bftA.getBftMacs()) {
-            if (!bftB.getBftMacs().contains(mac) || pba.equals(bftB.getMactoport().get(mac))) {
-                continue;
-            }
-            return bftA.getMactoport().get(mac);
+        BitSet candidates = (BitSet) bftA.getMacs().clone();
+        candidates.and(bftB.getMacs());
+        candidates.andNot(bftB.getMacs(pba));
+        int mac = candidates.nextSetBit(0);
+        if (mac < 0) {
+            return null;
         }
-        return null;
+        return bftA.getPort(mac);
     }
 
     // if exists m_1 and m_2, p1 and p2 on Y pxy on X :      m_1 belongs to BFT(py1,Y) BFT(pxy,X)
     //                                                       m_2 belongs to BFT(py2,Y) BFT(pxy,X)
+    // one pass over the common macs of each port on X replaces the
+    // comparison of every pair of common macs
     private static BridgePort findPortUsingSimpleConnectionAlgorithm(
-            BridgeForwardingTable bftA,
-            BridgeForwardingTable bftB) {
-
-        Set<String> commonLearnedMacs = new HashSet<>(bftA.getBftMacs());
-        commonLearnedMacs.retainAll(new HashSet<>(bftB.getBftMacs()));
-        String[] array = commonLearnedMacs.toArray(new String[0]);
+            BridgeMacIndex.Table bftA,
+            BridgeMacIndex.Table bftB) {
 
-        for (int i=0; i < array.length; i++) {
-            BridgePort pab = bftA.getMactoport().get(array[i]);
-            BridgePort pb1 = bftB.getMactoport().get(array[i]);
-            for (int j=i+1; j < array.length; j++) {
-                if (bftB.getMactoport().get(array[j]).getBridgePort().intValue() == pb1.getBridgePort().intValue()) {
-                    continue;
-                }
-                if (bftA.getMactoport().get(array[j]).getBridgePort().intValue() == pab.getBridgePort().intValue()) {
-                    return pab;
+        for (int slot = 0; slot < bftA.getPortCount(); slot++) {
+            BitSet common = (BitSet) bftA.getMacsAt(slot).clone();
+            common.and(bftB.getMacs());
+            int first = common.nextSetBit(0);
+            if (first < 0) {
+                continue;
+            }
+            int pb1 = bftB.getPort(first).getBridgePort();
+            for (int mac = common.nextSetBit(first + 1); mac >= 0; mac = common.nextSetBit(mac + 1)) {
+                if (bftB.getPort(mac).getBridgePort() != pb1) {
+                    return bftA.getPortAt(slot);
                 }
             }
         }
@@ -366,7 +367,13 @@ public class BridgeSimpleConnection implements Topology {
 
     public static BridgeSimpleConnection create(BridgeForwardingTable xBridge,
                                                 BridgeForwardingTable yBridge) {
-        return new BridgeSimpleConnection(xBridge, yBridge);
+        return create(xBridge, yBridge, new BridgeMacIndex());
+    }
+
+    public static BridgeSimpleConnection create(BridgeForwardingTable xBridge,
+                                                BridgeForwardingTable yBridge,
+                                                BridgeMacIndex index) {
+        return new BridgeSimpleConnection(xBridge, yBridge, index);
         
     }
 
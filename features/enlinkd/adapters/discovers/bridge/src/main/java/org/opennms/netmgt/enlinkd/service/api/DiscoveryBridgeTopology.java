@@ -33,6 +33,7 @@ public class DiscoveryBridgeTopology {
 
     private final Map<Integer,BridgeForwardingTable> m_bridgeFtMapUpdate = new HashMap<>();
     private final BroadcastDomain m_domain;
+    private final BridgeMacIndex m_macIndex = new BridgeMacIndex();
     private Set<Integer> m_failed;
     private Set<Integer> m_parsed;
 
@@ -105,6 +106,8 @@ public class DiscoveryBridgeTopology {
             }
         });
 
+        // getBridgePortWithMacs scans all the ports, index them while building
+        final Map<BridgePort, BridgePortWithMacs> porttomac = new HashMap<>();
         for (BridgeForwardingTableEntry link : entries) {
             if (link.getBridgeDot1qTpFdbStatus()
                                 != BridgeForwardingTableEntry.BridgeDot1qTpFdbStatus.DOT1D_TP_FDB_STATUS_LEARNED ) {
@@ -121,11 +124,13 @@ public class DiscoveryBridgeTopology {
 
             BridgePort bridgeport = getFromBridgeForwardingTableEntry(link);
 
-            BridgePortWithMacs bpwm = bridgeFt.getBridgePortWithMacs(bridgeport);
+            BridgePortWithMacs bpwm = porttomac.get(bridgeport);
             if (bpwm == null ) {
-                bridgeFt.getPorttomac().add(new BridgePortWithMacs(bridgeport, new HashSet<>()));
+                bpwm = new BridgePortWithMacs(bridgeport, new HashSet<>());
+                porttomac.put(bridgeport, bpwm);
+                bridgeFt.getPorttomac().add(bpwm);
             }
-            bridgeFt.getBridgePortWithMacs(bridgeport).getMacs().add(link.getMacAddress());
+            bpwm.getMacs().add(link.getMacAddress());
 
             if (bridgeFt.getMactoport().containsKey(link.getMacAddress())) {
                 bridgeFt.getDuplicated().put(link.getMacAddress(), new HashSet<>());
@@ -156,11 +161,11 @@ public class DiscoveryBridgeTopology {
                           saved.printTopology());
             }
 
-            BridgePortWithMacs savedwithmacs = bridgeFt.getBridgePortWithMacs(saved);
+            BridgePortWithMacs savedwithmacs = porttomac.get(saved);
             savedwithmacs.getMacs().remove(mac);
 
             for (BridgePort dupli: bridgeFt.getDuplicated().get(mac)) {
-                BridgePortWithMacs dupliwithmacs = bridgeFt.getBridgePortWithMacs(dupli);
+                BridgePortWithMacs dupliwithmacs = porttomac.get(dupli);
                 dupliwithmacs.getMacs().remove(mac);
             }
             bridgeFt.getDuplicated().get(mac).add(saved);
@@ -470,7 +475,7 @@ public class DiscoveryBridgeTopology {
             return;
         } 
         BridgeForwardingTable oldRootBft = bridgeFtMapCalcul.get(m_domain.getRootBridge().getNodeId());
-        BridgeSimpleConnection sp = BridgeSimpleConnection.create(oldRootBft, rootBft);
+        BridgeSimpleConnection sp = BridgeSimpleConnection.create(oldRootBft, rootBft, m_macIndex);
         sp.findSimpleConnection();
         rootBft.setRootPort(sp.getSecondBridgePort());
         down(oldRootBft,rootBft,sp,bridgeFtMapCalcul,0);
@@ -587,7 +592,7 @@ public class DiscoveryBridgeTopology {
                           bridgeid, bridgeFTrootPort);
                 continue;
             }
-            BridgeSimpleConnection upsimpleconn = BridgeSimpleConnection.create(rootBft, bridgeFT);
+            BridgeSimpleConnection upsimpleconn = BridgeSimpleConnection.create(rootBft, bridgeFT, m_macIndex);
             try {
                   upsimpleconn.findSimpleConnection();
                   if (LOG.isDebugEnabled()) {
@@ -664,7 +669,7 @@ public class DiscoveryBridgeTopology {
                 LOG.error("calculate: bridge:[{}],postprocessbridge. FT is null",postprocessbridgeid);
                 continue;
             }
-            BridgeSimpleConnection simpleConnection = BridgeSimpleConnection.create(rootBft, postprocessBridgeFT);
+            BridgeSimpleConnection simpleConnection = BridgeSimpleConnection.create(rootBft, postprocessBridgeFT, m_macIndex);
             try {
                 simpleConnection.findSimpleConnection();
                 down(rootBft, postprocessBridgeFT, simpleConnection, bridgeFtMapCalcul,
@@ -697,12 +702,13 @@ public class DiscoveryBridgeTopology {
             m_failed.remove(failedbridgeid);
         }        
 
+        final Set<String> macsOnSegments = m_domain.getMacsOnSegments();
         m_bridgeFtMapUpdate.values().stream().
             filter(ft -> m_parsed.contains(ft.getNodeId())).
-                forEach(m_domain::addforwarders);
+                forEach(ft -> m_domain.addforwarders(ft, macsOnSegments));
         
         bridgeFtMapCalcul.values().
-            forEach(m_domain::addforwarders);
+            forEach(ft -> m_domain.addforwarders(ft, macsOnSegments));
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("calculate: domain\n{}", 
@@ -722,7 +728,7 @@ public class DiscoveryBridgeTopology {
             }
             
             BridgeSimpleConnection sp = BridgeSimpleConnection.create(parsedBridgeFT,
-                    postBridgeFT);
+                    postBridgeFT, m_macIndex);
 
             try {
                 sp.findSimpleConnection();
@@ -754,7 +760,7 @@ public class DiscoveryBridgeTopology {
                 return;
             }
         }
-        BridgeSimpleConnection simpleConnection = BridgeSimpleConnection.create(rootBridgeFT, postBridgeFT);
+        BridgeSimpleConnection simpleConnection = BridgeSimpleConnection.create(rootBridgeFT, postBridgeFT, m_macIndex);
         try {
             simpleConnection.findSimpleConnection();
             down(rootBridgeFT, postBridgeFT, simpleConnection, bridgeFtMapCalcul,
@@ -823,7 +829,7 @@ public class DiscoveryBridgeTopology {
             
             BridgeSimpleConnection simpleconn = 
                     BridgeSimpleConnection.create(curBridgeFT,
-                                       bridgeFT);
+                                       bridgeFT, m_macIndex);
             simpleconn.findSimpleConnection();
             if (LOG.isDebugEnabled()) {
                 LOG.debug("down: level: {}, bridge:[{}]. {}", 
@@ -900,7 +906,8 @@ public class DiscoveryBridgeTopology {
                             maconupsegment,
                             bridgeFT.getRootPort(),
                             getThroughSet(bridgeFT, parsed));
-        checkforwarders.forEach(m_domain::addforwarders);
+        final Set<String> macsOnSegments = m_domain.getMacsOnSegments();
+        checkforwarders.forEach(ft -> m_domain.addforwarders(ft, macsOnSegments));
     }
     
 }
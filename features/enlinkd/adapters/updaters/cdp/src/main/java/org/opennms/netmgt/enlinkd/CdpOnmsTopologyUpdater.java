@@ -108,6 +108,11 @@ public class CdpOnmsTopologyUpdater extends TopologyUpdater {
         return create(ProtocolSupported.CDP);
     }
 
+    @Override
+    protected boolean supportsIncremental() {
+        return true;
+    }
+
     public CdpTopologyService getCdpTopologyService() {
         return m_cdpTopologyService;
     }
@@ -119,6 +119,11 @@ public class IsisOnmsTopologyUpdater extends TopologyUpdater {
         return create(ProtocolSupported.ISIS);
     }
 
+    @Override
+    protected boolean supportsIncremental() {
+        return true;
+    }
+
     public IsisTopologyService getIsisTopologyService() {
         return m_isisTopologyService;
     }
@@ -22,6 +22,7 @@
 package org.opennms.netmgt.enlinkd;
 
 import java.util.Map;
+import java.util.Set;
 
 import org.opennms.core.utils.LldpUtils;
 import org.opennms.netmgt.enlinkd.common.TopologyUpdater;
@@ -123,11 +124,48 @@ public class LldpOnmsTopologyUpdater extends TopologyUpdater {
         return topology;
     }
 
+    @Override
+    public OnmsTopology buildTopology(Set<Integer> nodeIds) {
+        Map<Integer, NodeTopologyEntity> nodeMap= getNodeMap();
+        Map<Integer, IpInterfaceTopologyEntity> ipMap= getIpPrimaryMap();
+        Table<Integer, Integer,SnmpInterfaceTopologyEntity> nodeToOnmsSnmpTable = getSnmpInterfaceTable();
+        OnmsTopology topology = new OnmsTopology();
+        for (LldpElementTopologyEntity element: m_lldpTopologyService.findAllLldpElements()) {
+            if (nodeIds.contains(element.getNodeId())) {
+                topology.getVertices().add(create(nodeMap.get(element.getNodeId()),ipMap.get(element.getNodeId())));
+            }
+        }
+
+        for (TopologyConnection<LldpLinkTopologyEntity, LldpLinkTopologyEntity> pair : m_lldpTopologyService.match()) {
+            if (!nodeIds.contains(pair.getLeft().getNodeId()) && !nodeIds.contains(pair.getRight().getNodeId())) {
+                continue;
+            }
+            OnmsTopologyVertex source = create(nodeMap.get(pair.getLeft().getNodeId()),ipMap.get(pair.getLeft().getNodeId()));
+            OnmsTopologyVertex target = create(nodeMap.get(pair.getRight().getNodeId()),ipMap.get(pair.getRight().getNodeId()));
+            topology.getEdges().add(
+                                    OnmsTopologyEdge.create(
+                                                            Topology.getDefaultEdgeId(pair.getLeft().getId(), pair.getRight().getId()),
+                                                            create(source, pair.getLeft(), pair.getRight(),
+                                                                   nodeToOnmsSnmpTable.get(pair.getLeft().getNodeId(), pair.getLeft().getLldpPortIfindex())),
+                                                            create(target, pair.getRight(), pair.getLeft(),
+                                                                   nodeToOnmsSnmpTable.get(pair.getRight().getNodeId(), pair.getRight().getLldpPortIfindex()))
+                                                            )
+                                    );
+        }
+
+        return topology;
+    }
+
     @Override
     public OnmsTopologyProtocol getProtocol() {
         return create(ProtocolSupported.LLDP);
     }
 
+    @Override
+    protected boolean supportsIncremental() {
+        return true;
+    }
+
     public LldpTopologyService getLldpTopologyService() {
         return m_lldpTopologyService;
     }
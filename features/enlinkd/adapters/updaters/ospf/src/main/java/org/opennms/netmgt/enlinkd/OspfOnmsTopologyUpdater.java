@@ -126,6 +126,11 @@ public class OspfOnmsTopologyUpdater extends TopologyUpdater {
         return create(ProtocolSupported.OSPF);
     }
 
+    @Override
+    protected boolean supportsIncremental() {
+        return true;
+    }
+
     public OspfTopologyService getOspfTopologyService() {
         return m_ospfTopologyService;
     }
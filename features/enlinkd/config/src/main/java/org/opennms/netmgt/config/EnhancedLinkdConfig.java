@@ -200,6 +200,8 @@ public interface EnhancedLinkdConfig {
 
     boolean disableBridgeVlanDiscovery();
 
+    boolean useIncrementalTopology();
+
     /**
      * <p>reload</p>
      * <p>Reload the configuration file<p>
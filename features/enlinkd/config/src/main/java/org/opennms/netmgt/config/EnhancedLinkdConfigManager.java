@@ -131,6 +131,10 @@ abstract public class EnhancedLinkdConfigManager implements EnhancedLinkdConfig
         return Boolean.TRUE.equals(m_config.getDisableBridgeVlanDiscovery());
     }
 
+    public boolean useIncrementalTopology() {
+        return Boolean.TRUE.equals(m_config.getIncrementalTopology());
+    }
+
     public long getInitialSleepTime() {
         return m_config.getInitialSleepTime();
     }
@@ -187,6 +187,12 @@ public class EnlinkdConfiguration implements java.io.Serializable {
     @XmlAttribute(name = "disable-bridge-vlan-discovery")
     private Boolean m_disableBridgeVlanDiscovery;
 
+    /**
+     * Set to true to patch the topology for changed nodes instead of rebuilding it
+     */
+    @XmlAttribute(name = "incremental-topology")
+    private Boolean m_incrementalTopology;
+
     /**
      * Max bridge forwarding table to hold in memory.
      */
@@ -349,6 +355,14 @@ public class EnlinkdConfiguration implements java.io.Serializable {
         this.m_disableBridgeVlanDiscovery = disableBridgeVlanDiscovery;
     }
 
+    public Boolean getIncrementalTopology() {
+        return m_incrementalTopology;
+    }
+
+    public void setIncrementalTopology(Boolean incrementalTopology) {
+        this.m_incrementalTopology = incrementalTopology;
+    }
+
     public Integer getCdpPriority() {
         return m_cdpPriority != null ? m_cdpPriority : 1000;
     }
@@ -439,6 +453,8 @@ public class EnlinkdConfiguration implements java.io.Serializable {
             return false;
         if (!Objects.equals(m_disableBridgeVlanDiscovery, that.m_disableBridgeVlanDiscovery))
             return false;
+        if (!Objects.equals(m_incrementalTopology, that.m_incrementalTopology))
+            return false;
         return Objects.equals(m_maxBft, that.m_maxBft);
     }
 
@@ -467,6 +483,7 @@ public class EnlinkdConfiguration implements java.io.Serializable {
         result = 31 * result + (m_isisRescanInterval != null ? m_isisRescanInterval.hashCode() : 0);
         result = 31 * result + (m_useIsisDiscovery != null ? m_useIsisDiscovery.hashCode() : 0);
         result = 31 * result + (m_disableBridgeVlanDiscovery != null ? m_disableBridgeVlanDiscovery.hashCode() : 0);
+        result = 31 * result + (m_incrementalTopology != null ? m_incrementalTopology.hashCode() : 0);
         result = 31 * result + (m_maxBft != null ? m_maxBft.hashCode() : 0);
         return result;
     }
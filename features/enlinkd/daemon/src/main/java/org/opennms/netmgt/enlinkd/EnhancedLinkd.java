@@ -226,6 +226,7 @@ public class EnhancedLinkd extends AbstractServiceDaemon implements ReloadableTo
         onmsTopologyUpdater.setScheduler(m_scheduler);
         onmsTopologyUpdater.setPollInterval(m_linkdConfig.getTopologyInterval());
         onmsTopologyUpdater.setInitialSleepTime(0L);
+        onmsTopologyUpdater.setIncremental(m_linkdConfig.useIncrementalTopology());
         LOG.info("scheduleOnmsTopologyUpdater: Scheduling {}",
                  onmsTopologyUpdater.getInfo());
         onmsTopologyUpdater.schedule();
@@ -298,7 +298,17 @@ public class BroadcastDomain implements Topology {
     }
 
     public void addforwarders(BridgeForwardingTable bridgeFT) {
-        Set<String> macs = new HashSet<>(getMacsOnSegments());
+        addforwarders(bridgeFT, getMacsOnSegments());
+    }
+
+    /**
+     * <p>addforwarders</p>
+     *
+     * @param bridgeFT the forwarding table of the bridge
+     * @param macs the macs on segments, as returned by {@link #getMacsOnSegments()}:
+     *             lets callers adding several bridges collect them only once
+     */
+    public void addforwarders(BridgeForwardingTable bridgeFT, Set<String> macs) {
         cleanForwarders(bridgeFT.getNodeId());
         for (String forward :  bridgeFT.getMactoport().keySet()) {
             if (macs.contains(forward)) {
@@ -50,6 +50,16 @@ public interface TopologyService {
 
     boolean parseUpdates();
     void updatesAvailable();
+    /**
+     * Records that the topology data of the given node has changed.
+     */
+    void updatesAvailable(int nodeId);
+    /**
+     * Returns the ids of the nodes whose topology data changed since the last call and
+     * clears them, or {@code null} when an update was recorded without a node, in which
+     * case the whole topology must be recalculated.
+     */
+    Set<Integer> parseUpdatedNodes();
     boolean hasUpdates();
     void refresh();
 }
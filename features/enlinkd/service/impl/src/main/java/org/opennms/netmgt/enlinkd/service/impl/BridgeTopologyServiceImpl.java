@@ -364,7 +364,7 @@ public class BridgeTopologyServiceImpl extends TopologyServiceImpl implements Br
         if (bridge == null)
             return;
         saveBridgeElement(nodeId, bridge);
-        updatesAvailable();
+        updatesAvailable(nodeId);
     }
 
     @Transactional
@@ -67,6 +67,7 @@ public class CdpTopologyServiceImpl extends TopologyServiceImpl implements CdpTo
         m_cdpLinkDao.deleteByNodeId(nodeid);
         m_cdpElementDao.flush();
         m_cdpLinkDao.flush();        
+        updatesAvailable(nodeid);
     }
 
     @Override
@@ -79,6 +80,7 @@ public class CdpTopologyServiceImpl extends TopologyServiceImpl implements CdpTo
         }
         m_cdpLinkDao.deleteByNodeIdOlderThen(nodeId, now);
         m_cdpLinkDao.flush();
+        addUpdatedNode(nodeId);
     }
 
     @Override
@@ -102,7 +104,7 @@ public class CdpTopologyServiceImpl extends TopologyServiceImpl implements CdpTo
         element.setCdpNodeLastPollTime(element.getCdpNodeCreateTime());
         m_cdpElementDao.saveOrUpdate(element);
         m_cdpElementDao.flush();
-        updatesAvailable();
+        updatesAvailable(nodeId);
 
     }
 
@@ -111,7 +113,7 @@ public class CdpTopologyServiceImpl extends TopologyServiceImpl implements CdpTo
         if (link == null)
             return;
         saveCdpLink(nodeId, link);
-        updatesAvailable();
+        updatesAvailable(nodeId);
     }
     
     @Transactional
@@ -66,6 +66,7 @@ public class IsisTopologyServiceImpl extends TopologyServiceImpl implements Isis
         m_isisLinkDao.deleteByNodeId(nodeid);
         m_isisElementDao.flush();
         m_isisLinkDao.flush();
+        updatesAvailable(nodeid);
     }
 
     @Override
@@ -78,6 +79,7 @@ public class IsisTopologyServiceImpl extends TopologyServiceImpl implements Isis
         }
         m_isisLinkDao.deleteByNodeIdOlderThen(nodeId, now);
         m_isisLinkDao.flush();
+        addUpdatedNode(nodeId);
     }
 
     @Override
@@ -85,7 +87,7 @@ public class IsisTopologyServiceImpl extends TopologyServiceImpl implements Isis
         if (link == null)
             return;
         saveIsisLink(nodeId, link);
-        updatesAvailable();
+        updatesAvailable(nodeId);
     }
 
     @Transactional
@@ -143,7 +145,7 @@ public class IsisTopologyServiceImpl extends TopologyServiceImpl implements Isis
         element.setIsisNodeLastPollTime(element.getIsisNodeCreateTime());
         m_isisElementDao.saveOrUpdate(element);
         m_isisElementDao.flush();
-        updatesAvailable();
+        updatesAvailable(nodeId);
 
     
     }
@@ -67,6 +67,7 @@ public class LldpTopologyServiceImpl extends TopologyServiceImpl implements Lldp
         m_lldpLinkDao.deleteByNodeId(nodeid);
         m_lldpElementDao.flush();
         m_lldpLinkDao.flush();
+        updatesAvailable(nodeid);
     }
 
     @Override
@@ -79,6 +80,7 @@ public class LldpTopologyServiceImpl extends TopologyServiceImpl implements Lldp
         }
         m_lldpLinkDao.deleteByNodeIdOlderThen(nodeId, now);
         m_lldpLinkDao.flush();
+        addUpdatedNode(nodeId);
     }
 
     @Override
@@ -90,7 +92,7 @@ public class LldpTopologyServiceImpl extends TopologyServiceImpl implements Lldp
             link.setLldpPortIfindex(m_lldpLinkDao.getIfIndex(nodeId, link.getLldpPortId()));
         }
         saveLldpLink(nodeId, link);
-        updatesAvailable();
+        updatesAvailable(nodeId);
     }
 
     @Transactional
@@ -145,7 +147,7 @@ public class LldpTopologyServiceImpl extends TopologyServiceImpl implements Lldp
         element.setLldpNodeLastPollTime(element.getLldpNodeCreateTime());
         m_lldpElementDao.saveOrUpdate(element);
         m_lldpElementDao.flush();
-        updatesAvailable();
+        updatesAvailable(nodeId);
 
     }
 
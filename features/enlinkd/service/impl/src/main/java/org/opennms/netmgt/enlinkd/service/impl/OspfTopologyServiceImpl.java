@@ -71,6 +71,7 @@ public class OspfTopologyServiceImpl extends TopologyServiceImpl implements Ospf
         m_ospfElementDao.flush();
         m_ospfLinkDao.flush();
         m_ospfAreaDao.flush();
+        updatesAvailable(nodeid);
     }
 
     @Override
@@ -85,6 +86,7 @@ public class OspfTopologyServiceImpl extends TopologyServiceImpl implements Ospf
         m_ospfLinkDao.flush();
         m_ospfAreaDao.deleteByNodeIdOlderThen(nodeId, now);
         m_ospfAreaDao.flush();
+        addUpdatedNode(nodeId);
     }
 
     @Override
@@ -107,7 +109,7 @@ public class OspfTopologyServiceImpl extends TopologyServiceImpl implements Ospf
         element.setOspfNodeLastPollTime(element.getOspfNodeCreateTime());
         m_ospfElementDao.saveOrUpdate(element);
         m_ospfElementDao.flush();
-        updatesAvailable();
+        updatesAvailable(nodeId);
 
     }
 
@@ -116,7 +118,7 @@ public class OspfTopologyServiceImpl extends TopologyServiceImpl implements Ospf
         if (link == null)
             return;
         saveOspfLink(nodeId, link);
-        updatesAvailable();
+        updatesAvailable(nodeId);
     }
 
     @Override
@@ -124,7 +126,7 @@ public class OspfTopologyServiceImpl extends TopologyServiceImpl implements Ospf
         if (area == null)
             return;
         saveOspfArea(nodeId, area);
-        updatesAvailable();
+        updatesAvailable(nodeId);
     }
 
     private void saveOspfArea(final int nodeId, final OspfArea area) {
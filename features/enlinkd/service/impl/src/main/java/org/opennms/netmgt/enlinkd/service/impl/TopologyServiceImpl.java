@@ -21,6 +21,9 @@
  */
 package org.opennms.netmgt.enlinkd.service.impl;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.opennms.netmgt.enlinkd.persistence.api.TopologyEntityCache;
@@ -30,6 +33,8 @@ public class TopologyServiceImpl implements TopologyService {
 
     private TopologyEntityCache m_topologyEntityCache;
     private final AtomicBoolean m_updates = new AtomicBoolean(false);
+    private final AtomicBoolean m_updatesWithoutNode = new AtomicBoolean(false);
+    private final Set<Integer> m_updatedNodes = ConcurrentHashMap.newKeySet();
 
     @Override
     public  boolean parseUpdates() {
@@ -42,9 +47,34 @@ public class TopologyServiceImpl implements TopologyService {
 
     @Override
     public void updatesAvailable() {
+            m_updatesWithoutNode.set(true);
             m_updates.set(true);
     }
 
+    @Override
+    public void updatesAvailable(int nodeId) {
+            m_updatedNodes.add(nodeId);
+            m_updates.set(true);
+    }
+
+    /**
+     * Records the node in the change log without flagging updates, for changes
+     * like reconciliation that alone do not trigger a topology run.
+     */
+    protected void addUpdatedNode(int nodeId) {
+            m_updatedNodes.add(nodeId);
+    }
+
+    @Override
+    public Set<Integer> parseUpdatedNodes() {
+        final Set<Integer> updatedNodes = new HashSet<>(m_updatedNodes);
+        m_updatedNodes.removeAll(updatedNodes);
+        if (m_updatesWithoutNode.getAndSet(false)) {
+            return null;
+        }
+        return updatedNodes;
+    }
+
     @Override
     public boolean hasUpdates() {
             return m_updates.get();
@@ -0,0 +1,73 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.enlinkd.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class TopologyServiceImplTest {
+
+    @Test
+    public void testParseUpdatedNodes() {
+        TopologyServiceImpl service = new TopologyServiceImpl();
+        assertEquals(Collections.emptySet(), service.parseUpdatedNodes());
+
+        service.updatesAvailable(1);
+        service.updatesAvailable(2);
+        service.updatesAvailable(1);
+        assertTrue(service.hasUpdates());
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), service.parseUpdatedNodes());
+        // the change log is cleared once it has been parsed
+        assertEquals(Collections.emptySet(), service.parseUpdatedNodes());
+        assertTrue(service.parseUpdates());
+        assertFalse(service.parseUpdates());
+    }
+
+    @Test
+    public void testUpdatedNodeWithoutUpdates() {
+        TopologyServiceImpl service = new TopologyServiceImpl();
+        service.addUpdatedNode(3);
+        assertFalse(service.hasUpdates());
+        assertEquals(Collections.singleton(3), service.parseUpdatedNodes());
+    }
+
+    @Test
+    public void testUpdatesWithoutNode() {
+        TopologyServiceImpl service = new TopologyServiceImpl();
+        service.updatesAvailable(1);
+        service.updatesAvailable();
+        // the whole topology has to be recalculated
+        assertNull(service.parseUpdatedNodes());
+        assertEquals(Collections.emptySet(), service.parseUpdatedNodes());
+
+        service.updatesAvailable(2);
+        assertEquals(Collections.singleton(2), service.parseUpdatedNodes());
+    }
+}
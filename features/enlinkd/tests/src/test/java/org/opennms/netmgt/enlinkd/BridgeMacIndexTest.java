@@ -0,0 +1,83 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.enlinkd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.opennms.netmgt.enlinkd.service.api.BridgeMacIndex;
+
+public class BridgeMacIndexTest {
+
+    @Test
+    public void testToLong() {
+        assertEquals(0x000c29f49b80L, BridgeMacIndex.toLong("000c29f49b80"));
+        assertEquals(0xffffffffffffL, BridgeMacIndex.toLong("ffffffffffff"));
+        assertEquals(-1L, BridgeMacIndex.toLong("000C29F49B80"));
+        assertEquals(-1L, BridgeMacIndex.toLong("000c29f49b8"));
+        assertEquals(-1L, BridgeMacIndex.toLong("00:0c:29:f4:9b:80"));
+        assertEquals(-1L, BridgeMacIndex.toLong(null));
+    }
+
+    @Test
+    public void testIntern() {
+        BridgeMacIndex index = new BridgeMacIndex();
+        assertEquals(0, index.intern("000c29f49b80"));
+        assertEquals(1, index.intern("000C29F49B80"));
+        assertEquals(2, index.intern("not-a-mac"));
+        assertEquals(0, index.intern("000c29f49b80"));
+        assertEquals(1, index.intern("000C29F49B80"));
+        assertEquals(2, index.intern("not-a-mac"));
+        assertEquals(3, index.size());
+
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i + 3, index.intern(String.format("%012x", i)));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i + 3, index.intern(String.format("%012x", i)));
+        }
+        assertEquals(10003, index.size());
+    }
+
+    @Test
+    public void testCheckMacSets() {
+        BridgeMacIndex index = new BridgeMacIndex();
+        Set<String> setA = Set.of("000000000001", "000000000002", "000000000003", "000000000004");
+        Set<String> setB = Set.of("000000000003", "000000000004", "000000000005");
+        Set<String> setC = Set.of("000000000001", "000000000006", "000000000007", "000000000008");
+        BitSet bitsA = index.toBitSet(setA);
+        BitSet bitsB = index.toBitSet(setB);
+        BitSet bitsC = index.toBitSet(setC);
+
+        assertTrue(DiscoveryBridgeDomains.checkMacSets(setA, setB));
+        assertTrue(DiscoveryBridgeDomains.checkMacSets(bitsA, bitsB));
+        assertFalse(DiscoveryBridgeDomains.checkMacSets(setA, setC));
+        assertFalse(DiscoveryBridgeDomains.checkMacSets(bitsA, bitsC));
+        assertFalse(DiscoveryBridgeDomains.checkMacSets(bitsB, bitsC));
+        assertEquals(4, bitsA.cardinality());
+    }
+}
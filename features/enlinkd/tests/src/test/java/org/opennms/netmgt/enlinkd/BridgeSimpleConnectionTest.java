@@ -0,0 +1,305 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.enlinkd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.opennms.netmgt.enlinkd.service.api.Bridge;
+import org.opennms.netmgt.enlinkd.service.api.BridgeForwardingTable;
+import org.opennms.netmgt.enlinkd.service.api.BridgeForwardingTableEntry;
+import org.opennms.netmgt.enlinkd.service.api.BridgeForwardingTableEntry.BridgeDot1qTpFdbStatus;
+import org.opennms.netmgt.enlinkd.service.api.BridgeMacIndex;
+import org.opennms.netmgt.enlinkd.service.api.BridgePort;
+import org.opennms.netmgt.enlinkd.service.api.BridgePortWithMacs;
+import org.opennms.netmgt.enlinkd.service.api.BridgeSimpleConnection;
+import org.opennms.netmgt.enlinkd.service.api.BridgeTopologyException;
+import org.opennms.netmgt.enlinkd.service.api.BroadcastDomain;
+import org.opennms.netmgt.enlinkd.service.api.DiscoveryBridgeTopology;
+import org.opennms.netmgt.enlinkd.service.api.SharedSegment;
+
+/**
+ * Checks the bitset based simple connection search against the search on sets of mac
+ * strings it replaced, on trees of bridges where every bridge learned every mac.
+ * <p>
+ * Bridge 1 is the root and bridge i has the parent (i - 2) / fanout + 1. Every bridge
+ * reaches its parent on port 100 and its child c on port 100 + c. The access ports
+ * 1..ports carry the local macs of the bridge.
+ */
+public class BridgeSimpleConnectionTest {
+
+    private static final int UPLINK = 100;
+
+    @Test
+    public void testSimpleConnectionWithLearnedMacs() throws BridgeTopologyException {
+        checkSimpleConnections(new BridgeTree(13, 3, 2, 3, false));
+        checkSimpleConnections(new BridgeTree(31, 2, 3, 2, false));
+    }
+
+    @Test
+    public void testSimpleConnectionWithBridgeIdentifiers() throws BridgeTopologyException {
+        checkSimpleConnections(new BridgeTree(13, 3, 2, 3, true));
+    }
+
+    @Test
+    public void testCalculateWithLearnedMacs() {
+        checkCalculate(new BridgeTree(13, 3, 2, 3, false));
+        checkCalculate(new BridgeTree(31, 2, 3, 2, false));
+    }
+
+    @Test
+    public void testCalculateWithBridgeIdentifiers() {
+        checkCalculate(new BridgeTree(13, 3, 2, 3, true));
+    }
+
+    private static void checkSimpleConnections(BridgeTree tree) throws BridgeTopologyException {
+        final Map<Integer, BridgeForwardingTable> bfts = new HashMap<>();
+        for (int bridge = 1; bridge <= tree.size; bridge++) {
+            bfts.put(bridge, DiscoveryBridgeTopology.create(new Bridge(bridge), tree.bfts.get(bridge)));
+        }
+        final BridgeMacIndex index = new BridgeMacIndex();
+        for (int x = 1; x <= tree.size; x++) {
+            for (int y = 1; y <= tree.size; y++) {
+                if (x == y) {
+                    continue;
+                }
+                final BridgeSimpleConnection connection = BridgeSimpleConnection.create(bfts.get(x), bfts.get(y), index);
+                connection.findSimpleConnection();
+                final BridgePort[] expected = findSimpleConnectionWithStrings(bfts.get(x), bfts.get(y));
+                assertNotNull("no simple connection between " + x + " and " + y, expected);
+
+                assertEquals(expected[0], connection.getFirstPort());
+                assertEquals(expected[1], connection.getSecondPort());
+                assertEquals(tree.portToward(x, y), connection.getFirstBridgePort().intValue());
+                assertEquals(tree.portToward(y, x), connection.getSecondBridgePort().intValue());
+            }
+        }
+    }
+
+    private static void checkCalculate(BridgeTree tree) {
+        final BroadcastDomain domain = new BroadcastDomain();
+        final DiscoveryBridgeTopology topology = new DiscoveryBridgeTopology(domain);
+        tree.bfts.forEach(topology::addUpdatedBFT);
+        topology.calculate();
+
+        assertTrue(topology.getFailed().isEmpty());
+        assertEquals(tree.size, topology.getParsed().size());
+
+        final Map<Set<String>, Set<String>> segments = new HashMap<>();
+        for (SharedSegment segment : domain.getSharedSegments()) {
+            final Set<String> ports = new HashSet<>();
+            segment.getBridgePortsOnSegment().forEach(port -> ports.add(port.getNodeId() + ":" + port.getBridgePort()));
+            segments.put(ports, segment.getMacsOnSegment());
+        }
+
+        final Map<Set<String>, Set<String>> expected = new HashMap<>();
+        for (int bridge = 2; bridge <= tree.size; bridge++) {
+            expected.put(Set.of(tree.parent[bridge] + ":" + (UPLINK + bridge), bridge + ":" + UPLINK), Set.of());
+        }
+        tree.local.forEach((bridge, ports) -> ports.forEach((port, macs) -> expected.put(Set.of(bridge + ":" + port), macs)));
+        assertEquals(expected, segments);
+    }
+
+    /**
+     * The simple connection search as it was done before the macs were interned into bitsets.
+     */
+    private static BridgePort[] findSimpleConnectionWithStrings(BridgeForwardingTable xBridge, BridgeForwardingTable yBridge) {
+        BridgePort xyPort = null;
+        BridgePort yxPort = null;
+        if (xBridge.getPorttomac().size() == 1) {
+            xyPort = xBridge.getPorttomac().iterator().next().getPort();
+        }
+        if (yBridge.getPorttomac().size() == 1) {
+            yxPort = yBridge.getPorttomac().iterator().next().getPort();
+        }
+        if (xyPort == null) {
+            xyPort = findPortUsingBridgeIdentifiers(xBridge, yBridge.getIdentifiers());
+        }
+        if (yxPort == null) {
+            yxPort = findPortUsingBridgeIdentifiers(yBridge, xBridge.getIdentifiers());
+        }
+        if (xyPort != null && yxPort != null) {
+            return new BridgePort[] { xyPort, yxPort };
+        }
+        if (xyPort == null && yxPort != null) {
+            xyPort = findPortUsingSimpleConnectionAlgorithm(xBridge, yBridge, yxPort);
+            if (xyPort != null) {
+                return new BridgePort[] { xyPort, yxPort };
+            }
+        }
+        if (yxPort == null && xyPort != null) {
+            yxPort = findPortUsingSimpleConnectionAlgorithm(yBridge, xBridge, xyPort);
+            if (yxPort != null) {
+                return new BridgePort[] { xyPort, yxPort };
+            }
+        }
+        xyPort = findPortUsingSimpleConnectionAlgorithm(xBridge, yBridge);
+        if (xyPort != null) {
+            yxPort = findPortUsingSimpleConnectionAlgorithm(yBridge, xBridge, xyPort);
+            if (yxPort != null) {
+                return new BridgePort[] { xyPort, yxPort };
+            }
+        }
+        yxPort = findPortUsingSimpleConnectionAlgorithm(yBridge, xBridge);
+        if (yxPort != null) {
+            xyPort = findPortUsingSimpleConnectionAlgorithm(xBridge, yBridge, yxPort);
+            if (xyPort != null) {
+                return new BridgePort[] { xyPort, yxPort };
+            }
+        }
+        if (xBridge.getPorttomac().size() == 2 && yBridge.getPorttomac().size() == 2) {
+            final BridgePort bridgeXElectedPort = xBridge.getPorttomac().iterator().next().getPort();
+            final Set<String> commonSegmentMacAddress = xBridge.getBridgePortWithMacs(bridgeXElectedPort).getMacs();
+            NEXT: for (BridgePortWithMacs yBridgeBridgePortWithMac : yBridge.getPorttomac()) {
+                for (String mac : yBridgeBridgePortWithMac.getMacs()) {
+                    if (commonSegmentMacAddress.contains(mac)) {
+                        continue NEXT;
+                    }
+                }
+                return new BridgePort[] { bridgeXElectedPort, yBridgeBridgePortWithMac.getPort() };
+            }
+        }
+        return null;
+    }
+
+    private static BridgePort findPortUsingSimpleConnectionAlgorithm(BridgeForwardingTable bftA, BridgeForwardingTable bftB, BridgePort pba) {
+        for (String mac : bftA.getBftMacs()) {
+            if (!bftB.getBftMacs().contains(mac) || pba.equals(bftB.getMactoport().get(mac))) {
+                continue;
+            }
+            return bftA.getMactoport().get(mac);
+        }
+        return null;
+    }
+
+    private static BridgePort findPortUsingSimpleConnectionAlgorithm(BridgeForwardingTable bftA, BridgeForwardingTable bftB) {
+        final Set<String> commonLearnedMacs = new HashSet<>(bftA.getBftMacs());
+        commonLearnedMacs.retainAll(bftB.getBftMacs());
+        final String[] array = commonLearnedMacs.toArray(new String[0]);
+        for (int i = 0; i < array.length; i++) {
+            final BridgePort pab = bftA.getMactoport().get(array[i]);
+            final BridgePort pb1 = bftB.getMactoport().get(array[i]);
+            for (int j = i + 1; j < array.length; j++) {
+                if (bftB.getMactoport().get(array[j]).getBridgePort().intValue() == pb1.getBridgePort().intValue()) {
+                    continue;
+                }
+                if (bftA.getMactoport().get(array[j]).getBridgePort().intValue() == pab.getBridgePort().intValue()) {
+                    return pab;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static BridgePort findPortUsingBridgeIdentifiers(BridgeForwardingTable bft, Set<String> identifiers) {
+        for (String mac : identifiers) {
+            if (bft.getMactoport().containsKey(mac)) {
+                return bft.getMactoport().get(mac);
+            }
+        }
+        return null;
+    }
+
+    private static class BridgeTree {
+        private final int size;
+        private final int[] parent;
+        private final Map<Integer, Map<Integer, Set<String>>> local = new HashMap<>();
+        private final Map<Integer, Set<BridgeForwardingTableEntry>> bfts = new HashMap<>();
+        private long nextMac = 1;
+
+        private BridgeTree(int size, int fanout, int ports, int macsPerPort, boolean identifiers) {
+            this.size = size;
+            parent = new int[size + 1];
+            for (int bridge = 2; bridge <= size; bridge++) {
+                parent[bridge] = (bridge - 2) / fanout + 1;
+            }
+
+            final Map<Integer, String> bridgeIdentifiers = new HashMap<>();
+            for (int bridge = 1; bridge <= size; bridge++) {
+                final Map<Integer, Set<String>> portmacs = new HashMap<>();
+                for (int port = 1; port <= ports; port++) {
+                    final Set<String> macs = new HashSet<>();
+                    for (int i = 0; i < macsPerPort; i++) {
+                        macs.add(nextMac());
+                    }
+                    portmacs.put(port, macs);
+                }
+                local.put(bridge, portmacs);
+                bridgeIdentifiers.put(bridge, nextMac());
+            }
+
+            for (int bridge = 1; bridge <= size; bridge++) {
+                final Set<BridgeForwardingTableEntry> entries = new HashSet<>();
+                for (int other = 1; other <= size; other++) {
+                    final int toward = other == bridge ? 0 : portToward(bridge, other);
+                    for (Map.Entry<Integer, Set<String>> portmacs : local.get(other).entrySet()) {
+                        for (String mac : portmacs.getValue()) {
+                            entries.add(entry(bridge, toward == 0 ? portmacs.getKey() : toward, mac, BridgeDot1qTpFdbStatus.DOT1D_TP_FDB_STATUS_LEARNED));
+                        }
+                    }
+                    if (identifiers && other != bridge) {
+                        entries.add(entry(bridge, toward, bridgeIdentifiers.get(other), BridgeDot1qTpFdbStatus.DOT1D_TP_FDB_STATUS_LEARNED));
+                    }
+                }
+                if (identifiers) {
+                    entries.add(entry(bridge, 0, bridgeIdentifiers.get(bridge), BridgeDot1qTpFdbStatus.DOT1D_TP_FDB_STATUS_SELF));
+                }
+                bfts.put(bridge, entries);
+            }
+        }
+
+        /**
+         * @return the port of the bridge forwarding to the other bridge
+         */
+        private int portToward(int bridge, int other) {
+            int current = other;
+            int previous = 0;
+            while (current != 0 && current != bridge) {
+                previous = current;
+                current = parent[current];
+            }
+            return current == bridge ? UPLINK + previous : UPLINK;
+        }
+
+        private String nextMac() {
+            return String.format("%012x", nextMac++);
+        }
+
+        private static BridgeForwardingTableEntry entry(int nodeid, int bridgeport, String mac, BridgeDot1qTpFdbStatus status) {
+            final BridgeForwardingTableEntry entry = new BridgeForwardingTableEntry();
+            entry.setNodeId(nodeid);
+            entry.setBridgePort(bridgeport);
+            entry.setBridgePortIfIndex(bridgeport);
+            entry.setVlan(1);
+            entry.setMacAddress(mac);
+            entry.setBridgeDot1qTpFdbStatus(status);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.enlinkd;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.enlinkd.generator.TopologyGenerator;
+import org.opennms.enlinkd.generator.TopologyPersister;
+import org.opennms.enlinkd.generator.TopologySettings;
+import org.opennms.netmgt.dao.api.GenericPersistenceAccessor;
+import org.opennms.netmgt.enlinkd.model.BridgeBridgeLink;
+import org.opennms.netmgt.enlinkd.model.BridgeMacLink;
+import org.opennms.netmgt.enlinkd.service.api.BridgeForwardingTableEntry;
+import org.opennms.netmgt.enlinkd.service.api.BridgeMacIndex;
+import org.opennms.netmgt.enlinkd.service.api.BroadcastDomain;
+import org.opennms.netmgt.enlinkd.service.api.DiscoveryBridgeTopology;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to measure the bridge topology calculation.
+ * <p>
+ * The bridge topology is created with the {@link TopologyGenerator} and recorded with a mocked
+ * persistence accessor. The forwarding table of every bridge is then derived from the generated
+ * bridge to bridge and bridge to mac links, with additional macs learned on every port.
+ */
+public class BridgeTopologyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class BState {
+
+        @Param({"51", "201"})
+        public int nodes;
+
+        @Param({"10", "100"})
+        public int macsPerPort;
+
+        public Map<Integer, Set<BridgeForwardingTableEntry>> bfts;
+        public Map<Integer, Set<String>> macs;
+
+        @Setup
+        public void setup() {
+            final GenericPersistenceAccessor accessor = Mockito.mock(GenericPersistenceAccessor.class);
+            final TopologyGenerator generator = TopologyGenerator.builder()
+                    .persister(new TopologyPersister(accessor, new TopologyGenerator.ProgressCallback(s -> {})))
+                    .build();
+            generator.generateTopology(TopologySettings.builder()
+                    .protocol(TopologyGenerator.Protocol.bridge)
+                    .amountNodes(nodes)
+                    .build());
+
+            final List<BridgeBridgeLink> bridgeLinks = new ArrayList<>();
+            final List<BridgeMacLink> macLinks = new ArrayList<>();
+            for (Invocation invocation : Mockito.mockingDetails(accessor).getInvocations()) {
+                for (Object argument : invocation.getArguments()) {
+                    final Collection<?> entities = argument instanceof Collection ? (Collection<?>) argument : List.of(argument);
+                    for (Object entity : entities) {
+                        if (entity instanceof BridgeBridgeLink) {
+                            bridgeLinks.add((BridgeBridgeLink) entity);
+                        } else if (entity instanceof BridgeMacLink) {
+                            macLinks.add((BridgeMacLink) entity);
+                        }
+                    }
+                }
+            }
+            bfts = forwardingTables(bridgeLinks, macLinks, macsPerPort);
+            macs = new HashMap<>();
+            bfts.forEach((nodeid, entries) -> {
+                final Set<String> nodemacs = new HashSet<>();
+                entries.forEach(entry -> nodemacs.add(entry.getMacAddress()));
+                macs.put(nodeid, nodemacs);
+            });
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void calculate(BState state, Blackhole blackhole) {
+        final BroadcastDomain domain = new BroadcastDomain();
+        final DiscoveryBridgeTopology topology = new DiscoveryBridgeTopology(domain);
+        state.bfts.forEach(topology::addUpdatedBFT);
+        topology.calculate();
+        blackhole.consume(domain.getSharedSegments());
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void checkMacSetsStrings(BState state, Blackhole blackhole) {
+        for (Set<String> setA : state.macs.values()) {
+            for (Set<String> setB : state.macs.values()) {
+                blackhole.consume(DiscoveryBridgeDomains.checkMacSets(setA, setB));
+            }
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void checkMacSetsBitSets(BState state, Blackhole blackhole) {
+        final BridgeMacIndex index = new BridgeMacIndex();
+        final List<BitSet> bitsets = new ArrayList<>();
+        state.macs.values().forEach(macs -> bitsets.add(index.toBitSet(macs)));
+        for (BitSet setA : bitsets) {
+            for (BitSet setB : bitsets) {
+                blackhole.consume(DiscoveryBridgeDomains.checkMacSets(setA, setB));
+            }
+        }
+    }
+
+    /**
+     * Every bridge learns every mac: on the port the mac is linked to if the mac is local,
+     * otherwise on the port leading to the bridge the mac is linked to.
+     */
+    private static Map<Integer, Set<BridgeForwardingTableEntry>> forwardingTables(List<BridgeBridgeLink> bridgeLinks,
+                                                                                   List<BridgeMacLink> macLinks,
+                                                                                   int macsPerPort) {
+        final Map<Integer, Map<Integer, Integer>> neighbours = new HashMap<>();
+        for (BridgeBridgeLink link : bridgeLinks) {
+            neighbours.computeIfAbsent(link.getNode().getId(), k -> new HashMap<>())
+                    .put(link.getDesignatedNode().getId(), link.getBridgePort());
+            neighbours.computeIfAbsent(link.getDesignatedNode().getId(), k -> new HashMap<>())
+                    .put(link.getNode().getId(), link.getDesignatedPort());
+        }
+
+        final Map<Integer, Map<Integer, Set<String>>> localMacs = new HashMap<>();
+        for (BridgeMacLink link : macLinks) {
+            localMacs.computeIfAbsent(link.getNode().getId(), k -> new HashMap<>())
+                    .computeIfAbsent(link.getBridgePort(), k -> new HashSet<>())
+                    .add(link.getMacAddress());
+        }
+        long extra = 1L << 40;
+        for (Map<Integer, Set<String>> ports : localMacs.values()) {
+            for (Set<String> portmacs : ports.values()) {
+                for (int i = 0; i < macsPerPort; i++) {
+                    portmacs.add(String.format("%012x", extra++));
+                }
+            }
+        }
+
+        final Map<Integer, Set<BridgeForwardingTableEntry>> bfts = new HashMap<>();
+        for (Integer bridge : neighbours.keySet()) {
+            final Map<Integer, Integer> portToward = portToward(bridge, neighbours);
+            final Set<BridgeForwardingTableEntry> entries = new HashSet<>();
+            localMacs.forEach((nodeid, ports) -> ports.forEach((port, portmacs) -> {
+                final Integer bridgeport = nodeid.equals(bridge) ? port : portToward.get(nodeid);
+                portmacs.forEach(mac -> entries.add(entry(bridge, bridgeport, mac)));
+            }));
+            bfts.put(bridge, entries);
+        }
+        return bfts;
+    }
+
+    private static Map<Integer, Integer> portToward(Integer bridge, Map<Integer, Map<Integer, Integer>> neighbours) {
+        final Map<Integer, Integer> portToward = new HashMap<>();
+        final LinkedList<Integer> queue = new LinkedList<>();
+        neighbours.get(bridge).forEach((neighbour, port) -> {
+            portToward.put(neighbour, port);
+            queue.add(neighbour);
+        });
+        while (!queue.isEmpty()) {
+            final Integer current = queue.poll();
+            for (Integer next : neighbours.get(current).keySet()) {
+                if (!next.equals(bridge) && !portToward.containsKey(next)) {
+                    portToward.put(next, portToward.get(current));
+                    queue.add(next);
+                }
+            }
+        }
+        return portToward;
+    }
+
+    private static BridgeForwardingTableEntry entry(Integer nodeid, Integer bridgeport, String mac) {
+        final BridgeForwardingTableEntry entry = new BridgeForwardingTableEntry();
+        entry.setNodeId(nodeid);
+        entry.setBridgePort(bridgeport);
+        entry.setBridgePortIfIndex(bridgeport);
+        entry.setVlan(1);
+        entry.setMacAddress(mac);
+        entry.setBridgeDot1qTpFdbStatus(BridgeForwardingTableEntry.BridgeDot1qTpFdbStatus.DOT1D_TP_FDB_STATUS_LEARNED);
+        return entry;
+    }
+}
@@ -23,7 +23,13 @@ package org.opennms.netmgt.trapd;
 
 import static org.opennms.core.utils.InetAddressUtils.addr;
 
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.opennms.core.ipc.sink.api.MessageConsumer;
 import org.opennms.core.ipc.sink.api.MessageConsumerManager;
@@ -58,6 +64,11 @@ public class TrapSinkConsumer implements MessageConsumer<TrapInformationWrapper,
 	 */
 	private static final String LOCALHOST_ADDRESS = InetAddressUtils.getLocalHostName();
 
+	/**
+	 * How often the de-duplication windows of the storm filter are checked for expiry.
+	 */
+	private static final long STORM_FILTER_EXPIRY_INTERVAL_MS = 500;
+
 	@Autowired
 	private MessageConsumerManager messageConsumerManager;
 
@@ -79,10 +90,29 @@ public class TrapSinkConsumer implements MessageConsumer<TrapInformationWrapper,
 
 	private EventCreator eventCreator;
 
+	private volatile TrapStormFilter stormFilter;
+
+	private ScheduledExecutorService stormFilterExecutor;
+
 	@PostConstruct
 	public void init() throws Exception {
 		messageConsumerManager.registerConsumer(this);
 		eventCreator = new EventCreator(interfaceToNodeCache, eventConfDao);
+
+		stormFilterExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread thread = new Thread(r, "trapd-storm-filter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		stormFilterExecutor.scheduleWithFixedDelay(this::expireStormFilter,
+				STORM_FILTER_EXPIRY_INTERVAL_MS, STORM_FILTER_EXPIRY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (stormFilterExecutor != null) {
+			stormFilterExecutor.shutdownNow();
+		}
 	}
 
 	@Override
@@ -110,6 +140,7 @@ public class TrapSinkConsumer implements MessageConsumer<TrapInformationWrapper,
 	}
 
 	private Log toLog(TrapLogDTO messageLog) {
+		final TrapStormFilter stormFilter = getStormFilter();
 		final Log log = new Log();
 		final Events events = new Events();
 		log.setEvents(events);
@@ -125,7 +156,18 @@ public class TrapSinkConsumer implements MessageConsumer<TrapInformationWrapper,
 					if (event.getSnmp() != null) {
 						trapdInstrumentation.incTrapsReceivedCount(event.getSnmp().getVersion());
 					}
-					events.addEvent(event);
+					switch (stormFilter != null ? stormFilter.filter(event) : TrapStormFilter.Verdict.ACCEPT) {
+						case ACCEPT:
+							events.addEvent(event);
+							break;
+						case DUPLICATE:
+							trapdInstrumentation.incDeduplicatedCount();
+							break;
+						case RATE_LIMITED:
+							LOG.debug("Trap from {} dropped due to the rate limit", event.getInterface());
+							trapdInstrumentation.incRateLimitedCount();
+							break;
+					}
 				} else {
 					LOG.debug("Trap discarded due to matching event having logmsg dest == discardtraps");
 					trapdInstrumentation.incDiscardCount();
@@ -138,6 +180,54 @@ public class TrapSinkConsumer implements MessageConsumer<TrapInformationWrapper,
 		return log;
 	}
 
+	/**
+	 * Returns the storm filter matching the current configuration, rebuilding
+	 * it when the configuration was reloaded.
+	 *
+	 * @return the filter, or null if neither de-duplication nor rate limiting is enabled
+	 */
+	private TrapStormFilter getStormFilter() {
+		TrapStormFilter filter = stormFilter;
+		if (filter == null || !filter.matches(config)) {
+			synchronized (this) {
+				filter = stormFilter;
+				if (filter == null || !filter.matches(config)) {
+					if (filter != null) {
+						sendSuppressed(filter.expire());
+					}
+					filter = new TrapStormFilter(config);
+					stormFilter = filter;
+				}
+			}
+		}
+		return filter.isEnabled() ? filter : null;
+	}
+
+	private void expireStormFilter() {
+		final TrapStormFilter filter = stormFilter;
+		if (filter == null || !filter.isEnabled()) {
+			return;
+		}
+		try (Logging.MDCCloseable mdc = Logging.withPrefixCloseable(Trapd.LOG4J_CATEGORY)) {
+			sendSuppressed(filter.expire());
+		} catch (Throwable e) {
+			LOG.error("Unexpected error while forwarding de-duplicated traps", e);
+		}
+	}
+
+	private void sendSuppressed(List<Event> summaries) {
+		if (summaries.isEmpty()) {
+			return;
+		}
+		final Log log = new Log();
+		final Events events = new Events();
+		log.setEvents(events);
+		summaries.forEach(events::addEvent);
+
+		LOG.debug("Forwarding {} events for de-duplicated traps", summaries.size());
+		eventForwarder.sendNowSync(log);
+	}
+
 	private void sendNewSuspectEvent(String trapInterface, String distPoller) {
 		// construct event with 'trapd' as source
 		EventBuilder bldr = new EventBuilder(org.opennms.netmgt.events.api.EventConstants.NEW_SUSPECT_INTERFACE_EVENT_UEI, "trapd");
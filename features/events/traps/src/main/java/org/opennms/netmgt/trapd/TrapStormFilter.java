@@ -0,0 +1,305 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.trapd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+import org.opennms.netmgt.config.TrapdConfig;
+import org.opennms.netmgt.xml.event.Event;
+import org.opennms.netmgt.xml.event.Parm;
+import org.opennms.netmgt.xml.event.Snmp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Protects the event pipeline against trap storms.
+ *
+ * Identical traps, i.e. traps from the same agent with the same trap identity
+ * and the same values for the configured varbinds, received within the
+ * de-duplication window are collapsed: the first trap is forwarded right away
+ * and the duplicates are replaced by a single event, carrying the
+ * {@link #COUNT_PARM} parameter, once the window closes.
+ *
+ * Traps which make it through de-duplication are then subject to a token
+ * bucket per agent, dropping the traps exceeding the configured rate.
+ */
+public class TrapStormFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrapStormFilter.class);
+
+    /**
+     * Name of the parameter holding the number of duplicate traps
+     * represented by a de-duplication summary event.
+     */
+    public static final String COUNT_PARM = "trapCount";
+
+    public enum Verdict {
+        ACCEPT,
+        DUPLICATE,
+        RATE_LIMITED
+    }
+
+    private final long windowMs;
+    private final String varbinds;
+    private final int[] varbindIndexes;
+    private final int rateLimit;
+    private final int rateLimitBurst;
+    private final LongSupplier clock;
+
+    private final Map<DedupKey, Window> windows = new ConcurrentHashMap<>();
+    private final Queue<Event> closedWindows = new ConcurrentLinkedQueue<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public TrapStormFilter(TrapdConfig config) {
+        this(config.getDedupWindowMs(), config.getDedupVarbinds(), config.getRateLimit(), config.getRateLimitBurst(), System::currentTimeMillis);
+    }
+
+    protected TrapStormFilter(long windowMs, String varbinds, int rateLimit, int rateLimitBurst, LongSupplier clock) {
+        this.windowMs = Math.max(0, windowMs);
+        this.varbinds = varbinds;
+        this.varbindIndexes = parseVarbindIndexes(varbinds);
+        this.rateLimit = Math.max(0, rateLimit);
+        this.rateLimitBurst = rateLimitBurst > 0 ? rateLimitBurst : this.rateLimit;
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * @return true if either de-duplication or rate limiting is enabled
+     */
+    public boolean isEnabled() {
+        return windowMs > 0 || rateLimit > 0;
+    }
+
+    /**
+     * @return true if this filter was built from the same settings as the given config
+     */
+    public boolean matches(TrapdConfig config) {
+        return windowMs == Math.max(0, config.getDedupWindowMs())
+                && Objects.equals(varbinds, config.getDedupVarbinds())
+                && rateLimit == Math.max(0, config.getRateLimit())
+                && rateLimitBurst == (config.getRateLimitBurst() > 0 ? config.getRateLimitBurst() : rateLimit);
+    }
+
+    /**
+     * Decides whether the given trap event should be forwarded.
+     *
+     * Events for which {@link Verdict#DUPLICATE} is returned are retained
+     * and may later be returned by {@link #expire()}.
+     */
+    public Verdict filter(Event event) {
+        final long now = clock.getAsLong();
+
+        DedupKey key = null;
+        Window window = null;
+        if (windowMs > 0) {
+            key = new DedupKey(event, varbindIndexes);
+            // The verdict must be taken while holding the lock of the map, other threads
+            // may count duplicates into a new window as soon as it was published
+            final boolean[] created = new boolean[1];
+            window = windows.compute(key, (k, w) -> {
+                if (w != null && now - w.start < windowMs) {
+                    w.duplicates++;
+                    w.last = event;
+                    return w;
+                }
+                if (w != null) {
+                    close(w);
+                }
+                created[0] = true;
+                return new Window(now);
+            });
+            if (!created[0]) {
+                return Verdict.DUPLICATE;
+            }
+        }
+
+        if (rateLimit > 0 && event.getInterface() != null) {
+            final TokenBucket bucket = buckets.computeIfAbsent(event.getInterface(), agent -> new TokenBucket(rateLimitBurst, now));
+            if (!bucket.tryAcquire(now, rateLimit, rateLimitBurst)) {
+                if (key != null) {
+                    // Don't collapse further traps into a window whose first trap was dropped,
+                    // but keep it if duplicates were counted into it meanwhile
+                    final Window dropped = window;
+                    windows.computeIfPresent(key, (k, w) -> w == dropped && w.duplicates == 0 ? null : w);
+                }
+                return Verdict.RATE_LIMITED;
+            }
+        }
+        return Verdict.ACCEPT;
+    }
+
+    /**
+     * Closes the elapsed de-duplication windows and forgets about idle agents.
+     *
+     * @return the summary events for the closed windows which suppressed duplicates
+     */
+    public List<Event> expire() {
+        final long now = clock.getAsLong();
+
+        final Iterator<Map.Entry<DedupKey, Window>> it = windows.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<DedupKey, Window> entry = it.next();
+            final Window window = entry.getValue();
+            if (now - window.start >= windowMs && windows.remove(entry.getKey(), window)) {
+                close(window);
+            }
+        }
+
+        if (rateLimit > 0) {
+            // A bucket which had enough time to refill completely is equivalent to a new one
+            final long refillMs = (rateLimitBurst * 1000L + rateLimit - 1) / rateLimit;
+            buckets.values().removeIf(bucket -> bucket.isIdleSince(now - refillMs));
+        }
+
+        if (closedWindows.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<Event> events = new ArrayList<>();
+        Event event;
+        while ((event = closedWindows.poll()) != null) {
+            events.add(event);
+        }
+        return events;
+    }
+
+    private void close(Window window) {
+        if (window.duplicates > 0) {
+            window.last.addParm(new Parm(COUNT_PARM, Integer.toString(window.duplicates)));
+            closedWindows.add(window.last);
+        }
+    }
+
+    private static int[] parseVarbindIndexes(String varbinds) {
+        if (varbinds == null || varbinds.trim().isEmpty()) {
+            return new int[0];
+        }
+        return Arrays.stream(varbinds.split(","))
+                .map(String::trim)
+                .filter(token -> {
+                    if (!token.matches("[1-9][0-9]*")) {
+                        LOG.warn("Ignoring invalid varbind position '{}' in dedup-varbinds: {}", token, varbinds);
+                        return false;
+                    }
+                    return true;
+                })
+                .mapToInt(token -> Integer.parseInt(token) - 1)
+                .toArray();
+    }
+
+    private static final class Window {
+        private final long start;
+        private int duplicates;
+        private Event last;
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long lastRefill;
+
+        private TokenBucket(int burst, long now) {
+            this.tokens = burst;
+            this.lastRefill = now;
+        }
+
+        private synchronized boolean tryAcquire(long now, int rate, int burst) {
+            if (now > lastRefill) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1000d);
+                lastRefill = now;
+            }
+            if (tokens >= 1) {
+                tokens--;
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized boolean isIdleSince(long time) {
+            return lastRefill <= time;
+        }
+    }
+
+    private static final class DedupKey {
+        private final String agent;
+        private final String enterpriseId;
+        private final Integer generic;
+        private final Integer specific;
+        private final String trapOID;
+        private final String[] varbinds;
+        private final int hashCode;
+
+        private DedupKey(Event event, int[] varbindIndexes) {
+            final Snmp snmp = event.getSnmp();
+            this.agent = event.getInterface();
+            this.enterpriseId = snmp != null ? snmp.getId() : null;
+            this.generic = snmp != null ? snmp.getGeneric() : null;
+            this.specific = snmp != null ? snmp.getSpecific() : null;
+            this.trapOID = snmp != null ? snmp.getTrapOID() : null;
+
+            final List<Parm> parms = event.getParmCollection();
+            this.varbinds = new String[varbindIndexes.length];
+            for (int i = 0; i < varbindIndexes.length; i++) {
+                final int index = varbindIndexes[i];
+                if (index < parms.size() && parms.get(index).getValue() != null) {
+                    this.varbinds[i] = parms.get(index).getValue().getContent();
+                }
+            }
+            this.hashCode = Objects.hash(agent, enterpriseId, generic, specific, trapOID, Arrays.hashCode(varbinds));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DedupKey)) {
+                return false;
+            }
+            final DedupKey other = (DedupKey) obj;
+            return hashCode == other.hashCode
+                    && Objects.equals(agent, other.agent)
+                    && Objects.equals(enterpriseId, other.enterpriseId)
+                    && Objects.equals(generic, other.generic)
+                    && Objects.equals(specific, other.specific)
+                    && Objects.equals(trapOID, other.trapOID)
+                    && Arrays.equals(varbinds, other.varbinds);
+        }
+    }
+}
@@ -53,6 +53,10 @@ public class TrapdConfigBean implements TrapdConfig, Serializable {
 	private int queueSize;
 	private int numThreads;
 	private boolean useAddressFromVarbind;
+	private int dedupWindowMs;
+	private String dedupVarbinds;
+	private int rateLimit;
+	private int rateLimitBurst;
 
 	public TrapdConfigBean() {
 
@@ -72,6 +76,10 @@ public class TrapdConfigBean implements TrapdConfig, Serializable {
 		setQueueSize(trapdConfiguration.getQueueSize());
 		setNumThreads(trapdConfiguration.getThreads());
 		setUseAddressFromVarbind(trapdConfiguration.shouldUseAddressFromVarbind());
+		setDedupWindowMs(trapdConfiguration.getDedupWindow());
+		setDedupVarbinds(trapdConfiguration.getDedupVarbinds());
+		setRateLimit(trapdConfiguration.getRateLimit());
+		setRateLimitBurst(trapdConfiguration.getRateLimitBurst());
 		if (trapdConfiguration.getSnmpv3UserCollection() != null) {
 			setSnmpV3Users(trapdConfiguration.getSnmpv3UserCollection().stream()
 						.map(TrapdConfigBean::toSnmpV3User)
@@ -158,9 +166,33 @@ public class TrapdConfigBean implements TrapdConfig, Serializable {
 		setQueueSize(config.getQueueSize());
 		setNumThreads(config.getNumThreads());
 		setUseAddressFromVarbind(config.shouldUseAddressFromVarbind());
+		setDedupWindowMs(config.getDedupWindowMs());
+		setDedupVarbinds(config.getDedupVarbinds());
+		setRateLimit(config.getRateLimit());
+		setRateLimitBurst(config.getRateLimitBurst());
 		setSnmpV3Users(config.getSnmpV3Users());
 	}
 
+	@Override
+	public int getDedupWindowMs() {
+		return dedupWindowMs;
+	}
+
+	@Override
+	public String getDedupVarbinds() {
+		return dedupVarbinds;
+	}
+
+	@Override
+	public int getRateLimit() {
+		return rateLimit;
+	}
+
+	@Override
+	public int getRateLimitBurst() {
+		return rateLimitBurst;
+	}
+
 	public void setBatchIntervalMs(int batchIntervalInMs) {
 		this.batchIntervalInMs = batchIntervalInMs;
 	}
@@ -177,6 +209,22 @@ public class TrapdConfigBean implements TrapdConfig, Serializable {
 		this.numThreads = numThreads;
 	}
 
+	public void setDedupWindowMs(int dedupWindowMs) {
+		this.dedupWindowMs = dedupWindowMs;
+	}
+
+	public void setDedupVarbinds(String dedupVarbinds) {
+		this.dedupVarbinds = dedupVarbinds;
+	}
+
+	public void setRateLimit(int rateLimit) {
+		this.rateLimit = rateLimit;
+	}
+
+	public void setRateLimitBurst(int rateLimitBurst) {
+		this.rateLimitBurst = rateLimitBurst;
+	}
+
 	public static SnmpV3User toSnmpV3User(Snmpv3User snmpv3User) {
 		SnmpV3User snmpV3User = new SnmpV3User();
 		snmpV3User.setAuthPassPhrase(snmpv3User.getAuthPassphrase());
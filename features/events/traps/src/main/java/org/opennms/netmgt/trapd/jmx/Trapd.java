@@ -84,6 +84,18 @@ public class Trapd extends AbstractSpringContextJmxServiceDaemon<org.opennms.net
     public long getTrapsErrored() {
         return getTrapdInstrumentation().getTrapsErrored();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTrapsDeduplicated() {
+        return getTrapdInstrumentation().getTrapsDeduplicated();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTrapsRateLimited() {
+        return getTrapdInstrumentation().getTrapsRateLimited();
+    }
     
     private TrapdInstrumentation getTrapdInstrumentation() {
         return TrapSinkConsumer.trapdInstrumentation;
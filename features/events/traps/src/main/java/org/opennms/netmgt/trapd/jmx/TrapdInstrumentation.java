@@ -37,6 +37,8 @@ public class TrapdInstrumentation {
     private final AtomicLong vUnknownTrapsReceived = new AtomicLong();
     private final AtomicLong trapsDiscarded = new AtomicLong();
     private final AtomicLong trapsErrored = new AtomicLong();
+    private final AtomicLong trapsDeduplicated = new AtomicLong();
+    private final AtomicLong trapsRateLimited = new AtomicLong();
 
     public void incTrapsReceivedCount(String version) {
         trapsReceived.incrementAndGet();
@@ -60,6 +62,14 @@ public class TrapdInstrumentation {
         trapsErrored.incrementAndGet();
     }
 
+    public void incDeduplicatedCount() {
+        trapsDeduplicated.incrementAndGet();
+    }
+
+    public void incRateLimitedCount() {
+        trapsRateLimited.incrementAndGet();
+    }
+
     public long getV1TrapsReceived() {
         return v1TrapsReceived.get();
     }
@@ -84,6 +94,14 @@ public class TrapdInstrumentation {
         return trapsErrored.get();
     }
 
+    public long getTrapsDeduplicated() {
+        return trapsDeduplicated.get();
+    }
+
+    public long getTrapsRateLimited() {
+        return trapsRateLimited.get();
+    }
+
     public long getTrapsReceived() {
         return trapsReceived.get();
     }
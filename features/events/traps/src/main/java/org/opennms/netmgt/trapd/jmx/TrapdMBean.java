@@ -50,4 +50,10 @@ public interface TrapdMBean extends BaseOnmsMBean {
     
     /** @return The number of traps not processed due to errors since Trapd was last started */
     public long getTrapsErrored();
+
+    /** @return The number of duplicate traps collapsed into summary events since Trapd was last started */
+    public long getTrapsDeduplicated();
+
+    /** @return The number of traps dropped by the per-agent rate limit since Trapd was last started */
+    public long getTrapsRateLimited();
 }
@@ -0,0 +1,160 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.trapd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.opennms.core.utils.InetAddressUtils.addr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.opennms.netmgt.model.events.EventBuilder;
+import org.opennms.netmgt.trapd.TrapStormFilter.Verdict;
+import org.opennms.netmgt.xml.event.Event;
+
+public class TrapStormFilterTest {
+
+	private final AtomicLong now = new AtomicLong(1000);
+
+	@Test
+	public void canCollapseDuplicates() {
+		final TrapStormFilter filter = new TrapStormFilter(1000, null, 0, 0, now::get);
+
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "1")));
+		assertEquals(Verdict.DUPLICATE, filter.filter(linkDown("10.0.0.1", "1")));
+		final Event last = linkDown("10.0.0.1", "1");
+		assertEquals(Verdict.DUPLICATE, filter.filter(last));
+		// Other agents are not affected
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.2", "1")));
+
+		now.addAndGet(500);
+		assertTrue(filter.expire().isEmpty());
+
+		// The duplicates are forwarded as a single event once the window closes
+		now.addAndGet(500);
+		final List<Event> summaries = filter.expire();
+		assertEquals(1, summaries.size());
+		assertSame(last, summaries.get(0));
+		assertEquals("2", last.getParm(TrapStormFilter.COUNT_PARM).getValue().getContent());
+
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "1")));
+	}
+
+	@Test
+	public void canCompareSelectedVarbinds() {
+		final TrapStormFilter filter = new TrapStormFilter(1000, "1", 0, 0, now::get);
+
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "1")));
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "2")));
+		// Only the first varbind is taken into account
+		final Event event = new EventBuilder(linkDown("10.0.0.1", "2"))
+				.addParam(".1.3.6.1.2.1.2.2.1.8", "2")
+				.getEvent();
+		assertEquals(Verdict.DUPLICATE, filter.filter(event));
+
+		// Windows closed while receiving traps are kept until the next expiry
+		now.addAndGet(1000);
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "2")));
+		assertEquals(1, filter.expire().size());
+	}
+
+	@Test
+	public void canRateLimitPerAgent() {
+		final TrapStormFilter filter = new TrapStormFilter(0, null, 10, 2, now::get);
+
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "1")));
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "2")));
+		assertEquals(Verdict.RATE_LIMITED, filter.filter(linkDown("10.0.0.1", "3")));
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.2", "1")));
+
+		// A token is added every 100ms
+		now.addAndGet(100);
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "3")));
+		assertEquals(Verdict.RATE_LIMITED, filter.filter(linkDown("10.0.0.1", "4")));
+	}
+
+	@Test
+	public void canCollapseDuplicatesFromConcurrentThreads() throws Exception {
+		final TrapStormFilter filter = new TrapStormFilter(1000, null, 0, 0, now::get);
+		final int threads = 8;
+
+		for (int round = 0; round < 200; round++) {
+			final CyclicBarrier barrier = new CyclicBarrier(threads);
+			final AtomicInteger accepted = new AtomicInteger();
+			final AtomicInteger duplicates = new AtomicInteger();
+			final List<Thread> workers = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				final Thread worker = new Thread(() -> {
+					try {
+						barrier.await();
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+					final Verdict verdict = filter.filter(linkDown("10.0.0.1", "1"));
+					(verdict == Verdict.ACCEPT ? accepted : duplicates).incrementAndGet();
+				});
+				workers.add(worker);
+				worker.start();
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+
+			// Exactly one trap is forwarded and the others are summarized
+			assertEquals(1, accepted.get());
+			assertEquals(threads - 1, duplicates.get());
+
+			now.addAndGet(1000);
+			final List<Event> summaries = filter.expire();
+			assertEquals(1, summaries.size());
+			assertEquals(Integer.toString(threads - 1), summaries.get(0).getParm(TrapStormFilter.COUNT_PARM).getValue().getContent());
+		}
+	}
+
+	@Test
+	public void canForgetTheWindowOfARateLimitedTrap() {
+		final TrapStormFilter filter = new TrapStormFilter(1000, "1", 10, 1, now::get);
+
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "1")));
+		// The window of a dropped trap is discarded
+		assertEquals(Verdict.RATE_LIMITED, filter.filter(linkDown("10.0.0.1", "2")));
+		now.addAndGet(100);
+		assertEquals(Verdict.ACCEPT, filter.filter(linkDown("10.0.0.1", "2")));
+	}
+
+	private static Event linkDown(String agent, String ifIndex) {
+		return new EventBuilder("uei.opennms.org/generic/traps/SNMP_Link_Down", "trapd")
+				.setInterface(addr(agent))
+				.setEnterpriseId(".1.3.6.1.6.3.1.1.5")
+				.setTrapOID(".1.3.6.1.6.3.1.1.5.3")
+				.setGeneric(2)
+				.setSpecific(0)
+				.addParam(".1.3.6.1.2.1.2.2.1.1", ifIndex)
+				.getEvent();
+	}
+}
@@ -23,13 +23,21 @@ package org.opennms.netmgt.flows.elastic;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.opennms.core.tracing.api.TracerConstants;
 import org.opennms.core.tracing.api.TracerRegistry;
@@ -37,7 +45,9 @@ import org.opennms.distributed.core.api.Identity;
 import org.opennms.features.jest.client.JestClientWithCircuitBreaker;
 import org.opennms.features.jest.client.bulk.BulkException;
 import org.opennms.features.jest.client.bulk.BulkRequest;
+import org.opennms.features.jest.client.bulk.BulkResultWrapper;
 import org.opennms.features.jest.client.bulk.BulkWrapper;
+import org.opennms.features.jest.client.bulk.FailedItem;
 import org.opennms.features.jest.client.index.IndexStrategy;
 import org.opennms.features.jest.client.template.IndexSettings;
 import org.opennms.integration.api.v1.flows.Flow;
@@ -46,11 +56,14 @@ import org.opennms.integration.api.v1.flows.FlowRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
+import com.google.common.base.Utf8;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
 
 import io.opentracing.Scope;
 import io.opentracing.Tracer;
@@ -58,6 +71,17 @@ import io.opentracing.util.GlobalTracer;
 import io.searchbox.core.Bulk;
 import io.searchbox.core.Index;
 
+/**
+ * Persists flows to Elasticsearch.
+ *
+ * All callers share a single pending bulk which is handed over to a bounded number of concurrently executed bulk
+ * requests as soon as it reaches either {@link #getBulkSize()} documents or {@link #getBulkMaxBytes()} bytes, or has
+ * been pending for longer than {@link #getBulkFlushMs()}. If all {@link #getBulkMaxInFlight()} bulk requests are in
+ * flight, callers block until one of them completes, pushing back on the consumer of the flows.
+ *
+ * If the bulk size is not positive, each call persists its flows synchronously and failures are reported to the
+ * caller.
+ */
 public class ElasticFlowRepository implements FlowRepository {
 
     public static final String TRACER_FLOW_MODULE = "ElasticFlow";
@@ -66,6 +90,11 @@ public class ElasticFlowRepository implements FlowRepository {
 
     private static final String INDEX_NAME = "netflow";
 
+    /**
+     * Flow documents only use explicitly named fields, so the plain instance yields the same source as the client.
+     */
+    private static final Gson GSON = new Gson();
+
     private final JestClientWithCircuitBreaker client;
 
     private final IndexStrategy indexStrategy;
@@ -75,11 +104,26 @@ public class ElasticFlowRepository implements FlowRepository {
      */
     private final Meter flowsPersistedMeter;
 
+    /**
+     * Flows/second which could not be persisted
+     */
+    private final Meter flowsFailedMeter;
+
     /**
      * Time taken to persist the flows in a log
      */
     private final Timer logPersistingTimer;
 
+    /**
+     * Time callers are blocked waiting for a bulk request to complete
+     */
+    private final Timer bulkWaitTimer;
+
+    /**
+     * Size of the bulk requests in bytes
+     */
+    private final Histogram bulkBytesHistogram;
+
     // An OpenNMS or Sentinel Identity.
     private final Identity identity;
     private final TracerRegistry tracerRegistry;
@@ -89,20 +133,53 @@ public class ElasticFlowRepository implements FlowRepository {
     private int bulkSize = 1000;
     private int bulkRetryCount = 5;
     private int bulkFlushMs = 500;
+    private long bulkMaxBytes = 5 * 1024 * 1024;
+    private int bulkMaxInFlight = 4;
 
-    private class FlowBulk {
-        private List<FlowDocument> documents = Lists.newArrayListWithCapacity(ElasticFlowRepository.this.bulkSize);
-        private ReentrantLock lock = new ReentrantLock();
-        private long lastPersist = 0;
+    /**
+     * A flow document together with its source, serialized by the calling thread.
+     */
+    private static class SerializedFlow {
+        private final FlowDocument document;
+        private final String source;
+        private final int bytes;
+
+        private SerializedFlow(final FlowDocument document) {
+            this.document = document;
+            this.source = GSON.toJson(document);
+            this.bytes = Utf8.encodedLength(this.source);
+        }
+    }
 
-        public FlowBulk() {
+    private static class BulkSlots extends Semaphore {
+        private BulkSlots(final int permits) {
+            super(permits, true);
+        }
+
+        private void resize(final int delta) {
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
         }
     }
 
     /**
      * Collect flow documents ready for persistence.
      */
-    private final Map<Thread, FlowBulk> flowBulks = Maps.newConcurrentMap();
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private List<SerializedFlow> pending = new ArrayList<>();
+    private long pendingBytes = 0;
+    private long pendingSince = 0;
+
+    private final BulkSlots bulkSlots = new BulkSlots(bulkMaxInFlight);
+    private final AtomicInteger bulksInFlight = new AtomicInteger();
+    private final ExecutorService bulkExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("ElasticFlowRepositoryBulk-%d")
+            .setDaemon(true)
+            .build());
+
     private java.util.Timer flushTimer;
 
     public ElasticFlowRepository(final MetricRegistry metricRegistry,
@@ -118,7 +195,13 @@ public class ElasticFlowRepository implements FlowRepository {
         this.indexSettings = Objects.requireNonNull(indexSettings);
 
         this.flowsPersistedMeter = metricRegistry.meter("flowsPersisted");
+        this.flowsFailedMeter = metricRegistry.meter("flowsFailed");
         this.logPersistingTimer = metricRegistry.timer("logPersisting");
+        this.bulkWaitTimer = metricRegistry.timer("bulkWait");
+        this.bulkBytesHistogram = metricRegistry.histogram("bulkBytes");
+        if (!metricRegistry.getGauges().keySet().contains("bulksInFlight")) {
+            metricRegistry.register("bulksInFlight", (Gauge<Integer>) bulksInFlight::get);
+        }
 
         this.startTimer();
     }
@@ -147,25 +230,21 @@ public class ElasticFlowRepository implements FlowRepository {
             flushTimer.scheduleAtFixedRate(new TimerTask() {
                 @Override
                 public void run() {
-                    final long currentTimeMillis = System.currentTimeMillis();
-                    for(final Map.Entry<Thread, ElasticFlowRepository.FlowBulk> entry : flowBulks.entrySet()) {
-                        final ElasticFlowRepository.FlowBulk flowBulk = entry.getValue();
-                        if (currentTimeMillis - flowBulk.lastPersist > bulkFlushMs) {
-                            if (flowBulk.lock.tryLock()) {
-                                try {
-                                    if (flowBulk.documents.size() > 0) {
-                                        try {
-                                            persistBulk(flowBulk.documents);
-                                            flowBulk.lastPersist = currentTimeMillis;
-                                        } catch (Throwable t) {
-                                            LOG.error("An error occurred while flushing one or more bulks in ElasticFlowRepository.", t);
-                                        }
-                                    }
-                                } finally {
-                                    flowBulk.lock.unlock();
-                                }
-                            }
+                    final List<SerializedFlow> bulk;
+                    pendingLock.lock();
+                    try {
+                        if (pending.isEmpty() || System.currentTimeMillis() - pendingSince <= bulkFlushMs) {
+                            return;
                         }
+                        bulk = takePending();
+                    } finally {
+                        pendingLock.unlock();
+                    }
+
+                    try {
+                        submitBulk(bulk);
+                    } catch (Throwable t) {
+                        LOG.error("An error occurred while flushing one or more bulks in ElasticFlowRepository.", t);
                     }
                 }
             }, delay, delay);
@@ -183,52 +262,134 @@ public class ElasticFlowRepository implements FlowRepository {
 
     @Override
     public void persist(final Collection<? extends Flow> flows) throws FlowException {
-        final FlowBulk flowBulk = this.flowBulks.computeIfAbsent(Thread.currentThread(), (thread) -> new FlowBulk());
-        flowBulk.lock.lock();
+        // Serialize outside of the lock - this is where most of the CPU time goes
+        final List<SerializedFlow> documents = flows.stream()
+                .map(FlowDocument::from)
+                .map(SerializedFlow::new)
+                .collect(Collectors.toList());
+
+        if (this.bulkSize <= 0) {
+            this.persistBulk(documents);
+            return;
+        }
+
+        final List<List<SerializedFlow>> bulks = new ArrayList<>(1);
+        pendingLock.lock();
         try {
-            flows.stream().map(FlowDocument::from).forEach(flowBulk.documents::add);
-            if (flowBulk.documents.size() >= this.bulkSize) {
-                this.persistBulk(flowBulk.documents);
-                flowBulk.lastPersist = System.currentTimeMillis();
+            for (final SerializedFlow document : documents) {
+                if (pending.isEmpty()) {
+                    pendingSince = System.currentTimeMillis();
+                }
+                pending.add(document);
+                pendingBytes += document.bytes;
+
+                if (pending.size() >= this.bulkSize || pendingBytes >= this.bulkMaxBytes) {
+                    bulks.add(takePending());
+                }
             }
         } finally {
-            flowBulk.lock.unlock();
+            pendingLock.unlock();
+        }
+
+        for (final List<SerializedFlow> bulk : bulks) {
+            this.submitBulk(bulk);
         }
     }
 
-    private void persistBulk(final List<FlowDocument> bulk) throws FlowException {
+    /**
+     * Hands out the pending documents and starts a new bulk. Must be called while holding the pending lock.
+     */
+    private List<SerializedFlow> takePending() {
+        final List<SerializedFlow> bulk = pending;
+        pending = new ArrayList<>(Math.max(bulkSize, 0));
+        pendingBytes = 0;
+        return bulk;
+    }
+
+    /**
+     * Executes the bulk in the background, blocking the caller while the maximum number of bulks is in flight.
+     */
+    private void submitBulk(final List<SerializedFlow> bulk) throws FlowException {
+        try (final Timer.Context ctx = bulkWaitTimer.time()) {
+            bulkSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flowsFailedMeter.mark(bulk.size());
+            throw new FlowException("Interrupted while waiting to persist " + bulk.size() + " flows", e);
+        }
+
+        bulksInFlight.incrementAndGet();
+        try {
+            bulkExecutor.execute(() -> {
+                try {
+                    persistBulk(bulk);
+                } catch (PersistenceException e) {
+                    LOG.error("Failed to persist {} of {} flows: {}", e.getFailedItems().size(), bulk.size(), e.getMessage());
+                    e.getDetailedLogMessages().forEach(LOG::debug);
+                } catch (Throwable t) {
+                    LOG.error("An error occurred while persisting a bulk in ElasticFlowRepository.", t);
+                } finally {
+                    bulksInFlight.decrementAndGet();
+                    bulkSlots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulksInFlight.decrementAndGet();
+            bulkSlots.release();
+            flowsFailedMeter.mark(bulk.size());
+            throw new FlowException("Failed to schedule bulk of " + bulk.size() + " flows", e);
+        }
+    }
+
+    private void persistBulk(final List<SerializedFlow> bulk) throws FlowException {
+        if (bulk.isEmpty()) {
+            return;
+        }
+
         LOG.debug("Persisting {} flow documents.", bulk.size());
+        bulkBytesHistogram.update(bulk.stream().mapToLong(document -> document.bytes).sum());
+
         final Tracer tracer = getTracer();
         try (final Timer.Context ctx = logPersistingTimer.time();
              Scope scope = tracer.buildSpan(TRACER_FLOW_MODULE).startActive(true)) {
             // Add location and source address tags to span.
             scope.span().setTag(TracerConstants.TAG_THREAD, Thread.currentThread().getName());
-            final BulkRequest<FlowDocument> bulkRequest = new BulkRequest<>(client, bulk, (documents) -> {
+            final BulkRequest<SerializedFlow> bulkRequest = new BulkRequest<>(client, new ArrayList<>(bulk), (documents) -> {
                 final Bulk.Builder bulkBuilder = new Bulk.Builder();
-                for (FlowDocument flowDocument : documents) {
-                    final String index = indexStrategy.getIndex(indexSettings, INDEX_NAME, Instant.ofEpochMilli(flowDocument.getTimestamp()));
-                    final Index.Builder indexBuilder = new Index.Builder(flowDocument)
+                for (SerializedFlow document : documents) {
+                    final String index = indexStrategy.getIndex(indexSettings, INDEX_NAME, Instant.ofEpochMilli(document.document.getTimestamp()));
+                    final Index.Builder indexBuilder = new Index.Builder(document.source)
                             .index(index);
                     bulkBuilder.addAction(indexBuilder.build());
                 }
                 return new BulkWrapper(bulkBuilder);
             }, bulkRetryCount);
             try {
-                // the bulk request considers retries
+                // the bulk request considers retries and only resends the failed documents
                 bulkRequest.execute();
             } catch (BulkException ex) {
-                if (ex.getBulkResult() != null) {
-                    throw new PersistenceException(ex.getMessage(), ex.getBulkResult().getFailedItems());
-                } else {
-                    throw new PersistenceException(ex.getMessage(), Collections.emptyList());
-                }
+                @SuppressWarnings("unchecked")
+                final BulkResultWrapper<SerializedFlow> bulkResult = ex.getBulkResult();
+                final List<FailedItem<SerializedFlow>> lastFailedItems = bulkResult != null
+                        ? bulkResult.getFailedItems()
+                        : Collections.emptyList();
+                final List<FailedItem<FlowDocument>> failedItems = Stream.concat(bulkRequest.getDroppedItems().stream(), lastFailedItems.stream())
+                        .map(item -> new FailedItem<>(item.getIndex(), item.getItem().document, item.getCause(), item.getStatus()))
+                        .collect(Collectors.toList());
+                final int dropped = bulkRequest.getDroppedItems().size();
+                final int failed = dropped + (lastFailedItems.isEmpty() ? bulk.size() - dropped : lastFailedItems.size());
+                flowsPersistedMeter.mark(bulk.size() - failed);
+                flowsFailedMeter.mark(failed);
+                throw new PersistenceException(ex.getMessage(), failedItems);
             } catch (IOException ex) {
                 LOG.error("An error occurred while executing the given request: {}", ex.getMessage(), ex);
+                flowsFailedMeter.mark(bulk.size());
                 throw new FlowException(ex.getMessage(), ex);
             }
-            flowsPersistedMeter.mark(bulk.size());
-
-            bulk.clear();
+            // documents which failed for a reason that retrying can not fix were dropped by the bulk request
+            final int dropped = bulkRequest.getDroppedItems().size();
+            flowsPersistedMeter.mark(bulk.size() - dropped);
+            flowsFailedMeter.mark(dropped);
         }
     }
 
@@ -250,9 +411,38 @@ public class ElasticFlowRepository implements FlowRepository {
 
     public void stop() throws FlowException {
         stopTimer();
-        for(final FlowBulk flowBulk : flowBulks.values()) {
-            persistBulk(flowBulk.documents);
+
+        final List<SerializedFlow> bulk;
+        pendingLock.lock();
+        try {
+            bulk = takePending();
+        } finally {
+            pendingLock.unlock();
+        }
+
+        // Wait for the bulks in flight before persisting the remainder
+        final int permits = bulkMaxInFlight;
+        try {
+            if (!bulkSlots.tryAcquire(permits, Math.max(bulkFlushMs, 0) + 60_000L, TimeUnit.MILLISECONDS)) {
+                LOG.warn("Timed out waiting for {} bulk(s) in flight.", bulksInFlight.get());
+            } else {
+                bulkSlots.release(permits);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // No more bulks are handed to the executor, release its threads
+        bulkExecutor.shutdown();
+        try {
+            if (!bulkExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warn("Timed out waiting for the bulk executor to terminate.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+
+        persistBulk(bulk);
     }
 
     private Tracer getTracer() {
@@ -288,4 +478,22 @@ public class ElasticFlowRepository implements FlowRepository {
         stopTimer();
         startTimer();
     }
+
+    public long getBulkMaxBytes() {
+        return bulkMaxBytes;
+    }
+
+    public void setBulkMaxBytes(final long bulkMaxBytes) {
+        this.bulkMaxBytes = bulkMaxBytes > 0 ? bulkMaxBytes : Long.MAX_VALUE;
+    }
+
+    public int getBulkMaxInFlight() {
+        return bulkMaxInFlight;
+    }
+
+    public synchronized void setBulkMaxInFlight(final int bulkMaxInFlight) {
+        final int limit = Math.max(1, bulkMaxInFlight);
+        bulkSlots.resize(limit - this.bulkMaxInFlight);
+        this.bulkMaxInFlight = limit;
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.elastic.agg;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.opennms.features.jest.client.JestClientWithCircuitBreaker;
+import org.opennms.features.jest.client.bulk.BulkException;
+import org.opennms.features.jest.client.bulk.BulkRequest;
+import org.opennms.features.jest.client.bulk.BulkWrapper;
+import org.opennms.features.jest.client.index.IndexStrategy;
+import org.opennms.features.jest.client.template.DefaultTemplateInitializer;
+import org.opennms.features.jest.client.template.IndexSettings;
+import org.opennms.integration.api.v1.flows.FlowException;
+import org.opennms.netmgt.flows.elastic.AggregateIndexInitializer;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup;
+import org.opennms.netmgt.flows.processing.aggregation.RollupRepository;
+import org.osgi.framework.BundleContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+
+import io.searchbox.core.Bulk;
+import io.searchbox.core.Index;
+
+/**
+ * Persists the rollups of the flow pipeline to the aggregate index.
+ */
+public class ElasticRollupRepository implements RollupRepository {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ElasticRollupRepository.class);
+
+    private final JestClientWithCircuitBreaker client;
+
+    private final IndexStrategy indexStrategy;
+
+    private final IndexSettings indexSettings;
+
+    private final DefaultTemplateInitializer initializer;
+
+    /**
+     * Rollups/second throughput
+     */
+    private final Meter rollupsPersistedMeter;
+
+    /**
+     * Time taken to persist a batch of rollups
+     */
+    private final Timer rollupPersistingTimer;
+
+    private int bulkSize = 1000;
+    private int bulkRetryCount = 5;
+
+    public ElasticRollupRepository(final BundleContext bundleContext,
+                                   final MetricRegistry metricRegistry,
+                                   final JestClientWithCircuitBreaker client,
+                                   final IndexStrategy indexStrategy,
+                                   final IndexSettings indexSettings) {
+        this(metricRegistry, client, indexStrategy, indexSettings, new AggregateIndexInitializer(bundleContext, client, indexSettings));
+    }
+
+    public ElasticRollupRepository(final MetricRegistry metricRegistry,
+                                   final JestClientWithCircuitBreaker client,
+                                   final IndexStrategy indexStrategy,
+                                   final IndexSettings indexSettings,
+                                   final DefaultTemplateInitializer initializer) {
+        this.client = Objects.requireNonNull(client);
+        this.indexStrategy = Objects.requireNonNull(indexStrategy);
+        this.indexSettings = Objects.requireNonNull(indexSettings);
+        this.initializer = Objects.requireNonNull(initializer);
+
+        this.rollupsPersistedMeter = metricRegistry.meter("rollupsPersisted");
+        this.rollupPersistingTimer = metricRegistry.timer("rollupPersisting");
+    }
+
+    @Override
+    public void persist(final Collection<FlowRollup> rollups) throws FlowException {
+        if (rollups.isEmpty()) {
+            return;
+        }
+
+        if (!this.initializer.isInitialized()) {
+            this.initializer.initialize();
+        }
+
+        final List<RollupDocument> documents = rollups.stream()
+                .map(RollupDocument::from)
+                .collect(Collectors.toList());
+
+        if (this.bulkSize <= 0) {
+            this.persistBulk(documents);
+            return;
+        }
+
+        for (final List<RollupDocument> bulk : Lists.partition(documents, this.bulkSize)) {
+            this.persistBulk(bulk);
+        }
+    }
+
+    private void persistBulk(final List<RollupDocument> bulk) throws FlowException {
+        LOG.debug("Persisting {} rollup documents.", bulk.size());
+        try (final Timer.Context ctx = this.rollupPersistingTimer.time()) {
+            final BulkRequest<RollupDocument> bulkRequest = new BulkRequest<>(this.client, bulk, (documents) -> {
+                final Bulk.Builder bulkBuilder = new Bulk.Builder();
+                for (final RollupDocument document : documents) {
+                    final String index = this.indexStrategy.getIndex(this.indexSettings, AggregatedFlowQueryService.INDEX_NAME, Instant.ofEpochMilli(document.getRangeStart()));
+                    bulkBuilder.addAction(new Index.Builder(document).index(index).build());
+                }
+                return new BulkWrapper(bulkBuilder);
+            }, this.bulkRetryCount);
+
+            try {
+                // the bulk request considers retries
+                bulkRequest.execute();
+            } catch (BulkException ex) {
+                final int failed = ex.getBulkResult() != null ? ex.getBulkResult().getFailedItems().size() : bulk.size();
+                throw new FlowException(String.format("Failed to persist %d of %d rollup documents: %s", failed, bulk.size(), ex.getMessage()), ex);
+            } catch (IOException ex) {
+                LOG.error("An error occurred while executing the given request: {}", ex.getMessage(), ex);
+                throw new FlowException(ex.getMessage(), ex);
+            }
+            this.rollupsPersistedMeter.mark(bulk.size());
+        }
+    }
+
+    public int getBulkSize() {
+        return this.bulkSize;
+    }
+
+    public void setBulkSize(final int bulkSize) {
+        this.bulkSize = bulkSize;
+    }
+
+    public int getBulkRetryCount() {
+        return this.bulkRetryCount;
+    }
+
+    public void setBulkRetryCount(final int bulkRetryCount) {
+        this.bulkRetryCount = bulkRetryCount;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.elastic.agg;
+
+import org.opennms.netmgt.flows.elastic.NodeDocument;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Document stored in the aggregate index - as read by the {@link AggregatedFlowQueryService}.
+ */
+public class RollupDocument {
+
+    @SerializedName("@timestamp")
+    private long timestamp;
+
+    @SerializedName("range_start")
+    private long rangeStart;
+
+    @SerializedName("range_end")
+    private long rangeEnd;
+
+    @SerializedName("grouped_by")
+    private GroupedBy groupedBy;
+
+    @SerializedName("grouped_by_key")
+    private String groupedByKey;
+
+    @SerializedName("aggregation_type")
+    private String aggregationType;
+
+    @SerializedName("ranking")
+    private Integer ranking;
+
+    @SerializedName("bytes_ingress")
+    private long bytesIngress;
+
+    @SerializedName("bytes_egress")
+    private long bytesEgress;
+
+    @SerializedName("bytes_total")
+    private long bytesTotal;
+
+    @SerializedName("congestion_encountered")
+    private boolean congestionEncountered;
+
+    @SerializedName("non_ect")
+    private boolean nonEcnCapableTransport;
+
+    @SerializedName("exporter")
+    private NodeDocument exporter;
+
+    @SerializedName("if_index")
+    private int ifIndex;
+
+    @SerializedName("dscp")
+    private Integer dscp;
+
+    @SerializedName("application")
+    private String application;
+
+    @SerializedName("host_address")
+    private String hostAddress;
+
+    @SerializedName("host_name")
+    private String hostName;
+
+    @SerializedName("conversation_key")
+    private String conversationKey;
+
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    public long getRangeStart() {
+        return this.rangeStart;
+    }
+
+    public long getRangeEnd() {
+        return this.rangeEnd;
+    }
+
+    public GroupedBy getGroupedBy() {
+        return this.groupedBy;
+    }
+
+    public String getGroupedByKey() {
+        return this.groupedByKey;
+    }
+
+    public String getAggregationType() {
+        return this.aggregationType;
+    }
+
+    public Integer getRanking() {
+        return this.ranking;
+    }
+
+    public long getBytesIngress() {
+        return this.bytesIngress;
+    }
+
+    public long getBytesEgress() {
+        return this.bytesEgress;
+    }
+
+    public long getBytesTotal() {
+        return this.bytesTotal;
+    }
+
+    public boolean isCongestionEncountered() {
+        return this.congestionEncountered;
+    }
+
+    public boolean isNonEcnCapableTransport() {
+        return this.nonEcnCapableTransport;
+    }
+
+    public NodeDocument getExporter() {
+        return this.exporter;
+    }
+
+    public int getIfIndex() {
+        return this.ifIndex;
+    }
+
+    public Integer getDscp() {
+        return this.dscp;
+    }
+
+    public String getApplication() {
+        return this.application;
+    }
+
+    public String getHostAddress() {
+        return this.hostAddress;
+    }
+
+    public String getHostName() {
+        return this.hostName;
+    }
+
+    public String getConversationKey() {
+        return this.conversationKey;
+    }
+
+    public static RollupDocument from(final FlowRollup rollup) {
+        final RollupDocument doc = new RollupDocument();
+        doc.timestamp = rollup.getRangeEnd();
+        doc.rangeStart = rollup.getRangeStart();
+        doc.rangeEnd = rollup.getRangeEnd();
+        doc.groupedBy = GroupedBy.valueOf(rollup.getGrouping().name());
+        doc.aggregationType = rollup.getAggregationType().name();
+        doc.ranking = rollup.getRanking();
+        doc.bytesIngress = rollup.getBytesIngress();
+        doc.bytesEgress = rollup.getBytesEgress();
+        doc.bytesTotal = rollup.getBytesTotal();
+        doc.congestionEncountered = rollup.isCongestionEncountered();
+        doc.nonEcnCapableTransport = rollup.isNonEcnCapableTransport();
+        doc.exporter = NodeDocument.from(rollup.getExporter());
+        doc.ifIndex = rollup.getIfIndex();
+        doc.dscp = rollup.getDscp();
+
+        switch (rollup.getGrouping()) {
+            case EXPORTER_INTERFACE_APPLICATION:
+            case EXPORTER_INTERFACE_TOS_APPLICATION:
+                doc.application = rollup.getKey();
+                break;
+            case EXPORTER_INTERFACE_HOST:
+            case EXPORTER_INTERFACE_TOS_HOST:
+                doc.hostAddress = rollup.getKey();
+                doc.hostName = rollup.getHostName();
+                break;
+            case EXPORTER_INTERFACE_CONVERSATION:
+            case EXPORTER_INTERFACE_TOS_CONVERSATION:
+                doc.conversationKey = rollup.getKey();
+                break;
+            default:
+                break;
+        }
+
+        doc.groupedByKey = groupedByKey(doc, rollup.getKey());
+        return doc;
+    }
+
+    private static String groupedByKey(final RollupDocument doc, final String key) {
+        final StringBuilder sb = new StringBuilder();
+        if (doc.exporter.getForeignSource() != null && doc.exporter.getForeignId() != null) {
+            sb.append(doc.exporter.getForeignSource()).append(':').append(doc.exporter.getForeignId());
+        } else {
+            sb.append(doc.exporter.getNodeId());
+        }
+        sb.append('-').append(doc.ifIndex);
+        if (doc.dscp != null) {
+            sb.append('-').append(doc.dscp);
+        }
+        if (key != null) {
+            sb.append('-').append(key);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.elastic.agg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.opennms.features.jest.client.JestClientWithCircuitBreaker;
+import org.opennms.features.jest.client.bulk.BulkWrapper;
+import org.opennms.features.jest.client.index.IndexStrategy;
+import org.opennms.features.jest.client.template.DefaultTemplateInitializer;
+import org.opennms.features.jest.client.template.IndexSettings;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup;
+import org.opennms.netmgt.flows.processing.enrichment.NodeInfo;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
+import io.searchbox.core.BulkResult;
+
+public class ElasticRollupRepositoryTest {
+
+    private JestClientWithCircuitBreaker client;
+
+    private ElasticRollupRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        this.client = mock(JestClientWithCircuitBreaker.class);
+        when(this.client.execute(any(BulkWrapper.class))).thenAnswer(invocation -> {
+            final BulkResult bulkResult = new BulkResult(new Gson());
+            bulkResult.setSucceeded(true);
+            bulkResult.setJsonObject(new JsonParser().parse("{\"errors\": false, \"items\": []}").getAsJsonObject());
+            return bulkResult;
+        });
+
+        final DefaultTemplateInitializer initializer = mock(DefaultTemplateInitializer.class);
+        when(initializer.isInitialized()).thenReturn(true);
+
+        this.repository = new ElasticRollupRepository(new MetricRegistry(), this.client, IndexStrategy.MONTHLY, new IndexSettings(), initializer);
+    }
+
+    @Test
+    public void canPartitionRollupsIntoBulks() throws Exception {
+        this.repository.setBulkSize(2);
+        this.repository.persist(rollups(5));
+
+        assertThat(bulkSizes(3), contains(2, 2, 1));
+    }
+
+    @Test
+    public void canPersistRollupsWithoutBulking() throws Exception {
+        this.repository.setBulkSize(0);
+        this.repository.persist(rollups(5));
+
+        assertThat(bulkSizes(1), contains(5));
+    }
+
+    private List<Integer> bulkSizes(final int bulks) throws Exception {
+        final ArgumentCaptor<BulkWrapper> captor = ArgumentCaptor.forClass(BulkWrapper.class);
+        verify(this.client, times(bulks)).execute(captor.capture());
+        return captor.getAllValues().stream()
+                .map(BulkWrapper::size)
+                .collect(Collectors.toList());
+    }
+
+    private static List<FlowRollup> rollups(final int count) {
+        final NodeInfo exporter = new NodeInfo();
+        exporter.setNodeId(42);
+        exporter.setForeignSource("fs");
+        exporter.setForeignId("exporter");
+
+        final List<FlowRollup> rollups = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rollups.add(FlowRollup.builder()
+                    .withGrouping(FlowRollup.Grouping.EXPORTER_INTERFACE)
+                    .withRange(60_000, 119_999)
+                    .withExporter(exporter)
+                    .withIfIndex(i)
+                    .withBytes(100, 50)
+                    .build());
+        }
+        return rollups;
+    }
+}
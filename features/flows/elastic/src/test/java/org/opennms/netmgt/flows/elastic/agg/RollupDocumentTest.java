@@ -0,0 +1,91 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.elastic.agg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.Test;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup;
+import org.opennms.netmgt.flows.processing.enrichment.NodeInfo;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+public class RollupDocumentTest {
+
+    @Test
+    public void canMapAllGroupings() {
+        for (final FlowRollup.Grouping grouping : FlowRollup.Grouping.values()) {
+            final RollupDocument doc = RollupDocument.from(rollup(grouping, 0).build());
+            assertThat(doc.getGroupedBy().name(), equalTo(grouping.name()));
+            assertThat(doc.getAggregationType(), equalTo(grouping.getAggregationType().name()));
+        }
+    }
+
+    @Test
+    public void verifyEffectiveDocument() {
+        final FlowRollup rollup = rollup(FlowRollup.Grouping.EXPORTER_INTERFACE_TOS_HOST, 46)
+                .withRanking(1)
+                .withKey("10.0.0.1")
+                .withHostName("host.example.com")
+                .withEcnInfo(true, false)
+                .build();
+
+        final JsonObject json = new Gson().toJsonTree(RollupDocument.from(rollup)).getAsJsonObject();
+        assertThat(json.get("@timestamp").getAsLong(), equalTo(119_999L));
+        assertThat(json.get("range_start").getAsLong(), equalTo(60_000L));
+        assertThat(json.get("range_end").getAsLong(), equalTo(119_999L));
+        assertThat(json.get("grouped_by").getAsString(), equalTo("EXPORTER_INTERFACE_TOS_HOST"));
+        assertThat(json.get("grouped_by_key").getAsString(), equalTo("fs:exporter-3-46-10.0.0.1"));
+        assertThat(json.get("aggregation_type").getAsString(), equalTo("TOPK"));
+        assertThat(json.get("ranking").getAsInt(), equalTo(1));
+        assertThat(json.get("bytes_ingress").getAsLong(), equalTo(100L));
+        assertThat(json.get("bytes_egress").getAsLong(), equalTo(50L));
+        assertThat(json.get("bytes_total").getAsLong(), equalTo(150L));
+        assertThat(json.get("congestion_encountered").getAsBoolean(), equalTo(true));
+        assertThat(json.get("non_ect").getAsBoolean(), equalTo(false));
+        assertThat(json.getAsJsonObject("exporter").get("node_id").getAsInt(), equalTo(42));
+        assertThat(json.get("if_index").getAsInt(), equalTo(3));
+        assertThat(json.get("dscp").getAsInt(), equalTo(46));
+        assertThat(json.get("host_address").getAsString(), equalTo("10.0.0.1"));
+        assertThat(json.get("host_name").getAsString(), equalTo("host.example.com"));
+        assertThat(json.get("application"), nullValue());
+        assertThat(json.get("conversation_key"), nullValue());
+    }
+
+    private static FlowRollup.Builder rollup(final FlowRollup.Grouping grouping, final Integer dscp) {
+        final NodeInfo exporter = new NodeInfo();
+        exporter.setNodeId(42);
+        exporter.setForeignSource("fs");
+        exporter.setForeignId("exporter");
+
+        return FlowRollup.builder()
+                .withGrouping(grouping)
+                .withRange(60_000, 119_999)
+                .withExporter(exporter)
+                .withIfIndex(3)
+                .withDscp(dscp)
+                .withBytes(100, 50);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.aggregation;
+
+import java.util.Objects;
+
+import org.opennms.integration.api.v1.flows.Flow;
+
+/**
+ * A pre-aggregated summary of the flows seen on an exporter interface during a single window.
+ *
+ * Rollups either carry the totals of a group ({@link AggregationType#TOTAL}) or one of the top-N keys of a
+ * group along with its rank ({@link AggregationType#TOPK}).
+ */
+public class FlowRollup {
+
+    public enum AggregationType {
+        TOTAL,
+        TOPK
+    }
+
+    /**
+     * The grouping of a rollup - the names match the groupings used when querying aggregated flows.
+     */
+    public enum Grouping {
+        EXPORTER_INTERFACE(AggregationType.TOTAL, false),
+        EXPORTER_INTERFACE_APPLICATION(AggregationType.TOPK, false),
+        EXPORTER_INTERFACE_HOST(AggregationType.TOPK, false),
+        EXPORTER_INTERFACE_CONVERSATION(AggregationType.TOPK, false),
+        EXPORTER_INTERFACE_TOS(AggregationType.TOTAL, true),
+        EXPORTER_INTERFACE_TOS_APPLICATION(AggregationType.TOPK, true),
+        EXPORTER_INTERFACE_TOS_HOST(AggregationType.TOPK, true),
+        EXPORTER_INTERFACE_TOS_CONVERSATION(AggregationType.TOPK, true);
+
+        private final AggregationType aggregationType;
+        private final boolean tos;
+
+        Grouping(final AggregationType aggregationType, final boolean tos) {
+            this.aggregationType = aggregationType;
+            this.tos = tos;
+        }
+
+        public AggregationType getAggregationType() {
+            return this.aggregationType;
+        }
+
+        public boolean isTos() {
+            return this.tos;
+        }
+    }
+
+    private final Grouping grouping;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final Flow.NodeInfo exporter;
+    private final int ifIndex;
+    private final Integer dscp;
+    private final Integer ranking;
+    private final String key;
+    private final String hostName;
+    private final long bytesIngress;
+    private final long bytesEgress;
+    private final boolean congestionEncountered;
+    private final boolean nonEcnCapableTransport;
+
+    private FlowRollup(final Builder builder) {
+        this.grouping = Objects.requireNonNull(builder.grouping);
+        this.rangeStart = builder.rangeStart;
+        this.rangeEnd = builder.rangeEnd;
+        this.exporter = Objects.requireNonNull(builder.exporter);
+        this.ifIndex = builder.ifIndex;
+        this.dscp = builder.dscp;
+        this.ranking = builder.ranking;
+        this.key = builder.key;
+        this.hostName = builder.hostName;
+        this.bytesIngress = builder.bytesIngress;
+        this.bytesEgress = builder.bytesEgress;
+        this.congestionEncountered = builder.congestionEncountered;
+        this.nonEcnCapableTransport = builder.nonEcnCapableTransport;
+    }
+
+    public Grouping getGrouping() {
+        return this.grouping;
+    }
+
+    public AggregationType getAggregationType() {
+        return this.grouping.getAggregationType();
+    }
+
+    public long getRangeStart() {
+        return this.rangeStart;
+    }
+
+    public long getRangeEnd() {
+        return this.rangeEnd;
+    }
+
+    public Flow.NodeInfo getExporter() {
+        return this.exporter;
+    }
+
+    public int getIfIndex() {
+        return this.ifIndex;
+    }
+
+    public Integer getDscp() {
+        return this.dscp;
+    }
+
+    public Integer getRanking() {
+        return this.ranking;
+    }
+
+    /**
+     * The application, host address or conversation key of a {@link AggregationType#TOPK} rollup.
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    public String getHostName() {
+        return this.hostName;
+    }
+
+    public long getBytesIngress() {
+        return this.bytesIngress;
+    }
+
+    public long getBytesEgress() {
+        return this.bytesEgress;
+    }
+
+    public long getBytesTotal() {
+        return this.bytesIngress + this.bytesEgress;
+    }
+
+    public boolean isCongestionEncountered() {
+        return this.congestionEncountered;
+    }
+
+    public boolean isNonEcnCapableTransport() {
+        return this.nonEcnCapableTransport;
+    }
+
+    @Override
+    public String toString() {
+        return "FlowRollup{" +
+               "grouping=" + grouping +
+               ", rangeStart=" + rangeStart +
+               ", rangeEnd=" + rangeEnd +
+               ", exporter=" + exporter.getNodeId() +
+               ", ifIndex=" + ifIndex +
+               ", dscp=" + dscp +
+               ", ranking=" + ranking +
+               ", key=" + key +
+               ", bytesIngress=" + bytesIngress +
+               ", bytesEgress=" + bytesEgress +
+               '}';
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Grouping grouping;
+        private long rangeStart;
+        private long rangeEnd;
+        private Flow.NodeInfo exporter;
+        private int ifIndex;
+        private Integer dscp;
+        private Integer ranking;
+        private String key;
+        private String hostName;
+        private long bytesIngress;
+        private long bytesEgress;
+        private boolean congestionEncountered;
+        private boolean nonEcnCapableTransport;
+
+        private Builder() {}
+
+        public Builder withGrouping(final Grouping grouping) {
+            this.grouping = grouping;
+            return this;
+        }
+
+        public Builder withRange(final long rangeStart, final long rangeEnd) {
+            this.rangeStart = rangeStart;
+            this.rangeEnd = rangeEnd;
+            return this;
+        }
+
+        public Builder withExporter(final Flow.NodeInfo exporter) {
+            this.exporter = exporter;
+            return this;
+        }
+
+        public Builder withIfIndex(final int ifIndex) {
+            this.ifIndex = ifIndex;
+            return this;
+        }
+
+        public Builder withDscp(final Integer dscp) {
+            this.dscp = dscp;
+            return this;
+        }
+
+        public Builder withRanking(final Integer ranking) {
+            this.ranking = ranking;
+            return this;
+        }
+
+        public Builder withKey(final String key) {
+            this.key = key;
+            return this;
+        }
+
+        public Builder withHostName(final String hostName) {
+            this.hostName = hostName;
+            return this;
+        }
+
+        public Builder withBytes(final long bytesIngress, final long bytesEgress) {
+            this.bytesIngress = bytesIngress;
+            this.bytesEgress = bytesEgress;
+            return this;
+        }
+
+        public Builder withEcnInfo(final boolean congestionEncountered, final boolean nonEcnCapableTransport) {
+            this.congestionEncountered = congestionEncountered;
+            this.nonEcnCapableTransport = nonEcnCapableTransport;
+            return this;
+        }
+
+        public FlowRollup build() {
+            return new FlowRollup(this);
+        }
+    }
+}
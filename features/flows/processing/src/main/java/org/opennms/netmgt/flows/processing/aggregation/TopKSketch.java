@@ -0,0 +1,220 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.aggregation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heavy-hitter sketch based on the Space-Saving algorithm (Metwally, Agrawal and El Abbadi).
+ *
+ * The sketch keeps at most {@code capacity} counters. Once all counters are in use, a new key replaces
+ * the counter with the lowest estimate and inherits its count as error. Every key whose share of the
+ * total traffic exceeds {@code 1 / capacity} is guaranteed to be tracked.
+ *
+ * Bytes reported by an {@link Entry} are the bytes observed since the key (re-)entered the sketch and
+ * therefore never over-report, while the ranking uses the upper bound including the inherited error.
+ *
+ * The counters are kept in a binary min-heap on their estimate, so both updating a key and replacing the
+ * minimum take logarithmic time in the capacity.
+ *
+ * Instances are not thread-safe.
+ *
+ * @param <K> the type of the tracked keys
+ */
+public class TopKSketch<K> {
+
+    private static final Comparator<Entry<?>> BY_ESTIMATE_DESC = Comparator.<Entry<?>>comparingLong(Entry::getEstimate).reversed();
+
+    private final int capacity;
+
+    private final Map<K, Entry<K>> entries;
+
+    private final Entry<K>[] heap;
+
+    @SuppressWarnings("unchecked")
+    public TopKSketch(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new HashMap<>(capacity * 4 / 3 + 1);
+        this.heap = new Entry[capacity];
+    }
+
+    public void add(final K key,
+                    final String label,
+                    final long bytesIngress,
+                    final long bytesEgress,
+                    final boolean congestionEncountered,
+                    final boolean nonEcnCapableTransport) {
+        Entry<K> entry = this.entries.get(key);
+        if (entry == null) {
+            final int size = this.entries.size();
+            if (size < this.capacity) {
+                entry = new Entry<>(key, 0L);
+                entry.index = size;
+                this.heap[size] = entry;
+                this.siftUp(size);
+            } else {
+                // Replace the minimum, which is at the root of the heap
+                final Entry<K> min = this.heap[0];
+                this.entries.remove(min.key);
+                entry = new Entry<>(key, min.getEstimate());
+                entry.index = 0;
+                this.heap[0] = entry;
+            }
+            this.entries.put(key, entry);
+        }
+
+        entry.bytesIngress += bytesIngress;
+        entry.bytesEgress += bytesEgress;
+        entry.congestionEncountered |= congestionEncountered;
+        entry.nonEcnCapableTransport |= nonEcnCapableTransport;
+        if (label != null) {
+            entry.label = label;
+        }
+
+        // Estimates only grow
+        this.siftDown(entry.index);
+    }
+
+    /**
+     * Returns the {@code n} entries with the highest estimates, highest first.
+     */
+    public List<Entry<K>> top(final int n) {
+        final List<Entry<K>> sorted = new ArrayList<>(this.entries.values());
+        sorted.sort(BY_ESTIMATE_DESC);
+        return sorted.size() > n ? sorted.subList(0, n) : sorted;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    private void siftUp(int index) {
+        final Entry<K> entry = this.heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (this.heap[parent].getEstimate() <= entry.getEstimate()) {
+                break;
+            }
+            this.place(this.heap[parent], index);
+            index = parent;
+        }
+        this.place(entry, index);
+    }
+
+    private void siftDown(int index) {
+        final int size = this.entries.size();
+        final Entry<K> entry = this.heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && this.heap[child + 1].getEstimate() < this.heap[child].getEstimate()) {
+                child++;
+            }
+            if (entry.getEstimate() <= this.heap[child].getEstimate()) {
+                break;
+            }
+            this.place(this.heap[child], index);
+            index = child;
+        }
+        this.place(entry, index);
+    }
+
+    private void place(final Entry<K> entry, final int index) {
+        this.heap[index] = entry;
+        entry.index = index;
+    }
+
+    public static class Entry<K> {
+        private final K key;
+        private final long error;
+
+        private int index;
+        private String label;
+        private long bytesIngress;
+        private long bytesEgress;
+        private boolean congestionEncountered;
+        private boolean nonEcnCapableTransport;
+
+        private Entry(final K key, final long error) {
+            this.key = key;
+            this.error = error;
+        }
+
+        public K getKey() {
+            return this.key;
+        }
+
+        public String getLabel() {
+            return this.label;
+        }
+
+        public long getBytesIngress() {
+            return this.bytesIngress;
+        }
+
+        public long getBytesEgress() {
+            return this.bytesEgress;
+        }
+
+        public long getError() {
+            return this.error;
+        }
+
+        /**
+         * Upper bound of the total bytes for this key.
+         */
+        public long getEstimate() {
+            return this.bytesIngress + this.bytesEgress + this.error;
+        }
+
+        public boolean isCongestionEncountered() {
+            return this.congestionEncountered;
+        }
+
+        public boolean isNonEcnCapableTransport() {
+            return this.nonEcnCapableTransport;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                   "key=" + key +
+                   ", bytesIngress=" + bytesIngress +
+                   ", bytesEgress=" + bytesEgress +
+                   ", error=" + error +
+                   '}';
+        }
+    }
+}
@@ -23,14 +23,16 @@ package org.opennms.netmgt.flows.processing.impl;
 
 import java.net.InetAddress;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.opennms.core.cache.Cache;
 import org.opennms.core.cache.CacheBuilder;
@@ -65,6 +67,9 @@ public class DocumentEnricherImpl {
 
     private static final String NODE_METADATA_CACHE = "flows.node.metadata";
 
+    // Marks exporters without a node in the lookups of a batch
+    private static final NodeInfo NO_NODE_INFO = new NodeInfo();
+
     private final NodeDao nodeDao;
 
     private final IpInterfaceDao ipInterfaceDao;
@@ -83,6 +88,12 @@ public class DocumentEnricherImpl {
 
     private final Timer nodeLoadTimer;
 
+    private final StageMetrics conversionStage;
+
+    private final StageMetrics lookupStage;
+
+    private final StageMetrics classificationStage;
+
     private final long clockSkewCorrectionThreshold;
 
     private final DocumentMangler mangler;
@@ -123,6 +134,10 @@ public class DocumentEnricherImpl {
 
         this.nodeLoadTimer = metricRegistry.timer("nodeLoadTime");
 
+        this.conversionStage = new StageMetrics(metricRegistry, "enrichmentConversion");
+        this.lookupStage = new StageMetrics(metricRegistry, "enrichmentLookup");
+        this.classificationStage = new StageMetrics(metricRegistry, "enrichmentClassification");
+
         this.clockSkewCorrectionThreshold = clockSkewCorrectionThreshold;
 
         this.mangler = Objects.requireNonNull(mangler);
@@ -134,73 +149,149 @@ public class DocumentEnricherImpl {
             return Collections.emptyList();
         }
 
-        return sessionUtils.withTransaction(() -> flows.stream().flatMap(flow -> {
-            final EnrichedFlow document = this.mangler.mangle(EnrichedFlow.from(flow));
-            if (document == null) {
-                return Stream.empty();
+        // Convert and mangle the batch, remembering the flow each document originates from
+        final List<Flow> originals = new ArrayList<>(flows.size());
+        final List<EnrichedFlow> documents = new ArrayList<>(flows.size());
+        try (final StageMetrics.Context ctx = this.conversionStage.time()) {
+            for (final Flow flow : flows) {
+                final EnrichedFlow document = this.mangler.mangle(EnrichedFlow.from(flow));
+                if (document != null) {
+                    originals.add(flow);
+                    documents.add(document);
+                }
             }
+        }
 
-            // Metadata from message
-            document.setHost(source.getSourceAddress());
-            document.setLocation(source.getLocation());
+        // Node data and locality - each distinct exporter and address of the batch is only resolved once
+        try (final StageMetrics.Context ctx = this.lookupStage.time()) {
+            this.sessionUtils.withTransaction(() -> {
+                final BatchLookup lookup = new BatchLookup(source);
+                for (int i = 0; i < documents.size(); i++) {
+                    final Flow flow = originals.get(i);
+                    final EnrichedFlow document = documents.get(i);
+
+                    // Metadata from message
+                    document.setHost(source.getSourceAddress());
+                    document.setLocation(source.getLocation());
+
+                    final NodeInfo exporter = lookup.getExporter(flow.getNodeIdentifier());
+                    if (exporter != null) {
+                        document.setExporterNodeInfo(exporter);
+                    }
 
-            // Node data
-            getNodeInfoFromCache(source.getLocation(), source.getSourceAddress(), source.getContextKey(), flow.getNodeIdentifier()).ifPresent(document::setExporterNodeInfo);
-            if (flow.getDstAddr() != null) {
-                getNodeInfoFromCache(source.getLocation(), flow.getDstAddr(), null, null).ifPresent(document::setSrcNodeInfo);
-            }
-            if (flow.getSrcAddr() != null) {
-                getNodeInfoFromCache(source.getLocation(), flow.getSrcAddr(), null, null).ifPresent(document::setDstNodeInfo);
-            }
+                    final AddressInfo dst = lookup.getAddress(flow.getDstAddr());
+                    if (dst != null) {
+                        if (dst.nodeInfo != null) {
+                            document.setSrcNodeInfo(dst.nodeInfo);
+                        }
+                        document.setDstLocality(dst.locality);
+                    }
 
-            // Locality
-            if (flow.getSrcAddr() != null) {
-                document.setSrcLocality(isPrivateAddress(flow.getSrcAddr()) ? EnrichedFlow.Locality.PRIVATE : EnrichedFlow.Locality.PUBLIC);
-            }
-            if (flow.getDstAddr() != null) {
-                document.setDstLocality(isPrivateAddress(flow.getDstAddr()) ? EnrichedFlow.Locality.PRIVATE : EnrichedFlow.Locality.PUBLIC);
-            }
+                    final AddressInfo src = lookup.getAddress(flow.getSrcAddr());
+                    if (src != null) {
+                        if (src.nodeInfo != null) {
+                            document.setDstNodeInfo(src.nodeInfo);
+                        }
+                        document.setSrcLocality(src.locality);
+                    }
+
+                    if (EnrichedFlow.Locality.PUBLIC.equals(document.getDstLocality()) || EnrichedFlow.Locality.PUBLIC.equals(document.getSrcLocality())) {
+                        document.setFlowLocality(EnrichedFlow.Locality.PUBLIC);
+                    } else if (EnrichedFlow.Locality.PRIVATE.equals(document.getDstLocality()) || EnrichedFlow.Locality.PRIVATE.equals(document.getSrcLocality())) {
+                        document.setFlowLocality(EnrichedFlow.Locality.PRIVATE);
+                    }
+                }
+            });
+        }
+
+        try (final StageMetrics.Context ctx = this.classificationStage.time()) {
+            for (int i = 0; i < documents.size(); i++) {
+                final Flow flow = originals.get(i);
+                final EnrichedFlow document = documents.get(i);
 
-            if (EnrichedFlow.Locality.PUBLIC.equals(document.getDstLocality()) || EnrichedFlow.Locality.PUBLIC.equals(document.getSrcLocality())) {
-                document.setFlowLocality(EnrichedFlow.Locality.PUBLIC);
-            } else if (EnrichedFlow.Locality.PRIVATE.equals(document.getDstLocality()) || EnrichedFlow.Locality.PRIVATE.equals(document.getSrcLocality())) {
-                document.setFlowLocality(EnrichedFlow.Locality.PRIVATE);
+                final ClassificationRequest classificationRequest = createClassificationRequest(document);
+
+                // Check whether classification is possible
+                if (classificationRequest.isClassifiable()) {
+                    // Apply Application mapping
+                    document.setApplication(classificationEngine.classify(classificationRequest));
+                }
+
+                // Fix skewed clock
+                // If received time and export time differ to much, correct all timestamps by the difference
+                if (this.clockSkewCorrectionThreshold > 0) {
+                    final var skew = Duration.between(flow.getReceivedAt(), flow.getTimestamp());
+                    if (skew.abs().toMillis() >= this.clockSkewCorrectionThreshold) {
+                        // The applied correction is the negative skew
+                        document.setClockCorrection(skew.negated());
+
+                        // Fix the skew on all timestamps of the flow
+                        document.setTimestamp(flow.getTimestamp().minus(skew));
+                        document.setFirstSwitched(flow.getFirstSwitched().minus(skew));
+                        document.setDeltaSwitched(flow.getDeltaSwitched().minus(skew));
+                        document.setLastSwitched(flow.getLastSwitched().minus(skew));
+                    }
+                }
             }
+        }
+
+        return documents;
+    }
 
-            final ClassificationRequest classificationRequest = createClassificationRequest(document);
+    // Node and locality of an address, shared by all flows of a batch
+    private static class AddressInfo {
+        private final NodeInfo nodeInfo;
+        private final EnrichedFlow.Locality locality;
 
-            // Check whether classification is possible
-            if (classificationRequest.isClassifiable()) {
-                // Apply Application mapping
-                document.setApplication(classificationEngine.classify(classificationRequest));
+        private AddressInfo(final NodeInfo nodeInfo, final EnrichedFlow.Locality locality) {
+            this.nodeInfo = nodeInfo;
+            this.locality = locality;
+        }
+    }
+
+    // Memoizes the lookups of a single batch. All flows of a batch share the location, so addresses are sufficient as keys.
+    private class BatchLookup {
+        private final FlowSource source;
+
+        private final Map<String, AddressInfo> addresses = new HashMap<>();
+        private final Map<String, NodeInfo> exporters = new HashMap<>(2);
+
+        private BatchLookup(final FlowSource source) {
+            this.source = source;
+        }
+
+        private NodeInfo getExporter(final String nodeIdentifier) {
+            final String key = Strings.nullToEmpty(nodeIdentifier);
+            NodeInfo exporter = this.exporters.get(key);
+            if (exporter == null) {
+                exporter = getNodeInfoFromCache(this.source.getLocation(), InetAddressUtils.addr(this.source.getSourceAddress()), this.source.getContextKey(), nodeIdentifier)
+                        .orElse(NO_NODE_INFO);
+                this.exporters.put(key, exporter);
             }
+            return exporter != NO_NODE_INFO ? exporter : null;
+        }
 
-            // Fix skewed clock
-            // If received time and export time differ to much, correct all timestamps by the difference
-            if (this.clockSkewCorrectionThreshold > 0) {
-                final var skew = Duration.between(flow.getReceivedAt(), flow.getTimestamp());
-                if (skew.abs().toMillis() >= this.clockSkewCorrectionThreshold) {
-                    // The applied correction is the negative skew
-                    document.setClockCorrection(skew.negated());
-
-                    // Fix the skew on all timestamps of the flow
-                    document.setTimestamp(flow.getTimestamp().minus(skew));
-                    document.setFirstSwitched(flow.getFirstSwitched().minus(skew));
-                    document.setDeltaSwitched(flow.getDeltaSwitched().minus(skew));
-                    document.setLastSwitched(flow.getLastSwitched().minus(skew));
-                }
+        private AddressInfo getAddress(final String address) {
+            if (address == null) {
+                return null;
             }
 
-            return Stream.of(document);
-        }).collect(Collectors.toList()));
+            AddressInfo info = this.addresses.get(address);
+            if (info == null) {
+                final InetAddress inetAddress = InetAddressUtils.addr(address);
+                info = new AddressInfo(getNodeInfoFromCache(this.source.getLocation(), inetAddress, null, null).orElse(null),
+                                       isPrivateAddress(inetAddress) ? EnrichedFlow.Locality.PRIVATE : EnrichedFlow.Locality.PUBLIC);
+                this.addresses.put(address, info);
+            }
+            return info;
+        }
     }
 
-    private static boolean isPrivateAddress(String ipAddress) {
-        final InetAddress inetAddress = InetAddressUtils.addr(ipAddress);
+    private static boolean isPrivateAddress(final InetAddress inetAddress) {
         return inetAddress.isLoopbackAddress() || inetAddress.isLinkLocalAddress() || inetAddress.isSiteLocalAddress();
     }
 
-    private Optional<NodeInfo> getNodeInfoFromCache(final String location, final String ipAddress, final ContextKey contextKey, final String value) {
+    private Optional<NodeInfo> getNodeInfoFromCache(final String location, final InetAddress ipAddress, final ContextKey contextKey, final String value) {
         Optional<NodeInfo> nodeDocument = Optional.empty();
         if (contextKey != null && !Strings.isNullOrEmpty(value)) {
             final NodeMetadataKey metadataKey = new NodeMetadataKey(contextKey, value);
@@ -215,7 +306,7 @@ public class DocumentEnricherImpl {
             }
         }
 
-        final var entry = this.interfaceToNodeCache.getFirst(location, InetAddressUtils.addr(ipAddress));
+        final var entry = this.interfaceToNodeCache.getFirst(location, ipAddress);
         if(entry.isPresent()) {
             try {
                 return this.nodeInfoCache.get(entry.get());
@@ -0,0 +1,483 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.impl;
+
+import static org.opennms.integration.api.v1.flows.Flow.Direction;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import org.opennms.integration.api.v1.flows.Flow;
+import org.opennms.integration.api.v1.flows.FlowException;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup.Grouping;
+import org.opennms.netmgt.flows.processing.aggregation.RollupRepository;
+import org.opennms.netmgt.flows.processing.aggregation.TopKSketch;
+import org.opennms.netmgt.flows.processing.enrichment.EnrichedFlow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Maps;
+
+/**
+ * Streaming aggregation stage of the flow pipeline.
+ *
+ * Maintains the traffic totals and the top-N applications, hosts and conversations per exporter interface
+ * (and per DSCP value on that interface) for fixed windows of {@link #getWindowSizeMs()}. The top-N are
+ * tracked with bounded {@link TopKSketch}es, so memory usage per window is independent of the number of
+ * distinct keys seen. Once a window has been closed for {@link #getAllowedLatenessMs()}, it is turned into
+ * {@link FlowRollup}s and handed to the bound {@link RollupRepository}s.
+ *
+ * Flows spanning multiple windows are split across these windows proportionally to their overlap. Flows
+ * arriving after their window was flushed open a new window which is flushed on its own - the resulting
+ * rollups add up with the ones flushed before.
+ */
+public class FlowAggregatorImpl implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(FlowAggregatorImpl.class);
+
+    public static final String SERVICE_NAME = "Flow-Aggregation";
+
+    public static final String UNKNOWN_APPLICATION = "__unknown";
+
+    /**
+     * Flows spanning more windows than this are attributed to the window of their last switched time.
+     */
+    private static final int MAX_WINDOWS_PER_FLOW = 60;
+
+    private static final int ECN_NON_ECT = 0;
+    private static final int ECN_CE = 3;
+
+    /**
+     * Time taken to flush the closed windows
+     */
+    private final Timer flushTimer;
+
+    /**
+     * Rollups handed to the repositories
+     */
+    private final Meter rollupsPersisted;
+
+    private final List<RollupRepository> repositories = new CopyOnWriteArrayList<>();
+
+    private final ConcurrentMap<WindowKey, InterfaceWindow> windows = Maps.newConcurrentMap();
+
+    private volatile boolean enabled = false;
+    private volatile long windowSizeMs = 60_000;
+    private volatile long allowedLatenessMs = 60_000;
+    private volatile int topN = 10;
+    private volatile int sketchCapacity = 100;
+
+    private java.util.Timer timer;
+
+    public FlowAggregatorImpl(final MetricRegistry metricRegistry) {
+        this.flushTimer = metricRegistry.timer("rollupFlushing");
+        this.rollupsPersisted = metricRegistry.meter("rollupsPersisted");
+    }
+
+    public synchronized void start() {
+        if (!this.enabled || this.timer != null) {
+            return;
+        }
+
+        this.timer = new java.util.Timer(SERVICE_NAME + "-Timer", true);
+        this.timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    flush(System.currentTimeMillis());
+                } catch (final Throwable ex) {
+                    LOG.error("Aggregation timer bailed", ex);
+                }
+            }
+        }, this.windowSizeMs, this.windowSizeMs);
+        LOG.debug("Timer task scheduled (windowSizeMs={}ms, allowedLatenessMs={}ms, topN={}).", this.windowSizeMs, this.allowedLatenessMs, this.topN);
+    }
+
+    public void aggregate(final List<EnrichedFlow> flows) {
+        if (!this.enabled || this.repositories.isEmpty()) {
+            return;
+        }
+
+        for (final EnrichedFlow flow : flows) {
+            if (flow.getExporterNodeInfo() == null || flow.getBytes() == null) {
+                continue;
+            }
+
+            final boolean ingress = flow.getInputSnmp() != null
+                    && flow.getInputSnmp() != 0
+                    && (flow.getDirection() == Direction.INGRESS || flow.getDirection() == Direction.UNKNOWN);
+            final boolean egress = flow.getOutputSnmp() != null
+                    && flow.getOutputSnmp() != 0
+                    && (flow.getDirection() == Direction.EGRESS || flow.getDirection() == Direction.UNKNOWN);
+            if (!ingress && !egress) {
+                continue;
+            }
+
+            final Instant lastSwitched = flow.getLastSwitched() != null ? flow.getLastSwitched() : flow.getTimestamp();
+            if (lastSwitched == null) {
+                continue;
+            }
+            final Instant firstSwitched = flow.getDeltaSwitched() != null ? flow.getDeltaSwitched() : flow.getFirstSwitched();
+
+            final FlowKeys keys = new FlowKeys(flow);
+            final long windowSizeMs = this.windowSizeMs;
+            final long last = lastSwitched.toEpochMilli();
+            final long first = firstSwitched != null ? Math.min(firstSwitched.toEpochMilli(), last) : last;
+            // Scale sampled flows the same way as the raw queries do
+            final long bytes = flow.getSamplingInterval() != null && flow.getSamplingInterval() > 0
+                    ? Math.round(flow.getBytes() * flow.getSamplingInterval())
+                    : flow.getBytes();
+
+            if (last == first || (last - first) / windowSizeMs >= MAX_WINDOWS_PER_FLOW) {
+                this.add(flow, keys, ingress, egress, windowStart(last, windowSizeMs), windowSizeMs, bytes);
+                continue;
+            }
+
+            // Split the bytes proportionally to the overlap of the flow with each window
+            final long duration = last - first;
+            long remaining = bytes;
+            for (long start = windowStart(first, windowSizeMs); start < last; start += windowSizeMs) {
+                final long end = start + windowSizeMs;
+                final long share;
+                if (end >= last) {
+                    share = remaining;
+                } else {
+                    share = bytes * (end - Math.max(start, first)) / duration;
+                }
+                remaining -= share;
+                this.add(flow, keys, ingress, egress, start, windowSizeMs, share);
+            }
+        }
+    }
+
+    private void add(final EnrichedFlow flow, final FlowKeys keys,
+                     final boolean ingress, final boolean egress,
+                     final long windowStart, final long windowSizeMs, final long bytes) {
+        if (ingress) {
+            this.add(flow, keys, flow.getInputSnmp(), windowStart, windowSizeMs, bytes, 0L);
+        }
+        if (egress) {
+            this.add(flow, keys, flow.getOutputSnmp(), windowStart, windowSizeMs, 0L, bytes);
+        }
+    }
+
+    private void add(final EnrichedFlow flow, final FlowKeys keys, final int ifIndex,
+                     final long windowStart, final long windowSizeMs,
+                     final long bytesIngress, final long bytesEgress) {
+        final WindowKey windowKey = new WindowKey(flow.getExporterNodeInfo().getNodeId(), ifIndex, windowStart);
+        while (true) {
+            final InterfaceWindow window = this.windows.computeIfAbsent(windowKey,
+                    key -> new InterfaceWindow(flow.getExporterNodeInfo(), windowStart + windowSizeMs));
+            synchronized (window) {
+                // The window may have been flushed between the lookup and acquiring the lock
+                if (!window.closed) {
+                    window.all.add(keys, bytesIngress, bytesEgress);
+                    if (keys.dscp != null) {
+                        window.byDscp.computeIfAbsent(keys.dscp, dscp -> new Bucket()).add(keys, bytesIngress, bytesEgress);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes all windows which have ended at least {@link #getAllowedLatenessMs()} before the given time.
+     */
+    public void flush(final long now) {
+        final long allowedLatenessMs = this.allowedLatenessMs;
+        this.flush(window -> window.windowEnd + allowedLatenessMs <= now);
+    }
+
+    /**
+     * Flushes all windows regardless of their age.
+     */
+    public void flushAll() {
+        this.flush(window -> true);
+    }
+
+    private void flush(final Predicate<InterfaceWindow> predicate) {
+        final List<FlowRollup> rollups = new ArrayList<>();
+        try (final Timer.Context ctx = this.flushTimer.time()) {
+            for (final Map.Entry<WindowKey, InterfaceWindow> entry : this.windows.entrySet()) {
+                final InterfaceWindow window = entry.getValue();
+                if (!predicate.test(window) || !this.windows.remove(entry.getKey(), window)) {
+                    continue;
+                }
+
+                synchronized (window) {
+                    window.closed = true;
+                    this.toRollups(entry.getKey(), window, rollups);
+                }
+            }
+
+            if (rollups.isEmpty()) {
+                return;
+            }
+
+            LOG.debug("Persisting {} flow rollups.", rollups.size());
+            for (final RollupRepository repository : this.repositories) {
+                try {
+                    repository.persist(rollups);
+                } catch (final FlowException | RuntimeException e) {
+                    // the windows are gone already, so keep going with the other repositories
+                    LOG.warn("Failed to persist {} flow rollups to {}.", rollups.size(), repository, e);
+                }
+            }
+            this.rollupsPersisted.mark(rollups.size());
+        }
+    }
+
+    private void toRollups(final WindowKey windowKey, final InterfaceWindow window, final List<FlowRollup> rollups) {
+        this.toRollups(windowKey, window, null, window.all, rollups);
+        for (final Map.Entry<Integer, Bucket> entry : window.byDscp.entrySet()) {
+            this.toRollups(windowKey, window, entry.getKey(), entry.getValue(), rollups);
+        }
+    }
+
+    private void toRollups(final WindowKey windowKey, final InterfaceWindow window,
+                           final Integer dscp, final Bucket bucket,
+                           final List<FlowRollup> rollups) {
+        final boolean tos = dscp != null;
+
+        rollups.add(this.rollup(windowKey, window, dscp)
+                .withGrouping(tos ? Grouping.EXPORTER_INTERFACE_TOS : Grouping.EXPORTER_INTERFACE)
+                .withBytes(bucket.bytesIngress, bucket.bytesEgress)
+                .withEcnInfo(bucket.congestionEncountered, bucket.nonEcnCapableTransport)
+                .build());
+
+        this.toTopKRollups(windowKey, window, dscp, tos ? Grouping.EXPORTER_INTERFACE_TOS_APPLICATION : Grouping.EXPORTER_INTERFACE_APPLICATION, bucket.applications, rollups);
+        this.toTopKRollups(windowKey, window, dscp, tos ? Grouping.EXPORTER_INTERFACE_TOS_HOST : Grouping.EXPORTER_INTERFACE_HOST, bucket.hosts, rollups);
+        this.toTopKRollups(windowKey, window, dscp, tos ? Grouping.EXPORTER_INTERFACE_TOS_CONVERSATION : Grouping.EXPORTER_INTERFACE_CONVERSATION, bucket.conversations, rollups);
+    }
+
+    private void toTopKRollups(final WindowKey windowKey, final InterfaceWindow window,
+                               final Integer dscp, final Grouping grouping,
+                               final TopKSketch<String> sketch,
+                               final List<FlowRollup> rollups) {
+        int ranking = 0;
+        for (final TopKSketch.Entry<String> entry : sketch.top(this.topN)) {
+            rollups.add(this.rollup(windowKey, window, dscp)
+                    .withGrouping(grouping)
+                    .withRanking(ranking++)
+                    .withKey(entry.getKey())
+                    .withHostName(entry.getLabel())
+                    .withBytes(entry.getBytesIngress(), entry.getBytesEgress())
+                    .withEcnInfo(entry.isCongestionEncountered(), entry.isNonEcnCapableTransport())
+                    .build());
+        }
+    }
+
+    private FlowRollup.Builder rollup(final WindowKey windowKey, final InterfaceWindow window, final Integer dscp) {
+        return FlowRollup.builder()
+                .withRange(windowKey.windowStart, window.windowEnd - 1)
+                .withExporter(window.exporter)
+                .withIfIndex(windowKey.ifIndex)
+                .withDscp(dscp);
+    }
+
+    private static long windowStart(final long timestamp, final long windowSizeMs) {
+        return timestamp - Math.floorMod(timestamp, windowSizeMs);
+    }
+
+    public void onBind(final RollupRepository repository, final Map<?, ?> properties) {
+        if (repository != null) {
+            this.repositories.add(repository);
+        }
+    }
+
+    public void onUnbind(final RollupRepository repository, final Map<?, ?> properties) {
+        if (repository != null) {
+            this.repositories.remove(repository);
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWindowSizeMs() {
+        return this.windowSizeMs;
+    }
+
+    public void setWindowSizeMs(final long windowSizeMs) {
+        if (windowSizeMs <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSizeMs);
+        }
+        this.windowSizeMs = windowSizeMs;
+    }
+
+    public long getAllowedLatenessMs() {
+        return this.allowedLatenessMs;
+    }
+
+    public void setAllowedLatenessMs(final long allowedLatenessMs) {
+        this.allowedLatenessMs = allowedLatenessMs;
+    }
+
+    public int getTopN() {
+        return this.topN;
+    }
+
+    public void setTopN(final int topN) {
+        this.topN = topN;
+    }
+
+    public int getSketchCapacity() {
+        return this.sketchCapacity;
+    }
+
+    public void setSketchCapacity(final int sketchCapacity) {
+        this.sketchCapacity = sketchCapacity;
+    }
+
+    public int getWindowCount() {
+        return this.windows.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.timer != null) {
+            this.timer.cancel();
+            this.timer = null;
+        }
+        this.flushAll();
+    }
+
+    /**
+     * The keys of a single flow, derived once for all windows the flow contributes to.
+     */
+    private static class FlowKeys {
+        private final String application;
+        private final String conversation;
+        private final String srcAddr;
+        private final String srcHostName;
+        private final String dstAddr;
+        private final String dstHostName;
+        private final Integer dscp;
+        private final boolean congestionEncountered;
+        private final boolean nonEcnCapableTransport;
+
+        private FlowKeys(final EnrichedFlow flow) {
+            this.application = flow.getApplication() != null ? flow.getApplication() : UNKNOWN_APPLICATION;
+            this.conversation = flow.getConvoKey();
+            this.srcAddr = flow.getSrcAddr();
+            this.srcHostName = flow.getSrcAddrHostname().orElse(null);
+            this.dstAddr = flow.getDstAddr();
+            this.dstHostName = flow.getDstAddrHostname().orElse(null);
+            this.dscp = flow.getDscp();
+            this.congestionEncountered = flow.getEcn() != null && flow.getEcn() == ECN_CE;
+            this.nonEcnCapableTransport = flow.getEcn() != null && flow.getEcn() == ECN_NON_ECT;
+        }
+    }
+
+    private class Bucket {
+        private final TopKSketch<String> applications = new TopKSketch<>(sketchCapacity);
+        private final TopKSketch<String> hosts = new TopKSketch<>(sketchCapacity);
+        private final TopKSketch<String> conversations = new TopKSketch<>(sketchCapacity);
+
+        private long bytesIngress;
+        private long bytesEgress;
+        private boolean congestionEncountered;
+        private boolean nonEcnCapableTransport;
+
+        private void add(final FlowKeys keys, final long bytesIngress, final long bytesEgress) {
+            this.bytesIngress += bytesIngress;
+            this.bytesEgress += bytesEgress;
+            this.congestionEncountered |= keys.congestionEncountered;
+            this.nonEcnCapableTransport |= keys.nonEcnCapableTransport;
+
+            this.applications.add(keys.application, null, bytesIngress, bytesEgress, keys.congestionEncountered, keys.nonEcnCapableTransport);
+            if (keys.conversation != null) {
+                this.conversations.add(keys.conversation, null, bytesIngress, bytesEgress, keys.congestionEncountered, keys.nonEcnCapableTransport);
+            }
+            if (keys.srcAddr != null) {
+                this.hosts.add(keys.srcAddr, keys.srcHostName, bytesIngress, bytesEgress, keys.congestionEncountered, keys.nonEcnCapableTransport);
+            }
+            if (keys.dstAddr != null && !keys.dstAddr.equals(keys.srcAddr)) {
+                this.hosts.add(keys.dstAddr, keys.dstHostName, bytesIngress, bytesEgress, keys.congestionEncountered, keys.nonEcnCapableTransport);
+            }
+        }
+    }
+
+    private class InterfaceWindow {
+        private final Flow.NodeInfo exporter;
+        private final long windowEnd;
+
+        private final Bucket all = new Bucket();
+        private final Map<Integer, Bucket> byDscp = new HashMap<>();
+
+        private boolean closed = false;
+
+        private InterfaceWindow(final Flow.NodeInfo exporter, final long windowEnd) {
+            this.exporter = Objects.requireNonNull(exporter);
+            this.windowEnd = windowEnd;
+        }
+    }
+
+    private static class WindowKey {
+        private final int nodeId;
+        private final int ifIndex;
+        private final long windowStart;
+
+        private WindowKey(final int nodeId, final int ifIndex, final long windowStart) {
+            this.nodeId = nodeId;
+            this.ifIndex = ifIndex;
+            this.windowStart = windowStart;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WindowKey)) {
+                return false;
+            }
+            final WindowKey that = (WindowKey) o;
+            return this.nodeId == that.nodeId &&
+                   this.ifIndex == that.ifIndex &&
+                   this.windowStart == that.windowStart;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.nodeId, this.ifIndex, this.windowStart);
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -40,9 +41,6 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.opennms.netmgt.collection.api.CollectionAgent;
@@ -76,6 +74,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public class FlowThresholdingImpl implements Closeable, ClassificationEngine.ClassificationRulesReloadedListener {
     private static final Logger LOG = LoggerFactory.getLogger(FlowThresholdingImpl.class);
@@ -110,9 +109,10 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
 
     private ClassificationEngine classificationEngine;
 
-    private List<Rule> classificationRuleList;
+    // Swapped as a whole when the rules are reloaded
+    private volatile List<Rule> classificationRuleList;
 
-    private ReentrantReadWriteLock classificationRuleListReadWriteLock = new ReentrantReadWriteLock();
+    private final ApplicationIds applicationIds = new ApplicationIds();
 
     public FlowThresholdingImpl(final ThresholdingService thresholdingService,
                                 final CollectionAgentFactory collectionAgentFactory,
@@ -141,13 +141,7 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
 
     @Override
     public void classificationRulesReloaded(final List<Rule> classificationRuleList) {
-        final Lock writeLock = classificationRuleListReadWriteLock.writeLock();
-        writeLock.lock();
-        try {
-            this.classificationRuleList = classificationRuleList;
-        } finally {
-            writeLock.unlock();
-        }
+        this.classificationRuleList = classificationRuleList;
 
         LOG.debug("Classification rules reloaded. Marking sessions as dirty.");
 
@@ -218,11 +212,26 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
             final OnmsIpInterface iface = this.ipInterfaceDao.get(exporterKey.interfaceId);
             final NodeLevelResource nodeResource = new NodeLevelResource(iface.getNodeId());
 
-            for (final Map.Entry<IndexKey, Map<String, AtomicLong>> indexEntry : session.indexKeyMap.entrySet()) {
-                for (final Map.Entry<String, AtomicLong> applicationEntry : indexEntry.getValue().entrySet()) {
-                    try {
-                        final String ifName = getIfNameForNodeIdAndIfIndex(session.collectionAgent.getNodeId(), indexEntry.getKey().iface);
+            final RrdRepository repository;
+            if (session.dataCollection) {
+                repository = new RrdRepository();
+                repository.setStep(session.packageDefinition.getRrd().getStep());
+                repository.setHeartBeat(repository.getStep() * 2);
+                repository.setRraList(session.packageDefinition.getRrd().getRras());
+                repository.setRrdBaseDir(new File(session.packageDefinition.getRrd().getBaseDir()));
+            } else {
+                repository = null;
+            }
+
+            // Emit a consistent snapshot of the counters, the consumers keep on counting meanwhile
+            for (final Map.Entry<IndexKey, Map<String, Long>> indexEntry : session.getCounters().entrySet()) {
+                final String ifName = getIfNameForNodeIdAndIfIndex(session.collectionAgent.getNodeId(), indexEntry.getKey().iface);
+                final String ds = indexEntry.getKey().direction == Direction.INGRESS
+                        ? "bytesIn"
+                        : "bytesOut";
 
+                for (final Map.Entry<String, Long> applicationEntry : indexEntry.getValue().entrySet()) {
+                    try {
                         final DeferredGenericTypeResource appResource = new DeferredGenericTypeResource(nodeResource,
                                 RESOURCE_TYPE_NAME,
                                 String.format("%s:%s",
@@ -234,10 +243,8 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
                                 .withSequenceNumber(session.sequenceNumber.getAndIncrement())
                                 .withCounter(appResource,
                                         RESOURCE_GROUP,
-                                        indexEntry.getKey().direction == Direction.INGRESS
-                                                ? "bytesIn"
-                                                : "bytesOut",
-                                        applicationEntry.getValue().get())
+                                        ds,
+                                        applicationEntry.getValue())
                                 .withStringAttribute(appResource,
                                         RESOURCE_GROUP,
                                         "application",
@@ -250,26 +257,20 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
 
                         if (session.thresholding) {
                             LOG.trace("Checking thresholds for collection-set value={}, ifName={}, application={}, ds={}",
-                                    applicationEntry.getValue().get(),
+                                    applicationEntry.getValue(),
                                     ifName,
                                     applicationEntry.getKey(),
-                                    indexEntry.getKey().direction == Direction.INGRESS ? "bytesIn" : "bytesOut");
+                                    ds);
 
                             session.thresholdingSession.accept(collectionSet);
                         }
 
                         if (session.dataCollection) {
                             LOG.trace("Persisting data for collection-set value={}, ifName={}, application={}, ds={}",
-                                    applicationEntry.getValue().get(),
+                                    applicationEntry.getValue(),
                                     ifName,
                                     applicationEntry.getKey(),
-                                    indexEntry.getKey().direction == Direction.INGRESS ? "bytesIn" : "bytesOut");
-
-                            final var repository = new RrdRepository();
-                            repository.setStep(session.packageDefinition.getRrd().getStep());
-                            repository.setHeartBeat(repository.getStep() * 2);
-                            repository.setRraList(session.packageDefinition.getRrd().getRras());
-                            repository.setRrdBaseDir(new File(session.packageDefinition.getRrd().getBaseDir()));
+                                    ds);
 
                             collectionSet.visit(this.persisterFactory.createPersister(new ServiceParameters(Collections.emptyMap()),
                                     repository,
@@ -293,16 +294,10 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
     }
 
     private Set<String> getListOfApplicationsToPersist(final String exporterIpAddress) {
-        final Lock readLock = classificationRuleListReadWriteLock.readLock();
-        readLock.lock();
-        try {
-            return classificationRuleList.stream()
-                    .filter(r -> r.getExporterFilter() == null || filterService.matches(exporterIpAddress, r.getExporterFilter()))
-                    .map(r -> r.getName())
-                    .collect(Collectors.toSet());
-        } finally {
-            readLock.unlock();
-        }
+        return this.classificationRuleList.stream()
+                .filter(r -> r.getExporterFilter() == null || filterService.matches(exporterIpAddress, r.getExporterFilter()))
+                .map(r -> r.getName())
+                .collect(Collectors.toSet());
     }
 
     private String getIfNameForNodeIdAndIfIndex(final int nodeId, final int ifIndex) {
@@ -324,9 +319,19 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
 
         final var now = Instant.now();
 
+        // The flows of a batch usually share their exporter
+        int lastInterfaceId = 0;
+        Session lastSession = null;
+
         for (final var document : documents) {
             if (document.getExporterNodeInfo() != null && !Strings.isNullOrEmpty(document.getApplication())) {
-                final var exporterKey = new ExporterKey(document.getExporterNodeInfo().getInterfaceId());
+                final int interfaceId = document.getExporterNodeInfo().getInterfaceId();
+                if (lastSession != null && interfaceId == lastInterfaceId) {
+                    lastSession.process(now, document);
+                    continue;
+                }
+
+                final var exporterKey = new ExporterKey(interfaceId);
 
                 final var session = this.sessions.computeIfAbsent(exporterKey, key ->
                         this.sessionUtils.withTransaction(() -> {
@@ -357,6 +362,7 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
 
                             return new Session(thresholdingSession,
                                     collectionAgent,
+                                    applicationIds,
                                     systemIdHash,
                                     options.applicationThresholding,
                                     options.applicationDataCollection,
@@ -366,6 +372,9 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
                         }));
 
                 session.process(now, document);
+
+                lastInterfaceId = interfaceId;
+                lastSession = session;
             }
         }
     }
@@ -381,7 +390,11 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
     public static class Session {
         private static final Logger LOG = LoggerFactory.getLogger(Session.class);
 
-        public final Map<IndexKey, Map<String, AtomicLong>> indexKeyMap = Maps.newConcurrentMap();
+        // Byte counters keyed by interface, direction and application - see key(...)
+        private final StripedCounters counters = new StripedCounters();
+
+        // The interfaces and directions seen by the counters
+        private final Set<IndexKey> indexKeys = Sets.newConcurrentHashSet();
 
         public final boolean thresholding;
         public final boolean dataCollection;
@@ -400,12 +413,14 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
 
         private final String exporterIpAddress;
 
-        private ReentrantReadWriteLock applicationsReadWriteLock = new ReentrantReadWriteLock();
+        private final ApplicationIds applicationIds;
 
-        private Set<String> applications;
+        // Swapped as a whole when the rules are reloaded
+        private volatile Set<String> applications;
 
         private Session(final ThresholdingSession thresholdingSession,
                         final CollectionAgent collectionAgent,
+                        final ApplicationIds applicationIds,
                         final long systemIdHash,
                         final boolean thresholding,
                         final boolean dataCollection,
@@ -415,6 +430,7 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
             this.sequenceNumber = new AtomicLong(systemIdHash | ThreadLocalRandom.current().nextInt());
             this.thresholdingSession = Objects.requireNonNull(thresholdingSession);
             this.collectionAgent = Objects.requireNonNull(collectionAgent);
+            this.applicationIds = Objects.requireNonNull(applicationIds);
             this.thresholding = thresholding;
             this.dataCollection = dataCollection;
             this.packageDefinition = packageDefinition;
@@ -423,70 +439,81 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
         }
 
         public void updateApplicationList(final Set<String> applications) {
-            final Lock writeLock = applicationsReadWriteLock.writeLock();
-            writeLock.lock();
-
-            try {
-                this.applications = applications;
+            this.applications = applications;
 
-                LOG.debug("Found {} matching applications for exporter {}", this.applications.size(), exporterIpAddress);
+            LOG.debug("Found {} matching applications for exporter {}", applications.size(), exporterIpAddress);
 
-                for (final IndexKey indexKey : indexKeyMap.keySet()) {
-                    final int beforeAdd = indexKeyMap.get(indexKey).size();
-
-                    for (final String application : this.applications) {
-                        indexKeyMap.get(indexKey).computeIfAbsent(application, a -> new AtomicLong(0));
-                    }
-
-                    final int afterAddBeforePurge = indexKeyMap.get(indexKey).size();
-                    LOG.debug("Added {} applications for {}/{}/{}", afterAddBeforePurge - beforeAdd, exporterIpAddress, indexKey.iface, indexKey.direction);
-
-                    indexKeyMap.get(indexKey).keySet().retainAll(applications);
-                    final int afterPurge = indexKeyMap.get(indexKey).size();
-                    LOG.debug("Removed {} applications for {}/{}/{}", afterAddBeforePurge - afterPurge, exporterIpAddress, indexKey.iface, indexKey.direction);
-                }
-            } finally {
-                writeLock.unlock();
-            }
-        }
-
-        private void addValue(final IndexKey indexKey, final String application, final long bytes) {
-            if (!indexKeyMap.containsKey(indexKey)) {
-                final Lock readLock = applicationsReadWriteLock.readLock();
-                readLock.lock();
-                try {
-                    indexKeyMap.put(indexKey, applications.stream().collect(Collectors.toConcurrentMap(Function.identity(), e -> new AtomicLong(0))));
-                } finally {
-                    readLock.unlock();
-                }
-            }
-
-            indexKeyMap.get(indexKey).get(application).addAndGet(bytes);
+            // Counters of dropped applications start from scratch if the application is added again
+            this.counters.retainAll(key -> applications.contains(this.applicationIds.name(applicationId(key))));
         }
 
         public void process(final Instant now, final EnrichedFlow document) {
+            final int application = this.applicationIds.id(document.getApplication());
+
             if (document.getInputSnmp() != null &&
                     document.getInputSnmp() != 0 &&
                     (document.getDirection() == Direction.INGRESS || document.getDirection() == Direction.UNKNOWN)) {
-                final IndexKey indexKey = new IndexKey(document.getInputSnmp(), Direction.INGRESS);
-                addValue(indexKey, document.getApplication(), document.getBytes());
+                addValue(document.getInputSnmp(), Direction.INGRESS, application, document.getBytes());
             }
 
             if (document.getOutputSnmp() != null
                     && document.getOutputSnmp() != 0 &&
                     (document.getDirection() == Direction.EGRESS || document.getDirection() == Direction.UNKNOWN)) {
-                final IndexKey indexKey = new IndexKey(document.getOutputSnmp(), Direction.EGRESS);
-                addValue(indexKey, document.getApplication(), document.getBytes());
+                addValue(document.getOutputSnmp(), Direction.EGRESS, application, document.getBytes());
             }
 
             // Mark session as updated
             this.lastUpdate = now;
         }
 
+        private void addValue(final int iface, final Direction direction, final int application, final long bytes) {
+            if (this.counters.add(key(iface, direction, application), bytes)) {
+                this.indexKeys.add(new IndexKey(iface, direction));
+            }
+        }
+
+        /**
+         * Returns a snapshot of the counters of all applications to persist for each interface and direction seen.
+         */
+        public Map<IndexKey, Map<String, Long>> getCounters() {
+            final Set<String> applications = this.applications;
+
+            final Map<IndexKey, Map<String, Long>> result = Maps.newHashMap();
+            for (final IndexKey indexKey : this.indexKeys) {
+                final Map<String, Long> values = Maps.newHashMapWithExpectedSize(applications.size());
+                for (final String application : applications) {
+                    values.put(application, 0L);
+                }
+                result.put(indexKey, values);
+            }
+
+            for (final Map.Entry<Long, Long> counter : this.counters.snapshot().entrySet()) {
+                final String application = this.applicationIds.name(applicationId(counter.getKey()));
+                if (applications.contains(application)) {
+                    result.computeIfAbsent(indexKey(counter.getKey()), k -> Maps.newHashMap())
+                          .put(application, counter.getValue());
+                }
+            }
+
+            return result;
+        }
+
         public Instant getLastUpdate() {
             return this.lastUpdate;
         }
 
+        private static long key(final int iface, final Direction direction, final int application) {
+            return ((long) iface << 32) | (direction == Direction.EGRESS ? 1L << 31 : 0L) | application;
+        }
+
+        private static int applicationId(final long key) {
+            return (int) (key & 0x7fffffffL);
+        }
+
+        private static IndexKey indexKey(final long key) {
+            return new IndexKey((int) (key >>> 32), (key & (1L << 31)) != 0 ? Direction.EGRESS : Direction.INGRESS);
+        }
+
         @Override
         public String toString() {
             return "Session{" +
@@ -499,6 +526,38 @@ public class FlowThresholdingImpl implements Closeable, ClassificationEngine.Cla
         }
     }
 
+    /**
+     * Interns application names to small, stable ids used as part of the counter keys.
+     */
+    private static class ApplicationIds {
+        private final ConcurrentMap<String, Integer> ids = Maps.newConcurrentMap();
+        private volatile String[] names = new String[16];
+
+        private int id(final String application) {
+            final Integer id = this.ids.get(application);
+            if (id != null) {
+                return id;
+            }
+
+            synchronized (this) {
+                return this.ids.computeIfAbsent(application, a -> {
+                    final int next = this.ids.size();
+                    String[] names = this.names;
+                    if (next == names.length) {
+                        names = Arrays.copyOf(names, names.length * 2);
+                    }
+                    names[next] = a;
+                    this.names = names;
+                    return next;
+                });
+            }
+        }
+
+        private String name(final int id) {
+            return this.names[id];
+        }
+    }
+
     @Override
     public void close() {
         this.classificationEngine.removeClassificationRulesReloadedListener(this);
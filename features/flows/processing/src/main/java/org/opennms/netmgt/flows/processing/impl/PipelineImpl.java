@@ -60,6 +60,11 @@ public class PipelineImpl implements Pipeline {
      */
     private final Timer logThresholdingTimer;
 
+    /**
+     * Time taken to aggregate the flows in a log
+     */
+    private final Timer logAggregationTimer;
+
     /**
      * Time taken to mark the flows in a log
      */
@@ -83,15 +88,19 @@ public class PipelineImpl implements Pipeline {
 
     private final FlowThresholdingImpl thresholding;
 
+    private final FlowAggregatorImpl aggregator;
+
     private final Map<String, Persister> persisters = Maps.newConcurrentMap();
 
     public PipelineImpl(final MetricRegistry metricRegistry,
                         final DocumentEnricherImpl documentEnricher,
                         final InterfaceMarkerImpl interfaceMarker,
-                        final FlowThresholdingImpl thresholding) {
+                        final FlowThresholdingImpl thresholding,
+                        final FlowAggregatorImpl aggregator) {
         this.documentEnricher = Objects.requireNonNull(documentEnricher);
         this.interfaceMarker = Objects.requireNonNull(interfaceMarker);
         this.thresholding = Objects.requireNonNull(thresholding);
+        this.aggregator = Objects.requireNonNull(aggregator);
 
         this.emptyFlows = metricRegistry.counter("emptyFlows");
         this.flowsPerLog = metricRegistry.histogram("flowsPerLog");
@@ -99,6 +108,7 @@ public class PipelineImpl implements Pipeline {
         this.logEnrichementTimer = metricRegistry.timer("logEnrichment");
         this.logMarkingTimer = metricRegistry.timer("logMarking");
         this.logThresholdingTimer = metricRegistry.timer("logThresholding");
+        this.logAggregationTimer = metricRegistry.timer("logAggregation");
 
         this.metricRegistry = Objects.requireNonNull(metricRegistry);
     }
@@ -135,6 +145,11 @@ public class PipelineImpl implements Pipeline {
             throw new FlowException("Failed to threshold one or more flows.", e);
         }
 
+        // Maintain the windowed rollups
+        try (final Timer.Context ctx = this.logAggregationTimer.time()) {
+            this.aggregator.aggregate(enrichedFlows);
+        }
+
         // Push flows to persistence
         for (final var persister : this.persisters.entrySet()) {
             persister.getValue().persist(enrichedFlows);
@@ -0,0 +1,80 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Tracks the latency of a processing stage and the number of bytes allocated by the thread executing it.
+ *
+ * Allocations are only reported if the JVM supports measuring them per thread.
+ */
+class StageMetrics {
+
+    private static final LongSupplier ALLOCATED_BYTES = allocatedBytesSupplier();
+
+    private final Timer timer;
+
+    private final Histogram allocatedBytes;
+
+    StageMetrics(final MetricRegistry metricRegistry, final String name) {
+        this.timer = metricRegistry.timer(name);
+        this.allocatedBytes = metricRegistry.histogram(MetricRegistry.name(name, "allocatedBytes"));
+    }
+
+    Context time() {
+        return new Context();
+    }
+
+    class Context implements AutoCloseable {
+        private final long startNanos = System.nanoTime();
+        private final long startBytes = ALLOCATED_BYTES.getAsLong();
+
+        @Override
+        public void close() {
+            timer.update(System.nanoTime() - this.startNanos, TimeUnit.NANOSECONDS);
+            if (this.startBytes >= 0) {
+                allocatedBytes.update(ALLOCATED_BYTES.getAsLong() - this.startBytes);
+            }
+        }
+    }
+
+    private static LongSupplier allocatedBytesSupplier() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                if (threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+                    return () -> threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                }
+            }
+        } catch (final LinkageError e) {
+            // Not available on this JVM
+        }
+        return () -> -1L;
+    }
+}
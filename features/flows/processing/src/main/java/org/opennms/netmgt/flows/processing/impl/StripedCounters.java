@@ -0,0 +1,171 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Counters keyed by primitive, non-zero ids.
+ *
+ * Updates are spread over stripes selected by the updating thread. Each stripe is an open addressing hash table
+ * guarded by its own monitor, so that concurrent consumers neither contend on a shared lock nor allocate per update.
+ * Readers merge the stripes into a snapshot.
+ */
+class StripedCounters {
+
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe[] stripes;
+
+    StripedCounters() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    StripedCounters(final int concurrency) {
+        int count = 1;
+        while (count < concurrency && count < MAX_STRIPES) {
+            count <<= 1;
+        }
+
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds the given value to the counter with the given key.
+     *
+     * @return true if the key has not been seen by the stripe of the calling thread before
+     */
+    boolean add(final long key, final long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key must not be zero");
+        }
+        return this.stripes[(int) Thread.currentThread().getId() & (this.stripes.length - 1)].add(key, value);
+    }
+
+    /**
+     * Drops all counters whose key does not match the given predicate.
+     */
+    void retainAll(final LongPredicate predicate) {
+        for (final Stripe stripe : this.stripes) {
+            stripe.retainAll(predicate);
+        }
+    }
+
+    /**
+     * Returns the current values of all counters, summed over all stripes.
+     */
+    Map<Long, Long> snapshot() {
+        final Map<Long, Long> snapshot = new HashMap<>();
+        for (final Stripe stripe : this.stripes) {
+            stripe.mergeInto(snapshot);
+        }
+        return snapshot;
+    }
+
+    private static class Stripe {
+        private long[] keys = new long[16];
+        private long[] values = new long[16];
+        private int size = 0;
+
+        private synchronized boolean add(final long key, final long value) {
+            int slot = slot(this.keys, key);
+            if (this.keys[slot] == key) {
+                this.values[slot] += value;
+                return false;
+            }
+
+            if ((this.size + 1) * 4 > this.keys.length * 3) {
+                this.resize(this.keys.length * 2);
+                slot = slot(this.keys, key);
+            }
+
+            this.keys[slot] = key;
+            this.values[slot] = value;
+            this.size++;
+            return true;
+        }
+
+        private synchronized void retainAll(final LongPredicate predicate) {
+            final long[] keys = this.keys;
+            final long[] values = this.values;
+
+            this.keys = new long[keys.length];
+            this.values = new long[values.length];
+            this.size = 0;
+
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0 && predicate.test(keys[i])) {
+                    final int slot = slot(this.keys, keys[i]);
+                    this.keys[slot] = keys[i];
+                    this.values[slot] = values[i];
+                    this.size++;
+                }
+            }
+        }
+
+        private synchronized void mergeInto(final Map<Long, Long> snapshot) {
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i] != 0) {
+                    snapshot.merge(this.keys[i], this.values[i], Long::sum);
+                }
+            }
+        }
+
+        private void resize(final int capacity) {
+            final long[] keys = this.keys;
+            final long[] values = this.values;
+
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    final int slot = slot(this.keys, keys[i]);
+                    this.keys[slot] = keys[i];
+                    this.values[slot] = values[i];
+                }
+            }
+        }
+
+        // Returns the slot holding the key or the empty slot the key belongs to
+        private static int slot(final long[] keys, final long key) {
+            final int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
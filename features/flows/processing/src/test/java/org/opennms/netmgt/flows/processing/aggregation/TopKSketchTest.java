@@ -0,0 +1,102 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.aggregation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class TopKSketchTest {
+
+    @Test
+    public void canTrackExactCountsWithinCapacity() {
+        final TopKSketch<String> sketch = new TopKSketch<>(10);
+        sketch.add("http", null, 100, 10, false, false);
+        sketch.add("ssh", null, 5, 5, false, true);
+        sketch.add("http", null, 50, 0, true, false);
+        sketch.add("dns", null, 20, 20, false, false);
+
+        final List<TopKSketch.Entry<String>> top = sketch.top(2);
+        assertThat(top.stream().map(TopKSketch.Entry::getKey).collect(Collectors.toList()), contains("http", "dns"));
+        assertThat(top.get(0).getBytesIngress(), equalTo(150L));
+        assertThat(top.get(0).getBytesEgress(), equalTo(10L));
+        assertThat(top.get(0).getError(), equalTo(0L));
+        assertThat(top.get(0).isCongestionEncountered(), equalTo(true));
+        assertThat(top.get(0).isNonEcnCapableTransport(), equalTo(false));
+
+        assertThat(sketch.top(10), hasSize(3));
+    }
+
+    @Test
+    public void canEvictTheMinimumWhenFull() {
+        final TopKSketch<String> sketch = new TopKSketch<>(2);
+        sketch.add("a", null, 10, 0, false, false);
+        sketch.add("b", null, 3, 0, false, false);
+        sketch.add("c", null, 5, 0, false, false);
+
+        assertThat(sketch.size(), equalTo(2));
+        final List<TopKSketch.Entry<String>> top = sketch.top(2);
+        assertThat(top.stream().map(TopKSketch.Entry::getKey).collect(Collectors.toList()), contains("a", "c"));
+
+        // The replacing key inherits the count of the evicted one as error, but only reports its own bytes
+        assertThat(top.get(1).getError(), equalTo(3L));
+        assertThat(top.get(1).getBytesIngress(), equalTo(5L));
+        assertThat(top.get(1).getEstimate(), equalTo(8L));
+    }
+
+    @Test
+    public void canKeepLastLabel() {
+        final TopKSketch<String> sketch = new TopKSketch<>(2);
+        sketch.add("10.0.0.1", "a.example.com", 1, 0, false, false);
+        sketch.add("10.0.0.1", null, 1, 0, false, false);
+        assertThat(sketch.top(1).get(0).getLabel(), equalTo("a.example.com"));
+        sketch.add("10.0.0.1", "b.example.com", 1, 0, false, false);
+        assertThat(sketch.top(1).get(0).getLabel(), equalTo("b.example.com"));
+    }
+
+    @Test
+    public void canFindHeavyHittersInSkewedStream() {
+        final TopKSketch<Integer> sketch = new TopKSketch<>(50);
+        final Random random = new Random(42);
+
+        // Ten heavy hitters with 5% of the traffic each and a long tail of 10000 keys sharing the rest
+        for (int i = 0; i < 100_000; i++) {
+            final int key = random.nextDouble() < 0.5 ? random.nextInt(10) : 10 + random.nextInt(10_000);
+            sketch.add(key, null, 100, 0, false, false);
+        }
+
+        final List<Integer> top = sketch.top(10).stream().map(TopKSketch.Entry::getKey).sorted().collect(Collectors.toList());
+        assertThat(top, contains(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+        for (final TopKSketch.Entry<Integer> entry : sketch.top(10)) {
+            // Heavy hitters enter the sketch early and keep their counter, so nearly all of their bytes are reported
+            assertThat(entry.getBytesIngress(), greaterThanOrEqualTo(400_000L));
+        }
+    }
+}
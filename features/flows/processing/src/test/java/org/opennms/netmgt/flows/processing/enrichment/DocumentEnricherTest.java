@@ -29,7 +29,10 @@ import static org.opennms.integration.api.v1.flows.Flow.Direction;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -89,6 +92,54 @@ public class DocumentEnricherTest {
         Assert.assertEquals(6, nodeDaoGetCounter.get());
     }
 
+    @Test
+    public void verifyBatchLookups() throws InterruptedException {
+        final MockDocumentEnricherFactory factory = new MockDocumentEnricherFactory();
+        final DocumentEnricherImpl enricher = factory.getEnricher();
+        final NodeDao nodeDao = factory.getNodeDao();
+        final InterfaceToNodeCache interfaceToNodeCache = factory.getInterfaceToNodeCache();
+
+        interfaceToNodeCache.setNodeId("Default", InetAddressUtils.addr("127.0.0.1"), 1);
+        interfaceToNodeCache.setNodeId("Default", InetAddressUtils.addr("10.0.0.2"), 2);
+
+        nodeDao.save(createOnmsNode(1, "my-requisition"));
+        nodeDao.save(createOnmsNode(2, "my-requisition"));
+
+        final List<Flow> flows = Lists.newArrayList(
+                createFlowDocument("10.0.0.2", "8.8.8.8"),
+                createFlowDocument("8.8.8.8", "10.0.0.2"),
+                createFlowDocument("10.0.0.2", null),
+                createFlowDocument("10.0.0.2", "8.8.8.8"));
+
+        final List<EnrichedFlow> docs = enricher.enrich(flows, new FlowSource("Default", "127.0.0.1", null));
+        Assert.assertEquals(4, docs.size());
+
+        // All flows share the exporter and the node of the same address
+        for (final EnrichedFlow doc : docs) {
+            Assert.assertEquals(Integer.valueOf(1), doc.getExporterNodeInfo().getNodeId());
+            Assert.assertSame(docs.get(0).getExporterNodeInfo(), doc.getExporterNodeInfo());
+        }
+        final List<NodeInfo> nodeInfos = docs.stream()
+                .flatMap(doc -> Stream.of(doc.getSrcNodeInfo(), doc.getDstNodeInfo()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        Assert.assertEquals(4, nodeInfos.size());
+        for (final NodeInfo nodeInfo : nodeInfos) {
+            Assert.assertSame(nodeInfos.get(0), nodeInfo);
+            Assert.assertEquals(Integer.valueOf(2), nodeInfo.getNodeId());
+        }
+
+        Assert.assertEquals(EnrichedFlow.Locality.PRIVATE, docs.get(0).getSrcLocality());
+        Assert.assertEquals(EnrichedFlow.Locality.PUBLIC, docs.get(0).getDstLocality());
+        Assert.assertEquals(EnrichedFlow.Locality.PUBLIC, docs.get(0).getFlowLocality());
+        Assert.assertEquals(EnrichedFlow.Locality.PUBLIC, docs.get(1).getSrcLocality());
+        Assert.assertEquals(EnrichedFlow.Locality.PRIVATE, docs.get(1).getDstLocality());
+        Assert.assertNull(docs.get(2).getDstLocality());
+        Assert.assertEquals(EnrichedFlow.Locality.PRIVATE, docs.get(2).getFlowLocality());
+
+        Assert.assertEquals("http", docs.get(3).getApplication());
+    }
+
     private static Flow createFlowDocument(String sourceIp, String destIp) {
         return createFlowDocument(sourceIp, destIp, 0);
     }
@@ -61,6 +61,7 @@ public class MockDocumentEnricherFactory {
     private final MockCategoryDao categoryDao;
     private final DocumentEnricherImpl enricher;
     private final ClassificationEngine classificationEngine;
+    private final MetricRegistry metricRegistry = new MetricRegistry();
 
     private final AtomicInteger nodeDaoGetCounter = new AtomicInteger(0);
 
@@ -82,7 +83,7 @@ public class MockDocumentEnricherFactory {
                 new RuleBuilder().withName("https").withSrcPort("443").withProtocol("tcp,udp").build()
         ), FilterService.NOOP);
         enricher = new DocumentEnricherImpl(
-                new MetricRegistry(),
+                metricRegistry,
                 nodeDao, ipInterfaceDao,
                 interfaceToNodeCache, new MockSessionUtils(), classificationEngine,
                 new CacheConfigBuilder()
@@ -113,6 +114,10 @@ public class MockDocumentEnricherFactory {
         return enricher;
     }
 
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
     public AtomicInteger getNodeDaoGetCounter() {
         return nodeDaoGetCounter;
     }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.integration.api.v1.flows.Flow.Direction;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup;
+import org.opennms.netmgt.flows.processing.enrichment.EnrichedFlow;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to compare answering a top-N applications query for a day
+ * of flows on an exporter interface from the raw flows against answering it from the rollups maintained
+ * by the {@link FlowAggregatorImpl}.
+ * <p>
+ * Both query benchmarks do the work of the corresponding terms aggregation over the matching documents,
+ * so they reflect the number of documents the search has to visit. The aggregation benchmark measures the
+ * cost of maintaining the rollups in the pipeline for the same day of flows.
+ */
+public class FlowAggregationBenchmark {
+
+    private static final long WINDOW_MS = 60_000;
+    private static final int WINDOWS_PER_DAY = 24 * 60;
+    private static final int FLOWS_PER_WINDOW = 100;
+    private static final int TOP_N = 10;
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class DayOfFlows {
+
+        public List<List<EnrichedFlow>> batches;
+        public List<FlowRollup> rollups;
+
+        @Setup
+        public void setup() {
+            final Random random = new Random(42);
+
+            this.batches = new ArrayList<>(WINDOWS_PER_DAY);
+            for (int window = 0; window < WINDOWS_PER_DAY; window++) {
+                final List<EnrichedFlow> batch = new ArrayList<>(FLOWS_PER_WINDOW);
+                for (int i = 0; i < FLOWS_PER_WINDOW; i++) {
+                    final long lastSwitched = window * WINDOW_MS + random.nextInt((int) WINDOW_MS);
+                    batch.add(FlowAggregatorImplTest.flow(random.nextBoolean() ? Direction.INGRESS : Direction.EGRESS, 1,
+                            "app" + skewed(random, 50),
+                            "10.0." + skewed(random, 20) + "." + random.nextInt(100),
+                            "10.1." + skewed(random, 20) + "." + random.nextInt(100),
+                            Math.max(0, lastSwitched - random.nextInt(30_000)), lastSwitched,
+                            1 + random.nextInt(1_000_000)));
+                }
+                this.batches.add(batch);
+            }
+
+            final List<FlowRollup> rollups = new ArrayList<>();
+            final FlowAggregatorImpl aggregator = aggregator(rollups);
+            this.batches.forEach(aggregator::aggregate);
+            aggregator.flushAll();
+            this.rollups = rollups;
+        }
+
+        private static int skewed(final Random random, final int bound) {
+            // Squaring a uniform value yields a simple long-tailed distribution
+            final double u = random.nextDouble();
+            return (int) (u * u * bound);
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void topNFromRawFlows(DayOfFlows state, Blackhole blackhole) {
+        final Map<String, long[]> bytesByApp = new HashMap<>();
+        for (final List<EnrichedFlow> batch : state.batches) {
+            for (final EnrichedFlow flow : batch) {
+                final long[] bytes = bytesByApp.computeIfAbsent(flow.getApplication(), app -> new long[2]);
+                bytes[flow.getDirection() == Direction.INGRESS ? 0 : 1] += flow.getBytes();
+            }
+        }
+        blackhole.consume(topN(bytesByApp));
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void topNFromRollups(DayOfFlows state, Blackhole blackhole) {
+        final Map<String, long[]> bytesByApp = new HashMap<>();
+        for (final FlowRollup rollup : state.rollups) {
+            if (rollup.getGrouping() != FlowRollup.Grouping.EXPORTER_INTERFACE_APPLICATION) {
+                continue;
+            }
+            final long[] bytes = bytesByApp.computeIfAbsent(rollup.getKey(), app -> new long[2]);
+            bytes[0] += rollup.getBytesIngress();
+            bytes[1] += rollup.getBytesEgress();
+        }
+        blackhole.consume(topN(bytesByApp));
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void aggregateDayOfFlows(DayOfFlows state, Blackhole blackhole) {
+        final List<FlowRollup> rollups = new ArrayList<>();
+        final FlowAggregatorImpl aggregator = aggregator(rollups);
+        state.batches.forEach(aggregator::aggregate);
+        aggregator.flushAll();
+        blackhole.consume(rollups);
+    }
+
+    private static FlowAggregatorImpl aggregator(final List<FlowRollup> rollups) {
+        final FlowAggregatorImpl aggregator = new FlowAggregatorImpl(new MetricRegistry());
+        aggregator.setEnabled(true);
+        aggregator.setWindowSizeMs(WINDOW_MS);
+        aggregator.setTopN(TOP_N);
+        aggregator.onBind(rollups::addAll, Collections.emptyMap());
+        return aggregator;
+    }
+
+    private static List<Map.Entry<String, long[]>> topN(final Map<String, long[]> bytesByKey) {
+        final List<Map.Entry<String, long[]>> entries = new ArrayList<>(bytesByKey.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0] + b.getValue()[1], a.getValue()[0] + a.getValue()[1]));
+        return entries.subList(0, Math.min(TOP_N, entries.size()));
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.integration.api.v1.flows.Flow.Direction;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup;
+import org.opennms.netmgt.flows.processing.aggregation.FlowRollup.Grouping;
+import org.opennms.netmgt.flows.processing.enrichment.EnrichedFlow;
+import org.opennms.netmgt.flows.processing.enrichment.NodeInfo;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class FlowAggregatorImplTest {
+
+    private static final long WINDOW = 60_000;
+
+    private final List<FlowRollup> rollups = new ArrayList<>();
+
+    private FlowAggregatorImpl aggregator;
+
+    @Before
+    public void setUp() {
+        this.aggregator = new FlowAggregatorImpl(new MetricRegistry());
+        this.aggregator.setEnabled(true);
+        this.aggregator.setWindowSizeMs(WINDOW);
+        this.aggregator.setAllowedLatenessMs(WINDOW);
+        this.aggregator.setTopN(2);
+        this.aggregator.onBind(this.rollups::addAll, Collections.emptyMap());
+    }
+
+    @Test
+    public void canRollupTotalsAndTopN() {
+        this.aggregator.aggregate(List.of(
+                flow(Direction.INGRESS, 1, "http", "10.0.0.1", "10.0.0.2", 10_000, 10_000, 100),
+                flow(Direction.INGRESS, 1, "http", "10.0.0.1", "10.0.0.3", 20_000, 20_000, 200),
+                flow(Direction.EGRESS, 1, "https", "10.0.0.4", "10.0.0.2", 30_000, 30_000, 50),
+                flow(Direction.INGRESS, 1, null, "10.0.0.5", "10.0.0.6", 40_000, 40_000, 10)));
+
+        // Window is not yet closed
+        this.aggregator.flush(WINDOW + WINDOW - 1);
+        assertThat(this.rollups, empty());
+
+        this.aggregator.flush(WINDOW + WINDOW);
+        assertThat(this.aggregator.getWindowCount(), equalTo(0));
+
+        final FlowRollup total = single(Grouping.EXPORTER_INTERFACE);
+        assertThat(total.getRangeStart(), equalTo(0L));
+        assertThat(total.getRangeEnd(), equalTo(WINDOW - 1));
+        assertThat(total.getIfIndex(), equalTo(1));
+        assertThat(total.getExporter().getNodeId(), equalTo(42));
+        assertThat(total.getBytesIngress(), equalTo(310L));
+        assertThat(total.getBytesEgress(), equalTo(50L));
+
+        final List<FlowRollup> apps = of(Grouping.EXPORTER_INTERFACE_APPLICATION);
+        assertThat(apps.stream().map(FlowRollup::getKey).collect(Collectors.toList()), contains("http", "https"));
+        assertThat(apps.stream().map(FlowRollup::getRanking).collect(Collectors.toList()), contains(0, 1));
+        assertThat(apps.get(0).getBytesIngress(), equalTo(300L));
+        assertThat(apps.get(1).getBytesEgress(), equalTo(50L));
+
+        // Both endpoints of a flow count towards the hosts
+        final List<FlowRollup> hosts = of(Grouping.EXPORTER_INTERFACE_HOST);
+        assertThat(hosts.stream().map(FlowRollup::getKey).collect(Collectors.toList()), contains("10.0.0.1", "10.0.0.3"));
+        assertThat(hosts.get(0).getHostName(), equalTo("10.0.0.1.example.com"));
+
+        assertThat(of(Grouping.EXPORTER_INTERFACE_CONVERSATION), hasSize(2));
+
+        // Without a DSCP, there are no TOS rollups
+        assertThat(of(Grouping.EXPORTER_INTERFACE_TOS), empty());
+    }
+
+    @Test
+    public void canRollupPerDscpAndEcn() {
+        final EnrichedFlow flow = flow(Direction.INGRESS, 3, "http", "10.0.0.1", "10.0.0.2", 10_000, 10_000, 100);
+        flow.setDscp(46);
+        flow.setEcn(3);
+        this.aggregator.aggregate(List.of(flow));
+        this.aggregator.flushAll();
+
+        final FlowRollup tos = single(Grouping.EXPORTER_INTERFACE_TOS);
+        assertThat(tos.getDscp(), equalTo(46));
+        assertThat(tos.getBytesIngress(), equalTo(100L));
+        assertThat(tos.isCongestionEncountered(), equalTo(true));
+        assertThat(tos.isNonEcnCapableTransport(), equalTo(false));
+
+        assertThat(single(Grouping.EXPORTER_INTERFACE_TOS_APPLICATION).getKey(), equalTo("http"));
+        assertThat(single(Grouping.EXPORTER_INTERFACE).isCongestionEncountered(), equalTo(true));
+    }
+
+    @Test
+    public void canSplitFlowsAcrossWindows() {
+        // A flow spanning 1.5 windows
+        this.aggregator.aggregate(List.of(flow(Direction.UNKNOWN, 1, "http", "10.0.0.1", "10.0.0.2", 30_000, 120_000, 900)));
+        this.aggregator.flushAll();
+
+        final List<FlowRollup> totals = of(Grouping.EXPORTER_INTERFACE);
+        assertThat(totals, hasSize(2));
+        totals.sort((a, b) -> Long.compare(a.getRangeStart(), b.getRangeStart()));
+        assertThat(totals.get(0).getRangeStart(), equalTo(0L));
+        assertThat(totals.get(0).getBytesIngress(), equalTo(300L));
+        assertThat(totals.get(1).getRangeStart(), equalTo(WINDOW));
+        assertThat(totals.get(1).getBytesIngress(), equalTo(600L));
+
+        // Direction unknown counts on both interfaces
+        assertThat(totals.get(0).getBytesEgress(), equalTo(300L));
+    }
+
+    @Test
+    public void canSkipFlowsWithoutExporterOrInterface() {
+        final EnrichedFlow noExporter = flow(Direction.INGRESS, 1, "http", "10.0.0.1", "10.0.0.2", 10_000, 10_000, 100);
+        noExporter.setExporterNodeInfo(null);
+        final EnrichedFlow noInterface = flow(Direction.INGRESS, 0, "http", "10.0.0.1", "10.0.0.2", 10_000, 10_000, 100);
+
+        this.aggregator.aggregate(List.of(noExporter, noInterface));
+        assertThat(this.aggregator.getWindowCount(), equalTo(0));
+    }
+
+    @Test
+    public void keepsPersistingWhenARepositoryFails() {
+        final List<FlowRollup> others = new ArrayList<>();
+        this.aggregator.onBind(failing -> {
+            throw new IllegalArgumentException("failing repository");
+        }, Collections.emptyMap());
+        this.aggregator.onBind(others::addAll, Collections.emptyMap());
+
+        this.aggregator.aggregate(List.of(flow(Direction.INGRESS, 1, "http", "10.0.0.1", "10.0.0.2", 10_000, 10_000, 100)));
+        this.aggregator.flushAll();
+
+        assertThat(this.rollups, not(empty()));
+        assertThat(others, equalTo(this.rollups));
+    }
+
+    @Test
+    public void doesNothingWhenDisabled() {
+        this.aggregator.setEnabled(false);
+        this.aggregator.aggregate(List.of(flow(Direction.INGRESS, 1, "http", "10.0.0.1", "10.0.0.2", 10_000, 10_000, 100)));
+        assertThat(this.aggregator.getWindowCount(), equalTo(0));
+    }
+
+    private FlowRollup single(final Grouping grouping) {
+        final List<FlowRollup> matching = of(grouping);
+        assertThat(matching, hasSize(1));
+        return matching.get(0);
+    }
+
+    private List<FlowRollup> of(final Grouping grouping) {
+        return this.rollups.stream()
+                .filter(r -> r.getGrouping() == grouping)
+                .collect(Collectors.toList());
+    }
+
+    public static EnrichedFlow flow(final Direction direction, final int ifIndex, final String application,
+                                    final String srcAddr, final String dstAddr,
+                                    final long firstSwitched, final long lastSwitched, final long bytes) {
+        final NodeInfo exporter = new NodeInfo();
+        exporter.setNodeId(42);
+        exporter.setForeignSource("fs");
+        exporter.setForeignId("exporter");
+
+        final EnrichedFlow flow = new EnrichedFlow();
+        flow.setExporterNodeInfo(exporter);
+        flow.setLocation("Default");
+        flow.setProtocol(6);
+        flow.setDirection(direction);
+        flow.setInputSnmp(ifIndex);
+        flow.setOutputSnmp(ifIndex);
+        flow.setApplication(application);
+        flow.setSrcAddr(srcAddr);
+        flow.setSrcAddrHostname(srcAddr + ".example.com");
+        flow.setDstAddr(dstAddr);
+        flow.setFirstSwitched(Instant.ofEpochMilli(firstSwitched));
+        flow.setDeltaSwitched(Instant.ofEpochMilli(firstSwitched));
+        flow.setLastSwitched(Instant.ofEpochMilli(lastSwitched));
+        flow.setTimestamp(Instant.ofEpochMilli(lastSwitched));
+        flow.setBytes(bytes);
+        return flow;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.impl;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.netmgt.flows.api.Flow;
+import org.opennms.netmgt.flows.api.FlowSource;
+import org.opennms.netmgt.flows.processing.FlowBuilder;
+import org.opennms.netmgt.flows.processing.TestFlow;
+import org.opennms.netmgt.flows.processing.enrichment.MockDocumentEnricherFactory;
+import org.opennms.netmgt.model.OnmsNode;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to measure the enrichment of batches of 100k flows.
+ * <p>
+ * The flows of a batch are exchanged between a small set of hosts, some of them being known nodes,
+ * like the flows received from an exporter in practice. Run with {@code -prof gc} to see the total
+ * allocation - the latency and allocation of each enrichment stage is printed after each trial.
+ */
+public class FlowEnrichmentBenchmark {
+
+    private static final int FLOWS_PER_BATCH = 100_000;
+    private static final int NODES = 200;
+    private static final int HOSTS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class FlowBatch {
+
+        public MockDocumentEnricherFactory factory;
+        public DocumentEnricherImpl enricher;
+        public FlowSource source;
+        public List<Flow> flows;
+
+        @Setup
+        public void setup() throws InterruptedException {
+            this.factory = new MockDocumentEnricherFactory();
+            this.enricher = this.factory.getEnricher();
+            this.source = new FlowSource("Default", "10.0.0.1", null);
+
+            for (int i = 1; i <= NODES; i++) {
+                final OnmsNode node = new OnmsNode();
+                node.setId(i);
+                node.setForeignSource("my-requisition");
+                node.setForeignId(Integer.toString(i));
+                this.factory.getNodeDao().save(node);
+                this.factory.getInterfaceToNodeCache().setNodeId("Default", InetAddressUtils.addr(host(i - 1)), i);
+            }
+
+            final Random random = new Random(42);
+            final Instant now = Instant.now();
+            final FlowBuilder builder = new FlowBuilder().withSnmpInterfaceId(1);
+            for (int i = 0; i < FLOWS_PER_BATCH; i++) {
+                builder.withFlow(now.minusMillis(10_000), now,
+                        host(random.nextInt(HOSTS)), 1024 + random.nextInt(60_000),
+                        host(random.nextInt(HOSTS)), random.nextBoolean() ? 80 : 443,
+                        1 + random.nextInt(1_000_000));
+            }
+            this.flows = builder.build();
+            for (final Flow flow : this.flows) {
+                ((TestFlow) flow).setReceivedAt(now);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            final MetricRegistry metricRegistry = this.factory.getMetricRegistry();
+            for (final Map.Entry<String, Timer> stage : metricRegistry.getTimers((name, metric) -> name.startsWith("enrichment")).entrySet()) {
+                final Histogram allocatedBytes = metricRegistry.histogram(MetricRegistry.name(stage.getKey(), "allocatedBytes"));
+                System.out.printf("%n%s: %.1f ms, %.1f MB allocated per batch",
+                        stage.getKey(),
+                        stage.getValue().getSnapshot().getMean() / 1e6,
+                        allocatedBytes.getSnapshot().getMean() / (1024.0 * 1024.0));
+            }
+            System.out.println();
+        }
+
+        private static String host(final int i) {
+            // Every other host is on a public network
+            return (i % 2 == 0 ? "10.0." : "198.51.") + (i / 512) + "." + (i / 2 % 256);
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    public void enrich100kFlows(FlowBatch batch, Blackhole blackhole) {
+        blackhole.consume(batch.enricher.enrich(batch.flows, batch.source));
+    }
+}
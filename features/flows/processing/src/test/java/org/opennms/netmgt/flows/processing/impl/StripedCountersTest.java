@@ -0,0 +1,100 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.flows.processing.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class StripedCountersTest {
+
+    @Test
+    public void verifyCounting() {
+        final StripedCounters counters = new StripedCounters(4);
+
+        assertThat(counters.add(1L, 10), equalTo(true));
+        assertThat(counters.add(1L, 5), equalTo(false));
+        assertThat(counters.add(-7L, 3), equalTo(true));
+
+        // Grow the tables beyond their initial capacity
+        for (long key = 100; key < 1100; key++) {
+            counters.add(key << 32, key);
+        }
+
+        final Map<Long, Long> snapshot = counters.snapshot();
+        assertThat(snapshot.size(), equalTo(1002));
+        assertThat(snapshot.get(1L), equalTo(15L));
+        assertThat(snapshot.get(-7L), equalTo(3L));
+        assertThat(snapshot.get(500L << 32), equalTo(500L));
+    }
+
+    @Test
+    public void verifyRetain() {
+        final StripedCounters counters = new StripedCounters(2);
+        for (long key = 1; key <= 100; key++) {
+            counters.add(key, key);
+        }
+
+        counters.retainAll(key -> key % 2 == 0);
+
+        final Map<Long, Long> snapshot = counters.snapshot();
+        assertThat(snapshot.size(), equalTo(50));
+        assertThat(snapshot.get(42L), equalTo(42L));
+        assertThat(snapshot.containsKey(43L), equalTo(false));
+
+        // Dropped counters start from scratch
+        counters.add(43L, 1);
+        counters.add(42L, 1);
+        assertThat(counters.snapshot().get(43L), equalTo(1L));
+        assertThat(counters.snapshot().get(42L), equalTo(43L));
+    }
+
+    @Test
+    public void verifyConcurrentCounting() throws Exception {
+        final StripedCounters counters = new StripedCounters(8);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    counters.add(1 + i % 100, 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final Map<Long, Long> snapshot = counters.snapshot();
+        assertThat(snapshot.size(), equalTo(100));
+        for (final long value : snapshot.values()) {
+            assertThat(value, equalTo(8_000L));
+        }
+    }
+}
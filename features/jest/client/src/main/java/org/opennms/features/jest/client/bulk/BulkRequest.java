@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.opennms.features.jest.client.JestClientWithCircuitBreaker;
 import org.slf4j.Logger;
@@ -40,6 +41,7 @@ public class BulkRequest<T> {
     private static final Logger LOG = LoggerFactory.getLogger(BulkRequest.class);
     private final JestClientWithCircuitBreaker client;
     private final List<T> documents;
+    private final List<FailedItem<T>> droppedItems = new ArrayList<>();
     private final Function<List<T>, BulkWrapper> transformer;
     private final int retryCount;
     private int retries = 0;
@@ -60,18 +62,36 @@ public class BulkRequest<T> {
                     return bulkResultWrapper;
                 }
                 // Handle errors
-                final List<T> failedDocuments = bulkResultWrapper.getFailedDocuments();
+                final List<FailedItem<T>> failedItems = bulkResultWrapper.getFailedItems();
                 logError(bulkResultWrapper.getErrorMessage());
 
+                // Only items which failed for a transient reason are worth sending again
+                final List<T> retryableDocuments = failedItems.stream()
+                        .filter(FailedItem::isRetryable)
+                        .map(FailedItem::getItem)
+                        .collect(Collectors.toList());
+
                 // bail if retry is not possible
-                if (!canRetry()) {
+                if (!canRetry() || (!failedItems.isEmpty() && retryableDocuments.isEmpty())) {
                     throw new BulkException(bulkResultWrapper);
                 }
 
                 // Update documents if only some failed
-                if (!failedDocuments.isEmpty() && failedDocuments.size() != documents.size()) {
+                if (!failedItems.isEmpty() && retryableDocuments.size() != documents.size()) {
+                    if (retryableDocuments.size() != failedItems.size()) {
+                        LOG.warn("Dropping {} document(s) which can not be persisted: {}",
+                                failedItems.size() - retryableDocuments.size(),
+                                failedItems.stream()
+                                        .filter(item -> !item.isRetryable() && item.getCause() != null)
+                                        .findFirst()
+                                        .map(item -> item.getCause().getMessage())
+                                        .orElse(null));
+                    }
+                    failedItems.stream()
+                            .filter(item -> !item.isRetryable())
+                            .forEach(droppedItems::add);
                     documents.clear();
-                    documents.addAll(failedDocuments);
+                    documents.addAll(retryableDocuments);
                 }
             } catch (IOException ex) {
                 // Prevent wrapping the BulkException
@@ -92,6 +112,13 @@ public class BulkRequest<T> {
         throw new IllegalStateException("The execution of the bulk request should have failed.");
     }
 
+    /**
+     * @return the items which failed for a reason that retrying can not fix and were therefore not sent again
+     */
+    public List<FailedItem<T>> getDroppedItems() {
+        return droppedItems;
+    }
+
     private boolean canRetry() {
         return retries < retryCount - 1;
     }
@@ -27,11 +27,17 @@ public class FailedItem<T> {
     private final T item;
     private final Exception cause;
     private final int index;
+    private final int status;
 
     public FailedItem(int index, T failedItem, Exception cause) {
+        this(index, failedItem, cause, 0);
+    }
+
+    public FailedItem(int index, T failedItem, Exception cause, int status) {
         this.index = index;
         this.item = Objects.requireNonNull(failedItem);
         this.cause = cause;
+        this.status = status;
     }
 
     public T getItem() {
@@ -45,4 +51,19 @@ public class FailedItem<T> {
     public int getIndex() {
         return index;
     }
+
+    /**
+     * The HTTP status of the item in the bulk response, or 0 if unknown.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether sending the item again may succeed: rejections (429), server side errors and unknown states are
+     * considered transient, while other client errors (i.e. mapping failures) will fail again.
+     */
+    public boolean isRetryable() {
+        return status == 0 || status == 429 || status >= 500;
+    }
 }
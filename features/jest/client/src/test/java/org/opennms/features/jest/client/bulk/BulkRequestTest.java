@@ -21,11 +21,27 @@
  */
 package org.opennms.features.jest.client.bulk;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.opennms.features.jest.client.JestClientWithCircuitBreaker;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Index;
 
 public class BulkRequestTest {
 
@@ -37,4 +53,37 @@ public class BulkRequestTest {
         assertThat(BulkRequest.SLEEP_TIME[BulkRequest.SLEEP_TIME.length - 1], Matchers.is(BulkRequest.getSleepTime(100)));
     }
 
+    @Test
+    public void verifyNonRetryableItemsAreDropped() throws Exception {
+        final long[] sleepTime = BulkRequest.SLEEP_TIME;
+        BulkRequest.SLEEP_TIME = new long[]{ 0 };
+        try {
+            final JestClientWithCircuitBreaker client = mock(JestClientWithCircuitBreaker.class);
+            when(client.execute(any(BulkWrapper.class))).thenReturn(
+                    createBulkResult(false, "{\"index\": {\"_index\": \"netflow\", \"status\": 201}},"
+                            + "{\"index\": {\"_index\": \"netflow\", \"status\": 429, \"error\": {\"type\": \"es_rejected_execution_exception\", \"reason\": \"rejected\"}}},"
+                            + "{\"index\": {\"_index\": \"netflow\", \"status\": 400, \"error\": {\"type\": \"mapper_parsing_exception\", \"reason\": \"failed to parse\"}}}"),
+                    createBulkResult(true, "{\"index\": {\"_index\": \"netflow\", \"status\": 201}}"));
+
+            final BulkRequest<String> bulkRequest = new BulkRequest<>(client, Arrays.asList("a", "b", "c"), documents -> {
+                final Bulk.Builder builder = new Bulk.Builder();
+                documents.forEach(document -> builder.addAction(new Index.Builder(document).index("netflow").build()));
+                return new BulkWrapper(builder);
+            }, 3);
+            bulkRequest.execute();
+
+            final List<FailedItem<String>> droppedItems = bulkRequest.getDroppedItems();
+            assertThat(droppedItems.stream().map(FailedItem::getItem).collect(Collectors.toList()), contains("c"));
+            assertThat(droppedItems.get(0).getStatus(), is(400));
+        } finally {
+            BulkRequest.SLEEP_TIME = sleepTime;
+        }
+    }
+
+    private static BulkResult createBulkResult(final boolean succeeded, final String items) {
+        final BulkResult bulkResult = new BulkResult(new Gson());
+        bulkResult.setSucceeded(succeeded);
+        bulkResult.setJsonObject(new JsonParser().parse("{\"errors\": " + !succeeded + ", \"items\": [" + items + "]}").getAsJsonObject());
+        return bulkResult;
+    }
 }
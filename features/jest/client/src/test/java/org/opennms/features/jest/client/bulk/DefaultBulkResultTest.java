@@ -0,0 +1,62 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.features.jest.client.bulk;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
+import io.searchbox.core.BulkResult;
+
+public class DefaultBulkResultTest {
+
+    @Test
+    public void verifyFailedItemsMatchTheirDocuments() {
+        final BulkResult bulkResult = new BulkResult(new Gson());
+        bulkResult.setSucceeded(false);
+        bulkResult.setJsonObject(new JsonParser().parse("{\"errors\": true, \"items\": ["
+                + "{\"index\": {\"_index\": \"netflow\", \"status\": 201}},"
+                + "{\"index\": {\"_index\": \"netflow\", \"status\": 429, \"error\": {\"type\": \"es_rejected_execution_exception\", \"reason\": \"rejected\"}}},"
+                + "{\"index\": {\"_index\": \"netflow\", \"status\": 201}},"
+                + "{\"index\": {\"_index\": \"netflow\", \"status\": 400, \"error\": {\"type\": \"mapper_parsing_exception\", \"reason\": \"failed to parse\"}}}"
+                + "]}").getAsJsonObject());
+
+        final DefaultBulkResult<String> result = new DefaultBulkResult<>(bulkResult, Arrays.asList("a", "b", "c", "d"));
+        final List<FailedItem<String>> failedItems = result.getFailedItems();
+
+        assertThat(failedItems.stream().map(FailedItem::getItem).collect(Collectors.toList()), contains("b", "d"));
+        assertThat(failedItems.stream().map(FailedItem::getIndex).collect(Collectors.toList()), contains(1, 3));
+        assertThat(failedItems.get(0).getStatus(), is(429));
+        assertThat(failedItems.get(0).isRetryable(), is(true));
+        assertThat(failedItems.get(1).getStatus(), is(400));
+        assertThat(failedItems.get(1).isRetryable(), is(false));
+    }
+}
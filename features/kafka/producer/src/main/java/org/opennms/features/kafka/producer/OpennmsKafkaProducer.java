@@ -23,6 +23,8 @@ package org.opennms.features.kafka.producer;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
@@ -39,8 +41,13 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jmx.JmxReporter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -73,6 +80,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -87,7 +96,11 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
             .build();
 
     public static final String KAFKA_CLIENT_PID = "org.opennms.features.kafka.producer.client";
-    private static final ExpressionParser SPEL_PARSER = new SpelExpressionParser();
+    public static final String METRICS_DOMAIN = "org.opennms.features.kafka.producer";
+    // The filters are evaluated for every event and alarm: let SpEL compile them to bytecode once they are hot
+    // and fall back to the interpreter for expressions that cannot be compiled
+    private static final ExpressionParser SPEL_PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, OpennmsKafkaProducer.class.getClassLoader()));
     private final ThreadFactory nodeUpdateThreadFactory = new ThreadFactoryBuilder()
             .setNameFormat("kafka-producer-node-update-%d")
             .build();
@@ -129,11 +142,16 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
     private final AlarmCallbackStateTracker stateTracker = new AlarmCallbackStateTracker();
     private final OnmsTopologyDao topologyDao;
     private int kafkaSendQueueCapacity;
-    private BlockingDeque<KafkaRecord> kafkaSendDeque;
-    private final ExecutorService kafkaSendQueueExecutor =
-            Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "KafkaSendQueueProcessor"));
+    private int kafkaSendQueueWorkers = 1;
+    private final List<BlockingDeque<KafkaRecord>> kafkaSendDeques = new ArrayList<>();
+    private final AtomicInteger unkeyedRecordCount = new AtomicInteger();
+    private ExecutorService kafkaSendQueueExecutor;
     private final ExecutorService nodeUpdateExecutor;
 
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final Map<String, TopicMetrics> topicMetrics = new ConcurrentHashMap<>();
+    private JmxReporter metricsReporter;
+
     private String encoding = "UTF8";
     private int numEventListenerThreads = 4;
 
@@ -170,8 +188,26 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
             LOG.info("Defaulted the 'kafkaSendQueueCapacity' to 1000 since no property was set");
         }
 
-        kafkaSendDeque = new LinkedBlockingDeque<>(kafkaSendQueueCapacity);
-        kafkaSendQueueExecutor.execute(this::processKafkaSendQueue);
+        if (kafkaSendQueueWorkers <= 0) {
+            kafkaSendQueueWorkers = 1;
+            LOG.info("Defaulted the 'kafkaSendQueueWorkers' to 1 since no property was set");
+        }
+
+        // Records are partitioned by key across the workers, so records with the same key are still sent in order
+        final int capacityPerWorker = Math.max(1, kafkaSendQueueCapacity / kafkaSendQueueWorkers);
+        kafkaSendQueueExecutor = Executors.newFixedThreadPool(kafkaSendQueueWorkers, new ThreadFactoryBuilder()
+                .setNameFormat("KafkaSendQueueProcessor-%d")
+                .build());
+        for (int i = 0; i < kafkaSendQueueWorkers; i++) {
+            final BlockingDeque<KafkaRecord> kafkaSendDeque = new LinkedBlockingDeque<>(capacityPerWorker);
+            kafkaSendDeques.add(kafkaSendDeque);
+            kafkaSendQueueExecutor.execute(() -> processKafkaSendQueue(kafkaSendDeque));
+        }
+        metrics.register("queue.size", (Gauge<Integer>) () -> kafkaSendDeques.stream().mapToInt(BlockingDeque::size).sum());
+        metricsReporter = JmxReporter.forRegistry(metrics)
+                .inDomain(METRICS_DOMAIN)
+                .build();
+        metricsReporter.start();
 
         if (forwardEvents) {
             eventSubscriptionService.addEventListener(this);
@@ -181,9 +217,16 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
     }
 
     public void destroy() {
-        kafkaSendQueueExecutor.shutdownNow();
+        if (kafkaSendQueueExecutor != null) {
+            kafkaSendQueueExecutor.shutdownNow();
+        }
         nodeUpdateExecutor.shutdownNow();
 
+        if (metricsReporter != null) {
+            metricsReporter.stop();
+            metricsReporter = null;
+        }
+
         if (producer != null) {
             producer.close();
             producer = null;
@@ -266,35 +309,33 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
 
     public boolean shouldForwardAlarm(OnmsAlarm alarm) {
         if (alarmFilterExpression != null) {
-            // The expression is not necessarily thread safe
-            synchronized (this) {
-                try {
-                    final boolean shouldForwardAlarm = alarmFilterExpression.getValue(alarm, Boolean.class);
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("Alarm {} not forwarded due to event filter: {}",
-                                alarm, alarmFilterExpression.getExpressionString());
-                    }
-                    return shouldForwardAlarm;
-                } catch (Exception e) {
-                    LOG.error("Alarm filter '{}' failed to return a result for event: {}. The alarm will be forwarded anyways.",
-                            alarmFilterExpression.getExpressionString(), alarm, e);
+            // Parsed expressions are thread safe, the state of an evaluation lives in its own evaluation context
+            try {
+                final boolean shouldForwardAlarm = alarmFilterExpression.getValue(alarm, Boolean.class);
+                if (LOG.isTraceEnabled() && !shouldForwardAlarm) {
+                    LOG.trace("Alarm {} not forwarded due to event filter: {}",
+                            alarm, alarmFilterExpression.getExpressionString());
                 }
+                return shouldForwardAlarm;
+            } catch (Exception e) {
+                LOG.error("Alarm filter '{}' failed to return a result for event: {}. The alarm will be forwarded anyways.",
+                        alarmFilterExpression.getExpressionString(), alarm, e);
             }
         }
         return true;
     }
 
-    private boolean isIncrementalAlarm(String reductionKey, OnmsAlarm alarm) {
+    private boolean isIncrementalAlarm(String reductionKey, OpennmsModelProtos.Alarm mappedAlarm) {
         OpennmsModelProtos.Alarm existingAlarm = outstandingAlarms.get(reductionKey);
-        return existingAlarm != null && alarmEqualityChecker.equalsExcludingOnFirst(protobufMapper.toAlarm(alarm),
+        return existingAlarm != null && alarmEqualityChecker.equalsExcludingOnFirst(mappedAlarm.toBuilder(),
                 existingAlarm);
     }
 
-    private void recordIncrementalAlarm(String reductionKey, OnmsAlarm alarm) {
+    private void recordIncrementalAlarm(String reductionKey, OpennmsModelProtos.Alarm mappedAlarm) {
         // Apply the excluded fields when putting to the map so we do not have to perform this calculation
         // on each equality check
         outstandingAlarms.put(reductionKey,
-                AlarmEqualityChecker.Exclusions.defaultExclusions(protobufMapper.toAlarm(alarm)).build());
+                AlarmEqualityChecker.Exclusions.defaultExclusions(mappedAlarm.toBuilder()).build());
     }
 
     private void updateAlarm(String reductionKey, OnmsAlarm alarm) {
@@ -320,7 +361,10 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
             return;
         }
 
-        if (suppressIncrementalAlarms && isIncrementalAlarm(reductionKey, alarm)) {
+        // Map the alarm once: the same message is used for the incremental check, the record and the
+        // outstanding alarms, and the entity is not touched again from the Kafka callback thread
+        final OpennmsModelProtos.Alarm mappedAlarm = protobufMapper.toAlarm(alarm).build();
+        if (suppressIncrementalAlarms && isIncrementalAlarm(reductionKey, mappedAlarm)) {
             return;
         }
 
@@ -331,14 +375,13 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
 
         // Forward!
         sendRecord(() -> {
-            final OpennmsModelProtos.Alarm mappedAlarm = protobufMapper.toAlarm(alarm).build();
             LOG.debug("Sending alarm with reduction key: {}", reductionKey);
             return new ProducerRecord<>(alarmTopic, reductionKey.getBytes(encoding), mappedAlarm.toByteArray());
         }, recordMetadata -> {
             // We've got an ACK from the server that the alarm was forwarded
             // Let other threads know when we've successfully forwarded an alarm
             if (suppressIncrementalAlarms) {
-                recordIncrementalAlarm(reductionKey, alarm);
+                recordIncrementalAlarm(reductionKey, mappedAlarm);
             }
             forwardedAlarm.countDown();
         });
@@ -403,22 +446,41 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
 
         // Any offer that fails due to capacity overflow will simply be dropped and will have to wait until the next
         // sync to be processed so this is just a best effort attempt
-        if (!kafkaSendDeque.offer(new KafkaRecord(record, callback))) {
+        final TopicMetrics recordMetrics = getTopicMetrics(record.topic());
+        if (getKafkaSendDeque(record).offer(new KafkaRecord(record, callback))) {
+            recordMetrics.queued.mark();
+        } else {
+            recordMetrics.dropped.mark();
             RATE_LIMITED_LOGGER.warn("Dropped a Kafka record due to queue capacity being full.");
         }
     }
 
-    private void processKafkaSendQueue() {
+    private BlockingDeque<KafkaRecord> getKafkaSendDeque(ProducerRecord<byte[], byte[]> record) {
+        if (kafkaSendDeques.size() == 1) {
+            return kafkaSendDeques.get(0);
+        }
+        // Records without a key have no ordering to keep, spread them evenly
+        final int hash = record.key() != null ? Arrays.hashCode(record.key()) : unkeyedRecordCount.getAndIncrement();
+        return kafkaSendDeques.get(Math.floorMod(hash, kafkaSendDeques.size()));
+    }
+
+    private TopicMetrics getTopicMetrics(String topic) {
+        return topicMetrics.computeIfAbsent(topic, t -> new TopicMetrics(metrics, t));
+    }
+
+    private void processKafkaSendQueue(BlockingDeque<KafkaRecord> kafkaSendDeque) {
         //noinspection InfiniteLoopStatement
         while (true) {
             try {
                 KafkaRecord kafkaRecord = kafkaSendDeque.take();
                 ProducerRecord<byte[], byte[]> producerRecord = kafkaRecord.getProducerRecord();
                 Consumer<RecordMetadata> consumer = kafkaRecord.getConsumer();
+                TopicMetrics recordMetrics = getTopicMetrics(producerRecord.topic());
 
                 try {
                     producer.send(producerRecord, (recordMetadata, e) -> {
                         if (e != null) {
+                            recordMetrics.failed.mark();
                             LOG.warn("Failed to send record to producer: {}.", producerRecord, e);
                             if (e instanceof TimeoutException) {
                                 // If Kafka is Offline, buffer the record again for events.
@@ -426,17 +488,20 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
                                 if (producerRecord != null &&
                                         this.eventTopic.equalsIgnoreCase(producerRecord.topic())) {
                                     if(!kafkaSendDeque.offerFirst(kafkaRecord)) {
+                                        recordMetrics.dropped.mark();
                                         RATE_LIMITED_LOGGER.warn("Dropped a Kafka record due to queue capacity being full.");
                                     }
                                 }
                             }
                             return;
                         }
+                        recordMetrics.sent.mark();
                         if (consumer != null) {
                             consumer.accept(recordMetadata);
                         }
                     });
                 } catch (RuntimeException e) {
+                    recordMetrics.failed.mark();
                     LOG.warn("Failed to send record to producer: {}.", producerRecord, e);
                 }
             } catch (InterruptedException ignore) {
@@ -613,6 +678,14 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
         this.kafkaSendQueueCapacity = kafkaSendQueueCapacity;
     }
 
+    public void setKafkaSendQueueWorkers(int kafkaSendQueueWorkers) {
+        this.kafkaSendQueueWorkers = kafkaSendQueueWorkers;
+    }
+
+    public MetricRegistry getMetrics() {
+        return metrics;
+    }
+
     @Override
     public int getNumThreads() {
         return numEventListenerThreads;
@@ -636,6 +709,24 @@ public class OpennmsKafkaProducer implements AlarmLifecycleListener, EventListen
         }
     }
 
+    /**
+     * Throughput of a single topic: records queued for sending, acknowledged by Kafka, failed to send and dropped
+     * because the send queue was full.
+     */
+    private static final class TopicMetrics {
+        private final Meter queued;
+        private final Meter sent;
+        private final Meter failed;
+        private final Meter dropped;
+
+        TopicMetrics(MetricRegistry metrics, String topic) {
+            queued = metrics.meter(MetricRegistry.name("topic", topic, "queued"));
+            sent = metrics.meter(MetricRegistry.name("topic", topic, "sent"));
+            failed = metrics.meter(MetricRegistry.name("topic", topic, "failed"));
+            dropped = metrics.meter(MetricRegistry.name("topic", topic, "dropped"));
+        }
+    }
+
     public CountDownLatch getForwardedTopologyVertexMessage() {
         return forwardedTopologyVertexMessage;
     }
@@ -0,0 +1,109 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.features.kafka.producer.datasync;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Order independent digests of a set of alarms, spread over a fixed number of buckets by reduction key.
+ * <p>
+ * Two sets of alarms that contain the same reduction keys with the same alarm bytes have the same digest in every
+ * bucket, so only the alarms in the buckets that differ need to be materialized and compared.
+ */
+class AlarmDigest {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final int MIN_BUCKETS = 16;
+    private static final int MAX_BUCKETS = 1 << 16;
+    private static final int ALARMS_PER_BUCKET = 32;
+
+    private final long[] digests;
+
+    AlarmDigest(int numBuckets) {
+        if (numBuckets <= 0) {
+            throw new IllegalArgumentException("The number of buckets must be positive: " + numBuckets);
+        }
+        digests = new long[numBuckets];
+    }
+
+    /**
+     * Chooses a number of buckets so that a single differing alarm only requires a few dozen alarms to be compared.
+     *
+     * @param numAlarms the expected number of alarms
+     * @return the number of buckets to use
+     */
+    static int getNumBuckets(int numAlarms) {
+        final int numBuckets = Integer.highestOneBit(Math.max(1, numAlarms / ALARMS_PER_BUCKET)) << 1;
+        return Math.min(MAX_BUCKETS, Math.max(MIN_BUCKETS, numBuckets));
+    }
+
+    int getNumBuckets() {
+        return digests.length;
+    }
+
+    int getBucket(String reductionKey) {
+        return getBucket(hashKey(reductionKey));
+    }
+
+    /**
+     * Adds the alarm with the given reduction key to its bucket.
+     *
+     * @param reductionKey the reduction key of the alarm
+     * @param alarmBytes the bytes to compare the alarm by, may be null
+     */
+    void add(String reductionKey, byte[] alarmBytes) {
+        final long keyHash = hashKey(reductionKey);
+        final long valueHash = alarmBytes != null ? HASH_FUNCTION.hashBytes(alarmBytes).asLong() : 0L;
+        // Summing keeps the digest independent of the order in which the alarms are added
+        digests[getBucket(keyHash)] += keyHash ^ (valueHash * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * @param other a digest with the same number of buckets
+     * @return the buckets with a different digest in the given digest
+     */
+    BitSet getDivergentBuckets(AlarmDigest other) {
+        if (other.digests.length != digests.length) {
+            throw new IllegalArgumentException("Digests have a different number of buckets: "
+                    + digests.length + " and " + other.digests.length);
+        }
+        final BitSet divergentBuckets = new BitSet(digests.length);
+        for (int i = 0; i < digests.length; i++) {
+            if (digests[i] != other.digests[i]) {
+                divergentBuckets.set(i);
+            }
+        }
+        return divergentBuckets;
+    }
+
+    private int getBucket(long keyHash) {
+        return (int) Math.floorMod(keyHash, (long) digests.length);
+    }
+
+    private static long hashKey(String reductionKey) {
+        return HASH_FUNCTION.hashString(reductionKey, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -36,6 +36,11 @@ public class AlarmSyncResults {
     private final Set<String> reductionKeysAdded;
     private final Set<String> reductionKeysDeleted;
     private final Set<String> reductionKeysUpdated;
+    private final int numReductionKeysInKtable;
+    private final int numReductionKeysInDb;
+    private final int numAlarmsInDb;
+    private final int numBuckets;
+    private final int numDivergentBuckets;
 
     public AlarmSyncResults(Map<String, OpennmsModelProtos.Alarm> alarmsInKtableByReductionKey,
                             List<OnmsAlarm> alarmsInDb,
@@ -43,12 +48,37 @@ public class AlarmSyncResults {
                             Set<String> reductionKeysAdded,
                             Set<String> reductionKeysDeleted,
                             Set<String> reductionKeysUpdated) {
+        this(alarmsInKtableByReductionKey, alarmsInDb, alarmsInDbByReductionKey, reductionKeysAdded,
+                reductionKeysDeleted, reductionKeysUpdated, alarmsInKtableByReductionKey.size(),
+                alarmsInDbByReductionKey.size(), alarmsInDb.size(), 0, 0);
+    }
+
+    /**
+     * Results of a synchronization that only compared the alarms in the buckets that diverged. The given maps and
+     * lists only hold the alarms of these buckets, the totals are given separately.
+     */
+    public AlarmSyncResults(Map<String, OpennmsModelProtos.Alarm> alarmsInKtableByReductionKey,
+                            List<OnmsAlarm> alarmsInDb,
+                            Map<String, OnmsAlarm> alarmsInDbByReductionKey,
+                            Set<String> reductionKeysAdded,
+                            Set<String> reductionKeysDeleted,
+                            Set<String> reductionKeysUpdated,
+                            int numReductionKeysInKtable,
+                            int numReductionKeysInDb,
+                            int numAlarmsInDb,
+                            int numBuckets,
+                            int numDivergentBuckets) {
         this.alarmsInKtableByReductionKey = Objects.requireNonNull(alarmsInKtableByReductionKey);
         this.alarmsInDb = Objects.requireNonNull(alarmsInDb);
         this.alarmsInDbByReductionKey = Objects.requireNonNull(alarmsInDbByReductionKey);
         this.reductionKeysAdded = Objects.requireNonNull(reductionKeysAdded);
         this.reductionKeysDeleted = Objects.requireNonNull(reductionKeysDeleted);
         this.reductionKeysUpdated = Objects.requireNonNull(reductionKeysUpdated);
+        this.numReductionKeysInKtable = numReductionKeysInKtable;
+        this.numReductionKeysInDb = numReductionKeysInDb;
+        this.numAlarmsInDb = numAlarmsInDb;
+        this.numBuckets = numBuckets;
+        this.numDivergentBuckets = numDivergentBuckets;
     }
 
     public Map<String, OpennmsModelProtos.Alarm> getAlarmsInKtableByReductionKey() {
@@ -75,6 +105,29 @@ public class AlarmSyncResults {
         return reductionKeysUpdated;
     }
 
+    public int getNumReductionKeysInKtable() {
+        return numReductionKeysInKtable;
+    }
+
+    public int getNumReductionKeysInDb() {
+        return numReductionKeysInDb;
+    }
+
+    public int getNumAlarmsInDb() {
+        return numAlarmsInDb;
+    }
+
+    /**
+     * @return the number of buckets the alarms were compared in, 0 if all of the alarms were compared
+     */
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+
+    public int getNumDivergentBuckets() {
+        return numDivergentBuckets;
+    }
+
     public int getNumUpdates() {
         return getReductionKeysAdded().size()
                 + getReductionKeysDeleted().size()
@@ -25,8 +25,10 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.BitSet;
 import java.util.Dictionary;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -45,6 +47,7 @@ import org.apache.kafka.common.config.SecurityConfig;
 import org.apache.kafka.common.config.SslConfigs;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StoreQueryParameters;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.StreamsConfig;
@@ -56,6 +59,7 @@ import org.apache.kafka.streams.kstream.GlobalKTable;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.KTable;
 import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.state.KeyValueIterator;
 import org.apache.kafka.streams.state.QueryableStoreTypes;
 import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
 import org.opennms.core.ipc.common.kafka.Utils;
@@ -69,6 +73,9 @@ import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -97,11 +104,25 @@ public class KafkaAlarmDataSync implements AlarmDataStore, Runnable {
     private final AlarmEqualityChecker alarmEqualityChecker =
             AlarmEqualityChecker.with(AlarmEqualityChecker.Exclusions::defaultExclusions);
     private boolean suppressIncrementalAlarms;
+    private boolean streamingAlarmSync = false;
+
+    private final Timer syncTimer;
+    private final Histogram syncAdded;
+    private final Histogram syncDeleted;
+    private final Histogram syncUpdated;
+    private final Histogram syncDivergentBuckets;
 
     public KafkaAlarmDataSync(ConfigurationAdmin configAdmin, OpennmsKafkaProducer kafkaProducer, ProtobufMapper protobufMapper) {
         this.configAdmin = Objects.requireNonNull(configAdmin);
         this.kafkaProducer = Objects.requireNonNull(kafkaProducer);
         this.protobufMapper = Objects.requireNonNull(protobufMapper);
+
+        final MetricRegistry metrics = kafkaProducer.getMetrics();
+        syncTimer = metrics.timer("alarm.sync.duration");
+        syncAdded = metrics.histogram("alarm.sync.added");
+        syncDeleted = metrics.histogram("alarm.sync.deleted");
+        syncUpdated = metrics.histogram("alarm.sync.updated");
+        syncDivergentBuckets = metrics.histogram("alarm.sync.buckets.divergent");
     }
 
     /**
@@ -204,72 +225,30 @@ public class KafkaAlarmDataSync implements AlarmDataStore, Runnable {
 
         LOG.debug("Performing alarm synchronization with ktable.");
         final AlarmSyncResults results;
+        final Timer.Context syncTimerContext = syncTimer.time();
         try {
-            // Retrieve the map of alarms by reduction key from the ktable
-            final Map<String, OpennmsModelProtos.Alarm> alarmsInKtableByReductionKey = getAlarms();
-
-            final Set<String> reductionKeysInKtable = alarmsInKtableByReductionKey.keySet();
-
             // Use the given alarms and apply the filter (if any) to these
             // This represents the set of alarms that should be in the ktable at the given timestamp
             final List<OnmsAlarm> alarmsInDb = alarms.stream()
                     .filter(kafkaProducer::shouldForwardAlarm)
                     .collect(Collectors.toList());
 
-            final Map<String, OnmsAlarm> alarmsInDbByReductionKey = alarmsInDb.stream()
-                    .collect(Collectors.toMap(OnmsAlarm::getReductionKey, a -> a));
-            final Set<String> reductionKeysInDb = alarmsInDbByReductionKey.keySet();
-
-            // Grab a reference to the state tracker
-            final AlarmCallbackStateTracker stateTracker = kafkaProducer.getAlarmCallbackStateTracker();
-
-            // Push deletes for keys that are in the ktable, but not in the database
-            final Set<String> reductionKeysNotInDb = Sets.difference(reductionKeysInKtable, reductionKeysInDb).stream()
-                    // Only remove it if the alarm we have dates before the snapshot
-                    .filter(reductionKey -> !stateTracker.wasAlarmWithReductionKeyUpdated(reductionKey))
-                    .collect(Collectors.toSet());
-            reductionKeysNotInDb.forEach(rkey -> kafkaProducer.handleDeletedAlarm((int)alarmsInKtableByReductionKey.get(rkey).getId(), rkey));
-
-            // Push new entries for keys that are in the database, but not in the ktable
-            final Set<String> reductionKeysNotInKtable = Sets.difference(reductionKeysInDb, reductionKeysInKtable).stream()
-                    // Unless we've deleted the alarm after the snapshot time
-                    .filter(reductionKey -> !stateTracker.wasAlarmWithReductionKeyDeleted(reductionKey))
-                    .collect(Collectors.toSet());
-            reductionKeysNotInKtable.forEach(rkey -> kafkaProducer.handleNewOrUpdatedAlarm(alarmsInDbByReductionKey.get(rkey)));
-
-            // Handle Updates
-            final Set<String> reductionKeysUpdated = new LinkedHashSet<>();
-            final Set<String> commonReductionKeys = Sets.intersection(reductionKeysInKtable, reductionKeysInDb);
-            commonReductionKeys.forEach(rkey -> {
-                // Don't bother updating the alarm if the one we we have is more recent than the snapshot
-                if (stateTracker.wasAlarmWithReductionKeyUpdated(rkey)) {
-                    return;
-                }
-
-                final OnmsAlarm dbAlarm = alarmsInDbByReductionKey.get(rkey);
-                final OpennmsModelProtos.Alarm.Builder mappedDbAlarm = protobufMapper.toAlarm(dbAlarm);
-                final OpennmsModelProtos.Alarm alarmFromKtable = alarmsInKtableByReductionKey.get(rkey);
-                final OpennmsModelProtos.Alarm.Builder alarmBuilderFromKtable =
-                        alarmsInKtableByReductionKey.get(rkey).toBuilder();
-
-                if ((suppressIncrementalAlarms && !alarmEqualityChecker.equalsExcludingOnBoth(mappedDbAlarm,
-                        alarmBuilderFromKtable)) || (!suppressIncrementalAlarms && !Objects.equals(mappedDbAlarm.build(),
-                        alarmFromKtable))) {
-                    kafkaProducer.handleNewOrUpdatedAlarm(dbAlarm);
-                    reductionKeysUpdated.add(rkey);
-                }
-            });
-
-            results = new AlarmSyncResults(alarmsInKtableByReductionKey, alarmsInDb, alarmsInDbByReductionKey,
-                    reductionKeysNotInKtable, reductionKeysNotInDb, reductionKeysUpdated);
+            results = streamingAlarmSync ? synchronizeDivergentBuckets(getAlarmTableNow(), alarmsInDb) : synchronize(getAlarms(), alarmsInDb);
         } catch (Exception e) {
             LOG.error("An error occurred while performing alarm synchronization with the ktable. Will try again on next callback.", e);
             return null;
+        } finally {
+            syncTimerContext.stop();
         }
 
+        syncAdded.update(results.getReductionKeysAdded().size());
+        syncDeleted.update(results.getReductionKeysDeleted().size());
+        syncUpdated.update(results.getReductionKeysUpdated().size());
+        syncDivergentBuckets.update(results.getNumDivergentBuckets());
+
         if (LOG.isDebugEnabled()) {
             LOG.debug("Done performing alarm synchronization with the ktable for {} alarms. Executed {} updates.",
-                    results.getAlarmsInDb().size(),
+                    results.getNumAlarmsInDb(),
                     results.getReductionKeysAdded().size()
                             + results.getReductionKeysDeleted().size()
                             + results.getReductionKeysUpdated().size());
@@ -281,7 +260,148 @@ public class KafkaAlarmDataSync implements AlarmDataStore, Runnable {
         return results;
     }
 
+    /**
+     * Compares the given alarms with all of the alarms in the ktable and pushes the differences.
+     *
+     * @param alarmsInKtableByReductionKey the alarms in the ktable
+     * @param alarmsInDb the alarms from the database that should be in the ktable
+     * @return the results of the synchronization
+     */
+    AlarmSyncResults synchronize(Map<String, OpennmsModelProtos.Alarm> alarmsInKtableByReductionKey,
+                                 List<OnmsAlarm> alarmsInDb) {
+        final Set<String> reductionKeysInKtable = alarmsInKtableByReductionKey.keySet();
+
+        final Map<String, OnmsAlarm> alarmsInDbByReductionKey = alarmsInDb.stream()
+                .collect(Collectors.toMap(OnmsAlarm::getReductionKey, a -> a));
+        final Set<String> reductionKeysInDb = alarmsInDbByReductionKey.keySet();
+
+        // Grab a reference to the state tracker
+        final AlarmCallbackStateTracker stateTracker = kafkaProducer.getAlarmCallbackStateTracker();
+
+        // Push deletes for keys that are in the ktable, but not in the database
+        final Set<String> reductionKeysNotInDb = Sets.difference(reductionKeysInKtable, reductionKeysInDb).stream()
+                // Only remove it if the alarm we have dates before the snapshot
+                .filter(reductionKey -> !stateTracker.wasAlarmWithReductionKeyUpdated(reductionKey))
+                .collect(Collectors.toSet());
+        reductionKeysNotInDb.forEach(rkey -> kafkaProducer.handleDeletedAlarm((int)alarmsInKtableByReductionKey.get(rkey).getId(), rkey));
+
+        // Push new entries for keys that are in the database, but not in the ktable
+        final Set<String> reductionKeysNotInKtable = Sets.difference(reductionKeysInDb, reductionKeysInKtable).stream()
+                // Unless we've deleted the alarm after the snapshot time
+                .filter(reductionKey -> !stateTracker.wasAlarmWithReductionKeyDeleted(reductionKey))
+                .collect(Collectors.toSet());
+        reductionKeysNotInKtable.forEach(rkey -> kafkaProducer.handleNewOrUpdatedAlarm(alarmsInDbByReductionKey.get(rkey)));
+
+        // Handle Updates
+        final Set<String> reductionKeysUpdated = new LinkedHashSet<>();
+        final Set<String> commonReductionKeys = Sets.intersection(reductionKeysInKtable, reductionKeysInDb);
+        commonReductionKeys.forEach(rkey -> {
+            // Don't bother updating the alarm if the one we we have is more recent than the snapshot
+            if (stateTracker.wasAlarmWithReductionKeyUpdated(rkey)) {
+                return;
+            }
+
+            final OnmsAlarm dbAlarm = alarmsInDbByReductionKey.get(rkey);
+            final OpennmsModelProtos.Alarm.Builder mappedDbAlarm = protobufMapper.toAlarm(dbAlarm);
+            final OpennmsModelProtos.Alarm alarmFromKtable = alarmsInKtableByReductionKey.get(rkey);
+            final OpennmsModelProtos.Alarm.Builder alarmBuilderFromKtable =
+                    alarmsInKtableByReductionKey.get(rkey).toBuilder();
+
+            if ((suppressIncrementalAlarms && !alarmEqualityChecker.equalsExcludingOnBoth(mappedDbAlarm,
+                    alarmBuilderFromKtable)) || (!suppressIncrementalAlarms && !Objects.equals(mappedDbAlarm.build(),
+                    alarmFromKtable))) {
+                kafkaProducer.handleNewOrUpdatedAlarm(dbAlarm);
+                reductionKeysUpdated.add(rkey);
+            }
+        });
+
+        return new AlarmSyncResults(alarmsInKtableByReductionKey, alarmsInDb, alarmsInDbByReductionKey,
+                reductionKeysNotInKtable, reductionKeysNotInDb, reductionKeysUpdated);
+    }
+
+    /**
+     * Streams over the ktable and the given alarms to build a digest of both sides per bucket of reduction keys,
+     * and only materializes and compares the alarms of the buckets that differ.
+     *
+     * @param alarmTable the store backing the ktable
+     * @param alarmsInDb the alarms from the database that should be in the ktable
+     * @return the results of the synchronization, holding the alarms of the divergent buckets only
+     */
+    AlarmSyncResults synchronizeDivergentBuckets(ReadOnlyKeyValueStore<String, byte[]> alarmTable,
+                                                 List<OnmsAlarm> alarmsInDb) {
+        final int numBuckets = AlarmDigest.getNumBuckets(alarmsInDb.size());
+
+        final AlarmDigest ktableDigest = new AlarmDigest(numBuckets);
+        int numReductionKeysInKtable = 0;
+        try (KeyValueIterator<String, byte[]> it = alarmTable.all()) {
+            while (it.hasNext()) {
+                final KeyValue<String, byte[]> kv = it.next();
+                ktableDigest.add(kv.key, toComparableBytes(kv.key, kv.value));
+                numReductionKeysInKtable++;
+            }
+        }
+
+        final AlarmDigest dbDigest = new AlarmDigest(numBuckets);
+        final Set<String> reductionKeysInDb = new HashSet<>();
+        for (OnmsAlarm alarm : alarmsInDb) {
+            dbDigest.add(alarm.getReductionKey(), toComparableBytes(protobufMapper.toAlarm(alarm)));
+            reductionKeysInDb.add(alarm.getReductionKey());
+        }
+
+        final BitSet divergentBuckets = ktableDigest.getDivergentBuckets(dbDigest);
+        final Map<String, OpennmsModelProtos.Alarm> divergentAlarmsInKtable = new LinkedHashMap<>();
+        if (!divergentBuckets.isEmpty()) {
+            try (KeyValueIterator<String, byte[]> it = alarmTable.all()) {
+                while (it.hasNext()) {
+                    final KeyValue<String, byte[]> kv = it.next();
+                    if (divergentBuckets.get(ktableDigest.getBucket(kv.key))) {
+                        divergentAlarmsInKtable.put(kv.key, parseAlarm(kv.key, kv.value));
+                    }
+                }
+            }
+        }
+        final List<OnmsAlarm> divergentAlarmsInDb = alarmsInDb.stream()
+                .filter(alarm -> divergentBuckets.get(dbDigest.getBucket(alarm.getReductionKey())))
+                .collect(Collectors.toList());
+
+        final AlarmSyncResults results = synchronize(divergentAlarmsInKtable, divergentAlarmsInDb);
+        return new AlarmSyncResults(results.getAlarmsInKtableByReductionKey(), results.getAlarmsInDb(),
+                results.getAlarmsInDbByReductionKey(), results.getReductionKeysAdded(),
+                results.getReductionKeysDeleted(), results.getReductionKeysUpdated(),
+                numReductionKeysInKtable, reductionKeysInDb.size(), alarmsInDb.size(), numBuckets,
+                divergentBuckets.cardinality());
+    }
+
+    /**
+     * The bytes of an alarm in the ktable as they are compared with the alarms from the database. Alarms that
+     * fail to parse are compared by their raw bytes, which puts them in a divergent bucket.
+     */
+    private byte[] toComparableBytes(String reductionKey, byte[] alarmBytes) {
+        if (alarmBytes == null || !suppressIncrementalAlarms) {
+            return alarmBytes;
+        }
+        final OpennmsModelProtos.Alarm alarm = parseAlarm(reductionKey, alarmBytes);
+        return alarm != null ? toComparableBytes(alarm.toBuilder()) : alarmBytes;
+    }
 
+    private byte[] toComparableBytes(OpennmsModelProtos.Alarm.Builder alarm) {
+        if (suppressIncrementalAlarms) {
+            AlarmEqualityChecker.Exclusions.defaultExclusions(alarm);
+        }
+        return alarm.build().toByteArray();
+    }
+
+    private static OpennmsModelProtos.Alarm parseAlarm(String reductionKey, byte[] alarmBytes) {
+        if (alarmBytes == null) {
+            return null;
+        }
+        try {
+            return OpennmsModelProtos.Alarm.parseFrom(alarmBytes);
+        } catch (InvalidProtocolBufferException e) {
+            LOG.error("Failed to parse alarm for bytes at reduction key '{}'. Alarm will be empty in map.", reductionKey);
+            return null;
+        }
+    }
 
     private Properties loadStreamsProperties() throws IOException {
         final Properties streamsProperties = new Properties();
@@ -357,14 +477,9 @@ public class KafkaAlarmDataSync implements AlarmDataStore, Runnable {
     @Override
     public Map<String, OpennmsModelProtos.Alarm> getAlarms() {
         final Map<String, OpennmsModelProtos.Alarm> alarmsByReductionKey = new LinkedHashMap<>();
-        getAlarmTableNow().all().forEachRemaining(kv -> {
-            try {
-                alarmsByReductionKey.put(kv.key, kv.value != null ? OpennmsModelProtos.Alarm.parseFrom(kv.value) : null);
-            } catch (InvalidProtocolBufferException e) {
-                LOG.error("Failed to parse alarm for bytes at reduction key '{}'. Alarm will be empty in map.", kv.key);
-                alarmsByReductionKey.put(kv.key, null);
-            }
-        });
+        try (KeyValueIterator<String, byte[]> it = getAlarmTableNow().all()) {
+            it.forEachRemaining(kv -> alarmsByReductionKey.put(kv.key, parseAlarm(kv.key, kv.value)));
+        }
         return alarmsByReductionKey;
     }
 
@@ -381,4 +496,8 @@ public class KafkaAlarmDataSync implements AlarmDataStore, Runnable {
     public void setSuppressIncrementalAlarms(boolean suppressIncrementalAlarms) {
         this.suppressIncrementalAlarms = suppressIncrementalAlarms;
     }
+
+    public void setStreamingAlarmSync(boolean streamingAlarmSync) {
+        this.streamingAlarmSync = streamingAlarmSync;
+    }
 }
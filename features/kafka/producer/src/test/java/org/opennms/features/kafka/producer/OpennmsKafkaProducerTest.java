@@ -0,0 +1,74 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.features.kafka.producer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.opennms.netmgt.events.api.EventSubscriptionService;
+import org.opennms.netmgt.model.OnmsAlarm;
+import org.opennms.netmgt.topologies.service.api.OnmsTopologyDao;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+/**
+ * Tests for {@link OpennmsKafkaProducer}.
+ */
+public class OpennmsKafkaProducerTest {
+    /**
+     * Tests that the alarm filter gives the same results when it is evaluated from many threads at once, including
+     * after the expression has been compiled.
+     */
+    @Test
+    public void testAlarmFilterEvaluatedConcurrently() throws Exception {
+        final OpennmsKafkaProducer kafkaProducer = new OpennmsKafkaProducer(mock(ProtobufMapper.class),
+                mock(NodeCache.class), mock(ConfigurationAdmin.class), mock(EventSubscriptionService.class),
+                mock(OnmsTopologyDao.class), 1);
+        kafkaProducer.setAlarmFilter("getReductionKey().startsWith('uei.opennms.org/forward')");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Callable<Boolean>> evaluations = IntStream.range(0, 2000)
+                    .mapToObj(i -> (Callable<Boolean>) () -> {
+                        final OnmsAlarm alarm = new OnmsAlarm();
+                        alarm.setReductionKey((i % 2 == 0 ? "uei.opennms.org/forward" : "uei.opennms.org/drop") + ":" + i);
+                        return kafkaProducer.shouldForwardAlarm(alarm) == (i % 2 == 0);
+                    })
+                    .collect(Collectors.toList());
+            for (Future<Boolean> result : executor.invokeAll(evaluations)) {
+                assertThat(result.get(), is(equalTo(true)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
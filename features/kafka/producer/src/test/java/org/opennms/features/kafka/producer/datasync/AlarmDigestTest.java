@@ -0,0 +1,91 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.features.kafka.producer.datasync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link AlarmDigest}.
+ */
+public class AlarmDigestTest {
+    /**
+     * Tests that the digests do not depend on the order in which the alarms are added.
+     */
+    @Test
+    public void testDigestsIgnoreOrder() {
+        final AlarmDigest a = new AlarmDigest(16);
+        final AlarmDigest b = new AlarmDigest(16);
+        for (int i = 0; i < 1000; i++) {
+            a.add("rkey:" + i, bytes("alarm" + i));
+            b.add("rkey:" + (999 - i), bytes("alarm" + (999 - i)));
+        }
+
+        assertThat(a.getDivergentBuckets(b).isEmpty(), is(equalTo(true)));
+    }
+
+    /**
+     * Tests that only the buckets of the alarms that were added, removed or changed diverge.
+     */
+    @Test
+    public void testOnlyBucketsWithDifferencesDiverge() {
+        final AlarmDigest a = new AlarmDigest(64);
+        final AlarmDigest b = new AlarmDigest(64);
+        for (int i = 0; i < 1000; i++) {
+            a.add("rkey:" + i, bytes("alarm" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            if (i == 10) {
+                // Deleted
+                continue;
+            }
+            b.add("rkey:" + i, bytes(i == 20 ? "changed" : "alarm" + i));
+        }
+        b.add("rkey:new", bytes("alarm"));
+
+        final BitSet expected = new BitSet();
+        expected.set(a.getBucket("rkey:10"));
+        expected.set(a.getBucket("rkey:20"));
+        expected.set(a.getBucket("rkey:new"));
+        assertThat(a.getDivergentBuckets(b), is(equalTo(expected)));
+    }
+
+    /**
+     * Tests that the number of buckets grows with the number of alarms within its bounds.
+     */
+    @Test
+    public void testNumBuckets() {
+        assertThat(AlarmDigest.getNumBuckets(0), is(equalTo(16)));
+        assertThat(AlarmDigest.getNumBuckets(100_000), is(equalTo(4096)));
+        assertThat(AlarmDigest.getNumBuckets(Integer.MAX_VALUE), is(equalTo(1 << 16)));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
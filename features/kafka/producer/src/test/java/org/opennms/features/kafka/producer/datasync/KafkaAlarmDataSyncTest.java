@@ -0,0 +1,213 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.features.kafka.producer.datasync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.features.kafka.producer.OpennmsKafkaProducer;
+import org.opennms.features.kafka.producer.ProtobufMapper;
+import org.opennms.features.kafka.producer.model.OpennmsModelProtos;
+import org.opennms.netmgt.alarmd.api.AlarmCallbackStateTracker;
+import org.opennms.netmgt.model.OnmsAlarm;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Tests for {@link KafkaAlarmDataSync}.
+ */
+public class KafkaAlarmDataSyncTest {
+
+    private static final int NUM_ALARMS = 1000;
+
+    private final Map<String, byte[]> ktable = new LinkedHashMap<>();
+    private ReadOnlyKeyValueStore<String, byte[]> alarmTable;
+    private OpennmsKafkaProducer kafkaProducer;
+    private KafkaAlarmDataSync dataSync;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final ProtobufMapper protobufMapper = mock(ProtobufMapper.class);
+        when(protobufMapper.toAlarm(any(OnmsAlarm.class))).thenAnswer(invocation -> toAlarm(invocation.getArgument(0)));
+
+        kafkaProducer = mock(OpennmsKafkaProducer.class);
+        when(kafkaProducer.getMetrics()).thenReturn(new MetricRegistry());
+        when(kafkaProducer.getAlarmCallbackStateTracker()).thenReturn(new AlarmCallbackStateTracker());
+
+        alarmTable = mock(ReadOnlyKeyValueStore.class);
+        when(alarmTable.all()).thenAnswer(invocation -> new MapIterator(ktable));
+
+        dataSync = new KafkaAlarmDataSync(mock(ConfigurationAdmin.class), kafkaProducer, protobufMapper);
+    }
+
+    /**
+     * Tests that nothing is compared nor pushed when the ktable matches the database.
+     */
+    @Test
+    public void testNoDivergentBuckets() {
+        final List<OnmsAlarm> alarmsInDb = createAlarms();
+        alarmsInDb.forEach(alarm -> ktable.put(alarm.getReductionKey(), toAlarm(alarm).build().toByteArray()));
+
+        final AlarmSyncResults results = dataSync.synchronizeDivergentBuckets(alarmTable, alarmsInDb);
+
+        assertThat(results.getNumDivergentBuckets(), is(equalTo(0)));
+        assertThat(results.getNumUpdates(), is(equalTo(0)));
+        assertThat(results.getAlarmsInDb().isEmpty(), is(equalTo(true)));
+        assertThat(results.getAlarmsInKtableByReductionKey().isEmpty(), is(equalTo(true)));
+        assertThat(results.getNumReductionKeysInKtable(), is(equalTo(NUM_ALARMS)));
+        assertThat(results.getNumReductionKeysInDb(), is(equalTo(NUM_ALARMS)));
+        assertThat(results.getNumAlarmsInDb(), is(equalTo(NUM_ALARMS)));
+        verify(kafkaProducer, never()).handleNewOrUpdatedAlarm(any(OnmsAlarm.class));
+    }
+
+    /**
+     * Tests that alarms that changed, are missing from or are extra in the ktable are reconciled like
+     * a full synchronization would, by only comparing the alarms of the buckets they fall in.
+     */
+    @Test
+    public void testDivergentBuckets() {
+        final List<OnmsAlarm> alarmsInDb = createAlarms();
+        alarmsInDb.forEach(alarm -> ktable.put(alarm.getReductionKey(), toAlarm(alarm).build().toByteArray()));
+        // Updated in the database
+        alarmsInDb.get(10).setDescription("changed");
+        // Missing from the ktable
+        ktable.remove(alarmsInDb.get(20).getReductionKey());
+        // Extra in the ktable
+        final OnmsAlarm deletedAlarm = createAlarm(NUM_ALARMS);
+        ktable.put(deletedAlarm.getReductionKey(), toAlarm(deletedAlarm).build().toByteArray());
+
+        final AlarmSyncResults results = dataSync.synchronizeDivergentBuckets(alarmTable, alarmsInDb);
+
+        assertThat(results.getReductionKeysUpdated(), is(equalTo(keys(alarmsInDb.get(10)))));
+        assertThat(results.getReductionKeysAdded(), is(equalTo(keys(alarmsInDb.get(20)))));
+        assertThat(results.getReductionKeysDeleted(), is(equalTo(keys(deletedAlarm))));
+        verify(kafkaProducer).handleNewOrUpdatedAlarm(alarmsInDb.get(10));
+        verify(kafkaProducer).handleNewOrUpdatedAlarm(alarmsInDb.get(20));
+        verify(kafkaProducer).handleDeletedAlarm(NUM_ALARMS, deletedAlarm.getReductionKey());
+
+        // Only the alarms of the divergent buckets were compared
+        final AlarmDigest digest = new AlarmDigest(results.getNumBuckets());
+        final long numDivergentBuckets = keys(alarmsInDb.get(10), alarmsInDb.get(20), deletedAlarm).stream()
+                .map(digest::getBucket)
+                .distinct()
+                .count();
+        assertThat((long) results.getNumDivergentBuckets(), is(equalTo(numDivergentBuckets)));
+        assertThat(results.getAlarmsInDb().size() < NUM_ALARMS / 4, is(equalTo(true)));
+        assertThat(results.getNumReductionKeysInKtable(), is(equalTo(NUM_ALARMS)));
+        assertThat(results.getNumReductionKeysInDb(), is(equalTo(NUM_ALARMS)));
+
+        // Same changes as when comparing all of the alarms
+        final Map<String, OpennmsModelProtos.Alarm> alarmsInKtable = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : ktable.entrySet()) {
+            alarmsInKtable.put(entry.getKey(), parse(entry.getValue()));
+        }
+        final AlarmSyncResults fullResults = dataSync.synchronize(alarmsInKtable, alarmsInDb);
+        assertThat(results.getReductionKeysUpdated(), is(equalTo(fullResults.getReductionKeysUpdated())));
+        assertThat(results.getReductionKeysAdded(), is(equalTo(fullResults.getReductionKeysAdded())));
+        assertThat(results.getReductionKeysDeleted(), is(equalTo(fullResults.getReductionKeysDeleted())));
+    }
+
+    private static List<OnmsAlarm> createAlarms() {
+        return IntStream.range(0, NUM_ALARMS)
+                .mapToObj(KafkaAlarmDataSyncTest::createAlarm)
+                .collect(Collectors.toList());
+    }
+
+    private static OnmsAlarm createAlarm(int id) {
+        final OnmsAlarm alarm = new OnmsAlarm();
+        alarm.setId(id);
+        alarm.setReductionKey("uei.opennms.org/test:" + id);
+        alarm.setDescription("alarm " + id);
+        return alarm;
+    }
+
+    private static OpennmsModelProtos.Alarm.Builder toAlarm(OnmsAlarm alarm) {
+        return OpennmsModelProtos.Alarm.newBuilder()
+                .setId(alarm.getId())
+                .setReductionKey(alarm.getReductionKey())
+                .setDescription(alarm.getDescription());
+    }
+
+    private static OpennmsModelProtos.Alarm parse(byte[] bytes) {
+        try {
+            return OpennmsModelProtos.Alarm.parseFrom(bytes);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static HashSet<String> keys(OnmsAlarm... alarms) {
+        return Arrays.stream(alarms)
+                .map(OnmsAlarm::getReductionKey)
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static class MapIterator implements KeyValueIterator<String, byte[]> {
+        private final Iterator<Map.Entry<String, byte[]>> it;
+
+        private MapIterator(Map<String, byte[]> map) {
+            it = map.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public KeyValue<String, byte[]> next() {
+            final Map.Entry<String, byte[]> entry = it.next();
+            return KeyValue.pair(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String peekNextKey() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -23,6 +23,7 @@ package org.opennms.netmgt.telemetry.listeners;
 
 import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -53,6 +54,10 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.DatagramPacket;
@@ -71,21 +76,24 @@ public class UdpListener implements GracefulShutdownListener {
     private final String name;
     private final List<UdpParser> parsers;
 
+    private final MetricRegistry metrics;
     private final Meter packetsReceived;
+    private final Meter packetsDropped;
 
     private EventLoopGroup bossGroup;
-    private ChannelFuture socketFuture;
+    private final List<ChannelFuture> socketFutures = new ArrayList<>();
 
     private String host = null;
     private int port = 50000;
     private int maxPacketSize = 8096;
+    private int channels = 1;
 
     private Future<String> stopFuture;
 
     public UdpListener(final String name, final List<UdpParser> parsers, final MetricRegistry metrics) {
         this.name = Objects.requireNonNull(name);
         this.parsers = Objects.requireNonNull(parsers);
-        Objects.requireNonNull(metrics);
+        this.metrics = Objects.requireNonNull(metrics);
 
         if (this.parsers.isEmpty()) {
             throw new IllegalArgumentException("At least 1 parsers must be defined");
@@ -97,13 +105,27 @@ public class UdpListener implements GracefulShutdownListener {
         }
 
         packetsReceived = metrics.meter(MetricRegistry.name("listeners",  name, "packetsReceived"));
+        packetsDropped = metrics.meter(MetricRegistry.name("listeners",  name, "packetsDropped"));
     }
 
     public void start() throws InterruptedException {
+        // Binding more than one channel to the same port requires SO_REUSEPORT, which is only
+        // exposed by the native epoll transport. The kernel hashes the 4-tuple of each datagram
+        // to pick the socket, so packets from a given exporter always arrive on the same channel
+        // and thereby on the same event loop, keeping their order for template based protocols.
+        final boolean reusePort = this.channels > 1 && Epoll.isAvailable();
+        if (this.channels > 1 && !reusePort) {
+            LOG.warn("Listener {} is configured to bind {} channels, but the native epoll transport required for SO_REUSEPORT is not available. Binding a single channel instead.",
+                    this.name, this.channels, Epoll.unavailabilityCause());
+        }
+        final int effectiveChannels = reusePort ? this.channels : 1;
+
         // Netty defaults to 2 * num cores when the number of threads is set to 0
-        this.bossGroup = new NioEventLoopGroup(0, new ThreadFactoryBuilder()
-                .setNameFormat("telemetryd-nio-" + name + "-%d")
-                .build() );
+        final ThreadFactoryBuilder threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("telemetryd-nio-" + name + "-%d");
+        this.bossGroup = reusePort
+                ? new EpollEventLoopGroup(0, threadFactory.build())
+                : new NioEventLoopGroup(0, threadFactory.build());
 
         this.parsers.forEach(parser -> parser.start(this.bossGroup));
 
@@ -111,15 +133,23 @@ public class UdpListener implements GracefulShutdownListener {
                 ? SocketUtils.socketAddress(this.host, this.port)
                 : new InetSocketAddress(this.port);
 
-        this.socketFuture = new Bootstrap()
+        final Bootstrap bootstrap = new Bootstrap()
                 .group(this.bossGroup)
-                .channel(NioDatagramChannel.class)
+                .channel(reusePort ? EpollDatagramChannel.class : NioDatagramChannel.class)
                 .option(ChannelOption.SO_REUSEADDR, true)
                 .option(ChannelOption.SO_RCVBUF, Integer.MAX_VALUE)
-                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(this.maxPacketSize))
-                .handler(new DefaultChannelInitializer())
-                .bind(address)
-                .sync();
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(this.maxPacketSize));
+        if (reusePort) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+
+        // Each bind registers the channel with the next event loop of the group
+        for (int i = 0; i < effectiveChannels; i++) {
+            this.socketFutures.add(bootstrap.clone()
+                    .handler(new DefaultChannelInitializer(new ChannelMetrics(i)))
+                    .bind(address)
+                    .sync());
+        }
     }
 
     public void stop() throws InterruptedException {
@@ -131,13 +161,14 @@ public class UdpListener implements GracefulShutdownListener {
             this.bossGroup.shutdownGracefully().addListener(bossListener);
         }
 
-        if (this.socketFuture != null) {
+        for (final ChannelFuture socketFuture : this.socketFutures) {
             LOG.info("Closing channel...");
-            this.socketFuture.channel().close().sync();
-            if (this.socketFuture.channel().parent() != null) {
-                this.socketFuture.channel().parent().close().sync();
+            socketFuture.channel().close().sync();
+            if (socketFuture.channel().parent() != null) {
+                socketFuture.channel().parent().close().sync();
             }
         }
+        this.socketFutures.clear();
 
         this.parsers.forEach(Parser::stop);
 
@@ -193,6 +224,14 @@ public class UdpListener implements GracefulShutdownListener {
         this.maxPacketSize = maxPacketSize;
     }
 
+    public int getChannels() {
+        return channels;
+    }
+
+    public void setChannels(int channels) {
+        this.channels = Math.max(1, channels);
+    }
+
     @Override
     public String getName() {
         return name;
@@ -214,12 +253,38 @@ public class UdpListener implements GracefulShutdownListener {
     }
 
 
+    private class ChannelMetrics {
+        private final Meter packetsReceived;
+        private final Meter packetsDropped;
+
+        private ChannelMetrics(final int index) {
+            this.packetsReceived = metrics.meter(MetricRegistry.name("listeners",  name, "channel" + index, "packetsReceived"));
+            this.packetsDropped = metrics.meter(MetricRegistry.name("listeners",  name, "channel" + index, "packetsDropped"));
+        }
+
+        private void received() {
+            packetsReceived.mark();
+            UdpListener.this.packetsReceived.mark();
+        }
+
+        private void dropped() {
+            packetsDropped.mark();
+            UdpListener.this.packetsDropped.mark();
+        }
+    }
+
     private class DefaultChannelInitializer extends ChannelInitializer<DatagramChannel> {
 
+        private final ChannelMetrics channelMetrics;
+
+        private DefaultChannelInitializer(final ChannelMetrics channelMetrics) {
+            this.channelMetrics = Objects.requireNonNull(channelMetrics);
+        }
+
         @Override
         protected void initChannel(DatagramChannel ch) {
             // Accounting
-            ch.pipeline().addFirst(new AccountingHandler());
+            ch.pipeline().addFirst(new AccountingHandler(channelMetrics));
 
             if (parsers.size() == 1) {
                 final UdpParser parser = parsers.get(0);
@@ -236,6 +301,7 @@ public class UdpListener implements GracefulShutdownListener {
                                 return;
                             }
                         }
+                        channelMetrics.dropped();
                         LOG.warn("Unhandled packet from {}", msg.sender());
                     }
                 });
@@ -245,6 +311,7 @@ public class UdpListener implements GracefulShutdownListener {
             ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
                 @Override
                 public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+                    channelMetrics.dropped();
                     LOG.warn("Invalid packet: {}", cause.getMessage());
                     RATE_LIMITED_LOG.debug("", cause);
                 }
@@ -252,10 +319,16 @@ public class UdpListener implements GracefulShutdownListener {
         }
     }
 
-    private class AccountingHandler extends ChannelInboundHandlerAdapter {
+    private static class AccountingHandler extends ChannelInboundHandlerAdapter {
+        private final ChannelMetrics channelMetrics;
+
+        private AccountingHandler(final ChannelMetrics channelMetrics) {
+            this.channelMetrics = channelMetrics;
+        }
+
         @Override
         public  void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-            packetsReceived.mark();
+            channelMetrics.received();
             super.channelRead(ctx, msg);
         }
     }
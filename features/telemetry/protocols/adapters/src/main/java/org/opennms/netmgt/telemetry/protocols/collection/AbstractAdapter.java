@@ -50,7 +50,10 @@ public abstract class AbstractAdapter implements Adapter {
      */
     protected final Histogram packetsPerLogHistogram;
 
-    private final Meter recordsConsumed;
+    /**
+     * Number of messages handled
+     */
+    protected final Meter recordsConsumed;
 
     /**
      * A single instance of an adapter will only be responsible for this one config
@@ -31,6 +31,7 @@ import javax.script.ScriptException;
 import org.opennms.core.fileutils.FileUpdateCallback;
 import org.opennms.core.fileutils.FileUpdateWatcher;
 import org.opennms.netmgt.telemetry.config.api.AdapterDefinition;
+import org.opennms.netmgt.telemetry.protocols.collection.mapping.MappedCollectionSetBuilder;
 import org.osgi.framework.BundleContext;
 
 import com.codahale.metrics.MetricRegistry;
@@ -42,6 +43,23 @@ public abstract class AbstractScriptedCollectionAdapter extends AbstractCollecti
 
     private String script;
 
+    private FileUpdateWatcher mappingUpdateWatcher;
+
+    private String mapping;
+
+    /*
+     * Compiled mappings are thread safe, so a single builder is shared by
+     * all threads and replaced whenever the mapping file is updated.
+     */
+    private volatile MappedCollectionSetBuilder mappedCollectionSetBuilder;
+
+    /*
+     * Modification time of the mapping file when it last failed to build, so
+     * that a broken mapping is only compiled and reported again once the file
+     * has changed instead of for every message.
+     */
+    private volatile long failedMappingLastModified = -1;
+
     /*
      * Since ScriptCollectionSetBuilder is not thread safe , loading of script
      * is handled in ThreadLocal.
@@ -86,10 +104,15 @@ public abstract class AbstractScriptedCollectionAdapter extends AbstractCollecti
     }
 
     /*
-     * This method checks and reloads script if there is an update else returns
+     * This method returns the compiled mapping if one is configured, otherwise
+     * it checks and reloads script if there is an update else returns
      * existing builder
      */
-    protected ScriptedCollectionSetBuilder getCollectionBuilder() {
+    protected CollectionSetGenerator getCollectionBuilder() {
+        if (!Strings.isNullOrEmpty(mapping)) {
+            return getMappedCollectionBuilder();
+        }
+
         ScriptedCollectionSetBuilder builder = scriptedCollectionSetBuilders.get();
         // Reload script if reload() happened or earlier invocation of script didn't compile
         if ((builder != null && scriptUpdateMap.get(builder)) || !scriptCompiled.get()) {
@@ -106,6 +129,31 @@ public abstract class AbstractScriptedCollectionAdapter extends AbstractCollecti
         return builder;
     }
 
+    private MappedCollectionSetBuilder getMappedCollectionBuilder() {
+        MappedCollectionSetBuilder builder = mappedCollectionSetBuilder;
+        if (builder == null) {
+            final File file = new File(mapping);
+            if (file.lastModified() == failedMappingLastModified) {
+                return null;
+            }
+            synchronized (this) {
+                builder = mappedCollectionSetBuilder;
+                final long lastModified = file.lastModified();
+                if (builder == null && lastModified != failedMappingLastModified) {
+                    try {
+                        builder = new MappedCollectionSetBuilder(file);
+                        mappedCollectionSetBuilder = builder;
+                        failedMappingLastModified = -1;
+                    } catch (Exception e) {
+                        failedMappingLastModified = lastModified;
+                        LOG.error("Failed to create builder for mapping '{}'. It will not be retried until the file changes.", mapping, e);
+                    }
+                }
+            }
+        }
+        return builder;
+    }
+
     private ScriptedCollectionSetBuilder loadCollectionBuilder(BundleContext bundleContext, String script)
             throws IOException, ScriptException {
         ScriptedCollectionSetBuilder builder;
@@ -158,6 +206,24 @@ public abstract class AbstractScriptedCollectionAdapter extends AbstractCollecti
         };
     }
 
+    private FileUpdateCallback reloadMapping() {
+
+        return new FileUpdateCallback() {
+            /* Callback method for mapping update */
+            @Override
+            public void reload() {
+                try {
+                    mappedCollectionSetBuilder = new MappedCollectionSetBuilder(new File(mapping));
+                    failedMappingLastModified = -1;
+                    LOG.debug("Updated mapping compiled");
+                } catch (Exception e) {
+                    LOG.error("Updated mapping failed to build, using existing mapping '{}'.", mapping, e);
+                }
+            }
+
+        };
+    }
+
     public String getScript() {
         return script;
     }
@@ -167,10 +233,42 @@ public abstract class AbstractScriptedCollectionAdapter extends AbstractCollecti
         setFileUpdateCallback(script);
     }
 
+    public String getMapping() {
+        return mapping;
+    }
+
+    /**
+     * Sets the declarative mapping used instead of the script to build the
+     * collection sets.
+     */
+    public void setMapping(String mapping) {
+        this.mapping = mapping;
+        this.mappedCollectionSetBuilder = null;
+        this.failedMappingLastModified = -1;
+        if (!Strings.isNullOrEmpty(mapping)) {
+            try {
+                mappingUpdateWatcher = new FileUpdateWatcher(mapping, reloadMapping());
+            } catch (Exception e) {
+                LOG.info("Mapping reload Utils is not registered", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the mapping, if configured, or the script used to build the
+     * collection sets.
+     */
+    public String getScriptOrMapping() {
+        return Strings.isNullOrEmpty(mapping) ? script : mapping;
+    }
+
     @Override
     public void destroy() {
         if (scriptUpdateWatcher != null) {
             scriptUpdateWatcher.destroy();
         }
+        if (mappingUpdateWatcher != null) {
+            mappingUpdateWatcher.destroy();
+        }
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.collection;
+
+import java.util.Map;
+
+import javax.script.ScriptException;
+
+import org.opennms.netmgt.collection.api.CollectionAgent;
+import org.opennms.netmgt.collection.api.CollectionSet;
+
+/**
+ * Generates a {@link CollectionSet} from a decoded telemetry message.
+ *
+ * Implemented by the {@link ScriptedCollectionSetBuilder}, which delegates
+ * to a JSR-223 script, and by the
+ * {@link org.opennms.netmgt.telemetry.protocols.collection.mapping.MappedCollectionSetBuilder},
+ * which evaluates a declarative mapping.
+ */
+public interface CollectionSetGenerator {
+
+    /**
+     * Builds a collection set from the given message.
+     *
+     * @param agent
+     *            the agent associated with the collection set
+     * @param message
+     *            the message containing the metrics
+     * @param timestamp
+     *            the timestamp of the collection set, ignored if null or not positive
+     * @param props
+     *            additional properties made available to the generator
+     * @return a collection set
+     * @throws ScriptException
+     */
+    CollectionSet build(CollectionAgent agent, Object message, Long timestamp, Map<String,Object> props) throws ScriptException;
+
+    default CollectionSet build(CollectionAgent agent, Object message, Long timestamp) throws ScriptException {
+        return build(agent, message, timestamp, null);
+    }
+}
@@ -48,7 +48,7 @@ import java.util.Map;
  *
  * @author jwhite
  */
-public class ScriptedCollectionSetBuilder {
+public class ScriptedCollectionSetBuilder implements CollectionSetGenerator {
 
     private CompiledScript compiledScript;
 
@@ -96,6 +96,7 @@ public class ScriptedCollectionSetBuilder {
      * @return a collection set
      * @throws ScriptException
      */
+    @Override
     public CollectionSet build(CollectionAgent agent, Object message, Long timestamp, Map<String,Object> props) throws ScriptException {
         final CollectionSetBuilder builder = new CollectionSetBuilder(agent);
         if (timestamp != null && timestamp > 0) {
@@ -116,6 +117,7 @@ public class ScriptedCollectionSetBuilder {
         return builder.build();
     }
 
+    @Override
     public CollectionSet build(CollectionAgent agent, Object message, Long timestamp) throws ScriptException {
         return build(agent, message, timestamp, null);
     }
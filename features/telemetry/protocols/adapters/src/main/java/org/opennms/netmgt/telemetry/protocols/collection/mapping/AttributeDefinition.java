@@ -0,0 +1,118 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.collection.mapping;
+
+import java.util.Objects;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Maps the value found at the given path to an attribute of the enclosing
+ * resource. The type is one of <code>gauge</code>, <code>counter</code> or
+ * <code>string</code>.
+ */
+@XmlRootElement(name="attribute")
+@XmlAccessorType(XmlAccessType.NONE)
+public class AttributeDefinition {
+    @XmlAttribute(name="group", required=true)
+    private String group;
+
+    @XmlAttribute(name="name", required=true)
+    private String name;
+
+    @XmlAttribute(name="path", required=true)
+    private String path;
+
+    @XmlAttribute(name="type", required=false)
+    private String type;
+
+    public AttributeDefinition() {
+    }
+
+    public AttributeDefinition(String group, String name, String path, String type) {
+        this.group = group;
+        this.name = name;
+        this.path = path;
+        this.type = type;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getType() {
+        return type == null ? "gauge" : type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AttributeDefinition that = (AttributeDefinition) o;
+        return Objects.equals(group, that.group) &&
+                Objects.equals(name, that.name) &&
+                Objects.equals(path, that.path) &&
+                Objects.equals(type, that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(group, name, path, type);
+    }
+
+    @Override
+    public String toString() {
+        return "AttributeDefinition{" +
+                "group='" + group + '\'' +
+                ", name='" + name + '\'' +
+                ", path='" + path + '\'' +
+                ", type='" + type + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.collection.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Declarative mapping from the fields of a telemetry message to resources
+ * and attributes of a collection set.
+ *
+ * Resources defined at the top level are evaluated for every message, while
+ * the ones nested in a {@link MatchDefinition} are only evaluated if the
+ * message satisfies the match.
+ */
+@XmlRootElement(name="collection-mapping")
+@XmlAccessorType(XmlAccessType.NONE)
+public class CollectionMapping {
+    @XmlAttribute(name="sequence-number", required=false)
+    private String sequenceNumber;
+
+    @XmlElement(name="resource")
+    private List<ResourceDefinition> resources = new ArrayList<>();
+
+    @XmlElement(name="match")
+    private List<MatchDefinition> matches = new ArrayList<>();
+
+    public String getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public void setSequenceNumber(String sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    public List<ResourceDefinition> getResources() {
+        return resources;
+    }
+
+    public void setResources(List<ResourceDefinition> resources) {
+        this.resources = resources;
+    }
+
+    public List<MatchDefinition> getMatches() {
+        return matches;
+    }
+
+    public void setMatches(List<MatchDefinition> matches) {
+        this.matches = matches;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CollectionMapping that = (CollectionMapping) o;
+        return Objects.equals(sequenceNumber, that.sequenceNumber) &&
+                Objects.equals(resources, that.resources) &&
+                Objects.equals(matches, that.matches);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sequenceNumber, resources, matches);
+    }
+
+    @Override
+    public String toString() {
+        return "CollectionMapping{" +
+                "sequenceNumber='" + sequenceNumber + '\'' +
+                ", resources=" + resources +
+                ", matches=" + matches +
+                '}';
+    }
+}
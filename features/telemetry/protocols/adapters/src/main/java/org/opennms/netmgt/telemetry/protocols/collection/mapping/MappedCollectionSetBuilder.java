@@ -0,0 +1,249 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.collection.mapping;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.opennms.core.utils.RrdLabelUtils;
+import org.opennms.core.xml.JaxbUtils;
+import org.opennms.netmgt.collection.api.AttributeType;
+import org.opennms.netmgt.collection.api.CollectionAgent;
+import org.opennms.netmgt.collection.api.CollectionSet;
+import org.opennms.netmgt.collection.support.builder.CollectionSetBuilder;
+import org.opennms.netmgt.collection.support.builder.DeferredGenericTypeResource;
+import org.opennms.netmgt.collection.support.builder.InterfaceLevelResource;
+import org.opennms.netmgt.collection.support.builder.NodeLevelResource;
+import org.opennms.netmgt.collection.support.builder.Resource;
+import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetGenerator;
+
+/**
+ * Uses a declarative {@link CollectionMapping} to generate a
+ * {@link CollectionSet} from some given message using the
+ * {@link CollectionSetBuilder}.
+ *
+ * The mapping is compiled once: paths are parsed into {@link MessagePath}s,
+ * regular expressions and name templates are precompiled. Unlike the
+ * {@link org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder}
+ * this builder is thread safe and can be shared by all threads of an adapter.
+ */
+public class MappedCollectionSetBuilder implements CollectionSetGenerator {
+
+    private static final String NODE = "node";
+    private static final String INTERFACE = "interface";
+
+    /**
+     * Result of a successful match without any captured groups.
+     */
+    private static final MatchResult NO_GROUPS;
+    static {
+        final Matcher matcher = Pattern.compile("").matcher("");
+        matcher.matches();
+        NO_GROUPS = matcher.toMatchResult();
+    }
+
+    private final MessagePath sequenceNumber;
+    private final List<CompiledResource> resources;
+    private final List<CompiledMatch> matches;
+
+    public MappedCollectionSetBuilder(final File mapping) {
+        this(JaxbUtils.unmarshal(CollectionMapping.class, mapping));
+    }
+
+    public MappedCollectionSetBuilder(final CollectionMapping mapping) {
+        Objects.requireNonNull(mapping);
+        this.sequenceNumber = mapping.getSequenceNumber() != null ? MessagePath.parse(mapping.getSequenceNumber()) : null;
+        this.resources = compile(mapping.getResources(), 0);
+        this.matches = mapping.getMatches().stream()
+                .map(CompiledMatch::new)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public CollectionSet build(final CollectionAgent agent, final Object message, final Long timestamp, final Map<String, Object> props) {
+        final CollectionSetBuilder builder = new CollectionSetBuilder(agent);
+        if (timestamp != null && timestamp > 0) {
+            builder.withTimestamp(new Date(timestamp));
+        }
+
+        if (this.sequenceNumber != null) {
+            final Number sequenceNumber = MessagePath.toNumber(this.sequenceNumber.resolve(message));
+            if (sequenceNumber != null) {
+                builder.withSequenceNumber(sequenceNumber.longValue());
+            }
+        }
+
+        final NodeLevelResource node = new NodeLevelResource(agent.getNodeId());
+        for (final CompiledResource resource : this.resources) {
+            resource.apply(builder, node, message, null);
+        }
+        for (final CompiledMatch match : this.matches) {
+            final MatchResult result = match.match(message);
+            if (result != null) {
+                for (final CompiledResource resource : match.resources) {
+                    resource.apply(builder, node, message, result);
+                }
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static List<CompiledResource> compile(final List<ResourceDefinition> resources, final int groupCount) {
+        return resources.stream()
+                .map(resource -> new CompiledResource(resource, groupCount))
+                .collect(Collectors.toList());
+    }
+
+    private static void checkGroups(final Template template, final int groupCount, final String description) {
+        if (template != null && template.getMaxGroup() > groupCount) {
+            throw new IllegalArgumentException(description + " references a group not captured by the enclosing match");
+        }
+    }
+
+    private static final class CompiledMatch {
+        private final MessagePath path;
+        private final String equalTo;
+        private final Pattern pattern;
+        private final List<CompiledResource> resources;
+
+        private CompiledMatch(final MatchDefinition match) {
+            if ((match.getEquals() == null) == (match.getRegex() == null)) {
+                throw new IllegalArgumentException("Match on '" + match.getPath() + "' requires exactly one of equals or regex");
+            }
+            this.path = MessagePath.parse(match.getPath());
+            this.equalTo = match.getEquals();
+            this.pattern = match.getRegex() != null ? Pattern.compile(match.getRegex()) : null;
+            this.resources = compile(match.getResources(), this.pattern != null ? this.pattern.matcher("").groupCount() : 0);
+        }
+
+        private MatchResult match(final Object message) {
+            final String value = MessagePath.toString(this.path.resolve(message));
+            if (value == null) {
+                return null;
+            }
+            if (this.pattern == null) {
+                return this.equalTo.equals(value) ? NO_GROUPS : null;
+            }
+            final Matcher matcher = this.pattern.matcher(value);
+            return matcher.find() ? matcher.toMatchResult() : null;
+        }
+    }
+
+    private static final class CompiledResource {
+        private final String type;
+        private final MessagePath foreach;
+        private final MessagePath instance;
+        private final Template instanceTemplate;
+        private final List<CompiledAttribute> attributes;
+
+        private CompiledResource(final ResourceDefinition resource, final int groupCount) {
+            this.type = Objects.requireNonNull(resource.getType(), "Resource type is required");
+            this.foreach = resource.getForeach() != null ? MessagePath.parse(resource.getForeach()) : null;
+            this.instance = resource.getInstance() != null ? MessagePath.parse(resource.getInstance()) : null;
+            this.instanceTemplate = Template.compile(resource.getInstanceTemplate());
+            if (!NODE.equals(this.type) && this.instance == null && this.instanceTemplate == null) {
+                throw new IllegalArgumentException("Resource of type '" + this.type + "' requires an instance or instance-template");
+            }
+            checkGroups(this.instanceTemplate, groupCount, "Instance template of resource '" + this.type + "'");
+            this.attributes = resource.getAttributes().stream()
+                    .map(attribute -> new CompiledAttribute(attribute, groupCount))
+                    .collect(Collectors.toList());
+        }
+
+        private void apply(final CollectionSetBuilder builder, final NodeLevelResource node, final Object message, final MatchResult match) {
+            if (this.foreach == null) {
+                this.resolve(builder, node, message, match);
+            } else {
+                for (final Object element : this.foreach.resolveAll(message)) {
+                    this.resolve(builder, node, element, match);
+                }
+            }
+        }
+
+        private void resolve(final CollectionSetBuilder builder, final NodeLevelResource node, final Object element, final MatchResult match) {
+            final Resource resource;
+            if (NODE.equals(this.type)) {
+                resource = node;
+            } else {
+                final String instance = this.instanceTemplate != null
+                        ? this.instanceTemplate.expand(match)
+                        : MessagePath.toString(this.instance.resolve(element));
+                if (instance == null) {
+                    return;
+                }
+                if (INTERFACE.equals(this.type)) {
+                    resource = new InterfaceLevelResource(node, RrdLabelUtils.computeLabelForRRD(instance, null, null));
+                } else {
+                    // Keep the instance a single path element
+                    resource = new DeferredGenericTypeResource(node, this.type, instance.replace('/', '-'));
+                }
+            }
+
+            for (final CompiledAttribute attribute : this.attributes) {
+                attribute.apply(builder, resource, element, match);
+            }
+        }
+    }
+
+    private static final class CompiledAttribute {
+        private final Template group;
+        private final Template name;
+        private final MessagePath path;
+        private final AttributeType type;
+
+        private CompiledAttribute(final AttributeDefinition attribute, final int groupCount) {
+            this.group = Template.compile(Objects.requireNonNull(attribute.getGroup(), "Attribute group is required"));
+            this.name = Template.compile(Objects.requireNonNull(attribute.getName(), "Attribute name is required"));
+            this.path = MessagePath.parse(Objects.requireNonNull(attribute.getPath(), "Attribute path is required"));
+            this.type = AttributeType.valueOf(attribute.getType().toUpperCase());
+            checkGroups(this.group, groupCount, "Group of attribute '" + attribute.getName() + "'");
+            checkGroups(this.name, groupCount, "Name of attribute '" + attribute.getName() + "'");
+        }
+
+        private void apply(final CollectionSetBuilder builder, final Resource resource, final Object element, final MatchResult match) {
+            final Object value = this.path.resolve(element);
+            if (value == null) {
+                return;
+            }
+
+            if (this.type == AttributeType.STRING) {
+                final String string = MessagePath.toString(value);
+                if (string != null) {
+                    builder.withStringAttribute(resource, this.group.expand(match), this.name.expand(match), string);
+                }
+            } else {
+                final Number number = MessagePath.toNumber(value);
+                if (number != null) {
+                    builder.withNumericAttribute(resource, this.group.expand(match), this.name.expand(match), number, this.type);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.collection.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Restricts the nested resources to messages where the value found at the
+ * given path is either equal to a string or matches a regular expression.
+ *
+ * The groups captured by the regular expression can be referenced as
+ * <code>${n}</code> from the instance template, group and name of the nested
+ * resources.
+ */
+@XmlRootElement(name="match")
+@XmlAccessorType(XmlAccessType.NONE)
+public class MatchDefinition {
+    @XmlAttribute(name="path", required=true)
+    private String path;
+
+    @XmlAttribute(name="equals", required=false)
+    private String equalTo;
+
+    @XmlAttribute(name="regex", required=false)
+    private String regex;
+
+    @XmlElement(name="resource")
+    private List<ResourceDefinition> resources = new ArrayList<>();
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getEquals() {
+        return equalTo;
+    }
+
+    public void setEquals(String equalTo) {
+        this.equalTo = equalTo;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public void setRegex(String regex) {
+        this.regex = regex;
+    }
+
+    public List<ResourceDefinition> getResources() {
+        return resources;
+    }
+
+    public void setResources(List<ResourceDefinition> resources) {
+        this.resources = resources;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MatchDefinition that = (MatchDefinition) o;
+        return Objects.equals(path, that.path) &&
+                Objects.equals(equalTo, that.equalTo) &&
+                Objects.equals(regex, that.regex) &&
+                Objects.equals(resources, that.resources);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, equalTo, regex, resources);
+    }
+
+    @Override
+    public String toString() {
+        return "MatchDefinition{" +
+                "path='" + path + '\'' +
+                ", equals='" + equalTo + '\'' +
+                ", regex='" + regex + '\'' +
+                ", resources=" + resources +
+                '}';
+    }
+}
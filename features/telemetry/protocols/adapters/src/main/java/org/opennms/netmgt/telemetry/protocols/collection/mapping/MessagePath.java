@@ -0,0 +1,399 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.collection.mapping;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Splitter;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+
+/**
+ * A compiled path into a decoded telemetry message.
+ *
+ * A path is a list of segments separated by dots:
+ * <ul>
+ *     <li><code>field</code> selects a field of a protobuf message, an entry
+ *     of a map or a bean property of any other object</li>
+ *     <li><code>[extension]</code> selects a protobuf extension by its short
+ *     or fully qualified name</li>
+ *     <li><code>{key}</code> searches the nested messages of a key/value
+ *     encoded protobuf message (like the NX-OS <code>data_gpbkv</code>)
+ *     depth-first for the first one with a <code>name</code> equal to the
+ *     key</li>
+ * </ul>
+ *
+ * Every segment binds to the field descriptor or accessor method of the
+ * first type it is applied to, so that resolving the path for messages of
+ * the same type does not involve any lookup by name.
+ */
+public final class MessagePath {
+
+    private static final Map<Descriptors.Descriptor, KeyedLayout> KEYED_LAYOUTS = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final Segment[] segments;
+
+    private MessagePath(final String path, final Segment[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    public static MessagePath parse(final String path) {
+        Objects.requireNonNull(path);
+        final List<Segment> segments = new ArrayList<>();
+        for (final String segment : split(path)) {
+            if (segment.startsWith("[") && segment.endsWith("]")) {
+                segments.add(new ExtensionSegment(segment.substring(1, segment.length() - 1)));
+            } else if (segment.startsWith("{") && segment.endsWith("}")) {
+                segments.add(new KeySegment(segment.substring(1, segment.length() - 1)));
+            } else if (!segment.isEmpty()) {
+                segments.add(new FieldSegment(segment));
+            } else {
+                throw new IllegalArgumentException("Empty segment in path: " + path);
+            }
+        }
+        return new MessagePath(path, segments.toArray(new Segment[0]));
+    }
+
+    /**
+     * Resolves the first value found at this path, or null if there is none.
+     */
+    public Object resolve(final Object root) {
+        Object node = root;
+        for (final Segment segment : this.segments) {
+            node = first(node);
+            if (node == null) {
+                return null;
+            }
+            node = segment.apply(node);
+        }
+        return first(node);
+    }
+
+    /**
+     * Resolves all values found at this path, expanding every repeated field
+     * along the way.
+     */
+    public List<Object> resolveAll(final Object root) {
+        final List<Object> values = new ArrayList<>();
+        this.collect(root, 0, values);
+        return values;
+    }
+
+    private void collect(final Object node, final int index, final List<Object> values) {
+        if (node == null) {
+            return;
+        }
+        if (node instanceof List) {
+            for (final Object element : (List<?>) node) {
+                this.collect(element, index, values);
+            }
+            return;
+        }
+        if (index == this.segments.length) {
+            values.add(node);
+            return;
+        }
+        this.collect(this.segments[index].apply(node), index + 1, values);
+    }
+
+    @Override
+    public String toString() {
+        return this.path;
+    }
+
+    private static Object first(final Object node) {
+        if (node instanceof List) {
+            final List<?> list = (List<?>) node;
+            return list.isEmpty() ? null : list.get(0);
+        }
+        return node;
+    }
+
+    /**
+     * Splits on dots which are not enclosed by brackets or braces, as both
+     * extension names and keys may contain dots.
+     */
+    private static List<String> split(final String path) {
+        if (path.indexOf('[') < 0 && path.indexOf('{') < 0) {
+            return Splitter.on('.').splitToList(path);
+        }
+        final List<String> segments = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < path.length(); i++) {
+            final char c = path.charAt(i);
+            if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                depth--;
+            } else if (c == '.' && depth == 0) {
+                segments.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        segments.add(path.substring(start));
+        return segments;
+    }
+
+    /**
+     * Converts a resolved value to a number, or returns null if the value is
+     * not numeric.
+     */
+    public static Number toNumber(final Object value) {
+        final Object unwrapped = unwrap(value);
+        if (unwrapped instanceof Number) {
+            return (Number) unwrapped;
+        } else if (unwrapped instanceof Boolean) {
+            return ((Boolean) unwrapped) ? 1 : 0;
+        } else if (unwrapped instanceof Descriptors.EnumValueDescriptor) {
+            return ((Descriptors.EnumValueDescriptor) unwrapped).getNumber();
+        } else if (unwrapped instanceof CharSequence) {
+            try {
+                return Double.parseDouble(unwrapped.toString());
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a resolved value to a string, or returns null if there is no
+     * value.
+     */
+    public static String toString(final Object value) {
+        final Object unwrapped = unwrap(value);
+        if (unwrapped instanceof Descriptors.EnumValueDescriptor) {
+            return ((Descriptors.EnumValueDescriptor) unwrapped).getName();
+        }
+        return unwrapped == null ? null : unwrapped.toString();
+    }
+
+    /**
+     * Key/value encoded messages carry their value in a oneof, so a message
+     * with a populated oneof stands for the value of that oneof.
+     */
+    private static Object unwrap(final Object value) {
+        final Object node = first(value);
+        if (node instanceof Message) {
+            final Message message = (Message) node;
+            for (final Descriptors.OneofDescriptor oneof : message.getDescriptorForType().getOneofs()) {
+                final Descriptors.FieldDescriptor field = message.getOneofFieldDescriptor(oneof);
+                if (field != null) {
+                    return message.getField(field);
+                }
+            }
+            return null;
+        }
+        return node;
+    }
+
+    private interface Segment {
+        Object apply(Object node);
+    }
+
+    /**
+     * Associates the type a segment was last applied to with the resolved
+     * accessor.
+     */
+    private static final class Binding<T> {
+        private final Object type;
+        private final T accessor;
+
+        private Binding(final Object type, final T accessor) {
+            this.type = type;
+            this.accessor = accessor;
+        }
+    }
+
+    private static final class FieldSegment implements Segment {
+        private final String name;
+
+        private volatile Binding<Descriptors.FieldDescriptor> field;
+        private volatile Binding<Method> property;
+
+        private FieldSegment(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object apply(final Object node) {
+            if (node instanceof Message) {
+                final Message message = (Message) node;
+                final Descriptors.Descriptor descriptor = message.getDescriptorForType();
+                Binding<Descriptors.FieldDescriptor> binding = this.field;
+                if (binding == null || binding.type != descriptor) {
+                    binding = new Binding<>(descriptor, descriptor.findFieldByName(this.name));
+                    this.field = binding;
+                }
+                return binding.accessor != null ? message.getField(binding.accessor) : null;
+            }
+
+            if (node instanceof Map) {
+                return ((Map<?, ?>) node).get(this.name);
+            }
+
+            final Class<?> clazz = node.getClass();
+            Binding<Method> binding = this.property;
+            if (binding == null || binding.type != clazz) {
+                binding = new Binding<>(clazz, findAccessor(clazz, this.name));
+                this.property = binding;
+            }
+            if (binding.accessor == null) {
+                return null;
+            }
+            try {
+                return binding.accessor.invoke(node);
+            } catch (final IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Failed to read property '" + this.name + "' of " + clazz.getName(), e);
+            }
+        }
+
+        private static Method findAccessor(final Class<?> clazz, final String name) {
+            final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            for (final String candidate : new String[] { "get" + capitalized, "is" + capitalized, name }) {
+                try {
+                    final Method method = clazz.getMethod(candidate);
+                    if (method.getReturnType() != Void.TYPE) {
+                        return method;
+                    }
+                } catch (final NoSuchMethodException e) {
+                    // Try the next candidate
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class ExtensionSegment implements Segment {
+        private final String name;
+
+        private volatile Binding<Descriptors.FieldDescriptor> extension;
+
+        private ExtensionSegment(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object apply(final Object node) {
+            if (!(node instanceof Message)) {
+                return null;
+            }
+            final Message message = (Message) node;
+            final Descriptors.Descriptor descriptor = message.getDescriptorForType();
+            Binding<Descriptors.FieldDescriptor> binding = this.extension;
+            if (binding == null || binding.type != descriptor) {
+                // Extensions are only known by the registry used for parsing, so bind to the first one present
+                final Descriptors.FieldDescriptor field = message.getAllFields().keySet().stream()
+                        .filter(Descriptors.FieldDescriptor::isExtension)
+                        .filter(f -> this.name.equals(f.getName()) || this.name.equals(f.getFullName()))
+                        .findFirst()
+                        .orElse(null);
+                if (field == null) {
+                    return null;
+                }
+                binding = new Binding<>(descriptor, field);
+                this.extension = binding;
+            }
+            return message.getField(binding.accessor);
+        }
+    }
+
+    private static final class KeySegment implements Segment {
+        private final String key;
+
+        private KeySegment(final String key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object apply(final Object node) {
+            if (!(node instanceof Message)) {
+                return null;
+            }
+            return find((Message) node, this.key);
+        }
+
+        private static Message find(final Message message, final String key) {
+            for (final Descriptors.FieldDescriptor child : layout(message).children) {
+                if (child.isRepeated()) {
+                    final int count = message.getRepeatedFieldCount(child);
+                    for (int i = 0; i < count; i++) {
+                        final Message match = match((Message) message.getRepeatedField(child, i), key);
+                        if (match != null) {
+                            return match;
+                        }
+                    }
+                } else if (message.hasField(child)) {
+                    final Message match = match((Message) message.getField(child), key);
+                    if (match != null) {
+                        return match;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static Message match(final Message message, final String key) {
+            final Descriptors.FieldDescriptor name = layout(message).name;
+            if (name != null && key.equals(message.getField(name))) {
+                return message;
+            }
+            return find(message, key);
+        }
+
+        private static KeyedLayout layout(final Message message) {
+            return KEYED_LAYOUTS.computeIfAbsent(message.getDescriptorForType(), KeyedLayout::new);
+        }
+    }
+
+    /**
+     * The fields of a message type relevant for key searches: the string
+     * field holding the key and all fields holding nested messages.
+     */
+    private static final class KeyedLayout {
+        private final Descriptors.FieldDescriptor name;
+        private final List<Descriptors.FieldDescriptor> children;
+
+        private KeyedLayout(final Descriptors.Descriptor descriptor) {
+            final Descriptors.FieldDescriptor name = descriptor.findFieldByName("name");
+            this.name = name != null && name.getJavaType() == Descriptors.FieldDescriptor.JavaType.STRING && !name.isRepeated() ? name : null;
+
+            final List<Descriptors.FieldDescriptor> children = new ArrayList<>();
+            for (final Descriptors.FieldDescriptor field : descriptor.getFields()) {
+                if (field.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+                    children.add(field);
+                }
+            }
+            this.children = Collections.unmodifiableList(children);
+        }
+    }
+}
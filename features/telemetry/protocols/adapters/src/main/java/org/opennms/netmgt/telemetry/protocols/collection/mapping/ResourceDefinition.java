@@ -0,0 +1,127 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.collection.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Describes a resource to which the nested attributes are added.
+ *
+ * The type is either <code>node</code>, <code>interface</code> or the name of
+ * a generic resource type. If <code>foreach</code> is set, a resource is
+ * built for every element found at that path and both the instance and the
+ * attribute paths are relative to the element.
+ */
+@XmlRootElement(name="resource")
+@XmlAccessorType(XmlAccessType.NONE)
+public class ResourceDefinition {
+    @XmlAttribute(name="type", required=true)
+    private String type;
+
+    @XmlAttribute(name="foreach", required=false)
+    private String foreach;
+
+    @XmlAttribute(name="instance", required=false)
+    private String instance;
+
+    @XmlAttribute(name="instance-template", required=false)
+    private String instanceTemplate;
+
+    @XmlElement(name="attribute")
+    private List<AttributeDefinition> attributes = new ArrayList<>();
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getForeach() {
+        return foreach;
+    }
+
+    public void setForeach(String foreach) {
+        this.foreach = foreach;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public void setInstance(String instance) {
+        this.instance = instance;
+    }
+
+    public String getInstanceTemplate() {
+        return instanceTemplate;
+    }
+
+    public void setInstanceTemplate(String instanceTemplate) {
+        this.instanceTemplate = instanceTemplate;
+    }
+
+    public List<AttributeDefinition> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(List<AttributeDefinition> attributes) {
+        this.attributes = attributes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResourceDefinition that = (ResourceDefinition) o;
+        return Objects.equals(type, that.type) &&
+                Objects.equals(foreach, that.foreach) &&
+                Objects.equals(instance, that.instance) &&
+                Objects.equals(instanceTemplate, that.instanceTemplate) &&
+                Objects.equals(attributes, that.attributes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, foreach, instance, instanceTemplate, attributes);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceDefinition{" +
+                "type='" + type + '\'' +
+                ", foreach='" + foreach + '\'' +
+                ", instance='" + instance + '\'' +
+                ", instanceTemplate='" + instanceTemplate + '\'' +
+                ", attributes=" + attributes +
+                '}';
+    }
+}
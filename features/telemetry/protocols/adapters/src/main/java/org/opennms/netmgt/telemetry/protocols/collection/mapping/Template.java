@@ -0,0 +1,97 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.collection.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A string with <code>${n}</code> references to the groups captured by a
+ * {@link MatchDefinition}, split into its literal and group parts once.
+ */
+final class Template {
+
+    private static final Pattern GROUP_REFERENCE = Pattern.compile("\\$\\{(\\d+)\\}");
+
+    private final String constant;
+    private final String[] literals;
+    private final int[] groups;
+
+    private Template(final String constant, final String[] literals, final int[] groups) {
+        this.constant = constant;
+        this.literals = literals;
+        this.groups = groups;
+    }
+
+    static Template compile(final String template) {
+        if (template == null) {
+            return null;
+        }
+
+        final Matcher matcher = GROUP_REFERENCE.matcher(template);
+        final List<String> literals = new ArrayList<>();
+        final List<Integer> groups = new ArrayList<>();
+        int last = 0;
+        while (matcher.find()) {
+            literals.add(template.substring(last, matcher.start()));
+            groups.add(Integer.parseInt(matcher.group(1)));
+            last = matcher.end();
+        }
+        if (groups.isEmpty()) {
+            return new Template(template, null, null);
+        }
+        literals.add(template.substring(last));
+
+        return new Template(null,
+                literals.toArray(new String[0]),
+                groups.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    int getMaxGroup() {
+        int max = 0;
+        if (this.groups != null) {
+            for (final int group : this.groups) {
+                max = Math.max(max, group);
+            }
+        }
+        return max;
+    }
+
+    String expand(final MatchResult match) {
+        if (this.constant != null) {
+            return this.constant;
+        }
+
+        final StringBuilder sb = new StringBuilder(this.literals[0]);
+        for (int i = 0; i < this.groups.length; i++) {
+            final String value = match != null ? match.group(this.groups[i]) : null;
+            if (value != null) {
+                sb.append(value);
+            }
+            sb.append(this.literals[i + 1]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.bmp.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.BmpMessageHandler;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.Context;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Message;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Record;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Type;
+
+/**
+ * Merges the base attributes and unicast prefixes of consecutive route
+ * monitoring messages, so the delegate can persist a whole message log in a
+ * few batches instead of one transaction per update.
+ *
+ * Any other message flushes the pending records first to retain ordering.
+ * Instances are not thread-safe and are meant to live for a single log.
+ */
+class BmpMessageBatcher implements BmpMessageHandler {
+
+    private final BmpMessageHandler delegate;
+
+    private final List<Record> baseAttributes = new ArrayList<>();
+    private final List<Record> unicastPrefixes = new ArrayList<>();
+
+    private String collectorHashId;
+    private Context context;
+
+    BmpMessageBatcher(final BmpMessageHandler delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    @Override
+    public void handle(final Message message, final Context context) {
+        switch (message.getType()) {
+            case BASE_ATTRIBUTE:
+                this.pending(message, context).baseAttributes.addAll(message.getRecords());
+                break;
+            case UNICAST_PREFIX:
+                this.pending(message, context).unicastPrefixes.addAll(message.getRecords());
+                break;
+            default:
+                this.flush();
+                this.delegate.handle(message, context);
+        }
+    }
+
+    private BmpMessageBatcher pending(final Message message, final Context context) {
+        if (this.context != null && !this.collectorHashId.equals(message.getCollectorHashId())) {
+            this.flush();
+        }
+        if (this.context == null) {
+            this.collectorHashId = message.getCollectorHashId();
+            this.context = context;
+        }
+        return this;
+    }
+
+    public void flush() {
+        if (this.context == null) {
+            return;
+        }
+        // Prefixes refer to their attributes by hash, so attributes go first
+        if (!this.baseAttributes.isEmpty()) {
+            this.delegate.handle(new Message(this.collectorHashId, Type.BASE_ATTRIBUTE, new ArrayList<>(this.baseAttributes)), this.context);
+        }
+        if (!this.unicastPrefixes.isEmpty()) {
+            this.delegate.handle(new Message(this.collectorHashId, Type.UNICAST_PREFIX, new ArrayList<>(this.unicastPrefixes)), this.context);
+        }
+        this.baseAttributes.clear();
+        this.unicastPrefixes.clear();
+        this.collectorHashId = null;
+        this.context = null;
+    }
+
+    @Override
+    public void close() {
+        // The delegate is shared, only hand over what is still pending
+        this.flush();
+    }
+}
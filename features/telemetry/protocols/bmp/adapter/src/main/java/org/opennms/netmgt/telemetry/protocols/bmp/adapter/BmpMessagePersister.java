@@ -27,8 +27,15 @@ import static java.lang.Boolean.TRUE;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -155,11 +162,11 @@ public class BmpMessagePersister implements BmpMessageHandler {
                     List<BmpPeer> bmpPeers = buildBmpPeers(message);
                     // Only retain unicast prefixes that are updated after current peer UP/down message.
                     bmpPeers.forEach(peer -> {
-                        Set<BmpUnicastPrefix> unicastPrefixes = peer.getBmpUnicastPrefixes().stream().filter(bmpUnicastPrefix ->
-                                bmpUnicastPrefix.getTimestamp().getTime() > peer.getTimestamp().getTime()
-                        ).collect(Collectors.toSet());
-                        peer.setBmpUnicastPrefixes(unicastPrefixes);
                         try {
+                            // Delete in bulk instead of loading the whole RIB of the peer
+                            if (peer.getId() != null) {
+                                bmpUnicastPrefixDao.deleteByPeerHashIdBefore(peer.getHashId(), peer.getTimestamp());
+                            }
                             bmpPeerDao.saveOrUpdate(peer);
                         } catch (Exception e) {
                             LOG.error("Exception while persisting BMP peer {}", peer, e);
@@ -168,6 +175,9 @@ public class BmpMessagePersister implements BmpMessageHandler {
                     break;
                 case BASE_ATTRIBUTE:
                     List<BmpBaseAttribute> bmpBaseAttributes = buildBmpBaseAttributes(message);
+                    // Paths are shared by many attributes, analyse each distinct path and hop once
+                    final Set<String> asPaths = new HashSet<>();
+                    final Map<String, BmpAsnPathAnalysis> asnPaths = new LinkedHashMap<>();
                     bmpBaseAttributes.forEach(bmpBaseAttribute -> {
                         try {
                             bmpBaseAttributeDao.saveOrUpdate(bmpBaseAttribute);
@@ -175,37 +185,37 @@ public class BmpMessagePersister implements BmpMessageHandler {
                             LOG.error("Exception while persisting BMP base attribute {}", bmpBaseAttribute, e);
                         }
                         String asPath = bmpBaseAttribute.getAsPath();
-                        List<BmpAsnPathAnalysis> asnPaths = buildBmpAsnPath(asPath);
-                        asnPaths.forEach(asnPath -> {
-                            try {
-                                bmpAsnPathAnalysisDao.saveOrUpdate(asnPath);
-                            } catch (Exception e) {
-                                LOG.error("Exception while persisting BMP asn path {}", asnPath, e);
-                            }
-                        });
-
+                        if (asPaths.add(asPath)) {
+                            buildBmpAsnPath(asPath, asnPaths);
+                        }
                     });
-                    break;
-                case UNICAST_PREFIX:
-                    List<BmpUnicastPrefix> bmpUnicastPrefixes = buildBmpUnicastPrefix(message);
-                    bmpUnicastPrefixes.forEach(unicastPrefix -> {
+                    asnPaths.values().forEach(asnPath -> {
                         try {
-                            updateStats(unicastPrefix, context.location);
-                            bmpUnicastPrefixDao.saveOrUpdate(unicastPrefix);
+                            bmpAsnPathAnalysisDao.saveOrUpdate(asnPath);
                         } catch (Exception e) {
-                            LOG.error("Exception while persisting BMP unicast prefix {}", unicastPrefix, e);
+                            LOG.error("Exception while persisting BMP asn path {}", asnPath, e);
                         }
                     });
                     break;
+                case UNICAST_PREFIX:
+                    final List<BmpIpRibLog> bmpIpRibLogs = new ArrayList<>();
+                    Collection<BmpUnicastPrefix> bmpUnicastPrefixes = buildBmpUnicastPrefix(message, bmpIpRibLogs);
+                    try {
+                        bmpUnicastPrefixDao.saveOrUpdateAll(bmpUnicastPrefixes);
+                        bmpIpRibLogDao.saveAll(bmpIpRibLogs);
+                    } catch (Exception e) {
+                        LOG.error("Exception while persisting {} BMP unicast prefixes", bmpUnicastPrefixes.size(), e);
+                    }
+                    break;
             }
         });
     }
 
 
-    private void updateStats(BmpUnicastPrefix unicastPrefix, String location) {
+    private static BmpIpRibLog buildBmpIpRibLog(BmpUnicastPrefix unicastPrefix, boolean added) {
         // Update counts if this is new prefix update or
         // if previous withdrawn state is different or it's an update with different base attributes
-        if (unicastPrefix.getId() == null ||
+        if (added ||
                 (unicastPrefix.isWithDrawn() != unicastPrefix.isPrevWithDrawnState() ||
                         (!unicastPrefix.isWithDrawn() && !unicastPrefix.getBaseAttrHashId().equals(unicastPrefix.getPrevBaseAttrHashId())))) {
 
@@ -218,9 +228,9 @@ public class BmpMessagePersister implements BmpMessageHandler {
             bmpIpRibLog.setOriginAs(unicastPrefix.getOriginAs());
             bmpIpRibLog.setTimestamp(new Date());
             bmpIpRibLog.setWithDrawn(unicastPrefix.isWithDrawn());
-            bmpIpRibLogDao.saveOrUpdate(bmpIpRibLog);
+            return bmpIpRibLog;
         }
-
+        return null;
     }
 
 
@@ -352,7 +362,8 @@ public class BmpMessagePersister implements BmpMessageHandler {
 
     private static List<BmpBaseAttribute> buildBmpBaseAttributes(Message message) {
 
-        List<BmpBaseAttribute> bmpBaseAttributes = new ArrayList<>();
+        // Attributes are shared by all the prefixes of an update, only keep the latest per hash
+        Map<String, BmpBaseAttribute> bmpBaseAttributes = new LinkedHashMap<>();
         message.getRecords().forEach(record -> {
             if (record.getType().equals(Type.BASE_ATTRIBUTE)) {
                 BaseAttribute baseAttribute = (BaseAttribute) record;
@@ -376,65 +387,94 @@ public class BmpMessagePersister implements BmpMessageHandler {
                     bmpBaseAttribute.setNextHopIpv4(baseAttribute.nextHopIpv4);
                     bmpBaseAttribute.setTimestamp(Date.from(baseAttribute.timestamp));
                     bmpBaseAttribute.setOriginatorId(baseAttribute.originatorId);
-                    bmpBaseAttributes.add(bmpBaseAttribute);
+                    bmpBaseAttributes.remove(baseAttribute.hash);
+                    bmpBaseAttributes.put(baseAttribute.hash, bmpBaseAttribute);
                 } catch (Exception e) {
                     LOG.error("Exception while mapping base attribute with hashId {} to BaseAttribute entity", baseAttribute.hash, e);
                 }
             }
 
         });
-        return bmpBaseAttributes;
+        return new ArrayList<>(bmpBaseAttributes.values());
     }
 
-    private List<BmpUnicastPrefix> buildBmpUnicastPrefix(Message message) {
-
-        List<BmpUnicastPrefix> bmpUnicastPrefixes = new ArrayList<>();
-        message.getRecords().forEach(record -> {
-            if (record.getType().equals(Type.UNICAST_PREFIX)) {
-                BmpPeer bmpPeer;
-                UnicastPrefix unicastPrefix = (UnicastPrefix) record;
-                try {
-                    BmpUnicastPrefix bmpUnicastPrefix = bmpUnicastPrefixDao.findByHashId(unicastPrefix.hash);
-                    if (bmpUnicastPrefix == null) {
-                        bmpUnicastPrefix = new BmpUnicastPrefix();
-                        bmpUnicastPrefix.setFirstAddedTimestamp(Date.from(unicastPrefix.timestamp));
-                        bmpPeer = bmpPeerDao.findByPeerHashId(unicastPrefix.peerHash);
-                    } else {
-                        bmpUnicastPrefix.setPrevBaseAttrHashId(bmpUnicastPrefix.getBaseAttrHashId());
-                        bmpUnicastPrefix.setPrevWithDrawnState(bmpUnicastPrefix.isWithDrawn());
-                        bmpPeer = bmpUnicastPrefix.getBmpPeer();
-                    }
-                    if (bmpPeer == null) {
-                        RATE_LIMITED_LOGGER.warn("Peer entity with hashId '{}', IpAddress = {} doesn't exist yet",
-                                unicastPrefix.peerHash, unicastPrefix.peerIp);
-                        return;
-                    }
-                    bmpUnicastPrefix.setBmpPeer(bmpPeer);
-                    bmpUnicastPrefix.setHashId(unicastPrefix.hash);
-                    bmpUnicastPrefix.setBaseAttrHashId(unicastPrefix.baseAttrHash);
-                    bmpUnicastPrefix.setIpv4(unicastPrefix.ipv4);
-                    bmpUnicastPrefix.setOriginAs(unicastPrefix.originAs);
-                    bmpUnicastPrefix.setPrefix(InetAddressUtils.str(unicastPrefix.prefix));
-                    bmpUnicastPrefix.setPrefixLen(unicastPrefix.length);
-                    bmpUnicastPrefix.setTimestamp(Date.from(unicastPrefix.timestamp));
-                    boolean withDrawn = !unicastPrefix.action.equals(UnicastPrefix.Action.ADD);
-                    bmpUnicastPrefix.setWithDrawn(withDrawn);
-                    bmpUnicastPrefix.setPathId(unicastPrefix.pathId);
-                    bmpUnicastPrefix.setLabels(unicastPrefix.labels);
-                    bmpUnicastPrefix.setPrePolicy(unicastPrefix.prePolicy);
-                    bmpUnicastPrefix.setAdjRibIn(unicastPrefix.adjIn);
-                    bmpUnicastPrefixes.add(bmpUnicastPrefix);
-                } catch (Exception e) {
-                    LOG.error("Exception while mapping Unicast prefix with prefix {} to UnicastPrefix entity",
-                            InetAddressUtils.str(unicastPrefix.prefix), e);
+    private Collection<BmpUnicastPrefix> buildBmpUnicastPrefix(Message message, List<BmpIpRibLog> bmpIpRibLogs) {
+
+        final List<UnicastPrefix> unicastPrefixes = message.getRecords().stream()
+                .filter(record -> record.getType().equals(Type.UNICAST_PREFIX))
+                .map(record -> (UnicastPrefix) record)
+                .collect(Collectors.toList());
+
+        // Look up the known prefixes of the whole batch at once
+        final Map<String, BmpUnicastPrefix> knownPrefixes = new HashMap<>();
+        bmpUnicastPrefixDao.findByHashIds(unicastPrefixes.stream()
+                        .map(unicastPrefix -> unicastPrefix.hash)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .forEach(bmpUnicastPrefix -> knownPrefixes.put(bmpUnicastPrefix.getHashId(), bmpUnicastPrefix));
+        final Map<String, Optional<BmpPeer>> bmpPeers = new HashMap<>();
+
+        // Updates of the same prefix within the batch are applied in order and written once
+        final Map<String, BmpUnicastPrefix> bmpUnicastPrefixes = new LinkedHashMap<>();
+        for (final UnicastPrefix unicastPrefix : unicastPrefixes) {
+            BmpPeer bmpPeer;
+            try {
+                BmpUnicastPrefix bmpUnicastPrefix = knownPrefixes.get(unicastPrefix.hash);
+                final boolean added = bmpUnicastPrefix == null;
+                if (added) {
+                    bmpUnicastPrefix = new BmpUnicastPrefix();
+                    bmpUnicastPrefix.setFirstAddedTimestamp(Date.from(unicastPrefix.timestamp));
+                    bmpPeer = bmpPeers.computeIfAbsent(unicastPrefix.peerHash, peerHash -> Optional.ofNullable(bmpPeerDao.findByPeerHashId(peerHash)))
+                            .orElse(null);
+                } else {
+                    bmpUnicastPrefix.setPrevBaseAttrHashId(bmpUnicastPrefix.getBaseAttrHashId());
+                    bmpUnicastPrefix.setPrevWithDrawnState(bmpUnicastPrefix.isWithDrawn());
+                    bmpPeer = bmpUnicastPrefix.getBmpPeer();
                 }
+                if (bmpPeer == null) {
+                    RATE_LIMITED_LOGGER.warn("Peer entity with hashId '{}', IpAddress = {} doesn't exist yet",
+                            unicastPrefix.peerHash, unicastPrefix.peerIp);
+                    continue;
+                }
+                bmpUnicastPrefix.setBmpPeer(bmpPeer);
+                bmpUnicastPrefix.setHashId(unicastPrefix.hash);
+                bmpUnicastPrefix.setBaseAttrHashId(unicastPrefix.baseAttrHash);
+                bmpUnicastPrefix.setIpv4(unicastPrefix.ipv4);
+                bmpUnicastPrefix.setOriginAs(unicastPrefix.originAs);
+                bmpUnicastPrefix.setPrefix(InetAddressUtils.str(unicastPrefix.prefix));
+                bmpUnicastPrefix.setPrefixLen(unicastPrefix.length);
+                bmpUnicastPrefix.setTimestamp(Date.from(unicastPrefix.timestamp));
+                boolean withDrawn = !unicastPrefix.action.equals(UnicastPrefix.Action.ADD);
+                bmpUnicastPrefix.setWithDrawn(withDrawn);
+                bmpUnicastPrefix.setPathId(unicastPrefix.pathId);
+                bmpUnicastPrefix.setLabels(unicastPrefix.labels);
+                bmpUnicastPrefix.setPrePolicy(unicastPrefix.prePolicy);
+                bmpUnicastPrefix.setAdjRibIn(unicastPrefix.adjIn);
+
+                final BmpIpRibLog bmpIpRibLog = buildBmpIpRibLog(bmpUnicastPrefix, added);
+                if (bmpIpRibLog != null) {
+                    bmpIpRibLogs.add(bmpIpRibLog);
+                }
+                knownPrefixes.put(unicastPrefix.hash, bmpUnicastPrefix);
+                bmpUnicastPrefixes.put(unicastPrefix.hash, bmpUnicastPrefix);
+            } catch (Exception e) {
+                LOG.error("Exception while mapping Unicast prefix with prefix {} to UnicastPrefix entity",
+                        InetAddressUtils.str(unicastPrefix.prefix), e);
             }
-        });
-        return bmpUnicastPrefixes;
+        }
+        return bmpUnicastPrefixes.values();
     }
 
 
     List<BmpAsnPathAnalysis> buildBmpAsnPath(String asnPath) {
+        return buildBmpAsnPath(asnPath, new HashMap<>());
+    }
+
+    /**
+     * Builds the path analysis of the given path, re-using and adding to the
+     * analysis entries already looked up for the current batch.
+     */
+    private List<BmpAsnPathAnalysis> buildBmpAsnPath(String asnPath, Map<String, BmpAsnPathAnalysis> asnPaths) {
 
         List<BmpAsnPathAnalysis> bmpAsnPathAnalyses = new ArrayList<>();
         String[] asnStringArray = asnPath.split(" ");
@@ -457,26 +497,12 @@ public class BmpMessagePersister implements BmpMessageHandler {
                         continue;
                     }
                     Boolean isPeeringAsn = (i == 0 || i == 1) ? TRUE : FALSE;
-                    BmpAsnPathAnalysis bmpAsnPathAnalysis = bmpAsnPathAnalysisDao.findByAsnPath(asn, leftAsn, rightAsn, isPeeringAsn);
-                    if (bmpAsnPathAnalysis == null) {
-                        bmpAsnPathAnalysis = new BmpAsnPathAnalysis();
-                        bmpAsnPathAnalysis.setAsn(asn);
-                        bmpAsnPathAnalysis.setAsnLeft(leftAsn);
-                        bmpAsnPathAnalysis.setAsnRight(rightAsn);
-                        bmpAsnPathAnalysis.setAsnLeftPeering(isPeeringAsn);
-                    }
+                    BmpAsnPathAnalysis bmpAsnPathAnalysis = findOrCreateAsnPath(asnPaths, asn, leftAsn, rightAsn, isPeeringAsn);
                     bmpAsnPathAnalysis.setLastUpdated(Date.from(Instant.now()));
                     bmpAsnPathAnalyses.add(bmpAsnPathAnalysis);
                 } else {
                     // No more left in path - Origin ASN
-                    BmpAsnPathAnalysis bmpAsnPathAnalysis = bmpAsnPathAnalysisDao.findByAsnPath(asn, leftAsn, 0L, false);
-                    if (bmpAsnPathAnalysis == null) {
-                        bmpAsnPathAnalysis = new BmpAsnPathAnalysis();
-                        bmpAsnPathAnalysis.setAsn(asn);
-                        bmpAsnPathAnalysis.setAsnLeft(leftAsn);
-                        bmpAsnPathAnalysis.setAsnRight(0L);
-                        bmpAsnPathAnalysis.setAsnLeftPeering(false);
-                    }
+                    BmpAsnPathAnalysis bmpAsnPathAnalysis = findOrCreateAsnPath(asnPaths, asn, leftAsn, 0L, false);
                     bmpAsnPathAnalysis.setLastUpdated(Date.from(Instant.now()));
                     bmpAsnPathAnalyses.add(bmpAsnPathAnalysis);
                     break;
@@ -488,6 +514,20 @@ public class BmpMessagePersister implements BmpMessageHandler {
         return bmpAsnPathAnalyses;
     }
 
+    private BmpAsnPathAnalysis findOrCreateAsnPath(Map<String, BmpAsnPathAnalysis> asnPaths, Long asn, Long leftAsn, Long rightAsn, Boolean isPeeringAsn) {
+        return asnPaths.computeIfAbsent(asn + ":" + leftAsn + ":" + rightAsn + ":" + isPeeringAsn, key -> {
+            BmpAsnPathAnalysis bmpAsnPathAnalysis = bmpAsnPathAnalysisDao.findByAsnPath(asn, leftAsn, rightAsn, isPeeringAsn);
+            if (bmpAsnPathAnalysis == null) {
+                bmpAsnPathAnalysis = new BmpAsnPathAnalysis();
+                bmpAsnPathAnalysis.setAsn(asn);
+                bmpAsnPathAnalysis.setAsnLeft(leftAsn);
+                bmpAsnPathAnalysis.setAsnRight(rightAsn);
+                bmpAsnPathAnalysis.setAsnLeftPeering(isPeeringAsn);
+            }
+            return bmpAsnPathAnalysis;
+        });
+    }
+
     static long[] getLongArrayFromStringArray(String[] asnArray) {
         long[] emptyArray = {};
         try {
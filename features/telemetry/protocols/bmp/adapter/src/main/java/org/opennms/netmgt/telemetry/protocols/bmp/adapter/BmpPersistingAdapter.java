@@ -30,6 +30,7 @@ import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.BmpMessageHand
 import org.opennms.netmgt.telemetry.protocols.collection.AbstractAdapter;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 public class BmpPersistingAdapter extends AbstractAdapter {
 
@@ -42,6 +43,20 @@ public class BmpPersistingAdapter extends AbstractAdapter {
         this.bmpMessageHandler = bmpMessageHandler;
     }
 
+    @Override
+    public void handleMessageLog(final TelemetryMessageLog messageLog) {
+        // Route monitoring records of the whole log are persisted in batches
+        final BmpMessageBatcher batcher = new BmpMessageBatcher(this.bmpMessageHandler);
+        try (final Timer.Context ctx = logParsingTimer.time()) {
+            for (final TelemetryMessageLogEntry message : messageLog.getMessageList()) {
+                BmpAdapterCommon.handleBmpMessage(message, messageLog, batcher, sequence);
+            }
+            batcher.flush();
+            packetsPerLogHistogram.update(messageLog.getMessageList().size());
+            recordsConsumed.mark(messageLog.getMessageList().size());
+        }
+    }
+
     @Override
     public void handleMessage(TelemetryMessageLogEntry messageLogEntry, TelemetryMessageLog messageLog) {
         BmpAdapterCommon.handleBmpMessage(messageLogEntry, messageLog, bmpMessageHandler, sequence);
@@ -0,0 +1,119 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.bmp.adapter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.BmpMessageHandler;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.Context;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Message;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Record;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Type;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.records.BaseAttribute;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.records.Peer;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.records.UnicastPrefix;
+
+public class BmpMessageBatcherTest {
+
+    private static final String COLLECTOR_HASH = "91e3a7ff9f5676ed6ae6fcd8a6b455ec";
+
+    private final Context context = new Context("collector", COLLECTOR_HASH, "81e4a7ff8f5673ed6ae6fcd9a3b452bg",
+            Instant.now(), InetAddress.getLoopbackAddress(), 11019, "Default");
+
+    private final List<Message> handled = new ArrayList<>();
+
+    private final BmpMessageHandler delegate = new BmpMessageHandler() {
+        @Override
+        public void handle(final Message message, final Context context) {
+            handled.add(message);
+        }
+
+        @Override
+        public void close() {
+            throw new IllegalStateException("The delegate must not be closed");
+        }
+    };
+
+    @Test
+    public void shouldMergeRouteMonitoringMessages() {
+        final BmpMessageBatcher batcher = new BmpMessageBatcher(delegate);
+        for (int i = 0; i < 3; i++) {
+            batcher.handle(message(Type.BASE_ATTRIBUTE, baseAttribute("attr" + i)), context);
+            batcher.handle(message(Type.UNICAST_PREFIX, unicastPrefix("prefix" + i)), context);
+        }
+        assertThat(handled, hasSize(0));
+
+        batcher.close();
+        assertThat(types(), contains(Type.BASE_ATTRIBUTE, Type.UNICAST_PREFIX));
+        assertThat(handled.get(0).getRecords(), hasSize(3));
+        assertThat(handled.get(1).getRecords(), hasSize(3));
+
+        // Nothing left to hand over
+        batcher.close();
+        assertThat(handled, hasSize(2));
+    }
+
+    @Test
+    public void shouldFlushBeforeOtherMessages() {
+        final BmpMessageBatcher batcher = new BmpMessageBatcher(delegate);
+        batcher.handle(message(Type.BASE_ATTRIBUTE, baseAttribute("attr")), context);
+        batcher.handle(message(Type.UNICAST_PREFIX, unicastPrefix("prefix")), context);
+        batcher.handle(message(Type.PEER, new Peer()), context);
+        batcher.handle(message(Type.UNICAST_PREFIX, unicastPrefix("withdrawn")), context);
+        batcher.flush();
+
+        assertThat(types(), contains(Type.BASE_ATTRIBUTE, Type.UNICAST_PREFIX, Type.PEER, Type.UNICAST_PREFIX));
+        assertThat(((UnicastPrefix) handled.get(3).getRecords().get(0)).hash, equalTo("withdrawn"));
+    }
+
+    private List<Type> types() {
+        return handled.stream().map(Message::getType).collect(Collectors.toList());
+    }
+
+    private static Message message(final Type type, final Record record) {
+        return new Message(COLLECTOR_HASH, type, Collections.singletonList(record));
+    }
+
+    private static BaseAttribute baseAttribute(final String hash) {
+        final BaseAttribute baseAttribute = new BaseAttribute();
+        baseAttribute.hash = hash;
+        return baseAttribute;
+    }
+
+    private static UnicastPrefix unicastPrefix(final String hash) {
+        final UnicastPrefix unicastPrefix = new UnicastPrefix();
+        unicastPrefix.action = UnicastPrefix.Action.ADD;
+        unicastPrefix.hash = hash;
+        return unicastPrefix;
+    }
+}
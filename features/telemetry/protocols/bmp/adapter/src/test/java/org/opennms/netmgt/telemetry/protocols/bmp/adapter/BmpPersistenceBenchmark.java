@@ -0,0 +1,207 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.bmp.adapter;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.mockito.stubbing.Answer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.netmgt.dao.api.SessionUtils;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.BmpMessageHandler;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.Context;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Message;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Record;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.Type;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.records.BaseAttribute;
+import org.opennms.netmgt.telemetry.protocols.bmp.adapter.openbmp.proto.records.UnicastPrefix;
+import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.BmpAsnPathAnalysisDao;
+import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.BmpBaseAttributeDao;
+import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.BmpIpRibLogDao;
+import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.BmpPeer;
+import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.BmpPeerDao;
+import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.BmpUnicastPrefixDao;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to measure persisting the initial RIB dump of a peer.
+ * <p>
+ * The dump is replayed as the route monitoring messages the adapter builds from it, either handed to the
+ * persister one update at a time, which is what every update went through before, or merged per message log.
+ * Every DAO call burns some CPU to stand in for the round trip to the database.
+ */
+public class BmpPersistenceBenchmark {
+
+    private static final String PEER_HASH = "61e5a7ff9f5433ed6ae6fcd9a2b432gf";
+
+    private static final long ROUND_TRIP_TOKENS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class DumpState {
+
+        @Param({"100000"})
+        public int prefixes;
+
+        @Param({"1000"})
+        public int attributes;
+
+        @Param({"500"})
+        public int logSize;
+
+        public BmpMessagePersister persister;
+        public Context context;
+        public List<List<Message>> updates;
+
+        @Setup
+        public void setup() {
+            final Answer<Object> roundTrip = invocation -> {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                return invocation.getMethod().getReturnType() == List.class ? Collections.emptyList() : null;
+            };
+
+            final BmpPeer peer = new BmpPeer();
+            peer.setHashId(PEER_HASH);
+            final BmpPeerDao bmpPeerDao = mock(BmpPeerDao.class, withSettings().stubOnly().defaultAnswer(invocation -> {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                return peer;
+            }));
+
+            persister = new BmpMessagePersister();
+            persister.setBmpPeerDao(bmpPeerDao);
+            persister.setBmpBaseAttributeDao(mock(BmpBaseAttributeDao.class, withSettings().stubOnly().defaultAnswer(roundTrip)));
+            persister.setBmpUnicastPrefixDao(mock(BmpUnicastPrefixDao.class, withSettings().stubOnly().defaultAnswer(roundTrip)));
+            persister.setBmpAsnPathAnalysisDao(mock(BmpAsnPathAnalysisDao.class, withSettings().stubOnly().defaultAnswer(roundTrip)));
+            persister.setBmpIpRibLogDao(mock(BmpIpRibLogDao.class, withSettings().stubOnly().defaultAnswer(roundTrip)));
+            persister.setSessionUtils(new SessionUtils() {
+                @Override
+                public <V> V withTransaction(final Supplier<V> supplier) {
+                    return supplier.get();
+                }
+
+                @Override
+                public <V> V withReadOnlyTransaction(final Supplier<V> supplier) {
+                    return supplier.get();
+                }
+
+                @Override
+                public <V> V withManualFlush(final Supplier<V> supplier) {
+                    return supplier.get();
+                }
+            });
+
+            context = new Context("collector", "91e3a7ff9f5676ed6ae6fcd8a6b455ec", "81e4a7ff8f5673ed6ae6fcd9a3b452bg",
+                    Instant.now(), InetAddress.getLoopbackAddress(), 11019, "Default");
+
+            // A full table dump: every update announces one prefix with one of the shared attribute sets
+            updates = new ArrayList<>(prefixes);
+            for (int i = 0; i < prefixes; i++) {
+                final BaseAttribute baseAttribute = baseAttribute(i % attributes);
+                final UnicastPrefix unicastPrefix = unicastPrefix(i, baseAttribute.hash);
+                final List<Message> messages = new ArrayList<>(2);
+                messages.add(new Message(context.collectorHashId, Type.BASE_ATTRIBUTE, Collections.<Record>singletonList(baseAttribute)));
+                messages.add(new Message(context.collectorHashId, Type.UNICAST_PREFIX, Collections.<Record>singletonList(unicastPrefix)));
+                updates.add(messages);
+            }
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void persistPerUpdate(DumpState state, Blackhole blackhole) {
+        for (final List<Message> messages : state.updates) {
+            for (final Message message : messages) {
+                state.persister.handle(message, state.context);
+            }
+            blackhole.consume(messages);
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void persistPerLog(DumpState state, Blackhole blackhole) {
+        BmpMessageHandler batcher = new BmpMessageBatcher(state.persister);
+        for (int i = 0; i < state.updates.size(); i++) {
+            for (final Message message : state.updates.get(i)) {
+                batcher.handle(message, state.context);
+            }
+            if ((i + 1) % state.logSize == 0) {
+                batcher.close();
+                batcher = new BmpMessageBatcher(state.persister);
+            }
+        }
+        batcher.close();
+        blackhole.consume(batcher);
+    }
+
+    private static BaseAttribute baseAttribute(final int index) {
+        final BaseAttribute baseAttribute = new BaseAttribute();
+        baseAttribute.hash = Record.hash(PEER_HASH, Integer.toString(index));
+        baseAttribute.peerHash = PEER_HASH;
+        baseAttribute.asPath = String.format("64512 %d %d", 65000 + index % 100, 1000 + index);
+        baseAttribute.asPathCount = 3;
+        baseAttribute.origin = "egp";
+        baseAttribute.originAs = 1000L + index;
+        baseAttribute.nextHop = InetAddressUtils.addr("10.0.1.2");
+        baseAttribute.med = 0L;
+        baseAttribute.localPref = 100L;
+        baseAttribute.nextHopIpv4 = true;
+        baseAttribute.timestamp = Instant.now();
+        return baseAttribute;
+    }
+
+    private static UnicastPrefix unicastPrefix(final int index, final String baseAttrHash) {
+        final UnicastPrefix unicastPrefix = new UnicastPrefix();
+        unicastPrefix.action = UnicastPrefix.Action.ADD;
+        unicastPrefix.hash = Record.hash(PEER_HASH, Integer.toString(index), "24");
+        unicastPrefix.peerHash = PEER_HASH;
+        unicastPrefix.baseAttrHash = baseAttrHash;
+        unicastPrefix.ipv4 = true;
+        unicastPrefix.originAs = 1000L + index;
+        unicastPrefix.prefix = InetAddressUtils.addr(String.format("%d.%d.%d.0", 1 + (index >> 16 & 0x7f), index >> 8 & 0xff, index & 0xff));
+        unicastPrefix.length = 24;
+        unicastPrefix.timestamp = Instant.now();
+        return unicastPrefix;
+    }
+}
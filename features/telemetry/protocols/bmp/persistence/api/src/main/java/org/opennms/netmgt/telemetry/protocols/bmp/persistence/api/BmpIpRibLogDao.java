@@ -21,12 +21,18 @@
  */
 package org.opennms.netmgt.telemetry.protocols.bmp.persistence.api;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.opennms.netmgt.dao.api.OnmsDao;
 
 public interface BmpIpRibLogDao extends OnmsDao<BmpIpRibLog, Long> {
 
+    /**
+     * Inserts the given log entries using JDBC batches.
+     */
+    void saveAll(Collection<BmpIpRibLog> ipRibLogs);
+
     List<StatsByPeer> getStatsByPeerForInterval(String interval);
 
     List<StatsByAsn> getStatsByAsnForInterval(String interval);
@@ -22,6 +22,7 @@
 package org.opennms.netmgt.telemetry.protocols.bmp.persistence.api;
 
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -31,6 +32,26 @@ public interface BmpUnicastPrefixDao extends OnmsDao<BmpUnicastPrefix, Long> {
 
     BmpUnicastPrefix findByHashId(String hashId);
 
+    /**
+     * Bulk variant of {@link #findByHashId(String)}.
+     *
+     * The returned prefixes are read-only: changes must be written
+     * using {@link #saveOrUpdateAll(Collection)}.
+     */
+    List<BmpUnicastPrefix> findByHashIds(Collection<String> hashIds);
+
+    /**
+     * Inserts the new and updates the existing prefixes using JDBC batches.
+     */
+    void saveOrUpdateAll(Collection<BmpUnicastPrefix> unicastPrefixes);
+
+    /**
+     * Deletes the prefixes of the given peer which were last updated at or before the given time.
+     *
+     * @return the number of deleted prefixes
+     */
+    int deleteByPeerHashIdBefore(String peerHashId, Date time);
+
     List<BmpUnicastPrefix> getUnicastPrefixesAfterDate(String hashId, Date time);
 
     List<PrefixByAS> getPrefixesGroupedByAS();
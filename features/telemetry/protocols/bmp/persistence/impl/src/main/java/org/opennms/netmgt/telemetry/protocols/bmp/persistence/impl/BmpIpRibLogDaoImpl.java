@@ -22,9 +22,15 @@
 package org.opennms.netmgt.telemetry.protocols.bmp.persistence.impl;
 
 import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
 import org.hibernate.transform.ResultTransformer;
 import org.opennms.netmgt.dao.hibernate.AbstractDaoHibernate;
 import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.BmpIpRibLog;
@@ -34,10 +40,55 @@ import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.StatsByPeer;
 import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.StatsByPrefix;
 
 public class BmpIpRibLogDaoImpl extends AbstractDaoHibernate<BmpIpRibLog, Long> implements BmpIpRibLogDao {
+
+    /**
+     * Number of statements sent to the database at once.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO bmp_ip_rib_log (id, peer_hash_id, base_attr_hash_id, last_updated, prefix, prefix_len, origin_as, is_withdrawn) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
     public BmpIpRibLogDaoImpl() {
         super(BmpIpRibLog.class);
     }
 
+    @Override
+    public void saveAll(Collection<BmpIpRibLog> ipRibLogs) {
+        if (ipRibLogs.isEmpty()) {
+            return;
+        }
+        getHibernateTemplate().execute(session -> {
+            final SessionImplementor sessionImplementor = (SessionImplementor) session;
+            final IdentifierGenerator idGenerator = sessionImplementor.getFactory().getIdentifierGenerator(BmpIpRibLog.class.getName());
+
+            session.doWork(connection -> {
+                try (final PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                    int inserts = 0;
+                    for (final BmpIpRibLog ipRibLog : ipRibLogs) {
+                        ipRibLog.setId((Long) idGenerator.generate(sessionImplementor, ipRibLog));
+                        insert.setLong(1, ipRibLog.getId());
+                        insert.setString(2, ipRibLog.getPeerHashId());
+                        insert.setString(3, ipRibLog.getBaseAttrHashId());
+                        insert.setTimestamp(4, new Timestamp(ipRibLog.getTimestamp().getTime()));
+                        insert.setString(5, ipRibLog.getPrefix());
+                        insert.setObject(6, ipRibLog.getPrefixLen(), Types.INTEGER);
+                        insert.setObject(7, ipRibLog.getOriginAs(), Types.BIGINT);
+                        insert.setBoolean(8, ipRibLog.isWithDrawn());
+                        insert.addBatch();
+                        if (++inserts % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    if (inserts % BATCH_SIZE != 0) {
+                        insert.executeBatch();
+                    }
+                }
+            });
+            return null;
+        });
+    }
+
     @Override
     public List<StatsByPeer> getStatsByPeerForInterval(String interval) {
 
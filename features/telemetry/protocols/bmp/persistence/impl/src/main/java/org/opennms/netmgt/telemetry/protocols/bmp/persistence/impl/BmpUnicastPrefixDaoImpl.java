@@ -22,9 +22,17 @@
 package org.opennms.netmgt.telemetry.protocols.bmp.persistence.impl;
 
 import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
 import org.hibernate.transform.ResultTransformer;
 import org.opennms.core.criteria.Criteria;
 import org.opennms.core.criteria.CriteriaBuilder;
@@ -37,9 +45,28 @@ import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.PrefixByAS;
 import org.opennms.netmgt.telemetry.protocols.bmp.persistence.api.StatsPeerRib;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
 
 public class BmpUnicastPrefixDaoImpl extends AbstractDaoHibernate<BmpUnicastPrefix, Long> implements BmpUnicastPrefixDao {
 
+    /**
+     * Maximum number of hash ids per lookup query.
+     */
+    private static final int LOOKUP_SIZE = 1000;
+
+    /**
+     * Number of statements sent to the database at once.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO bmp_ip_ribs (hash_id, peer_hash_id, base_attr_hash_id, is_ipv4, origin_as, prefix, prefix_len, " +
+            "last_updated, first_added_timestamp, is_withdrawn, prefix_bits, path_id, labels, is_pre_policy, is_adj_ribin, id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE bmp_ip_ribs SET hash_id = ?, peer_hash_id = ?, base_attr_hash_id = ?, is_ipv4 = ?, origin_as = ?, prefix = ?, prefix_len = ?, " +
+            "last_updated = ?, first_added_timestamp = ?, is_withdrawn = ?, prefix_bits = ?, path_id = ?, labels = ?, is_pre_policy = ?, is_adj_ribin = ? " +
+            "WHERE id = ?";
+
     public BmpUnicastPrefixDaoImpl() {
         super(BmpUnicastPrefix.class);
     }
@@ -58,6 +85,99 @@ public class BmpUnicastPrefixDaoImpl extends AbstractDaoHibernate<BmpUnicastPref
         return null;
     }
 
+    @Override
+    public List<BmpUnicastPrefix> findByHashIds(Collection<String> hashIds) {
+        final List<BmpUnicastPrefix> bmpUnicastPrefixes = new ArrayList<>(hashIds.size());
+        for (final List<String> chunk : Iterables.partition(hashIds, LOOKUP_SIZE)) {
+            bmpUnicastPrefixes.addAll(getHibernateTemplate().execute(session -> (List<BmpUnicastPrefix>) session
+                    .createQuery("FROM BmpUnicastPrefix AS prefix WHERE prefix.hashId IN (:hashIds)")
+                    .setParameterList("hashIds", chunk)
+                    .setReadOnly(true)
+                    .list()));
+        }
+        return bmpUnicastPrefixes;
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<BmpUnicastPrefix> unicastPrefixes) {
+        if (unicastPrefixes.isEmpty()) {
+            return;
+        }
+        getHibernateTemplate().execute(session -> {
+            // Pending changes, i.e. new peers, must be visible to the batch
+            session.flush();
+
+            final SessionImplementor sessionImplementor = (SessionImplementor) session;
+            final IdentifierGenerator idGenerator = sessionImplementor.getFactory().getIdentifierGenerator(BmpUnicastPrefix.class.getName());
+
+            session.doWork(connection -> {
+                try (final PreparedStatement insert = connection.prepareStatement(INSERT_SQL);
+                     final PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+                    int inserts = 0;
+                    int updates = 0;
+                    for (final BmpUnicastPrefix unicastPrefix : unicastPrefixes) {
+                        if (unicastPrefix.getId() == null) {
+                            unicastPrefix.setId((Long) idGenerator.generate(sessionImplementor, unicastPrefix));
+                            bind(insert, unicastPrefix);
+                            insert.addBatch();
+                            if (++inserts % BATCH_SIZE == 0) {
+                                insert.executeBatch();
+                            }
+                        } else {
+                            bind(update, unicastPrefix);
+                            update.addBatch();
+                            if (++updates % BATCH_SIZE == 0) {
+                                update.executeBatch();
+                            }
+                        }
+                    }
+                    if (inserts % BATCH_SIZE != 0) {
+                        insert.executeBatch();
+                    }
+                    if (updates % BATCH_SIZE != 0) {
+                        update.executeBatch();
+                    }
+                }
+            });
+
+            // The session must not write the prefixes a second time
+            unicastPrefixes.forEach(session::evict);
+            return null;
+        });
+    }
+
+    private static void bind(final PreparedStatement statement, final BmpUnicastPrefix unicastPrefix) throws SQLException {
+        statement.setString(1, unicastPrefix.getHashId());
+        statement.setString(2, unicastPrefix.getBmpPeer().getHashId());
+        statement.setString(3, unicastPrefix.getBaseAttrHashId());
+        statement.setBoolean(4, unicastPrefix.isIpv4());
+        statement.setObject(5, unicastPrefix.getOriginAs(), Types.BIGINT);
+        statement.setString(6, unicastPrefix.getPrefix());
+        statement.setObject(7, unicastPrefix.getPrefixLen(), Types.SMALLINT);
+        statement.setTimestamp(8, toTimestamp(unicastPrefix.getTimestamp()));
+        statement.setTimestamp(9, toTimestamp(unicastPrefix.getFirstAddedTimestamp()));
+        statement.setBoolean(10, unicastPrefix.isWithDrawn());
+        statement.setString(11, unicastPrefix.getPrefixBits());
+        statement.setObject(12, unicastPrefix.getPathId(), Types.BIGINT);
+        statement.setString(13, unicastPrefix.getLabels());
+        statement.setBoolean(14, unicastPrefix.isPrePolicy());
+        statement.setBoolean(15, unicastPrefix.isAdjRibIn());
+        statement.setLong(16, unicastPrefix.getId());
+    }
+
+    private static Timestamp toTimestamp(final Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+
+    @Override
+    public int deleteByPeerHashIdBefore(String peerHashId, Date time) {
+        return getHibernateTemplate().execute(session -> session
+                .createSQLQuery("DELETE FROM bmp_ip_ribs WHERE peer_hash_id = :peerHashId AND last_updated <= :time")
+                .setString("peerHashId", peerHashId)
+                .setTimestamp("time", time)
+                .executeUpdate());
+    }
+
     @Override
     public List<BmpUnicastPrefix> getUnicastPrefixesAfterDate(String hashId, Date time) {
         CriteriaBuilder criteriaBuilder = new CriteriaBuilder(BmpUnicastPrefix.class);
@@ -44,8 +44,8 @@ import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLog;
 import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLogEntry;
 import org.opennms.netmgt.telemetry.config.api.AdapterDefinition;
 import org.opennms.netmgt.telemetry.protocols.collection.AbstractScriptedCollectionAdapter;
+import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetGenerator;
 import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetWithAgent;
-import org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder;
 
 public class GraphiteAdapter extends AbstractScriptedCollectionAdapter {
     private CollectionAgentFactory collectionAgentFactory;
@@ -80,9 +80,9 @@ public class GraphiteAdapter extends AbstractScriptedCollectionAdapter {
             return Stream.empty();
         }
 
-        final ScriptedCollectionSetBuilder builder = getCollectionBuilder();
+        final CollectionSetGenerator builder = getCollectionBuilder();
         if (builder == null) {
-            LOG.error("Error compiling script '{}'. See logs for details.", this.getScript());
+            LOG.error("Error compiling script or mapping '{}'. See logs for details.", this.getScriptOrMapping());
             return Stream.empty();
         }
 
@@ -39,8 +39,8 @@ import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLog;
 import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLogEntry;
 import org.opennms.netmgt.telemetry.config.api.AdapterDefinition;
 import org.opennms.netmgt.telemetry.protocols.collection.AbstractScriptedCollectionAdapter;
+import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetGenerator;
 import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetWithAgent;
-import org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder;
 import org.opennms.netmgt.telemetry.protocols.jti.adapter.proto.CpuMemoryUtilizationOuterClass;
 import org.opennms.netmgt.telemetry.protocols.jti.adapter.proto.FirewallOuterClass;
 import org.opennms.netmgt.telemetry.protocols.jti.adapter.proto.LogicalPortOuterClass;
@@ -140,9 +140,9 @@ public class JtiGpbAdapter extends AbstractScriptedCollectionAdapter {
             return Stream.empty();
         }
 
-        final ScriptedCollectionSetBuilder builder = getCollectionBuilder();
+        final CollectionSetGenerator builder = getCollectionBuilder();
         if (builder == null) {
-            LOG.error("Error compiling script '{}'. See logs for details.", this.getScript());
+            LOG.error("Error compiling script or mapping '{}'. See logs for details.", this.getScriptOrMapping());
             return Stream.empty();
         }
 
@@ -151,7 +151,7 @@ public class JtiGpbAdapter extends AbstractScriptedCollectionAdapter {
             return Stream.of(new CollectionSetWithAgent(agent, collectionSet));
 
         } catch (final ScriptException e) {
-            LOG.warn("Error while running script: {}: {}", getScript(), e);
+            LOG.warn("Error while running script or mapping: {}: {}", getScriptOrMapping(), e);
             return Stream.empty();
         }
     }
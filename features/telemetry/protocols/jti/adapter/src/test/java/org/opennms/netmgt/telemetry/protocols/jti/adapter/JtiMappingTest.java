@@ -0,0 +1,98 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.jti.adapter;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.collection.api.CollectionAgent;
+import org.opennms.netmgt.collection.api.CollectionSet;
+import org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder;
+import org.opennms.netmgt.telemetry.protocols.collection.mapping.MappedCollectionSetBuilder;
+import org.opennms.netmgt.telemetry.protocols.jti.adapter.proto.Port;
+import org.opennms.netmgt.telemetry.protocols.jti.adapter.proto.TelemetryTop;
+
+import com.google.common.io.Resources;
+import com.google.protobuf.ExtensionRegistry;
+
+/**
+ * Verifies that the declarative mapping shipped for JTI builds the same
+ * collection sets as the shipped Groovy script.
+ */
+public class JtiMappingTest {
+
+    static final File SCRIPT = Paths.get("../../../../../opennms-base-assembly/src/main/filtered/etc/telemetryd-adapters/junos-telemetry-interface.groovy").toFile();
+    static final File MAPPING = Paths.get("../../../../../opennms-base-assembly/src/main/filtered/etc/telemetryd-adapters/junos-telemetry-interface.xml").toFile();
+
+    private CollectionAgent agent;
+    private ScriptedCollectionSetBuilder scriptBuilder;
+    private MappedCollectionSetBuilder mappingBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        agent = mock(CollectionAgent.class);
+        when(agent.getNodeId()).thenReturn(1);
+        scriptBuilder = new ScriptedCollectionSetBuilder(SCRIPT);
+        mappingBuilder = new MappedCollectionSetBuilder(MAPPING);
+    }
+
+    @Test
+    public void canMapInterfaceStatistics() throws Exception {
+        final TelemetryTop.TelemetryStream msg = loadSample();
+
+        final CollectionSet collectionSet = mappingBuilder.build(agent, msg, msg.getTimestamp());
+        assertThat(collectionSet.toString(), containsString("ge_0_0_3"));
+        assertThat(collectionSet.toString(), containsString("group=mib2-interfaces, name=ifOutOctets"));
+
+        final CollectionSet expected = scriptBuilder.build(agent, msg, msg.getTimestamp());
+        assertEquals(expected, collectionSet);
+        assertEquals(expected.toString(), collectionSet.toString());
+    }
+
+    @Test
+    public void skipsMessagesWithoutInterfaceStatistics() throws Exception {
+        final TelemetryTop.TelemetryStream msg = TelemetryTop.TelemetryStream.newBuilder()
+                .setSystemId("jti")
+                .setSequenceNumber(7)
+                .build();
+
+        final CollectionSet collectionSet = mappingBuilder.build(agent, msg, msg.getTimestamp());
+        assertEquals(7L, collectionSet.getSequenceNumber().getAsLong());
+        assertThat(collectionSet.toString(), containsString("collectionResources=[]"));
+    }
+
+    static TelemetryTop.TelemetryStream loadSample() throws Exception {
+        final ExtensionRegistry registry = ExtensionRegistry.newInstance();
+        TelemetryTop.registerAllExtensions(registry);
+        Port.registerAllExtensions(registry);
+
+        return TelemetryTop.TelemetryStream.parseFrom(Resources.toByteArray(Resources.getResource("jti_15.1F4_ifd_ae_40000.raw")), registry);
+    }
+}
@@ -46,6 +46,7 @@ import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.SignedVal
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.StringValue;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.UndeclaredValue;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.UnsignedValue;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.session.DecodedRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,8 +71,13 @@ public class RecordEnricher {
             return emptyFuture;
         }
         final IpAddressCapturingVisitor ipAddressCapturingVisitor = new IpAddressCapturingVisitor();
-        for (final Value<?> value : record) {
-            value.visit(ipAddressCapturingVisitor);
+        if (record instanceof DecodedRecord) {
+            // Avoid creating values for fields decoded directly from the record data
+            ((DecodedRecord) record).forEachAddress(ipAddressCapturingVisitor.getAddresses()::add);
+        } else {
+            for (final Value<?> value : record) {
+                value.visit(ipAddressCapturingVisitor);
+            }
         }
         final Set<InetAddress> addressesToReverseLookup = ipAddressCapturingVisitor.getAddresses();
         final Map<InetAddress, String> hostnamesByAddress = new HashMap<>(addressesToReverseLookup.size());
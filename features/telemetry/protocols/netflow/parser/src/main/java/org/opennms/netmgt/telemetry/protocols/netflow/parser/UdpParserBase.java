@@ -56,6 +56,8 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
 
     private ScheduledFuture<?> housekeepingFuture;
     private Duration templateTimeout = Duration.ofMinutes(30);
+    private int maxTemplates = UdpSessionManager.DEFAULT_MAX_TEMPLATES;
+    private int maxTemplatesPerExporter = UdpSessionManager.DEFAULT_MAX_TEMPLATES_PER_EXPORTER;
 
     public UdpParserBase(final Protocol protocol,
                          final String name,
@@ -74,6 +76,16 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
         if (!metricRegistry.getGauges().keySet().contains(sessionCountGauge)) {
             metricRegistry.register(sessionCountGauge, (Gauge<Integer>) () -> (this.sessionManager != null) ? this.sessionManager.count() : null);
         }
+
+        String templateEvictionsGauge = MetricRegistry.name("parsers",  name, "templateEvictions");
+        if (!metricRegistry.getGauges().keySet().contains(templateEvictionsGauge)) {
+            metricRegistry.register(templateEvictionsGauge, (Gauge<Long>) () -> (this.sessionManager != null) ? this.sessionManager.getEvictions() : null);
+        }
+
+        String missingTemplatesGauge = MetricRegistry.name("parsers",  name, "missingTemplates");
+        if (!metricRegistry.getGauges().keySet().contains(missingTemplatesGauge)) {
+            metricRegistry.register(missingTemplatesGauge, (Gauge<Long>) () -> (this.sessionManager != null) ? this.sessionManager.getMissingTemplates() : null);
+        }
     }
 
     protected abstract RecordProvider parse(final Session session, final ByteBuf buffer) throws Exception;
@@ -100,7 +112,7 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
     @Override
     public void start(final ScheduledExecutorService executorService) {
         super.start(executorService);
-        this.sessionManager = new UdpSessionManager(this.templateTimeout, this::sequenceNumberTracker);
+        this.sessionManager = new UdpSessionManager(this.templateTimeout, this.maxTemplates, this.maxTemplatesPerExporter, this::sequenceNumberTracker);
         this.housekeepingFuture = executorService.scheduleAtFixedRate(this.sessionManager::doHousekeeping,
                 HOUSEKEEPING_INTERVAL,
                 HOUSEKEEPING_INTERVAL,
@@ -121,6 +133,22 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
         this.templateTimeout = templateTimeout;
     }
 
+    public int getMaxTemplates() {
+        return this.maxTemplates;
+    }
+
+    public void setMaxTemplates(final int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    public int getMaxTemplatesPerExporter() {
+        return this.maxTemplatesPerExporter;
+    }
+
+    public void setMaxTemplatesPerExporter(final int maxTemplatesPerExporter) {
+        this.maxTemplatesPerExporter = maxTemplatesPerExporter;
+    }
+
     @Override
     public Object dumpInternalState() {
         return this.sessionManager.dumpInternalState();
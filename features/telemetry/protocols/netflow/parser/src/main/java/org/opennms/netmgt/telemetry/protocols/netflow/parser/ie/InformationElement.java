@@ -29,6 +29,16 @@ import io.netty.buffer.ByteBuf;
 
 public interface InformationElement {
 
+    /**
+     * Wire encodings that compiled template decoders can read without parsing into a {@link Value}.
+     */
+    enum Encoding {
+        UNSIGNED,
+        IPV4_ADDRESS,
+        IPV6_ADDRESS,
+        OPAQUE,
+    }
+
     Value<?> parse(final Session.Resolver resolver,
                    final ByteBuf buffer) throws InvalidPacketException, MissingTemplateException;
 
@@ -37,4 +47,8 @@ public interface InformationElement {
     int getMinimumFieldLength();
 
     int getMaximumFieldLength();
+
+    default Encoding getEncoding() {
+        return Encoding.OPAQUE;
+    }
 }
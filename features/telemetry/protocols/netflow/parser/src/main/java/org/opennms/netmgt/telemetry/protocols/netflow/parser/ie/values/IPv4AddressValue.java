@@ -85,6 +85,11 @@ public class IPv4AddressValue extends Value<Inet4Address> {
             public int getMaximumFieldLength() {
                 return 4;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.IPV4_ADDRESS;
+            }
         };
     }
 
@@ -86,6 +86,11 @@ public class IPv6AddressValue extends Value<Inet6Address> {
             public int getMaximumFieldLength() {
                 return 16;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.IPV6_ADDRESS;
+            }
         };
     }
 
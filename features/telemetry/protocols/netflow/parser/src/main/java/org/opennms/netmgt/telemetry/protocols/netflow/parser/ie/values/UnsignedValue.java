@@ -80,6 +80,11 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 1;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
         };
     }
 
@@ -104,6 +109,11 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 2;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
         };
     }
 
@@ -128,6 +138,11 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 3;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
         };
     }
 
@@ -152,6 +167,11 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 4;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
         };
     }
 
@@ -176,6 +196,11 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 8;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
         };
     }
 
@@ -97,13 +97,17 @@ public final class DataRecord implements Record {
             scopes.add(parseField(scope, resolver, buffer));
         }
 
-        final List<Value<?>> fields = new ArrayList<>(this.template.fields.size());
-        for (final Field field : this.template.fields) {
-            fields.add(parseField(field, resolver, buffer));
-        }
-
         this.scopes = Collections.unmodifiableList(scopes);
-        this.fields = Collections.unmodifiableList(fields);
+
+        if (this.template.decoder != null) {
+            this.fields = this.template.decoder.decode(DataRecord::parseField, resolver, buffer);
+        } else {
+            final List<Value<?>> fields = new ArrayList<>(this.template.fields.size());
+            for (final Field field : this.template.fields) {
+                fields.add(parseField(field, resolver, buffer));
+            }
+            this.fields = Collections.unmodifiableList(fields);
+        }
 
         // Expand the data record by appending values from
         // TODO fooker: extend fields with packet metadata
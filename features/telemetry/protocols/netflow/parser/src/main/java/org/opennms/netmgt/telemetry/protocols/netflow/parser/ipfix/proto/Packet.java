@@ -35,6 +35,7 @@ import org.opennms.netmgt.telemetry.protocols.netflow.parser.MissingTemplateExce
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.RecordProvider;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.UnsignedValue;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.session.DecodedRecord;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.session.Session;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.session.Template;
 import org.slf4j.Logger;
@@ -42,7 +43,6 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 
 import io.netty.buffer.ByteBuf;
@@ -186,17 +186,15 @@ public final class Packet implements Iterable<FlowSet<?>>, RecordProvider {
                 .mapToInt(s -> s.records.size())
                 .sum();
 
+        final List<Value<?>> header = ImmutableList.of(
+                new UnsignedValue("@recordCount", recordCount),
+                new UnsignedValue("@sequenceNumber", this.header.sequenceNumber),
+                new UnsignedValue("@exportTime", this.header.exportTime),
+                new UnsignedValue("@observationDomainId", this.header.observationDomainId));
+
         return this.dataSets.stream()
                 .flatMap(s -> s.records.stream())
-                .map(r -> Iterables.concat(
-                        ImmutableList.of(
-                                new UnsignedValue("@recordCount", recordCount),
-                                new UnsignedValue("@sequenceNumber", this.header.sequenceNumber),
-                                new UnsignedValue("@exportTime", this.header.exportTime),
-                                new UnsignedValue("@observationDomainId", this.header.observationDomainId)),
-                        r.fields,
-                        r.options
-                ));
+                .map(r -> DecodedRecord.of(header, r.fields, r.options));
     }
 
     @Override
@@ -74,13 +74,17 @@ public final class DataRecord implements Record {
             scopes.add(scope.parse(resolver, slice(buffer, scope.length())));
         }
 
-        final List<Value<?>> fields = new ArrayList<>(this.template.fields.size());
-        for (final Field field : template.fields) {
-            fields.add(field.parse(resolver, slice(buffer, field.length())));
-        }
-
         this.scopes = Collections.unmodifiableList(scopes);
-        this.fields = Collections.unmodifiableList(fields);
+
+        if (template.decoder != null) {
+            this.fields = template.decoder.decode(DataRecord::parseField, resolver, buffer);
+        } else {
+            final List<Value<?>> fields = new ArrayList<>(this.template.fields.size());
+            for (final Field field : template.fields) {
+                fields.add(parseField(field, resolver, buffer));
+            }
+            this.fields = Collections.unmodifiableList(fields);
+        }
 
         // Expand the data record by appending values from
         this.options = resolver.lookupOptions(ScopeFieldSpecifier.buildScopeValues(this));
@@ -94,4 +98,10 @@ public final class DataRecord implements Record {
                 .add("options", this.options)
                 .toString();
     }
+
+    public static Value<?> parseField(final Field field,
+                                      final Session.Resolver resolver,
+                                      final ByteBuf buffer) throws InvalidPacketException, MissingTemplateException {
+        return field.parse(resolver, slice(buffer, field.length()));
+    }
 }
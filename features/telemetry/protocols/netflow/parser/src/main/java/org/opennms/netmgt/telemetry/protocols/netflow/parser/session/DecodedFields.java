@@ -0,0 +1,132 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.netflow.parser.session;
+
+import java.net.InetAddress;
+import java.util.AbstractList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.IPv4AddressValue;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.IPv6AddressValue;
+
+/**
+ * The fields of a data record decoded by a {@link TemplateDecoder}.
+ *
+ * Values of directly decoded fields are only created when accessed through the list interface.
+ */
+public final class DecodedFields extends AbstractList<Value<?>> implements RandomAccess {
+    private final TemplateDecoder decoder;
+    private final byte[] data;
+    private final Value<?>[] values;
+
+    DecodedFields(final TemplateDecoder decoder, final byte[] data, final Value<?>[] values) {
+        this.decoder = Objects.requireNonNull(decoder);
+        this.data = Objects.requireNonNull(data);
+        this.values = Objects.requireNonNull(values);
+    }
+
+    @Override
+    public Value<?> get(final int index) {
+        Value<?> value = this.values[index];
+        if (value == null) {
+            value = this.decoder.materialize(index, this.data);
+            this.values[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return this.values.length;
+    }
+
+    public <S> void apply(final TemplateDecoder.Handlers<S> handlers, final S state) {
+        this.decoder.apply(handlers, state, this.data, this);
+    }
+
+    public void forEachAddress(final Consumer<InetAddress> consumer) {
+        this.decoder.forEachAddress(this.data, consumer);
+
+        for (int i = 0; i < this.values.length; i++) {
+            if (!this.decoder.isDirect(i)) {
+                addressOf(this.values[i], consumer);
+            }
+        }
+    }
+
+    private String getName(final int index) {
+        final String name = this.decoder.getName(index);
+        return name != null ? name : this.get(index).getName();
+    }
+
+    static void addressOf(final Value<?> value, final Consumer<InetAddress> consumer) {
+        if (value instanceof IPv4AddressValue || value instanceof IPv6AddressValue) {
+            consumer.accept((InetAddress) value.getValue());
+        }
+    }
+
+    /**
+     * Returns the names of the given values without creating values for directly decoded fields.
+     */
+    public static Set<String> namesOf(final List<Value<?>> values) {
+        final Set<String> names = new HashSet<>(values.size());
+        if (values instanceof DecodedFields) {
+            final DecodedFields fields = (DecodedFields) values;
+            for (int i = 0; i < fields.size(); i++) {
+                names.add(fields.getName(i));
+            }
+        } else {
+            for (final Value<?> value : values) {
+                names.add(value.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the values with the given names, creating values for directly decoded fields only if required.
+     */
+    public static Set<Value<?>> valuesOf(final List<Value<?>> values, final Set<String> names) {
+        final Set<Value<?>> result = new HashSet<>(names.size());
+        if (values instanceof DecodedFields) {
+            final DecodedFields fields = (DecodedFields) values;
+            for (int i = 0; i < fields.size(); i++) {
+                if (names.contains(fields.getName(i))) {
+                    result.add(fields.get(i));
+                }
+            }
+        } else {
+            for (final Value<?> value : values) {
+                if (names.contains(value.getName())) {
+                    result.add(value);
+                }
+            }
+        }
+        return result;
+    }
+}
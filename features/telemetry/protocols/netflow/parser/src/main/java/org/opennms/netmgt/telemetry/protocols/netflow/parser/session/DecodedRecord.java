@@ -0,0 +1,93 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.netflow.parser.session;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+
+/**
+ * A flow record consisting of the packet header values, the decoded fields of a data record and the options
+ * associated with the record.
+ *
+ * Iterating the record yields the same values as the concatenation of its parts. Message builders and the record
+ * enricher use the decoded fields directly instead.
+ */
+public final class DecodedRecord implements Iterable<Value<?>> {
+    private final List<Value<?>> header;
+    private final DecodedFields fields;
+    private final List<Value<?>> options;
+
+    private DecodedRecord(final List<Value<?>> header,
+                          final DecodedFields fields,
+                          final List<Value<?>> options) {
+        this.header = Objects.requireNonNull(header);
+        this.fields = Objects.requireNonNull(fields);
+        this.options = Objects.requireNonNull(options);
+    }
+
+    public static Iterable<Value<?>> of(final List<Value<?>> header,
+                                        final List<Value<?>> fields,
+                                        final List<Value<?>> options) {
+        if (fields instanceof DecodedFields) {
+            return new DecodedRecord(header, (DecodedFields) fields, options);
+        }
+
+        return Iterables.concat(header, fields, options);
+    }
+
+    @Override
+    public Iterator<Value<?>> iterator() {
+        return Iterators.concat(this.header.iterator(), this.fields.iterator(), this.options.iterator());
+    }
+
+    public <S> void apply(final TemplateDecoder.Handlers<S> handlers, final S state) {
+        for (final Value<?> value : this.header) {
+            handlers.accept(state, value);
+        }
+
+        this.fields.apply(handlers, state);
+
+        for (final Value<?> value : this.options) {
+            handlers.accept(state, value);
+        }
+    }
+
+    public void forEachAddress(final Consumer<InetAddress> consumer) {
+        for (final Value<?> value : this.header) {
+            DecodedFields.addressOf(value, consumer);
+        }
+
+        this.fields.forEachAddress(consumer);
+
+        for (final Value<?> value : this.options) {
+            DecodedFields.addressOf(value, consumer);
+        }
+    }
+}
@@ -70,7 +70,7 @@ public class TcpSession implements Session {
         public List<Value<?>> lookupOptions(final List<Value<?>> values) {
             final LinkedHashMap<String, Value<?>> options = new LinkedHashMap<>();
 
-            final Set<String> scoped = values.stream().map(Value::getName).collect(Collectors.toSet());
+            final Set<String> scoped = DecodedFields.namesOf(values);
 
             for (final Map.Entry<TemplateKey, Map<Set<Value<?>>, List<Value<?>>>> e : Iterables.filter(TcpSession.this.options.entrySet(),
                                                                                                e -> e.getKey().observationDomainId == this.observationDomainId)) {
@@ -81,9 +81,7 @@ public class TcpSession implements Session {
                 if (scoped.containsAll(scopes)) {
                     // Found option template where scoped fields is subset of actual data fields
 
-                    final Set<Value<?>> scopeValues = values.stream()
-                            .filter(s -> scopes.contains(s.getName()))
-                            .collect(Collectors.toSet());
+                    final Set<Value<?>> scopeValues = DecodedFields.valuesOf(values, scopes);
 
                     for (final Value<?> value : e.getValue().getOrDefault(scopeValues, Collections.emptyList())) {
                         options.put(value.getName(), value);
@@ -46,6 +46,9 @@ public final class Template implements Iterable<Field> {
     public final List<Field> fields;
     public final Set<String> scopeNames;
 
+    // Compiled decoder for data records - options records are always parsed into values
+    public final TemplateDecoder decoder;
+
     private Template(final int id,
                      final Type type,
                      final List<Scope> scopes,
@@ -57,6 +60,7 @@ public final class Template implements Iterable<Field> {
         // The set of scope names are used when processing packets - so we build it here once
         // instead of having to re-compute this everytime
         this.scopeNames = scopes.stream().map(Scope::getName).collect(Collectors.toSet());
+        this.decoder = type == Type.TEMPLATE ? new TemplateDecoder(fields) : null;
     }
 
     public int count() {
@@ -0,0 +1,289 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.netflow.parser.session;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferUnderflowException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.InvalidPacketException;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.MissingTemplateException;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.InformationElement;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * A decoder compiled from the fields of a data template once, when the template arrives.
+ *
+ * Fixed-width unsigned and address fields are copied verbatim into a compact buffer while parsing and are later read
+ * directly into the state of a message builder without creating intermediate {@link Value}s. Fields the builder does
+ * not handle are skipped entirely. All other fields are parsed into values eagerly, like before.
+ */
+public final class TemplateDecoder {
+
+    /**
+     * Receives the value of a single field.
+     *
+     * Handlers accepting unsigned or address values directly are fed from the raw record data when the field encoding
+     * allows for it. Otherwise the handler is called with the parsed value.
+     */
+    public interface Handler<S> {
+        void accept(final S state, final Value<?> value);
+
+        default boolean acceptsUnsigned() {
+            return false;
+        }
+
+        default void acceptUnsigned(final S state, final long value) {
+            throw new UnsupportedOperationException();
+        }
+
+        default boolean acceptsAddress() {
+            return false;
+        }
+
+        default void acceptAddress(final S state, final InetAddress address) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A set of handlers keyed by field name.
+     */
+    public interface Handlers<S> {
+        Handler<S> lookup(final String name);
+
+        default void accept(final S state, final Value<?> value) {
+            final Handler<S> handler = this.lookup(value.getName());
+            if (handler != null) {
+                handler.accept(state, value);
+            }
+        }
+
+        default void acceptAll(final S state, final Iterable<Value<?>> values) {
+            if (values instanceof DecodedRecord) {
+                ((DecodedRecord) values).apply(this, state);
+                return;
+            }
+
+            for (final Value<?> value : values) {
+                this.accept(state, value);
+            }
+        }
+    }
+
+    /**
+     * Parses a field which can not be decoded directly, including the protocol specific length handling.
+     */
+    @FunctionalInterface
+    public interface FieldParser {
+        Value<?> parse(final Field field,
+                       final Session.Resolver resolver,
+                       final ByteBuf buffer) throws InvalidPacketException, MissingTemplateException;
+    }
+
+    private final Field[] fields;
+    private final String[] names;
+    private final InformationElement.Encoding[] encodings;
+
+    // Offset of the field in the raw record data or -1 if the field is parsed into a value
+    private final int[] offsets;
+    private final int length;
+
+    private volatile Binding<?> binding;
+
+    public TemplateDecoder(final List<Field> fields) {
+        this.fields = fields.toArray(new Field[0]);
+        this.names = new String[this.fields.length];
+        this.encodings = new InformationElement.Encoding[this.fields.length];
+        this.offsets = new int[this.fields.length];
+
+        int length = 0;
+        for (int i = 0; i < this.fields.length; i++) {
+            final Field field = this.fields[i];
+            final Optional<InformationElement> element = field.getInformationElement();
+
+            this.names[i] = element.map(InformationElement::getName).orElse(null);
+            this.encodings[i] = element.map(InformationElement::getEncoding).orElse(InformationElement.Encoding.OPAQUE);
+
+            if (element.isPresent() && isDirect(element.get(), field.length())) {
+                this.offsets[i] = length;
+                length += field.length();
+            } else {
+                this.offsets[i] = -1;
+            }
+        }
+        this.length = length;
+    }
+
+    private static boolean isDirect(final InformationElement element, final int length) {
+        switch (element.getEncoding()) {
+            case UNSIGNED:
+                return length >= 1 && length <= element.getMaximumFieldLength();
+            case IPV4_ADDRESS:
+                return length == 4;
+            case IPV6_ADDRESS:
+                return length == 16;
+            default:
+                return false;
+        }
+    }
+
+    public DecodedFields decode(final FieldParser parser,
+                                final Session.Resolver resolver,
+                                final ByteBuf buffer) throws InvalidPacketException, MissingTemplateException {
+        final byte[] data = new byte[this.length];
+        final Value<?>[] values = new Value<?>[this.fields.length];
+
+        for (int i = 0; i < this.fields.length; i++) {
+            if (this.offsets[i] >= 0) {
+                final int length = this.fields[i].length();
+                if (length > buffer.readableBytes()) {
+                    throw new BufferUnderflowException();
+                }
+                buffer.readBytes(data, this.offsets[i], length);
+            } else {
+                values[i] = parser.parse(this.fields[i], resolver, buffer);
+            }
+        }
+
+        return new DecodedFields(this, data, values);
+    }
+
+    int size() {
+        return this.fields.length;
+    }
+
+    String getName(final int index) {
+        return this.names[index];
+    }
+
+    boolean isDirect(final int index) {
+        return this.offsets[index] >= 0;
+    }
+
+    Value<?> materialize(final int index, final byte[] data) {
+        try {
+            return this.fields[index].parse(null, Unpooled.wrappedBuffer(data, this.offsets[index], this.fields[index].length()));
+        } catch (final InvalidPacketException | MissingTemplateException e) {
+            // Directly decoded fields have been validated when compiling the template
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void forEachAddress(final byte[] data, final Consumer<InetAddress> consumer) {
+        for (int i = 0; i < this.fields.length; i++) {
+            if (this.offsets[i] >= 0 && this.encodings[i] != InformationElement.Encoding.UNSIGNED) {
+                consumer.accept(readAddress(data, this.offsets[i], this.fields[i].length()));
+            }
+        }
+    }
+
+    <S> void apply(final Handlers<S> handlers, final S state, final byte[] data, final DecodedFields fields) {
+        final List<Step<S>> steps = this.bind(handlers);
+        for (int i = 0; i < steps.size(); i++) {
+            steps.get(i).apply(state, data, fields);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> List<Step<S>> bind(final Handlers<S> handlers) {
+        final Binding<?> binding = this.binding;
+        if (binding != null && binding.handlers == handlers) {
+            return ((Binding<S>) binding).steps;
+        }
+
+        // Usually there is a single message builder per session - so caching the last binding is sufficient
+        final Binding<S> compiled = new Binding<>(handlers, this.compile(handlers));
+        this.binding = compiled;
+        return compiled.steps;
+    }
+
+    private <S> List<Step<S>> compile(final Handlers<S> handlers) {
+        final List<Step<S>> steps = new ArrayList<>(this.fields.length);
+        for (int i = 0; i < this.fields.length; i++) {
+            final int index = i;
+
+            if (this.names[i] == null) {
+                // The name is only known after parsing the value
+                steps.add((state, data, fields) -> handlers.accept(state, fields.get(index)));
+                continue;
+            }
+
+            final Handler<S> handler = handlers.lookup(this.names[i]);
+            if (handler == null) {
+                continue;
+            }
+
+            final int offset = this.offsets[i];
+            final int length = this.fields[i].length();
+
+            if (offset >= 0 && this.encodings[i] == InformationElement.Encoding.UNSIGNED && handler.acceptsUnsigned()) {
+                steps.add((state, data, fields) -> handler.acceptUnsigned(state, readUnsigned(data, offset, length)));
+            } else if (offset >= 0 && this.encodings[i] != InformationElement.Encoding.UNSIGNED && handler.acceptsAddress()) {
+                steps.add((state, data, fields) -> handler.acceptAddress(state, readAddress(data, offset, length)));
+            } else {
+                steps.add((state, data, fields) -> handler.accept(state, fields.get(index)));
+            }
+        }
+        return steps;
+    }
+
+    private static long readUnsigned(final byte[] data, final int offset, final int length) {
+        long result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            result = (result << 8L) | (data[i] & 0xFFL);
+        }
+        return result;
+    }
+
+    private static InetAddress readAddress(final byte[] data, final int offset, final int length) {
+        try {
+            return InetAddress.getByAddress(Arrays.copyOfRange(data, offset, offset + length));
+        } catch (final UnknownHostException e) {
+            // Only thrown for illegal address lengths which are rejected when compiling the template
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step<S> {
+        void apply(final S state, final byte[] data, final DecodedFields fields);
+    }
+
+    private static final class Binding<S> {
+        private final Handlers<S> handlers;
+        private final List<Step<S>> steps;
+
+        private Binding(final Handlers<S> handlers, final List<Step<S>> steps) {
+            this.handlers = handlers;
+            this.steps = steps;
+        }
+    }
+}
@@ -22,49 +22,144 @@
 package org.opennms.netmgt.telemetry.protocols.netflow.parser.session;
 
 import java.net.InetAddress;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.MissingTemplateException;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.UnsignedValue;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.state.ExporterState;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.state.OptionState;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.state.ParserState;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.state.TemplateState;
 
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 
+/**
+ * Keeps the templates and options of all UDP exporters.
+ *
+ * Templates are indexed by exporter and observation domain, so lookups, session drops and option lookups only touch the
+ * templates of a single exporter. The number of templates is bounded in total and per exporter - if a bound is reached,
+ * the oldest template of the exporter is evicted. Expiry is driven by a timer wheel instead of scanning all templates.
+ *
+ * Locks are always taken in the order exporter, then wheel. Housekeeping collects the due entries under the lock of
+ * the wheel and checks them against their exporter after releasing it.
+ */
 public class UdpSessionManager {
-    final ConcurrentMap<TemplateKey, TimeWrapper<TemplateOptions>> templates = Maps.newConcurrentMap();
+    public static final int DEFAULT_MAX_TEMPLATES = 100_000;
+    public static final int DEFAULT_MAX_TEMPLATES_PER_EXPORTER = 4_096;
+
+    private static final long TICK_MILLIS = 1_000;
+    private static final int WHEEL_SIZE = 4_096;
+
+    private final ConcurrentMap<SessionKey, Exporter> exporters = Maps.newConcurrentMap();
     private final Map<DomainKey, SequenceNumberTracker> sequenceNumbers = Maps.newConcurrentMap();
     private final Duration timeout;
+    private final int maxTemplates;
+    private final int maxTemplatesPerExporter;
     private final Supplier<SequenceNumberTracker> sequenceNumberTracker;
+    private final Clock clock;
+
+    // Guarded by itself - each bucket holds the entries due in the ticks mapping to it
+    private final ArrayDeque<Entry>[] wheel;
+    private long lastTick;
+
+    private final AtomicInteger templateCount = new AtomicInteger();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder missingTemplates = new LongAdder();
 
     public UdpSessionManager(final Duration timeout, final Supplier<SequenceNumberTracker> sequenceNumberTracker) {
-        this.timeout = timeout;
+        this(timeout, DEFAULT_MAX_TEMPLATES, DEFAULT_MAX_TEMPLATES_PER_EXPORTER, sequenceNumberTracker);
+    }
+
+    public UdpSessionManager(final Duration timeout,
+                             final int maxTemplates,
+                             final int maxTemplatesPerExporter,
+                             final Supplier<SequenceNumberTracker> sequenceNumberTracker) {
+        this(timeout, maxTemplates, maxTemplatesPerExporter, sequenceNumberTracker, Clock.systemUTC());
+    }
+
+    @SuppressWarnings("unchecked")
+    UdpSessionManager(final Duration timeout,
+                      final int maxTemplates,
+                      final int maxTemplatesPerExporter,
+                      final Supplier<SequenceNumberTracker> sequenceNumberTracker,
+                      final Clock clock) {
+        if (maxTemplates < 1 || maxTemplatesPerExporter < 1) {
+            throw new IllegalArgumentException("Template limits must be positive");
+        }
+
+        this.timeout = Objects.requireNonNull(timeout);
+        this.maxTemplates = maxTemplates;
+        this.maxTemplatesPerExporter = maxTemplatesPerExporter;
         this.sequenceNumberTracker = Objects.requireNonNull(sequenceNumberTracker);
+        this.clock = Objects.requireNonNull(clock);
+
+        this.wheel = new ArrayDeque[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            this.wheel[i] = new ArrayDeque<>();
+        }
+        this.lastTick = tick(this.clock.instant()) - 1;
     }
 
     public void doHousekeeping() {
-        final Instant timeout = Instant.now().minus(this.timeout);
-        this.removeTemplateIf(e -> e.getValue().time.isBefore(timeout));
-    }
+        final Instant now = this.clock.instant();
+        final Instant timeout = now.minus(this.timeout);
+        final long currentTick = tick(now);
+
+        // Take the due entries out of the wheel first, the exporters must not be locked while holding the wheel
+        final List<Entry> due = new ArrayList<>();
+        synchronized (this.wheel) {
+            // Visit each bucket at most once, even if housekeeping was delayed for more than a full round
+            for (long tick = Math.max(this.lastTick + 1, currentTick - WHEEL_SIZE + 1); tick <= currentTick; tick++) {
+                final Iterator<Entry> bucket = this.wheel[bucket(tick)].iterator();
+                while (bucket.hasNext()) {
+                    final Entry entry = bucket.next();
+                    if (entry.due <= tick) {
+                        // Entries due in a later round of the wheel stay in place
+                        bucket.remove();
+                        due.add(entry);
+                    }
+                }
+            }
+
+            // The current tick is visited again as its entries may not have been expired yet
+            this.lastTick = currentTick - 1;
+        }
+
+        for (final Entry entry : due) {
+            final Exporter exporter = entry.domain.exporter;
+            synchronized (exporter) {
+                if (exporter.dropped || entry.domain.templates.get(entry.templateId) != entry) {
+                    // Already removed
+                    continue;
+                }
 
-    private void removeTemplateIf(final Predicate<Map.Entry<TemplateKey, TimeWrapper<TemplateOptions>>> predicate) {
-        UdpSessionManager.this.templates.entrySet().removeIf(predicate);
+                if (entry.current.time.isBefore(timeout)) {
+                    this.remove(entry, true);
+                } else {
+                    // Redeclared in the meantime or not expired within the current tick
+                    this.schedule(entry);
+                }
+            }
+        }
     }
 
     public Session getSession(final SessionKey sessionKey) {
@@ -72,39 +167,149 @@ public class UdpSessionManager {
     }
 
     public void drop(final SessionKey sessionKey) {
-        removeTemplateIf(e -> Objects.equals(e.getKey().observationDomainId.sessionKey, sessionKey));
+        final Exporter exporter = this.exporters.remove(sessionKey);
+        if (exporter != null) {
+            synchronized (exporter) {
+                exporter.dropped = true;
+                this.templateCount.addAndGet(-exporter.templates);
+                exporter.templates = 0;
+                exporter.domains.clear();
+            }
+        }
     }
 
     public int count() {
-        return this.templates.size();
+        return this.templateCount.get();
+    }
+
+    /**
+     * Returns the number of templates evicted or rejected because a template limit was reached.
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Returns the number of template lookups which failed because the template was unknown.
+     */
+    public long getMissingTemplates() {
+        return this.missingTemplates.sum();
+    }
+
+    TimeWrapper<TemplateOptions> getTemplate(final TemplateKey key) {
+        final Exporter exporter = this.exporters.get(key.sessionKey);
+        final Domain domain = exporter != null ? exporter.domains.get(key.observationDomainId) : null;
+        final Entry entry = domain != null ? domain.templates.get(key.templateId) : null;
+        return entry != null ? entry.current : null;
     }
 
     public Object dumpInternalState() {
         final ParserState.Builder parser = ParserState.builder();
 
-        final Map<DomainKey, List<Map.Entry<TemplateKey, TimeWrapper<TemplateOptions>>>> sessions = this.templates.entrySet().stream()
-                .collect(Collectors.groupingBy(e -> e.getKey().observationDomainId));
+        for (final Exporter exporter : this.exporters.values()) {
+            for (final Domain domain : exporter.domains.values()) {
+                final String key = String.format("%s#%s",
+                        exporter.sessionKey.getDescription(),
+                        domain.observationDomainId);
+
+                final ExporterState.Builder state = ExporterState.builder(key);
+
+                for (final Entry entry : domain.templates.values()) {
+                    final TimeWrapper<TemplateOptions> template = entry.current;
+                    state.withTemplate(TemplateState.builder(entry.templateId).withInsertionTime(template.time));
+                    template.wrapped.options.values().forEach(values ->
+                            state.withOptions(OptionState.builder(entry.templateId)
+                                    .withInsertionTime(values.time)
+                                    .withSelectors(values.wrapped.scopes)
+                                    .withValues(values.wrapped.values)));
+                }
+
+                parser.withExporter(state);
+            }
+        }
+
+        return parser.build();
+    }
 
-        for (final var entry : sessions.entrySet()) {
-            final String key = String.format("%s#%s",
-                    entry.getKey().sessionKey.getDescription(),
-                    entry.getKey().observationDomainId);
+    private static long tick(final Instant time) {
+        return time.toEpochMilli() / TICK_MILLIS;
+    }
 
-            final ExporterState.Builder exporter = ExporterState.builder(key);
+    private static int bucket(final long tick) {
+        return (int) Math.floorMod(tick, (long) WHEEL_SIZE);
+    }
 
-            entry.getValue().forEach(e -> {
-                exporter.withTemplate(TemplateState.builder(e.getKey().templateId).withInsertionTime(e.getValue().time));
-                e.getValue().wrapped.options.forEach((selectors, values) ->
-                        exporter.withOptions(OptionState.builder(e.getKey().templateId)
-                                .withInsertionTime(values.time)
-                                .withSelectors(selectors)
-                                .withValues(values.wrapped)));
-            });
+    private long due(final TimeWrapper<?> wrapper) {
+        return tick(wrapper.time.plus(this.timeout));
+    }
 
-            parser.withExporter(exporter);
+    /**
+     * Adds the entry to the wheel - must be called with the lock of the exporter held.
+     */
+    private void schedule(final Entry entry) {
+        synchronized (this.wheel) {
+            entry.due = this.due(entry.current);
+            this.wheel[bucket(entry.due)].add(entry);
         }
+    }
 
-        return parser.build();
+    /**
+     * Runs the action with the lock of the exporter held, creating the exporter if required.
+     */
+    private void update(final SessionKey sessionKey, final Consumer<Exporter> action) {
+        while (true) {
+            final Exporter exporter = this.exporters.computeIfAbsent(sessionKey, Exporter::new);
+            synchronized (exporter) {
+                if (!exporter.dropped) {
+                    action.accept(exporter);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the entry - must be called with the lock of the exporter held.
+     */
+    private void remove(final Entry entry, final boolean prune) {
+        final Domain domain = entry.domain;
+        final Exporter exporter = domain.exporter;
+
+        if (domain.templates.remove(entry.templateId, entry)) {
+            exporter.templates--;
+            this.templateCount.decrementAndGet();
+
+            if (domain.templates.isEmpty()) {
+                exporter.domains.remove(domain.observationDomainId, domain);
+            }
+
+            if (prune && exporter.domains.isEmpty()) {
+                this.exporters.remove(exporter.sessionKey, exporter);
+                exporter.dropped = true;
+            }
+        }
+    }
+
+    /**
+     * Evicts the oldest template of the exporter - must be called with the lock of the exporter held.
+     */
+    private boolean evictOldest(final Exporter exporter) {
+        Entry oldest = null;
+        for (final Domain domain : exporter.domains.values()) {
+            for (final Entry entry : domain.templates.values()) {
+                if (oldest == null || entry.current.time.isBefore(oldest.current.time)) {
+                    oldest = entry;
+                }
+            }
+        }
+
+        if (oldest == null) {
+            return false;
+        }
+
+        this.remove(oldest, false);
+        this.evictions.increment();
+        return true;
     }
 
     public interface SessionKey {
@@ -144,58 +349,174 @@ public class UdpSessionManager {
     }
 
     final static class TemplateKey {
-        public final DomainKey observationDomainId;
+        public final SessionKey sessionKey;
+        public final long observationDomainId;
         public final int templateId;
 
         TemplateKey(final SessionKey sessionKey,
                     final long observationDomainId,
                     final int templateId) {
-            this.observationDomainId = new DomainKey(sessionKey, observationDomainId);
+            this.sessionKey = Objects.requireNonNull(sessionKey);
+            this.observationDomainId = observationDomainId;
             this.templateId = templateId;
         }
+    }
+
+    public final static class TimeWrapper<T> {
+        public final Instant time;
+        public final T wrapped;
+
+        private TimeWrapper(final Instant time, final T wrapped) {
+            this.time = Objects.requireNonNull(time);
+            this.wrapped = wrapped;
+        }
+    }
+
+    public static class TemplateOptions {
+        public final Template template;
+        public final Map<OptionKey, TimeWrapper<OptionValues>> options;
+
+        public TemplateOptions(final Template template) {
+            this.template = Objects.requireNonNull(template);
+            this.options = Maps.newConcurrentMap();
+        }
+
+        public TemplateOptions(final Template template, Map<OptionKey, TimeWrapper<OptionValues>> options) {
+            this.template = Objects.requireNonNull(template);
+            this.options = Objects.requireNonNull(options);
+        }
+    }
+
+    public static class OptionValues {
+        public final Collection<Value<?>> scopes;
+        public final List<Value<?>> values;
+
+        public OptionValues(final Collection<Value<?>> scopes, final List<Value<?>> values) {
+            this.scopes = Objects.requireNonNull(scopes);
+            this.values = Objects.requireNonNull(values);
+        }
+    }
+
+    /**
+     * Key of option values by their scope values.
+     *
+     * Unsigned scope values are stored as primitives in the order of the template scopes. Other scope values fall back
+     * to the set of values.
+     */
+    public final static class OptionKey {
+        private final long[] scopes;
+        private final Set<Value<?>> values;
+        private final int hash;
+
+        private OptionKey(final long[] scopes, final Set<Value<?>> values) {
+            this.scopes = scopes;
+            this.values = values;
+            this.hash = scopes != null ? Arrays.hashCode(scopes) : values.hashCode();
+        }
+
+        public static OptionKey of(final Template template, final Collection<Value<?>> values) {
+            final int count = template.scopes.size();
+            if (count > 0 && count <= Long.SIZE) {
+                final long[] scopes = new long[count];
+                long present = 0L;
+
+                for (final Value<?> value : values) {
+                    final int index = indexOf(template, value.getName());
+                    if (index < 0 || !(value instanceof UnsignedValue)) {
+                        present = 0L;
+                        break;
+                    }
+
+                    final long scope = ((UnsignedValue) value).getValue().longValue();
+                    if ((present & (1L << index)) != 0 && scopes[index] != scope) {
+                        present = 0L;
+                        break;
+                    }
+
+                    scopes[index] = scope;
+                    present |= 1L << index;
+                }
+
+                if (present == (count == Long.SIZE ? -1L : (1L << count) - 1)) {
+                    return new OptionKey(scopes, null);
+                }
+            }
+
+            return new OptionKey(null, new HashSet<>(values));
+        }
+
+        private static int indexOf(final Template template, final String name) {
+            for (int i = 0; i < template.scopes.size(); i++) {
+                if (Objects.equals(template.scopes.get(i).getName(), name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
 
         @Override
         public boolean equals(final Object o) {
             if (this == o) {
                 return true;
             }
-            if (!(o instanceof TemplateKey)) {
+            if (!(o instanceof OptionKey)) {
                 return false;
             }
 
-            final TemplateKey that = (TemplateKey) o;
-            return Objects.equals(this.observationDomainId, that.observationDomainId) &&
-                    Objects.equals(this.templateId, that.templateId);
+            final OptionKey that = (OptionKey) o;
+            return this.hash == that.hash &&
+                    Arrays.equals(this.scopes, that.scopes) &&
+                    Objects.equals(this.values, that.values);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(this.observationDomainId, this.templateId);
+            return this.hash;
         }
     }
 
-    public final static class TimeWrapper<T> {
-        public final Instant time;
-        public final T wrapped;
+    private final static class Exporter {
+        private final SessionKey sessionKey;
+        private final ConcurrentMap<Long, Domain> domains = Maps.newConcurrentMap();
 
-        private TimeWrapper(final T wrapped) {
-            this.time = Instant.now();
-            this.wrapped = wrapped;
+        // Guarded by this
+        private int templates;
+        private boolean dropped;
+
+        private Exporter(final SessionKey sessionKey) {
+            this.sessionKey = Objects.requireNonNull(sessionKey);
+        }
+
+        private Domain domain(final long observationDomainId) {
+            return this.domains.computeIfAbsent(observationDomainId, id -> new Domain(this, id));
         }
     }
 
-    public static class TemplateOptions {
-        public final Template template;
-        public final Map<Set<Value<?>>, TimeWrapper<List<Value<?>>>> options;
+    private final static class Domain {
+        private final Exporter exporter;
+        private final long observationDomainId;
+        private final ConcurrentMap<Integer, Entry> templates = Maps.newConcurrentMap();
 
-        public TemplateOptions(final Template template) {
-            this.template = Objects.requireNonNull(template);
-            this.options = Maps.newConcurrentMap();
+        private Domain(final Exporter exporter, final long observationDomainId) {
+            this.exporter = Objects.requireNonNull(exporter);
+            this.observationDomainId = observationDomainId;
         }
+    }
 
-        public TemplateOptions(final Template template, Map<Set<Value<?>>, TimeWrapper<List<Value<?>>>> options) {
-            this.template = Objects.requireNonNull(template);
-            this.options = Objects.requireNonNull(options);
+    private final static class Entry {
+        private final Domain domain;
+        private final int templateId;
+
+        // Replaced on redeclaration while the entry stays scheduled in the wheel
+        private volatile TimeWrapper<TemplateOptions> current;
+
+        // Guarded by the wheel
+        private long due;
+
+        private Entry(final Domain domain, final int templateId, final TimeWrapper<TemplateOptions> current) {
+            this.domain = Objects.requireNonNull(domain);
+            this.templateId = templateId;
+            this.current = Objects.requireNonNull(current);
         }
     }
 
@@ -206,31 +527,68 @@ public class UdpSessionManager {
             this.sessionKey = Objects.requireNonNull(sessionKey);
         }
 
+        private Domain domain(final long observationDomainId) {
+            final Exporter exporter = UdpSessionManager.this.exporters.get(this.sessionKey);
+            return exporter != null ? exporter.domains.get(observationDomainId) : null;
+        }
+
         @Override
         public void addTemplate(final long observationDomainId, final Template template) {
-            final TemplateKey key = new TemplateKey(this.sessionKey, observationDomainId, template.id);
-            UdpSessionManager.this.templates.compute(key, (k, wrapper) -> {
-                TemplateOptions newTemplateOptions;
-                if (wrapper == null) {
-                    newTemplateOptions = new TemplateOptions(template);
-                } else {
+            UdpSessionManager.this.update(this.sessionKey, exporter -> {
+                final Domain existing = exporter.domains.get(observationDomainId);
+                final Entry entry = existing != null ? existing.templates.get(template.id) : null;
+                if (entry != null) {
                     // preserve the old option values
-                    newTemplateOptions = new TemplateOptions(template, wrapper.wrapped.options);
+                    entry.current = new TimeWrapper<>(UdpSessionManager.this.clock.instant(), new TemplateOptions(template, entry.current.wrapped.options));
+                    return;
                 }
-                return new TimeWrapper<>(newTemplateOptions);
+
+                if (exporter.templates >= UdpSessionManager.this.maxTemplatesPerExporter ||
+                        UdpSessionManager.this.templateCount.get() >= UdpSessionManager.this.maxTemplates) {
+                    if (!UdpSessionManager.this.evictOldest(exporter)) {
+                        // The store is full and the exporter has no templates to make room from
+                        UdpSessionManager.this.evictions.increment();
+                        return;
+                    }
+                }
+
+                final Entry created = new Entry(exporter.domain(observationDomainId), template.id, new TimeWrapper<>(UdpSessionManager.this.clock.instant(), new TemplateOptions(template)));
+                created.domain.templates.put(template.id, created);
+                exporter.templates++;
+                UdpSessionManager.this.templateCount.incrementAndGet();
+                UdpSessionManager.this.schedule(created);
             });
         }
 
         @Override
         public void removeTemplate(final long observationDomainId, final int templateId) {
-            final TemplateKey key = new TemplateKey(this.sessionKey, observationDomainId, templateId);
-            UdpSessionManager.this.templates.remove(key);
+            final Exporter exporter = UdpSessionManager.this.exporters.get(this.sessionKey);
+            if (exporter != null) {
+                synchronized (exporter) {
+                    final Domain domain = exporter.domains.get(observationDomainId);
+                    final Entry entry = domain != null ? domain.templates.get(templateId) : null;
+                    if (entry != null) {
+                        UdpSessionManager.this.remove(entry, true);
+                    }
+                }
+            }
         }
 
         @Override
         public void removeAllTemplate(final long observationDomainId, final Template.Type type) {
-            final DomainKey domainKey = new DomainKey(this.sessionKey, observationDomainId);
-            UdpSessionManager.this.removeTemplateIf(e -> domainKey.equals(e.getKey().observationDomainId) && e.getValue().wrapped.template.type == type);
+            final Exporter exporter = UdpSessionManager.this.exporters.get(this.sessionKey);
+            if (exporter != null) {
+                synchronized (exporter) {
+                    final Domain domain = exporter.domains.get(observationDomainId);
+                    if (domain != null) {
+                        for (final Entry entry : domain.templates.values()) {
+                            if (entry.current.wrapped.template.type == type) {
+                                UdpSessionManager.this.remove(entry, true);
+                            }
+                        }
+                    }
+                }
+            }
         }
 
         @Override
@@ -238,8 +596,12 @@ public class UdpSessionManager {
                                final int templateId,
                                final Collection<Value<?>> scopes,
                                final List<Value<?>> values) {
-            final TemplateKey key = new TemplateKey(this.sessionKey, observationDomainId, templateId);
-            UdpSessionManager.this.templates.get(key).wrapped.options.put(new HashSet<>(scopes), new TimeWrapper<>(values));
+            final Domain domain = this.domain(observationDomainId);
+            final Entry entry = domain != null ? domain.templates.get(templateId) : null;
+            if (entry != null) {
+                final TemplateOptions templateOptions = entry.current.wrapped;
+                templateOptions.options.put(OptionKey.of(templateOptions.template, scopes), new TimeWrapper<>(UdpSessionManager.this.clock.instant(), new OptionValues(scopes, values)));
+            }
         }
 
         @Override
@@ -266,16 +628,14 @@ public class UdpSessionManager {
                 this.observationDomainId = observationDomainId;
             }
 
-            private TemplateKey key(final int templateId) {
-                return new TemplateKey(UdpSession.this.sessionKey, this.observationDomainId, templateId);
-            }
-
             @Override
             public Template lookupTemplate(final int templateId) throws MissingTemplateException {
-                final TimeWrapper<TemplateOptions> templateOptions = UdpSessionManager.this.templates.get(key(templateId));
-                if (templateOptions != null) {
-                    return templateOptions.wrapped.template;
+                final Domain domain = UdpSession.this.domain(this.observationDomainId);
+                final Entry entry = domain != null ? domain.templates.get(templateId) : null;
+                if (entry != null) {
+                    return entry.current.wrapped.template;
                 } else {
+                    UdpSessionManager.this.missingTemplates.increment();
                     throw new MissingTemplateException(templateId);
                 }
             }
@@ -284,23 +644,32 @@ public class UdpSessionManager {
             public List<Value<?>> lookupOptions(final List<Value<?>> values) {
                 final LinkedHashMap<String, Value<?>> options = new LinkedHashMap<>();
 
-                final Set<String> scoped = values.stream().map(Value::getName).collect(Collectors.toSet());
+                final Domain domain = UdpSession.this.domain(this.observationDomainId);
+                if (domain == null) {
+                    return new ArrayList<>();
+                }
+
+                Set<String> scoped = null;
 
-                for (final var e : Iterables.filter(UdpSessionManager.this.templates.entrySet(),
-                        e -> Objects.equals(e.getKey().observationDomainId.sessionKey, UdpSession.this.sessionKey) &&
-                                Objects.equals(e.getKey().observationDomainId.observationDomainId, this.observationDomainId))) {
+                for (final Entry entry : domain.templates.values()) {
+                    final TemplateOptions templateOptions = entry.current.wrapped;
+                    if (templateOptions.options.isEmpty()) {
+                        continue;
+                    }
 
-                    final Template template = e.getValue().wrapped.template;
+                    final Template template = templateOptions.template;
+
+                    if (scoped == null) {
+                        scoped = DecodedFields.namesOf(values);
+                    }
 
                     if (scoped.containsAll(template.scopeNames)) {
                         // Found option template where scoped fields is subset of actual data fields
-                        final Set<Value<?>> scopeValues = values.stream()
-                                .filter(s -> template.scopeNames.contains(s.getName()))
-                                .collect(Collectors.toSet());
+                        final Set<Value<?>> scopeValues = DecodedFields.valuesOf(values, template.scopeNames);
 
-                        final TimeWrapper<List<Value<?>>> optionValues = e.getValue().wrapped.options.get(scopeValues);
+                        final TimeWrapper<OptionValues> optionValues = templateOptions.options.get(OptionKey.of(template, scopeValues));
                         if (optionValues != null) {
-                            for (final Value<?> value : optionValues.wrapped) {
+                            for (final Value<?> value : optionValues.wrapped.values) {
                                 options.put(value.getName(), value);
                             }
                         }
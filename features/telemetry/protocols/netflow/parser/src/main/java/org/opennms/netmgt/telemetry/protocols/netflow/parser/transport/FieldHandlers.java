@@ -0,0 +1,105 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.netflow.parser.transport;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.ObjLongConsumer;
+
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.session.TemplateDecoder;
+
+/**
+ * Maps field names to the code that applies the field to the state of a message builder.
+ *
+ * The same handlers are used for records given as values and for records decoded by a {@link TemplateDecoder} which
+ * passes unsigned and address fields without creating values.
+ */
+public final class FieldHandlers<S> implements TemplateDecoder.Handlers<S> {
+    private final Map<String, TemplateDecoder.Handler<S>> handlers = new HashMap<>();
+
+    public FieldHandlers<S> unsigned(final String name, final ObjLongConsumer<S> consumer) {
+        Objects.requireNonNull(consumer);
+        return this.add(name, new TemplateDecoder.Handler<S>() {
+            @Override
+            public void accept(final S state, final Value<?> value) {
+                final Long longValue = MessageUtils.getLongValue(value);
+                if (longValue != null) {
+                    consumer.accept(state, longValue);
+                }
+            }
+
+            @Override
+            public boolean acceptsUnsigned() {
+                return true;
+            }
+
+            @Override
+            public void acceptUnsigned(final S state, final long value) {
+                consumer.accept(state, value);
+            }
+        });
+    }
+
+    public FieldHandlers<S> address(final String name, final BiConsumer<S, InetAddress> consumer) {
+        Objects.requireNonNull(consumer);
+        return this.add(name, new TemplateDecoder.Handler<S>() {
+            @Override
+            public void accept(final S state, final Value<?> value) {
+                final InetAddress address = MessageUtils.getInetAddress(value);
+                if (address != null) {
+                    consumer.accept(state, address);
+                }
+            }
+
+            @Override
+            public boolean acceptsAddress() {
+                return true;
+            }
+
+            @Override
+            public void acceptAddress(final S state, final InetAddress address) {
+                consumer.accept(state, address);
+            }
+        });
+    }
+
+    public FieldHandlers<S> value(final String name, final BiConsumer<S, Value<?>> consumer) {
+        Objects.requireNonNull(consumer);
+        return this.add(name, consumer::accept);
+    }
+
+    private FieldHandlers<S> add(final String name, final TemplateDecoder.Handler<S> handler) {
+        if (this.handlers.putIfAbsent(name, handler) != null) {
+            throw new IllegalArgumentException("Duplicate handler for field: " + name);
+        }
+        return this;
+    }
+
+    @Override
+    public TemplateDecoder.Handler<S> lookup(final String name) {
+        return this.handlers.get(name);
+    }
+}
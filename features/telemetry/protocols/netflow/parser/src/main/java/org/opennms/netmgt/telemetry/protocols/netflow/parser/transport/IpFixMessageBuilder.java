@@ -22,10 +22,8 @@
 package org.opennms.netmgt.telemetry.protocols.netflow.parser.transport;
 
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.first;
-import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getInetAddress;
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getLongValue;
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getTime;
-import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getUInt32Value;
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getUInt64Value;
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.setDoubleValue;
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.setIntValue;
@@ -47,6 +45,86 @@ import com.google.protobuf.UInt32Value;
 
 public class IpFixMessageBuilder implements MessageBuilder {
 
+    private static final FieldHandlers<State> HANDLERS = new FieldHandlers<State>()
+            .unsigned("@exportTime", (s, v) -> s.exportTime = v)
+            .unsigned("octetDeltaCount", (s, v) -> s.octetDeltaCount = v)
+            .unsigned("postOctetDeltaCount", (s, v) -> s.postOctetDeltaCount = v)
+            .unsigned("layer2OctetDeltaCount", (s, v) -> s.layer2OctetDeltaCount = v)
+            .unsigned("postLayer2OctetDeltaCount", (s, v) -> s.postLayer2OctetDeltaCount = v)
+            .unsigned("transportOctetDeltaCount", (s, v) -> s.transportOctetDeltaCount = v)
+            .unsigned("flowDirection", (s, v) -> s.builder.setDirection(getDirection(v)))
+            .address("destinationIPv6Address", (s, v) -> s.destinationIPv6Address = v)
+            .address("destinationIPv4Address", (s, v) -> s.destinationIPv4Address = v)
+            .unsigned("bgpDestinationAsNumber", (s, v) -> s.builder.setDstAs(setLongValue(v)))
+            .unsigned("destinationIPv6PrefixLength", (s, v) -> s.destinationIPv6PrefixLength = v)
+            .unsigned("destinationIPv4PrefixLength", (s, v) -> s.destinationIPv4PrefixLength = v)
+            .unsigned("destinationTransportPort", (s, v) -> s.builder.setDstPort(setIntValue((int) v)))
+            .unsigned("engineId", (s, v) -> s.builder.setEngineId(setIntValue((int) v)))
+            .unsigned("engineType", (s, v) -> s.builder.setEngineType(setIntValue((int) v)))
+            .unsigned("@recordCount", (s, v) -> s.builder.setNumFlowRecords(setIntValue((int) v)))
+            .unsigned("@sequenceNumber", (s, v) -> s.builder.setFlowSeqNum(setLongValue(v)))
+            .unsigned("ingressInterface", (s, v) -> s.inputSnmp = setIntValue((int) v))
+            .unsigned("ipVersion", (s, v) -> s.builder.setIpProtocolVersion(setIntValue((int) v)))
+            .unsigned("egressInterface", (s, v) -> s.outputSnmp = setIntValue((int) v))
+            .unsigned("protocolIdentifier", (s, v) -> s.builder.setProtocol(setIntValue((int) v)))
+            .unsigned("tcpControlBits", (s, v) -> s.builder.setTcpFlags(setIntValue((int) v)))
+            .unsigned("ipClassOfService", (s, v) -> s.builder.setTos(setIntValue((int) v)))
+            .unsigned("@observationDomainId", (s, v) -> s.builder.setNodeIdentifier(String.valueOf(v)))
+            .value("flowStartSeconds", (s, v) -> s.flowStartSeconds = getTime(v))
+            .value("flowStartMilliseconds", (s, v) -> s.flowStartMilliseconds = getTime(v))
+            .value("flowStartMicroseconds", (s, v) -> s.flowStartMicroseconds = getTime(v))
+            .value("flowStartNanoseconds", (s, v) -> s.flowStartNanoseconds = getTime(v))
+            .unsigned("flowStartDeltaMicroseconds", (s, v) -> s.flowStartDeltaMicroseconds = v)
+            .unsigned("flowStartSysUpTime", (s, v) -> s.flowStartSysUpTime = v)
+            .value("systemInitTimeMilliseconds", (s, v) -> s.systemInitTimeMilliseconds = getTime(v))
+            .value("flowEndSeconds", (s, v) -> s.flowEndSeconds = getTime(v))
+            .value("flowEndMilliseconds", (s, v) -> s.flowEndMilliseconds = getTime(v))
+            .value("flowEndMicroseconds", (s, v) -> s.flowEndMicroseconds = getTime(v))
+            .value("flowEndNanoseconds", (s, v) -> {
+                s.flowEndNanoseconds = getTime(v);
+                s.flowEndDeltaMicroseconds = getLongValue(v);
+            })
+            .unsigned("flowEndDeltaMicroseconds", (s, v) -> s.flowEndDeltaMicroseconds = v)
+            .unsigned("flowEndSysUpTime", (s, v) -> s.flowEndSysUpTime = v)
+            .address("ipNextHopIPv6Address", (s, v) -> s.ipNextHopIPv6Address = v)
+            .address("ipNextHopIPv4Address", (s, v) -> s.ipNextHopIPv4Address = v)
+            .address("bgpNextHopIPv6Address", (s, v) -> s.bgpNextHopIPv6Address = v)
+            .address("bgpNextHopIPv4Address", (s, v) -> s.bgpNextHopIPv4Address = v)
+            .unsigned("packetDeltaCount", (s, v) -> s.packetDeltaCount = v)
+            .unsigned("postPacketDeltaCount", (s, v) -> s.postPacketDeltaCount = v)
+            .unsigned("transportPacketDeltaCount", (s, v) -> s.transportPacketDeltaCount = v)
+            .unsigned("samplingAlgorithm", (s, v) -> s.samplingAlgorithm = v)
+            .unsigned("samplerMode", (s, v) -> s.samplerMode = v)
+            .unsigned("selectorAlgorithm", (s, v) -> s.selectorAlgorithm = v)
+            .unsigned("samplingInterval", (s, v) -> s.samplingInterval = v)
+            .unsigned("samplerRandomInterval", (s, v) -> s.samplerRandomInterval = v)
+            .unsigned("samplingFlowInterval", (s, v) -> s.samplingFlowInterval = v)
+            .unsigned("samplingFlowSpacing", (s, v) -> s.samplingFlowSpacing = v)
+            .unsigned("flowSamplingTimeInterval", (s, v) -> s.flowSamplingTimeInterval = v)
+            .unsigned("flowSamplingTimeSpacing", (s, v) -> s.flowSamplingTimeSpacing = v)
+            .unsigned("samplingSize", (s, v) -> s.samplingSize = v)
+            .unsigned("samplingPopulation", (s, v) -> s.samplingPopulation = v)
+            .unsigned("samplingProbability", (s, v) -> s.samplingProbability = v)
+            .unsigned("hashSelectedRangeMin", (s, v) -> s.hashSelectedRangeMin = v)
+            .unsigned("hashSelectedRangeMax", (s, v) -> s.hashSelectedRangeMax = v)
+            .unsigned("hashOutputRangeMin", (s, v) -> s.hashOutputRangeMin = v)
+            .unsigned("hashOutputRangeMax", (s, v) -> s.hashOutputRangeMax = v)
+            .address("sourceIPv6Address", (s, v) -> s.sourceIPv6Address = v)
+            .address("sourceIPv4Address", (s, v) -> s.sourceIPv4Address = v)
+            .unsigned("sourceIPv6PrefixLength", (s, v) -> s.sourceIPv6PrefixLength = v)
+            .unsigned("sourceIPv4PrefixLength", (s, v) -> s.sourceIPv4PrefixLength = v)
+            .unsigned("sourceTransportPort", (s, v) -> s.builder.setSrcPort(setIntValue((int) v)))
+            .unsigned("vlanId", (s, v) -> s.vlanId = v)
+            .unsigned("postVlanId", (s, v) -> s.postVlanId = v)
+            .unsigned("dot1qVlanId", (s, v) -> s.dot1qVlanId = v)
+            .unsigned("dot1qCustomerVlanId", (s, v) -> s.dot1qCustomerVlanId = v)
+            .unsigned("postDot1qVlanId", (s, v) -> s.postDot1qVlanId = v)
+            .unsigned("postDot1qCustomerVlanId", (s, v) -> s.postDot1qCustomerVlanId = v)
+            .unsigned("flowActiveTimeout", (s, v) -> s.flowActiveTimeout = v)
+            .unsigned("flowInactiveTimeout", (s, v) -> s.flowInactiveTimeout = v)
+            .unsigned("ingressPhysicalInterface", (s, v) -> s.ingressPhysicalInterface = setIntValue((int) v))
+            .unsigned("egressPhysicalInterface", (s, v) -> s.egressPhysicalInterface = setIntValue((int) v));
+
     private Long flowActiveTimeoutFallback;
     private Long flowInactiveTimeoutFallback;
     private Long flowSamplingIntervalFallback;
@@ -56,392 +134,87 @@ public class IpFixMessageBuilder implements MessageBuilder {
 
     @Override
     public FlowMessage.Builder buildMessage(final Iterable<Value<?>> values, final RecordEnrichment enrichment) {
-        final FlowMessage.Builder builder = FlowMessage.newBuilder();
+        final State state = new State();
+        final FlowMessage.Builder builder = state.builder;
         builder.setDirection(Direction.UNKNOWN);
 
-        Long exportTime = null;
-        Long octetDeltaCount = null;
-        Long postOctetDeltaCount = null;
-        Long layer2OctetDeltaCount = null;
-        Long postLayer2OctetDeltaCount = null;
-        Long transportOctetDeltaCount = null;
-        InetAddress destinationIPv6Address = null;
-        InetAddress destinationIPv4Address = null;
-        Long destinationIPv6PrefixLength = null;
-        Long destinationIPv4PrefixLength = null;
-        Instant flowStartSeconds = null;
-        Instant flowStartMilliseconds = null;
-        Instant flowStartMicroseconds = null;
-        Instant flowStartNanoseconds = null;
-        Long flowStartDeltaMicroseconds = null;
-        Long flowStartSysUpTime = null;
-        Instant systemInitTimeMilliseconds = null;
-        Instant flowEndSeconds = null;
-        Instant flowEndMilliseconds = null;
-        Instant flowEndMicroseconds = null;
-        Instant flowEndNanoseconds = null;
-        Long flowEndDeltaMicroseconds = null;
-        Long flowEndSysUpTime = null;
-        InetAddress ipNextHopIPv6Address = null;
-        InetAddress ipNextHopIPv4Address = null;
-        InetAddress bgpNextHopIPv6Address = null;
-        InetAddress bgpNextHopIPv4Address = null;
-        Long packetDeltaCount = null;
-        Long postPacketDeltaCount = null;
-        Long transportPacketDeltaCount = null;
-        Long samplingAlgorithm = null;
-        Long samplerMode = null;
-        Long selectorAlgorithm = null;
-        Long samplingInterval = this.flowSamplingIntervalFallback;
-        Long samplerRandomInterval = null;
-        Long samplingFlowInterval = null;
-        Long samplingFlowSpacing = null;
-        Long flowSamplingTimeInterval = null;
-        Long flowSamplingTimeSpacing = null;
-        Long samplingSize = null;
-        Long samplingPopulation = null;
-        Long samplingProbability = null;
-        Long hashSelectedRangeMin = null;
-        Long hashSelectedRangeMax = null;
-        Long hashOutputRangeMin = null;
-        Long hashOutputRangeMax = null;
-        InetAddress sourceIPv6Address = null;
-        InetAddress sourceIPv4Address = null;
-        Long sourceIPv6PrefixLength = null;
-        Long sourceIPv4PrefixLength = null;
-        Long vlanId = null;
-        Long postVlanId = null;
-        Long dot1qVlanId = null;
-        Long dot1qCustomerVlanId = null;
-        Long postDot1qVlanId = null;
-        Long postDot1qCustomerVlanId = null;
-        Long flowActiveTimeout = this.flowActiveTimeoutFallback;
-        Long flowInactiveTimeout = this.flowInactiveTimeoutFallback;
-        UInt32Value ingressPhysicalInterface = null;
-        UInt32Value egressPhysicalInterface = null;
-        UInt32Value inputSnmp = null;
-        UInt32Value outputSnmp = null;
-
-
-        for (Value<?> value : values) {
-            switch (value.getName()) {
-                case "@exportTime":
-                    exportTime = getLongValue(value);
-                    break;
-                case "octetDeltaCount":
-                    octetDeltaCount = getLongValue(value);
-                    break;
-                case "postOctetDeltaCount":
-                    postOctetDeltaCount = getLongValue(value);
-                    break;
-                case "layer2OctetDeltaCount":
-                    layer2OctetDeltaCount = getLongValue(value);
-                    break;
-                case "postLayer2OctetDeltaCount":
-                    postLayer2OctetDeltaCount = getLongValue(value);
-                    break;
-                case "transportOctetDeltaCount":
-                    transportOctetDeltaCount = getLongValue(value);
-                    break;
-                case "flowDirection":
-                    Long directionValue = getLongValue(value);
-                    Direction direction = Direction.UNKNOWN;
-                    if (directionValue != null) {
-                        switch (directionValue.intValue()) {
-                            case 0:
-                                direction = Direction.INGRESS;
-                                break;
-                            case 1:
-                                direction = Direction.EGRESS;
-                                break;
-                        }
-                    }
-                    builder.setDirection(direction);
-                    break;
-                case "destinationIPv6Address":
-                    destinationIPv6Address = getInetAddress(value);
-                    break;
-                case "destinationIPv4Address":
-                    destinationIPv4Address = getInetAddress(value);
-                    break;
-                case "bgpDestinationAsNumber":
-                    getUInt64Value(value).ifPresent(builder::setDstAs);
-                    break;
-                case "destinationIPv6PrefixLength":
-                    destinationIPv6PrefixLength = getLongValue(value);
-                    break;
-                case "destinationIPv4PrefixLength":
-                    destinationIPv4PrefixLength = getLongValue(value);
-                    break;
-                case "destinationTransportPort":
-                    getUInt32Value(value).ifPresent(builder::setDstPort);
-                    break;
-                case "engineId":
-                    getUInt32Value(value).ifPresent(builder::setEngineId);
-                    break;
-                case "engineType":
-                    getUInt32Value(value).ifPresent(builder::setEngineType);
-                    break;
-                case "@recordCount":
-                    getUInt32Value(value).ifPresent(builder::setNumFlowRecords);
-                    break;
-                case "@sequenceNumber":
-                    getUInt64Value(value).ifPresent(builder::setFlowSeqNum);
-                    break;
-                case "ingressInterface":
-                    inputSnmp = getUInt32Value(value).orElse(null);
-                    break;
-                case "ipVersion":
-                    Long ipVersion = getLongValue(value);
-                    if (ipVersion != null) {
-                        builder.setIpProtocolVersion(setIntValue(ipVersion.intValue()));
-                    }
-                    break;
-                case "egressInterface":
-                    outputSnmp = getUInt32Value(value).orElse(null);
-                    break;
-                case "protocolIdentifier":
-                    getUInt32Value(value).ifPresent(builder::setProtocol);
-                    break;
-                case "tcpControlBits":
-                    getUInt32Value(value).ifPresent(builder::setTcpFlags);
-                    break;
-                case "ipClassOfService":
-                    getUInt32Value(value).ifPresent(builder::setTos);
-                    break;
-                case "@observationDomainId":
-                    Long observationDomainId = getLongValue(value);
-                    if (observationDomainId != null) {
-                        builder.setNodeIdentifier(String.valueOf(observationDomainId));
-                    }
-                    break;
+        state.samplingInterval = this.flowSamplingIntervalFallback;
+        state.flowActiveTimeout = this.flowActiveTimeoutFallback;
+        state.flowInactiveTimeout = this.flowInactiveTimeoutFallback;
 
-                case "flowStartSeconds":
-                    flowStartSeconds = getTime(value);
-                    break;
-                case "flowStartMilliseconds":
-                    flowStartMilliseconds = getTime(value);
-                    break;
-                case "flowStartMicroseconds":
-                    flowStartMicroseconds = getTime(value);
-                    break;
-                case "flowStartNanoseconds":
-                    flowStartNanoseconds = getTime(value);
-                    break;
-                case "flowStartDeltaMicroseconds":
-                    flowStartDeltaMicroseconds = getLongValue(value);
-                    break;
-                case "flowStartSysUpTime":
-                    flowStartSysUpTime = getLongValue(value);
-                    break;
-                case "systemInitTimeMilliseconds":
-                    systemInitTimeMilliseconds = getTime(value);
-                    break;
-                case "flowEndSeconds":
-                    flowEndSeconds = getTime(value);
-                    break;
-                case "flowEndMilliseconds":
-                    flowEndMilliseconds = getTime(value);
-                    break;
-                case "flowEndMicroseconds":
-                    flowEndMicroseconds = getTime(value);
-                    break;
-                case "flowEndNanoseconds":
-                    flowEndNanoseconds = getTime(value);
-                case "flowEndDeltaMicroseconds":
-                    flowEndDeltaMicroseconds = getLongValue(value);
-                    break;
-                case "flowEndSysUpTime":
-                    flowEndSysUpTime = getLongValue(value);
-                    break;
-                case "ipNextHopIPv6Address":
-                    ipNextHopIPv6Address = getInetAddress(value);
-                    break;
-                case "ipNextHopIPv4Address":
-                    ipNextHopIPv4Address = getInetAddress(value);
-                    break;
-                case "bgpNextHopIPv6Address":
-                    bgpNextHopIPv6Address = getInetAddress(value);
-                    break;
-                case "bgpNextHopIPv4Address":
-                    bgpNextHopIPv4Address = getInetAddress(value);
-                    break;
-                case "packetDeltaCount":
-                    packetDeltaCount = getLongValue(value);
-                    break;
-                case "postPacketDeltaCount":
-                    postPacketDeltaCount = getLongValue(value);
-                    break;
-                case "transportPacketDeltaCount":
-                    transportPacketDeltaCount = getLongValue(value);
-                    break;
-                case "samplingAlgorithm":
-                    samplingAlgorithm = getLongValue(value);
-                    break;
-                case "samplerMode":
-                    samplerMode = getLongValue(value);
-                    break;
-                case "selectorAlgorithm":
-                    selectorAlgorithm = getLongValue(value);
-                    break;
-                case "samplingInterval":
-                    samplingInterval = getLongValue(value);
-                    break;
-                case "samplerRandomInterval":
-                    samplerRandomInterval = getLongValue(value);
-                    break;
-                case "samplingFlowInterval":
-                    samplingFlowInterval = getLongValue(value);
-                    break;
-                case "samplingFlowSpacing":
-                    samplingFlowSpacing = getLongValue(value);
-                    break;
-                case "flowSamplingTimeInterval":
-                    flowSamplingTimeInterval = getLongValue(value);
-                    break;
-                case "flowSamplingTimeSpacing":
-                    flowSamplingTimeSpacing = getLongValue(value);
-                    break;
-                case "samplingSize":
-                    samplingSize = getLongValue(value);
-                    break;
-                case "samplingPopulation":
-                    samplingPopulation = getLongValue(value);
-                    break;
-                case "samplingProbability":
-                    samplingProbability = getLongValue(value);
-                    break;
-                case "hashSelectedRangeMin":
-                    hashSelectedRangeMin = getLongValue(value);
-                    break;
-                case "hashSelectedRangeMax":
-                    hashSelectedRangeMax = getLongValue(value);
-                    break;
-                case "hashOutputRangeMin":
-                    hashOutputRangeMin = getLongValue(value);
-                    break;
-                case "hashOutputRangeMax":
-                    hashOutputRangeMax = getLongValue(value);
-                    break;
-                case "sourceIPv6Address":
-                    sourceIPv6Address = getInetAddress(value);
-                    break;
-                case "sourceIPv4Address":
-                    sourceIPv4Address = getInetAddress(value);
-                    break;
-                case "sourceIPv6PrefixLength":
-                    sourceIPv6PrefixLength = getLongValue(value);
-                    break;
-                case "sourceIPv4PrefixLength":
-                    sourceIPv4PrefixLength = getLongValue(value);
-                    break;
-                case "sourceTransportPort":
-                    getUInt32Value(value).ifPresent(builder::setSrcPort);
-                    break;
-                case "vlanId":
-                    vlanId = getLongValue(value);
-                    break;
-                case "postVlanId":
-                    postVlanId = getLongValue(value);
-                    break;
-                case "dot1qVlanId":
-                    dot1qVlanId = getLongValue(value);
-                    break;
-                case "dot1qCustomerVlanId":
-                    dot1qCustomerVlanId = getLongValue(value);
-                    break;
-                case "postDot1qVlanId":
-                    postDot1qVlanId = getLongValue(value);
-                    break;
-                case "postDot1qCustomerVlanId":
-                    postDot1qCustomerVlanId = getLongValue(value);
-                    break;
-                case "flowActiveTimeout":
-                    flowActiveTimeout = getLongValue(value);
-                    break;
-                case "flowInactiveTimeout":
-                    flowInactiveTimeout = getLongValue(value);
-                    break;
-                case "ingressPhysicalInterface":
-                    ingressPhysicalInterface = getUInt32Value(value).orElse(null);
-                    break;
-                case "egressPhysicalInterface":
-                    egressPhysicalInterface = getUInt32Value(value).orElse(null);
-                    break;
-            }
-        }
+        HANDLERS.acceptAll(state, values);
 
         // Set input interface
-        first(ingressPhysicalInterface, inputSnmp).ifPresent(ifIndex -> {
+        first(state.ingressPhysicalInterface, state.inputSnmp).ifPresent(ifIndex -> {
             builder.setInputSnmpIfindex(ifIndex);
         });
 
         // Set output interface
-        first(egressPhysicalInterface, outputSnmp).ifPresent(ifIndex -> {
+        first(state.egressPhysicalInterface, state.outputSnmp).ifPresent(ifIndex -> {
             builder.setOutputSnmpIfindex(ifIndex);
         });
 
-        first(octetDeltaCount,
-                postOctetDeltaCount,
-                layer2OctetDeltaCount,
-                postLayer2OctetDeltaCount,
-                transportOctetDeltaCount)
+        first(state.octetDeltaCount,
+                state.postOctetDeltaCount,
+                state.layer2OctetDeltaCount,
+                state.postLayer2OctetDeltaCount,
+                state.transportOctetDeltaCount)
                 .ifPresent(bytes ->
                     builder.setNumBytes(setLongValue(bytes))
                 );
 
-        first(destinationIPv6Address,
-                destinationIPv4Address).ifPresent(ipAddress -> {
+        first(state.destinationIPv6Address,
+                state.destinationIPv4Address).ifPresent(ipAddress -> {
             builder.setDstAddress(ipAddress.getHostAddress());
             enrichment.getHostnameFor(ipAddress).ifPresent(builder::setDstHostname);
         });
 
-        first(destinationIPv6PrefixLength,
-                destinationIPv4PrefixLength)
+        first(state.destinationIPv6PrefixLength,
+                state.destinationIPv4PrefixLength)
                 .ifPresent(prefixLen -> builder.setDstMaskLen(setIntValue(prefixLen.intValue())));
 
 
-        first(ipNextHopIPv6Address,
-                ipNextHopIPv4Address,
-                bgpNextHopIPv6Address,
-                bgpNextHopIPv4Address).ifPresent(ipAddress -> {
+        first(state.ipNextHopIPv6Address,
+                state.ipNextHopIPv4Address,
+                state.bgpNextHopIPv6Address,
+                state.bgpNextHopIPv4Address).ifPresent(ipAddress -> {
             builder.setNextHopAddress(ipAddress.getHostAddress());
             enrichment.getHostnameFor(ipAddress).ifPresent(builder::setNextHopHostname);
         });
 
-        first(sourceIPv6Address,
-                sourceIPv4Address).ifPresent(ipAddress -> {
+        first(state.sourceIPv6Address,
+                state.sourceIPv4Address).ifPresent(ipAddress -> {
             builder.setSrcAddress(ipAddress.getHostAddress());
             enrichment.getHostnameFor(ipAddress).ifPresent(builder::setSrcHostname);
         });
 
-        first(sourceIPv6PrefixLength,
-                sourceIPv4PrefixLength)
+        first(state.sourceIPv6PrefixLength,
+                state.sourceIPv4PrefixLength)
                 .ifPresent(prefixLen -> builder.setSrcMaskLen(setIntValue(prefixLen.intValue())));
 
-        first(vlanId,
-                postVlanId,
-                dot1qVlanId,
-                dot1qCustomerVlanId,
-                postDot1qVlanId,
-                postDot1qCustomerVlanId)
+        first(state.vlanId,
+                state.postVlanId,
+                state.dot1qVlanId,
+                state.dot1qCustomerVlanId,
+                state.postDot1qVlanId,
+                state.postDot1qCustomerVlanId)
                 .ifPresent(vlan -> builder.setVlan(setIntValue(vlan.intValue())));
 
-        long timeStamp = exportTime  != null ? exportTime * 1000 : 0;
+        long timeStamp = state.exportTime  != null ? state.exportTime * 1000 : 0;
         builder.setTimestamp(timeStamp);
 
         // Set first switched
-        Long flowStartDelta = flowStartDeltaMicroseconds != null ?
-                flowStartDeltaMicroseconds + timeStamp : null;
-        Long systemInitTime = systemInitTimeMilliseconds != null ?
-                systemInitTimeMilliseconds.toEpochMilli() : null;
-        Long flowStart = flowStartSysUpTime != null && systemInitTime != null ?
-                flowStartSysUpTime + systemInitTime : null;
-
-        Optional<Long> firstSwitchedInMilli = first(flowStartSeconds,
-                flowStartMilliseconds,
-                flowStartMicroseconds,
-                flowStartNanoseconds).map(Instant::toEpochMilli);
+        Long flowStartDelta = state.flowStartDeltaMicroseconds != null ?
+                state.flowStartDeltaMicroseconds + timeStamp : null;
+        Long systemInitTime = state.systemInitTimeMilliseconds != null ?
+                state.systemInitTimeMilliseconds.toEpochMilli() : null;
+        Long flowStart = state.flowStartSysUpTime != null && systemInitTime != null ?
+                state.flowStartSysUpTime + systemInitTime : null;
+
+        Optional<Long> firstSwitchedInMilli = first(state.flowStartSeconds,
+                state.flowStartMilliseconds,
+                state.flowStartMicroseconds,
+                state.flowStartNanoseconds).map(Instant::toEpochMilli);
         if (firstSwitchedInMilli.isPresent()) {
             builder.setFirstSwitched(setLongValue(firstSwitchedInMilli.get()));
         } else {
@@ -453,15 +226,15 @@ public class IpFixMessageBuilder implements MessageBuilder {
         }
 
         // Set lastSwitched
-        Long flowEndDelta = flowEndDeltaMicroseconds != null ?
-                flowEndDeltaMicroseconds + timeStamp : null;
-        Long flowEnd = flowEndSysUpTime != null && systemInitTime != null ?
-                flowEndSysUpTime + systemInitTime : null;
+        Long flowEndDelta = state.flowEndDeltaMicroseconds != null ?
+                state.flowEndDeltaMicroseconds + timeStamp : null;
+        Long flowEnd = state.flowEndSysUpTime != null && systemInitTime != null ?
+                state.flowEndSysUpTime + systemInitTime : null;
 
-        Optional<Long> lastSwitchedInMilli = first(flowEndSeconds,
-                flowEndMilliseconds,
-                flowEndMicroseconds,
-                flowEndNanoseconds).map(Instant::toEpochMilli);
+        Optional<Long> lastSwitchedInMilli = first(state.flowEndSeconds,
+                state.flowEndMilliseconds,
+                state.flowEndMicroseconds,
+                state.flowEndNanoseconds).map(Instant::toEpochMilli);
 
         if(lastSwitchedInMilli.isPresent()) {
             builder.setLastSwitched(setLongValue(lastSwitchedInMilli.get()));
@@ -472,14 +245,14 @@ public class IpFixMessageBuilder implements MessageBuilder {
             });
         }
 
-        first(packetDeltaCount,
-                postPacketDeltaCount,
-                transportPacketDeltaCount).ifPresent(packets -> {
+        first(state.packetDeltaCount,
+                state.postPacketDeltaCount,
+                state.transportPacketDeltaCount).ifPresent(packets -> {
             builder.setNumPackets(setLongValue(packets));
         });
 
         SamplingAlgorithm sampling = SamplingAlgorithm.UNASSIGNED;
-        final Integer deprecatedSamplingAlgorithm = first(samplingAlgorithm, samplerMode)
+        final Integer deprecatedSamplingAlgorithm = first(state.samplingAlgorithm, state.samplerMode)
                 .map(Long::intValue).orElse(null);
         if (deprecatedSamplingAlgorithm != null) {
             if (deprecatedSamplingAlgorithm == 1) {
@@ -490,8 +263,8 @@ public class IpFixMessageBuilder implements MessageBuilder {
             }
         }
 
-        if (selectorAlgorithm != null) {
-            switch (selectorAlgorithm.intValue()) {
+        if (state.selectorAlgorithm != null) {
+            switch (state.selectorAlgorithm.intValue()) {
                 case 0:
                     sampling = SamplingAlgorithm.UNASSIGNED;
                     break;
@@ -523,54 +296,54 @@ public class IpFixMessageBuilder implements MessageBuilder {
         builder.setSamplingAlgorithm(sampling);
 
         final Double deprecatedSamplingInterval = first(
-                samplingInterval,
-                samplerRandomInterval)
+                state.samplingInterval,
+                state.samplerRandomInterval)
                 .map(Long::doubleValue).orElse(null);
 
         if (deprecatedSamplingInterval != null) {
             builder.setSamplingInterval(setDoubleValue(deprecatedSamplingInterval));
         } else {
-            if (selectorAlgorithm != null) {
-                switch (selectorAlgorithm.intValue()) {
+            if (state.selectorAlgorithm != null) {
+                switch (state.selectorAlgorithm.intValue()) {
                     case 0:
                         break;
                     case 1: {
-                        double interval = samplingFlowInterval != null ?
-                                          samplingFlowInterval.doubleValue() : 1.0;
-                        double spacing = samplingFlowSpacing != null ?
-                                         samplingFlowSpacing.doubleValue() : 0.0;
+                        double interval = state.samplingFlowInterval != null ?
+                                          state.samplingFlowInterval.doubleValue() : 1.0;
+                        double spacing = state.samplingFlowSpacing != null ?
+                                         state.samplingFlowSpacing.doubleValue() : 0.0;
                         double samplingIntervalValue = interval + spacing / interval;
                         builder.setSamplingInterval(setDoubleValue(samplingIntervalValue));
                         break;
                     }
                     case 2: {
-                        double interval = flowSamplingTimeInterval != null ?
-                                          flowSamplingTimeInterval.doubleValue() : 1.0;
-                        double spacing = flowSamplingTimeSpacing != null ?
-                                         flowSamplingTimeSpacing.doubleValue() : 0.0;
+                        double interval = state.flowSamplingTimeInterval != null ?
+                                          state.flowSamplingTimeInterval.doubleValue() : 1.0;
+                        double spacing = state.flowSamplingTimeSpacing != null ?
+                                         state.flowSamplingTimeSpacing.doubleValue() : 0.0;
                         double samplingIntervalValue = interval + spacing / spacing;
                         builder.setSamplingInterval(setDoubleValue(samplingIntervalValue));
                         break;
                     }
                     case 3: {
-                        double size = samplingSize != null ? samplingSize.doubleValue() : 1.0;
-                        double population = samplingPopulation != null ? samplingPopulation.doubleValue() : 1.0;
+                        double size = state.samplingSize != null ? state.samplingSize.doubleValue() : 1.0;
+                        double population = state.samplingPopulation != null ? state.samplingPopulation.doubleValue() : 1.0;
                         double samplingIntervalValue = population / size;
                         builder.setSamplingInterval(setDoubleValue(samplingIntervalValue));
                         break;
                     }
                     case 4: {
-                        Double probability = samplingProbability != null ? samplingProbability.doubleValue() : 1.0;
+                        Double probability = state.samplingProbability != null ? state.samplingProbability.doubleValue() : 1.0;
                         builder.setSamplingInterval(setDoubleValue(1.0 / probability));
                         break;
                     }
                     case 5:
                     case 6:
                     case 7: {
-                        UnsignedLong selectedRangeMin = hashSelectedRangeMin != null ? UnsignedLong.fromLongBits(hashSelectedRangeMin) : UnsignedLong.ZERO;
-                        UnsignedLong selectedRangeMax = hashSelectedRangeMax != null ? UnsignedLong.fromLongBits(hashSelectedRangeMax) : UnsignedLong.MAX_VALUE;
-                        UnsignedLong outputRangeMin = hashOutputRangeMin != null ? UnsignedLong.fromLongBits(hashOutputRangeMin) : UnsignedLong.ZERO;
-                        UnsignedLong outputRangeMax = hashOutputRangeMax != null ? UnsignedLong.fromLongBits(hashOutputRangeMax) : UnsignedLong.MAX_VALUE;
+                        UnsignedLong selectedRangeMin = state.hashSelectedRangeMin != null ? UnsignedLong.fromLongBits(state.hashSelectedRangeMin) : UnsignedLong.ZERO;
+                        UnsignedLong selectedRangeMax = state.hashSelectedRangeMax != null ? UnsignedLong.fromLongBits(state.hashSelectedRangeMax) : UnsignedLong.MAX_VALUE;
+                        UnsignedLong outputRangeMin = state.hashOutputRangeMin != null ? UnsignedLong.fromLongBits(state.hashOutputRangeMin) : UnsignedLong.ZERO;
+                        UnsignedLong outputRangeMax = state.hashOutputRangeMax != null ? UnsignedLong.fromLongBits(state.hashOutputRangeMax) : UnsignedLong.MAX_VALUE;
                         double samplingIntervalValue = (outputRangeMax.minus(outputRangeMin)).dividedBy(selectedRangeMax.minus(selectedRangeMin)).doubleValue();
                         builder.setSamplingInterval(setDoubleValue(samplingIntervalValue));
                         break;
@@ -586,7 +359,7 @@ public class IpFixMessageBuilder implements MessageBuilder {
         }
 
         // Build delta switched
-        Timeout timeout = new Timeout(flowActiveTimeout, flowInactiveTimeout);
+        Timeout timeout = new Timeout(state.flowActiveTimeout, state.flowInactiveTimeout);
         timeout.setFirstSwitched(builder.hasFirstSwitched() ? builder.getFirstSwitched().getValue() : null);
         timeout.setLastSwitched(builder.hasLastSwitched() ? builder.getLastSwitched().getValue() : null);
         timeout.setNumBytes(builder.getNumBytes().getValue());
@@ -621,4 +394,82 @@ public class IpFixMessageBuilder implements MessageBuilder {
     public void setFlowSamplingIntervalFallback(final Long flowSamplingIntervalFallback) {
         this.flowSamplingIntervalFallback = flowSamplingIntervalFallback;
     }
+
+    private static Direction getDirection(final long directionValue) {
+        switch ((int) directionValue) {
+            case 0:
+                return Direction.INGRESS;
+            case 1:
+                return Direction.EGRESS;
+            default:
+                return Direction.UNKNOWN;
+        }
+    }
+
+    private static final class State {
+        private final FlowMessage.Builder builder = FlowMessage.newBuilder();
+
+        private Long exportTime;
+        private Long octetDeltaCount;
+        private Long postOctetDeltaCount;
+        private Long layer2OctetDeltaCount;
+        private Long postLayer2OctetDeltaCount;
+        private Long transportOctetDeltaCount;
+        private InetAddress destinationIPv6Address;
+        private InetAddress destinationIPv4Address;
+        private Long destinationIPv6PrefixLength;
+        private Long destinationIPv4PrefixLength;
+        private Instant flowStartSeconds;
+        private Instant flowStartMilliseconds;
+        private Instant flowStartMicroseconds;
+        private Instant flowStartNanoseconds;
+        private Long flowStartDeltaMicroseconds;
+        private Long flowStartSysUpTime;
+        private Instant systemInitTimeMilliseconds;
+        private Instant flowEndSeconds;
+        private Instant flowEndMilliseconds;
+        private Instant flowEndMicroseconds;
+        private Instant flowEndNanoseconds;
+        private Long flowEndDeltaMicroseconds;
+        private Long flowEndSysUpTime;
+        private InetAddress ipNextHopIPv6Address;
+        private InetAddress ipNextHopIPv4Address;
+        private InetAddress bgpNextHopIPv6Address;
+        private InetAddress bgpNextHopIPv4Address;
+        private Long packetDeltaCount;
+        private Long postPacketDeltaCount;
+        private Long transportPacketDeltaCount;
+        private Long samplingAlgorithm;
+        private Long samplerMode;
+        private Long selectorAlgorithm;
+        private Long samplingInterval;
+        private Long samplerRandomInterval;
+        private Long samplingFlowInterval;
+        private Long samplingFlowSpacing;
+        private Long flowSamplingTimeInterval;
+        private Long flowSamplingTimeSpacing;
+        private Long samplingSize;
+        private Long samplingPopulation;
+        private Long samplingProbability;
+        private Long hashSelectedRangeMin;
+        private Long hashSelectedRangeMax;
+        private Long hashOutputRangeMin;
+        private Long hashOutputRangeMax;
+        private InetAddress sourceIPv6Address;
+        private InetAddress sourceIPv4Address;
+        private Long sourceIPv6PrefixLength;
+        private Long sourceIPv4PrefixLength;
+        private Long vlanId;
+        private Long postVlanId;
+        private Long dot1qVlanId;
+        private Long dot1qCustomerVlanId;
+        private Long postDot1qVlanId;
+        private Long postDot1qCustomerVlanId;
+        private Long flowActiveTimeout;
+        private Long flowInactiveTimeout;
+        private UInt32Value ingressPhysicalInterface;
+        private UInt32Value egressPhysicalInterface;
+        private UInt32Value inputSnmp;
+        private UInt32Value outputSnmp;
+    }
 }
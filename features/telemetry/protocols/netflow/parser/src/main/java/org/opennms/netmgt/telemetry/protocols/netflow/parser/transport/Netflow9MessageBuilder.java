@@ -22,10 +22,6 @@
 package org.opennms.netmgt.telemetry.protocols.netflow.parser.transport;
 
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.first;
-import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getDoubleValue;
-import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getInetAddress;
-import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getLongValue;
-import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getUInt32Value;
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.getUInt64Value;
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.setDoubleValue;
 import static org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageUtils.setIntValue;
@@ -45,243 +41,129 @@ import com.google.protobuf.UInt32Value;
 @SuppressWarnings("java:S109")
 public class Netflow9MessageBuilder implements MessageBuilder {
 
+    private static final FieldHandlers<State> HANDLERS = new FieldHandlers<State>()
+            // Header
+            .unsigned("@recordCount", (s, v) -> s.builder.setNumFlowRecords(setIntValue((int) v)))
+            .unsigned("@sequenceNumber", (s, v) -> s.builder.setFlowSeqNum(setLongValue(v)))
+            .unsigned("@sourceId", (s, v) -> s.builder.setNodeIdentifier(String.valueOf(v)))
+            .unsigned("@sysUpTime", (s, v) -> s.sysUpTime = v)
+            .unsigned("@unixSecs", (s, v) -> s.unixSecs = v)
+            .unsigned("IN_BYTES", (s, v) -> s.builder.setNumBytes(setLongValue(v)))
+            .unsigned("DIRECTION", (s, v) -> s.builder.setDirection(getDirection(v)))
+            .address("IPV4_DST_ADDR", (s, v) -> s.ipv4DstAddress = v)
+            .address("IPV6_DST_ADDR", (s, v) -> s.ipv6DstAddress = v)
+            .unsigned("DST_AS", (s, v) -> s.builder.setDstAs(setLongValue(v)))
+            .unsigned("IPV6_DST_MASK", (s, v) -> s.ipv6DstMask = v)
+            .unsigned("DST_MASK", (s, v) -> s.dstMask = v)
+            .unsigned("L4_DST_PORT", (s, v) -> s.builder.setDstPort(setIntValue((int) v)))
+            .unsigned("ENGINE_ID", (s, v) -> s.builder.setEngineId(setIntValue((int) v)))
+            .unsigned("ENGINE_TYPE", (s, v) -> s.builder.setEngineType(setIntValue((int) v)))
+            .unsigned("FIRST_SWITCHED", (s, v) -> s.firstSwitched = v)
+            .unsigned("LAST_SWITCHED", (s, v) -> s.lastSwitched = v)
+            .unsigned("INPUT_SNMP", (s, v) -> s.inputSnmp = setIntValue((int) v))
+            .unsigned("IP_PROTOCOL_VERSION", (s, v) -> s.builder.setIpProtocolVersion(setIntValue((int) v)))
+            .unsigned("OUTPUT_SNMP", (s, v) -> s.outputSnmp = setIntValue((int) v))
+            .address("IPV6_NEXT_HOP", (s, v) -> s.ipv6NextHop = v)
+            .address("IPV4_NEXT_HOP", (s, v) -> s.ipv4NextHop = v)
+            .address("BPG_IPV6_NEXT_HOP", (s, v) -> s.bgpIpv6NextHop = v)
+            .address("BPG_IPV4_NEXT_HOP", (s, v) -> s.bgpIpv4NextHop = v)
+            .unsigned("IN_PKTS", (s, v) -> s.builder.setNumPackets(setLongValue(v)))
+            .unsigned("PROTOCOL", (s, v) -> s.builder.setProtocol(setIntValue((int) v)))
+            .unsigned("SAMPLING_ALGORITHM", (s, v) -> s.builder.setSamplingAlgorithm(getSamplingAlgorithm(v)))
+            .unsigned("SAMPLING_INTERVAL", (s, v) -> s.builder.setSamplingInterval(setDoubleValue((double) v)))
+            .address("IPV6_SRC_ADDR", (s, v) -> s.ipv6SrcAddress = v)
+            .address("IPV4_SRC_ADDR", (s, v) -> s.ipv4SrcAddress = v)
+            .unsigned("IPV6_SRC_MASK", (s, v) -> s.ipv6SrcMask = v)
+            .unsigned("SRC_MASK", (s, v) -> s.srcMask = v)
+            .unsigned("SRC_AS", (s, v) -> s.builder.setSrcAs(setLongValue(v)))
+            .unsigned("L4_SRC_PORT", (s, v) -> s.builder.setSrcPort(setIntValue((int) v)))
+            .unsigned("TCP_FLAGS", (s, v) -> s.builder.setTcpFlags(setIntValue((int) v)))
+            .unsigned("TOS", (s, v) -> s.builder.setTos(setIntValue((int) v)))
+            .unsigned("SRC_VLAN", (s, v) -> s.srcVlan = v)
+            .unsigned("DST_VLAN", (s, v) -> s.dstVlan = v)
+            .unsigned("FLOW_ACTIVE_TIMEOUT", (s, v) -> s.flowActiveTimeout = v)
+            .unsigned("FLOW_INACTIVE_TIMEOUT", (s, v) -> s.flowInActiveTimeout = v)
+            .unsigned("flowStartMilliseconds", (s, v) -> s.flowStartMilliseconds = v)
+            .unsigned("flowEndMilliseconds", (s, v) -> s.flowEndMilliseconds = v)
+            .unsigned("ingressPhysicalInterface", (s, v) -> s.ingressPhysicalInterface = setIntValue((int) v))
+            .unsigned("egressPhysicalInterface", (s, v) -> s.egressPhysicalInterface = setIntValue((int) v));
+
     private Long flowActiveTimeoutFallback;
     private Long flowInactiveTimeoutFallback;
     private Long flowSamplingIntervalFallback;
 
     @Override
     public FlowMessage.Builder buildMessage(final Iterable<Value<?>> values, final RecordEnrichment enrichment) {
-        final FlowMessage.Builder builder = FlowMessage.newBuilder();
+        final State state = new State();
+        final FlowMessage.Builder builder = state.builder;
         builder.setDirection(Direction.UNKNOWN);
 
-        InetAddress ipv4DstAddress = null;
-        InetAddress ipv6DstAddress = null;
-        Long dstMask = null;
-        Long ipv6DstMask = null;
-        InetAddress ipv4NextHop = null;
-        InetAddress ipv6NextHop = null;
-        InetAddress bgpIpv4NextHop = null;
-        InetAddress bgpIpv6NextHop = null;
-        InetAddress ipv4SrcAddress = null;
-        InetAddress ipv6SrcAddress = null;
-        Long srcMask = null;
-        Long ipv6SrcMask = null;
-        Long srcVlan = null;
-        Long dstVlan = null;
-        Long flowActiveTimeout = this.flowActiveTimeoutFallback;
-        Long flowInActiveTimeout = this.flowInactiveTimeoutFallback;
-        long sysUpTime = 0;
-        long unixSecs = 0;
-        Long firstSwitched = null;
-        Long lastSwitched = null;
-        Long flowStartMilliseconds = null;
-        Long flowEndMilliseconds = null;
-        UInt32Value ingressPhysicalInterface = null;
-        UInt32Value egressPhysicalInterface = null;
-        UInt32Value inputSnmp = null;
-        UInt32Value outputSnmp = null;
-
-	if (this.flowSamplingIntervalFallback != null) {
-	    builder.setSamplingInterval(setDoubleValue(this.flowSamplingIntervalFallback));
-	}
-
-        for (final Value<?> value : values) {
-            switch (value.getName()) {
-                // Header
-                case "@recordCount":
-                    getUInt32Value(value).ifPresent(builder::setNumFlowRecords);
-                    break;
-                case "@sequenceNumber":
-                    getUInt64Value(value).ifPresent(builder::setFlowSeqNum);
-                    break;
-                case "@sourceId":
-                    getUInt64Value(value).ifPresent(srcId -> builder.setNodeIdentifier(String.valueOf(srcId.getValue())));
-                    break;
-                case "@sysUpTime":
-                    sysUpTime = getLongValue(value);
-                    break;
-                case "@unixSecs":
-                    unixSecs = getLongValue(value);
-                    break;
-                case "IN_BYTES":
-                    getUInt64Value(value).ifPresent(builder::setNumBytes);
-                    break;
-                case "DIRECTION":
-                builder.setDirection(getDirection(value));
-                    break;
-                case "IPV4_DST_ADDR":
-                    ipv4DstAddress = getInetAddress(value);
-                    break;
-                case "IPV6_DST_ADDR":
-                    ipv6DstAddress = getInetAddress(value);
-                    break;
-                case "DST_AS":
-                    getUInt64Value(value).ifPresent(builder::setDstAs);
-                    break;
-                case "IPV6_DST_MASK":
-                    ipv6DstMask = getLongValue(value);
-                    break;
-                case "DST_MASK":
-                    dstMask = getLongValue(value);
-                    break;
-                case "L4_DST_PORT":
-                    getUInt32Value(value).ifPresent(builder::setDstPort);
-                    break;
-                case "ENGINE_ID":
-                    getUInt32Value(value).ifPresent(builder::setEngineId);
-                    break;
-                case "ENGINE_TYPE":
-                    getUInt32Value(value).ifPresent(builder::setEngineType);
-                    break;
-                case "FIRST_SWITCHED":
-                    firstSwitched = getLongValue(value);
-                    break;
-                case "LAST_SWITCHED":
-                    lastSwitched = getLongValue(value);
-                    break;
-                case "INPUT_SNMP":
-                    inputSnmp = getUInt32Value(value).orElse(null);
-                    break;
-                case "IP_PROTOCOL_VERSION":
-                    getUInt32Value(value).ifPresent(builder::setIpProtocolVersion);
-                    break;
-                case "OUTPUT_SNMP":
-                    outputSnmp = getUInt32Value(value).orElse(null);
-                    break;
-                case "IPV6_NEXT_HOP":
-                    ipv6NextHop = getInetAddress(value);
-                    break;
-                case "IPV4_NEXT_HOP":
-                    ipv4NextHop = getInetAddress(value);
-                    break;
-                case "BPG_IPV6_NEXT_HOP":
-                    bgpIpv6NextHop = getInetAddress(value);
-                    break;
-                case "BPG_IPV4_NEXT_HOP":
-                    bgpIpv4NextHop = getInetAddress(value);
-                    break;
-                case "IN_PKTS":
-                    getUInt64Value(value).ifPresent(builder::setNumPackets);
-                    break;
-                case "PROTOCOL":
-                    getUInt32Value(value).ifPresent(builder::setProtocol);
-                    break;
-                case "SAMPLING_ALGORITHM":
-                builder.setSamplingAlgorithm(getSamplingAlgorithm(value));
-                    break;
-                case "SAMPLING_INTERVAL":
-                    getDoubleValue(value).ifPresent(builder::setSamplingInterval);
-                    break;
-                case "IPV6_SRC_ADDR":
-                    ipv6SrcAddress = getInetAddress(value);
-                    break;
-                case "IPV4_SRC_ADDR":
-                    ipv4SrcAddress = getInetAddress(value);
-                    break;
-                case "IPV6_SRC_MASK":
-                    ipv6SrcMask = getLongValue(value);
-                    break;
-                case "SRC_MASK":
-                    srcMask = getLongValue(value);
-                    break;
-                case "SRC_AS":
-                    getUInt64Value(value).ifPresent(builder::setSrcAs);
-                    break;
-                case "L4_SRC_PORT":
-                    getUInt32Value(value).ifPresent(builder::setSrcPort);
-                    break;
-                case "TCP_FLAGS":
-                    getUInt32Value(value).ifPresent(builder::setTcpFlags);
-                    break;
-                case "TOS":
-                    getUInt32Value(value).ifPresent(builder::setTos);
-                    break;
-                case "SRC_VLAN":
-                    srcVlan = getLongValue(value);
-                    break;
-                case "DST_VLAN":
-                    dstVlan = getLongValue(value);
-                    break;
-                case "FLOW_ACTIVE_TIMEOUT":
-                    flowActiveTimeout = getLongValue(value);
-                    break;
-                case "FLOW_INACTIVE_TIMEOUT":
-                    flowInActiveTimeout = getLongValue(value);
-                    break;
-                case "flowStartMilliseconds":
-                    flowStartMilliseconds = getLongValue(value);
-                    break;
-                case "flowEndMilliseconds":
-                    flowEndMilliseconds = getLongValue(value);
-                    break;
-                case "ingressPhysicalInterface":
-                    ingressPhysicalInterface = getUInt32Value(value).orElse(null);
-                    break;
-                case "egressPhysicalInterface":
-                    egressPhysicalInterface = getUInt32Value(value).orElse(null);
-                    break;
-                default:
-                    break;
-            }
+        state.flowActiveTimeout = this.flowActiveTimeoutFallback;
+        state.flowInActiveTimeout = this.flowInactiveTimeoutFallback;
+
+        if (this.flowSamplingIntervalFallback != null) {
+            builder.setSamplingInterval(setDoubleValue(this.flowSamplingIntervalFallback));
         }
 
-        long timeStampInMsecs = unixSecs * 1000;
+        HANDLERS.acceptAll(state, values);
+
+        long timeStampInMsecs = state.unixSecs * 1000;
         builder.setTimestamp(timeStampInMsecs);
 
-        long bootTime = timeStampInMsecs - sysUpTime;
+        long bootTime = timeStampInMsecs - state.sysUpTime;
 
-        if (firstSwitched != null) {
-            builder.setFirstSwitched(setLongValue(firstSwitched + bootTime));
+        if (state.firstSwitched != null) {
+            builder.setFirstSwitched(setLongValue(state.firstSwitched + bootTime));
         } else {
             // Some Cisco platforms also support absolute timestamps in NetFlow v9 (like defined in IPFIX). See NMS-13006
-            if (flowStartMilliseconds != null) {
-                builder.setFirstSwitched(setLongValue(flowStartMilliseconds));
+            if (state.flowStartMilliseconds != null) {
+                builder.setFirstSwitched(setLongValue(state.flowStartMilliseconds));
             }
         }
-        if(lastSwitched != null) {
-            builder.setLastSwitched(setLongValue(lastSwitched + bootTime));
+        if(state.lastSwitched != null) {
+            builder.setLastSwitched(setLongValue(state.lastSwitched + bootTime));
         } else {
             // Some Cisco platforms also support absolute timestamps in NetFlow v9 (like defined in IPFIX). See NMS-13006
-            if (flowEndMilliseconds != null) {
-                builder.setLastSwitched(setLongValue(flowEndMilliseconds));
+            if (state.flowEndMilliseconds != null) {
+                builder.setLastSwitched(setLongValue(state.flowEndMilliseconds));
             }
         }
 
         // Set input interface
-        first(ingressPhysicalInterface, inputSnmp).ifPresent(builder::setInputSnmpIfindex);
+        first(state.ingressPhysicalInterface, state.inputSnmp).ifPresent(builder::setInputSnmpIfindex);
 
         // Set output interface
-        first(egressPhysicalInterface, outputSnmp).ifPresent(builder::setOutputSnmpIfindex);
+        first(state.egressPhysicalInterface, state.outputSnmp).ifPresent(builder::setOutputSnmpIfindex);
 
 
         // Set Destination address and host name.
-        first(ipv6DstAddress, ipv4DstAddress).ifPresent((final InetAddress inetAddress) -> {
+        first(state.ipv6DstAddress, state.ipv4DstAddress).ifPresent((final InetAddress inetAddress) -> {
             enrichment.getHostnameFor(inetAddress).ifPresent(builder::setDstHostname);
             builder.setDstAddress(inetAddress.getHostAddress());
         });
 
         // dst mask
-        first(ipv6DstMask, dstMask).ifPresent(dstMaskLen ->
+        first(state.ipv6DstMask, state.dstMask).ifPresent(dstMaskLen ->
             builder.setDstMaskLen(setIntValue(dstMaskLen.intValue())));
 
         // Set Source address and host name.
-        first(ipv6SrcAddress, ipv4SrcAddress).ifPresent((final InetAddress inetAddress) -> {
+        first(state.ipv6SrcAddress, state.ipv4SrcAddress).ifPresent((final InetAddress inetAddress) -> {
             enrichment.getHostnameFor(inetAddress).ifPresent(builder::setSrcHostname);
             builder.setSrcAddress(inetAddress.getHostAddress());
         });
         // src mask
-        first(ipv6SrcMask, srcMask).ifPresent(srcMaskLen -> builder.setSrcMaskLen(setIntValue(srcMaskLen.intValue())));
+        first(state.ipv6SrcMask, state.srcMask).ifPresent(srcMaskLen -> builder.setSrcMaskLen(setIntValue(srcMaskLen.intValue())));
 
         // Set next hop address, hostname.
-        first(ipv6NextHop, ipv4NextHop, bgpIpv6NextHop, bgpIpv4NextHop).ifPresent((final InetAddress inetAddress) -> {
+        first(state.ipv6NextHop, state.ipv4NextHop, state.bgpIpv6NextHop, state.bgpIpv4NextHop).ifPresent((final InetAddress inetAddress) -> {
             enrichment.getHostnameFor(inetAddress).ifPresent(builder::setNextHopHostname);
             builder.setNextHopAddress(inetAddress.getHostAddress());
         });
 
         // set vlan
-        first(srcVlan, dstVlan).ifPresent( vlan -> builder.setVlan(setIntValue(vlan.intValue())));
+        first(state.srcVlan, state.dstVlan).ifPresent( vlan -> builder.setVlan(setIntValue(vlan.intValue())));
 
-        Timeout timeout = new Timeout(flowActiveTimeout, flowInActiveTimeout);
+        Timeout timeout = new Timeout(state.flowActiveTimeout, state.flowInActiveTimeout);
         timeout.setFirstSwitched(builder.hasFirstSwitched() ? builder.getFirstSwitched().getValue() : null);
         timeout.setLastSwitched(builder.hasLastSwitched() ? builder.getLastSwitched().getValue() : null);
         timeout.setNumBytes(builder.getNumBytes().getValue());
@@ -293,38 +175,32 @@ public class Netflow9MessageBuilder implements MessageBuilder {
         return builder;
     }
 
-    private static Direction getDirection(final Value<?> value) {
-        Long directionValue = getLongValue(value);
+    private static Direction getDirection(final long directionValue) {
         Direction direction = Direction.UNKNOWN;
-        if (directionValue != null) {
-            switch (directionValue.intValue()) {
-                case 0:
-                    direction = Direction.INGRESS;
-                    break;
-                case 1:
-                    direction = Direction.EGRESS;
-                    break;
-                default:
-                    break;
-            }
+        switch ((int) directionValue) {
+            case 0:
+                direction = Direction.INGRESS;
+                break;
+            case 1:
+                direction = Direction.EGRESS;
+                break;
+            default:
+                break;
         }
         return direction;
     }
 
-    private static SamplingAlgorithm getSamplingAlgorithm(final Value<?> value) {
-        Long saValue = getLongValue(value);
+    private static SamplingAlgorithm getSamplingAlgorithm(final long saValue) {
         SamplingAlgorithm samplingAlgorithm = SamplingAlgorithm.UNASSIGNED;
-        if (saValue != null) {
-            switch(saValue.intValue()) {
-                case 1:
-                    samplingAlgorithm = SamplingAlgorithm.SYSTEMATIC_COUNT_BASED_SAMPLING;
-                    break;
-                case 2:
-                    samplingAlgorithm = SamplingAlgorithm.RANDOM_N_OUT_OF_N_SAMPLING;
-                    break;
-                default:
-                    break;
-            }
+        switch((int) saValue) {
+            case 1:
+                samplingAlgorithm = SamplingAlgorithm.SYSTEMATIC_COUNT_BASED_SAMPLING;
+                break;
+            case 2:
+                samplingAlgorithm = SamplingAlgorithm.RANDOM_N_OUT_OF_N_SAMPLING;
+                break;
+            default:
+                break;
         }
         return samplingAlgorithm;
     }
@@ -352,4 +228,35 @@ public class Netflow9MessageBuilder implements MessageBuilder {
     public void setFlowSamplingIntervalFallback(final Long flowSamplingIntervalFallback) {
         this.flowSamplingIntervalFallback = flowSamplingIntervalFallback;
     }
+
+    private static final class State {
+        private final FlowMessage.Builder builder = FlowMessage.newBuilder();
+
+        private InetAddress ipv4DstAddress;
+        private InetAddress ipv6DstAddress;
+        private Long dstMask;
+        private Long ipv6DstMask;
+        private InetAddress ipv4NextHop;
+        private InetAddress ipv6NextHop;
+        private InetAddress bgpIpv4NextHop;
+        private InetAddress bgpIpv6NextHop;
+        private InetAddress ipv4SrcAddress;
+        private InetAddress ipv6SrcAddress;
+        private Long srcMask;
+        private Long ipv6SrcMask;
+        private Long srcVlan;
+        private Long dstVlan;
+        private Long flowActiveTimeout;
+        private Long flowInActiveTimeout;
+        private long sysUpTime;
+        private long unixSecs;
+        private Long firstSwitched;
+        private Long lastSwitched;
+        private Long flowStartMilliseconds;
+        private Long flowEndMilliseconds;
+        private UInt32Value ingressPhysicalInterface;
+        private UInt32Value egressPhysicalInterface;
+        private UInt32Value inputSnmp;
+        private UInt32Value outputSnmp;
+    }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.netflow.parser;
+
+import static org.opennms.netmgt.telemetry.listeners.utils.BufferUtils.slice;
+
+import java.net.InetAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.RecordProvider;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ipfix.proto.Header;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.session.SequenceNumberTracker;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.session.Session;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.session.TcpSession;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.IpFixMessageBuilder;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.MessageBuilder;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.Netflow9MessageBuilder;
+
+import com.google.common.collect.Lists;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to measure decoding the captured NetFlow v9 and IPFIX
+ * packets and building flow messages from them.
+ * <p>
+ * The records are either handed to the message builders as they come out of the compiled template
+ * decoders, or materialized into a list of values first, which is what every record went through before.
+ */
+public class FlowDecoderBenchmark {
+
+    private static final RecordEnrichment ENRICHMENT = address -> Optional.empty();
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class FlowState {
+
+        @Param({"netflow9", "ipfix"})
+        public String protocol;
+
+        public Session session;
+        public MessageBuilder messageBuilder;
+        public List<byte[]> payloads;
+
+        @Setup
+        public void setup() throws Exception {
+            session = new TcpSession(InetAddress.getLoopbackAddress(), () -> new SequenceNumberTracker(32));
+            messageBuilder = "netflow9".equals(protocol) ? new Netflow9MessageBuilder() : new IpFixMessageBuilder();
+
+            final List<byte[]> candidates = new ArrayList<>();
+            final Path flows = Paths.get(Objects.requireNonNull(FlowDecoderBenchmark.class.getResource("/flows")).toURI());
+            try (final DirectoryStream<Path> files = Files.newDirectoryStream(flows, protocol + "*.dat")) {
+                for (final Path file : files) {
+                    candidates.add(Files.readAllBytes(file));
+                }
+            }
+
+            // The first round learns the templates, the second one keeps the packets containing data records
+            payloads = new ArrayList<>();
+            for (int round = 0; round < 2; round++) {
+                for (final byte[] payload : candidates) {
+                    try {
+                        final RecordProvider packet = parse(this, payload);
+                        if (round == 1 && packet.getRecords().findAny().isPresent()) {
+                            payloads.add(payload);
+                        }
+                    } catch (final Exception e) {
+                        // Not all of the captured packets are valid
+                    }
+                }
+            }
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void buildFromDecodedRecords(FlowState state, Blackhole blackhole) throws Exception {
+        for (final byte[] payload : state.payloads) {
+            parse(state, payload).getRecords()
+                    .forEach(record -> blackhole.consume(state.messageBuilder.buildMessage(record, ENRICHMENT)));
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void buildFromValues(FlowState state, Blackhole blackhole) throws Exception {
+        for (final byte[] payload : state.payloads) {
+            parse(state, payload).getRecords()
+                    .forEach(record -> {
+                        final List<Value<?>> values = Lists.newArrayList(record);
+                        blackhole.consume(state.messageBuilder.buildMessage(values, ENRICHMENT));
+                    });
+        }
+    }
+
+    private static RecordProvider parse(final FlowState state, final byte[] payload) throws InvalidPacketException, MissingTemplateException {
+        final ByteBuf buffer = Unpooled.wrappedBuffer(payload);
+        if ("netflow9".equals(state.protocol)) {
+            final org.opennms.netmgt.telemetry.protocols.netflow.parser.netflow9.proto.Header header =
+                    new org.opennms.netmgt.telemetry.protocols.netflow.parser.netflow9.proto.Header(
+                            slice(buffer, org.opennms.netmgt.telemetry.protocols.netflow.parser.netflow9.proto.Header.SIZE));
+            return new org.opennms.netmgt.telemetry.protocols.netflow.parser.netflow9.proto.Packet(state.session, header, buffer);
+        } else {
+            final Header header = new Header(slice(buffer, Header.SIZE));
+            return new org.opennms.netmgt.telemetry.protocols.netflow.parser.ipfix.proto.Packet(state.session, header, buffer);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.netflow.parser.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.opennms.netmgt.telemetry.listeners.utils.BufferUtils.slice;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.InvalidPacketException;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.MissingTemplateException;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.InformationElement;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.IPv4AddressValue;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.StringValue;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.UnsignedValue;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.transport.FieldHandlers;
+
+import com.google.common.collect.Sets;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class TemplateDecoderTest {
+
+    private static final TemplateDecoder.FieldParser PARSER = (field, resolver, buffer) -> field.parse(resolver, slice(buffer, field.length()));
+
+    private static Field field(final InformationElement element, final int length) {
+        return new Field() {
+            @Override
+            public int length() {
+                return length;
+            }
+
+            @Override
+            public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) throws InvalidPacketException, MissingTemplateException {
+                return element.parse(resolver, buffer);
+            }
+
+            @Override
+            public Optional<InformationElement> getInformationElement() {
+                return Optional.of(element);
+            }
+        };
+    }
+
+    private static Field undeclared(final String name, final int length) {
+        return new Field() {
+            @Override
+            public int length() {
+                return length;
+            }
+
+            @Override
+            public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
+                final byte[] bytes = new byte[length];
+                buffer.readBytes(bytes);
+                return new StringValue(name, new String(bytes));
+            }
+        };
+    }
+
+    private static DecodedFields decode(final byte[] data) throws Exception {
+        final TemplateDecoder decoder = new TemplateDecoder(Arrays.asList(
+                field(UnsignedValue.parserWith32Bit("packets", Optional.empty()), 4),
+                field(IPv4AddressValue.parser("address", Optional.empty()), 4),
+                field(UnsignedValue.parserWith16Bit("ignored", Optional.empty()), 2),
+                undeclared("text", 3),
+                field(UnsignedValue.parserWith64Bit("bytes", Optional.empty()), 3)));
+
+        return decoder.decode(PARSER, null, Unpooled.wrappedBuffer(data));
+    }
+
+    private static final byte[] DATA = new byte[]{
+            0x00, 0x00, 0x00, 0x2A,
+            0x0A, 0x00, 0x00, 0x01,
+            0x00, 0x07,
+            'a', 'b', 'c',
+            0x01, 0x00, 0x00,
+    };
+
+    @Test
+    public void testFieldsMatchParsedValues() throws Exception {
+        final DecodedFields fields = decode(DATA);
+
+        assertEquals(Arrays.asList(
+                new UnsignedValue("packets", 42),
+                new IPv4AddressValue("address", (Inet4Address) InetAddress.getByName("10.0.0.1")),
+                new UnsignedValue("ignored", 7),
+                new StringValue("text", "abc"),
+                new UnsignedValue("bytes", 65536)), fields);
+    }
+
+    @Test
+    public void testHandlersReceiveDirectlyDecodedFields() throws Exception {
+        final FieldHandlers<List<String>> handlers = new FieldHandlers<List<String>>()
+                .unsigned("packets", (s, v) -> s.add("packets=" + v))
+                .address("address", (s, v) -> s.add("address=" + v.getHostAddress()))
+                .value("text", (s, v) -> s.add("text=" + v.getValue()))
+                .value("bytes", (s, v) -> s.add("bytes=" + v.getClass().getSimpleName()));
+
+        final List<String> state = new ArrayList<>();
+        decode(DATA).apply(handlers, state);
+
+        // Unhandled fields are skipped and handlers accepting values only get a parsed value
+        assertEquals(Arrays.asList("packets=42", "address=10.0.0.1", "text=abc", "bytes=UnsignedValue"), state);
+    }
+
+    @Test
+    public void testRecordKeepsOrderOfHeaderFieldsAndOptions() throws Exception {
+        final List<Value<?>> header = Collections.singletonList(new UnsignedValue("packets", 1));
+        final List<Value<?>> options = Collections.singletonList(new UnsignedValue("packets", 3));
+
+        final Iterable<Value<?>> record = DecodedRecord.of(header, decode(DATA), options);
+        assertTrue(record instanceof DecodedRecord);
+
+        final FieldHandlers<List<Long>> handlers = new FieldHandlers<List<Long>>()
+                .unsigned("packets", List::add);
+
+        final List<Long> state = new ArrayList<>();
+        handlers.acceptAll(state, record);
+        assertEquals(Arrays.asList(1L, 42L, 3L), state);
+
+        final List<InetAddress> addresses = new ArrayList<>();
+        ((DecodedRecord) record).forEachAddress(addresses::add);
+        assertEquals(Collections.singletonList(InetAddress.getByName("10.0.0.1")), addresses);
+    }
+
+    @Test
+    public void testScopeValuesLookup() throws Exception {
+        final DecodedFields fields = decode(DATA);
+
+        assertEquals(Sets.newHashSet("packets", "address", "ignored", "text", "bytes"), DecodedFields.namesOf(fields));
+        assertEquals(Collections.singleton(new UnsignedValue("ignored", 7)), DecodedFields.valuesOf(fields, Collections.singleton("ignored")));
+    }
+}
@@ -30,16 +30,22 @@ import org.opennms.netmgt.telemetry.protocols.netflow.parser.MissingTemplateExce
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.Netflow9UdpParser;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.Value;
 import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.StringValue;
+import org.opennms.netmgt.telemetry.protocols.netflow.parser.ie.values.UnsignedValue;
 
 import java.net.InetSocketAddress;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
@@ -186,13 +192,130 @@ public class UdpSessionManagerTest {
 
         session.addOptions(observationId1, templateId1, scopesValue, fieldsValue);
 
-        assertThat(udpSessionManager.templates.keySet(), hasItem(new UdpSessionManager.TemplateKey(sessionKey, observationId1, template.id)));
-        assertThat(udpSessionManager.templates.get(new UdpSessionManager.TemplateKey(sessionKey, observationId1, template.id)).wrapped.options.entrySet(), not(empty()));
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey, observationId1, template.id)), notNullValue());
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey, observationId1, template.id)).wrapped.options.entrySet(), not(empty()));
 
         udpSessionManager.doHousekeeping();
 
-        assertThat(udpSessionManager.templates.keySet(), not(hasItem(new UdpSessionManager.TemplateKey(sessionKey, observationId1, template.id))));
-        assertThat(udpSessionManager.templates.get(new UdpSessionManager.TemplateKey(sessionKey, observationId1, template.id)), nullValue());
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey, observationId1, template.id)), nullValue());
+        assertThat(udpSessionManager.count(), is(0));
+    }
+
+    @Test
+    public void templateQuotaTest() {
+        final UdpSessionManager.SessionKey sessionKey1 = new Netflow9UdpParser.SessionKey(remoteAddress1.getAddress(), localAddress1);
+        final UdpSessionManager.SessionKey sessionKey2 = new Netflow9UdpParser.SessionKey(remoteAddress3.getAddress(), localAddress1);
+
+        final MutableClock clock = new MutableClock();
+        final UdpSessionManager udpSessionManager = new UdpSessionManager(Duration.ofMinutes(30), 3, 2, () -> new SequenceNumberTracker(32), clock);
+        final Session session1 = udpSessionManager.getSession(sessionKey1);
+        final Session session2 = udpSessionManager.getSession(sessionKey2);
+
+        session1.addTemplate(observationId1, template(256));
+        clock.advance(Duration.ofMillis(1));
+        session1.addTemplate(observationId2, template(257));
+        clock.advance(Duration.ofMillis(1));
+
+        // Exceeds the quota of the exporter and evicts its oldest template
+        session1.addTemplate(observationId1, template(258));
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey1, observationId1, 256)), nullValue());
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey1, observationId2, 257)), notNullValue());
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey1, observationId1, 258)), notNullValue());
+
+        // Redeclaring a template does not count against the quota
+        session1.addTemplate(observationId1, template(258));
+        assertThat(udpSessionManager.getEvictions(), is(1L));
+
+        // The store is full and the other exporter has nothing to evict
+        session2.addTemplate(observationId1, template(256));
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey2, observationId1, 256)), notNullValue());
+        session2.addTemplate(observationId1, template(257));
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey2, observationId1, 256)), nullValue());
+        assertThat(udpSessionManager.getTemplate(new UdpSessionManager.TemplateKey(sessionKey2, observationId1, 257)), notNullValue());
+        assertThat(udpSessionManager.count(), is(3));
+        assertThat(udpSessionManager.getEvictions(), is(2L));
+
+        udpSessionManager.drop(sessionKey1);
+        assertThat(udpSessionManager.count(), is(1));
+
+        try {
+            session1.getResolver(observationId2).lookupTemplate(257);
+            Assert.fail();
+        } catch (final MissingTemplateException e) {
+            assertThat(udpSessionManager.getMissingTemplates(), is(1L));
+        }
+    }
+
+    @Test
+    public void templateExpiryTest() {
+        final UdpSessionManager.SessionKey sessionKey = new Netflow9UdpParser.SessionKey(remoteAddress1.getAddress(), localAddress1);
+        final UdpSessionManager.TemplateKey templateKey1 = new UdpSessionManager.TemplateKey(sessionKey, observationId1, 256);
+        final UdpSessionManager.TemplateKey templateKey2 = new UdpSessionManager.TemplateKey(sessionKey, observationId1, 257);
+
+        final MutableClock clock = new MutableClock();
+        final UdpSessionManager udpSessionManager = new UdpSessionManager(Duration.ofMinutes(30), 10, 10, () -> new SequenceNumberTracker(32), clock);
+        final Session session = udpSessionManager.getSession(sessionKey);
+
+        session.addTemplate(observationId1, template(256));
+        session.addTemplate(observationId1, template(257));
+
+        // Redeclaring a template pushes its expiry out
+        clock.advance(Duration.ofMinutes(20));
+        session.addTemplate(observationId1, template(257));
+
+        clock.advance(Duration.ofMinutes(11));
+        udpSessionManager.doHousekeeping();
+        assertThat(udpSessionManager.getTemplate(templateKey1), nullValue());
+        assertThat(udpSessionManager.getTemplate(templateKey2), notNullValue());
+
+        // Rescheduled entries land in the buckets still to be visited
+        udpSessionManager.doHousekeeping();
+        assertThat(udpSessionManager.getTemplate(templateKey2), notNullValue());
+
+        clock.advance(Duration.ofMinutes(20));
+        udpSessionManager.doHousekeeping();
+        assertThat(udpSessionManager.getTemplate(templateKey2), nullValue());
+        assertThat(udpSessionManager.count(), is(0));
+    }
+
+    @Test
+    public void unsignedOptionsTest() {
+        final UdpSessionManager.SessionKey sessionKey = new Netflow9UdpParser.SessionKey(remoteAddress1.getAddress(), localAddress1);
+
+        final UdpSessionManager udpSessionManager = new UdpSessionManager(Duration.ofMinutes(30), () -> new SequenceNumberTracker(32));
+        final Session session = udpSessionManager.getSession(sessionKey);
+
+        final List<Scope> scopes = new ArrayList<>();
+        scopes.add(scope("scope1", null));
+        scopes.add(scope("scope2", null));
+
+        session.addTemplate(observationId1, Template.builder(templateId1, Template.Type.OPTIONS_TEMPLATE).withFields(new ArrayList<>()).withScopes(scopes).build());
+
+        final List<Value<?>> scopesValue = new ArrayList<>();
+        scopesValue.add(new UnsignedValue("scope2", 2));
+        scopesValue.add(new UnsignedValue("scope1", 1));
+
+        final List<Value<?>> fieldsValue = new ArrayList<>();
+        fieldsValue.add(value("additionalField1", "additionalValue1"));
+
+        session.addOptions(observationId1, templateId1, scopesValue, fieldsValue);
+
+        final List<Value<?>> matchingValues = new ArrayList<>();
+        matchingValues.add(new UnsignedValue("scope1", 1));
+        matchingValues.add(value("other", "otherValue"));
+        matchingValues.add(new UnsignedValue("scope2", 2));
+        Assert.assertEquals(fieldsValue, session.getResolver(observationId1).lookupOptions(matchingValues));
+
+        final List<Value<?>> otherValues = new ArrayList<>();
+        otherValues.add(new UnsignedValue("scope1", 2));
+        otherValues.add(new UnsignedValue("scope2", 1));
+        Assert.assertEquals(0, session.getResolver(observationId1).lookupOptions(otherValues).size());
+    }
+
+    private Template template(final int templateId) {
+        final List<Field> fields = new ArrayList<>();
+        fields.add(field("field1", null));
+        return Template.builder(templateId, Template.Type.TEMPLATE).withFields(fields).build();
     }
 
     @Test
@@ -219,4 +342,27 @@ public class UdpSessionManagerTest {
         testIpFixSessionKeys(remoteAddress1, localAddress1, remoteAddress4, localAddress1, false);
         testIpFixSessionKeys(remoteAddress1, localAddress1, remoteAddress4, localAddress2, false);
     }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+        public void advance(final Duration duration) {
+            this.now = this.now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return this.now;
+        }
+    }
 }
@@ -40,8 +40,8 @@ import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLog;
 import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLogEntry;
 import org.opennms.netmgt.telemetry.config.api.AdapterDefinition;
 import org.opennms.netmgt.telemetry.protocols.collection.AbstractScriptedCollectionAdapter;
+import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetGenerator;
 import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetWithAgent;
-import org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder;
 import org.opennms.netmgt.telemetry.protocols.nxos.adapter.proto.TelemetryBis;
 import org.opennms.netmgt.telemetry.protocols.nxos.adapter.proto.TelemetryBis.Telemetry;
 import org.slf4j.Logger;
@@ -130,9 +130,9 @@ public class NxosGpbAdapter extends AbstractScriptedCollectionAdapter {
             return Stream.empty();
         }
 
-        final ScriptedCollectionSetBuilder builder = getCollectionBuilder();
+        final CollectionSetGenerator builder = getCollectionBuilder();
         if (builder == null) {
-            LOG.error("Error compiling script '{}'. See logs for details.", this.getScript());
+            LOG.error("Error compiling script or mapping '{}'. See logs for details.", this.getScriptOrMapping());
             return Stream.empty();
         }
 
@@ -141,7 +141,7 @@ public class NxosGpbAdapter extends AbstractScriptedCollectionAdapter {
             return Stream.of(new CollectionSetWithAgent(agent, collectionSet));
 
         } catch (final ScriptException e) {
-            LOG.warn("Error while running script: {}: {}", getScript(), e);
+            LOG.warn("Error while running script or mapping: {}: {}", getScriptOrMapping(), e);
             return Stream.empty();
         }
     }
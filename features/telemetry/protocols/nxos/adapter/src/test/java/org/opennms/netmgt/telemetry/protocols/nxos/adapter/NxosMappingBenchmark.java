@@ -0,0 +1,80 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.nxos.adapter;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.netmgt.collection.api.CollectionAgent;
+import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetGenerator;
+import org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder;
+import org.opennms.netmgt.telemetry.protocols.collection.mapping.MappedCollectionSetBuilder;
+import org.opennms.netmgt.telemetry.protocols.nxos.adapter.proto.TelemetryBis;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to compare building collection sets from the captured
+ * NX-OS message with the shipped Groovy script and with the equivalent declarative mapping.
+ */
+public class NxosMappingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class NxosState {
+
+        @Param({"script", "mapping"})
+        public String builderType;
+
+        public CollectionAgent agent;
+        public CollectionSetGenerator builder;
+        public TelemetryBis.Telemetry msg;
+
+        @Setup
+        public void setup() throws Exception {
+            agent = mock(CollectionAgent.class);
+            when(agent.getNodeId()).thenReturn(1);
+            builder = "script".equals(builderType)
+                    ? new ScriptedCollectionSetBuilder(NxosMappingTest.SCRIPT)
+                    : new MappedCollectionSetBuilder(NxosMappingTest.MAPPING);
+            msg = NxosMappingTest.loadSample();
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void buildCollectionSet(NxosState state, Blackhole blackhole) throws Exception {
+        blackhole.consume(state.builder.build(state.agent, state.msg, state.msg.getMsgTimestamp()));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.nxos.adapter;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.collection.api.CollectionAgent;
+import org.opennms.netmgt.collection.api.CollectionSet;
+import org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder;
+import org.opennms.netmgt.telemetry.protocols.collection.mapping.MappedCollectionSetBuilder;
+import org.opennms.netmgt.telemetry.protocols.nxos.adapter.proto.TelemetryBis;
+
+import com.google.common.io.Resources;
+import com.google.protobuf.ExtensionRegistry;
+
+/**
+ * Verifies that the declarative mapping shipped for NX-OS builds the same
+ * collection sets as the shipped Groovy script.
+ */
+public class NxosMappingTest {
+
+    static final File SCRIPT = Paths.get("../../../../../opennms-base-assembly/src/main/filtered/etc/telemetryd-adapters/cisco-nxos-telemetry-interface.groovy").toFile();
+    static final File MAPPING = Paths.get("../../../../../opennms-base-assembly/src/main/filtered/etc/telemetryd-adapters/cisco-nxos-telemetry-interface.xml").toFile();
+
+    private CollectionAgent agent;
+    private ScriptedCollectionSetBuilder scriptBuilder;
+    private MappedCollectionSetBuilder mappingBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        agent = mock(CollectionAgent.class);
+        when(agent.getNodeId()).thenReturn(1);
+        scriptBuilder = new ScriptedCollectionSetBuilder(SCRIPT);
+        mappingBuilder = new MappedCollectionSetBuilder(MAPPING);
+    }
+
+    @Test
+    public void canMapSystemResources() throws Exception {
+        final TelemetryBis.Telemetry msg = loadSample();
+
+        final CollectionSet collectionSet = mappingBuilder.build(agent, msg, msg.getMsgTimestamp());
+        assertThat(collectionSet.toString(), containsString("name=load_avg_1min, value=1.25"));
+        assertThat(collectionSet.toString(), containsString("resourceTypeName=nxosCpu"));
+
+        assertEquivalent(scriptBuilder.build(agent, msg, msg.getMsgTimestamp()), collectionSet);
+    }
+
+    @Test
+    public void canMapInterfaceCounters() throws Exception {
+        final TelemetryBis.Telemetry msg = TelemetryBis.Telemetry.newBuilder()
+                .setNodeIdStr("nxos")
+                .setEncodingPath("sys/intf/phys-[eth1/1]/dbgIfHCIn")
+                .setMsgTimestamp(1510584402000L)
+                .addDataGpbkv(TelemetryBis.TelemetryField.newBuilder().setName("content")
+                        .addFields(TelemetryBis.TelemetryField.newBuilder().setName("ucastPkts").setUint64Value(10))
+                        .addFields(TelemetryBis.TelemetryField.newBuilder().setName("multicastPkts").setUint64Value(20))
+                        .addFields(TelemetryBis.TelemetryField.newBuilder().setName("broadcastPkts").setUint64Value(30))
+                        .addFields(TelemetryBis.TelemetryField.newBuilder().setName("octets").setUint64Value(40)))
+                .build();
+
+        final CollectionSet collectionSet = mappingBuilder.build(agent, msg, msg.getMsgTimestamp());
+        assertThat(collectionSet.toString(), containsString("instance=eth1-1"));
+        assertThat(collectionSet.toString(), containsString("group=nxos-intfHCIn, name=octetsIn, value=40"));
+
+        assertEquivalent(scriptBuilder.build(agent, msg, msg.getMsgTimestamp()), collectionSet);
+    }
+
+    static TelemetryBis.Telemetry loadSample() throws Exception {
+        final ExtensionRegistry registry = ExtensionRegistry.newInstance();
+        TelemetryBis.registerAllExtensions(registry);
+
+        final byte[] bytes = Resources.toByteArray(Resources.getResource("nxos-proto-buf.raw"));
+        return TelemetryBis.Telemetry.parseFrom(ByteBuffer.wrap(bytes, 6, bytes.length - 6), registry);
+    }
+
+    /**
+     * The script reads all values as doubles while the mapping keeps the
+     * type of the protobuf field, so the values are compared numerically.
+     */
+    private static void assertEquivalent(final CollectionSet expected, final CollectionSet actual) {
+        assertEquals(expected, actual);
+        assertEquals(normalize(expected.toString()), normalize(actual.toString()));
+    }
+
+    private static String normalize(final String collectionSet) {
+        return collectionSet.replaceAll("value=(-?\\d+)\\.0,", "value=$1,");
+    }
+}
@@ -38,8 +38,8 @@ import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLog;
 import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLogEntry;
 import org.opennms.netmgt.telemetry.config.api.AdapterDefinition;
 import org.opennms.netmgt.telemetry.protocols.collection.AbstractScriptedCollectionAdapter;
+import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetGenerator;
 import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetWithAgent;
-import org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionOperations;
@@ -154,16 +154,16 @@ public class OpenConfigAdapter extends AbstractScriptedCollectionAdapter {
     }
 
     private Stream<CollectionSetWithAgent> buildCollectionSet(CollectionAgent collectionAgent, Object response, long timeStamp) {
-        final ScriptedCollectionSetBuilder builder = getCollectionBuilder();
+        final CollectionSetGenerator builder = getCollectionBuilder();
         if (builder == null) {
-            LOG.error("Error compiling script '{}'. See logs for details.", this.getScript());
+            LOG.error("Error compiling script or mapping '{}'. See logs for details.", this.getScriptOrMapping());
             return Stream.empty();
         }
         try {
             final CollectionSet collectionSet = builder.build(collectionAgent, response, timeStamp);
             return Stream.of(new CollectionSetWithAgent(collectionAgent, collectionSet));
         } catch (final ScriptException e) {
-            LOG.warn("Error while running script: {}: {}", getScript(), e);
+            LOG.warn("Error while running script or mapping: {}: {}", getScriptOrMapping(), e);
             return Stream.empty();
         }
     }
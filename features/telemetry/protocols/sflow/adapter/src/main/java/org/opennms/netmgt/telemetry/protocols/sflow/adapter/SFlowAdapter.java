@@ -28,6 +28,7 @@ import static org.opennms.netmgt.telemetry.protocols.common.utils.BsonUtils.getD
 import static org.opennms.netmgt.telemetry.protocols.common.utils.BsonUtils.getString;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.bson.BsonDocument;
@@ -38,11 +39,32 @@ import org.opennms.netmgt.flows.processing.Pipeline;
 import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLogEntry;
 import org.opennms.netmgt.telemetry.config.api.AdapterDefinition;
 import org.opennms.netmgt.telemetry.protocols.flows.AbstractFlowAdapter;
+import org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage;
+import org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage;
+import org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Lists;
+import com.google.protobuf.InvalidProtocolBufferException;
 
-public class SFlowAdapter extends AbstractFlowAdapter<BsonDocument> {
+public class SFlowAdapter extends AbstractFlowAdapter<SFlowAdapter.Packet> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SFlowAdapter.class);
+
+    /**
+     * A received datagram, either as typed message or as BSON document if sent by a parser using the document transport.
+     */
+    static final class Packet {
+        private final SFlowMessage message;
+        private final BsonDocument document;
+
+        private Packet(final SFlowMessage message, final BsonDocument document) {
+            this.message = message;
+            this.document = document;
+        }
+    }
 
     public SFlowAdapter(final AdapterDefinition adapterConfig,
                         final MetricRegistry metricRegistry,
@@ -51,8 +73,18 @@ public class SFlowAdapter extends AbstractFlowAdapter<BsonDocument> {
     }
 
     @Override
-    protected BsonDocument parse(TelemetryMessageLogEntry message) {
-        return new RawBsonDocument(message.getByteArray());
+    protected Packet parse(TelemetryMessageLogEntry message) {
+        final byte[] bytes = message.getByteArray();
+        if (SFlowTransport.isDocument(bytes)) {
+            return new Packet(null, new RawBsonDocument(bytes));
+        }
+
+        try {
+            return new Packet(SFlowMessage.parseFrom(bytes), null);
+        } catch (InvalidProtocolBufferException e) {
+            LOG.error("Unable to parse message from proto", e);
+        }
+        return null;
     }
 
     private static RuntimeException invalidDocument() {
@@ -60,8 +92,19 @@ public class SFlowAdapter extends AbstractFlowAdapter<BsonDocument> {
     }
 
     @Override
-    public List<Flow> convert(final BsonDocument packet, final Instant receivedAt) {
-        return convertDocument(packet, receivedAt);
+    public List<Flow> convert(final Packet packet, final Instant receivedAt) {
+        if (packet.message != null) {
+            return convertMessage(packet.message, receivedAt);
+        }
+        return convertDocument(packet.document, receivedAt);
+    }
+
+    public static List<Flow> convertMessage(final SFlowMessage message, final Instant receivedAt) {
+        final List<Flow> result = new ArrayList<>(message.getFlowsCount());
+        for (final FlowMessage flow : message.getFlowsList()) {
+            result.add(new SFlowMessageFlow(flow, receivedAt));
+        }
+        return result;
     }
 
     public static List<Flow> convertDocument(final BsonDocument packet, final Instant receivedAt) {
@@ -0,0 +1,237 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.sflow.adapter;
+
+import static org.opennms.integration.api.v1.flows.Flow.Direction;
+import static org.opennms.integration.api.v1.flows.Flow.NetflowVersion;
+import static org.opennms.integration.api.v1.flows.Flow.SamplingAlgorithm;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.opennms.netmgt.flows.api.Flow;
+import org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage;
+
+import com.google.common.base.Strings;
+
+/**
+ * A flow sample received as {@link FlowMessage} in a typed sFlow message.
+ *
+ * Yields the same values as {@link SFlow} does for the document of the same sample.
+ */
+public class SFlowMessageFlow implements Flow {
+
+    // The document based flow never resolves the agent for a sample
+    private static final String UNKNOWN_NODE_IDENTIFIER = "unknown:unknown";
+
+    private final FlowMessage flowMessageProto;
+    private final Instant receivedAt;
+
+    public SFlowMessageFlow(final FlowMessage flowMessageProto, final Instant receivedAt) {
+        this.flowMessageProto = Objects.requireNonNull(flowMessageProto);
+        this.receivedAt = Objects.requireNonNull(receivedAt);
+    }
+
+    @Override
+    public Instant getReceivedAt() {
+        return this.receivedAt;
+    }
+
+    @Override
+    public Instant getTimestamp() {
+        return Instant.ofEpochMilli(flowMessageProto.getTimestamp());
+    }
+
+    @Override
+    public Long getBytes() {
+        return flowMessageProto.hasNumBytes() ? flowMessageProto.getNumBytes().getValue() : null;
+    }
+
+    @Override
+    public Direction getDirection() {
+        switch (flowMessageProto.getDirection()) {
+            case EGRESS:
+                return Direction.EGRESS;
+            default:
+                return Direction.INGRESS;
+        }
+    }
+
+    @Override
+    public String getDstAddr() {
+        return Strings.emptyToNull(flowMessageProto.getDstAddress());
+    }
+
+    @Override
+    public Optional<String> getDstAddrHostname() {
+        return Optional.ofNullable(Strings.emptyToNull(flowMessageProto.getDstHostname()));
+    }
+
+    @Override
+    public Long getDstAs() {
+        return flowMessageProto.hasDstAs() ? flowMessageProto.getDstAs().getValue() : null;
+    }
+
+    @Override
+    public Integer getDstMaskLen() {
+        return flowMessageProto.hasDstMaskLen() ? flowMessageProto.getDstMaskLen().getValue() : null;
+    }
+
+    @Override
+    public Integer getDstPort() {
+        return flowMessageProto.hasDstPort() ? flowMessageProto.getDstPort().getValue() : null;
+    }
+
+    @Override
+    public Integer getEngineId() {
+        return flowMessageProto.hasEngineId() ? flowMessageProto.getEngineId().getValue() : null;
+    }
+
+    @Override
+    public Integer getEngineType() {
+        return null;
+    }
+
+    @Override
+    public Instant getFirstSwitched() {
+        // As this flow represents a single packet, there is no "duration" of the flow
+        return this.getTimestamp();
+    }
+
+    @Override
+    public Instant getLastSwitched() {
+        return this.getTimestamp();
+    }
+
+    @Override
+    public Instant getDeltaSwitched() {
+        return this.getFirstSwitched();
+    }
+
+    @Override
+    public int getFlowRecords() {
+        return flowMessageProto.hasNumFlowRecords() ? flowMessageProto.getNumFlowRecords().getValue() : 0;
+    }
+
+    @Override
+    public long getFlowSeqNum() {
+        return flowMessageProto.hasFlowSeqNum() ? flowMessageProto.getFlowSeqNum().getValue() : 0L;
+    }
+
+    @Override
+    public Integer getInputSnmp() {
+        return flowMessageProto.hasInputSnmpIfindex() ? flowMessageProto.getInputSnmpIfindex().getValue() : null;
+    }
+
+    @Override
+    public Integer getOutputSnmp() {
+        return flowMessageProto.hasOutputSnmpIfindex() ? flowMessageProto.getOutputSnmpIfindex().getValue() : null;
+    }
+
+    @Override
+    public Integer getIpProtocolVersion() {
+        return flowMessageProto.hasIpProtocolVersion() ? flowMessageProto.getIpProtocolVersion().getValue() : null;
+    }
+
+    @Override
+    public String getNextHop() {
+        return Strings.emptyToNull(flowMessageProto.getNextHopAddress());
+    }
+
+    @Override
+    public Optional<String> getNextHopHostname() {
+        return Optional.ofNullable(Strings.emptyToNull(flowMessageProto.getNextHopHostname()));
+    }
+
+    @Override
+    public Long getPackets() {
+        return 1L;
+    }
+
+    @Override
+    public Integer getProtocol() {
+        return flowMessageProto.hasProtocol() ? flowMessageProto.getProtocol().getValue() : null;
+    }
+
+    @Override
+    public SamplingAlgorithm getSamplingAlgorithm() {
+        return SamplingAlgorithm.Unassigned;
+    }
+
+    @Override
+    public Double getSamplingInterval() {
+        return flowMessageProto.hasSamplingInterval() ? flowMessageProto.getSamplingInterval().getValue() : null;
+    }
+
+    @Override
+    public String getSrcAddr() {
+        return Strings.emptyToNull(flowMessageProto.getSrcAddress());
+    }
+
+    @Override
+    public Optional<String> getSrcAddrHostname() {
+        return Optional.ofNullable(Strings.emptyToNull(flowMessageProto.getSrcHostname()));
+    }
+
+    @Override
+    public Long getSrcAs() {
+        return flowMessageProto.hasSrcAs() ? flowMessageProto.getSrcAs().getValue() : null;
+    }
+
+    @Override
+    public Integer getSrcMaskLen() {
+        return flowMessageProto.hasSrcMaskLen() ? flowMessageProto.getSrcMaskLen().getValue() : null;
+    }
+
+    @Override
+    public Integer getSrcPort() {
+        return flowMessageProto.hasSrcPort() ? flowMessageProto.getSrcPort().getValue() : null;
+    }
+
+    @Override
+    public Integer getTcpFlags() {
+        return flowMessageProto.hasTcpFlags() ? flowMessageProto.getTcpFlags().getValue() : null;
+    }
+
+    @Override
+    public Integer getTos() {
+        return flowMessageProto.hasTos() ? flowMessageProto.getTos().getValue() : null;
+    }
+
+    @Override
+    public NetflowVersion getNetflowVersion() {
+        return NetflowVersion.SFLOW;
+    }
+
+    @Override
+    public Integer getVlan() {
+        return flowMessageProto.hasVlan() ? flowMessageProto.getVlan().getValue() : null;
+    }
+
+    @Override
+    public String getNodeIdentifier() {
+        return Strings.isNullOrEmpty(flowMessageProto.getNodeIdentifier())
+                ? UNKNOWN_NODE_IDENTIFIER
+                : flowMessageProto.getNodeIdentifier();
+    }
+}
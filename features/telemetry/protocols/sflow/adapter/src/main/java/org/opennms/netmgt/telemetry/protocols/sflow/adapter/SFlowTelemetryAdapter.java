@@ -42,12 +42,15 @@ import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLog;
 import org.opennms.netmgt.telemetry.api.adapter.TelemetryMessageLogEntry;
 import org.opennms.netmgt.telemetry.config.api.AdapterDefinition;
 import org.opennms.netmgt.telemetry.protocols.collection.AbstractScriptedCollectionAdapter;
+import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetGenerator;
 import org.opennms.netmgt.telemetry.protocols.collection.CollectionSetWithAgent;
-import org.opennms.netmgt.telemetry.protocols.collection.ScriptedCollectionSetBuilder;
+import org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.MetricRegistry;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 public class SFlowTelemetryAdapter extends AbstractScriptedCollectionAdapter {
 
@@ -68,7 +71,13 @@ public class SFlowTelemetryAdapter extends AbstractScriptedCollectionAdapter {
         LOG.debug("Received {} telemetry messages", messageLog.getMessageList().size());
 
         LOG.trace("Parsing packet: {}", message);
-        final BsonDocument document = new RawBsonDocument(message.getByteArray()).getDocument("data");
+        final BsonDocument document;
+        try {
+            document = parseCounters(message.getByteArray());
+        } catch (InvalidProtocolBufferException e) {
+            LOG.error("Unable to parse message from proto", e);
+            return Stream.empty();
+        }
         if (document == null) {
             return Stream.empty();
         }
@@ -96,9 +105,9 @@ public class SFlowTelemetryAdapter extends AbstractScriptedCollectionAdapter {
             LOG.warn("Unable to find node and interface for agent address: {}", address);
             return Stream.empty();
         }
-        final ScriptedCollectionSetBuilder builder = getCollectionBuilder();
+        final CollectionSetGenerator builder = getCollectionBuilder();
         if (builder == null) {
-            LOG.error("Error compiling script '{}'. See logs for details.", this.getScript());
+            LOG.error("Error compiling script or mapping '{}'. See logs for details.", this.getScriptOrMapping());
             return Stream.empty();
         }
 
@@ -126,6 +135,19 @@ public class SFlowTelemetryAdapter extends AbstractScriptedCollectionAdapter {
                 });
     }
 
+    private static BsonDocument parseCounters(final byte[] bytes) throws InvalidProtocolBufferException {
+        if (SFlowTransport.isDocument(bytes)) {
+            return new RawBsonDocument(bytes).getDocument("data");
+        }
+
+        // Typed messages carry the counter samples only, if any
+        final ByteString counters = SFlowTransport.parseCounters(bytes);
+        if (counters.isEmpty()) {
+            return null;
+        }
+        return new RawBsonDocument(counters.toByteArray()).getDocument("data");
+    }
+
     public void setCollectionAgentFactory(CollectionAgentFactory collectionAgentFactory) {
         this.collectionAgentFactory = collectionAgentFactory;
     }
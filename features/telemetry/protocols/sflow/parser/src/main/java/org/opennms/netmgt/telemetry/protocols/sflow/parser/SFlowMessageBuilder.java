@@ -0,0 +1,334 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.sflow.parser;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.io.BasicOutputBuffer;
+import org.opennms.netmgt.telemetry.protocols.netflow.transport.Direction;
+import org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.CountersSample;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.CountersSampleExpanded;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.ExtendedGateway;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.ExtendedRouter;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.ExtendedSwitch;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.FlowData;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.FlowRecord;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.FlowSample;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.FlowSampleExpanded;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.HeaderProtocol;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampleData;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampleDatagram;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampleDatagramV5;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampleRecord;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampledHeader;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampledIpv4;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampledIpv6;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.headers.Inet4Header;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.headers.Inet6Header;
+import org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DoubleValue;
+import com.google.protobuf.UInt32Value;
+import com.google.protobuf.UInt64Value;
+import com.google.protobuf.UnsafeByteOperations;
+
+/**
+ * Builds the typed {@link SFlowMessage} for a parsed datagram.
+ *
+ * The mapping of the flow samples follows what the document based {@code SFlow} in the adapter reads from the BSON
+ * document, so both transports yield the same flows. Counter samples are written as BSON in the very same layout the
+ * document transport uses, but without the flow samples.
+ */
+public final class SFlowMessageBuilder {
+
+    private static final long NO_INTERFACE = 0x3FFFFFFFL;
+
+    private SFlowMessageBuilder() {
+    }
+
+    public static SFlowMessage build(final SampleDatagram packet,
+                                     final SampleDatagramEnrichment enrichment,
+                                     final long timestamp) {
+        final SampleDatagramV5 datagram = packet.version.datagram;
+
+        final List<FlowMessage> flows = new ArrayList<>();
+        final List<SampleRecord> counters = new ArrayList<>();
+
+        for (final SampleRecord sampleRecord : datagram.samples) {
+            final SampleData data = sampleRecord.data.value;
+            if (data instanceof FlowSample) {
+                final FlowSample sample = (FlowSample) data;
+                buildFlow(sample.flow_records.values,
+                        sample.source_id.sflow_data_source,
+                        sample.sampling_rate,
+                        sample.input.iface,
+                        sample.output.iface,
+                        enrichment,
+                        timestamp).ifPresent(flows::add);
+            } else if (data instanceof FlowSampleExpanded) {
+                final FlowSampleExpanded sample = (FlowSampleExpanded) data;
+                buildFlow(sample.flow_records.values,
+                        sample.source_id.source_id_index,
+                        sample.sampling_rate,
+                        sample.input.value,
+                        sample.output.value,
+                        enrichment,
+                        timestamp).ifPresent(flows::add);
+            } else if (data instanceof CountersSample || data instanceof CountersSampleExpanded) {
+                counters.add(sampleRecord);
+            }
+        }
+
+        final SFlowMessage.Builder message = SFlowMessage.newBuilder()
+                .setTimestamp(timestamp)
+                .addAllFlows(flows);
+        if (!counters.isEmpty()) {
+            message.setCounters(writeCounters(datagram, counters, enrichment, timestamp));
+        }
+        return message.build();
+    }
+
+    private static ByteString writeCounters(final SampleDatagramV5 datagram,
+                                        final List<SampleRecord> counters,
+                                        final SampleDatagramEnrichment enrichment,
+                                        final long timestamp) {
+        final BasicOutputBuffer output = new BasicOutputBuffer();
+        try (final BsonBinaryWriter bsonWriter = new BsonBinaryWriter(output)) {
+            bsonWriter.writeStartDocument();
+            bsonWriter.writeInt64("time", timestamp);
+
+            bsonWriter.writeStartDocument("data");
+            bsonWriter.writeName("agent_address");
+            datagram.agent_address.writeBson(bsonWriter, enrichment);
+            bsonWriter.writeInt64("sub_agent_id", datagram.sub_agent_id);
+            bsonWriter.writeInt64("sequence_number", datagram.sequence_number);
+            bsonWriter.writeInt64("uptime", datagram.uptime);
+            bsonWriter.writeStartArray("samples");
+            for (final SampleRecord sampleRecord : counters) {
+                sampleRecord.writeBson(bsonWriter, enrichment);
+            }
+            bsonWriter.writeEndArray();
+            bsonWriter.writeEndDocument();
+
+            bsonWriter.writeEndDocument();
+        }
+        // The buffer is not used anymore, so there is no need to copy it
+        return UnsafeByteOperations.unsafeWrap(output.toByteArray());
+    }
+
+    private static Optional<FlowMessage> buildFlow(final List<FlowRecord> records,
+                                                   final long source,
+                                                   final long samplingRate,
+                                                   final long input,
+                                                   final long output,
+                                                   final SampleDatagramEnrichment enrichment,
+                                                   final long timestamp) {
+        SampledIpv4 sampledIpv4 = null;
+        SampledIpv6 sampledIpv6 = null;
+        SampledHeader sampledHeader = null;
+        ExtendedSwitch extendedSwitch = null;
+        ExtendedRouter extendedRouter = null;
+        ExtendedGateway extendedGateway = null;
+
+        // The first record of each format wins, as it does for lookups in the document
+        for (final FlowRecord flowRecord : records) {
+            final FlowData data = flowRecord.data.value;
+            if (data instanceof SampledIpv4 && sampledIpv4 == null) {
+                sampledIpv4 = (SampledIpv4) data;
+            } else if (data instanceof SampledIpv6 && sampledIpv6 == null) {
+                sampledIpv6 = (SampledIpv6) data;
+            } else if (data instanceof SampledHeader && sampledHeader == null) {
+                sampledHeader = (SampledHeader) data;
+            } else if (data instanceof ExtendedSwitch && extendedSwitch == null) {
+                extendedSwitch = (ExtendedSwitch) data;
+            } else if (data instanceof ExtendedRouter && extendedRouter == null) {
+                extendedRouter = (ExtendedRouter) data;
+            } else if (data instanceof ExtendedGateway && extendedGateway == null) {
+                extendedGateway = (ExtendedGateway) data;
+            }
+        }
+
+        // Ordered by precedence
+        final List<IpData> ips = new ArrayList<>(4);
+        if (sampledIpv4 != null) {
+            ips.add(new IpData(sampledIpv4));
+        }
+        if (sampledIpv6 != null) {
+            ips.add(new IpData(sampledIpv6));
+        }
+        if (sampledHeader != null && sampledHeader.inet4Header != null) {
+            ips.add(new IpData(sampledHeader.inet4Header));
+        }
+        if (sampledHeader != null && sampledHeader.inet6Header != null) {
+            ips.add(new IpData(sampledHeader.inet6Header));
+        }
+
+        if (ips.isEmpty()) {
+            // Handle only flows containing IP related records
+            return Optional.empty();
+        }
+
+        final FlowMessage.Builder flow = FlowMessage.newBuilder()
+                .setTimestamp(timestamp)
+                .setDirection(source != input ? Direction.EGRESS : Direction.INGRESS)
+                .setNumFlowRecords(uint32(records.size()))
+                .setSamplingInterval(DoubleValue.newBuilder().setValue(samplingRate).build());
+
+        first(ips, ip -> ip.length).ifPresent(v -> flow.setNumBytes(uint64(v)));
+        first(ips, ip -> ip.protocol).ifPresent(v -> flow.setProtocol(uint32(v)));
+        first(ips, ip -> ip.srcAddress).ifPresent(v -> flow.setSrcAddress(v.getHostAddress()));
+        first(ips, ip -> ip.dstAddress).ifPresent(v -> flow.setDstAddress(v.getHostAddress()));
+        first(ips, ip -> enrichment.getHostnameFor(ip.srcAddress).orElse(null)).ifPresent(flow::setSrcHostname);
+        first(ips, ip -> enrichment.getHostnameFor(ip.dstAddress).orElse(null)).ifPresent(flow::setDstHostname);
+        first(ips, ip -> ip.srcPort).ifPresent(v -> flow.setSrcPort(uint32(v)));
+        first(ips, ip -> ip.dstPort).ifPresent(v -> flow.setDstPort(uint32(v)));
+        first(ips, ip -> ip.tcpFlags).ifPresent(v -> flow.setTcpFlags(uint32(v)));
+        first(ips, ip -> ip.tos).ifPresent(v -> flow.setTos(uint32(v)));
+
+        if (sampledHeader != null && sampledHeader.protocol == HeaderProtocol.IPv4) {
+            flow.setIpProtocolVersion(uint32(4));
+        } else if (sampledHeader != null && sampledHeader.protocol == HeaderProtocol.IPv6) {
+            flow.setIpProtocolVersion(uint32(6));
+        } else if (sampledIpv4 != null) {
+            flow.setIpProtocolVersion(uint32(4));
+        } else if (sampledIpv6 != null) {
+            flow.setIpProtocolVersion(uint32(6));
+        }
+
+        if (input != NO_INTERFACE) {
+            flow.setInputSnmpIfindex(uint32((int) input));
+        }
+        if (output != NO_INTERFACE) {
+            flow.setOutputSnmpIfindex(uint32((int) output));
+        }
+
+        if (extendedSwitch != null) {
+            flow.setVlan(uint32((int) extendedSwitch.src_vlan));
+        } else if (sampledHeader != null && sampledHeader.ethernetHeader != null && sampledHeader.ethernetHeader.vlan != null) {
+            flow.setVlan(uint32(sampledHeader.ethernetHeader.vlan));
+        }
+
+        if (extendedRouter != null) {
+            flow.setSrcMaskLen(uint32((int) extendedRouter.src_mask_len));
+            flow.setDstMaskLen(uint32((int) extendedRouter.dst_mask_len));
+
+            final InetAddress nextHop = extendedRouter.nexthop.next_hop.ipV6 != null
+                    ? extendedRouter.nexthop.next_hop.ipV6.ip_v6
+                    : extendedRouter.nexthop.next_hop.ipV4 != null ? extendedRouter.nexthop.next_hop.ipV4.ip_v4 : null;
+            if (nextHop != null) {
+                flow.setNextHopAddress(nextHop.getHostAddress());
+                enrichment.getHostnameFor(nextHop).ifPresent(flow::setNextHopHostname);
+            }
+        }
+
+        if (extendedGateway != null) {
+            flow.setSrcAs(uint64(extendedGateway.src_as));
+        }
+
+        return Optional.of(flow.build());
+    }
+
+    private static <T> Optional<T> first(final List<IpData> ips, final Function<IpData, T> getter) {
+        for (final IpData ip : ips) {
+            final T value = getter.apply(ip);
+            if (value != null) {
+                return Optional.of(value);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static UInt32Value uint32(final int value) {
+        return UInt32Value.newBuilder().setValue(value).build();
+    }
+
+    private static UInt64Value uint64(final long value) {
+        return UInt64Value.newBuilder().setValue(value).build();
+    }
+
+    /**
+     * The IP related fields shared by the sampled IP records and the decoded packet headers.
+     *
+     * Values of the sampled IP records are truncated to int as they are for the document.
+     */
+    private static final class IpData {
+        private final Integer length;
+        private final Integer protocol;
+        private final InetAddress srcAddress;
+        private final InetAddress dstAddress;
+        private final Integer srcPort;
+        private final Integer dstPort;
+        private final Integer tcpFlags;
+        private final Integer tos;
+
+        private IpData(final SampledIpv4 ip) {
+            this.length = (int) ip.length;
+            this.protocol = (int) ip.protocol;
+            this.srcAddress = ip.src_ip.ip_v4;
+            this.dstAddress = ip.dst_ip.ip_v4;
+            this.srcPort = (int) ip.src_port;
+            this.dstPort = (int) ip.dst_port;
+            this.tcpFlags = (int) ip.tcp_flags;
+            this.tos = (int) ip.tos;
+        }
+
+        private IpData(final SampledIpv6 ip) {
+            this.length = (int) ip.length;
+            this.protocol = (int) ip.protocol;
+            this.srcAddress = ip.src_ip.ip_v6;
+            this.dstAddress = ip.dst_ip.ip_v6;
+            this.srcPort = (int) ip.src_port;
+            this.dstPort = (int) ip.dst_port;
+            this.tcpFlags = (int) ip.tcp_flags;
+            this.tos = (int) ip.tos;
+        }
+
+        private IpData(final Inet4Header header) {
+            this.length = header.totalLength;
+            this.protocol = header.protocol;
+            this.srcAddress = header.srcAddress;
+            this.dstAddress = header.dstAddress;
+            this.srcPort = header.srcPort;
+            this.dstPort = header.dstPort;
+            this.tcpFlags = header.tcpFlags;
+            this.tos = header.tos;
+        }
+
+        private IpData(final Inet6Header header) {
+            this.length = header.totalLength;
+            this.protocol = header.protocol;
+            this.srcAddress = header.srcAddress;
+            this.dstAddress = header.dstAddress;
+            this.srcPort = header.srcPort;
+            this.dstPort = header.dstPort;
+            this.tcpFlags = header.tcpFlags;
+            this.tos = header.tos;
+        }
+    }
+}
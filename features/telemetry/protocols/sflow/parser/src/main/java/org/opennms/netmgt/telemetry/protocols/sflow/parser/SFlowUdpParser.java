@@ -24,6 +24,7 @@ package org.opennms.netmgt.telemetry.protocols.sflow.parser;
 import static org.opennms.netmgt.telemetry.listeners.utils.BufferUtils.uint32;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -44,6 +45,7 @@ import org.opennms.netmgt.telemetry.api.receiver.TelemetryMessage;
 import org.opennms.netmgt.telemetry.listeners.UdpParser;
 import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.DatagramVersion;
 import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampleDatagram;
+import org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,6 +70,8 @@ public class SFlowUdpParser implements UdpParser, Dispatchable {
     private int threads = DEFAULT_NUM_THREADS;
 	
     private boolean dnsLookupsEnabled = true;
+
+    private boolean bsonTransport = false;
 	
     private ExecutorService executor;
 
@@ -122,21 +126,13 @@ public class SFlowUdpParser implements UdpParser, Dispatchable {
                 // if we can't keep up
                 final Runnable dispatch = () -> {
                     // Serialize
-                    final BasicOutputBuffer output = new BasicOutputBuffer();
-                    try (final BsonBinaryWriter bsonWriter = new BsonBinaryWriter(output)) {
-                        bsonWriter.writeStartDocument();
-
-                        bsonWriter.writeName("time");
-                        bsonWriter.writeInt64(System.currentTimeMillis());
-
-                        bsonWriter.writeName("data");
-                        packet.version.datagram.writeBson(bsonWriter, enrichment);
-
-                        bsonWriter.writeEndDocument();
-                    }
+                    final long timestamp = System.currentTimeMillis();
+                    final ByteBuffer serialized = bsonTransport
+                            ? serializeDocument(packet, enrichment, timestamp)
+                            : ByteBuffer.wrap(SFlowMessageBuilder.build(packet, enrichment, timestamp).toByteArray());
 
                     // Build the message to be sent
-                    final TelemetryMessage msg = new TelemetryMessage(remoteAddress, output.getByteBuffers().get(0).asNIO());
+                    final TelemetryMessage msg = new TelemetryMessage(remoteAddress, serialized);
                     dispatcher.send(msg).whenComplete((any, exx) -> {
                         if (exx != null) {
                             // Dispatching failed
@@ -159,6 +155,22 @@ public class SFlowUdpParser implements UdpParser, Dispatchable {
         return future;
     }
 
+    static ByteBuffer serializeDocument(final SampleDatagram packet, final SampleDatagramEnrichment enrichment, final long timestamp) {
+        final BasicOutputBuffer output = new BasicOutputBuffer();
+        try (final BsonBinaryWriter bsonWriter = new BsonBinaryWriter(output)) {
+            bsonWriter.writeStartDocument();
+
+            bsonWriter.writeName("time");
+            bsonWriter.writeInt64(timestamp);
+
+            bsonWriter.writeName("data");
+            packet.version.datagram.writeBson(bsonWriter, enrichment);
+
+            bsonWriter.writeEndDocument();
+        }
+        return output.getByteBuffers().get(0).asNIO();
+    }
+
     public boolean getDnsLookupsEnabled() {
         return dnsLookupsEnabled;
     }
@@ -167,6 +179,19 @@ public class SFlowUdpParser implements UdpParser, Dispatchable {
         this.dnsLookupsEnabled = dnsLookupsEnabled;
     }
 
+    public boolean getBsonTransport() {
+        return bsonTransport;
+    }
+
+    /**
+     * Forward datagrams as BSON documents instead of {@link SFlowMessage}s.
+     *
+     * Adapters accept both, this is only required for adapters which do not know about the typed transport yet.
+     */
+    public void setBsonTransport(boolean bsonTransport) {
+        this.bsonTransport = bsonTransport;
+    }
+
     @Override
     public String getName() {
         return name;
@@ -0,0 +1,140 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.sflow.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.opennms.netmgt.flows.api.Flow;
+import org.opennms.netmgt.telemetry.protocols.sflow.adapter.SFlowAdapter;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampleDatagram;
+import org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage;
+import org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowTransport;
+
+import com.google.protobuf.ByteString;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Checks that the typed transport yields the same flows and counters as the document transport.
+ */
+@RunWith(Parameterized.class)
+public class SFlowMessageBuilderTest implements SampleDatagramEnrichment {
+    private final static Path FOLDER = Paths.get("src/test/resources/flows");
+
+    @Parameterized.Parameters(name = "file: {0}")
+    public static Iterable<String> data() {
+        return Arrays.asList("sflow1.dat", "sflow2.dat", "sflow3.dat", "sflow4.dat");
+    }
+
+    private final String file;
+
+    public SFlowMessageBuilderTest(final String file) {
+        this.file = file;
+    }
+
+    @Test
+    public void testTransportsMatch() throws Exception {
+        final Instant receivedAt = Instant.now();
+        final long timestamp = receivedAt.toEpochMilli();
+
+        try (final FileChannel channel = FileChannel.open(FOLDER.resolve(this.file))) {
+            final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            channel.read(buffer);
+            buffer.flip();
+
+            final ByteBuf buf = Unpooled.wrappedBuffer(buffer);
+
+            do {
+                final SampleDatagram packet = new SampleDatagram(buf);
+
+                final byte[] document = toArray(SFlowUdpParser.serializeDocument(packet, this, timestamp));
+                final byte[] message = SFlowMessageBuilder.build(packet, this, timestamp).toByteArray();
+
+                assertTrue(SFlowTransport.isDocument(document));
+                assertFalse(SFlowTransport.isDocument(message));
+
+                final List<Flow> expected = SFlowAdapter.convertDocument(new RawBsonDocument(document), receivedAt);
+                final List<Flow> actual = SFlowAdapter.convertMessage(SFlowMessage.parseFrom(message), receivedAt);
+
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertFlowEquals(expected.get(i), actual.get(i));
+                }
+
+                final BsonDocument datagram = new RawBsonDocument(document).getDocument("data");
+                final List<BsonValue> counterSamples = datagram.getArray("samples").stream()
+                        .filter(sample -> "0:2".equals(sample.asDocument().getString("format").getValue())
+                                       || "0:4".equals(sample.asDocument().getString("format").getValue()))
+                        .collect(Collectors.toList());
+
+                final ByteString counters = SFlowTransport.parseCounters(message);
+                if (counterSamples.isEmpty()) {
+                    assertTrue(counters.isEmpty());
+                } else {
+                    final BsonDocument counterDatagram = new RawBsonDocument(counters.toByteArray()).getDocument("data");
+                    assertEquals(datagram.get("agent_address"), counterDatagram.get("agent_address"));
+                    assertEquals(counterSamples, counterDatagram.getArray("samples").getValues());
+                }
+            } while (buf.isReadable());
+        }
+    }
+
+    private static void assertFlowEquals(final Flow expected, final Flow actual) throws Exception {
+        for (final Method method : Flow.class.getMethods()) {
+            if (method.getParameterCount() == 0 && method.getName().startsWith("get")) {
+                assertEquals(method.getName(), method.invoke(expected), method.invoke(actual));
+            }
+        }
+    }
+
+    private static byte[] toArray(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public Optional<String> getHostnameFor(final InetAddress address) {
+        return Optional.of(address.getHostAddress().replace('.', '-').replace(':', '-') + ".example.com");
+    }
+}
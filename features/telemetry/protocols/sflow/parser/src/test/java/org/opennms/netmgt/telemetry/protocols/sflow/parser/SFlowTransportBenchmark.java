@@ -0,0 +1,126 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.sflow.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.bson.RawBsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.netmgt.flows.api.Flow;
+import org.opennms.netmgt.telemetry.protocols.sflow.adapter.SFlowAdapter;
+import org.opennms.netmgt.telemetry.protocols.sflow.parser.proto.flows.SampleDatagram;
+import org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to compare the document and the typed transport for the captured sFlow
+ * datagrams, from serializing the parsed datagram in the parser to reading the converted flows in the adapter.
+ */
+public class SFlowTransportBenchmark {
+
+    private static final SampleDatagramEnrichment ENRICHMENT = address -> Optional.empty();
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class DatagramState {
+
+        public List<SampleDatagram> datagrams;
+
+        @Setup
+        public void setup() throws Exception {
+            datagrams = new ArrayList<>();
+            for (final String file : new String[]{"sflow1.dat", "sflow2.dat", "sflow3.dat", "sflow4.dat"}) {
+                final Path path = Paths.get(Objects.requireNonNull(SFlowTransportBenchmark.class.getResource("/flows/" + file)).toURI());
+                final ByteBuf buffer = Unpooled.wrappedBuffer(Files.readAllBytes(path));
+                do {
+                    datagrams.add(new SampleDatagram(buffer));
+                } while (buffer.isReadable());
+            }
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void documentTransport(DatagramState state, Blackhole blackhole) {
+        final Instant receivedAt = Instant.now();
+        for (final SampleDatagram datagram : state.datagrams) {
+            final ByteBuffer serialized = SFlowUdpParser.serializeDocument(datagram, ENRICHMENT, receivedAt.toEpochMilli());
+            final byte[] bytes = new byte[serialized.remaining()];
+            serialized.get(bytes);
+
+            consume(SFlowAdapter.convertDocument(new RawBsonDocument(bytes), receivedAt), blackhole);
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void typedTransport(DatagramState state, Blackhole blackhole) throws Exception {
+        final Instant receivedAt = Instant.now();
+        for (final SampleDatagram datagram : state.datagrams) {
+            final byte[] bytes = SFlowMessageBuilder.build(datagram, ENRICHMENT, receivedAt.toEpochMilli()).toByteArray();
+
+            consume(SFlowAdapter.convertMessage(SFlowMessage.parseFrom(bytes), receivedAt), blackhole);
+        }
+    }
+
+    private static void consume(final List<Flow> flows, final Blackhole blackhole) {
+        // Touch what the pipeline reads from every flow
+        for (final Flow flow : flows) {
+            blackhole.consume(flow.getTimestamp());
+            blackhole.consume(flow.getBytes());
+            blackhole.consume(flow.getDirection());
+            blackhole.consume(flow.getSrcAddr());
+            blackhole.consume(flow.getDstAddr());
+            blackhole.consume(flow.getSrcPort());
+            blackhole.consume(flow.getDstPort());
+            blackhole.consume(flow.getProtocol());
+            blackhole.consume(flow.getInputSnmp());
+            blackhole.consume(flow.getOutputSnmp());
+            blackhole.consume(flow.getNextHop());
+            blackhole.consume(flow.getVlan());
+        }
+    }
+}
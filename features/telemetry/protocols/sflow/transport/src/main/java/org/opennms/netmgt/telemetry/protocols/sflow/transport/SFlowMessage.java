@@ -0,0 +1,1054 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+// Generated by the protocol buffer compiler.  DO NOT EDIT!
+// source: sflow.proto
+
+package org.opennms.netmgt.telemetry.protocols.sflow.transport;
+
+/**
+ * <pre>
+ * A single sFlow datagram as forwarded from the parser to the adapters.
+ *
+ * Fields are serialized in the order of their numbers, so the timestamp, which is always set by the parser, comes
+ * first. This allows to tell messages apart from the BSON documents written by parsers running in compatibility mode,
+ * see SFlowTransport.
+ * </pre>
+ *
+ * Protobuf type {@code SFlowMessage}
+ */
+public final class SFlowMessage extends
+    com.google.protobuf.GeneratedMessageV3 implements
+    // @@protoc_insertion_point(message_implements:SFlowMessage)
+    SFlowMessageOrBuilder {
+private static final long serialVersionUID = 0L;
+  // Use SFlowMessage.newBuilder() to construct.
+  private SFlowMessage(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+    super(builder);
+  }
+  private SFlowMessage() {
+    flows_ = java.util.Collections.emptyList();
+    counters_ = com.google.protobuf.ByteString.EMPTY;
+  }
+
+  @java.lang.Override
+  @SuppressWarnings({"unused"})
+  protected java.lang.Object newInstance(
+      UnusedPrivateParameter unused) {
+    return new SFlowMessage();
+  }
+
+  public static final com.google.protobuf.Descriptors.Descriptor
+      getDescriptor() {
+    return org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowProtos.internal_static_SFlowMessage_descriptor;
+  }
+
+  @java.lang.Override
+  protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internalGetFieldAccessorTable() {
+    return org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowProtos.internal_static_SFlowMessage_fieldAccessorTable
+        .ensureFieldAccessorsInitialized(
+            org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage.class, org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage.Builder.class);
+  }
+
+  public static final int TIMESTAMP_FIELD_NUMBER = 1;
+  private long timestamp_ = 0L;
+  /**
+   * <pre>
+   * Time the datagram was parsed in milliseconds.
+   * </pre>
+   *
+   * <code>uint64 timestamp = 1;</code>
+   * @return The timestamp.
+   */
+  @java.lang.Override
+  public long getTimestamp() {
+    return timestamp_;
+  }
+
+  public static final int FLOWS_FIELD_NUMBER = 2;
+  @SuppressWarnings("serial")
+  private java.util.List<org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage> flows_;
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  @java.lang.Override
+  public java.util.List<org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage> getFlowsList() {
+    return flows_;
+  }
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  @java.lang.Override
+  public java.util.List<? extends org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder> 
+      getFlowsOrBuilderList() {
+    return flows_;
+  }
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  @java.lang.Override
+  public int getFlowsCount() {
+    return flows_.size();
+  }
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  @java.lang.Override
+  public org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage getFlows(int index) {
+    return flows_.get(index);
+  }
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  @java.lang.Override
+  public org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder getFlowsOrBuilder(
+      int index) {
+    return flows_.get(index);
+  }
+
+  public static final int COUNTERS_FIELD_NUMBER = 3;
+  private com.google.protobuf.ByteString counters_ = com.google.protobuf.ByteString.EMPTY;
+  /**
+   * <pre>
+   * BSON document holding the datagram with its counter samples only, empty if there are none.
+   * </pre>
+   *
+   * <code>bytes counters = 3;</code>
+   * @return The counters.
+   */
+  @java.lang.Override
+  public com.google.protobuf.ByteString getCounters() {
+    return counters_;
+  }
+
+  private byte memoizedIsInitialized = -1;
+  @java.lang.Override
+  public final boolean isInitialized() {
+    byte isInitialized = memoizedIsInitialized;
+    if (isInitialized == 1) return true;
+    if (isInitialized == 0) return false;
+
+    memoizedIsInitialized = 1;
+    return true;
+  }
+
+  @java.lang.Override
+  public void writeTo(com.google.protobuf.CodedOutputStream output)
+                      throws java.io.IOException {
+    if (timestamp_ != 0L) {
+      output.writeUInt64(1, timestamp_);
+    }
+    for (int i = 0; i < flows_.size(); i++) {
+      output.writeMessage(2, flows_.get(i));
+    }
+    if (!counters_.isEmpty()) {
+      output.writeBytes(3, counters_);
+    }
+    getUnknownFields().writeTo(output);
+  }
+
+  @java.lang.Override
+  public int getSerializedSize() {
+    int size = memoizedSize;
+    if (size != -1) return size;
+
+    size = 0;
+    if (timestamp_ != 0L) {
+      size += com.google.protobuf.CodedOutputStream
+        .computeUInt64Size(1, timestamp_);
+    }
+    for (int i = 0; i < flows_.size(); i++) {
+      size += com.google.protobuf.CodedOutputStream
+        .computeMessageSize(2, flows_.get(i));
+    }
+    if (!counters_.isEmpty()) {
+      size += com.google.protobuf.CodedOutputStream
+        .computeBytesSize(3, counters_);
+    }
+    size += getUnknownFields().getSerializedSize();
+    memoizedSize = size;
+    return size;
+  }
+
+  @java.lang.Override
+  public boolean equals(final java.lang.Object obj) {
+    if (obj == this) {
+     return true;
+    }
+    if (!(obj instanceof org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage)) {
+      return super.equals(obj);
+    }
+    org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage other = (org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage) obj;
+
+    if (getTimestamp()
+        != other.getTimestamp()) return false;
+    if (!getFlowsList()
+        .equals(other.getFlowsList())) return false;
+    if (!getCounters()
+        .equals(other.getCounters())) return false;
+    if (!getUnknownFields().equals(other.getUnknownFields())) return false;
+    return true;
+  }
+
+  @java.lang.Override
+  public int hashCode() {
+    if (memoizedHashCode != 0) {
+      return memoizedHashCode;
+    }
+    int hash = 41;
+    hash = (19 * hash) + getDescriptor().hashCode();
+    hash = (37 * hash) + TIMESTAMP_FIELD_NUMBER;
+    hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+        getTimestamp());
+    if (getFlowsCount() > 0) {
+      hash = (37 * hash) + FLOWS_FIELD_NUMBER;
+      hash = (53 * hash) + getFlowsList().hashCode();
+    }
+    hash = (37 * hash) + COUNTERS_FIELD_NUMBER;
+    hash = (53 * hash) + getCounters().hashCode();
+    hash = (29 * hash) + getUnknownFields().hashCode();
+    memoizedHashCode = hash;
+    return hash;
+  }
+
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(
+      java.nio.ByteBuffer data)
+      throws com.google.protobuf.InvalidProtocolBufferException {
+    return PARSER.parseFrom(data);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(
+      java.nio.ByteBuffer data,
+      com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+      throws com.google.protobuf.InvalidProtocolBufferException {
+    return PARSER.parseFrom(data, extensionRegistry);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(
+      com.google.protobuf.ByteString data)
+      throws com.google.protobuf.InvalidProtocolBufferException {
+    return PARSER.parseFrom(data);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(
+      com.google.protobuf.ByteString data,
+      com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+      throws com.google.protobuf.InvalidProtocolBufferException {
+    return PARSER.parseFrom(data, extensionRegistry);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(byte[] data)
+      throws com.google.protobuf.InvalidProtocolBufferException {
+    return PARSER.parseFrom(data);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(
+      byte[] data,
+      com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+      throws com.google.protobuf.InvalidProtocolBufferException {
+    return PARSER.parseFrom(data, extensionRegistry);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(java.io.InputStream input)
+      throws java.io.IOException {
+    return com.google.protobuf.GeneratedMessageV3
+        .parseWithIOException(PARSER, input);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(
+      java.io.InputStream input,
+      com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+      throws java.io.IOException {
+    return com.google.protobuf.GeneratedMessageV3
+        .parseWithIOException(PARSER, input, extensionRegistry);
+  }
+
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseDelimitedFrom(java.io.InputStream input)
+      throws java.io.IOException {
+    return com.google.protobuf.GeneratedMessageV3
+        .parseDelimitedWithIOException(PARSER, input);
+  }
+
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseDelimitedFrom(
+      java.io.InputStream input,
+      com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+      throws java.io.IOException {
+    return com.google.protobuf.GeneratedMessageV3
+        .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(
+      com.google.protobuf.CodedInputStream input)
+      throws java.io.IOException {
+    return com.google.protobuf.GeneratedMessageV3
+        .parseWithIOException(PARSER, input);
+  }
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage parseFrom(
+      com.google.protobuf.CodedInputStream input,
+      com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+      throws java.io.IOException {
+    return com.google.protobuf.GeneratedMessageV3
+        .parseWithIOException(PARSER, input, extensionRegistry);
+  }
+
+  @java.lang.Override
+  public Builder newBuilderForType() { return newBuilder(); }
+  public static Builder newBuilder() {
+    return DEFAULT_INSTANCE.toBuilder();
+  }
+  public static Builder newBuilder(org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage prototype) {
+    return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+  }
+  @java.lang.Override
+  public Builder toBuilder() {
+    return this == DEFAULT_INSTANCE
+        ? new Builder() : new Builder().mergeFrom(this);
+  }
+
+  @java.lang.Override
+  protected Builder newBuilderForType(
+      com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+    Builder builder = new Builder(parent);
+    return builder;
+  }
+  /**
+   * <pre>
+   * A single sFlow datagram as forwarded from the parser to the adapters.
+   *
+   * Fields are serialized in the order of their numbers, so the timestamp, which is always set by the parser, comes
+   * first. This allows to tell messages apart from the BSON documents written by parsers running in compatibility mode,
+   * see SFlowTransport.
+   * </pre>
+   *
+   * Protobuf type {@code SFlowMessage}
+   */
+  public static final class Builder extends
+      com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+      // @@protoc_insertion_point(builder_implements:SFlowMessage)
+      org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessageOrBuilder {
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowProtos.internal_static_SFlowMessage_descriptor;
+    }
+
+    @java.lang.Override
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowProtos.internal_static_SFlowMessage_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage.class, org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage.Builder.class);
+    }
+
+    // Construct using org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage.newBuilder()
+    private Builder() {
+
+    }
+
+    private Builder(
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+      super(parent);
+
+    }
+    @java.lang.Override
+    public Builder clear() {
+      super.clear();
+      bitField0_ = 0;
+      timestamp_ = 0L;
+      if (flowsBuilder_ == null) {
+        flows_ = java.util.Collections.emptyList();
+      } else {
+        flows_ = null;
+        flowsBuilder_.clear();
+      }
+      bitField0_ = (bitField0_ & ~0x00000002);
+      counters_ = com.google.protobuf.ByteString.EMPTY;
+      return this;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Descriptors.Descriptor
+        getDescriptorForType() {
+      return org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowProtos.internal_static_SFlowMessage_descriptor;
+    }
+
+    @java.lang.Override
+    public org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage getDefaultInstanceForType() {
+      return org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage.getDefaultInstance();
+    }
+
+    @java.lang.Override
+    public org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage build() {
+      org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage result = buildPartial();
+      if (!result.isInitialized()) {
+        throw newUninitializedMessageException(result);
+      }
+      return result;
+    }
+
+    @java.lang.Override
+    public org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage buildPartial() {
+      org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage result = new org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage(this);
+      buildPartialRepeatedFields(result);
+      if (bitField0_ != 0) { buildPartial0(result); }
+      onBuilt();
+      return result;
+    }
+
+    private void buildPartialRepeatedFields(org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage result) {
+      if (flowsBuilder_ == null) {
+        if (((bitField0_ & 0x00000002) != 0)) {
+          flows_ = java.util.Collections.unmodifiableList(flows_);
+          bitField0_ = (bitField0_ & ~0x00000002);
+        }
+        result.flows_ = flows_;
+      } else {
+        result.flows_ = flowsBuilder_.build();
+      }
+    }
+
+    private void buildPartial0(org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage result) {
+      int from_bitField0_ = bitField0_;
+      if (((from_bitField0_ & 0x00000001) != 0)) {
+        result.timestamp_ = timestamp_;
+      }
+      if (((from_bitField0_ & 0x00000004) != 0)) {
+        result.counters_ = counters_;
+      }
+    }
+
+    @java.lang.Override
+    public Builder clone() {
+      return super.clone();
+    }
+    @java.lang.Override
+    public Builder setField(
+        com.google.protobuf.Descriptors.FieldDescriptor field,
+        java.lang.Object value) {
+      return super.setField(field, value);
+    }
+    @java.lang.Override
+    public Builder clearField(
+        com.google.protobuf.Descriptors.FieldDescriptor field) {
+      return super.clearField(field);
+    }
+    @java.lang.Override
+    public Builder clearOneof(
+        com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+      return super.clearOneof(oneof);
+    }
+    @java.lang.Override
+    public Builder setRepeatedField(
+        com.google.protobuf.Descriptors.FieldDescriptor field,
+        int index, java.lang.Object value) {
+      return super.setRepeatedField(field, index, value);
+    }
+    @java.lang.Override
+    public Builder addRepeatedField(
+        com.google.protobuf.Descriptors.FieldDescriptor field,
+        java.lang.Object value) {
+      return super.addRepeatedField(field, value);
+    }
+    @java.lang.Override
+    public Builder mergeFrom(com.google.protobuf.Message other) {
+      if (other instanceof org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage) {
+        return mergeFrom((org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage)other);
+      } else {
+        super.mergeFrom(other);
+        return this;
+      }
+    }
+
+    public Builder mergeFrom(org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage other) {
+      if (other == org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage.getDefaultInstance()) return this;
+      if (other.getTimestamp() != 0L) {
+        setTimestamp(other.getTimestamp());
+      }
+      if (flowsBuilder_ == null) {
+        if (!other.flows_.isEmpty()) {
+          if (flows_.isEmpty()) {
+            flows_ = other.flows_;
+            bitField0_ = (bitField0_ & ~0x00000002);
+          } else {
+            ensureFlowsIsMutable();
+            flows_.addAll(other.flows_);
+          }
+          onChanged();
+        }
+      } else {
+        if (!other.flows_.isEmpty()) {
+          if (flowsBuilder_.isEmpty()) {
+            flowsBuilder_.dispose();
+            flowsBuilder_ = null;
+            flows_ = other.flows_;
+            bitField0_ = (bitField0_ & ~0x00000002);
+            flowsBuilder_ = 
+              com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
+                 getFlowsFieldBuilder() : null;
+          } else {
+            flowsBuilder_.addAllMessages(other.flows_);
+          }
+        }
+      }
+      if (other.getCounters() != com.google.protobuf.ByteString.EMPTY) {
+        setCounters(other.getCounters());
+      }
+      this.mergeUnknownFields(other.getUnknownFields());
+      onChanged();
+      return this;
+    }
+
+    @java.lang.Override
+    public final boolean isInitialized() {
+      return true;
+    }
+
+    @java.lang.Override
+    public Builder mergeFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      if (extensionRegistry == null) {
+        throw new java.lang.NullPointerException();
+      }
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            case 8: {
+              timestamp_ = input.readUInt64();
+              bitField0_ |= 0x00000001;
+              break;
+            } // case 8
+            case 18: {
+              org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage m =
+                  input.readMessage(
+                      org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.parser(),
+                      extensionRegistry);
+              if (flowsBuilder_ == null) {
+                ensureFlowsIsMutable();
+                flows_.add(m);
+              } else {
+                flowsBuilder_.addMessage(m);
+              }
+              break;
+            } // case 18
+            case 26: {
+              counters_ = input.readBytes();
+              bitField0_ |= 0x00000004;
+              break;
+            } // case 26
+            default: {
+              if (!super.parseUnknownField(input, extensionRegistry, tag)) {
+                done = true; // was an endgroup tag
+              }
+              break;
+            } // default:
+          } // switch (tag)
+        } // while (!done)
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.unwrapIOException();
+      } finally {
+        onChanged();
+      } // finally
+      return this;
+    }
+    private int bitField0_;
+
+    private long timestamp_ ;
+    /**
+     * <pre>
+     * Time the datagram was parsed in milliseconds.
+     * </pre>
+     *
+     * <code>uint64 timestamp = 1;</code>
+     * @return The timestamp.
+     */
+    @java.lang.Override
+    public long getTimestamp() {
+      return timestamp_;
+    }
+    /**
+     * <pre>
+     * Time the datagram was parsed in milliseconds.
+     * </pre>
+     *
+     * <code>uint64 timestamp = 1;</code>
+     * @param value The timestamp to set.
+     * @return This builder for chaining.
+     */
+    public Builder setTimestamp(long value) {
+
+      timestamp_ = value;
+      bitField0_ |= 0x00000001;
+      onChanged();
+      return this;
+    }
+    /**
+     * <pre>
+     * Time the datagram was parsed in milliseconds.
+     * </pre>
+     *
+     * <code>uint64 timestamp = 1;</code>
+     * @return This builder for chaining.
+     */
+    public Builder clearTimestamp() {
+      bitField0_ = (bitField0_ & ~0x00000001);
+      timestamp_ = 0L;
+      onChanged();
+      return this;
+    }
+
+    private java.util.List<org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage> flows_ =
+      java.util.Collections.emptyList();
+    private void ensureFlowsIsMutable() {
+      if (!((bitField0_ & 0x00000002) != 0)) {
+        flows_ = new java.util.ArrayList<org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage>(flows_);
+        bitField0_ |= 0x00000002;
+       }
+    }
+
+    private com.google.protobuf.RepeatedFieldBuilderV3<
+        org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder> flowsBuilder_;
+
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public java.util.List<org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage> getFlowsList() {
+      if (flowsBuilder_ == null) {
+        return java.util.Collections.unmodifiableList(flows_);
+      } else {
+        return flowsBuilder_.getMessageList();
+      }
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public int getFlowsCount() {
+      if (flowsBuilder_ == null) {
+        return flows_.size();
+      } else {
+        return flowsBuilder_.getCount();
+      }
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage getFlows(int index) {
+      if (flowsBuilder_ == null) {
+        return flows_.get(index);
+      } else {
+        return flowsBuilder_.getMessage(index);
+      }
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder setFlows(
+        int index, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage value) {
+      if (flowsBuilder_ == null) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        ensureFlowsIsMutable();
+        flows_.set(index, value);
+        onChanged();
+      } else {
+        flowsBuilder_.setMessage(index, value);
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder setFlows(
+        int index, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder builderForValue) {
+      if (flowsBuilder_ == null) {
+        ensureFlowsIsMutable();
+        flows_.set(index, builderForValue.build());
+        onChanged();
+      } else {
+        flowsBuilder_.setMessage(index, builderForValue.build());
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder addFlows(org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage value) {
+      if (flowsBuilder_ == null) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        ensureFlowsIsMutable();
+        flows_.add(value);
+        onChanged();
+      } else {
+        flowsBuilder_.addMessage(value);
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder addFlows(
+        int index, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage value) {
+      if (flowsBuilder_ == null) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        ensureFlowsIsMutable();
+        flows_.add(index, value);
+        onChanged();
+      } else {
+        flowsBuilder_.addMessage(index, value);
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder addFlows(
+        org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder builderForValue) {
+      if (flowsBuilder_ == null) {
+        ensureFlowsIsMutable();
+        flows_.add(builderForValue.build());
+        onChanged();
+      } else {
+        flowsBuilder_.addMessage(builderForValue.build());
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder addFlows(
+        int index, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder builderForValue) {
+      if (flowsBuilder_ == null) {
+        ensureFlowsIsMutable();
+        flows_.add(index, builderForValue.build());
+        onChanged();
+      } else {
+        flowsBuilder_.addMessage(index, builderForValue.build());
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder addAllFlows(
+        java.lang.Iterable<? extends org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage> values) {
+      if (flowsBuilder_ == null) {
+        ensureFlowsIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, flows_);
+        onChanged();
+      } else {
+        flowsBuilder_.addAllMessages(values);
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder clearFlows() {
+      if (flowsBuilder_ == null) {
+        flows_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        onChanged();
+      } else {
+        flowsBuilder_.clear();
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public Builder removeFlows(int index) {
+      if (flowsBuilder_ == null) {
+        ensureFlowsIsMutable();
+        flows_.remove(index);
+        onChanged();
+      } else {
+        flowsBuilder_.remove(index);
+      }
+      return this;
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder getFlowsBuilder(
+        int index) {
+      return getFlowsFieldBuilder().getBuilder(index);
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder getFlowsOrBuilder(
+        int index) {
+      if (flowsBuilder_ == null) {
+        return flows_.get(index);  } else {
+        return flowsBuilder_.getMessageOrBuilder(index);
+      }
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public java.util.List<? extends org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder> 
+         getFlowsOrBuilderList() {
+      if (flowsBuilder_ != null) {
+        return flowsBuilder_.getMessageOrBuilderList();
+      } else {
+        return java.util.Collections.unmodifiableList(flows_);
+      }
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder addFlowsBuilder() {
+      return getFlowsFieldBuilder().addBuilder(
+          org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.getDefaultInstance());
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder addFlowsBuilder(
+        int index) {
+      return getFlowsFieldBuilder().addBuilder(
+          index, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.getDefaultInstance());
+    }
+    /**
+     * <pre>
+     * Flow samples carrying IP data, one message per sample.
+     * </pre>
+     *
+     * <code>repeated .FlowMessage flows = 2;</code>
+     */
+    public java.util.List<org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder> 
+         getFlowsBuilderList() {
+      return getFlowsFieldBuilder().getBuilderList();
+    }
+    private com.google.protobuf.RepeatedFieldBuilderV3<
+        org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder> 
+        getFlowsFieldBuilder() {
+      if (flowsBuilder_ == null) {
+        flowsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
+            org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage.Builder, org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder>(
+                flows_,
+                ((bitField0_ & 0x00000002) != 0),
+                getParentForChildren(),
+                isClean());
+        flows_ = null;
+      }
+      return flowsBuilder_;
+    }
+
+    private com.google.protobuf.ByteString counters_ = com.google.protobuf.ByteString.EMPTY;
+    /**
+     * <pre>
+     * BSON document holding the datagram with its counter samples only, empty if there are none.
+     * </pre>
+     *
+     * <code>bytes counters = 3;</code>
+     * @return The counters.
+     */
+    @java.lang.Override
+    public com.google.protobuf.ByteString getCounters() {
+      return counters_;
+    }
+    /**
+     * <pre>
+     * BSON document holding the datagram with its counter samples only, empty if there are none.
+     * </pre>
+     *
+     * <code>bytes counters = 3;</code>
+     * @param value The counters to set.
+     * @return This builder for chaining.
+     */
+    public Builder setCounters(com.google.protobuf.ByteString value) {
+      if (value == null) { throw new NullPointerException(); }
+      counters_ = value;
+      bitField0_ |= 0x00000004;
+      onChanged();
+      return this;
+    }
+    /**
+     * <pre>
+     * BSON document holding the datagram with its counter samples only, empty if there are none.
+     * </pre>
+     *
+     * <code>bytes counters = 3;</code>
+     * @return This builder for chaining.
+     */
+    public Builder clearCounters() {
+      bitField0_ = (bitField0_ & ~0x00000004);
+      counters_ = getDefaultInstance().getCounters();
+      onChanged();
+      return this;
+    }
+    @java.lang.Override
+    public final Builder setUnknownFields(
+        final com.google.protobuf.UnknownFieldSet unknownFields) {
+      return super.setUnknownFields(unknownFields);
+    }
+
+    @java.lang.Override
+    public final Builder mergeUnknownFields(
+        final com.google.protobuf.UnknownFieldSet unknownFields) {
+      return super.mergeUnknownFields(unknownFields);
+    }
+
+
+    // @@protoc_insertion_point(builder_scope:SFlowMessage)
+  }
+
+  // @@protoc_insertion_point(class_scope:SFlowMessage)
+  private static final org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage DEFAULT_INSTANCE;
+  static {
+    DEFAULT_INSTANCE = new org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage();
+  }
+
+  public static org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage getDefaultInstance() {
+    return DEFAULT_INSTANCE;
+  }
+
+  private static final com.google.protobuf.Parser<SFlowMessage>
+      PARSER = new com.google.protobuf.AbstractParser<SFlowMessage>() {
+    @java.lang.Override
+    public SFlowMessage parsePartialFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      Builder builder = newBuilder();
+      try {
+        builder.mergeFrom(input, extensionRegistry);
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(builder.buildPartial());
+      } catch (com.google.protobuf.UninitializedMessageException e) {
+        throw e.asInvalidProtocolBufferException().setUnfinishedMessage(builder.buildPartial());
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(e)
+            .setUnfinishedMessage(builder.buildPartial());
+      }
+      return builder.buildPartial();
+    }
+  };
+
+  public static com.google.protobuf.Parser<SFlowMessage> parser() {
+    return PARSER;
+  }
+
+  @java.lang.Override
+  public com.google.protobuf.Parser<SFlowMessage> getParserForType() {
+    return PARSER;
+  }
+
+  @java.lang.Override
+  public org.opennms.netmgt.telemetry.protocols.sflow.transport.SFlowMessage getDefaultInstanceForType() {
+    return DEFAULT_INSTANCE;
+  }
+
+}
+
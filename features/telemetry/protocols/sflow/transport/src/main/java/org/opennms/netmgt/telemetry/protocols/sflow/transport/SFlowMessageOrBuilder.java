@@ -0,0 +1,94 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+// Generated by the protocol buffer compiler.  DO NOT EDIT!
+// source: sflow.proto
+
+package org.opennms.netmgt.telemetry.protocols.sflow.transport;
+
+public interface SFlowMessageOrBuilder extends
+    // @@protoc_insertion_point(interface_extends:SFlowMessage)
+    com.google.protobuf.MessageOrBuilder {
+
+  /**
+   * <pre>
+   * Time the datagram was parsed in milliseconds.
+   * </pre>
+   *
+   * <code>uint64 timestamp = 1;</code>
+   * @return The timestamp.
+   */
+  long getTimestamp();
+
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  java.util.List<org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage> 
+      getFlowsList();
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage getFlows(int index);
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  int getFlowsCount();
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  java.util.List<? extends org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder> 
+      getFlowsOrBuilderList();
+  /**
+   * <pre>
+   * Flow samples carrying IP data, one message per sample.
+   * </pre>
+   *
+   * <code>repeated .FlowMessage flows = 2;</code>
+   */
+  org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessageOrBuilder getFlowsOrBuilder(
+      int index);
+
+  /**
+   * <pre>
+   * BSON document holding the datagram with its counter samples only, empty if there are none.
+   * </pre>
+   *
+   * <code>bytes counters = 3;</code>
+   * @return The counters.
+   */
+  com.google.protobuf.ByteString getCounters();
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+// Generated by the protocol buffer compiler.  DO NOT EDIT!
+// source: sflow.proto
+
+package org.opennms.netmgt.telemetry.protocols.sflow.transport;
+
+public final class SFlowProtos {
+  private SFlowProtos() {}
+  public static void registerAllExtensions(
+      com.google.protobuf.ExtensionRegistryLite registry) {
+  }
+
+  public static void registerAllExtensions(
+      com.google.protobuf.ExtensionRegistry registry) {
+    registerAllExtensions(
+        (com.google.protobuf.ExtensionRegistryLite) registry);
+  }
+  static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_SFlowMessage_descriptor;
+  static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_SFlowMessage_fieldAccessorTable;
+
+  public static com.google.protobuf.Descriptors.FileDescriptor
+      getDescriptor() {
+    return descriptor;
+  }
+  private static  com.google.protobuf.Descriptors.FileDescriptor
+      descriptor;
+  static {
+    java.lang.String[] descriptorData = {
+      "\n\013sflow.proto\032\rnetflow.proto\"P\n\014SFlowMes" +
+      "sage\022\021\n\ttimestamp\030\001 \001(\004\022\033\n\005flows\030\002 \003(\0132\014" +
+      ".FlowMessage\022\020\n\010counters\030\003 \001(\014BG\n6org.op" +
+      "ennms.netmgt.telemetry.protocols.sflow.t" +
+      "ransportB\013SFlowProtosP\001b\006proto3"
+    };
+    descriptor = com.google.protobuf.Descriptors.FileDescriptor
+      .internalBuildGeneratedFileFrom(descriptorData,
+        new com.google.protobuf.Descriptors.FileDescriptor[] {
+          org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowProtos.getDescriptor(),
+        });
+    internal_static_SFlowMessage_descriptor =
+      getDescriptor().getMessageTypes().get(0);
+    internal_static_SFlowMessage_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_SFlowMessage_descriptor,
+        new java.lang.String[] { "Timestamp", "Flows", "Counters", });
+    org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowProtos.getDescriptor();
+  }
+
+  // @@protoc_insertion_point(outer_class_scope)
+}
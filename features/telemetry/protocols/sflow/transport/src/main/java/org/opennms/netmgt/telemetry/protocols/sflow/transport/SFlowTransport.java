@@ -0,0 +1,85 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.sflow.transport;
+
+import java.io.IOException;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Helpers for handling the payload of sFlow telemetry messages, which is either an encoded {@link SFlowMessage} or a
+ * BSON document written by parsers running in compatibility mode.
+ */
+public final class SFlowTransport {
+
+    private static final int COUNTERS_TAG = SFlowMessage.COUNTERS_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    private SFlowTransport() {
+    }
+
+    /**
+     * Reads only the counters of an encoded {@link SFlowMessage} and skips over the flows.
+     */
+    public static ByteString parseCounters(final byte[] data) throws InvalidProtocolBufferException {
+        final CodedInputStream input = CodedInputStream.newInstance(data);
+
+        ByteString counters = ByteString.EMPTY;
+
+        try {
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                if (tag == COUNTERS_TAG) {
+                    counters = input.readBytes();
+                } else if (!input.skipField(tag)) {
+                    break;
+                }
+            }
+        } catch (final InvalidProtocolBufferException e) {
+            throw e;
+        } catch (final IOException e) {
+            throw new InvalidProtocolBufferException(e);
+        }
+
+        return counters;
+    }
+
+    /**
+     * Checks if the given message is a BSON document as written by parsers using the document transport.
+     *
+     * A BSON document starts with its total length as little-endian int32 and ends with a zero byte. An encoded
+     * {@link SFlowMessage} starts with the timestamp tag followed by its varint, which for any timestamp after
+     * 1970-01-01T00:35Z spans at least four bytes and therefore makes the first four bytes a negative int32.
+     */
+    public static boolean isDocument(final byte[] data) {
+        if (data.length < 5) {
+            return false;
+        }
+        final int length = (data[0] & 0xff)
+                | (data[1] & 0xff) << 8
+                | (data[2] & 0xff) << 16
+                | (data[3] & 0xff) << 24;
+        return length == data.length && data[data.length - 1] == 0;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.telemetry.protocols.sflow.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.opennms.netmgt.telemetry.protocols.netflow.transport.Direction;
+import org.opennms.netmgt.telemetry.protocols.netflow.transport.FlowMessage;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UInt64Value;
+
+public class SFlowTransportTest {
+
+    private static final long TIMESTAMP = 1_700_000_000_000L;
+
+    // Smallest possible BSON document: length 5, no elements, terminating zero
+    private static final ByteString EMPTY_DOCUMENT = ByteString.copyFrom(new byte[]{5, 0, 0, 0, 0});
+
+    @Test
+    public void testParseCounters() throws Exception {
+        final FlowMessage flow1 = FlowMessage.newBuilder()
+                .setTimestamp(TIMESTAMP)
+                .setSrcAddress("10.0.0.1")
+                .setDstAddress("10.0.0.2")
+                .setNumBytes(UInt64Value.newBuilder().setValue(1500).build())
+                .build();
+        final FlowMessage flow2 = FlowMessage.newBuilder()
+                .setTimestamp(TIMESTAMP)
+                .setDirection(Direction.EGRESS)
+                .build();
+
+        final byte[] bytes = SFlowMessage.newBuilder()
+                .setTimestamp(TIMESTAMP)
+                .addFlows(flow1)
+                .addFlows(flow2)
+                .setCounters(EMPTY_DOCUMENT)
+                .build()
+                .toByteArray();
+
+        assertEquals(EMPTY_DOCUMENT, SFlowTransport.parseCounters(bytes));
+    }
+
+    @Test
+    public void testParseWithoutCounters() throws Exception {
+        final byte[] bytes = SFlowMessage.newBuilder()
+                .setTimestamp(TIMESTAMP)
+                .build()
+                .toByteArray();
+
+        assertTrue(SFlowTransport.parseCounters(bytes).isEmpty());
+    }
+
+    @Test
+    public void testIsDocument() {
+        assertTrue(SFlowTransport.isDocument(EMPTY_DOCUMENT.toByteArray()));
+        assertFalse(SFlowTransport.isDocument(SFlowMessage.newBuilder()
+                .setTimestamp(TIMESTAMP)
+                .build()
+                .toByteArray()));
+        assertFalse(SFlowTransport.isDocument(SFlowMessage.newBuilder()
+                .setTimestamp(TIMESTAMP)
+                .setCounters(EMPTY_DOCUMENT)
+                .build()
+                .toByteArray()));
+    }
+}
@@ -21,26 +21,89 @@
  */
 package org.opennms.netmgt.topologies.service.api;
 
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 public class OnmsTopology {
 
-    private Set<OnmsTopologyVertex> m_vertices;
-    private Set<OnmsTopologyEdge> m_edges;
+    /**
+     * Set of topology refs indexed by id, so that lookups by id do not have to
+     * scan the whole topology. Refs are equal when their ids are equal, so the
+     * index is consistent with the set semantics.
+     */
+    private static final class IndexedRefSet<T extends OnmsTopologyAbstractRef> extends AbstractSet<T> {
+        private final Map<String, T> m_index = new LinkedHashMap<>();
+
+        private IndexedRefSet(Set<T> refs) {
+            if (refs != null) {
+                addAll(refs);
+            }
+        }
+
+        private T get(String id) {
+            return m_index.get(id);
+        }
+
+        @Override
+        public boolean add(T ref) {
+            if (m_index.containsKey(ref.getId())) {
+                return false;
+            }
+            m_index.put(ref.getId(), ref);
+            return true;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof OnmsTopologyAbstractRef)) {
+                return false;
+            }
+            return o.equals(m_index.get(((OnmsTopologyAbstractRef) o).getId()));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            m_index.remove(((OnmsTopologyAbstractRef) o).getId());
+            return true;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return m_index.values().iterator();
+        }
+
+        @Override
+        public int size() {
+            return m_index.size();
+        }
+
+        @Override
+        public void clear() {
+            m_index.clear();
+        }
+    }
+
+    private IndexedRefSet<OnmsTopologyVertex> m_vertices;
+    private IndexedRefSet<OnmsTopologyEdge> m_edges;
     private OnmsTopologyVertex m_defaultVertex;
 
     public OnmsTopology() {
-        m_vertices = new HashSet<OnmsTopologyVertex>();
-        m_edges = new HashSet<OnmsTopologyEdge>();
+        m_vertices = new IndexedRefSet<OnmsTopologyVertex>(null);
+        m_edges = new IndexedRefSet<OnmsTopologyEdge>(null);
     }
 
     public OnmsTopologyVertex getVertex(String id) {
-        return m_vertices.stream().filter(vertex -> id.equals(vertex.getId())).findAny().orElse(null);
+        return m_vertices.get(id);
     }
 
     public OnmsTopologyEdge getEdge(String id) {
-        return m_edges.stream().filter(edge -> id.equals(edge.getId())).findAny().orElse(null);
+        return m_edges.get(id);
     }
 
     public Set<OnmsTopologyVertex> getVertices() {
@@ -52,7 +115,7 @@ public class OnmsTopology {
     }
 
     public void setVertices(Set<OnmsTopologyVertex> vertices) {
-        m_vertices = vertices;
+        m_vertices = new IndexedRefSet<>(vertices);
     }
 
     public Set<OnmsTopologyEdge> getEdges() {
@@ -64,7 +127,7 @@ public class OnmsTopology {
     }
 
     public void setEdges(Set<OnmsTopologyEdge> edges) {
-        m_edges = edges;
+        m_edges = new IndexedRefSet<>(edges);
     }    
 
     public boolean hasVertex(String id) {
@@ -77,8 +140,8 @@ public class OnmsTopology {
     
     public OnmsTopology clone() {
         OnmsTopology topo = new OnmsTopology();
-        topo.setVertices(new HashSet<>(m_vertices));
-        topo.setEdges(new HashSet<>(m_edges));
+        topo.setVertices(m_vertices);
+        topo.setEdges(m_edges);
         topo.setDefaultVertex(m_defaultVertex);
         return topo;
     }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.topologies.service.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OnmsTopologyTest {
+
+    @Test
+    public void testLookupById() {
+        OnmsTopology topology = new OnmsTopology();
+        OnmsTopologyVertex v1 = OnmsTopologyVertex.create("1", "node1", "10.0.0.1", "default");
+        OnmsTopologyVertex v2 = OnmsTopologyVertex.create("2", "node2", "10.0.0.2", "default");
+        topology.getVertices().add(v1);
+        topology.addVertex(v2);
+        OnmsTopologyEdge edge = OnmsTopologyEdge.create("1|2",
+                OnmsTopologyPort.create("p1", v1, 1),
+                OnmsTopologyPort.create("p2", v2, 2));
+        topology.getEdges().add(edge);
+
+        assertSame(v1, topology.getVertex("1"));
+        assertSame(v2, topology.getVertex("2"));
+        assertSame(edge, topology.getEdge("1|2"));
+        assertNull(topology.getVertex("3"));
+        assertFalse(topology.hasEdge("2|1"));
+
+        // adding a vertex with an existing id keeps the first one, like a HashSet does
+        assertFalse(topology.getVertices().add(OnmsTopologyVertex.create("1", "other", "10.0.0.3", "default")));
+        assertSame(v1, topology.getVertex("1"));
+
+        assertTrue(topology.getVertices().remove(v1));
+        assertFalse(topology.hasVertex("1"));
+        assertEquals(1, topology.getVertices().size());
+    }
+
+    @Test
+    public void testCloneIsIndependent() {
+        OnmsTopology topology = new OnmsTopology();
+        topology.addVertex(OnmsTopologyVertex.create("1", "node1", "10.0.0.1", "default"));
+
+        OnmsTopology clone = topology.clone();
+        clone.addVertex(OnmsTopologyVertex.create("2", "node2", "10.0.0.2", "default"));
+        clone.getVertices().removeIf(v -> "1".equals(v.getId()));
+
+        assertTrue(topology.hasVertex("1"));
+        assertFalse(topology.hasVertex("2"));
+        assertFalse(clone.hasVertex("1"));
+        assertTrue(clone.hasVertex("2"));
+    }
+}
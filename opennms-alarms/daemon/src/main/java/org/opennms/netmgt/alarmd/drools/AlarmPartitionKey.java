@@ -0,0 +1,109 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.alarmd.drools;
+
+import java.util.Locale;
+import java.util.Objects;
+
+import org.opennms.netmgt.model.OnmsAlarm;
+
+/**
+ * Used to route the alarms to one of the partitioned Drools sessions.
+ *
+ * Alarms which share a key are always routed to the same session. Resolutions are keyed
+ * using their clear key, so that they land in the same session as the problems they clear.
+ *
+ * @see DroolsAlarmContext#setPartitions(int)
+ */
+public enum AlarmPartitionKey {
+    /**
+     * Route by node id, alarms without a node are routed by reduction key.
+     */
+    NODE {
+        @Override
+        protected Object getKey(OnmsAlarm alarm) {
+            return alarm.getNodeId();
+        }
+    },
+    /**
+     * Route by reduction key.
+     */
+    REDUCTION_KEY {
+        @Override
+        protected Object getKey(OnmsAlarm alarm) {
+            return null;
+        }
+    },
+    /**
+     * Route by the location of the node, or by the location of the system that created the alarm
+     * when the alarm is not associated with a node.
+     */
+    LOCATION {
+        @Override
+        protected Object getKey(OnmsAlarm alarm) {
+            if (alarm.getNode() != null && alarm.getNode().getLocation() != null) {
+                return alarm.getNode().getLocation().getLocationName();
+            } else if (alarm.getDistPoller() != null) {
+                return alarm.getDistPoller().getLocation();
+            }
+            return null;
+        }
+    };
+
+    /**
+     * @return the key for the given alarm, or null if the alarm should be routed by reduction key
+     */
+    protected abstract Object getKey(OnmsAlarm alarm);
+
+    /**
+     * Determines the partition in which the given alarm should be handled.
+     *
+     * @param alarm the alarm
+     * @param numPartitions the number of partitions
+     * @return the index of the partition, in [0, numPartitions)
+     */
+    public int getPartition(OnmsAlarm alarm, int numPartitions) {
+        Object key = getKey(alarm);
+        if (key == null) {
+            key = getReductionKey(alarm);
+        }
+        return Math.floorMod(Objects.hashCode(key), numPartitions);
+    }
+
+    private static String getReductionKey(OnmsAlarm alarm) {
+        if (alarm.getAlarmType() != null && alarm.getAlarmType() == OnmsAlarm.RESOLUTION_TYPE && alarm.getClearKey() != null) {
+            return alarm.getClearKey();
+        }
+        return alarm.getReductionKey();
+    }
+
+    /**
+     * Parses the given name, i.e. "node", "reduction-key" or "location".
+     *
+     * @param name name of the key
+     * @return the matching key
+     * @throws IllegalArgumentException if no key matches the given name
+     */
+    public static AlarmPartitionKey fromName(String name) {
+        return AlarmPartitionKey.valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -26,6 +26,8 @@ import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -36,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -67,6 +70,7 @@ import org.springframework.transaction.support.TransactionTemplate;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
 import com.swrve.ratelimitedlogger.RateLimitedLog;
@@ -78,6 +82,11 @@ import com.swrve.ratelimitedlogger.RateLimitedLog;
  *
  * Atomic actions are used to update facts in working memory.
  *
+ * When partitioning is enabled, the alarms are routed to one of several independent sessions
+ * using the configured {@link AlarmPartitionKey}, and the rules are fired in parallel. The session
+ * managed by this context is then used as the global session: it sees all the facts, but only loads
+ * the global rules, i.e. the rules which need to correlate alarms across partitions.
+ *
  * @author jwhite
  */
 public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLifecycleListener {
@@ -92,6 +101,24 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
     private static final long MAX_NUM_ACTIONS_IN_FLIGHT = SystemProperties.getLong(
             "org.opennms.netmgt.alarmd.drools.max_num_actions_in_flight", 5000);
 
+    /**
+     * Number of partitioned sessions, partitioning is disabled when less than 2
+     */
+    private static final int NUM_PARTITIONS = SystemProperties.getInteger(
+            "org.opennms.netmgt.alarmd.drools.partitions", 0);
+
+    /**
+     * Key used to route the alarms to the partitioned sessions: node, reduction-key or location
+     */
+    private static final String PARTITION_KEY = System.getProperty(
+            "org.opennms.netmgt.alarmd.drools.partition_key", "node");
+
+    /**
+     * Comma separated names of the rules files which are only loaded in the global session
+     */
+    private static final String GLOBAL_RULES = System.getProperty(
+            "org.opennms.netmgt.alarmd.drools.global_rules", "situations.drl");
+
     @Autowired
     private AlarmService alarmService;
 
@@ -122,15 +149,33 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
     private final AtomicLong numSituationsFromLastSnapshot = new AtomicLong(-1);
     private final Meter atomicActionsDropped = new Meter();
     private final Meter atomicActionsQueued = new Meter();
+    private final Timer atomicActionWaitTime = new Timer();
+
+    private int numPartitions = NUM_PARTITIONS;
+    private AlarmPartitionKey partitionKey = AlarmPartitionKey.fromName(PARTITION_KEY);
+    private Set<String> globalRules = Arrays.stream(GLOBAL_RULES.split(","))
+            .map(String::trim)
+            .filter(name -> !name.isEmpty())
+            .collect(Collectors.toSet());
+    private volatile List<DroolsAlarmContext> partitionContexts = Collections.emptyList();
+    private final Map<Integer, DroolsAlarmContext> partitionContextsByAlarmId = new ConcurrentHashMap<>();
+    private boolean seedOnStart = true;
 
     public DroolsAlarmContext() {
         this(getDefaultRulesFolder());
     }
 
     public DroolsAlarmContext(File rulesFolder) {
-        super(rulesFolder, Alarmd.NAME, "DroolsAlarmContext");
+        this(rulesFolder, Alarmd.NAME);
+    }
+
+    private DroolsAlarmContext(File rulesFolder, String kbaseName) {
+        super(rulesFolder, kbaseName, "DroolsAlarmContext");
         setOnNewKiewSessionCallback(kieSession -> {
-            kieSession.setGlobal("alarmService", alarmService);
+            // The global session may not load any of the rules which use the alarm service
+            if (isGlobalDeclared(kieSession, "alarmService")) {
+                kieSession.setGlobal("alarmService", alarmService);
+            }
             kieSession.insert(alarmTicketerService);
 
             // Rebuild the fact handle maps
@@ -166,6 +211,71 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
         getMetrics().register("numSituationsFromLastSnapshot", (Gauge<Long>) numSituationsFromLastSnapshot::get);
         getMetrics().register("atomicActionsDropped", atomicActionsDropped);
         getMetrics().register("atomicActionsQueued", atomicActionsQueued);
+        getMetrics().register("atomicActionWaitTime", atomicActionWaitTime);
+    }
+
+    private static boolean isGlobalDeclared(KieSession kieSession, String identifier) {
+        return kieSession.getKieBase().getKiePackages().stream()
+                .flatMap(kiePackage -> kiePackage.getGlobalVariables().stream())
+                .anyMatch(global -> identifier.equals(global.getName()));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (numPartitions > 1 && partitionContexts.isEmpty()) {
+            startPartitions();
+        }
+        super.start();
+    }
+
+    private void startPartitions() {
+        LOG.info("Partitioning alarms by {} across {} sessions. Global rules: {}", partitionKey, numPartitions, globalRules);
+        final Set<String> globalRulesFiles = new HashSet<>(globalRules);
+        setRulesFilter(file -> globalRulesFiles.contains(file.getName()));
+
+        final List<DroolsAlarmContext> contexts = new ArrayList<>(numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            final DroolsAlarmContext partition = new DroolsAlarmContext(getRulesFolder(), Alarmd.NAME + "-partition-" + i);
+            partition.setRulesFilter(file -> !globalRulesFiles.contains(file.getName()));
+            partition.setUsePseudoClock(isUsePseudoClock());
+            partition.setUseManualTick(isUseManualTick());
+            partition.setAlarmService(alarmService);
+            partition.setAcknowledgmentDao(acknowledgmentDao);
+            partition.setAlarmTicketerService(alarmTicketerService);
+            partition.setTransactionTemplate(template);
+            partition.setAlarmDao(alarmDao);
+            // The alarms are routed to the partitions when seeding the global session
+            partition.seedOnStart = false;
+            partition.start();
+            contexts.add(partition);
+        }
+        partitionContexts = Collections.unmodifiableList(contexts);
+    }
+
+    @Override
+    public synchronized void reload() {
+        for (DroolsAlarmContext partition : partitionContexts) {
+            partition.reload();
+        }
+        super.reload();
+    }
+
+    @Override
+    public void tick() {
+        for (DroolsAlarmContext partition : partitionContexts) {
+            partition.tick();
+        }
+        super.tick();
+    }
+
+    @Override
+    public synchronized void stop() {
+        for (DroolsAlarmContext partition : partitionContexts) {
+            partition.stop();
+        }
+        partitionContexts = Collections.emptyList();
+        partitionContextsByAlarmId.clear();
+        super.stop();
     }
 
     public static File getDefaultRulesFolder() {
@@ -174,6 +284,9 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
 
     @Override
     public void onStart() {
+        if (!seedOnStart) {
+            return;
+        }
         final Thread seedThread = new Thread(() -> {
             // Seed the engine with the current set of alarms asynchronously
             // We do this async since we don't want to block the whole system from starting up
@@ -204,6 +317,9 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
     public void preHandleAlarmSnapshot() {
         // Start tracking alarm callbacks via the state tracker
         stateTracker.startTrackingAlarms();
+        for (DroolsAlarmContext partition : partitionContexts) {
+            partition.preHandleAlarmSnapshot();
+        }
     }
 
     /**
@@ -240,7 +356,7 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
             atomicAction.execute(getKieSession());
         } else {
             // Submit the action for execution
-            // Track the number of atomic actions waiting to be executed
+            // Track the number of atomic actions waiting to be executed, and how long they wait
             final long numActionsInFlight = atomicActionsInFlight.incrementAndGet();
             if (numActionsInFlight > MAX_NUM_ACTIONS_IN_FLIGHT) {
                 RATE_LIMITED_LOGGER.error("Dropping action - number of actions in flight exceed {}! " +
@@ -249,7 +365,9 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
                 atomicActionsInFlight.decrementAndGet();
                 return;
             }
+            final Timer.Context ctx = atomicActionWaitTime.time();
             getKieSession().submit(kieSession -> {
+                ctx.stop();
                 atomicAction.execute(kieSession);
                 atomicActionsInFlight.decrementAndGet();
             });
@@ -265,9 +383,6 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
         }
 
         LOG.debug("Handling snapshot for {} alarms.", alarms.size());
-        final Map<Integer, OnmsAlarm> alarmsInDbById = alarms.stream()
-                .filter(a -> a.getId() != null)
-                .collect(Collectors.toMap(OnmsAlarm::getId, a -> a));
 
         // Eagerly initialize the alarms
         for (OnmsAlarm alarm : alarms) {
@@ -277,6 +392,17 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
         // Retrieve the acks from the database for the set of the alarms we've been given
         final Map<Integer, OnmsAcknowledgment> acksByRefId = fetchAcks(alarms);
 
+        if (!partitionContexts.isEmpty()) {
+            handleAlarmSnapshotForPartitions(alarms, acksByRefId);
+        }
+        handleAlarmSnapshot(alarms, acksByRefId);
+    }
+
+    private void handleAlarmSnapshot(List<OnmsAlarm> alarms, Map<Integer, OnmsAcknowledgment> acksByRefId) {
+        final Map<Integer, OnmsAlarm> alarmsInDbById = alarms.stream()
+                .filter(a -> a.getId() != null)
+                .collect(Collectors.toMap(OnmsAlarm::getId, a -> a));
+
         // Track some stats
         final long numSituations = alarms.stream().filter(OnmsAlarm::isSituation).count();
         numAlarmsFromLastSnapshot.set(alarms.size() - numSituations);
@@ -350,9 +476,35 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
         });
     }
 
+    private void handleAlarmSnapshotForPartitions(List<OnmsAlarm> alarms, Map<Integer, OnmsAcknowledgment> acksByRefId) {
+        final List<DroolsAlarmContext> partitions = partitionContexts;
+        final List<List<OnmsAlarm>> alarmsByPartition = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            alarmsByPartition.add(new ArrayList<>());
+        }
+        final Set<Integer> alarmIds = new HashSet<>();
+        for (OnmsAlarm alarm : alarms) {
+            if (alarm.getId() == null) {
+                continue;
+            }
+            final int partition = partitionKey.getPartition(alarm, partitions.size());
+            alarmsByPartition.get(partition).add(alarm);
+            partitionContextsByAlarmId.put(alarm.getId(), partitions.get(partition));
+            alarmIds.add(alarm.getId());
+        }
+        // Alarms which are no longer in the snapshot will be removed from their partition
+        partitionContextsByAlarmId.keySet().retainAll(alarmIds);
+
+        for (int i = 0; i < partitions.size(); i++) {
+            partitions.get(i).handleAlarmSnapshot(alarmsByPartition.get(i), acksByRefId);
+        }
+    }
+
     @Override
     public void postHandleAlarmSnapshot() {
-        // pass
+        for (DroolsAlarmContext partition : partitionContexts) {
+            partition.postHandleAlarmSnapshot();
+        }
     }
 
     /**
@@ -378,9 +530,24 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
 
         // Retrieve the acks from the database for the set of the alarms we've been given
         final Map<Integer, OnmsAcknowledgment> acksByRefId = fetchAcks(Collections.singletonList(alarm));
+        final OnmsAcknowledgment ack = acksByRefId.get(alarm.getId());
+
+        final List<DroolsAlarmContext> partitions = partitionContexts;
+        if (!partitions.isEmpty()) {
+            final DroolsAlarmContext partition = partitions.get(partitionKey.getPartition(alarm, partitions.size()));
+            final DroolsAlarmContext previousPartition = partitionContextsByAlarmId.put(alarm.getId(), partition);
+            if (previousPartition != null && previousPartition != partition) {
+                // The key of the alarm changed, i.e. the node was moved to another location
+                previousPartition.handleDeletedAlarm(alarm.getId(), alarm.getReductionKey());
+            }
+            partition.handleNewOrUpdatedAlarm(alarm, ack);
+        }
+        handleNewOrUpdatedAlarm(alarm, ack);
+    }
 
+    private void handleNewOrUpdatedAlarm(OnmsAlarm alarm, OnmsAcknowledgment ack) {
         executeAtomicallyWhenTransactionComplete(kieSession -> {
-            handleNewOrUpdatedAlarmForAtomic(kieSession, alarm, acksByRefId.get(alarm.getId()));
+            handleNewOrUpdatedAlarmForAtomic(kieSession, alarm, ack);
             stateTracker.trackNewOrUpdatedAlarm(alarm.getId(), alarm.getReductionKey());
         });
     }
@@ -528,6 +695,17 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
             return;
         }
 
+        final List<DroolsAlarmContext> partitions = partitionContexts;
+        if (!partitions.isEmpty()) {
+            final DroolsAlarmContext partition = partitionContextsByAlarmId.remove(alarmId);
+            if (partition != null) {
+                partition.handleDeletedAlarm(alarmId, reductionKey);
+            } else {
+                // We don't know where the alarm was routed to, the partitions without it will ignore the delete
+                partitions.forEach(p -> p.handleDeletedAlarm(alarmId, reductionKey));
+            }
+        }
+
         executeAtomicallyWhenTransactionComplete(kieSession -> {
             handleDeletedAlarmForAtomic(kieSession, alarmId, reductionKey);
             stateTracker.trackDeletedAlarm(alarmId, reductionKey);
@@ -582,6 +760,23 @@ public class DroolsAlarmContext extends ManagedDroolsContext implements AlarmLif
         seedSubmittedLatch.await();
     }
 
+    public void setPartitions(int numPartitions) {
+        this.numPartitions = numPartitions;
+    }
+
+    public void setPartitionKey(AlarmPartitionKey partitionKey) {
+        this.partitionKey = Objects.requireNonNull(partitionKey);
+    }
+
+    public void setGlobalRules(Set<String> globalRules) {
+        this.globalRules = Objects.requireNonNull(globalRules);
+    }
+
+    @VisibleForTesting
+    List<DroolsAlarmContext> getPartitionContexts() {
+        return partitionContexts;
+    }
+
     public void setTransactionTemplate(TransactionTemplate template) {
         this.template = template;
     }
@@ -36,6 +36,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.drools.core.ClockType;
@@ -107,6 +108,8 @@ public class ManagedDroolsContext {
 
     private Consumer<KieSession> onNewKiewSessionCallback;
 
+    private Predicate<File> rulesFilter = file -> true;
+
     private JmxReporter metricsReporter;
     private java.util.Timer livenessTimer;
     private Timer livenessTimerMetric;
@@ -300,7 +303,9 @@ public class ManagedDroolsContext {
 
         final List<File> rulesFiles;
         try {
-            rulesFiles = getRulesFiles();
+            rulesFiles = getRulesFiles().stream()
+                    .filter(rulesFilter)
+                    .collect(Collectors.toList());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -396,10 +401,27 @@ public class ManagedDroolsContext {
         this.usePseudoClock = usePseudoClock;
     }
 
+    public boolean isUseManualTick() {
+        return useManualTick;
+    }
+
     public void setUseManualTick(boolean useManualTick) {
         this.useManualTick = useManualTick;
     }
 
+    public File getRulesFolder() {
+        return rulesFolder;
+    }
+
+    /**
+     * Used to restrict the set of rules files from the rules folder which are loaded in the session.
+     *
+     * @param rulesFilter predicate which returns true for the files that should be loaded
+     */
+    public void setRulesFilter(Predicate<File> rulesFilter) {
+        this.rulesFilter = Objects.requireNonNull(rulesFilter);
+    }
+
     public void setOnNewKiewSessionCallback(Consumer<KieSession> onNewKiewSessionCallback) {
         this.onNewKiewSessionCallback = onNewKiewSessionCallback;
     }
@@ -0,0 +1,124 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.alarmd.drools;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.opennms.netmgt.model.OnmsAlarm;
+import org.opennms.netmgt.model.OnmsMonitoringSystem;
+import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.model.monitoringLocations.OnmsMonitoringLocation;
+
+public class AlarmPartitionKeyTest {
+
+    @Test
+    public void canParseNames() {
+        assertThat(AlarmPartitionKey.fromName("node"), equalTo(AlarmPartitionKey.NODE));
+        assertThat(AlarmPartitionKey.fromName(" reduction-key"), equalTo(AlarmPartitionKey.REDUCTION_KEY));
+        assertThat(AlarmPartitionKey.fromName("LOCATION"), equalTo(AlarmPartitionKey.LOCATION));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotParseInvalidNames() {
+        AlarmPartitionKey.fromName("uei");
+    }
+
+    @Test
+    public void canRouteByNode() {
+        final Set<Integer> partitions = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            final int partition = AlarmPartitionKey.NODE.getPartition(alarm("n1:oops:" + i, node(1, "Default")), 8);
+            partitions.add(partition);
+        }
+        // All the alarms for the same node are in the same partition
+        assertThat(partitions.size(), equalTo(1));
+
+        // Alarms for different nodes are spread across the partitions
+        partitions.clear();
+        for (int i = 0; i < 100; i++) {
+            partitions.add(AlarmPartitionKey.NODE.getPartition(alarm("oops", node(i, "Default")), 8));
+        }
+        assertThat(partitions.size(), equalTo(8));
+    }
+
+    @Test
+    public void canRouteResolutionsWithProblems() {
+        final OnmsAlarm trigger = alarm("uei.opennms.org/nodes/nodeDown::1", null);
+        final OnmsAlarm clear = alarm("uei.opennms.org/nodes/nodeUp::1", null);
+        clear.setAlarmType(OnmsAlarm.RESOLUTION_TYPE);
+        clear.setClearKey(trigger.getReductionKey());
+
+        for (AlarmPartitionKey key : AlarmPartitionKey.values()) {
+            for (int numPartitions = 1; numPartitions < 32; numPartitions++) {
+                assertThat(key.getPartition(clear, numPartitions), equalTo(key.getPartition(trigger, numPartitions)));
+            }
+        }
+    }
+
+    @Test
+    public void canRouteByLocation() {
+        final Set<Integer> partitions = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            partitions.add(AlarmPartitionKey.LOCATION.getPartition(alarm("oops:" + i, node(i, "Ottawa")), 8));
+        }
+        assertThat(partitions.size(), equalTo(1));
+
+        // Alarms without nodes use the location of the system that created them
+        final OnmsAlarm alarm = alarm("oops", null);
+        final OnmsMonitoringSystem minion = new OnmsMonitoringSystem();
+        minion.setLocation("Ottawa");
+        alarm.setDistPoller(minion);
+        assertThat(AlarmPartitionKey.LOCATION.getPartition(alarm, 8), equalTo(partitions.iterator().next()));
+    }
+
+    @Test
+    public void canRouteAlarmsWithoutKeys() {
+        final Set<Integer> partitions = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            final int partition = AlarmPartitionKey.NODE.getPartition(alarm("oops:" + i, null), 8);
+            assertThat(partition, equalTo(AlarmPartitionKey.REDUCTION_KEY.getPartition(alarm("oops:" + i, null), 8)));
+            partitions.add(partition);
+        }
+        assertThat(partitions.size(), greaterThan(1));
+    }
+
+    private static OnmsNode node(int id, String location) {
+        final OnmsNode node = new OnmsNode();
+        node.setId(id);
+        node.setLocation(new OnmsMonitoringLocation(location, location));
+        return node;
+    }
+
+    private static OnmsAlarm alarm(String reductionKey, OnmsNode node) {
+        final OnmsAlarm alarm = new OnmsAlarm();
+        alarm.setAlarmType(OnmsAlarm.PROBLEM_TYPE);
+        alarm.setReductionKey(reductionKey);
+        alarm.setNode(node);
+        return alarm;
+    }
+}
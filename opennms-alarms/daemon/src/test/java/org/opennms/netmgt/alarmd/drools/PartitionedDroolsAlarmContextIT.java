@@ -0,0 +1,186 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.alarmd.drools;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.opennms.netmgt.alarmd.AlarmMatchers.hasSeverity;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kie.api.runtime.KieSession;
+import org.opennms.core.test.OpenNMSJUnit4ClassRunner;
+import org.opennms.netmgt.dao.api.AcknowledgmentDao;
+import org.opennms.netmgt.dao.api.AlarmDao;
+import org.opennms.netmgt.dao.mock.MockTransactionTemplate;
+import org.opennms.netmgt.dao.support.AlarmEntityNotifierImpl;
+import org.opennms.netmgt.events.api.EventForwarder;
+import org.opennms.netmgt.model.OnmsAlarm;
+import org.opennms.netmgt.model.OnmsNode;
+import org.opennms.netmgt.model.OnmsSeverity;
+import org.opennms.test.JUnitConfigurationEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Verifies that the alarms are routed to the partitioned sessions, and that
+ * the default rules still apply when partitioning is enabled.
+ */
+@RunWith(OpenNMSJUnit4ClassRunner.class)
+@ContextConfiguration(locations={
+        "classpath:/META-INF/opennms/emptyContext.xml"
+})
+@JUnitConfigurationEnvironment
+public class PartitionedDroolsAlarmContextIT {
+    private static final int NUM_PARTITIONS = 4;
+
+    private DroolsAlarmContext dac;
+    private AlarmDao alarmDao;
+
+    @Before
+    public void setUp() throws InterruptedException, IOException {
+        dac = new DroolsAlarmContext(AlarmdTestUtil.enableDisabledRules());
+        dac.setUsePseudoClock(true);
+        dac.setUseManualTick(true);
+        dac.setPartitions(NUM_PARTITIONS);
+        dac.setPartitionKey(AlarmPartitionKey.NODE);
+        dac.setAlarmTicketerService(mock(AlarmTicketerService.class));
+
+        MockTransactionTemplate transactionTemplate = new MockTransactionTemplate();
+        transactionTemplate.afterPropertiesSet();
+        dac.setTransactionTemplate(transactionTemplate);
+
+        alarmDao = mock(AlarmDao.class);
+        when(alarmDao.findAll()).thenReturn(Collections.emptyList());
+        dac.setAlarmDao(alarmDao);
+
+        DefaultAlarmService alarmService = new DefaultAlarmService();
+        alarmService.setAlarmDao(alarmDao);
+
+        AcknowledgmentDao acknowledgmentDao = mock(AcknowledgmentDao.class);
+        when(acknowledgmentDao.findLatestAckForRefId(any(Integer.class))).thenReturn(Optional.empty());
+        alarmService.setAcknowledgmentDao(acknowledgmentDao);
+        alarmService.setEventForwarder(mock(EventForwarder.class));
+        alarmService.setAlarmEntityNotifier(mock(AlarmEntityNotifierImpl.class));
+        dac.setAlarmService(alarmService);
+        dac.setAcknowledgmentDao(acknowledgmentDao);
+
+        dac.start();
+
+        // Wait
+        dac.waitForInitialSeedToBeSubmitted();
+    }
+
+    @After
+    public void tearDown() {
+        if (dac != null) {
+            dac.stop();
+        }
+    }
+
+    @Test
+    public void canRouteAlarmsByNode() {
+        assertThat(dac.getPartitionContexts(), hasSize(NUM_PARTITIONS));
+
+        for (int i = 1; i <= 20; i++) {
+            dac.handleNewOrUpdatedAlarm(createAlarm(i, i % 10, "n" + i + ":oops"));
+        }
+        dac.tick();
+
+        // Every alarm is in the global session, and in exactly one of the partitions
+        assertThat(getAlarms(dac.getKieSession()), hasSize(20));
+        int numAlarmsInPartitions = 0;
+        for (int i = 0; i < NUM_PARTITIONS; i++) {
+            final DroolsAlarmContext partition = dac.getPartitionContexts().get(i);
+            for (Object alarm : getAlarms(partition.getKieSession())) {
+                assertThat(AlarmPartitionKey.NODE.getPartition((OnmsAlarm) alarm, NUM_PARTITIONS), equalTo(i));
+                numAlarmsInPartitions++;
+            }
+        }
+        assertThat(numAlarmsInPartitions, equalTo(20));
+
+        // Deleting the alarm removes it from its partition
+        dac.handleDeletedAlarm(1, "n1:oops");
+        dac.tick();
+        assertThat(getAlarms(dac.getKieSession()), hasSize(19));
+        assertThat(dac.getPartitionContexts().stream()
+                .mapToInt(partition -> getAlarms(partition.getKieSession()).size())
+                .sum(), equalTo(19));
+    }
+
+    @Test
+    public void canClearAlarmInPartition() {
+        OnmsAlarm trigger = createAlarm(1, 1, "n1:oops");
+        when(alarmDao.get(trigger.getId())).thenReturn(trigger);
+        advanceTime(100, TimeUnit.MILLISECONDS);
+        dac.handleNewOrUpdatedAlarm(trigger);
+        dac.tick();
+
+        OnmsAlarm clear = createAlarm(2, 1, "clear:n1:oops");
+        clear.setAlarmType(2);
+        clear.setSeverity(OnmsSeverity.CLEARED);
+        clear.setClearKey("n1:oops");
+        clear.setLastEventTime(new Date(101));
+        when(alarmDao.get(clear.getId())).thenReturn(clear);
+        advanceTime(101, TimeUnit.MILLISECONDS);
+        dac.handleNewOrUpdatedAlarm(clear);
+        dac.tick();
+
+        assertThat(trigger, hasSeverity(OnmsSeverity.CLEARED));
+    }
+
+    private void advanceTime(long amount, TimeUnit unit) {
+        dac.getClock().advanceTime(amount, unit);
+        dac.getPartitionContexts().forEach(partition -> partition.getClock().advanceTime(amount, unit));
+    }
+
+    private static Collection<? extends Object> getAlarms(KieSession kieSession) {
+        return kieSession.getObjects(o -> o instanceof OnmsAlarm);
+    }
+
+    private static OnmsAlarm createAlarm(int id, int nodeId, String reductionKey) {
+        final OnmsNode node = new OnmsNode();
+        node.setId(nodeId);
+        node.setLabel("n" + nodeId);
+
+        final OnmsAlarm alarm = new OnmsAlarm();
+        alarm.setId(id);
+        alarm.setNode(node);
+        alarm.setAlarmType(1);
+        alarm.setSeverity(OnmsSeverity.WARNING);
+        alarm.setReductionKey(reductionKey);
+        alarm.setLastEventTime(new Date(100));
+        return alarm;
+    }
+}
@@ -110,6 +110,34 @@ public class TrapdConfiguration implements  Serializable {
 	@XmlAttribute(name="batch-interval", required=false)
     private int _batchInterval = 500;
 
+    /**
+     * Identical traps received within this interval (ms) are collapsed
+     * into a single event carrying a count parameter. 0 disables it.
+     */
+	@XmlAttribute(name="dedup-window", required=false)
+    private int _dedupWindow = 0;
+
+    /**
+     * Comma separated list of varbind positions (starting at 1) which
+     * must also match for two traps to be considered identical.
+     */
+	@XmlAttribute(name="dedup-varbinds", required=false)
+    private String _dedupVarbinds;
+
+    /**
+     * Maximum sustained number of traps per second accepted from
+     * a single agent. 0 disables it.
+     */
+	@XmlAttribute(name="rate-limit", required=false)
+    private int _rateLimit = 0;
+
+    /**
+     * Number of traps an agent may send in a burst before the
+     * rate limit applies. Defaults to the rate limit.
+     */
+	@XmlAttribute(name="rate-limit-burst", required=false)
+    private int _rateLimitBurst = 0;
+
     /**
      * keeps track of state for field: _newSuspectOnTrap
      */
@@ -202,7 +230,8 @@ public class TrapdConfiguration implements  Serializable {
 
     public int hashCode() {
         return Objects.hash(_snmpTrapAddress, _snmpTrapPort, _has_snmpTrapPort, _newSuspectOnTrap, _snmpv3UserList,
-                _includeRawMessage, _threads, _queueSize, _batchSize, _batchInterval, _useAddessFromVarbind);
+                _includeRawMessage, _threads, _queueSize, _batchSize, _batchInterval, _useAddessFromVarbind,
+                _dedupWindow, _dedupVarbinds, _rateLimit, _rateLimitBurst);
     }
 
     @Override()
@@ -222,7 +251,11 @@ public class TrapdConfiguration implements  Serializable {
                     && Objects.equals(_queueSize, other._queueSize)
                     && Objects.equals(_batchSize, other._batchSize)
                     && Objects.equals(_batchInterval, other._batchInterval)
-                    && Objects.equals(_useAddessFromVarbind, other._useAddessFromVarbind);
+                    && Objects.equals(_useAddessFromVarbind, other._useAddessFromVarbind)
+                    && Objects.equals(_dedupWindow, other._dedupWindow)
+                    && Objects.equals(_dedupVarbinds, other._dedupVarbinds)
+                    && Objects.equals(_rateLimit, other._rateLimit)
+                    && Objects.equals(_rateLimitBurst, other._rateLimitBurst);
             return equals;
         }
         return false;
@@ -551,4 +584,36 @@ public class TrapdConfiguration implements  Serializable {
     public void setBatchInterval(int _batchInterval) {
         this._batchInterval = _batchInterval;
     }
+
+    public int getDedupWindow() {
+        return _dedupWindow;
+    }
+
+    public void setDedupWindow(int _dedupWindow) {
+        this._dedupWindow = _dedupWindow;
+    }
+
+    public String getDedupVarbinds() {
+        return _dedupVarbinds;
+    }
+
+    public void setDedupVarbinds(String _dedupVarbinds) {
+        this._dedupVarbinds = _dedupVarbinds;
+    }
+
+    public int getRateLimit() {
+        return _rateLimit;
+    }
+
+    public void setRateLimit(int _rateLimit) {
+        this._rateLimit = _rateLimit;
+    }
+
+    public int getRateLimitBurst() {
+        return _rateLimitBurst;
+    }
+
+    public void setRateLimitBurst(int _rateLimitBurst) {
+        this._rateLimitBurst = _rateLimitBurst;
+    }
 }
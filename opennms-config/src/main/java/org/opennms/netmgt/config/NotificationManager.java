@@ -79,6 +79,45 @@ public abstract class NotificationManager {
 
     private static final EventDatetimeFormatter FORMATTER = EventConstants.getEventDatetimeFormatter();
 
+    private static final String INSERT_NOTICE_SQL = "INSERT INTO notifications (" +
+            "textmsg, numericmsg, notifyid, pagetime, nodeid, interfaceid, serviceid, eventid, " +
+            "eventuei, subject, queueID, notifConfigName) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * A notice that is ready to be inserted into the notifications table.
+     *
+     * @see NotificationManager#insertNotices(Collection)
+     */
+    public static class Notice {
+        private final int m_noticeId;
+        private final Map<String, String> m_params;
+        private final String m_queueId;
+        private final Notification m_notification;
+
+        public Notice(final int noticeId, final Map<String, String> params, final String queueId, final Notification notification) {
+            m_noticeId = noticeId;
+            m_params = params;
+            m_queueId = queueId;
+            m_notification = notification;
+        }
+
+        public int getNoticeId() {
+            return m_noticeId;
+        }
+
+        public Map<String, String> getParams() {
+            return m_params;
+        }
+
+        public String getQueueId() {
+            return m_queueId;
+        }
+
+        public Notification getNotification() {
+            return m_notification;
+        }
+    }
+
     /**
      * Object containing all Notification objects parsed from the xml file
      */
@@ -579,7 +618,7 @@ public abstract class NotificationManager {
                 } else if (matchList[i].equals("interfaceid")) {
                     statement.setString(offset++, event.getInterface());
                 } else if (matchList[i].equals("serviceid")) {
-                    statement.setInt(offset++, getServiceId(event.getService()));
+                    statement.setInt(offset++, getServiceId(connection, event.getService()));
                 } else if (matchList[i].startsWith("parm[")) {
                     // Ignore
                 } else {
@@ -852,74 +891,112 @@ public abstract class NotificationManager {
         try {
             connection = getConnection();
             d.watch(connection);
-            final PreparedStatement statement = connection.prepareStatement("INSERT INTO notifications (" +
-                    "textmsg, numericmsg, notifyid, pagetime, nodeid, interfaceid, serviceid, eventid, " +
-                    "eventuei, subject, queueID, notifConfigName) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            final PreparedStatement statement = connection.prepareStatement(INSERT_NOTICE_SQL);
             d.watch(statement);
+            setNoticeParameters(connection, statement, notifyId, params, queueID, notification);
+            statement.executeUpdate();
+        } finally {
+            d.cleanUp();
+        }
+    }
 
-            // notifications textMsg field
-            statement.setString(1, params.get(NotificationManager.PARAM_TEXT_MSG));
-    
-            // notifications numericMsg field
-            String numMsg = params.get(NotificationManager.PARAM_NUM_MSG);
-            if (numMsg != null && numMsg.length() > 256) {
-                LOG.warn("numericmsg too long, it will be truncated");
-                numMsg = numMsg.substring(0, 256);
+    /**
+     * Inserts the given notices as a single batch, using one connection and transaction.
+     * Either all of the notices are inserted, or none of them are.
+     *
+     * @param notices the notices to insert
+     * @throws java.sql.SQLException if any.
+     */
+    public void insertNotices(final Collection<Notice> notices) throws SQLException {
+        if (notices.isEmpty()) {
+            return;
+        }
+        Connection connection = null;
+        final DBUtils d = new DBUtils(getClass());
+        try {
+            connection = getConnection();
+            d.watch(connection);
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                final PreparedStatement statement = connection.prepareStatement(INSERT_NOTICE_SQL);
+                d.watch(statement);
+                for (final Notice notice : notices) {
+                    setNoticeParameters(connection, statement, notice.getNoticeId(), notice.getParams(), notice.getQueueId(), notice.getNotification());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (final SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
             }
-            statement.setString(2, numMsg);
+        } finally {
+            d.cleanUp();
+        }
+    }
 
-            // notifications notifyID field
-            statement.setInt(3, notifyId);
+    private void setNoticeParameters(final Connection connection, final PreparedStatement statement, final int notifyId, final Map<String, String> params, final String queueID, final Notification notification) throws SQLException {
+        // notifications textMsg field
+        statement.setString(1, params.get(NotificationManager.PARAM_TEXT_MSG));
 
-            // notifications pageTime field
-            statement.setTimestamp(4, new Timestamp((new Date()).getTime()));
+        // notifications numericMsg field
+        String numMsg = params.get(NotificationManager.PARAM_NUM_MSG);
+        if (numMsg != null && numMsg.length() > 256) {
+            LOG.warn("numericmsg too long, it will be truncated");
+            numMsg = numMsg.substring(0, 256);
+        }
+        statement.setString(2, numMsg);
 
-            // notifications nodeID field
-            String node = params.get(NotificationManager.PARAM_NODE);
-            if (node != null && !node.trim().equals("") && !node.equalsIgnoreCase("null") && !node.equalsIgnoreCase("%nodeid%")) {
-                statement.setInt(5, Integer.parseInt(node));
-            } else {
-                statement.setNull(5, Types.INTEGER);
-            }
+        // notifications notifyID field
+        statement.setInt(3, notifyId);
 
-            // notifications interfaceID field
-            String ipaddr = params.get(NotificationManager.PARAM_INTERFACE);
-            if (ipaddr != null && !ipaddr.trim().equals("") && !ipaddr.equalsIgnoreCase("null") && !ipaddr.equalsIgnoreCase("%interface%")) {
-                statement.setString(6, ipaddr);
-            } else {
-                statement.setString(6, null);
-            }
+        // notifications pageTime field
+        statement.setTimestamp(4, new Timestamp((new Date()).getTime()));
 
-            // notifications serviceID field
-            String service = params.get(NotificationManager.PARAM_SERVICE);
-            if (service != null && !service.trim().equals("") && !service.equalsIgnoreCase("null") && !service.equalsIgnoreCase("%service%")) {
-                statement.setInt(7, getServiceId(service));
-            } else {
-                statement.setNull(7, Types.INTEGER);
-            }
+        // notifications nodeID field
+        String node = params.get(NotificationManager.PARAM_NODE);
+        if (node != null && !node.trim().equals("") && !node.equalsIgnoreCase("null") && !node.equalsIgnoreCase("%nodeid%")) {
+            statement.setInt(5, Integer.parseInt(node));
+        } else {
+            statement.setNull(5, Types.INTEGER);
+        }
 
-            // eventID field
-            final String eventID = params.get("eventID");
-            if (eventID != null && !eventID.trim().equals("") && !eventID.trim().equals("0") && !eventID.equalsIgnoreCase("null") && !eventID.equalsIgnoreCase("%eventid%")) {
-                statement.setInt(8, Integer.parseInt(eventID));
-            } else {
-                statement.setNull(8, Types.INTEGER);
-            }
+        // notifications interfaceID field
+        String ipaddr = params.get(NotificationManager.PARAM_INTERFACE);
+        if (ipaddr != null && !ipaddr.trim().equals("") && !ipaddr.equalsIgnoreCase("null") && !ipaddr.equalsIgnoreCase("%interface%")) {
+            statement.setString(6, ipaddr);
+        } else {
+            statement.setString(6, null);
+        }
 
-            statement.setString(9, params.get("eventUEI"));
+        // notifications serviceID field
+        String service = params.get(NotificationManager.PARAM_SERVICE);
+        if (service != null && !service.trim().equals("") && !service.equalsIgnoreCase("null") && !service.equalsIgnoreCase("%service%")) {
+            statement.setInt(7, getServiceId(connection, service));
+        } else {
+            statement.setNull(7, Types.INTEGER);
+        }
 
-            // notifications subject field
-            statement.setString(10, params.get(NotificationManager.PARAM_SUBJECT));
+        // eventID field
+        final String eventID = params.get("eventID");
+        if (eventID != null && !eventID.trim().equals("") && !eventID.trim().equals("0") && !eventID.equalsIgnoreCase("null") && !eventID.equalsIgnoreCase("%eventid%")) {
+            statement.setInt(8, Integer.parseInt(eventID));
+        } else {
+            statement.setNull(8, Types.INTEGER);
+        }
 
-            // the queue this will be sent on
-            statement.setString(11, queueID);
+        statement.setString(9, params.get("eventUEI"));
 
-            statement.setString(12, notification.getName());
+        // notifications subject field
+        statement.setString(10, params.get(NotificationManager.PARAM_SUBJECT));
 
-            statement.executeUpdate();
-        } finally {
-            d.cleanUp();
-        }
+        // the queue this will be sent on
+        statement.setString(11, queueID);
+
+        statement.setString(12, notification.getName());
     }
 
     /**
@@ -929,15 +1006,9 @@ public abstract class NotificationManager {
      *            the name of the service
      * @return the serviceID of the service
      */
-    private int getServiceId(final String service) throws SQLException {
-        int serviceID = 0;
-
-        Connection connection = null;
+    private int getServiceId(final Connection connection, final String service) throws SQLException {
         final DBUtils d = new DBUtils(getClass());
         try {
-            connection = getConnection();
-            d.watch(connection);
-
             final PreparedStatement statement = connection.prepareStatement("SELECT serviceID from service where serviceName = ?");
             d.watch(statement);
             statement.setString(1, service);
@@ -948,9 +1019,7 @@ public abstract class NotificationManager {
                 throw new SQLException("No serviceID found for service with serviceName: " + service);
             }
 
-            serviceID = results.getInt(1);
-
-            return serviceID;
+            return results.getInt(1);
         } finally {
             d.cleanUp();
         }
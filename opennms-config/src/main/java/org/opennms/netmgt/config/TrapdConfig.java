@@ -74,6 +74,35 @@ public interface TrapdConfig {
      */
     int getBatchIntervalMs();
 
+    /**
+     * Identical traps received within this interval are collapsed into
+     * a single event carrying a count parameter.
+     *
+     * @return window in ms, 0 when de-duplication is disabled
+     */
+    int getDedupWindowMs();
+
+    /**
+     * Varbinds which must also match for two traps to be considered identical.
+     *
+     * @return comma separated list of varbind positions (starting at 1), or null
+     */
+    String getDedupVarbinds();
+
+    /**
+     * Maximum sustained number of traps per second accepted from a single agent.
+     *
+     * @return traps per second, 0 when rate limiting is disabled
+     */
+    int getRateLimit();
+
+    /**
+     * Number of traps an agent may send in a burst before the rate limit applies.
+     *
+     * @return burst size, 0 to use the rate limit
+     */
+    int getRateLimitBurst();
+
     void update(TrapdConfig config);
 
     boolean shouldUseAddressFromVarbind();
@@ -216,6 +216,26 @@ public final class TrapdConfigFactory implements TrapdConfig {
         return m_config.getBatchInterval();
     }
 
+    @Override
+    public int getDedupWindowMs() {
+        return m_config.getDedupWindow();
+    }
+
+    @Override
+    public String getDedupVarbinds() {
+        return m_config.getDedupVarbinds();
+    }
+
+    @Override
+    public int getRateLimit() {
+        return m_config.getRateLimit();
+    }
+
+    @Override
+    public int getRateLimitBurst() {
+        return m_config.getRateLimitBurst();
+    }
+
     @Override
     public boolean shouldUseAddressFromVarbind() {
         return m_config.shouldUseAddressFromVarbind();
@@ -231,6 +251,10 @@ public final class TrapdConfigFactory implements TrapdConfig {
         m_config.setBatchInterval(config.getBatchIntervalMs());
         m_config.setThreads(config.getNumThreads());
         m_config.setIncludeRawMessage(config.isIncludeRawMessage());
+        m_config.setDedupWindow(config.getDedupWindowMs());
+        m_config.setDedupVarbinds(config.getDedupVarbinds());
+        m_config.setRateLimit(config.getRateLimit());
+        m_config.setRateLimitBurst(config.getRateLimitBurst());
 
         final List<Snmpv3User> snmpv3Users = config.getSnmpV3Users().stream().map(u -> {
             Snmpv3User newUser = new Snmpv3User();
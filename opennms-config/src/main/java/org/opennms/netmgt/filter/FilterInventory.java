@@ -0,0 +1,446 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.filter;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.opennms.core.utils.DBUtils;
+
+/**
+ * An in-memory copy of the node, interface, service, category and asset
+ * tables used to evaluate filter rules without querying the database.
+ *
+ * The rows are kept as maps of lower-case column names to values, strings for
+ * character columns and {@link Long} or {@link BigDecimal} for numeric ones.
+ * The inventory is loaded in full once and then refreshed one node at a time.
+ */
+final class FilterInventory {
+
+    enum ColumnType {
+        STRING,
+        NUMBER,
+        OTHER
+    }
+
+    static final String NODE_TABLE = "node";
+    static final String INTERFACE_TABLE = "ipinterface";
+    static final String SERVICE_TABLE = "service";
+    static final String CATEGORY_TABLE = "categories";
+    static final String ASSET_TABLE = "assets";
+
+    private static final String NODE_QUERY = "SELECT * FROM node";
+    private static final String INTERFACE_QUERY = "SELECT * FROM ipInterface";
+    private static final String SERVICE_QUERY = "SELECT ifServices.ipInterfaceId, service.* FROM ifServices "
+            + "JOIN service ON ifServices.serviceId = service.serviceId";
+    private static final String CATEGORY_QUERY = "SELECT category_node.nodeId, categories.* FROM category_node "
+            + "JOIN categories ON category_node.categoryId = categories.categoryId";
+    private static final String ASSET_QUERY = "SELECT * FROM assets";
+
+    static final class Node {
+        private final int id;
+        private final Map<String, Object> attributes;
+        private final Map<String, Object> assets;
+        private final List<Map<String, Object>> categories;
+        private final Set<String> categoryNames = new HashSet<>();
+        private final List<Interface> interfaces;
+
+        Node(final int id, final Map<String, Object> attributes, final Map<String, Object> assets,
+             final List<Map<String, Object>> categories, final List<Interface> interfaces) {
+            this.id = id;
+            this.attributes = attributes;
+            this.assets = assets;
+            this.categories = categories;
+            this.interfaces = interfaces;
+            for (final Map<String, Object> category : categories) {
+                final Object name = category.get("categoryname");
+                if (name != null) {
+                    categoryNames.add(name.toString());
+                }
+            }
+        }
+
+        int getId() {
+            return id;
+        }
+
+        Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * @return the asset record of the node, null if the node has none
+         */
+        Map<String, Object> getAssets() {
+            return assets;
+        }
+
+        List<Map<String, Object>> getCategories() {
+            return categories;
+        }
+
+        boolean hasCategory(final String categoryName) {
+            return categoryNames.contains(categoryName);
+        }
+
+        List<Interface> getInterfaces() {
+            return interfaces;
+        }
+
+        String getLabel() {
+            final Object label = attributes.get("nodelabel");
+            return label != null ? label.toString() : null;
+        }
+    }
+
+    static final class Interface {
+        private final Map<String, Object> attributes;
+        private final String ipAddr;
+        private final List<Map<String, Object>> services;
+        private final Set<String> serviceNames = new HashSet<>();
+
+        Interface(final Map<String, Object> attributes, final List<Map<String, Object>> services) {
+            this.attributes = attributes;
+            this.services = services;
+            final Object ipAddr = attributes.get("ipaddr");
+            this.ipAddr = ipAddr != null ? ipAddr.toString() : null;
+            for (final Map<String, Object> service : services) {
+                final Object name = service.get("servicename");
+                if (name != null) {
+                    serviceNames.add(name.toString());
+                }
+            }
+        }
+
+        Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        String getIpAddr() {
+            return ipAddr;
+        }
+
+        List<Map<String, Object>> getServices() {
+            return services;
+        }
+
+        boolean hasService(final String serviceName) {
+            return serviceNames.contains(serviceName);
+        }
+
+        boolean isDeleted() {
+            return "D".equals(attributes.get("ismanaged"));
+        }
+    }
+
+    private final Object m_writeLock = new Object();
+    private final Map<String, Map<String, ColumnType>> m_columnTypes = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Node> m_nodes = new ConcurrentHashMap<>();
+    private volatile Map<String, Set<Integer>> m_nodeIdsByIpAddr = new ConcurrentHashMap<>();
+    private volatile boolean m_loaded = false;
+
+    boolean isLoaded() {
+        return m_loaded;
+    }
+
+    Collection<Node> getNodes() {
+        return m_nodes.values();
+    }
+
+    Node getNode(final int nodeId) {
+        return m_nodes.get(nodeId);
+    }
+
+    /**
+     * @return the nodes with an interface with the given address
+     */
+    Collection<Node> getNodesWithIpAddr(final String ipAddr) {
+        final Set<Integer> nodeIds = m_nodeIdsByIpAddr.get(ipAddr);
+        if (nodeIds == null) {
+            return Collections.emptyList();
+        }
+        final List<Node> nodes = new ArrayList<>(nodeIds.size());
+        for (final Integer nodeId : nodeIds) {
+            final Node node = m_nodes.get(nodeId);
+            if (node != null) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the type of the given column, null if the column is not part of the inventory
+     */
+    ColumnType getColumnType(final String table, final String column) {
+        final Map<String, ColumnType> columns = m_columnTypes.get(table.toLowerCase(Locale.ROOT));
+        return columns != null ? columns.get(column.toLowerCase(Locale.ROOT)) : null;
+    }
+
+    /**
+     * Replaces the whole inventory with the current content of the database.
+     */
+    void load(final DataSource dataSource) throws SQLException {
+        synchronized (m_writeLock) {
+            final Map<Integer, Node> nodes = new ConcurrentHashMap<>();
+            final DBUtils d = new DBUtils(getClass());
+            try {
+                final Connection conn = dataSource.getConnection();
+                d.watch(conn);
+                for (final Node node : queryNodes(conn, d, null)) {
+                    nodes.put(node.getId(), node);
+                }
+            } finally {
+                d.cleanUp();
+            }
+
+            final Map<String, Set<Integer>> nodeIdsByIpAddr = new ConcurrentHashMap<>();
+            for (final Node node : nodes.values()) {
+                indexNode(nodeIdsByIpAddr, node);
+            }
+            m_nodes = nodes;
+            m_nodeIdsByIpAddr = nodeIdsByIpAddr;
+            m_loaded = true;
+        }
+    }
+
+    /**
+     * Reloads a single node, removing it if it no longer exists.
+     */
+    void refreshNode(final DataSource dataSource, final int nodeId) throws SQLException {
+        synchronized (m_writeLock) {
+            final List<Node> nodes;
+            final DBUtils d = new DBUtils(getClass());
+            try {
+                final Connection conn = dataSource.getConnection();
+                d.watch(conn);
+                nodes = queryNodes(conn, d, nodeId);
+            } finally {
+                d.cleanUp();
+            }
+
+            unindexNode(m_nodes.get(nodeId));
+            if (nodes.isEmpty()) {
+                m_nodes.remove(nodeId);
+            } else {
+                final Node node = nodes.get(0);
+                m_nodes.put(nodeId, node);
+                indexNode(m_nodeIdsByIpAddr, node);
+            }
+        }
+    }
+
+    void removeNode(final int nodeId) {
+        synchronized (m_writeLock) {
+            unindexNode(m_nodes.remove(nodeId));
+        }
+    }
+
+    /**
+     * Adds a node without going to the database.
+     */
+    void putNode(final Node node) {
+        synchronized (m_writeLock) {
+            unindexNode(m_nodes.get(node.getId()));
+            m_nodes.put(node.getId(), node);
+            indexNode(m_nodeIdsByIpAddr, node);
+            m_loaded = true;
+        }
+    }
+
+    /**
+     * Declares the type of a column without going to the database.
+     */
+    void putColumnType(final String table, final String column, final ColumnType type) {
+        m_columnTypes.computeIfAbsent(table.toLowerCase(Locale.ROOT), t -> new ConcurrentHashMap<>())
+                .put(column.toLowerCase(Locale.ROOT), type);
+    }
+
+    private static void indexNode(final Map<String, Set<Integer>> nodeIdsByIpAddr, final Node node) {
+        for (final Interface iface : node.getInterfaces()) {
+            if (iface.getIpAddr() != null) {
+                nodeIdsByIpAddr.computeIfAbsent(iface.getIpAddr(), k -> ConcurrentHashMap.newKeySet()).add(node.getId());
+            }
+        }
+    }
+
+    private void unindexNode(final Node node) {
+        if (node == null) {
+            return;
+        }
+        for (final Interface iface : node.getInterfaces()) {
+            if (iface.getIpAddr() != null) {
+                m_nodeIdsByIpAddr.computeIfPresent(iface.getIpAddr(), (ipAddr, nodeIds) -> {
+                    nodeIds.remove(node.getId());
+                    return nodeIds.isEmpty() ? null : nodeIds;
+                });
+            }
+        }
+    }
+
+    private List<Node> queryNodes(final Connection conn, final DBUtils d, final Integer nodeId) throws SQLException {
+        final List<Map<String, Object>> nodeRows = query(conn, d, NODE_TABLE,
+                nodeId == null ? NODE_QUERY : NODE_QUERY + " WHERE node.nodeId = ?", nodeId, 0);
+        final List<Map<String, Object>> interfaceRows = query(conn, d, INTERFACE_TABLE,
+                nodeId == null ? INTERFACE_QUERY : INTERFACE_QUERY + " WHERE ipInterface.nodeId = ?", nodeId, 0);
+        final List<Map<String, Object>> serviceRows = query(conn, d, SERVICE_TABLE,
+                nodeId == null ? SERVICE_QUERY : SERVICE_QUERY
+                        + " JOIN ipInterface ON ifServices.ipInterfaceId = ipInterface.id WHERE ipInterface.nodeId = ?", nodeId, 1);
+        final List<Map<String, Object>> categoryRows = query(conn, d, CATEGORY_TABLE,
+                nodeId == null ? CATEGORY_QUERY : CATEGORY_QUERY + " WHERE category_node.nodeId = ?", nodeId, 1);
+        final List<Map<String, Object>> assetRows = query(conn, d, ASSET_TABLE,
+                nodeId == null ? ASSET_QUERY : ASSET_QUERY + " WHERE assets.nodeId = ?", nodeId, 0);
+
+        final Map<Object, List<Map<String, Object>>> servicesByInterfaceId = groupBy(serviceRows, "ipinterfaceid");
+        final Map<Object, List<Map<String, Object>>> interfacesByNodeId = groupBy(interfaceRows, "nodeid");
+        final Map<Object, List<Map<String, Object>>> categoriesByNodeId = groupBy(categoryRows, "nodeid");
+        final Map<Object, List<Map<String, Object>>> assetsByNodeId = groupBy(assetRows, "nodeid");
+
+        final List<Node> nodes = new ArrayList<>(nodeRows.size());
+        for (final Map<String, Object> nodeRow : nodeRows) {
+            final Object id = nodeRow.get("nodeid");
+            final List<Interface> interfaces = new ArrayList<>();
+            for (final Map<String, Object> interfaceRow : interfacesByNodeId.getOrDefault(id, Collections.emptyList())) {
+                interfaces.add(new Interface(interfaceRow,
+                        servicesByInterfaceId.getOrDefault(interfaceRow.get("id"), Collections.emptyList())));
+            }
+            final List<Map<String, Object>> assets = assetsByNodeId.get(id);
+            nodes.add(new Node(((Number) id).intValue(), nodeRow, assets != null ? assets.get(0) : null,
+                    categoriesByNodeId.getOrDefault(id, Collections.emptyList()), interfaces));
+        }
+        return nodes;
+    }
+
+    /**
+     * Runs the given query and records the types of the columns of the given
+     * table, skipping the first columns which belong to the joined tables.
+     */
+    private List<Map<String, Object>> query(final Connection conn, final DBUtils d, final String table,
+                                            final String sql, final Integer nodeId, final int skipColumns) throws SQLException {
+        final PreparedStatement stmt = conn.prepareStatement(sql);
+        d.watch(stmt);
+        if (nodeId != null) {
+            stmt.setInt(1, nodeId);
+        }
+        final ResultSet rs = stmt.executeQuery();
+        d.watch(rs);
+
+        final ResultSetMetaData metaData = rs.getMetaData();
+        final int columnCount = metaData.getColumnCount();
+        final String[] names = new String[columnCount + 1];
+        final ColumnType[] types = new ColumnType[columnCount + 1];
+        final Map<String, ColumnType> columnTypes = m_columnTypes.computeIfAbsent(table, t -> new ConcurrentHashMap<>());
+        for (int i = 1; i <= columnCount; i++) {
+            names[i] = metaData.getColumnLabel(i).toLowerCase(Locale.ROOT);
+            types[i] = getColumnType(metaData.getColumnType(i));
+            if (i > skipColumns) {
+                columnTypes.put(names[i], types[i]);
+            }
+        }
+
+        final List<Map<String, Object>> rows = new ArrayList<>();
+        while (rs.next()) {
+            final Map<String, Object> row = new HashMap<>(columnCount * 2);
+            for (int i = 1; i <= columnCount; i++) {
+                final Object value;
+                switch (types[i]) {
+                    case NUMBER:
+                        value = toNumber(rs.getBigDecimal(i));
+                        break;
+                    case STRING:
+                        value = rs.getString(i);
+                        break;
+                    default:
+                        value = rs.getObject(i);
+                }
+                if (value != null) {
+                    row.put(names[i], value);
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Map<Object, List<Map<String, Object>>> groupBy(final List<Map<String, Object>> rows, final String column) {
+        final Map<Object, List<Map<String, Object>>> rowsByColumn = new HashMap<>();
+        for (final Map<String, Object> row : rows) {
+            rowsByColumn.computeIfAbsent(row.get(column), k -> new ArrayList<>()).add(row);
+        }
+        return rowsByColumn;
+    }
+
+    private static ColumnType getColumnType(final int sqlType) {
+        switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return ColumnType.STRING;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return ColumnType.NUMBER;
+            default:
+                return ColumnType.OTHER;
+        }
+    }
+
+    /**
+     * Integral values are kept as longs since most comparisons are made on ids.
+     */
+    static Object toNumber(final BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.longValueExact();
+        } catch (final ArithmeticException e) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.filter;
+
+import static org.opennms.core.utils.InetAddressUtils.addr;
+
+import java.net.InetAddress;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.opennms.core.utils.InetAddressComparator;
+import org.opennms.netmgt.config.api.DatabaseSchemaConfig;
+import org.opennms.netmgt.events.api.EventConstants;
+import org.opennms.netmgt.events.api.annotations.EventHandler;
+import org.opennms.netmgt.events.api.annotations.EventListener;
+import org.opennms.netmgt.events.api.model.IEvent;
+import org.opennms.netmgt.events.api.model.IParm;
+import org.opennms.netmgt.filter.api.FilterDao;
+import org.opennms.netmgt.filter.api.FilterParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jmx.JmxReporter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A {@link FilterDao} that evaluates filter rules against an in-memory copy
+ * of the inventory instead of running a query for every call.
+ *
+ * The inventory is loaded on startup, refreshed node by node from the
+ * provisioning events and reloaded in full periodically to pick up changes
+ * made without events. Rules using syntax or columns that are not supported
+ * in memory, and all calls made before the inventory is loaded, are handled by
+ * the delegate.
+ *
+ * Evaluating in memory is disabled unless the
+ * {@value #ENABLED_SYS_PROP} system property is set to true, in which case
+ * this class simply delegates.
+ */
+@EventListener(name = "OpenNMS.InMemoryFilterDao", logPrefix = "eventd")
+public class InMemoryFilterDao implements FilterDao, InitializingBean, DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryFilterDao.class);
+
+    public static final String ENABLED_SYS_PROP = "org.opennms.netmgt.filter.inMemory";
+    public static final String RELOAD_INTERVAL_SYS_PROP = "org.opennms.netmgt.filter.inMemory.reloadIntervalMs";
+
+    private static final int MAX_CACHED_RULES = 1000;
+
+    private final static MetricRegistry metricRegistry = new MetricRegistry();
+
+    private FilterDao m_delegate;
+    private DataSource m_dataSource;
+    private DatabaseSchemaConfig m_databaseSchemaConfigFactory;
+    private boolean m_enabled = Boolean.getBoolean(ENABLED_SYS_PROP);
+    private long m_reloadIntervalMs = Long.getLong(RELOAD_INTERVAL_SYS_PROP, TimeUnit.MINUTES.toMillis(15));
+
+    private final FilterInventory m_inventory = new FilterInventory();
+    private final Cache<String, Optional<InMemoryFilterRule>> m_rules = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_RULES)
+            .build();
+
+    private final Meter m_inMemoryEvaluations;
+    private final Meter m_delegatedEvaluations;
+    private JmxReporter m_jmxReporter;
+    private java.util.Timer m_timer;
+
+    public InMemoryFilterDao() {
+        m_inMemoryEvaluations = metricRegistry.meter("inMemoryEvaluations");
+        m_delegatedEvaluations = metricRegistry.meter("delegatedEvaluations");
+    }
+
+    public void setDelegate(final FilterDao delegate) {
+        m_delegate = delegate;
+    }
+
+    public FilterDao getDelegate() {
+        return m_delegate;
+    }
+
+    public void setDataSource(final DataSource dataSource) {
+        m_dataSource = dataSource;
+    }
+
+    public void setDatabaseSchemaConfigFactory(final DatabaseSchemaConfig factory) {
+        m_databaseSchemaConfigFactory = factory;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        m_enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return m_enabled;
+    }
+
+    public void setReloadIntervalMs(final long reloadIntervalMs) {
+        m_reloadIntervalMs = reloadIntervalMs;
+    }
+
+    FilterInventory getInventory() {
+        return m_inventory;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.state(m_delegate != null, "property delegate cannot be null");
+        if (!m_enabled) {
+            return;
+        }
+        Assert.state(m_dataSource != null, "property dataSource cannot be null");
+        Assert.state(m_databaseSchemaConfigFactory != null, "property databaseSchemaConfigFactory cannot be null");
+
+        reload();
+        if (m_reloadIntervalMs > 0) {
+            m_timer = new java.util.Timer("InMemoryFilterDao-Reload", true);
+            m_timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    reload();
+                }
+            }, m_reloadIntervalMs, m_reloadIntervalMs);
+        }
+
+        m_jmxReporter = JmxReporter.forRegistry(metricRegistry).inDomain("org.opennms.netmgt.config.filterdao.inmemory").build();
+        m_jmxReporter.start();
+    }
+
+    @Override
+    public void destroy() {
+        if (m_timer != null) {
+            m_timer.cancel();
+            m_timer = null;
+        }
+        if (m_jmxReporter != null) {
+            m_jmxReporter.stop();
+            m_jmxReporter = null;
+        }
+    }
+
+    /**
+     * Reloads the whole inventory, the rules are evaluated by the delegate
+     * until the first load succeeds.
+     */
+    public void reload() {
+        final long start = System.currentTimeMillis();
+        try {
+            m_inventory.load(m_dataSource);
+            LOG.debug("Loaded the filter inventory with {} nodes in {}ms.", m_inventory.getNodes().size(),
+                    System.currentTimeMillis() - start);
+        } catch (final SQLException e) {
+            LOG.warn("Failed to load the filter inventory. Filters will be evaluated by the database until the next reload.", e);
+        }
+    }
+
+    @EventHandler(ueis = {
+            EventConstants.NODE_ADDED_EVENT_UEI,
+            EventConstants.NODE_UPDATED_EVENT_UEI,
+            EventConstants.NODE_INFO_CHANGED_EVENT_UEI,
+            EventConstants.NODE_LABEL_CHANGED_EVENT_UEI,
+            EventConstants.NODE_LOCATION_CHANGED_EVENT_UEI,
+            EventConstants.NODE_CATEGORY_MEMBERSHIP_CHANGED_EVENT_UEI,
+            EventConstants.ASSET_INFO_CHANGED_EVENT_UEI,
+            EventConstants.NODE_GAINED_INTERFACE_EVENT_UEI,
+            EventConstants.INTERFACE_DELETED_EVENT_UEI,
+            EventConstants.PRIMARY_SNMP_INTERFACE_CHANGED_EVENT_UEI,
+            EventConstants.NODE_GAINED_SERVICE_EVENT_UEI,
+            EventConstants.SERVICE_DELETED_EVENT_UEI,
+            EventConstants.SERVICE_UNMANAGED_EVENT_UEI
+    })
+    public void handleNodeChanged(final IEvent event) {
+        if (!m_enabled) {
+            return;
+        }
+        final Long nodeId = event.getNodeid();
+        if (nodeId == null || nodeId <= 0) {
+            LOG.warn("{}: Event with no node ID: {}", event.getUei(), event);
+            return;
+        }
+        refreshNode(nodeId.intValue());
+    }
+
+    @EventHandler(uei = EventConstants.NODE_DELETED_EVENT_UEI)
+    public void handleNodeDeleted(final IEvent event) {
+        if (!m_enabled) {
+            return;
+        }
+        final Long nodeId = event.getNodeid();
+        if (nodeId == null || nodeId <= 0) {
+            LOG.warn("{}: Event with no node ID: {}", event.getUei(), event);
+            return;
+        }
+        m_inventory.removeNode(nodeId.intValue());
+    }
+
+    @EventHandler(uei = EventConstants.INTERFACE_REPARENTED_EVENT_UEI)
+    public void handleInterfaceReparented(final IEvent event) {
+        if (!m_enabled) {
+            return;
+        }
+        for (final String parmName : new String[] { EventConstants.PARM_OLD_NODEID, EventConstants.PARM_NEW_NODEID }) {
+            final IParm parm = event.getParm(parmName);
+            if (parm == null || parm.getValue() == null) {
+                LOG.warn("{}: Event with no {} parameter: {}", event.getUei(), parmName, event);
+                continue;
+            }
+            try {
+                refreshNode(Integer.parseInt(parm.getValue().getContent()));
+            } catch (final NumberFormatException e) {
+                LOG.warn("{}: Event with an invalid {} parameter: {}", event.getUei(), parmName, event);
+            }
+        }
+    }
+
+    private void refreshNode(final int nodeId) {
+        try {
+            m_inventory.refreshNode(m_dataSource, nodeId);
+        } catch (final SQLException e) {
+            LOG.warn("Failed to refresh node {} in the filter inventory. It will be refreshed on the next reload.", nodeId, e);
+        }
+    }
+
+    /**
+     * @return the parsed rule, or null if it must be evaluated by the delegate
+     */
+    private InMemoryFilterRule getRule(final String rule) {
+        InMemoryFilterRule filterRule = null;
+        if (m_enabled && m_inventory.isLoaded() && rule != null) {
+            try {
+                filterRule = m_rules.get(rule, () -> Optional.ofNullable(
+                        InMemoryFilterRule.compile(rule, m_databaseSchemaConfigFactory, m_inventory))).orElse(null);
+            } catch (final ExecutionException e) {
+                LOG.warn("Failed to parse filter rule: {}", rule, e.getCause());
+            }
+        }
+        if (filterRule != null) {
+            m_inMemoryEvaluations.mark();
+        } else {
+            m_delegatedEvaluations.mark();
+        }
+        return filterRule;
+    }
+
+    /**
+     * Same check as {@link JdbcFilterDao}, deleted interfaces are returned
+     * when the rule refers to the isManaged column.
+     */
+    private static boolean excludeDeleted(final String rule) {
+        return !rule.contains("isManaged");
+    }
+
+    @Override
+    public SortedMap<Integer, String> getNodeMap(final String rule) throws FilterParseException {
+        final InMemoryFilterRule filterRule = getRule(rule);
+        if (filterRule == null) {
+            return m_delegate.getNodeMap(rule);
+        }
+        final SortedMap<Integer, String> resultMap = new TreeMap<>();
+        filterRule.forEachMatch(m_inventory, null, false, false, row -> {
+            resultMap.put(row.getNode().getId(), row.getNode().getLabel());
+            return true;
+        });
+        return Collections.unmodifiableSortedMap(resultMap);
+    }
+
+    @Override
+    public Map<InetAddress, Set<String>> getIPAddressServiceMap(final String rule) throws FilterParseException {
+        final Map<Integer, Map<InetAddress, Set<String>>> nodeIpServices = getNodeIPAddressServiceMap(rule);
+
+        // Flatten the map, remove the node
+        final Map<InetAddress, Set<String>> ipServices = new TreeMap<>(new InetAddressComparator());
+        nodeIpServices.values().forEach(ipServicesForNode -> {
+            ipServicesForNode.forEach((ipAddr, services) -> {
+                ipServices.computeIfAbsent(ipAddr, key -> new TreeSet<>()).addAll(services);
+            });
+        });
+
+        return ipServices;
+    }
+
+    @Override
+    public Map<Integer, Map<InetAddress, Set<String>>> getNodeIPAddressServiceMap(final String rule) throws FilterParseException {
+        final InMemoryFilterRule filterRule = getRule(rule);
+        if (filterRule == null) {
+            return m_delegate.getNodeIPAddressServiceMap(rule);
+        }
+        final Map<Integer, Map<InetAddress, Set<String>>> nodeIpServices = new TreeMap<>();
+        filterRule.forEachMatch(m_inventory, null, false, true, row -> {
+            final InetAddress ipAddr = row.getInterface().getIpAddr() != null ? addr(row.getInterface().getIpAddr()) : null;
+            final Object serviceName = row.getService().get("servicename");
+            if (ipAddr != null && serviceName != null) {
+                nodeIpServices.computeIfAbsent(row.getNode().getId(), key -> new TreeMap<>(new InetAddressComparator()))
+                        .computeIfAbsent(ipAddr, key -> new TreeSet<>()).add(serviceName.toString());
+            }
+            return true;
+        });
+        return nodeIpServices;
+    }
+
+    @Override
+    public void flushActiveIpAddressListCache() {
+        m_delegate.flushActiveIpAddressListCache();
+    }
+
+    @Override
+    public List<InetAddress> getActiveIPAddressList(final String rule) throws FilterParseException {
+        final InMemoryFilterRule filterRule = getRule(rule);
+        if (filterRule == null) {
+            return m_delegate.getActiveIPAddressList(rule);
+        }
+        return getIPAddressList(filterRule, excludeDeleted(rule));
+    }
+
+    @Override
+    public List<InetAddress> getIPAddressList(final String rule) throws FilterParseException {
+        final InMemoryFilterRule filterRule = getRule(rule);
+        if (filterRule == null) {
+            return m_delegate.getIPAddressList(rule);
+        }
+        return getIPAddressList(filterRule, false);
+    }
+
+    private List<InetAddress> getIPAddressList(final InMemoryFilterRule filterRule, final boolean excludeDeleted) {
+        final Set<InetAddress> ipAddrs = new TreeSet<>(new InetAddressComparator());
+        filterRule.forEachMatch(m_inventory, null, excludeDeleted, false, row -> {
+            if (row.getInterface().getIpAddr() != null) {
+                ipAddrs.add(addr(row.getInterface().getIpAddr()));
+            }
+            return true;
+        });
+        return new ArrayList<>(ipAddrs);
+    }
+
+    @Override
+    public boolean isValid(final String addr, final String rule) throws FilterParseException {
+        if (rule.length() == 0) {
+            return true;
+        }
+        final InMemoryFilterRule filterRule = getRule(rule);
+        if (filterRule == null) {
+            return m_delegate.isValid(addr, rule);
+        }
+        return !filterRule.forEachMatch(m_inventory, addr, excludeDeleted(rule), false, row -> false);
+    }
+
+    @Override
+    public boolean isRuleMatching(final String rule) throws FilterParseException {
+        final InMemoryFilterRule filterRule = getRule(rule);
+        if (filterRule == null) {
+            return m_delegate.isRuleMatching(rule);
+        }
+        return !filterRule.forEachMatch(m_inventory, null, false, false, row -> false);
+    }
+
+    @Override
+    public void validateRule(final String rule) throws FilterParseException {
+        // Rules are validated by running them against the database
+        m_delegate.validateRule(rule);
+    }
+}
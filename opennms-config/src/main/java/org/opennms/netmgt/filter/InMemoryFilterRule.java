@@ -0,0 +1,827 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.filter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.opennms.core.utils.IPLike;
+import org.opennms.netmgt.config.api.DatabaseSchemaConfig;
+import org.opennms.netmgt.config.filter.Table;
+import org.opennms.netmgt.filter.FilterInventory.ColumnType;
+import org.opennms.netmgt.filter.FilterInventory.Interface;
+import org.opennms.netmgt.filter.FilterInventory.Node;
+
+/**
+ * A filter rule parsed into an expression tree that is evaluated against the
+ * {@link FilterInventory}.
+ *
+ * Evaluation follows the SQL generated by {@link JdbcFilterDao}: the rule is
+ * evaluated for each row of ipInterface joined with the other tables the rule
+ * refers to, using three-valued logic where comparisons with NULL are unknown.
+ * Only a subset of the filter syntax is supported, {@link #compile} returns
+ * null for everything else so the rule can be run as SQL instead.
+ */
+final class InMemoryFilterRule {
+
+    /**
+     * A single row of the join, the service and category are null unless the
+     * rule refers to these tables.
+     */
+    static final class Row {
+        private Node node;
+        private Interface iface;
+        private Map<String, Object> service;
+        private Map<String, Object> category;
+
+        Node getNode() {
+            return node;
+        }
+
+        Interface getInterface() {
+            return iface;
+        }
+
+        Map<String, Object> getService() {
+            return service;
+        }
+    }
+
+    private interface Expression {
+        /**
+         * @return the value of the expression for the given row, null when unknown
+         */
+        Boolean evaluate(Row row);
+    }
+
+    private enum Source {
+        NODE,
+        INTERFACE,
+        SERVICE,
+        CATEGORY,
+        ASSET
+    }
+
+    private static final class Column {
+        private final Source source;
+        private final String name;
+        private final ColumnType type;
+
+        private Column(final Source source, final String name, final ColumnType type) {
+            this.source = source;
+            this.name = name;
+            this.type = type;
+        }
+
+        private Object getValue(final Row row) {
+            final Map<String, Object> record;
+            switch (source) {
+                case NODE:
+                    record = row.node.getAttributes();
+                    break;
+                case INTERFACE:
+                    record = row.iface.getAttributes();
+                    break;
+                case SERVICE:
+                    record = row.service;
+                    break;
+                case CATEGORY:
+                    record = row.category;
+                    break;
+                default:
+                    record = row.node.getAssets();
+            }
+            return record != null ? record.get(name) : null;
+        }
+    }
+
+    private final String m_rule;
+    private final Expression m_expression;
+    private final boolean m_joinsServices;
+    private final boolean m_joinsCategories;
+    private final boolean m_joinsAssets;
+    private final Long m_nodeId;
+    private final String m_ipAddr;
+
+    private InMemoryFilterRule(final String rule, final Parser parser) {
+        m_rule = rule;
+        m_expression = parser.expression;
+        m_joinsServices = parser.joinsServices;
+        m_joinsCategories = parser.joinsCategories;
+        m_joinsAssets = parser.joinsAssets;
+        m_nodeId = parser.nodeId;
+        m_ipAddr = parser.ipAddr;
+    }
+
+    /**
+     * Parses the given rule.
+     *
+     * @return the parsed rule, or null if the rule uses syntax or columns that
+     *         can not be evaluated in memory
+     */
+    static InMemoryFilterRule compile(final String rule, final DatabaseSchemaConfig schema, final FilterInventory inventory) {
+        if (rule == null || rule.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            final Parser parser = new Parser(tokenize(rule), schema, inventory);
+            parser.parse();
+            return new InMemoryFilterRule(rule, parser);
+        } catch (final UnsupportedRuleException e) {
+            return null;
+        }
+    }
+
+    String getRule() {
+        return m_rule;
+    }
+
+    /**
+     * Visits the rows matching the rule.
+     *
+     * @param inventory the inventory to evaluate the rule against
+     * @param ipAddr only visit the rows of the interfaces with this address, may be null
+     * @param excludeDeleted whether to skip the interfaces that are marked as deleted
+     * @param joinServices whether to visit a row for each service even if the rule does not refer to them
+     * @param visitor called for each matching row, returns false to stop
+     * @return false if the visitor stopped the evaluation
+     */
+    boolean forEachMatch(final FilterInventory inventory, final String ipAddr, final boolean excludeDeleted,
+                         final boolean joinServices, final Predicate<Row> visitor) {
+        if (ipAddr != null && m_ipAddr != null && !ipAddr.equals(m_ipAddr)) {
+            return true;
+        }
+        final String effectiveIpAddr = ipAddr != null ? ipAddr : m_ipAddr;
+
+        // Narrow down the nodes when the rule requires a node id or address
+        final Collection<Node> nodes;
+        if (m_nodeId != null) {
+            final Node node = m_nodeId >= Integer.MIN_VALUE && m_nodeId <= Integer.MAX_VALUE
+                    ? inventory.getNode(m_nodeId.intValue()) : null;
+            nodes = node != null ? Collections.singletonList(node) : Collections.emptyList();
+        } else if (effectiveIpAddr != null) {
+            nodes = inventory.getNodesWithIpAddr(effectiveIpAddr);
+        } else {
+            nodes = inventory.getNodes();
+        }
+
+        final Row row = new Row();
+        final List<Map<String, Object>> noRecord = Collections.singletonList(null);
+        for (final Node node : nodes) {
+            if (m_joinsAssets && node.getAssets() == null) {
+                continue;
+            }
+            row.node = node;
+            // categories are left joined
+            final List<Map<String, Object>> categories = m_joinsCategories && !node.getCategories().isEmpty()
+                    ? node.getCategories() : noRecord;
+            for (final Interface iface : node.getInterfaces()) {
+                if (effectiveIpAddr != null && !effectiveIpAddr.equals(iface.getIpAddr())) {
+                    continue;
+                }
+                if (excludeDeleted && iface.isDeleted()) {
+                    continue;
+                }
+                row.iface = iface;
+                final List<Map<String, Object>> services = m_joinsServices || joinServices ? iface.getServices() : noRecord;
+                for (final Map<String, Object> service : services) {
+                    row.service = service;
+                    for (final Map<String, Object> category : categories) {
+                        row.category = category;
+                        if (Boolean.TRUE.equals(m_expression.evaluate(row)) && !visitor.test(row)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static final class UnsupportedRuleException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private enum TokenType {
+        LPAREN,
+        RPAREN,
+        COMMA,
+        OPERATOR,
+        AND,
+        OR,
+        NOT,
+        LIKE,
+        IN,
+        IS,
+        NULL,
+        IPLIKE,
+        STRING,
+        NUMBER,
+        IDENTIFIER,
+        END
+    }
+
+    private static final class Token {
+        private final TokenType type;
+        private final String text;
+
+        private Token(final TokenType type, final String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("-?\\d+(?:\\.\\d+)?");
+
+    private static boolean isWordChar(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+    }
+
+    private static boolean isIplikeChar(final char c) {
+        return Character.digit(c, 16) >= 0 || c == '.' || c == ':' || c == '*' || c == ',' || c == '-';
+    }
+
+    private static List<Token> tokenize(final String rule) throws UnsupportedRuleException {
+        final List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < rule.length()) {
+            final char c = rule.charAt(i);
+            final char next = i + 1 < rule.length() ? rule.charAt(i + 1) : 0;
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.LPAREN, "("));
+                i++;
+            } else if (c == ')') {
+                tokens.add(new Token(TokenType.RPAREN, ")"));
+                i++;
+            } else if (c == ',') {
+                tokens.add(new Token(TokenType.COMMA, ","));
+                i++;
+            } else if (c == '&') {
+                tokens.add(new Token(TokenType.AND, "AND"));
+                i += next == '&' ? 2 : 1;
+            } else if (c == '|') {
+                tokens.add(new Token(TokenType.OR, "OR"));
+                i += next == '|' ? 2 : 1;
+            } else if (c == '!' && next == '=') {
+                tokens.add(new Token(TokenType.OPERATOR, "!="));
+                i += 2;
+            } else if (c == '!') {
+                tokens.add(new Token(TokenType.NOT, "NOT"));
+                i++;
+            } else if (c == '=') {
+                tokens.add(new Token(TokenType.OPERATOR, "="));
+                i += next == '=' ? 2 : 1;
+            } else if (c == '<' || c == '>') {
+                if (next == '=' || (c == '<' && next == '>')) {
+                    tokens.add(new Token(TokenType.OPERATOR, c == '<' && next == '>' ? "!=" : "" + c + next));
+                    i += 2;
+                } else {
+                    tokens.add(new Token(TokenType.OPERATOR, "" + c));
+                    i++;
+                }
+            } else if (c == '\'' || c == '"') {
+                // Quoted strings are constants, doubled quotes are escaped quotes
+                final StringBuilder value = new StringBuilder();
+                int j = i + 1;
+                while (true) {
+                    if (j >= rule.length()) {
+                        throw new UnsupportedRuleException();
+                    }
+                    final char d = rule.charAt(j);
+                    if (d == c) {
+                        if (j + 1 < rule.length() && rule.charAt(j + 1) == c) {
+                            value.append(c);
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    value.append(d);
+                    j++;
+                }
+                tokens.add(new Token(TokenType.STRING, value.toString()));
+                i = j + 1;
+            } else if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).type == TokenType.IPLIKE
+                    && c != '(' && isIplikeChar(c)) {
+                // The unquoted right hand side of the IPLIKE operator
+                int j = i;
+                while (j < rule.length() && isIplikeChar(rule.charAt(j))) {
+                    j++;
+                }
+                tokens.add(new Token(TokenType.STRING, rule.substring(i, j)));
+                i = j;
+            } else if (isWordChar(c)) {
+                int j = i;
+                while (j < rule.length() && isWordChar(rule.charAt(j))) {
+                    j++;
+                }
+                final String word = rule.substring(i, j);
+                tokens.add(toWordToken(word));
+                i = j;
+            } else {
+                throw new UnsupportedRuleException();
+            }
+        }
+        tokens.add(new Token(TokenType.END, ""));
+        return tokens;
+    }
+
+    private static Token toWordToken(final String word) throws UnsupportedRuleException {
+        if (NUMBER_PATTERN.matcher(word).matches()) {
+            return new Token(TokenType.NUMBER, word);
+        }
+        if (word.indexOf('.') >= 0) {
+            // Qualified column names are not supported by the filters
+            throw new UnsupportedRuleException();
+        }
+        switch (word.toUpperCase(Locale.ROOT)) {
+            case "AND":
+                return new Token(TokenType.AND, word);
+            case "OR":
+                return new Token(TokenType.OR, word);
+            case "NOT":
+                return new Token(TokenType.NOT, word);
+            case "LIKE":
+                return new Token(TokenType.LIKE, word);
+            case "IN":
+                return new Token(TokenType.IN, word);
+            case "IS":
+                return new Token(TokenType.IS, word);
+            case "NULL":
+                return new Token(TokenType.NULL, word);
+            case "IPLIKE":
+                return new Token(TokenType.IPLIKE, word);
+            default:
+                return new Token(TokenType.IDENTIFIER, word);
+        }
+    }
+
+    /**
+     * A parsed expression along with the node id and interface address that
+     * every row matching it must have, if any.
+     */
+    private static final class Parsed {
+        private final Expression expression;
+        private Long nodeId;
+        private String ipAddr;
+
+        private Parsed(final Expression expression) {
+            this.expression = expression;
+        }
+    }
+
+    private static final class Parser {
+        private final List<Token> tokens;
+        private final DatabaseSchemaConfig schema;
+        private final FilterInventory inventory;
+        private int position = 0;
+
+        private Expression expression;
+        private boolean joinsServices;
+        private boolean joinsCategories;
+        private boolean joinsAssets;
+        private Long nodeId;
+        private String ipAddr;
+
+        private Parser(final List<Token> tokens, final DatabaseSchemaConfig schema, final FilterInventory inventory) {
+            this.tokens = tokens;
+            this.schema = schema;
+            this.inventory = inventory;
+        }
+
+        private void parse() throws UnsupportedRuleException {
+            final Parsed parsed = parseOr();
+            expect(TokenType.END);
+            expression = parsed.expression;
+            nodeId = parsed.nodeId;
+            ipAddr = parsed.ipAddr;
+        }
+
+        private Token peek() {
+            return tokens.get(position);
+        }
+
+        private Token peek(final int offset) {
+            return tokens.get(Math.min(position + offset, tokens.size() - 1));
+        }
+
+        private Token next() {
+            return tokens.get(position++);
+        }
+
+        private Token expect(final TokenType type) throws UnsupportedRuleException {
+            if (peek().type != type) {
+                throw new UnsupportedRuleException();
+            }
+            return next();
+        }
+
+        private Parsed parseOr() throws UnsupportedRuleException {
+            final Parsed first = parseAnd();
+            if (peek().type != TokenType.OR) {
+                return first;
+            }
+            final List<Expression> operands = new ArrayList<>();
+            operands.add(first.expression);
+            while (peek().type == TokenType.OR) {
+                next();
+                operands.add(parseAnd().expression);
+            }
+            return new Parsed(row -> {
+                Boolean result = Boolean.FALSE;
+                for (final Expression operand : operands) {
+                    final Boolean value = operand.evaluate(row);
+                    if (Boolean.TRUE.equals(value)) {
+                        return Boolean.TRUE;
+                    } else if (value == null) {
+                        result = null;
+                    }
+                }
+                return result;
+            });
+        }
+
+        private Parsed parseAnd() throws UnsupportedRuleException {
+            final Parsed first = parseNot();
+            if (peek().type != TokenType.AND) {
+                return first;
+            }
+            final List<Expression> operands = new ArrayList<>();
+            operands.add(first.expression);
+            Long andNodeId = first.nodeId;
+            String andIpAddr = first.ipAddr;
+            while (peek().type == TokenType.AND) {
+                next();
+                final Parsed operand = parseNot();
+                operands.add(operand.expression);
+                andNodeId = andNodeId != null ? andNodeId : operand.nodeId;
+                andIpAddr = andIpAddr != null ? andIpAddr : operand.ipAddr;
+            }
+            final Parsed parsed = new Parsed(row -> {
+                Boolean result = Boolean.TRUE;
+                for (final Expression operand : operands) {
+                    final Boolean value = operand.evaluate(row);
+                    if (Boolean.FALSE.equals(value)) {
+                        return Boolean.FALSE;
+                    } else if (value == null) {
+                        result = null;
+                    }
+                }
+                return result;
+            });
+            parsed.nodeId = andNodeId;
+            parsed.ipAddr = andIpAddr;
+            return parsed;
+        }
+
+        private Parsed parseNot() throws UnsupportedRuleException {
+            if (peek().type == TokenType.NOT) {
+                next();
+                return new Parsed(not(parseNot().expression));
+            }
+            return parsePrimary();
+        }
+
+        private Parsed parsePrimary() throws UnsupportedRuleException {
+            final Token token = peek();
+            if (token.type == TokenType.LPAREN) {
+                next();
+                final Parsed parsed = parseOr();
+                expect(TokenType.RPAREN);
+                return parsed;
+            }
+            if (token.type == TokenType.IPLIKE && peek(1).type == TokenType.LPAREN) {
+                // IPLIKE(column, 'pattern')
+                next();
+                next();
+                final Column column = resolveColumn(expect(TokenType.IDENTIFIER).text);
+                expect(TokenType.COMMA);
+                final String pattern = expect(TokenType.STRING).text;
+                expect(TokenType.RPAREN);
+                return new Parsed(ipLike(column, pattern));
+            }
+            if (token.type != TokenType.IDENTIFIER) {
+                throw new UnsupportedRuleException();
+            }
+            next();
+
+            // Prefixed values are recognized the same way JdbcFilterDao does
+            final String word = token.text;
+            if (word.startsWith("is") || word.startsWith("notis") || word.startsWith("catinc")) {
+                switch (peek().type) {
+                    case OPERATOR:
+                    case LIKE:
+                    case IN:
+                    case IS:
+                    case IPLIKE:
+                        // Not valid SQL once the prefixed value is expanded
+                        throw new UnsupportedRuleException();
+                    default:
+                        return new Parsed(prefixedValue(word));
+                }
+            }
+
+            final Column column = resolveColumn(word);
+            final Token operator = next();
+            switch (operator.type) {
+                case OPERATOR:
+                    return compare(column, operator.text, next());
+                case IPLIKE:
+                    return new Parsed(ipLike(column, expect(TokenType.STRING).text));
+                case LIKE:
+                    return new Parsed(like(column, expect(TokenType.STRING).text));
+                case IN:
+                    return new Parsed(in(column));
+                case NOT:
+                    if (peek().type == TokenType.LIKE) {
+                        next();
+                        return new Parsed(not(like(column, expect(TokenType.STRING).text)));
+                    } else if (peek().type == TokenType.IN) {
+                        next();
+                        return new Parsed(not(in(column)));
+                    }
+                    throw new UnsupportedRuleException();
+                case IS:
+                    final boolean negated = peek().type == TokenType.NOT;
+                    if (negated) {
+                        next();
+                    }
+                    expect(TokenType.NULL);
+                    return new Parsed(row -> (column.getValue(row) == null) != negated);
+                default:
+                    throw new UnsupportedRuleException();
+            }
+        }
+
+        private Expression prefixedValue(final String word) {
+            if (word.startsWith("is")) {
+                // serviceName = 'VALUE'
+                final String serviceName = word.substring(2);
+                joinsServices = true;
+                return row -> serviceName.equals(row.service.get("servicename"));
+            } else if (word.startsWith("notis")) {
+                // no interface with the same address has the service
+                final String serviceName = word.substring(5);
+                return row -> {
+                    final String rowIpAddr = row.iface.getIpAddr();
+                    if (rowIpAddr == null) {
+                        return null;
+                    }
+                    for (final Node node : inventory.getNodesWithIpAddr(rowIpAddr)) {
+                        for (final Interface iface : node.getInterfaces()) {
+                            if (rowIpAddr.equals(iface.getIpAddr()) && iface.hasService(serviceName)) {
+                                return Boolean.FALSE;
+                            }
+                        }
+                    }
+                    return Boolean.TRUE;
+                };
+            } else {
+                // the node is in the category
+                final String categoryName = word.substring(6);
+                return row -> row.node.hasCategory(categoryName);
+            }
+        }
+
+        private Column resolveColumn(final String name) throws UnsupportedRuleException {
+            final Table table = schema.findTableByVisibleColumn(name);
+            if (table == null) {
+                throw new UnsupportedRuleException();
+            }
+            final String tableName = table.getName().toLowerCase(Locale.ROOT);
+            final Source source;
+            switch (tableName) {
+                case FilterInventory.NODE_TABLE:
+                    source = Source.NODE;
+                    break;
+                case FilterInventory.INTERFACE_TABLE:
+                    source = Source.INTERFACE;
+                    break;
+                case FilterInventory.SERVICE_TABLE:
+                    source = Source.SERVICE;
+                    joinsServices = true;
+                    break;
+                case FilterInventory.CATEGORY_TABLE:
+                    source = Source.CATEGORY;
+                    joinsCategories = true;
+                    break;
+                case FilterInventory.ASSET_TABLE:
+                    source = Source.ASSET;
+                    joinsAssets = true;
+                    break;
+                default:
+                    throw new UnsupportedRuleException();
+            }
+            final ColumnType type = inventory.getColumnType(tableName, name);
+            if (type == null) {
+                throw new UnsupportedRuleException();
+            }
+            return new Column(source, name.toLowerCase(Locale.ROOT), type);
+        }
+
+        private Parsed compare(final Column column, final String operator, final Token value) throws UnsupportedRuleException {
+            if (value.type != TokenType.STRING && value.type != TokenType.NUMBER) {
+                throw new UnsupportedRuleException();
+            }
+            if (column.type == ColumnType.NUMBER) {
+                final Object expected = toNumber(value.text);
+                final Parsed parsed = new Parsed(row -> {
+                    final Object actual = column.getValue(row);
+                    if (actual == null) {
+                        return null;
+                    }
+                    return test(operator, compareNumbers(actual, expected));
+                });
+                if ("=".equals(operator) && column.source == Source.NODE && "nodeid".equals(column.name)
+                        && expected instanceof Long) {
+                    parsed.nodeId = (Long) expected;
+                }
+                return parsed;
+            } else if (column.type == ColumnType.STRING && value.type == TokenType.STRING
+                    && ("=".equals(operator) || "!=".equals(operator))) {
+                final String expected = value.text;
+                final boolean equals = "=".equals(operator);
+                final Parsed parsed = new Parsed(row -> {
+                    final Object actual = column.getValue(row);
+                    if (actual == null) {
+                        return null;
+                    }
+                    return expected.equals(actual) == equals;
+                });
+                if (equals && column.source == Source.INTERFACE && "ipaddr".equals(column.name)) {
+                    parsed.ipAddr = expected;
+                }
+                return parsed;
+            }
+            // Ordering strings depends on the collation of the database
+            throw new UnsupportedRuleException();
+        }
+
+        private Expression like(final Column column, final String pattern) throws UnsupportedRuleException {
+            if (column.type != ColumnType.STRING) {
+                throw new UnsupportedRuleException();
+            }
+            final Pattern regex = toRegex(pattern);
+            return row -> {
+                final Object actual = column.getValue(row);
+                if (actual == null) {
+                    return null;
+                }
+                return regex.matcher(actual.toString()).matches();
+            };
+        }
+
+        private Expression in(final Column column) throws UnsupportedRuleException {
+            expect(TokenType.LPAREN);
+            final List<Object> values = new ArrayList<>();
+            while (true) {
+                final Token value = next();
+                if (column.type == ColumnType.NUMBER && (value.type == TokenType.NUMBER || value.type == TokenType.STRING)) {
+                    values.add(toNumber(value.text));
+                } else if (column.type == ColumnType.STRING && value.type == TokenType.STRING) {
+                    values.add(value.text);
+                } else {
+                    throw new UnsupportedRuleException();
+                }
+                if (peek().type != TokenType.COMMA) {
+                    break;
+                }
+                next();
+            }
+            expect(TokenType.RPAREN);
+
+            return row -> {
+                final Object actual = column.getValue(row);
+                if (actual == null) {
+                    return null;
+                }
+                for (final Object value : values) {
+                    if (column.type == ColumnType.NUMBER ? compareNumbers(actual, value) == 0 : value.equals(actual)) {
+                        return Boolean.TRUE;
+                    }
+                }
+                return Boolean.FALSE;
+            };
+        }
+
+        private Expression ipLike(final Column column, final String pattern) throws UnsupportedRuleException {
+            if (column.type != ColumnType.STRING) {
+                throw new UnsupportedRuleException();
+            }
+            try {
+                // Reject patterns the database would fail on
+                IPLike.matches(pattern.indexOf(':') >= 0 ? "0:0:0:0:0:0:0:0" : "0.0.0.0", pattern);
+            } catch (final RuntimeException e) {
+                throw new UnsupportedRuleException();
+            }
+            return row -> {
+                final Object actual = column.getValue(row);
+                if (actual == null) {
+                    return null;
+                }
+                try {
+                    return IPLike.matches(actual.toString(), pattern);
+                } catch (final RuntimeException e) {
+                    return Boolean.FALSE;
+                }
+            };
+        }
+
+        private static Expression not(final Expression expression) {
+            return row -> {
+                final Boolean value = expression.evaluate(row);
+                return value != null ? !value : null;
+            };
+        }
+
+        private static Object toNumber(final String text) throws UnsupportedRuleException {
+            try {
+                return FilterInventory.toNumber(new BigDecimal(text.trim()));
+            } catch (final NumberFormatException e) {
+                throw new UnsupportedRuleException();
+            }
+        }
+
+        private static Boolean test(final String operator, final int comparison) {
+            switch (operator) {
+                case "=":
+                    return comparison == 0;
+                case "!=":
+                    return comparison != 0;
+                case "<":
+                    return comparison < 0;
+                case "<=":
+                    return comparison <= 0;
+                case ">":
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+    }
+
+    private static int compareNumbers(final Object a, final Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            return Long.compare((Long) a, (Long) b);
+        }
+        return toBigDecimal(a).compareTo(toBigDecimal(b));
+    }
+
+    private static BigDecimal toBigDecimal(final Object value) {
+        return value instanceof BigDecimal ? (BigDecimal) value : BigDecimal.valueOf(((Number) value).longValue());
+    }
+
+    /**
+     * Translates a SQL LIKE pattern, with backslash as the escape character.
+     */
+    static Pattern toRegex(final String likePattern) {
+        final StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < likePattern.length(); i++) {
+            final char c = likePattern.charAt(i);
+            if (c == '\\' && i + 1 < likePattern.length()) {
+                regex.append(Pattern.quote(String.valueOf(likePattern.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toString(m_rule);
+    }
+}
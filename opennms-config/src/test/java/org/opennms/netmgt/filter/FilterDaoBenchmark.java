@@ -0,0 +1,148 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.filter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.core.test.db.TemporaryDatabasePostgreSQL;
+import org.opennms.netmgt.config.DatabaseSchemaConfigFactory;
+import org.opennms.netmgt.filter.api.FilterDao;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to compare the {@link JdbcFilterDao} with
+ * the {@link InMemoryFilterDao}.
+ * <p>
+ * A temporary PostgreSQL database is populated with synthetic nodes, interfaces, services and
+ * categories. The rules are shaped like the ones used by notifd and the pollers.
+ */
+public class FilterDaoBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class FState {
+
+        @Param({"jdbc", "inMemory"})
+        public String dao;
+
+        @Param({"100", "1000"})
+        public int nodes;
+
+        @Param({"4"})
+        public int interfacesPerNode;
+
+        public TemporaryDatabasePostgreSQL db;
+        public FilterDao filterDao;
+
+        @Setup
+        public void setup() throws Exception {
+            db = new TemporaryDatabasePostgreSQL();
+            db.setPopulateSchema(true);
+            db.setPlpgsqlIplike(true);
+            db.create();
+
+            db.update("INSERT INTO node (nodeID, nodeLabel, nodeCreateTime, nodeType, location) "
+                    + "SELECT g, 'node' || g, now(), 'A', 'Default' FROM generate_series(1, ?) g", nodes);
+            db.update("INSERT INTO ipInterface (id, nodeID, ipAddr, isManaged) "
+                    + "SELECT g, (g - 1) / ? + 1, '10.' || ((g / 65536) % 256) || '.' || ((g / 256) % 256) || '.' || (g % 256), 'M' "
+                    + "FROM generate_series(1, ?) g", interfacesPerNode, nodes * interfacesPerNode);
+            db.update("INSERT INTO service (serviceID, serviceName) VALUES (1, 'ICMP'), (2, 'SNMP'), (3, 'HTTP')");
+            db.update("INSERT INTO ifServices (id, ipInterfaceId, serviceID, status) "
+                    + "SELECT id, id, id % 3 + 1, 'A' FROM ipInterface");
+            db.update("INSERT INTO categories (categoryID, categoryName) VALUES (1000, 'BenchRouters'), (1001, 'BenchServers')");
+            db.update("INSERT INTO category_node (categoryID, nodeID) SELECT 1000 + nodeID % 2, nodeID FROM node");
+
+            final JdbcFilterDao jdbcFilterDao = new JdbcFilterDao();
+            jdbcFilterDao.setDataSource(db);
+            jdbcFilterDao.setDatabaseSchemaConfigFactory(new DatabaseSchemaConfigFactory(getClass().getResourceAsStream("/database-schema.xml")));
+            jdbcFilterDao.afterPropertiesSet();
+
+            if ("inMemory".equals(dao)) {
+                final InMemoryFilterDao inMemoryFilterDao = new InMemoryFilterDao();
+                inMemoryFilterDao.setDelegate(jdbcFilterDao);
+                inMemoryFilterDao.setDataSource(db);
+                inMemoryFilterDao.setDatabaseSchemaConfigFactory(new DatabaseSchemaConfigFactory(getClass().getResourceAsStream("/database-schema.xml")));
+                inMemoryFilterDao.setEnabled(true);
+                inMemoryFilterDao.afterPropertiesSet();
+                filterDao = inMemoryFilterDao;
+            } else {
+                filterDao = jdbcFilterDao;
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            if (filterDao instanceof InMemoryFilterDao) {
+                ((InMemoryFilterDao) filterDao).destroy();
+            }
+            db.drop();
+        }
+
+        public int randomInterface() {
+            return ThreadLocalRandom.current().nextInt(1, nodes * interfacesPerNode + 1);
+        }
+
+        public String ipAddr(final int id) {
+            return "10." + ((id / 65536) % 256) + "." + ((id / 256) % 256) + "." + (id % 256);
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void isRuleMatching(FState state, Blackhole blackhole) {
+        // Shaped like the rules built by the NotificationManager for every notice
+        final int id = state.randomInterface();
+        final int nodeId = (id - 1) / state.interfacesPerNode + 1;
+        blackhole.consume(state.filterDao.isRuleMatching("((catincBenchRouters & isICMP) & (nodeId == " + nodeId
+                + ") & (ipAddr == '" + state.ipAddr(id) + "'))"));
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void isValid(FState state, Blackhole blackhole) {
+        blackhole.consume(state.filterDao.isValid(state.ipAddr(state.randomInterface()), "IPADDR IPLIKE 10.*.*.* & isSNMP"));
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void getActiveIPAddressList(FState state, Blackhole blackhole) {
+        blackhole.consume(state.filterDao.getActiveIPAddressList("IPADDR IPLIKE *.*.*.* & catincBenchServers"));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.opennms.core.utils.InetAddressUtils.addr;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.config.DatabaseSchemaConfigFactory;
+import org.opennms.netmgt.filter.FilterInventory.ColumnType;
+import org.opennms.netmgt.filter.FilterInventory.Interface;
+import org.opennms.netmgt.filter.FilterInventory.Node;
+import org.opennms.netmgt.filter.api.FilterDao;
+
+/**
+ * Tests for {@link InMemoryFilterDao}, the expected results are the ones
+ * {@link JdbcFilterDao} gives for the same rules and inventory.
+ */
+public class InMemoryFilterDaoTest {
+
+    private FilterDao m_delegate;
+    private InMemoryFilterDao m_dao;
+
+    @Before
+    public void setUp() throws Exception {
+        m_delegate = mock(FilterDao.class);
+        m_dao = new InMemoryFilterDao();
+        m_dao.setDelegate(m_delegate);
+        m_dao.setDatabaseSchemaConfigFactory(new DatabaseSchemaConfigFactory(getClass().getResourceAsStream("/database-schema.xml")));
+        m_dao.setEnabled(true);
+
+        final FilterInventory inventory = m_dao.getInventory();
+        inventory.putColumnType("node", "nodeID", ColumnType.NUMBER);
+        inventory.putColumnType("node", "nodeLabel", ColumnType.STRING);
+        inventory.putColumnType("node", "foreignSource", ColumnType.STRING);
+        inventory.putColumnType("node", "nodeCreateTime", ColumnType.OTHER);
+        inventory.putColumnType("ipInterface", "ipAddr", ColumnType.STRING);
+        inventory.putColumnType("ipInterface", "isManaged", ColumnType.STRING);
+        inventory.putColumnType("service", "serviceName", ColumnType.STRING);
+        inventory.putColumnType("categories", "categoryName", ColumnType.STRING);
+        inventory.putColumnType("assets", "city", ColumnType.STRING);
+
+        inventory.putNode(node(1, "router", "fs", Collections.singletonMap("city", "Ottawa"), Collections.singletonList("Routers"),
+                iface("10.0.0.1", "M", "ICMP", "SNMP"),
+                iface("10.0.0.2", "D", "ICMP")));
+        inventory.putNode(node(2, "server", null, null, Collections.emptyList(),
+                iface("192.168.1.1", "M", "HTTP", "ICMP"),
+                iface("192.168.1.2", "M")));
+        inventory.putNode(node(3, "switch", null, null, Collections.singletonList("Switches"),
+                iface("10.0.0.1", "M")));
+    }
+
+    @Test
+    public void testGetNodeMap() {
+        assertEquals(nodeMap(2, "server", 3, "switch"), m_dao.getNodeMap("nodeLabel LIKE 's%'"));
+        assertEquals(nodeMap(1, "router", 3, "switch"), m_dao.getNodeMap("ipAddr IPLIKE 10.*.*.*"));
+        assertEquals(nodeMap(1, "router", 2, "server"), m_dao.getNodeMap("nodeID IN (1, 2) & !catincSwitches"));
+        verifyNoInteractions(m_delegate);
+    }
+
+    @Test
+    public void testIsRuleMatchingNarrowedByNodeAndAddress() {
+        assertTrue(m_dao.isRuleMatching("((catincRouters) & (nodeId == 1) & (ipAddr == '10.0.0.1') & (serviceName == 'SNMP'))"));
+        assertFalse(m_dao.isRuleMatching("((catincRouters) & (nodeId == 3) & (ipAddr == '10.0.0.1'))"));
+        assertFalse(m_dao.isRuleMatching("((ipAddr IPLIKE *.*.*.*) & (nodeId == 2) & (ipAddr == '10.0.0.1'))"));
+        assertTrue(m_dao.isRuleMatching("(nodeId == 3) | (nodeId == 2)"));
+        verifyNoInteractions(m_delegate);
+    }
+
+    @Test
+    public void testDeletedInterfaces() {
+        assertEquals(addrs("10.0.0.1"), m_dao.getActiveIPAddressList("ipAddr IPLIKE 10.0.*.*"));
+        assertEquals(addrs("10.0.0.1", "10.0.0.2"), m_dao.getIPAddressList("ipAddr IPLIKE 10.0.*.*"));
+        assertFalse(m_dao.isValid("10.0.0.2", "ipAddr IPLIKE *.*.*.*"));
+        assertTrue(m_dao.isValid("10.0.0.1", "ipAddr IPLIKE *.*.*.*"));
+        verifyNoInteractions(m_delegate);
+    }
+
+    @Test
+    public void testServices() {
+        final Map<Integer, Map<InetAddress, Set<String>>> expected = new TreeMap<>();
+        expected.put(1, new HashMap<>());
+        expected.get(1).put(addr("10.0.0.1"), new TreeSet<>(Collections.singleton("ICMP")));
+        expected.get(1).put(addr("10.0.0.2"), new TreeSet<>(Collections.singleton("ICMP")));
+        expected.put(2, new HashMap<>());
+        expected.get(2).put(addr("192.168.1.1"), new TreeSet<>(Collections.singleton("ICMP")));
+        assertEquals(expected, m_dao.getNodeIPAddressServiceMap("isICMP"));
+
+        // 10.0.0.1 has no service on node 3, but has SNMP on node 1
+        assertEquals(addrs("10.0.0.2", "192.168.1.1", "192.168.1.2"), m_dao.getIPAddressList("notisSNMP"));
+        verifyNoInteractions(m_delegate);
+    }
+
+    @Test
+    public void testComparisonsWithNullAreUnknown() {
+        assertEquals(nodeMap(), m_dao.getNodeMap("!(foreignSource == 'fs')"));
+        assertEquals(nodeMap(2, "server", 3, "switch"), m_dao.getNodeMap("foreignSource IS NULL"));
+        verifyNoInteractions(m_delegate);
+    }
+
+    @Test
+    public void testJoinedTables() {
+        // Nodes without assets are not part of the join
+        assertEquals(nodeMap(1, "router"), m_dao.getNodeMap("city == 'Ottawa' | nodeLabel == 'server'"));
+        // Nodes without categories are left joined
+        assertEquals(nodeMap(2, "server", 3, "switch"), m_dao.getNodeMap("categoryName IS NULL | categoryName == 'Switches'"));
+        verifyNoInteractions(m_delegate);
+    }
+
+    @Test
+    public void testUnsupportedRulesAreDelegated() {
+        m_dao.getNodeMap("nodeCreateTime > '2020-01-01'");
+        verify(m_delegate).getNodeMap("nodeCreateTime > '2020-01-01'");
+
+        m_dao.isRuleMatching("snmpIfDescr == 'eth0'");
+        verify(m_delegate).isRuleMatching("snmpIfDescr == 'eth0'");
+
+        m_dao.getIPAddressList("ipAddr == '10.0.0.1'::inet");
+        verify(m_delegate).getIPAddressList("ipAddr == '10.0.0.1'::inet");
+    }
+
+    private static Node node(final int id, final String label, final String foreignSource, final Map<String, Object> assets,
+                             final List<String> categories, final Interface... interfaces) {
+        final Map<String, Object> attributes = new HashMap<>();
+        attributes.put("nodeid", (long) id);
+        attributes.put("nodelabel", label);
+        if (foreignSource != null) {
+            attributes.put("foreignsource", foreignSource);
+        }
+        final List<Map<String, Object>> categoryRecords = new ArrayList<>();
+        for (final String category : categories) {
+            categoryRecords.add(Collections.singletonMap("categoryname", category));
+        }
+        return new Node(id, attributes, assets, categoryRecords, Arrays.asList(interfaces));
+    }
+
+    private static Interface iface(final String ipAddr, final String isManaged, final String... services) {
+        final Map<String, Object> attributes = new HashMap<>();
+        attributes.put("ipaddr", ipAddr);
+        attributes.put("ismanaged", isManaged);
+        final List<Map<String, Object>> serviceRecords = new ArrayList<>();
+        for (final String service : services) {
+            serviceRecords.add(Collections.singletonMap("servicename", service));
+        }
+        return new Interface(attributes, serviceRecords);
+    }
+
+    private static Map<Integer, String> nodeMap(final Object... idsAndLabels) {
+        final Map<Integer, String> nodeMap = new TreeMap<>();
+        for (int i = 0; i < idsAndLabels.length; i += 2) {
+            nodeMap.put((Integer) idsAndLabels[i], (String) idsAndLabels[i + 1]);
+        }
+        return nodeMap;
+    }
+
+    private static List<InetAddress> addrs(final String... addrs) {
+        final List<InetAddress> list = new ArrayList<>();
+        for (final String a : addrs) {
+            list.add(addr(a));
+        }
+        return list;
+    }
+}
@@ -98,6 +98,15 @@ public interface IpInterfaceDao extends LegacyOnmsDao<OnmsIpInterface, Integer>
      */
     List<OnmsIpInterface> findByServiceType(String svcName);
 
+    /**
+     * Finds the ids of the interfaces with the given service, without
+     * loading the interfaces themselves.
+     *
+     * @param svcName a {@link java.lang.String} object.
+     * @return the ids of the matching interfaces
+     */
+    List<Integer> findIdsByServiceType(String svcName);
+
     /**
      * <p>findHierarchyByServiceType</p>
      *
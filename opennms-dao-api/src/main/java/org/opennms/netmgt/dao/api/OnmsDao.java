@@ -23,6 +23,7 @@ package org.opennms.netmgt.dao.api;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.opennms.core.criteria.Criteria;
 
@@ -56,6 +57,15 @@ public interface OnmsDao<T, K extends Serializable> {
 
     int countMatching(final Criteria onmsCrit);
 
+    /**
+     * Passes the entities matching the given criteria to the consumer, one at a time.
+     * Implementations may scroll through the results and detach the entities once they
+     * have been consumed, so that large result sets do not have to be held in memory.
+     */
+    default void forEachMatching(Criteria criteria, Consumer<T> consumer) {
+        findMatching(criteria).forEach(consumer);
+    }
+
     T get(K id);
 
     T load(K id);
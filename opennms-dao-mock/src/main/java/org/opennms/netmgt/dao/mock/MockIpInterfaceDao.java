@@ -169,6 +169,11 @@ public class MockIpInterfaceDao extends AbstractMockDao<OnmsIpInterface, Integer
         throw new UnsupportedOperationException("Not yet implemented!");
     }
 
+    @Override
+    public List<Integer> findIdsByServiceType(final String svcName) {
+        throw new UnsupportedOperationException("Not yet implemented!");
+    }
+
     @Override
     public List<OnmsIpInterface> findHierarchyByServiceType(final String svcName) {
         throw new UnsupportedOperationException("Not yet implemented!");
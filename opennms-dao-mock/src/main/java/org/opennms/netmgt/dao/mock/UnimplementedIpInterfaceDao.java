@@ -147,6 +147,11 @@ public abstract class UnimplementedIpInterfaceDao implements IpInterfaceDao {
         throw new UnsupportedOperationException("Not yet implemented!");
     }
 
+    @Override
+    public List<Integer> findIdsByServiceType(String svcName) {
+        throw new UnsupportedOperationException("Not yet implemented!");
+    }
+
     @Override
     public List<OnmsIpInterface> findHierarchyByServiceType(String svcName) {
         throw new UnsupportedOperationException("Not yet implemented!");
@@ -31,6 +31,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.persistence.Table;
@@ -41,6 +42,8 @@ import org.hibernate.EntityMode;
 import org.hibernate.HibernateException;
 import org.hibernate.LockMode;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.criterion.Projections;
 import org.hibernate.metadata.ClassMetadata;
@@ -65,6 +68,7 @@ import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
 public abstract class AbstractDaoHibernate<T, K extends Serializable> extends HibernateDaoSupport implements OnmsDao<T, K> {
     
     private static final Logger LOG = LoggerFactory.getLogger(AbstractDaoHibernate.class);
+    private static final int SCROLL_FETCH_SIZE = 500;
     Class<T> m_entityClass;
     private String m_lockName;
     protected final HibernateCriteriaConverter m_criteriaConverter = new HibernateCriteriaConverter();
@@ -276,6 +280,39 @@ public abstract class AbstractDaoHibernate<T, K extends Serializable> extends Hi
         }
     }
 
+    /**
+     * Scrolls through the matching entities and evicts each of them from the session
+     * once it has been consumed. This needs to run within a transaction for the JDBC
+     * driver to honor the fetch size.
+     */
+    @Override
+    public void forEachMatching(final org.opennms.core.criteria.Criteria criteria, final Consumer<T> consumer) {
+        if (criteria.isMultipleAnd()) {
+            findMatching(criteria).forEach(consumer);
+            return;
+        }
+        getHibernateTemplate().execute(new HibernateCallback<Void>() {
+            @Override
+            public Void doInHibernate(final Session session) throws HibernateException, SQLException {
+                LOG.debug("criteria = {}", criteria);
+                final Criteria hibernateCriteria = m_criteriaConverter.convert(criteria, session);
+                hibernateCriteria.setFetchSize(SCROLL_FETCH_SIZE);
+                final ScrollableResults results = hibernateCriteria.scroll(ScrollMode.FORWARD_ONLY);
+                try {
+                    while (results.next()) {
+                        @SuppressWarnings("unchecked")
+                        final T entity = (T) results.get(0);
+                        consumer.accept(entity);
+                        session.evict(entity);
+                    }
+                } finally {
+                    results.close();
+                }
+                return null;
+            }
+        });
+    }
+
     private List<T> findMultiAndMatching(final org.opennms.core.criteria.Criteria criteria){
         Set<T> allUniqueRecords = new LinkedHashSet<>();
         Collection<Restriction> allRestrictions = criteria.getRestrictions();
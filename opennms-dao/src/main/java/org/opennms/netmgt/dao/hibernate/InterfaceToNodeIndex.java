@@ -0,0 +1,354 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.dao.hibernate;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.opennms.core.utils.LocationUtils;
+import org.opennms.netmgt.dao.api.InterfaceToNodeCache;
+import org.opennms.netmgt.model.PrimaryType;
+
+/**
+ * Compact index of the managed addresses used by the {@link InterfaceToNodeCacheDaoImpl}.
+ * <p>
+ * Keys are stored in primitive arrays of an open addressing hash table: the location is
+ * replaced by a small integer id and the address is packed into two longs. The values
+ * of a key are kept in an immutable int array of (type rank, node id, interface id)
+ * triples, sorted in the same order as the {@link PrimaryType}s, node ids and
+ * interface ids they represent.
+ * <p>
+ * Lookups are lock-free. Updates are serialized and publish a slot by writing its
+ * key first and its values last, through a volatile store. A slot's key is never
+ * changed once published, removed keys keep their slot as a tombstone until the
+ * table is rehashed and rehashing publishes a new table.
+ */
+final class InterfaceToNodeIndex {
+
+    private static final int[] TOMBSTONE = new int[0];
+
+    private static final int STRIDE = 3;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final Map<String, Integer> m_locationIds = new ConcurrentHashMap<>();
+
+    private volatile Table m_table = new Table(MIN_CAPACITY);
+
+    private volatile int m_size;
+
+    private static final class Table {
+        private final int[] m_locations;
+        private final long[] m_high;
+        private final long[] m_low;
+        private final AtomicReferenceArray<int[]> m_values;
+        private final int m_mask;
+        // Number of slots in use, including tombstones
+        private int m_used;
+
+        private Table(final int capacity) {
+            m_locations = new int[capacity];
+            m_high = new long[capacity];
+            m_low = new long[capacity];
+            m_values = new AtomicReferenceArray<>(capacity);
+            m_mask = capacity - 1;
+        }
+
+        private int capacity() {
+            return m_mask + 1;
+        }
+
+        /**
+         * Returns the slot of the given key, or the index of the first empty slot
+         * in its probe sequence, encoded as {@code -(slot + 1)}.
+         */
+        private int find(final int location, final long high, final long low) {
+            int slot = hash(location, high, low) & m_mask;
+            while (true) {
+                final int[] values = m_values.get(slot);
+                if (values == null) {
+                    return -(slot + 1);
+                }
+                if (m_locations[slot] == location && m_high[slot] == high && m_low[slot] == low) {
+                    return slot;
+                }
+                slot = (slot + 1) & m_mask;
+            }
+        }
+
+        private void publish(final int slot, final int location, final long high, final long low, final int[] values) {
+            m_locations[slot] = location;
+            m_high[slot] = high;
+            m_low[slot] = low;
+            m_values.set(slot, values);
+            m_used++;
+        }
+    }
+
+    /**
+     * Returns the entry with the lowest type, node id and interface id
+     * for the given address, or {@code null} if it is not known.
+     */
+    public InterfaceToNodeCache.Entry getFirst(final String location, final InetAddress address) {
+        final Integer locationId = m_locationIds.get(LocationUtils.getEffectiveLocationName(location));
+        if (locationId == null) {
+            return null;
+        }
+
+        final Table table = m_table;
+        final byte[] bytes = ipv6Bytes(address);
+        final int locationKey = locationKey(locationId, bytes);
+        final long high = high(bytes);
+        final long low = low(address, bytes);
+
+        int slot = hash(locationKey, high, low) & table.m_mask;
+        while (true) {
+            // Read the values before the key, the volatile read makes the key written before them visible
+            final int[] values = table.m_values.get(slot);
+            if (values == null) {
+                return null;
+            }
+            if (table.m_locations[slot] == locationKey && table.m_high[slot] == high && table.m_low[slot] == low) {
+                return values.length == 0 ? null : new InterfaceToNodeCache.Entry(values[1], values[2]);
+            }
+            slot = (slot + 1) & table.m_mask;
+        }
+    }
+
+    /**
+     * Adds the given interface to the address.
+     *
+     * @return true if the entry was not already known
+     */
+    public synchronized boolean put(final String location, final InetAddress address, final int nodeId, final int interfaceId, final PrimaryType type) {
+        final String effectiveLocation = LocationUtils.getEffectiveLocationName(location);
+        Integer locationId = m_locationIds.get(effectiveLocation);
+        if (locationId == null) {
+            locationId = m_locationIds.size();
+            m_locationIds.put(effectiveLocation, locationId);
+        }
+
+        final byte[] bytes = ipv6Bytes(address);
+        final int locationKey = locationKey(locationId, bytes);
+        final long high = high(bytes);
+        final long low = low(address, bytes);
+
+        Table table = m_table;
+        int slot = table.find(locationKey, high, low);
+        if (slot >= 0) {
+            final int[] values = table.m_values.get(slot);
+            final int[] updated = insert(values, rank(type), nodeId, interfaceId);
+            if (updated == values) {
+                return false;
+            }
+            table.m_values.set(slot, updated);
+        } else {
+            if ((table.m_used + 1) * 2 > table.capacity()) {
+                table = rehash(table);
+                slot = table.find(locationKey, high, low);
+            }
+            table.publish(-(slot + 1), locationKey, high, low, new int[] { rank(type), nodeId, interfaceId });
+        }
+        m_size++;
+        return true;
+    }
+
+    /**
+     * Removes the entries of the given node from the address.
+     *
+     * @return true if any entry was removed
+     */
+    public synchronized boolean remove(final String location, final InetAddress address, final int nodeId) {
+        final Integer locationId = m_locationIds.get(LocationUtils.getEffectiveLocationName(location));
+        if (locationId == null) {
+            return false;
+        }
+
+        final Table table = m_table;
+        final byte[] bytes = ipv6Bytes(address);
+        final int slot = table.find(locationKey(locationId, bytes), high(bytes), low(address, bytes));
+        return slot >= 0 && removeNode(table, slot, nodeId);
+    }
+
+    /**
+     * Removes the entries of the given node from all addresses.
+     *
+     * @return the number of addresses that referenced the node
+     */
+    public synchronized int removeNode(final int nodeId) {
+        final Table table = m_table;
+        int removed = 0;
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (removeNode(table, slot, nodeId)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        m_table = new Table(MIN_CAPACITY);
+        m_size = 0;
+    }
+
+    /**
+     * Returns the number of (address, interface) entries.
+     */
+    public int size() {
+        return m_size;
+    }
+
+    private boolean removeNode(final Table table, final int slot, final int nodeId) {
+        final int[] values = table.m_values.get(slot);
+        if (values == null || values == TOMBSTONE) {
+            return false;
+        }
+
+        int kept = 0;
+        final int[] remaining = new int[values.length];
+        for (int i = 0; i < values.length; i += STRIDE) {
+            if (values[i + 1] != nodeId) {
+                System.arraycopy(values, i, remaining, kept, STRIDE);
+                kept += STRIDE;
+            }
+        }
+        if (kept == values.length) {
+            return false;
+        }
+
+        table.m_values.set(slot, kept == 0 ? TOMBSTONE : Arrays.copyOf(remaining, kept));
+        m_size -= (values.length - kept) / STRIDE;
+        return true;
+    }
+
+    private Table rehash(final Table table) {
+        int live = 0;
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            final int[] values = table.m_values.get(slot);
+            if (values != null && values != TOMBSTONE) {
+                live++;
+            }
+        }
+
+        // Keep the load factor of the new table at or below 1/4, leaving room for at least as many insertions
+        int capacity = MIN_CAPACITY;
+        while (capacity < (live + 1) * 4) {
+            capacity <<= 1;
+        }
+
+        final Table rehashed = new Table(capacity);
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            final int[] values = table.m_values.get(slot);
+            if (values != null && values != TOMBSTONE) {
+                final int location = table.m_locations[slot];
+                final long high = table.m_high[slot];
+                final long low = table.m_low[slot];
+                rehashed.publish(-(rehashed.find(location, high, low) + 1), location, high, low, values);
+            }
+        }
+        m_table = rehashed;
+        return rehashed;
+    }
+
+    private static int[] insert(final int[] values, final int rank, final int nodeId, final int interfaceId) {
+        int position = 0;
+        while (position < values.length) {
+            final int cmp = compare(values[position], values[position + 1], values[position + 2], rank, nodeId, interfaceId);
+            if (cmp == 0) {
+                return values;
+            } else if (cmp > 0) {
+                break;
+            }
+            position += STRIDE;
+        }
+
+        final int[] inserted = new int[values.length + STRIDE];
+        System.arraycopy(values, 0, inserted, 0, position);
+        inserted[position] = rank;
+        inserted[position + 1] = nodeId;
+        inserted[position + 2] = interfaceId;
+        System.arraycopy(values, position, inserted, position + STRIDE, values.length - position);
+        return inserted;
+    }
+
+    private static int compare(final int rank1, final int nodeId1, final int interfaceId1, final int rank2, final int nodeId2, final int interfaceId2) {
+        if (rank1 != rank2) {
+            return Integer.compare(rank1, rank2);
+        }
+        if (nodeId1 != nodeId2) {
+            return Integer.compare(nodeId1, nodeId2);
+        }
+        return Integer.compare(interfaceId1, interfaceId2);
+    }
+
+    /**
+     * Ranks the type by its position in the natural order of {@link PrimaryType}s,
+     * where {@link PrimaryType#NOT_ELIGIBLE} is the lowest.
+     */
+    private static int rank(final PrimaryType type) {
+        return type == null ? 0 : type.compareTo(PrimaryType.NOT_ELIGIBLE);
+    }
+
+    /**
+     * Combines the location id with the address family, so that IPv4 addresses
+     * do not collide with the IPv4-compatible IPv6 addresses.
+     */
+    private static int locationKey(final int locationId, final byte[] ipv6Bytes) {
+        return locationId << 1 | (ipv6Bytes == null ? 0 : 1);
+    }
+
+    /**
+     * Returns the bytes of an IPv6 address, or {@code null} for IPv4 addresses.
+     */
+    private static byte[] ipv6Bytes(final InetAddress address) {
+        return address instanceof Inet4Address ? null : address.getAddress();
+    }
+
+    private static long high(final byte[] ipv6Bytes) {
+        return ipv6Bytes == null ? 0 : pack(ipv6Bytes, 0);
+    }
+
+    private static long low(final InetAddress address, final byte[] ipv6Bytes) {
+        // The hash code of an IPv4 address is the address itself, which avoids copying its bytes
+        return ipv6Bytes == null ? address.hashCode() & 0xFFFFFFFFL : pack(ipv6Bytes, 8);
+    }
+
+    private static long pack(final byte[] bytes, final int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static int hash(final int location, final long high, final long low) {
+        long h = low * 0x9E3779B97F4A7C15L + high * 0xC2B2AE3D27D4EB4FL + location;
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 29;
+        return (int) h;
+    }
+}
@@ -108,6 +108,12 @@ public class IpInterfaceDaoHibernate extends AbstractDaoHibernate<OnmsIpInterfac
         return find(m_findByServiceTypeQuery, svcName);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public List<Integer> findIdsByServiceType(String svcName) {
+        return findObjects(Integer.class, "select distinct ipInterface.id from OnmsIpInterface as ipInterface join ipInterface.monitoredServices as monSvc where monSvc.serviceType.name = ?", svcName);
+    }
+
     /** {@inheritDoc} */
     @Override
     public List<OnmsIpInterface> findHierarchyByServiceType(String svcName) {
@@ -92,7 +92,7 @@ public class OutageDaoHibernate extends AbstractDaoHibernate<OnmsOutage, Integer
     public Map<Integer, Set<OnmsOutage>> currentOutagesByServiceId() {
         // Retrieve open outages and the associated service id
         final List<Object[]> serviceOutageTuples = getHibernateTemplate().execute((HibernateCallback<List<Object[]>>) session ->
-                session.createQuery("select o.monitoredService.id, o from OnmsOutage as o where o.perspective is null and o.ifRegainedService is null")
+                session.createQuery("select o.monitoredService.id, o from OnmsOutage as o left join fetch o.serviceLostEvent where o.perspective is null and o.ifRegainedService is null")
                         .list());
         // Group the results
         Map<Integer, Set<OnmsOutage>> outagesByServiceId = new HashMap<>();
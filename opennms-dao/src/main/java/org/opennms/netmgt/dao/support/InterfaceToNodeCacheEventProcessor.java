@@ -27,6 +27,7 @@ import org.opennms.netmgt.events.api.EventConstants;
 import org.opennms.netmgt.events.api.annotations.EventHandler;
 import org.opennms.netmgt.events.api.annotations.EventListener;
 import org.opennms.netmgt.events.api.model.IEvent;
+import org.opennms.netmgt.model.OnmsIpInterface;
 import org.opennms.netmgt.model.OnmsNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -127,6 +128,29 @@ public class InterfaceToNodeCacheEventProcessor implements InitializingBean {
         m_cache.setNodeId(newNode.getLocation().getLocationName(), event.getInterfaceAddress(), newNode.getId());
     }
 
+    @EventHandler(uei = EventConstants.NODE_LOCATION_CHANGED_EVENT_UEI)
+    @Transactional
+    public void handleNodeLocationChanged(IEvent event) {
+        Long nodeId = event.getNodeid();
+        LOG.debug("Received event: {} with nodeId = {}", event.getUei(), nodeId);
+        if (nodeId == null) {
+            LOG.error("{} : Event with no node ID: {}", EventConstants.NODE_LOCATION_CHANGED_EVENT_UEI, event.toString());
+            return;
+        }
+        OnmsNode node = m_nodeDao.get(nodeId.intValue());
+        if (node == null) {
+            LOG.warn("{} : Cannot find node in DB: {}", EventConstants.NODE_LOCATION_CHANGED_EVENT_UEI, nodeId);
+            return;
+        }
+        // re-add the interfaces of this node at its new location
+        m_cache.removeInterfacesForNode(nodeId.intValue());
+        for (final OnmsIpInterface iface : node.getIpInterfaces()) {
+            if (!"D".equals(iface.getIsManaged())) {
+                m_cache.setNodeId(node.getLocation().getLocationName(), iface.getIpAddress(), nodeId.intValue());
+            }
+        }
+    }
+
     @EventHandler(uei = EventConstants.NODE_DELETED_EVENT_UEI)
     @Transactional
     public void handleNodeDeleted(IEvent event) {
@@ -143,6 +143,16 @@ public class IpInterfaceDaoIT implements InitializingBean {
         assertEquals(addr("192.168.1.1"), service.getIpAddress());
     }
 
+    @Test
+    @Transactional
+    public void testGetIdsByService() {
+        List<Integer> ids = m_ipInterfaceDao.findIdsByServiceType("SNMP");
+        assertEquals(6, ids.size());
+        for (OnmsIpInterface iface : m_ipInterfaceDao.findByServiceType("SNMP")) {
+            assertTrue(ids.contains(iface.getId()));
+        }
+    }
+
 	@Test
     @Transactional
     public void testCountMatchingInterfaces() {
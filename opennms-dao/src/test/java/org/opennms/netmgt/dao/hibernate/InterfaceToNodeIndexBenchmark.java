@@ -0,0 +1,126 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.dao.hibernate;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.netmgt.model.PrimaryType;
+
+/**
+ * Use the Java Microbenchmarking Harness (JMH) to measure lookups in the {@link InterfaceToNodeIndex},
+ * on their own and while another thread keeps adding and removing interfaces.
+ * <p>
+ * Every node has four IPv4 addresses and one IPv6 address, spread over a handful of locations.
+ */
+public class InterfaceToNodeIndexBenchmark {
+
+    private static final String[] LOCATIONS = new String[] { "Default", "Minion-1", "Minion-2", "Minion-3" };
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class IndexState {
+
+        @Param({"10000", "1000000"})
+        public int addresses;
+
+        public InterfaceToNodeIndex index;
+        public String[] locations;
+        public InetAddress[] ipAddresses;
+        public final AtomicInteger counter = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            index = new InterfaceToNodeIndex();
+            locations = new String[addresses];
+            ipAddresses = new InetAddress[addresses];
+            for (int i = 0; i < addresses; i++) {
+                locations[i] = LOCATIONS[(i / 5) % LOCATIONS.length];
+                ipAddresses[i] = address(i);
+                index.put(locations[i], ipAddresses[i], i / 5, i, PrimaryType.PRIMARY);
+            }
+        }
+
+        public int next() {
+            return (counter.getAndIncrement() & Integer.MAX_VALUE) % addresses;
+        }
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    public void getFirst(IndexState state, Blackhole blackhole) {
+        final int i = state.next();
+        blackhole.consume(state.index.getFirst(state.locations[i], state.ipAddresses[i]));
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    @Group("concurrentUpdates")
+    @GroupThreads(3)
+    public void getFirstWhileUpdating(IndexState state, Blackhole blackhole) {
+        final int i = state.next();
+        blackhole.consume(state.index.getFirst(state.locations[i], state.ipAddresses[i]));
+    }
+
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    @Benchmark
+    @Group("concurrentUpdates")
+    @GroupThreads(1)
+    public void reparentInterface(IndexState state, Blackhole blackhole) {
+        final int i = state.next();
+        final int nodeId = i / 5;
+        // Move the interface to another node and back again
+        blackhole.consume(state.index.remove(state.locations[i], state.ipAddresses[i], nodeId));
+        blackhole.consume(state.index.put(state.locations[i], state.ipAddresses[i], nodeId + 1, i, PrimaryType.PRIMARY));
+        blackhole.consume(state.index.remove(state.locations[i], state.ipAddresses[i], nodeId + 1));
+        blackhole.consume(state.index.put(state.locations[i], state.ipAddresses[i], nodeId, i, PrimaryType.PRIMARY));
+    }
+
+    private static InetAddress address(final int i) {
+        if (i % 5 == 4) {
+            return InetAddressUtils.getInetAddress(new byte[] { (byte) 0xfd, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                    (byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) i });
+        }
+        return InetAddressUtils.getInetAddress(new byte[] { (byte) (10 + (i >> 24)), (byte) (i >> 16), (byte) (i >> 8), (byte) i });
+    }
+}
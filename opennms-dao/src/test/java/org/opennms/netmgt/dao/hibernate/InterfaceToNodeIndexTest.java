@@ -0,0 +1,152 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.dao.hibernate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.netmgt.dao.api.InterfaceToNodeCache.Entry;
+import org.opennms.netmgt.model.PrimaryType;
+
+public class InterfaceToNodeIndexTest {
+
+    private static final InetAddress IPV4 = InetAddressUtils.addr("10.0.0.1");
+    private static final InetAddress IPV4_COMPATIBLE = InetAddressUtils.addr("::a00:1");
+    private static final InetAddress IPV6 = InetAddressUtils.addr("fe80::1:2:3:4");
+
+    @Test
+    public void canLookupAddressesByLocation() {
+        final InterfaceToNodeIndex index = new InterfaceToNodeIndex();
+        assertTrue(index.put(null, IPV4, 1, 11, PrimaryType.PRIMARY));
+        assertTrue(index.put("Remote", IPV4, 2, 21, PrimaryType.PRIMARY));
+        assertTrue(index.put("Default", IPV6, 3, 31, PrimaryType.PRIMARY));
+        assertFalse(index.put("Default", IPV4, 1, 11, PrimaryType.PRIMARY));
+        assertEquals(3, index.size());
+
+        assertEquals(new Entry(1, 11), index.getFirst("Default", IPV4));
+        assertEquals(new Entry(1, 11), index.getFirst("", IPV4));
+        assertEquals(new Entry(2, 21), index.getFirst("Remote", IPV4));
+        assertEquals(new Entry(3, 31), index.getFirst(null, IPV6));
+        assertNull(index.getFirst("Unknown", IPV4));
+        assertNull(index.getFirst("Remote", IPV6));
+        // IPv4 addresses must not match their IPv4-compatible IPv6 counterparts
+        assertNull(index.getFirst(null, IPV4_COMPATIBLE));
+    }
+
+    @Test
+    public void canOrderEntriesOfTheSameAddress() {
+        final InterfaceToNodeIndex index = new InterfaceToNodeIndex();
+        index.put(null, IPV4, 5, 51, PrimaryType.PRIMARY);
+        index.put(null, IPV4, 4, 41, PrimaryType.SECONDARY);
+        index.put(null, IPV4, 3, 31, PrimaryType.SECONDARY);
+        assertEquals(new Entry(3, 31), index.getFirst(null, IPV4));
+
+        index.put(null, IPV4, 9, 91, PrimaryType.NOT_ELIGIBLE);
+        assertEquals(new Entry(9, 91), index.getFirst(null, IPV4));
+        assertEquals(4, index.size());
+
+        assertTrue(index.remove(null, IPV4, 9));
+        assertFalse(index.remove(null, IPV4, 9));
+        assertEquals(new Entry(3, 31), index.getFirst(null, IPV4));
+
+        assertTrue(index.remove(null, IPV4, 3));
+        assertTrue(index.remove(null, IPV4, 4));
+        assertTrue(index.remove(null, IPV4, 5));
+        assertNull(index.getFirst(null, IPV4));
+        assertEquals(0, index.size());
+
+        // Re-use the removed key
+        assertTrue(index.put(null, IPV4, 6, 61, PrimaryType.PRIMARY));
+        assertEquals(new Entry(6, 61), index.getFirst(null, IPV4));
+    }
+
+    @Test
+    public void canRemoveAllInterfacesOfANode() {
+        final InterfaceToNodeIndex index = new InterfaceToNodeIndex();
+        for (int i = 0; i < 10_000; i++) {
+            index.put(null, address(i), i % 10, i, PrimaryType.PRIMARY);
+            index.put("Remote", address(i), 10, i, PrimaryType.SECONDARY);
+        }
+        assertEquals(20_000, index.size());
+
+        assertEquals(1_000, index.removeNode(3));
+        assertEquals(19_000, index.size());
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 10 == 3) {
+                assertNull(index.getFirst(null, address(i)));
+            } else {
+                assertEquals(new Entry(i % 10, i), index.getFirst(null, address(i)));
+            }
+            assertEquals(new Entry(10, i), index.getFirst("Remote", address(i)));
+        }
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.getFirst("Remote", address(1)));
+    }
+
+    @Test
+    public void canLookupWhileUpdating() throws InterruptedException {
+        final InterfaceToNodeIndex index = new InterfaceToNodeIndex();
+        for (int i = 0; i < 1_000; i++) {
+            index.put(null, address(i), 1, i, PrimaryType.PRIMARY);
+        }
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (int i = 0; i < 1_000; i++) {
+                    final Entry entry = index.getFirst(null, address(i));
+                    if (entry == null || entry.interfaceId != i) {
+                        failure.set("Missing or wrong entry for " + address(i));
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        // Grow the table and churn through tombstones while the reader is running
+        for (int i = 1_000; i < 50_000; i++) {
+            index.put(null, address(i), 2, i, PrimaryType.PRIMARY);
+            index.remove(null, address(i - 500), 2);
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(1_500, index.size());
+    }
+
+    private static InetAddress address(final int i) {
+        return InetAddressUtils.getInetAddress(new byte[] { 10, (byte) (i >> 16), (byte) (i >> 8), (byte) i });
+    }
+}
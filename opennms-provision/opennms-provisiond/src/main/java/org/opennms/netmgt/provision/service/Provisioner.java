@@ -43,7 +43,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import org.opennms.core.spring.BeanUtils;
-import org.opennms.core.tasks.DefaultTaskCoordinator;
+import org.opennms.core.tasks.AbstractTaskCoordinator;
 import org.opennms.core.tasks.Task;
 import org.opennms.core.tasks.TaskCoordinator;
 import org.opennms.core.tracing.api.TracerRegistry;
@@ -197,7 +197,7 @@ public class Provisioner implements SpringServiceDaemon {
     
 
     public ExecutorService getTaskCoordinatorExecutorService(final String name) {
-        return (ScheduledExecutorService)((DefaultTaskCoordinator)m_taskCoordinator).getExecutor(name);
+        return (ScheduledExecutorService)((AbstractTaskCoordinator)m_taskCoordinator).getExecutor(name);
     }
 
     /**
@@ -231,6 +231,22 @@ public class CollectableService implements ReadyRunnable {
         m_spec.refresh(collectorConfigDao);
     }
 
+    /**
+     * Releases the collector and closes the thresholding session acquired
+     * when this service was created. Only used for services that are
+     * discarded without ever being scheduled.
+     */
+    void release() {
+        m_spec.release(m_agent);
+        if (m_thresholdingSession != null) {
+            try {
+                m_thresholdingSession.close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close the thresholding session for {}/{}.", m_nodeId, getHostAddress(), e);
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString() {
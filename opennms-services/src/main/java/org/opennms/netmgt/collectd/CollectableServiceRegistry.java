@@ -0,0 +1,302 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.collectd;
+
+import static org.opennms.core.utils.InetAddressUtils.str;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+/**
+ * Registry of the {@link CollectableService} instances known to {@link Collectd},
+ * indexed by node id and by (interface, service, package) within a node.
+ *
+ * All mutations for a given node are serialized on that node's entry of the
+ * index, so events targeting different nodes and the startup scheduling threads
+ * never contend on a single lock. Iteration is weakly consistent.
+ */
+class CollectableServiceRegistry extends AbstractCollection<CollectableService> {
+
+    private final ConcurrentMap<Integer, Map<Key, CollectableService>> m_servicesByNode = new ConcurrentHashMap<>();
+
+    private final AtomicInteger m_size = new AtomicInteger();
+
+    /**
+     * Adds the given service unless a service with the same node, interface,
+     * service and package is already registered.
+     *
+     * @return true if the service was added
+     */
+    @Override
+    public boolean add(final CollectableService cSvc) {
+        return putIfAbsent(cSvc.getNodeId(), Key.of(cSvc), cSvc);
+    }
+
+    /**
+     * @return true if a service is registered for the given node, interface,
+     *         service and package
+     */
+    public boolean contains(final int nodeId, final String ipAddress, final String svcName, final String pkgName) {
+        final Map<Key, CollectableService> services = m_servicesByNode.get(nodeId);
+        return services != null && services.containsKey(new Key(ipAddress, svcName, pkgName));
+    }
+
+    /**
+     * @return the services registered for the given node
+     */
+    public List<CollectableService> getByNode(final int nodeId) {
+        final Map<Key, CollectableService> services = m_servicesByNode.get(nodeId);
+        return services == null ? Collections.emptyList() : new ArrayList<>(services.values());
+    }
+
+    /**
+     * @return the services registered for the given node and interface
+     */
+    public List<CollectableService> getByInterface(final int nodeId, final String ipAddress) {
+        final List<CollectableService> matches = new ArrayList<>();
+        final Map<Key, CollectableService> services = m_servicesByNode.get(nodeId);
+        if (services != null) {
+            services.forEach((key, cSvc) -> {
+                if (Objects.equals(key.ipAddress, ipAddress)) {
+                    matches.add(cSvc);
+                }
+            });
+        }
+        return matches;
+    }
+
+    /**
+     * @return the services registered for the given interface on any node
+     */
+    public List<CollectableService> getByAddress(final String ipAddress) {
+        final List<CollectableService> matches = new ArrayList<>();
+        m_servicesByNode.values().forEach(services -> services.forEach((key, cSvc) -> {
+            if (Objects.equals(key.ipAddress, ipAddress)) {
+                matches.add(cSvc);
+            }
+        }));
+        return matches;
+    }
+
+    /**
+     * Removes all services registered for the given node.
+     *
+     * @return the removed services
+     */
+    public List<CollectableService> removeByNode(final int nodeId) {
+        return removeFromNode(nodeId, (key, cSvc) -> true);
+    }
+
+    /**
+     * Removes all services registered for the given node and interface.
+     *
+     * @return the removed services
+     */
+    public List<CollectableService> removeByInterface(final int nodeId, final String ipAddress) {
+        return removeFromNode(nodeId, (key, cSvc) -> Objects.equals(key.ipAddress, ipAddress));
+    }
+
+    /**
+     * Removes all services with the given name registered for the given node
+     * and interface.
+     *
+     * @return the removed services
+     */
+    public List<CollectableService> removeByService(final int nodeId, final String ipAddress, final String svcName) {
+        return removeFromNode(nodeId, (key, cSvc) -> Objects.equals(key.ipAddress, ipAddress) && Objects.equals(key.serviceName, svcName));
+    }
+
+    /**
+     * Removes the services with the given interface from any node.
+     *
+     * @return the removed services
+     */
+    public List<CollectableService> removeByAddress(final String ipAddress) {
+        final List<CollectableService> removed = new ArrayList<>();
+        for (final Integer nodeId : m_servicesByNode.keySet()) {
+            removed.addAll(removeFromNode(nodeId, (key, cSvc) -> Objects.equals(key.ipAddress, ipAddress)));
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the given service to the index of another node. Used when the
+     * interface of the service is reparented, before the service itself
+     * picks up the new node id on its next run.
+     *
+     * @return false if the new node already has a service with the same
+     *         interface, service and package. The given service is then
+     *         no longer registered and must be unscheduled by the caller.
+     */
+    public boolean move(final CollectableService cSvc, final int oldNodeId, final int newNodeId) {
+        if (oldNodeId == newNodeId) {
+            return true;
+        }
+        final Key key = Key.of(cSvc);
+        if (removeFromNode(oldNodeId, (k, s) -> s == cSvc).isEmpty()) {
+            return true;
+        }
+        return putIfAbsent(newNodeId, key, cSvc);
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (!(o instanceof CollectableService)) {
+            return false;
+        }
+        final CollectableService cSvc = (CollectableService) o;
+        final BiPredicate<Key, CollectableService> same = (k, s) -> s == cSvc;
+        // Services are indexed under their node id unless they were moved
+        if (!removeFromNode(cSvc.getNodeId(), same).isEmpty()) {
+            return true;
+        }
+        for (final Integer nodeId : m_servicesByNode.keySet()) {
+            if (!removeFromNode(nodeId, same).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<CollectableService> iterator() {
+        final Iterator<Map<Key, CollectableService>> nodes = m_servicesByNode.values().iterator();
+        return new Iterator<CollectableService>() {
+            private Iterator<CollectableService> m_current = Collections.emptyIterator();
+            private CollectableService m_last;
+
+            @Override
+            public boolean hasNext() {
+                while (!m_current.hasNext() && nodes.hasNext()) {
+                    m_current = nodes.next().values().iterator();
+                }
+                return m_current.hasNext();
+            }
+
+            @Override
+            public CollectableService next() {
+                hasNext();
+                m_last = m_current.next();
+                return m_last;
+            }
+
+            @Override
+            public void remove() {
+                if (m_last == null) {
+                    throw new IllegalStateException();
+                }
+                CollectableServiceRegistry.this.remove(m_last);
+                m_last = null;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return m_size.get();
+    }
+
+    @Override
+    public void clear() {
+        for (final Integer nodeId : m_servicesByNode.keySet()) {
+            removeByNode(nodeId);
+        }
+    }
+
+    private boolean putIfAbsent(final int nodeId, final Key key, final CollectableService cSvc) {
+        final boolean[] added = { false };
+        m_servicesByNode.compute(nodeId, (id, services) -> {
+            if (services == null) {
+                services = new ConcurrentHashMap<>();
+            }
+            if (services.putIfAbsent(key, cSvc) == null) {
+                added[0] = true;
+            }
+            return services;
+        });
+        if (added[0]) {
+            m_size.incrementAndGet();
+        }
+        return added[0];
+    }
+
+    private List<CollectableService> removeFromNode(final int nodeId, final BiPredicate<Key, CollectableService> filter) {
+        final List<CollectableService> removed = new ArrayList<>();
+        m_servicesByNode.computeIfPresent(nodeId, (id, services) -> {
+            final Iterator<Map.Entry<Key, CollectableService>> it = services.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<Key, CollectableService> entry = it.next();
+                if (filter.test(entry.getKey(), entry.getValue())) {
+                    removed.add(entry.getValue());
+                    it.remove();
+                }
+            }
+            return services.isEmpty() ? null : services;
+        });
+        m_size.addAndGet(-removed.size());
+        return removed;
+    }
+
+    private static final class Key {
+        private final String ipAddress;
+        private final String serviceName;
+        private final String packageName;
+
+        private Key(final String ipAddress, final String serviceName, final String packageName) {
+            this.ipAddress = ipAddress;
+            this.serviceName = serviceName;
+            this.packageName = packageName;
+        }
+
+        private static Key of(final CollectableService cSvc) {
+            return new Key(str(cSvc.getAddress()), cSvc.getServiceName(), cSvc.getPackageName());
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return Objects.equals(ipAddress, that.ipAddress)
+                    && Objects.equals(serviceName, that.serviceName)
+                    && Objects.equals(packageName, that.packageName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ipAddress, serviceName, packageName);
+        }
+    }
+}
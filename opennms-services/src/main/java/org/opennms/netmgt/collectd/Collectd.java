@@ -23,31 +23,34 @@ package org.opennms.netmgt.collectd;
 
 import static org.opennms.core.utils.InetAddressUtils.str;
 
-import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import javax.swing.text.html.parser.Entity;
 
 import org.apache.commons.lang.StringUtils;
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
 import org.opennms.core.logging.Logging;
 import org.opennms.core.mate.api.EntityScopeProvider;
 import org.opennms.core.mate.api.FallBackScopeProvider;
 import org.opennms.core.mate.api.FallbackScope;
 import org.opennms.core.mate.api.Scope;
 import org.opennms.core.mate.api.ScopeProvider;
+import org.opennms.core.sysprops.SystemProperties;
 import org.opennms.core.utils.ConfigFileConstants;
 import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.core.utils.InsufficientInformationException;
@@ -140,9 +143,27 @@ public class Collectd extends AbstractServiceDaemon implements
     private final Map<String,ServiceCollector> m_collectors = new HashMap<>(4);
 
     /**
-     * List of all CollectableService objects.
+     * System property used to size the thread pool that schedules the
+     * existing interfaces of a service on startup.
      */
-    private final List<CollectableService> m_collectableServices;
+    public static final String SCHEDULING_THREADS_PROPERTY = "org.opennms.collectd.schedulingThreads";
+
+    /**
+     * Index of all CollectableService objects.
+     */
+    private final CollectableServiceRegistry m_collectableServices;
+
+    /**
+     * Number of interfaces found by, and already processed by, the startup
+     * scheduling of the existing interfaces.
+     */
+    private final AtomicLong m_interfacesToSchedule = new AtomicLong();
+    private final AtomicLong m_interfacesScheduled = new AtomicLong();
+
+    /**
+     * Maximum number of interfaces scheduled in a single transaction on startup.
+     */
+    private static final int SCHEDULING_BATCH_SIZE = 100;
 
     /**
      * Reference to the collection scheduler
@@ -211,7 +232,7 @@ public class Collectd extends AbstractServiceDaemon implements
     public Collectd() {
         super(LOG4J_CATEGORY);
 
-        m_collectableServices = Collections.synchronizedList(new LinkedList<>());
+        m_collectableServices = new CollectableServiceRegistry();
     }
 
     /**
@@ -365,22 +386,59 @@ public class Collectd extends AbstractServiceDaemon implements
         try {
         LOG.info("scheduleInterfacesWithService: svcName = {}", svcName);
 
-        Collection<OnmsIpInterface> ifsWithServices = findInterfacesWithService(svcName);
-        for (OnmsIpInterface iface : ifsWithServices) {
-            scheduleInterface(iface, svcName);
+        // Schedule the interfaces in parallel batches, each batch loading
+        // its interfaces in its own transaction
+        final List<Integer> ifaceIds = m_transTemplate.execute(status -> findInterfacesWithService(svcName));
+        final int total = ifaceIds.size();
+        m_interfacesToSchedule.addAndGet(total);
+
+        final int threads = Math.max(1, Math.min(SystemProperties.getInteger(SCHEDULING_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()), total));
+        final int batchSize = Math.max(1, Math.min(SCHEDULING_BATCH_SIZE, (total + threads - 1) / threads));
+        final AtomicLong scheduled = new AtomicLong();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new LogPreservingThreadFactory("Collectd-Scheduling-" + svcName, threads));
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < total; i += batchSize) {
+                final List<Integer> batch = ifaceIds.subList(i, Math.min(i + batchSize, total));
+                futures.add(executor.submit(() -> Logging.withPrefix(LOG4J_CATEGORY, () -> {
+                    m_transTemplate.execute(new TransactionCallbackWithoutResult() {
+                        @Override
+                        protected void doInTransactionWithoutResult(TransactionStatus transactionStatus) {
+                            for (Integer ifaceId : batch) {
+                                scheduleInterface(m_ifaceDao.load(ifaceId), svcName);
+                                m_interfacesScheduled.incrementAndGet();
+                            }
+                            LOG.debug("scheduleInterfacesWithService: {}/{} interfaces processed for service {}", scheduled.addAndGet(batch.size()), total, svcName);
+                        }
+                    });
+                })));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    LOG.error("scheduleInterfacesWithService: failed to schedule a batch of interfaces for service {}", svcName, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("scheduleInterfacesWithService: interrupted while scheduling service {}", svcName);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
         }
+        LOG.info("scheduleInterfacesWithService: processed {}/{} interfaces for service {} using {} threads", scheduled.get(), total, svcName, threads);
         } finally {
             instrumentation().endScheduleInterfacesWithService(svcName);
         }
     }
 
-    private Collection<OnmsIpInterface> findInterfacesWithService(String svcName) {
+    private List<Integer> findInterfacesWithService(String svcName) {
         instrumentation().beginFindInterfacesWithService(svcName);
         int count = -1;
         try {
-           Collection<OnmsIpInterface> ifaces = m_ifaceDao.findByServiceType(svcName);
-           count = ifaces.size();
-           return ifaces;
+           List<Integer> ifaceIds = m_ifaceDao.findIdsByServiceType(svcName);
+           count = ifaceIds.size();
+           return ifaceIds;
         } finally {
             instrumentation().endFindInterfacesWithService(svcName, count);
         }
@@ -478,7 +536,11 @@ public class Collectd extends AbstractServiceDaemon implements
                 );
 
                 // Add new collectable service to the collectable service list.
-                m_collectableServices.add(cSvc);
+                if (!m_collectableServices.add(cSvc)) {
+                    LOG.debug("scheduleInterface: svc/pkgName {}/{} was scheduled concurrently, skipping.", iface, spec);
+                    cSvc.release();
+                    continue;
+                }
 
                 // Schedule the collectable service for immediate collection
                 getScheduler().schedule(0, cSvc.getReadyRunnable());
@@ -581,38 +643,8 @@ public class Collectd extends AbstractServiceDaemon implements
             return false;
         }
 
-        String svcName = spec.getServiceName();
-        String pkgName = spec.getPackageName();
-        StringBuilder sb;
-        boolean isScheduled = false;
-        
-        if (LOG.isDebugEnabled()) {
-            sb = new StringBuilder();
-            sb.append("alreadyScheduled: determining if interface: ");
-            sb.append(iface);
-            sb.append(" is already scheduled.");
-        }
-        
-        synchronized (m_collectableServices) {
-        	for (CollectableService cSvc : m_collectableServices) {
-                InetAddress addr = (InetAddress) cSvc.getAddress();
-                if (cSvc.getNodeId() == iface.getNode().getId()
-                        && str(addr).equals(ipAddress)
-                        && cSvc.getPackageName().equals(pkgName)
-                        && cSvc.getServiceName().equals(svcName)) {
-                    isScheduled = true;
-                    break;
-                }
-            }
-        }
-
-        if (LOG.isDebugEnabled()) {
-            sb = new StringBuilder();
-            sb.append("alreadyScheduled: interface ");
-            sb.append(iface);
-            sb.append("already scheduled check: ");
-            sb.append(isScheduled);
-        }
+        boolean isScheduled = m_collectableServices.contains(iface.getNode().getId(), ipAddress, spec.getServiceName(), spec.getPackageName());
+        LOG.debug("alreadyScheduled: interface {} already scheduled check: {}", iface, isScheduled);
         return isScheduled;
     }
 
@@ -630,7 +662,12 @@ public class Collectd extends AbstractServiceDaemon implements
         }
     }
 
-    public List<CollectableService> getCollectableServices() {
+    /**
+     * Returns a live, weakly consistent view of the collectable services.
+     *
+     * @return a {@link java.util.Collection} object.
+     */
+    public Collection<CollectableService> getCollectableServices() {
         return m_collectableServices;
     }
 
@@ -775,37 +812,21 @@ public class Collectd extends AbstractServiceDaemon implements
 
         Long nodeId = event.getNodeid();
 
-        // Iterate over the collectable services list and mark any entries
-        // which match the deleted nodeId/IP address pair for deletion
-        synchronized (getCollectableServices()) {
-            CollectableService cSvc = null;
-            ListIterator<CollectableService> liter = getCollectableServices().listIterator();
-            while (liter.hasNext()) {
-                cSvc = liter.next();
-
-                // Only interested in entries with matching nodeId and IP
-                // address
-                InetAddress addr = (InetAddress) cSvc.getAddress();
-                if (!(cSvc.getNodeId() == nodeId && InetAddrUtils.str(addr).equals(ipAddr)))
-                    continue;
-
-                synchronized (cSvc) {
-                    // Retrieve the CollectorUpdates object associated with
-                    // this CollectableService if one exists.
-                    CollectorUpdates updates = cSvc.getCollectorUpdates();
-
-                    // Now set the update's deletion flag so the next
-                    // time it is selected for execution by the scheduler
-                    // the collection will be skipped and the service will not
-                    // be rescheduled.
-                    LOG.debug("Marking CollectableService for deletion because an interface was deleted:  Service nodeid={}, deleted node:{}service address:{}deleted interface:{}", cSvc.getNodeId(), nodeId, InetAddrUtils.str(addr), ipAddr);
-
-                    updates.markForDeletion();
-                }
-
-                // Now safe to remove the collectable service from
-                // the collectable services list
-                liter.remove();
+        // Remove the entries which match the deleted nodeId/IP address pair
+        // from the collectable services index and mark them for deletion
+        for (CollectableService cSvc : m_collectableServices.removeByInterface(nodeId.intValue(), ipAddr)) {
+            synchronized (cSvc) {
+                // Retrieve the CollectorUpdates object associated with
+                // this CollectableService if one exists.
+                CollectorUpdates updates = cSvc.getCollectorUpdates();
+
+                // Now set the update's deletion flag so the next
+                // time it is selected for execution by the scheduler
+                // the collection will be skipped and the service will not
+                // be rescheduled.
+                LOG.debug("Marking CollectableService for deletion because an interface was deleted:  Service nodeid={}, deleted node:{}service address:{}deleted interface:{}", cSvc.getNodeId(), nodeId, InetAddrUtils.str(cSvc.getAddress()), ipAddr);
+
+                updates.markForDeletion();
             }
         }
 
@@ -882,31 +903,42 @@ public class Collectd extends AbstractServiceDaemon implements
         // SnmpMonitor.NodeInfo attribute to reflect the new nodeId. All
         // subsequent collections will then be updating the appropriate RRDs.
         //
+        // The services are moved to the index of the new node right away so
+        // that events targeting the new node find them.
+        //
         OnmsIpInterface iface = null;
-        synchronized (getCollectableServices()) {
-            CollectableService cSvc = null;
-            Iterator<CollectableService> iter = getCollectableServices().iterator();
-            while (iter.hasNext()) {
-                cSvc = iter.next();
-
-                InetAddress addr = (InetAddress) cSvc.getAddress();
-				if (addr.equals(event.getInterfaceAddress())) {
-                    synchronized (cSvc) {
-                        // Got a match!
-                        LOG.debug("interfaceReparentedHandler: got a CollectableService match for {}", event.getInterface());
-
-                        // Retrieve the CollectorUpdates object associated
-                        // with
-                        // this CollectableService.
-                        CollectorUpdates updates = cSvc.getCollectorUpdates();
-                        if (iface == null) {
-                        	iface = getIpInterface(event.getNodeid().intValue(), event.getInterface());
-                        }
+        final int oldNodeId;
+        final int newNodeId;
+        try {
+            oldNodeId = Integer.parseInt(oldNodeIdStr);
+            newNodeId = Integer.parseInt(newNodeIdStr);
+        } catch (NumberFormatException e) {
+            LOG.warn("interfaceReparentedHandler: invalid old or new nodeId parm, unable to process.");
+            return;
+        }
+        for (CollectableService cSvc : m_collectableServices.getByAddress(str(event.getInterfaceAddress()))) {
+            synchronized (cSvc) {
+                // Got a match!
+                LOG.debug("interfaceReparentedHandler: got a CollectableService match for {}", event.getInterface());
+
+                // Retrieve the CollectorUpdates object associated
+                // with
+                // this CollectableService.
+                CollectorUpdates updates = cSvc.getCollectorUpdates();
+                if (iface == null) {
+                    iface = getIpInterface(event.getNodeid().intValue(), event.getInterface());
+                }
 
-                        // Now set the reparenting flag
-                        updates.markForReparenting(oldNodeIdStr, newNodeIdStr, iface);
-                        LOG.debug("interfaceReparentedHandler: marking {} for reparenting for service SNMP.", event.getInterface());
-                    }
+                // Now set the reparenting flag
+                updates.markForReparenting(oldNodeIdStr, newNodeIdStr, iface);
+                LOG.debug("interfaceReparentedHandler: marking {} for reparenting for service SNMP.", event.getInterface());
+            }
+            if (!m_collectableServices.move(cSvc, oldNodeId, newNodeId)) {
+                // The new node already collects the same service and package
+                // on this interface, so drop the reparented duplicate
+                LOG.debug("interfaceReparentedHandler: {} is already scheduled on node {}, marking the reparented service for deletion.", event.getInterface(), newNodeId);
+                synchronized (cSvc) {
+                    cSvc.getCollectorUpdates().markForDeletion();
                 }
             }
         }
@@ -983,12 +1015,12 @@ public class Collectd extends AbstractServiceDaemon implements
         removed.forEach(m_collectors::remove);
 
         // Remove all services using a removed collector
-        final var liter = m_collectableServices.listIterator();
-        while (liter.hasNext()) {
-            final var svc = liter.next();
+        final var iter = m_collectableServices.iterator();
+        while (iter.hasNext()) {
+            final var svc = iter.next();
             if (removed.contains(svc.getServiceName())) {
                 svc.getCollectorUpdates().markForDeletion();
-                liter.remove();
+                iter.remove();
             }
         }
 
@@ -997,34 +1029,20 @@ public class Collectd extends AbstractServiceDaemon implements
     }
 
     private void unscheduleNodeAndMarkForDeletion(Long nodeId) {
-		// Iterate over the collectable service list and mark any entries
-        // which match the deleted nodeId for deletion.
-        synchronized (getCollectableServices()) {
-            CollectableService cSvc = null;
-            final ListIterator<CollectableService> liter = getCollectableServices().listIterator();
-            while (liter.hasNext()) {
-                cSvc = liter.next();
-
-                // Only interested in entries with matching nodeId
-                if (!(cSvc.getNodeId() == nodeId))
-                    continue;
-
-                synchronized (cSvc) {
-                    // Retrieve the CollectorUpdates object associated
-                    // with this CollectableService.
-                    CollectorUpdates updates = cSvc.getCollectorUpdates();
-
-                    // Now set the update's deletion flag so the next
-                    // time it is selected for execution by the scheduler
-                    // the collection will be skipped and the service will not
-                    // be rescheduled.
-                    LOG.debug("Marking CollectableService for deletion because a node was deleted:  Service nodeid={}, deleted node:{}", cSvc.getNodeId(), nodeId);
-                    updates.markForDeletion();
-                }
-
-                // Now safe to remove the collectable service from
-                // the collectable services list
-                liter.remove();
+        // Remove the entries which match the deleted nodeId from the
+        // collectable services index and mark them for deletion.
+        for (CollectableService cSvc : m_collectableServices.removeByNode(nodeId.intValue())) {
+            synchronized (cSvc) {
+                // Retrieve the CollectorUpdates object associated
+                // with this CollectableService.
+                CollectorUpdates updates = cSvc.getCollectorUpdates();
+
+                // Now set the update's deletion flag so the next
+                // time it is selected for execution by the scheduler
+                // the collection will be skipped and the service will not
+                // be rescheduled.
+                LOG.debug("Marking CollectableService for deletion because a node was deleted:  Service nodeid={}, deleted node:{}", cSvc.getNodeId(), nodeId);
+                updates.markForDeletion();
             }
         }
 	}
@@ -1177,37 +1195,21 @@ public class Collectd extends AbstractServiceDaemon implements
             // for
             // collection.
             //
-            // Iterate over the CollectableService objects in the service
-            // updates map
-            // and mark any which have the same interface address as the old
-            // primary SNMP interface and a service name of "SNMP" for
-            // deletion.
+            // Remove the CollectableService objects which have the same
+            // interface address as the old primary SNMP interface from the
+            // collectable services index and mark them for deletion.
             //
-            synchronized (getCollectableServices()) {
-                CollectableService cSvc = null;
-                ListIterator<CollectableService> liter = getCollectableServices().listIterator();
-                while (liter.hasNext()) {
-                    cSvc = liter.next();
-
-                    final InetAddress addr = (InetAddress) cSvc.getAddress();
-                    final String addrString = str(addr);
-					if (addrString != null && addrString.equals(oldPrimaryIfAddr)) {
-                        synchronized (cSvc) {
-                            // Got a match! Retrieve the CollectorUpdates
-                            // object
-                            // associated
-                            // with this CollectableService.
-                            CollectorUpdates updates = cSvc.getCollectorUpdates();
-
-                            // Now set the deleted flag
-                            updates.markForDeletion();
-                            LOG.debug("primarySnmpInterfaceChangedHandler: marking {} as deleted for service SNMP.", oldPrimaryIfAddr);
-                        }
+            for (CollectableService cSvc : m_collectableServices.removeByAddress(oldPrimaryIfAddr)) {
+                synchronized (cSvc) {
+                    // Got a match! Retrieve the CollectorUpdates
+                    // object
+                    // associated
+                    // with this CollectableService.
+                    CollectorUpdates updates = cSvc.getCollectorUpdates();
 
-                        // Now safe to remove the collectable service from
-                        // the collectable services list
-                        liter.remove();
-                    }
+                    // Now set the deleted flag
+                    updates.markForDeletion();
+                    LOG.debug("primarySnmpInterfaceChangedHandler: marking {} as deleted for service SNMP.", oldPrimaryIfAddr);
                 }
             }
         }
@@ -1255,29 +1257,19 @@ public class Collectd extends AbstractServiceDaemon implements
         // address for reinitialization
         //
         OnmsIpInterface iface = null;
-        synchronized (getCollectableServices()) {
-            Iterator<CollectableService> iter = getCollectableServices().iterator();
-            while (iter.hasNext()) {
-                CollectableService cSvc = iter.next();
-        
-                final InetAddress addr = (InetAddress) cSvc.getAddress();
-                final String addrString = str(addr);
-                LOG.debug("Comparing CollectableService ip address = {} and event ip interface = {}", addrString, ipAddress);
-                if (addrString != null && addrString.equals(ipAddress) && cSvc.getNodeId() == nodeid.intValue()) {
-                    synchronized (cSvc) {
-                    	if (iface == null) {
-                            iface = getIpInterface(nodeid.intValue(), ipAddress);
-                    	}
-                        // Got a match! Retrieve the CollectorUpdates object
-                        // associated
-                        // with this CollectableService.
-                        CollectorUpdates updates = cSvc.getCollectorUpdates();
-        
-                        // Now set the reinitialization flag
-                        updates.markForReinitialization(iface);
-                        LOG.debug("reinitializePrimarySnmpInterfaceHandler: marking {} for reinitialization for service SNMP.", ipAddress);
-                    }
+        for (CollectableService cSvc : m_collectableServices.getByInterface(nodeid.intValue(), ipAddress)) {
+            synchronized (cSvc) {
+                if (iface == null) {
+                    iface = getIpInterface(nodeid.intValue(), ipAddress);
                 }
+                // Got a match! Retrieve the CollectorUpdates object
+                // associated
+                // with this CollectableService.
+                CollectorUpdates updates = cSvc.getCollectorUpdates();
+
+                // Now set the reinitialization flag
+                updates.markForReinitialization(iface);
+                LOG.debug("reinitializePrimarySnmpInterfaceHandler: marking {} for reinitialization for service SNMP.", ipAddress);
             }
         }
     }
@@ -1308,41 +1300,21 @@ public class Collectd extends AbstractServiceDaemon implements
         String ipAddr = event.getInterface();
         String svcName = event.getService();
 
-        // Iterate over the collectable services list and mark any entries
-        // which match the nodeId/ipAddr of the deleted service
-        // for deletion.
-        synchronized (getCollectableServices()) {
-            CollectableService cSvc = null;
-            ListIterator<CollectableService> liter = getCollectableServices().listIterator();
-            while (liter.hasNext()) {
-                cSvc = liter.next();
-
-                // Only interested in entries with matching nodeId, IP address
-                // and service
-                InetAddress addr = (InetAddress) cSvc.getAddress();
-                
-                //WATCH the brackets; there used to be an extra close bracket after the ipAddr comparison which borked this whole expression
-                if (!(cSvc.getNodeId() == nodeId && 
-                        InetAddrUtils.str(addr).equals(ipAddr) &&
-                        cSvc.getServiceName().equals(svcName))) 
-                    continue;
-
-                synchronized (cSvc) {
-                    // Retrieve the CollectorUpdates object associated with
-                    // this CollectableService if one exists.
-                    CollectorUpdates updates = cSvc.getCollectorUpdates();
-
-                    // Now set the update's deletion flag so the next
-                    // time it is selected for execution by the scheduler
-                    // the collection will be skipped and the service will not
-                    // be rescheduled.
-                    LOG.debug("Marking CollectableService for deletion because a service was deleted:  Service nodeid={}, deleted node:{}, service address:{}, deleted interface:{}, service servicename:{}, deleted service name:{}, event source {}", cSvc.getNodeId(), nodeId, InetAddrUtils.str(addr), ipAddr, cSvc.getServiceName(), svcName, event.getSource());
-                    updates.markForDeletion();
-                }
-
-                // Now safe to remove the collectable service from
-                // the collectable services list
-                liter.remove();
+        // Remove the entries which match the nodeId/ipAddr of the deleted
+        // service from the collectable services index and mark them for
+        // deletion.
+        for (CollectableService cSvc : m_collectableServices.removeByService(nodeId.intValue(), ipAddr, svcName)) {
+            synchronized (cSvc) {
+                // Retrieve the CollectorUpdates object associated with
+                // this CollectableService if one exists.
+                CollectorUpdates updates = cSvc.getCollectorUpdates();
+
+                // Now set the update's deletion flag so the next
+                // time it is selected for execution by the scheduler
+                // the collection will be skipped and the service will not
+                // be rescheduled.
+                LOG.debug("Marking CollectableService for deletion because a service was deleted:  Service nodeid={}, deleted node:{}, service address:{}, deleted interface:{}, service servicename:{}, deleted service name:{}, event source {}", cSvc.getNodeId(), nodeId, InetAddrUtils.str(cSvc.getAddress()), ipAddr, cSvc.getServiceName(), svcName, event.getSource());
+                updates.markForDeletion();
             }
         }
 
@@ -1504,14 +1476,8 @@ public class Collectd extends AbstractServiceDaemon implements
 
             @Override
             public void run() {
-                Logging.withPrefix(LOG4J_CATEGORY, () ->{
-                    m_transTemplate.execute(new TransactionCallbackWithoutResult() {
-                        @Override
-                        protected void doInTransactionWithoutResult(TransactionStatus transactionStatus) {
-                            scheduleInterfacesWithService(svcName);
-                        }
-                    });
-                });
+                // The interfaces are looked up and scheduled in transactions of their own
+                Logging.withPrefix(LOG4J_CATEGORY, () -> scheduleInterfacesWithService(svcName));
             }
 
             @Override
@@ -1530,6 +1496,22 @@ public class Collectd extends AbstractServiceDaemon implements
         return m_collectableServices.size();
     }
 
+    /**
+     * @return the number of existing interfaces found when scheduling the
+     *         configured collectors
+     */
+    public long getInterfacesToSchedule() {
+        return m_interfacesToSchedule.get();
+    }
+
+    /**
+     * @return the number of existing interfaces for which the scheduling of
+     *         the configured collectors has completed
+     */
+    public long getInterfacesScheduled() {
+        return m_interfacesScheduled.get();
+    }
+
     @VisibleForTesting
     public void setPollOutagesDao(ReadablePollOutagesDao pollOutagesDao) {
         this.pollOutagesDao = Objects.requireNonNull(pollOutagesDao);
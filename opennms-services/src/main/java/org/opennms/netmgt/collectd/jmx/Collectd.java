@@ -23,7 +23,7 @@ package org.opennms.netmgt.collectd.jmx;
 
 import static org.opennms.core.utils.InetAddressUtils.str;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import javax.management.openmbean.CompositeDataSupport;
@@ -179,45 +179,53 @@ public class Collectd extends AbstractSpringContextJmxServiceDaemon<org.opennms.
         final long currentTimeMs = System.currentTimeMillis();
         final TabularData tabularData = new TabularDataSupport(SCHEDULE_TABULAR_TYPE);
 
-        final List<CollectableService> collectableServiceList = getDaemon().getCollectableServices();
-
-        synchronized (collectableServiceList) {
-            final CompositeDataSupport[] compositeData = collectableServiceList.stream()
-                    .map(c -> {
-                                try {
-                                    final String ipAddress = str(c.getAddress());
-                                    final String pkg = c.getPackageName();
-                                    final String service = c.getServiceName();
-                                    final int nodeId = c.getNodeId();
-                                    final long intervalMs = c.getSpecification().getInterval();
-                                    final long lastRunAbsolute = c.getLastScheduledCollectionTime();
-                                    final long lastRunMs =  lastRunAbsolute - currentTimeMs;
-                                    final long timeLeftMs = c.getSpecification().getInterval() - (currentTimeMs - lastRunAbsolute);
-                                    final long nextRunMs = timeLeftMs;
-                                    final long nextRunAbsolute = lastRunAbsolute + timeLeftMs;
-
-                                    return new CompositeDataSupport(
-                                            SCHEDULE_COMPOSITE_TYPE,
-                                            SCHEDULE_ITEMS,
-                                            new Object[]{nodeId, ipAddress, pkg, service, intervalMs, lastRunMs, nextRunMs, lastRunAbsolute, nextRunAbsolute}
-                                    );
-                                } catch (OpenDataException e) {
-                                    throw new RuntimeException(e);
-                                }
+        final Collection<CollectableService> collectableServiceList = getDaemon().getCollectableServices();
+
+        final CompositeDataSupport[] compositeData = collectableServiceList.stream()
+                .map(c -> {
+                            try {
+                                final String ipAddress = str(c.getAddress());
+                                final String pkg = c.getPackageName();
+                                final String service = c.getServiceName();
+                                final int nodeId = c.getNodeId();
+                                final long intervalMs = c.getSpecification().getInterval();
+                                final long lastRunAbsolute = c.getLastScheduledCollectionTime();
+                                final long lastRunMs =  lastRunAbsolute - currentTimeMs;
+                                final long timeLeftMs = c.getSpecification().getInterval() - (currentTimeMs - lastRunAbsolute);
+                                final long nextRunMs = timeLeftMs;
+                                final long nextRunAbsolute = lastRunAbsolute + timeLeftMs;
+
+                                return new CompositeDataSupport(
+                                        SCHEDULE_COMPOSITE_TYPE,
+                                        SCHEDULE_ITEMS,
+                                        new Object[]{nodeId, ipAddress, pkg, service, intervalMs, lastRunMs, nextRunMs, lastRunAbsolute, nextRunAbsolute}
+                                );
+                            } catch (OpenDataException e) {
+                                throw new RuntimeException(e);
                             }
-                    )
-                    .toArray(CompositeDataSupport[]::new);
+                        }
+                )
+                .toArray(CompositeDataSupport[]::new);
 
-            tabularData.putAll(compositeData);
+        tabularData.putAll(compositeData);
 
-            return tabularData;
-        }
+        return tabularData;
     }
 
     @Override
     public long getCollectableServiceCount() {
         return getDaemon().getCollectableServiceCount();
     }
+
+    @Override
+    public long getInterfacesToSchedule() {
+        return getDaemon().getInterfacesToSchedule();
+    }
+
+    @Override
+    public long getInterfacesScheduled() {
+        return getDaemon().getInterfacesScheduled();
+    }
     
     private ThreadPoolExecutor getExecutor() {
         return (ThreadPoolExecutor) ((LegacyScheduler) getDaemon().getScheduler()).getRunner();
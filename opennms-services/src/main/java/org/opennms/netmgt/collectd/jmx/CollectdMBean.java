@@ -78,6 +78,16 @@ public interface CollectdMBean extends BaseOnmsMBean {
      */
     public long getCollectableServiceCount();
 
+    /**
+     * @return The number of existing interfaces found while scheduling the configured collectors
+     */
+    public long getInterfacesToSchedule();
+
+    /**
+     * @return The number of existing interfaces for which scheduling has completed
+     */
+    public long getInterfacesScheduled();
+
     /**
      * @return The number of pending tasks
      */
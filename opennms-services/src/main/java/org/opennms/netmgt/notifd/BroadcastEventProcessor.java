@@ -28,7 +28,6 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +44,7 @@ import org.opennms.core.mate.api.FallbackScope;
 import org.opennms.core.mate.api.Interpolator;
 import org.opennms.core.mate.api.MapScope;
 import org.opennms.core.mate.api.Scope;
+import org.opennms.core.sysprops.SystemProperties;
 import org.opennms.core.utils.RowProcessor;
 import org.opennms.core.utils.TimeConverter;
 import org.opennms.netmgt.config.DestinationPathManager;
@@ -95,6 +95,9 @@ public final class BroadcastEventProcessor implements EventListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(BroadcastEventProcessor.class);
 
+    public static final String NOTICE_BATCH_SIZE_PROPERTY = "org.opennms.notifd.noticeBatchSize";
+    private static final int DEFAULT_NOTICE_BATCH_SIZE = 100;
+
     private volatile Map<String, NoticeQueue> m_noticeQueues;
     private volatile NotificationManager m_notificationManager;
     private volatile NotifdConfigManager m_notifdConfigManager;
@@ -104,6 +107,9 @@ public final class BroadcastEventProcessor implements EventListener {
     private volatile NotificationCommandManager m_notificationCommandManager;
     private volatile EventConfDao m_eventConfDao;
     private volatile ThreadPoolExecutor m_notificationTaskExecutor;
+    private volatile NotificationPlanner m_planner;
+    private volatile NoticeBatchWriter m_noticeWriter;
+    private final NotificationStageMetrics m_stageMetrics = new NotificationStageMetrics();
 
     @Autowired
     private volatile EventIpcManager m_eventManager;
@@ -136,6 +142,9 @@ public final class BroadcastEventProcessor implements EventListener {
         // that can be executed in parallel.
         setupThreadPool();
 
+        // notices are persisted and scheduled in batches, off of the event thread
+        getNoticeWriter().start();
+
         // start to listen for events
         getEventManager().addEventListener(this);
     }
@@ -196,6 +205,39 @@ public final class BroadcastEventProcessor implements EventListener {
      */
     public void close() {
         getEventManager().removeEventListener(this);
+        getNoticeWriter().stop();
+    }
+
+    private NotificationPlanner getPlanner() {
+        if (m_planner == null) {
+            synchronized (this) {
+                if (m_planner == null) {
+                    m_planner = new NotificationPlanner(getDestinationPathManager(), getGroupManager(), getUserManager());
+                }
+            }
+        }
+        return m_planner;
+    }
+
+    private NoticeBatchWriter getNoticeWriter() {
+        if (m_noticeWriter == null) {
+            synchronized (this) {
+                if (m_noticeWriter == null) {
+                    m_noticeWriter = new NoticeBatchWriter(getNotificationManager(), this::scheduleNotice, m_stageMetrics,
+                            SystemProperties.getInteger(NOTICE_BATCH_SIZE_PROPERTY, DEFAULT_NOTICE_BATCH_SIZE));
+                }
+            }
+        }
+        return m_noticeWriter;
+    }
+
+    /**
+     * <p>getStageMetrics</p>
+     *
+     * @return the counters for the planning, persisting and scheduling of notices
+     */
+    public NotificationStageMetrics getStageMetrics() {
+        return m_stageMetrics;
     }
 
 
@@ -218,6 +260,7 @@ public final class BroadcastEventProcessor implements EventListener {
                 m_notificationManager.update();
                 m_destinationPathManager.update();
                 m_notificationCommandManager.update();
+                getPlanner().invalidate();
                 ebldr = new EventBuilder(EventConstants.RELOAD_DAEMON_CONFIG_SUCCESSFUL_UEI, getName());
                 ebldr.addParam(EventConstants.PARM_DAEMON_NAME, "Notifd");
             } catch (Throwable e) {
@@ -334,6 +377,8 @@ public final class BroadcastEventProcessor implements EventListener {
                 if (curAck.getUei().equals(event.getUei())) {
                     try {
                         LOG.debug("Acknowledging event {} {}:{}:{}", curAck.getAcknowledge(), event.getNodeid(), event.getInterface(), event.getService());
+                        // the notices being acknowledged may still be waiting to be written
+                        getNoticeWriter().flush();
 
                         Collection<Integer> notifIDs = getNotificationManager().acknowledgeNotice(event, curAck.getAcknowledge(), curAck.getMatches().toArray(new String[0]));
                         processed = true;
@@ -362,6 +407,11 @@ public final class BroadcastEventProcessor implements EventListener {
             if ( !autoAck.getUeis().isEmpty() && !autoAck.getUeis().contains(event.getUei()) ) {
                 return;
             }
+            // only resolutions acknowledge notices, don't wait for the pending notices otherwise
+            if (event.getAlarmData() == null || event.getAlarmData().getAlarmType() != 2) {
+                return;
+            }
+            getNoticeWriter().flush();
             Collection<Integer> notifIDs = getNotificationManager().acknowledgeNoticeBasedOnAlarms(event);
             try {
                 // only send resolution notifications if notifications are globally turned on
@@ -371,6 +421,9 @@ public final class BroadcastEventProcessor implements EventListener {
             } catch (Throwable e) {
                 LOG.error("Failed to send resolution notifications.", e);
             }
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while waiting for pending notices, not auto acknowledging event {}.", event.getUei());
+            Thread.currentThread().interrupt();
         } catch (Throwable e) {
             LOG.error("Unable to auto acknowledge notice due to exception.", e);
         }
@@ -579,6 +632,7 @@ public final class BroadcastEventProcessor implements EventListener {
                 String ipaddr = event.getInterface();
                 if (notifications != null) {
                     for (Notification notification : notifications) {
+                        final long planningStart = System.nanoTime();
                         int noticeId = 0;
 
                         try {
@@ -604,7 +658,7 @@ public final class BroadcastEventProcessor implements EventListener {
                         // get the target and escalation information
                         Path path = null;
                         try {
-                            path = getDestinationPathManager().getPath(notification.getDestinationPath());
+                            path = getPlanner().getPath(notification.getDestinationPath());
                             if (path == null) {
                                 LOG.warn("Unknown destination path {}. Please check the <destinationPath> tag for the notification {} in the notifications.xml file.", notification.getDestinationPath(), notification.getName());
 
@@ -623,7 +677,7 @@ public final class BroadcastEventProcessor implements EventListener {
                         // now check to see if any users are to receive the
                         // notification, if none then generate an event a exit
                         try {
-                            if (getUserCount(targets, escalations) == 0) {
+                            if (getPlanner().getUserCount(targets, escalations) == 0) {
                                 LOG.warn("The path {} assigned to notification {} has no targets or escalations specified, not sending notice.", notification.getDestinationPath(), notification.getName());
                                 sendNotifEvent(EventConstants.NOTIFICATION_WITHOUT_USERS, "The path " + notification.getDestinationPath() + " assigned to notification " + notification.getName() + " has no targets or escalations specified.", "The message of the notification is as follows: " + paramMap.get(NotificationManager.PARAM_TEXT_MSG));
                                 return;
@@ -633,38 +687,13 @@ public final class BroadcastEventProcessor implements EventListener {
                             return;
                         }
 
-                        try {
-                            LOG.info("Inserting notification #{} into database: {}", noticeId, paramMap.get(NotificationManager.PARAM_SUBJECT));
-                            getNotificationManager().insertNotice(noticeId, paramMap, queueID, notification);
-                        } catch (SQLException e) {
-                            LOG.error("Failed to enter notification into database, exiting this notification", e);
-                            return;
-                        }
-
                         long startTime = System.currentTimeMillis() + TimeConverter.convertToMillis(initialDelay);
-                        // Find the first outage which applies at this time
-
-                        String scheduledOutageName = scheduledOutage(nodeid, ipaddr);
-                        if (scheduledOutageName != null) {
-                            // This event occurred during a scheduled outage.
-                                // drop it (but leave the database entry)
-                                continue; // with the next notification (for
-                                            // loop)
-                            
-                        }
-
-                        List<NotificationTask> targetSiblings = new ArrayList<NotificationTask>();
-
-                        try {
-                            synchronized(m_noticeQueues) {
-                                NoticeQueue noticeQueue = m_noticeQueues.get(queueID);
-                                processTargets(targets, targetSiblings, noticeQueue, startTime, paramMap, noticeId);
-                                processEscalations(escalations, targetSiblings, noticeQueue, startTime, paramMap, noticeId);
-                            }
-                        } catch (Throwable e) {
-                            LOG.error("notice not scheduled due to error: ", e);
-                        }
 
+                        LOG.info("Queueing notification #{} for insertion into database: {}", noticeId, paramMap.get(NotificationManager.PARAM_SUBJECT));
+                        m_stageMetrics.planned(System.nanoTime() - planningStart);
+                        getNoticeWriter().submit(new NoticeBatchWriter.PlannedNotice(
+                                new NotificationManager.Notice(noticeId, paramMap, queueID, notification),
+                                targets, escalations, startTime, nodeid, ipaddr));
                     }
                 } else {
                     LOG.debug("Event doesn't match a notice: {} : {} : {} : {}", event.getUei(), nodeid, ipaddr, event.getService());
@@ -676,55 +705,27 @@ public final class BroadcastEventProcessor implements EventListener {
     }
 
     /**
-     * Detemines the number of users assigned to a list of Target and Escalate
-     * lists. Group names may be specified in these objects and the users will
-     * have to be extracted from those groups
-     *
-     * @param targets
-     *            the list of Target objects
-     * @param escalations
-     *            the list of Escalate objects
-     * @return the total # of users assigned in each Target and Escalate
-     *         objecst.
+     * Schedules the tasks for a notice once it was written to the database.
      */
-    private int getUserCount(Target[] targets, Escalate[] escalations) throws IOException {
-        int totalUsers = 0;
-
-        for (int i = 0; i < targets.length; i++) {
-            totalUsers += getUsersInTarget(targets[i]);
-        }
-
-        for (int j = 0; j < escalations.length; j++) {
-            Target[] escalationTargets = escalations[j].getTargets().toArray(new Target[0]);
-            for (int k = 0; k < escalationTargets.length; k++) {
-                totalUsers += getUsersInTarget(escalationTargets[k]);
-            }
+    private void scheduleNotice(NoticeBatchWriter.PlannedNotice planned) throws IOException {
+        // Find the first outage which applies at this time
+        String scheduledOutageName = scheduledOutage(planned.getNodeId(), planned.getIpAddr());
+        if (scheduledOutageName != null) {
+            // This event occurred during a scheduled outage.
+            // drop it (but leave the database entry)
+            return;
         }
 
-        return totalUsers;
-    }
+        final NotificationManager.Notice notice = planned.getNotice();
+        List<NotificationTask> targetSiblings = new ArrayList<NotificationTask>();
 
-    /**
-     *
-     */
-    private int getUsersInTarget(Target target) throws IOException {
-        int count = 0;
-        String targetName = target.getName();
-
-        if (getGroupManager().hasGroup(targetName)) {
-            count = getGroupManager().getGroup(targetName).getUsers().size();
-        } else if (getUserManager().hasOnCallRole(targetName)) {
-            count = getUserManager().countUsersWithRole(targetName);
-        } else if (getUserManager().hasUser(targetName)) {
-            count = 1;
-        } else if (targetName.indexOf('@') > -1) {
-            count = 1;
+        synchronized(m_noticeQueues) {
+            NoticeQueue noticeQueue = m_noticeQueues.get(notice.getQueueId());
+            processTargets(planned.getTargets(), targetSiblings, noticeQueue, planned.getStartTime(), notice.getParams(), notice.getNoticeId());
+            processEscalations(planned.getEscalations(), targetSiblings, noticeQueue, planned.getStartTime(), notice.getParams(), notice.getNoticeId());
         }
-
-        return count;
     }
 
-
     /**
      * Sends and event related to a notification
      *
@@ -860,15 +861,16 @@ public final class BroadcastEventProcessor implements EventListener {
             LOG.debug("Processing target {}:{}", targetName, interval);
 
             NotificationTask[] tasks = null;
+            final NotificationPlanner.TargetType targetType = getPlanner().getTargetType(targetName);
 
-            if (getGroupManager().hasGroup((targetName))) {
+            if (targetType == NotificationPlanner.TargetType.GROUP) {
                 tasks = makeGroupTasks(startTime, params, noticeId, targetName, targets[i].getCommands().toArray(new String[0]), targetSiblings, autoNotify, TimeConverter.convertToMillis(interval));
-            } else if (getUserManager().hasOnCallRole(targetName)) {
+            } else if (targetType == NotificationPlanner.TargetType.ROLE) {
                 tasks = makeRoleTasks(startTime, params, noticeId, targetName, targets[i].getCommands().toArray(new String[0]), targetSiblings, autoNotify, TimeConverter.convertToMillis(interval));
-            } else if (getUserManager().hasUser(targetName)) {
+            } else if (targetType == NotificationPlanner.TargetType.USER) {
                 NotificationTask[] userTasks = { makeUserTask(startTime, params, noticeId, targetName, targets[i].getCommands().toArray(new String[0]), targetSiblings, autoNotify) };
                 tasks = userTasks;
-            } else if (targetName.indexOf('@') > -1) {
+            } else if (targetType == NotificationPlanner.TargetType.EMAIL) {
             	// Bug 2027 -- get the command name from the Notifd config instead of using default of "email"
             	String[] emailCommands = { getNotifdConfigManager().getConfiguration().getEmailAddressCommand() };
                 NotificationTask[] emailTasks = { makeEmailTask(startTime, params, noticeId, targetName, emailCommands, targetSiblings, autoNotify) };
@@ -933,7 +935,7 @@ public final class BroadcastEventProcessor implements EventListener {
 
 
     NotificationTask[] makeRoleTasks(long startTime, Map<String, String> params, int noticeId, String targetName, String[] command, List<NotificationTask> targetSiblings, String autoNotify, long interval) throws IOException {
-        String[] users = getUserManager().getUsersScheduledForRole(targetName, new Date(startTime));
+        String[] users = getPlanner().getUsersScheduledForRole(targetName, startTime);
 
         // There are no users in the group
         if (users == null || users.length == 0) {
@@ -1145,6 +1147,7 @@ public final class BroadcastEventProcessor implements EventListener {
     public void setDestinationPathManager(
             DestinationPathManager destinationPathManager) {
         m_destinationPathManager = destinationPathManager;
+        m_planner = null;
     }
 
     /**
@@ -1181,6 +1184,7 @@ public final class BroadcastEventProcessor implements EventListener {
      */
     public void setGroupManager(GroupManager groupManager) {
         m_groupManager = groupManager;
+        m_planner = null;
     }
 
     /**
@@ -1259,6 +1263,7 @@ public final class BroadcastEventProcessor implements EventListener {
      */
     public void setUserManager(UserManager userManager) {
         m_userManager = userManager;
+        m_planner = null;
     }
 
     /**
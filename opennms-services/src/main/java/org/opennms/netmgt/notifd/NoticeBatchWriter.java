@@ -0,0 +1,278 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.notifd;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.opennms.netmgt.config.NotificationManager;
+import org.opennms.netmgt.config.NotificationManager.Notice;
+import org.opennms.netmgt.config.destinationPaths.Escalate;
+import org.opennms.netmgt.config.destinationPaths.Target;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves the database inserts and task scheduling for planned notices off of the
+ * event thread. Notices are drained from a queue in batches, inserted using a
+ * single transaction per batch and then handed to the {@link Scheduler} in the
+ * order they were submitted.
+ *
+ * If a batch fails to insert, its notices are retried one by one so that a
+ * single bad notice does not cause the others to be dropped.
+ */
+class NoticeBatchWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NoticeBatchWriter.class);
+
+    private static final long POLL_INTERVAL_MS = 250;
+
+    /**
+     * Schedules the tasks for a notice once it was persisted.
+     */
+    @FunctionalInterface
+    interface Scheduler {
+        void schedule(PlannedNotice notice) throws Exception;
+    }
+
+    /**
+     * A notice along with everything required to schedule its tasks.
+     */
+    static class PlannedNotice {
+        private final Notice m_notice;
+        private final Target[] m_targets;
+        private final Escalate[] m_escalations;
+        private final long m_startTime;
+        private final long m_nodeId;
+        private final String m_ipAddr;
+        private final long m_plannedAt = System.nanoTime();
+
+        PlannedNotice(final Notice notice, final Target[] targets, final Escalate[] escalations, final long startTime, final long nodeId, final String ipAddr) {
+            m_notice = Objects.requireNonNull(notice);
+            m_targets = targets;
+            m_escalations = escalations;
+            m_startTime = startTime;
+            m_nodeId = nodeId;
+            m_ipAddr = ipAddr;
+        }
+
+        Notice getNotice() {
+            return m_notice;
+        }
+
+        Target[] getTargets() {
+            return m_targets;
+        }
+
+        Escalate[] getEscalations() {
+            return m_escalations;
+        }
+
+        long getStartTime() {
+            return m_startTime;
+        }
+
+        long getNodeId() {
+            return m_nodeId;
+        }
+
+        String getIpAddr() {
+            return m_ipAddr;
+        }
+    }
+
+    private final NotificationManager m_notificationManager;
+    private final Scheduler m_scheduler;
+    private final NotificationStageMetrics m_metrics;
+    private final int m_batchSize;
+
+    private final BlockingQueue<PlannedNotice> m_queue = new LinkedBlockingQueue<>();
+    private final Object m_pendingLock = new Object();
+    private long m_pending = 0;
+
+    private volatile boolean m_running = false;
+    private Thread m_thread;
+
+    NoticeBatchWriter(final NotificationManager notificationManager, final Scheduler scheduler, final NotificationStageMetrics metrics, final int batchSize) {
+        m_notificationManager = Objects.requireNonNull(notificationManager);
+        m_scheduler = Objects.requireNonNull(scheduler);
+        m_metrics = Objects.requireNonNull(metrics);
+        m_batchSize = Math.max(1, batchSize);
+    }
+
+    synchronized void start() {
+        if (m_running) {
+            return;
+        }
+        m_running = true;
+        m_thread = new Thread(this::run, "NoticeBatchWriter");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Stops the writer once all of the notices submitted so far were processed.
+     */
+    void stop() {
+        final Thread thread;
+        synchronized (this) {
+            m_running = false;
+            thread = m_thread;
+            m_thread = null;
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // The writer thread may have given up early, don't leave any notices behind
+        final List<PlannedNotice> remaining = new ArrayList<>();
+        m_queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            LOG.info("Writing {} remaining notices on shutdown.", remaining.size());
+            try {
+                process(remaining);
+            } finally {
+                completed(remaining.size());
+            }
+        }
+    }
+
+    /**
+     * Queues the given notice. When the writer is not running, the notice is
+     * persisted and scheduled on the calling thread instead.
+     */
+    void submit(final PlannedNotice notice) {
+        // Queue under the lock of the writer, so stop() can not slip in between checking and queueing
+        synchronized (this) {
+            if (m_running) {
+                synchronized (m_pendingLock) {
+                    m_pending++;
+                    m_metrics.setPendingNotices(m_pending);
+                }
+                m_queue.add(notice);
+                return;
+            }
+        }
+        process(Collections.singletonList(notice));
+    }
+
+    /**
+     * Blocks until all of the notices submitted so far were persisted and scheduled.
+     */
+    void flush() throws InterruptedException {
+        synchronized (m_pendingLock) {
+            while (m_pending > 0 && m_running) {
+                m_pendingLock.wait(POLL_INTERVAL_MS);
+            }
+        }
+    }
+
+    private void run() {
+        final List<PlannedNotice> batch = new ArrayList<>(m_batchSize);
+        while (m_running || !m_queue.isEmpty()) {
+            try {
+                final PlannedNotice first = m_queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                m_queue.drainTo(batch, m_batchSize - 1);
+                process(batch);
+            } catch (final InterruptedException e) {
+                LOG.warn("Notice writer was interrupted, {} notices remain queued.", m_queue.size());
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Throwable t) {
+                LOG.error("Unexpected error while writing notices.", t);
+            } finally {
+                if (!batch.isEmpty()) {
+                    completed(batch.size());
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private void completed(final int count) {
+        synchronized (m_pendingLock) {
+            m_pending -= count;
+            m_metrics.setPendingNotices(m_pending);
+            m_pendingLock.notifyAll();
+        }
+    }
+
+    private void process(final List<PlannedNotice> batch) {
+        final List<PlannedNotice> persisted = persist(batch);
+        for (final PlannedNotice notice : persisted) {
+            final long start = System.nanoTime();
+            try {
+                m_scheduler.schedule(notice);
+            } catch (final Throwable t) {
+                LOG.error("notice not scheduled due to error: ", t);
+            }
+            final long end = System.nanoTime();
+            m_metrics.scheduled(end - start, end - notice.m_plannedAt);
+        }
+    }
+
+    private List<PlannedNotice> persist(final List<PlannedNotice> batch) {
+        final long start = System.nanoTime();
+        final List<Notice> notices = new ArrayList<>(batch.size());
+        for (final PlannedNotice notice : batch) {
+            notices.add(notice.getNotice());
+        }
+        try {
+            m_notificationManager.insertNotices(notices);
+            m_metrics.persisted(batch.size(), System.nanoTime() - start);
+            return batch;
+        } catch (final SQLException e) {
+            if (batch.size() == 1) {
+                LOG.error("Failed to enter notification into database, exiting this notification", e);
+                return Collections.emptyList();
+            }
+            LOG.warn("Failed to enter a batch of {} notifications into database, inserting them individually.", batch.size(), e);
+        }
+
+        final List<PlannedNotice> persisted = new ArrayList<>(batch.size());
+        for (final PlannedNotice notice : batch) {
+            final Notice n = notice.getNotice();
+            try {
+                m_notificationManager.insertNotice(n.getNoticeId(), n.getParams(), n.getQueueId(), n.getNotification());
+                persisted.add(notice);
+            } catch (final SQLException e) {
+                LOG.error("Failed to enter notification #{} into database, exiting this notification", n.getNoticeId(), e);
+            }
+        }
+        m_metrics.persisted(persisted.size(), System.nanoTime() - start);
+        return persisted;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.notifd;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.opennms.core.sysprops.SystemProperties;
+import org.opennms.netmgt.config.DestinationPathManager;
+import org.opennms.netmgt.config.GroupManager;
+import org.opennms.netmgt.config.UserManager;
+import org.opennms.netmgt.config.destinationPaths.Escalate;
+import org.opennms.netmgt.config.destinationPaths.Path;
+import org.opennms.netmgt.config.destinationPaths.Target;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the lookups notifd performs for every notice it plans: destination paths
+ * by name, the kind of each target and how many users it resolves to, and the
+ * users scheduled for an on-call role.
+ *
+ * Entries expire after {@link #CACHE_TTL_MS_PROPERTY} milliseconds and are dropped
+ * whenever notifd reloads its configuration. Role schedules are resolved once per
+ * time bucket of {@link #ROLE_BUCKET_MS_PROPERTY} milliseconds: every lookup that
+ * falls in the same bucket shares the users scheduled at the start of that bucket.
+ * Setting either property to 0 disables the corresponding cache.
+ */
+class NotificationPlanner {
+
+    public static final String CACHE_TTL_MS_PROPERTY = "org.opennms.notifd.planner.cacheTtlMs";
+    public static final String ROLE_BUCKET_MS_PROPERTY = "org.opennms.notifd.planner.roleBucketMs";
+
+    private static final long DEFAULT_CACHE_TTL_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long DEFAULT_ROLE_BUCKET_MS = TimeUnit.MINUTES.toMillis(1);
+
+    enum TargetType {
+        GROUP,
+        ROLE,
+        USER,
+        EMAIL,
+        UNKNOWN
+    }
+
+    private static class ResolvedTarget {
+        private final TargetType m_type;
+        private final int m_userCount;
+
+        private ResolvedTarget(final TargetType type, final int userCount) {
+            m_type = type;
+            m_userCount = userCount;
+        }
+    }
+
+    private static class RoleKey {
+        private final String m_role;
+        private final long m_bucket;
+
+        private RoleKey(final String role, final long bucket) {
+            m_role = role;
+            m_bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof RoleKey)) return false;
+            final RoleKey that = (RoleKey) obj;
+            return m_bucket == that.m_bucket && m_role.equals(that.m_role);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(m_role, m_bucket);
+        }
+    }
+
+    private final DestinationPathManager m_destinationPathManager;
+    private final GroupManager m_groupManager;
+    private final UserManager m_userManager;
+    private final long m_cacheTtlMs;
+    private final long m_roleBucketMs;
+
+    private final Cache<String, Optional<Path>> m_paths;
+    private final Cache<String, ResolvedTarget> m_targets;
+    private final Cache<RoleKey, String[]> m_roleSchedules;
+
+    NotificationPlanner(final DestinationPathManager destinationPathManager, final GroupManager groupManager, final UserManager userManager) {
+        this(destinationPathManager, groupManager, userManager,
+                SystemProperties.getLong(CACHE_TTL_MS_PROPERTY, DEFAULT_CACHE_TTL_MS),
+                SystemProperties.getLong(ROLE_BUCKET_MS_PROPERTY, DEFAULT_ROLE_BUCKET_MS));
+    }
+
+    NotificationPlanner(final DestinationPathManager destinationPathManager, final GroupManager groupManager, final UserManager userManager, final long cacheTtlMs, final long roleBucketMs) {
+        m_destinationPathManager = Objects.requireNonNull(destinationPathManager);
+        m_groupManager = Objects.requireNonNull(groupManager);
+        m_userManager = Objects.requireNonNull(userManager);
+        m_cacheTtlMs = cacheTtlMs;
+        m_roleBucketMs = roleBucketMs;
+
+        m_paths = CacheBuilder.newBuilder().expireAfterWrite(Math.max(0, cacheTtlMs), TimeUnit.MILLISECONDS).build();
+        m_targets = CacheBuilder.newBuilder().expireAfterWrite(Math.max(0, cacheTtlMs), TimeUnit.MILLISECONDS).build();
+        m_roleSchedules = CacheBuilder.newBuilder()
+                .expireAfterWrite(Math.max(0, Math.max(cacheTtlMs, roleBucketMs)), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the destination path with the given name, or null if there is none.
+     */
+    public Path getPath(final String name) throws IOException {
+        if (m_cacheTtlMs <= 0) {
+            return m_destinationPathManager.getPath(name);
+        }
+        return load(m_paths, name, () -> Optional.ofNullable(m_destinationPathManager.getPath(name))).orElse(null);
+    }
+
+    /**
+     * Determines the kind of target the given name refers to.
+     */
+    public TargetType getTargetType(final String targetName) throws IOException {
+        return resolveTarget(targetName).m_type;
+    }
+
+    /**
+     * Determines the number of users assigned to a list of Target and Escalate
+     * lists. Group and role names are expanded to their members.
+     */
+    public int getUserCount(final Target[] targets, final Escalate[] escalations) throws IOException {
+        int totalUsers = 0;
+        for (final Target target : targets) {
+            totalUsers += resolveTarget(target.getName()).m_userCount;
+        }
+        for (final Escalate escalation : escalations) {
+            for (final Target target : escalation.getTargets()) {
+                totalUsers += resolveTarget(target.getName()).m_userCount;
+            }
+        }
+        return totalUsers;
+    }
+
+    /**
+     * Returns the users scheduled for the given role at the start of the
+     * time bucket containing the given time.
+     */
+    public String[] getUsersScheduledForRole(final String role, final long time) throws IOException {
+        if (m_cacheTtlMs <= 0 || m_roleBucketMs <= 0) {
+            return m_userManager.getUsersScheduledForRole(role, new Date(time));
+        }
+        final long bucket = Math.floorDiv(time, m_roleBucketMs);
+        return load(m_roleSchedules, new RoleKey(role, bucket),
+                () -> m_userManager.getUsersScheduledForRole(role, new Date(bucket * m_roleBucketMs)));
+    }
+
+    /**
+     * Drops all cached entries.
+     */
+    public void invalidate() {
+        m_paths.invalidateAll();
+        m_targets.invalidateAll();
+        m_roleSchedules.invalidateAll();
+    }
+
+    private ResolvedTarget resolveTarget(final String targetName) throws IOException {
+        if (m_cacheTtlMs <= 0) {
+            return doResolveTarget(targetName);
+        }
+        return load(m_targets, targetName, () -> doResolveTarget(targetName));
+    }
+
+    private ResolvedTarget doResolveTarget(final String targetName) throws IOException {
+        if (m_groupManager.hasGroup(targetName)) {
+            return new ResolvedTarget(TargetType.GROUP, m_groupManager.getGroup(targetName).getUsers().size());
+        } else if (m_userManager.hasOnCallRole(targetName)) {
+            return new ResolvedTarget(TargetType.ROLE, m_userManager.countUsersWithRole(targetName));
+        } else if (m_userManager.hasUser(targetName)) {
+            return new ResolvedTarget(TargetType.USER, 1);
+        } else if (targetName.indexOf('@') > -1) {
+            return new ResolvedTarget(TargetType.EMAIL, 1);
+        }
+        return new ResolvedTarget(TargetType.UNKNOWN, 0);
+    }
+
+    @FunctionalInterface
+    private interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    private static <K, V> V load(final Cache<K, V> cache, final K key, final Loader<V> loader) throws IOException {
+        try {
+            return cache.get(key, loader::load);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.notifd;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the stages a notice passes through in notifd: planning on the
+ * event thread, persisting to the database and scheduling of its tasks. Times
+ * are reported in milliseconds so that averages can be derived by dividing
+ * by the matching count.
+ */
+public class NotificationStageMetrics {
+
+    private final AtomicLong m_noticesPlanned = new AtomicLong();
+    private final AtomicLong m_planningTime = new AtomicLong();
+    private final AtomicLong m_noticesPersisted = new AtomicLong();
+    private final AtomicLong m_persistBatches = new AtomicLong();
+    private final AtomicLong m_persistTime = new AtomicLong();
+    private final AtomicLong m_noticesScheduled = new AtomicLong();
+    private final AtomicLong m_schedulingTime = new AtomicLong();
+    private final AtomicLong m_noticeLatency = new AtomicLong();
+    private final AtomicLong m_pendingNotices = new AtomicLong();
+
+    void planned(final long nanos) {
+        m_noticesPlanned.incrementAndGet();
+        m_planningTime.addAndGet(nanos);
+    }
+
+    void persisted(final int notices, final long nanos) {
+        m_noticesPersisted.addAndGet(notices);
+        m_persistBatches.incrementAndGet();
+        m_persistTime.addAndGet(nanos);
+    }
+
+    void scheduled(final long nanos, final long latencyNanos) {
+        m_noticesScheduled.incrementAndGet();
+        m_schedulingTime.addAndGet(nanos);
+        m_noticeLatency.addAndGet(latencyNanos);
+    }
+
+    void setPendingNotices(final long pending) {
+        m_pendingNotices.set(pending);
+    }
+
+    public long getNoticesPlanned() {
+        return m_noticesPlanned.get();
+    }
+
+    public long getPlanningTime() {
+        return TimeUnit.NANOSECONDS.toMillis(m_planningTime.get());
+    }
+
+    public long getNoticesPersisted() {
+        return m_noticesPersisted.get();
+    }
+
+    public long getPersistBatches() {
+        return m_persistBatches.get();
+    }
+
+    public long getPersistTime() {
+        return TimeUnit.NANOSECONDS.toMillis(m_persistTime.get());
+    }
+
+    public long getNoticesScheduled() {
+        return m_noticesScheduled.get();
+    }
+
+    public long getSchedulingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(m_schedulingTime.get());
+    }
+
+    public long getNoticeLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(m_noticeLatency.get());
+    }
+
+    public long getPendingNotices() {
+        return m_pendingNotices.get();
+    }
+}
@@ -106,4 +106,58 @@ public class Notifd extends AbstractSpringContextJmxServiceDaemon<org.opennms.ne
     public long getUnknownNoticesInterrupted() {
         return getDaemon().getNotificationManager().getUnknownNoticesInterrupted();
     }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getNoticesPlanned() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getNoticesPlanned();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getNoticePlanningTime() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getPlanningTime();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getNoticesPersisted() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getNoticesPersisted();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getNoticePersistBatches() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getPersistBatches();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getNoticePersistTime() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getPersistTime();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getNoticesScheduled() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getNoticesScheduled();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getNoticeSchedulingTime() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getSchedulingTime();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getNoticeLatency() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getNoticeLatency();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getPendingNotices() {
+        return getDaemon().getBroadcastEventProcessor().getStageMetrics().getPendingNotices();
+    }
 }
@@ -90,4 +90,58 @@ public interface NotifdMBean extends BaseOnmsMBean {
      *         (threw an exception) since Notifd was last started.
      */
     public long getUnknownNoticesInterrupted();
+
+    /**
+     * @return The total number of notices planned on the event thread since Notifd
+     *         was last started
+     */
+    public long getNoticesPlanned();
+
+    /**
+     * @return The total time in milliseconds spent planning notices since Notifd
+     *         was last started
+     */
+    public long getNoticePlanningTime();
+
+    /**
+     * @return The total number of notices written to the database since Notifd
+     *         was last started
+     */
+    public long getNoticesPersisted();
+
+    /**
+     * @return The total number of batches used to write notices to the database
+     *         since Notifd was last started
+     */
+    public long getNoticePersistBatches();
+
+    /**
+     * @return The total time in milliseconds spent writing notices to the database
+     *         since Notifd was last started
+     */
+    public long getNoticePersistTime();
+
+    /**
+     * @return The total number of notices whose tasks were scheduled since Notifd
+     *         was last started
+     */
+    public long getNoticesScheduled();
+
+    /**
+     * @return The total time in milliseconds spent scheduling notification tasks
+     *         since Notifd was last started
+     */
+    public long getNoticeSchedulingTime();
+
+    /**
+     * @return The total time in milliseconds between planning notices and
+     *         scheduling their tasks since Notifd was last started
+     */
+    public long getNoticeLatency();
+
+    /**
+     * @return The number of planned notices that are waiting to be written to
+     *         the database
+     */
+    public long getPendingNotices();
 }
@@ -23,16 +23,29 @@ package org.opennms.netmgt.poller;
 
 import java.lang.reflect.UndeclaredThrowableException;
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.opennms.core.concurrent.LogPreservingThreadFactory;
 import org.opennms.core.criteria.Criteria;
+import org.opennms.core.criteria.Fetch;
+import org.opennms.core.criteria.Fetch.FetchType;
 import org.opennms.core.criteria.restrictions.InRestriction;
+import org.opennms.core.logging.Logging;
+import org.opennms.core.sysprops.SystemProperties;
 import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.netmgt.collection.api.PersisterFactory;
 import org.opennms.netmgt.config.PollerConfig;
@@ -81,6 +94,26 @@ public class Poller extends AbstractServiceDaemon {
 
     private static final String LOG4J_CATEGORY = "poller";
 
+    /**
+     * System property used to size the thread pool that builds the pollable
+     * network on startup.
+     */
+    public static final String STARTUP_THREADS_PROPERTY = "org.opennms.netmgt.poller.startupThreads";
+
+    /**
+     * System property holding the window, in milliseconds, over which the
+     * first polls of the existing services are spread on startup.
+     */
+    public static final String STARTUP_STAGGER_WINDOW_PROPERTY = "org.opennms.netmgt.poller.startupStaggerWindow";
+
+    /**
+     * Minimum number of services handed to a startup thread at once. The
+     * services of a node are never split across batches.
+     */
+    private static final int STARTUP_BATCH_SIZE = 500;
+
+    private final long m_startupStaggerWindow = SystemProperties.getLong(STARTUP_STAGGER_WINDOW_PROPERTY, 0L);
+
     private boolean m_initialized = false;
 
     private LegacyScheduler m_scheduler = null;
@@ -468,47 +501,147 @@ public class Poller extends AbstractServiceDaemon {
     }
 
     private int scheduleServices() {
+        final long startTime = System.currentTimeMillis();
+
+        // Load the services along with their interface, node and location, and
+        // the current outages, in a handful of queries
         final Criteria criteria = new Criteria(OnmsMonitoredService.class);
         criteria.addRestriction(new InRestriction("status", Arrays.asList("A", "N")));
+        criteria.setFetchTypes(Arrays.asList(
+                new Fetch("serviceType", FetchType.EAGER),
+                new Fetch("ipInterface", FetchType.EAGER),
+                new Fetch("ipInterface.node", FetchType.EAGER),
+                new Fetch("ipInterface.node.location", FetchType.EAGER)));
 
-        return m_transactionTemplate.execute(new TransactionCallback<Integer>() {
+        final List<ServiceDetails> services = m_transactionTemplate.execute(new TransactionCallback<List<ServiceDetails>>() {
             @Override
-            public Integer doInTransaction(TransactionStatus arg0) {
-                final List<OnmsMonitoredService> services =  m_monitoredServiceDao.findMatching(criteria);
+            public List<ServiceDetails> doInTransaction(TransactionStatus arg0) {
+                final List<OnmsMonitoredService> monitoredServices = m_monitoredServiceDao.findMatching(criteria);
                 final Map<Integer, Set<OnmsOutage>> outagesByServiceId = m_outageDao.currentOutagesByServiceId();
-                for (OnmsMonitoredService service : services) {
-                    scheduleService(service, outagesByServiceId.getOrDefault(service.getId(), Collections.emptySet()));
+                final List<ServiceDetails> details = new ArrayList<>(monitoredServices.size());
+                for (OnmsMonitoredService service : monitoredServices) {
+                    final OnmsOutage outage = getFirstOutage(outagesByServiceId.get(service.getId()));
+                    closeOutageIfSvcLostEventIsMissing(outage);
+                    details.add(new ServiceDetails(service, outage));
                 }
-                return services.size();
+                return details;
             }
         });
+        final long loadedTime = System.currentTimeMillis();
+
+        // Build the pollable network in parallel, keeping all of the services
+        // of a node on the same thread
+        final Map<Integer, List<ServiceDetails>> servicesByNode = services.stream()
+                .collect(Collectors.groupingBy(ServiceDetails::getNodeId, LinkedHashMap::new, Collectors.toList()));
+        final List<List<ServiceDetails>> batches = new ArrayList<>();
+        List<ServiceDetails> batch = new ArrayList<>();
+        for (List<ServiceDetails> nodeServices : servicesByNode.values()) {
+            batch.addAll(nodeServices);
+            if (batch.size() >= STARTUP_BATCH_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+
+        final Map<Integer, String> statusChanges = new ConcurrentHashMap<>();
+        final AtomicInteger scheduled = new AtomicInteger();
+        final int threads = Math.max(1, Math.min(SystemProperties.getInteger(STARTUP_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()), batches.size()));
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new LogPreservingThreadFactory("Poller-Startup", threads));
+        try {
+            final List<Future<?>> futures = new ArrayList<>(batches.size());
+            for (List<ServiceDetails> servicesInBatch : batches) {
+                futures.add(executor.submit(() -> Logging.withPrefix(LOG4J_CATEGORY, () -> {
+                    for (ServiceDetails service : servicesInBatch) {
+                        final Package pkg = this.findPackageForService(service.getIpAddr(), service.getServiceName());
+                        final String status = getStatusChange(service, pkg);
+                        if (status != null) {
+                            statusChanges.put(service.getServiceId(), status);
+                        }
+                        if (pkg != null && schedulePollableService(service, pkg, true)) {
+                            scheduled.incrementAndGet();
+                        }
+                    }
+                })));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    LOG.error("scheduleServices: failed to schedule a batch of services", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("scheduleServices: interrupted while scheduling existing services");
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        final long builtTime = System.currentTimeMillis();
+
+        // Persist the status of the services whose package membership changed
+        if (!statusChanges.isEmpty()) {
+            m_transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus arg0) {
+                    statusChanges.forEach((serviceId, status) -> {
+                        final OnmsMonitoredService service = m_monitoredServiceDao.get(serviceId);
+                        if (service != null) {
+                            updateServiceStatus(service, status);
+                        }
+                    });
+                }
+            });
+        }
+        final long endTime = System.currentTimeMillis();
+
+        LOG.info("scheduleServices: scheduled {} of {} services on {} nodes in {}ms (load: {}ms, build: {}ms using {} threads, status updates: {} in {}ms)",
+                scheduled.get(), services.size(), servicesByNode.size(), endTime - startTime,
+                loadedTime - startTime, builtTime - loadedTime, threads, statusChanges.size(), endTime - builtTime);
+        return services.size();
     }
 
     private boolean scheduleService(OnmsMonitoredService service, Set<OnmsOutage> outages) {
-        final OnmsIpInterface iface = service.getIpInterface();
-        final OnmsOutage outage = (outages == null || outages.size() < 1 ? null : outages.iterator().next());
-        final OnmsEvent event = (outage == null ? null : outage.getServiceLostEvent());
-        final String ipAddr = InetAddressUtils.str(iface.getIpAddress());
-        final String serviceName = service.getServiceName();
-        boolean active = "A".equals(service.getStatus());
-        final Number svcLostEventId = event == null ? null : event.getId();
-        final Date ifLostService = outage == null ? null : outage.getIfLostService();
-        final String svcLostUei = event == null ? null : event.getEventUei();
-
+        final OnmsOutage outage = getFirstOutage(outages);
         closeOutageIfSvcLostEventIsMissing(outage);
 
-        final Package pkg = this.findPackageForService(ipAddr, serviceName);
+        final ServiceDetails details = new ServiceDetails(service, outage);
+        final Package pkg = this.findPackageForService(details.getIpAddr(), details.getServiceName());
+        final String status = getStatusChange(details, pkg);
+        if (status != null) {
+            updateServiceStatus(service, status);
+        }
         if (pkg == null) {
-            if(active){
-                LOG.warn("Active service {} on {} not configured for any package. Marking as Not Polled.", serviceName, ipAddr);
-                updateServiceStatus(service, "N");
-            }
             return false;
-        } else if (!active) {
-            LOG.info("Active service {} on {} is now configured for a package. Marking as active.", serviceName, ipAddr);
-            updateServiceStatus(service, "A");
         }
+        return schedulePollableService(details, pkg, false);
+    }
+
+    private static OnmsOutage getFirstOutage(Set<OnmsOutage> outages) {
+        return (outages == null || outages.size() < 1 ? null : outages.iterator().next());
+    }
+
+    /**
+     * Returns the status the service must be switched to given its package, or
+     * null if the status is unchanged.
+     */
+    private static String getStatusChange(ServiceDetails service, Package pkg) {
+        if (pkg == null) {
+            if (service.isActive()) {
+                LOG.warn("Active service {} on {} not configured for any package. Marking as Not Polled.", service.getServiceName(), service.getIpAddr());
+                return "N";
+            }
+        } else if (!service.isActive()) {
+            LOG.info("Active service {} on {} is now configured for a package. Marking as active.", service.getServiceName(), service.getIpAddr());
+            return "A";
+        }
+        return null;
+    }
 
+    private boolean schedulePollableService(ServiceDetails service, Package pkg, boolean stagger) {
+        final String ipAddr = service.getIpAddr();
         InetAddress addr;
         addr = InetAddressUtils.addr(ipAddr);
         if (addr == null) {
@@ -516,7 +649,7 @@ public class Poller extends AbstractServiceDaemon {
             return false;
         }
 
-        PollableService svc = getNetwork().createService(service.getNodeId(), iface.getNode().getLabel(), iface.getNode().getLocation().getLocationName(), addr, serviceName);
+        PollableService svc = getNetwork().createService(service.getNodeId(), service.getNodeLabel(), service.getNodeLocation(), addr, service.getServiceName());
         PollableServiceConfig pollConfig = new PollableServiceConfig(svc, m_pollerConfig, pkg,
                                                                      getScheduler(), m_persisterFactory, m_thresholdingService,
                                                                      m_locationAwarePollerClient, m_pollOutagesDao, serviceMonitorAdaptor);
@@ -528,6 +661,7 @@ public class Poller extends AbstractServiceDaemon {
             }
         }
 
+        final Number svcLostEventId = service.getSvcLostEventId();
         if (svcLostEventId == null) {
             if (svc.getParent().getStatus().isUnknown()) {
                 svc.updateStatus(PollStatus.up());
@@ -537,18 +671,31 @@ public class Poller extends AbstractServiceDaemon {
         } else {
             svc.updateStatus(PollStatus.down("Service has lost event : " + svcLostEventId));
 
-            PollEvent cause = new DbPollEvent(svcLostEventId.intValue(), svcLostUei, ifLostService);
+            PollEvent cause = new DbPollEvent(svcLostEventId.intValue(), service.getSvcLostUei(), service.getIfLostService());
 
             svc.setCause(cause);
 
         }
 
-        svc.schedule();
+        svc.schedule(stagger ? getStartupDelay(service, pollConfig) : 0);
 
         return true;
 
     }
 
+    /**
+     * Spreads the first polls of the services scheduled on startup over the
+     * configured window, bounded by the poll interval of each service, so that
+     * they don't all run at once.
+     */
+    private long getStartupDelay(ServiceDetails service, PollableServiceConfig pollConfig) {
+        final long window = Math.min(m_startupStaggerWindow, pollConfig.getInterval());
+        if (window <= 0) {
+            return 0;
+        }
+        return Math.floorMod(Objects.hash(service.getNodeId(), service.getIpAddr(), service.getServiceName()), window);
+    }
+
     private Package findPackageForService(String ipAddr, String serviceName) {
         if (m_initialized) {
             // Only rebuild the map when services are scheduled after the initial initialization
@@ -616,4 +763,77 @@ public class Poller extends AbstractServiceDaemon {
     public static String getLoggingCategory() {
         return LOG4J_CATEGORY;
     }
+
+    /**
+     * The details of a monitored service and its current outage needed to
+     * add it to the pollable network, detached from the session they were
+     * loaded in.
+     */
+    private static final class ServiceDetails {
+        private final int m_serviceId;
+        private final int m_nodeId;
+        private final String m_nodeLabel;
+        private final String m_nodeLocation;
+        private final String m_ipAddr;
+        private final String m_serviceName;
+        private final boolean m_active;
+        private final Number m_svcLostEventId;
+        private final Date m_ifLostService;
+        private final String m_svcLostUei;
+
+        private ServiceDetails(final OnmsMonitoredService service, final OnmsOutage outage) {
+            final OnmsIpInterface iface = service.getIpInterface();
+            final OnmsEvent event = (outage == null ? null : outage.getServiceLostEvent());
+            m_serviceId = service.getId();
+            m_nodeId = service.getNodeId();
+            m_nodeLabel = iface.getNode().getLabel();
+            m_nodeLocation = iface.getNode().getLocation().getLocationName();
+            m_ipAddr = InetAddressUtils.str(iface.getIpAddress());
+            m_serviceName = service.getServiceName();
+            m_active = "A".equals(service.getStatus());
+            m_svcLostEventId = event == null ? null : event.getId();
+            m_ifLostService = outage == null ? null : outage.getIfLostService();
+            m_svcLostUei = event == null ? null : event.getEventUei();
+        }
+
+        public int getServiceId() {
+            return m_serviceId;
+        }
+
+        public int getNodeId() {
+            return m_nodeId;
+        }
+
+        public String getNodeLabel() {
+            return m_nodeLabel;
+        }
+
+        public String getNodeLocation() {
+            return m_nodeLocation;
+        }
+
+        public String getIpAddr() {
+            return m_ipAddr;
+        }
+
+        public String getServiceName() {
+            return m_serviceName;
+        }
+
+        public boolean isActive() {
+            return m_active;
+        }
+
+        public Number getSvcLostEventId() {
+            return m_svcLostEventId;
+        }
+
+        public Date getIfLostService() {
+            return m_ifLostService;
+        }
+
+        public String getSvcLostUei() {
+            return m_svcLostUei;
+        }
+    }
 }
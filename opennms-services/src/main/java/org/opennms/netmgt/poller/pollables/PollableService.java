@@ -464,10 +464,19 @@ public class PollableService extends PollableElement implements ReadyRunnable, M
      * <p>schedule</p>
      */
     public void schedule() {
+        schedule(0);
+    }
+
+    /**
+     * <p>schedule</p>
+     *
+     * @param initialDelay the delay in milliseconds before the first poll
+     */
+    public void schedule(long initialDelay) {
         if (m_schedule == null)
             throw new IllegalStateException("Cannot schedule a service whose schedule is set to null");
         
-        m_schedule.schedule();
+        m_schedule.schedule(initialDelay);
     }
 
     public void sendDeleteEvent(final boolean ignoreUnmanaged) {
@@ -26,6 +26,7 @@ import java.net.InetAddress;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
@@ -35,6 +36,9 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.netmgt.config.RTCConfigFactory;
@@ -43,9 +47,11 @@ import org.opennms.netmgt.events.api.EventConstants;
 import org.opennms.netmgt.filter.api.FilterDao;
 import org.opennms.netmgt.filter.api.FilterParseException;
 import org.opennms.netmgt.rtc.datablock.RTCCategory;
+import org.opennms.netmgt.rtc.datablock.RTCCategoryDowntime;
 import org.opennms.netmgt.rtc.datablock.RTCHashMap;
 import org.opennms.netmgt.rtc.datablock.RTCNode;
 import org.opennms.netmgt.rtc.datablock.RTCNodeKey;
+import org.opennms.netmgt.rtc.datablock.RTCNodeSvcTime;
 import org.opennms.netmgt.rtc.utils.LegacyEuiLevelMapper;
 import org.opennms.netmgt.xml.rtc.EuiLevel;
 import org.slf4j.Logger;
@@ -73,6 +79,16 @@ import org.springframework.transaction.support.TransactionTemplate;
  * 'nodeGainedService' event would result in the 'nodeGainedService()' method
  * being called by the DataUpdater(s).
  *
+ * Each category also keeps running downtime totals in a 'RTCCategoryDowntime'
+ * per rolling window which is updated as outages are created and resolved, so
+ * that the availability of a category can be read without walking its nodes.
+ * The totals for the configured rolling window are kept from the start, the
+ * ones for any other window from the first time they are asked for.
+ *
+ * Changes to the map and to the category membership hold the write lock,
+ * outage events and reads hold the read lock - the 'RTCNode's guard their
+ * own outage lists.
+ *
  * @author <A HREF="mailto:sowmya@opennms.org">Sowmya Nataraj </A>
  * @author <A HREF="http://www.opennms.org">OpenNMS.org </A>
  */
@@ -183,7 +199,14 @@ public class DataManager implements AvailabilityService, InitializingBean {
      */
     private RTCHashMap m_map;
 
-	private static void addOutageToRTCNode(RTCNode rtcN, Timestamp lostTimeTS, Timestamp regainedTimeTS) {
+    /**
+     * The running downtime totals for each rolling window, keyed by category label
+     */
+    private Map<String, List<RTCCategoryDowntime>> m_downtimesByCategory;
+
+    private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+
+	private void addOutageToRTCNode(RTCNode rtcN, Timestamp lostTimeTS, Timestamp regainedTimeTS) {
 		if (lostTimeTS == null) return;
 		long lostTime = lostTimeTS.getTime();
 		long regainedTime = -1;
@@ -194,17 +217,29 @@ public class DataManager implements AvailabilityService, InitializingBean {
 
 		LOG.debug("regained time for nodeid/ip/svc: {}/{}/{}: {}/{}", rtcN.getNodeID(), rtcN.getIP(), rtcN.getSvcName(), regainedTimeTS, regainedTime);
 
-		rtcN.addSvcTime(lostTime, regainedTime);
+		if (rtcN.addSvcTime(lostTime, regainedTime)) {
+			for (String catlabel : rtcN.getCategories()) {
+				for (RTCCategoryDowntime downtime : m_downtimesByCategory.get(catlabel)) {
+					downtime.addOutage(lostTime, regainedTime > 0 ? regainedTime : -1);
+				}
+			}
+		}
 	}
 
 	private void addRTCNode(RTCNode rtcN) {
 		m_map.add(rtcN);
 	}
 
-	private static void addNodeToCategory(RTCCategory cat, RTCNode rtcN) {
+	private void addNodeToCategory(RTCCategory cat, RTCNode rtcN) {
 
-		// add the category info to the node
-        rtcN.addCategory(cat.getLabel());
+		// add the category info to the node, and its outages to the category totals
+		if (!rtcN.belongsTo(cat.getLabel())) {
+			rtcN.addCategory(cat.getLabel());
+
+			for (RTCCategoryDowntime downtime : m_downtimesByCategory.get(cat.getLabel())) {
+				addNodeToCategoryDowntime(rtcN, downtime);
+			}
+		}
 
 		// Add node to category
 		cat.addNode(rtcN);
@@ -212,6 +247,22 @@ public class DataManager implements AvailabilityService, InitializingBean {
 		LOG.debug("rtcN : {}/{}/{} added to cat: {}", rtcN.getNodeID(), rtcN.getIP(), rtcN.getSvcName(), cat.getLabel());
 	}
 
+	private static void addNodeToCategoryDowntime(RTCNode rtcN, RTCCategoryDowntime downtime) {
+		downtime.addServices(1);
+		for (RTCNodeSvcTime svcTime : rtcN.getSvcTimes()) {
+			downtime.addOutage(svcTime.getLostTime(), svcTime.getRegainedTime());
+		}
+	}
+
+	private void removeNodeFromCategoryDowntime(RTCNode rtcN, String catlabel) {
+		for (RTCCategoryDowntime downtime : m_downtimesByCategory.get(catlabel)) {
+			downtime.addServices(-1);
+			for (RTCNodeSvcTime svcTime : rtcN.getSvcTimes()) {
+				downtime.removeOutage(svcTime.getLostTime(), svcTime.getRegainedTime());
+			}
+		}
+	}
+
     /**
      * Populates nodes from the database. For each category in the categories
      * list, this reads the services and outage tables to get the initial data,
@@ -285,6 +336,15 @@ public class DataManager implements AvailabilityService, InitializingBean {
         m_euiMapper = new LegacyEuiLevelMapper(this);
     };
 
+    DataManager(FilterDao filterDao, RTCConfigFactory configFactory, TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate, MonitoredServiceDao monitoredServiceDao) {
+        this();
+        m_filterDao = filterDao;
+        m_configFactory = configFactory;
+        m_transactionTemplate = transactionTemplate;
+        m_jdbcTemplate = jdbcTemplate;
+        m_monitoredServiceDao = monitoredServiceDao;
+    }
+
     /**
      * Constructor. Parses categories from the categories.xml and populates them
      * with 'RTCNode' objects created from data read from the database (services
@@ -306,7 +366,14 @@ public class DataManager implements AvailabilityService, InitializingBean {
 	@Override
 	public void afterPropertiesSet() throws Exception {
     	// read the categories.xml to get all the categories
-    	m_categories = RTCUtils.createCategoriesMap();
+    	initialize(RTCUtils.createCategoriesMap());
+	}
+
+	/**
+	 * Sets up the given categories and populates them from the database.
+	 */
+	void initialize(Map<String, RTCCategory> categories) throws RTCException {
+    	m_categories = categories;
 
     	if (m_categories == null || m_categories.isEmpty()) {
     		throw new RTCException("No categories found in categories.xml");
@@ -317,6 +384,15 @@ public class DataManager implements AvailabilityService, InitializingBean {
     	// create data holder
     	m_map = new RTCHashMap(30000);
 
+    	// create the running downtime totals
+    	final long rollingWindow = m_configFactory.getRollingWindow();
+    	m_downtimesByCategory = new HashMap<String, List<RTCCategoryDowntime>>();
+    	for (String catlabel : m_categories.keySet()) {
+    		final List<RTCCategoryDowntime> downtimes = new CopyOnWriteArrayList<RTCCategoryDowntime>();
+    		downtimes.add(new RTCCategoryDowntime(rollingWindow));
+    		m_downtimesByCategory.put(catlabel, downtimes);
+    	}
+
     	m_transactionTemplate.execute(new TransactionCallbackWithoutResult() {
 
     		@Override
@@ -346,7 +422,7 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @param svcName
      *            the service name
      */
-    public synchronized void nodeGainedService(int nodeid, InetAddress ip, String svcName) {
+    public void nodeGainedService(int nodeid, InetAddress ip, String svcName) {
         //
         // check the 'status' flag for the service
         //
@@ -407,18 +483,28 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @param t
      *            the time at which service was lost
      */
-    public synchronized void outageCreated(int nodeid, InetAddress ip, String svcName, long t) {
-        RTCNodeKey key = new RTCNodeKey(nodeid, ip, svcName);
-        RTCNode rtcN = m_map.getRTCNode(key);
-        if (rtcN == null) {
-            // oops! got a lost/regained service for a node that is not known?
-            LOG.info("Received a outageCreated event for an unknown/irrelevant node: {}", key.toString());
-            return;
-        }
-
-        // inform node
-        rtcN.nodeLostService(t);
+    public void outageCreated(int nodeid, InetAddress ip, String svcName, long t) {
+        m_lock.readLock().lock();
+        try {
+            RTCNodeKey key = new RTCNodeKey(nodeid, ip, svcName);
+            RTCNode rtcN = m_map.getRTCNode(key);
+            if (rtcN == null) {
+                // oops! got a lost/regained service for a node that is not known?
+                LOG.info("Received a outageCreated event for an unknown/irrelevant node: {}", key.toString());
+                return;
+            }
 
+            // inform node, and the categories it belongs to
+            if (rtcN.nodeLostService(t)) {
+                for (String catlabel : rtcN.getCategories()) {
+                    for (RTCCategoryDowntime downtime : m_downtimesByCategory.get(catlabel)) {
+                        downtime.addOutage(t, -1);
+                    }
+                }
+            }
+        } finally {
+            m_lock.readLock().unlock();
+        }
     }
 
     /**
@@ -434,17 +520,29 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @param t
      *            the time at which service was regained
      */
-    public synchronized void outageResolved(int nodeid, InetAddress ip, String svcName, long t) {
-        RTCNodeKey key = new RTCNodeKey(nodeid, ip, svcName);
-        RTCNode rtcN = m_map.getRTCNode(key);
-        if (rtcN == null) {
-            // oops! got a lost/regained service for a node that is not known?
-            LOG.info("Received a outageResolved event for an unknown/irrelevant node: {}", key.toString());
-            return;
-        }
+    public void outageResolved(int nodeid, InetAddress ip, String svcName, long t) {
+        m_lock.readLock().lock();
+        try {
+            RTCNodeKey key = new RTCNodeKey(nodeid, ip, svcName);
+            RTCNode rtcN = m_map.getRTCNode(key);
+            if (rtcN == null) {
+                // oops! got a lost/regained service for a node that is not known?
+                LOG.info("Received a outageResolved event for an unknown/irrelevant node: {}", key.toString());
+                return;
+            }
 
-        // inform node
-        rtcN.nodeRegainedService(t);
+            // inform node, and the categories it belongs to
+            final long lostTime = rtcN.nodeRegainedService(t);
+            if (lostTime != -1) {
+                for (String catlabel : rtcN.getCategories()) {
+                    for (RTCCategoryDowntime downtime : m_downtimesByCategory.get(catlabel)) {
+                        downtime.resolveOutage(lostTime, t);
+                    }
+                }
+            }
+        } finally {
+            m_lock.readLock().unlock();
+        }
     }
 
     /**
@@ -457,50 +555,59 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @param svcName
      *            the service that was deleted
      */
-    public synchronized void serviceDeleted(int nodeid, InetAddress ip, String svcName) {
-        // create lookup key
-        RTCNodeKey key = new RTCNodeKey(nodeid, ip, svcName);
+    public void serviceDeleted(int nodeid, InetAddress ip, String svcName) {
+        m_lock.writeLock().lock();
+        try {
+            // create lookup key
+            RTCNodeKey key = new RTCNodeKey(nodeid, ip, svcName);
 
-        // lookup the node
-        RTCNode rtcN = m_map.getRTCNode(key);
-        if (rtcN == null) {
-            LOG.warn("Received a {} event for an unknown node: {}", EventConstants.SERVICE_DELETED_EVENT_UEI, key.toString());
+            // lookup the node
+            RTCNode rtcN = m_map.getRTCNode(key);
+            if (rtcN == null) {
+                LOG.warn("Received a {} event for an unknown node: {}", EventConstants.SERVICE_DELETED_EVENT_UEI, key.toString());
 
-            return;
-        }
+                return;
+            }
 
-        //
-        // Go through from all the categories this node belongs to
-        // and delete the service
-        //
-        List<String> categories = rtcN.getCategories();
-        ListIterator<String> catIter = categories.listIterator();
-        while (catIter.hasNext()) {
-            String catlabel = (String) catIter.next();
-
-            RTCCategory cat = (RTCCategory) m_categories.get(catlabel);
-
-            // get nodes in this category
-            List<Integer> catNodes = cat.getNodes();
-
-            // check if the category contains this node
-            int nIndex = catNodes.indexOf(rtcN.getNodeID());
-            if (nIndex != -1) {
-                // remove from the category if it is the only service left.
-                if (m_map.getServiceCount(nodeid, catlabel) == 1) {
-                    catNodes.remove(nIndex);
-                    LOG.info("Removing node from category: {}", catlabel);
-                }
+            // the service no longer counts towards any of the categories
+            for (String catlabel : rtcN.getCategories()) {
+                removeNodeFromCategoryDowntime(rtcN, catlabel);
+            }
 
-                // let the node know that this category is out
-                catIter.remove();
+            //
+            // Go through from all the categories this node belongs to
+            // and delete the service
+            //
+            List<String> categories = rtcN.getCategories();
+            ListIterator<String> catIter = categories.listIterator();
+            while (catIter.hasNext()) {
+                String catlabel = (String) catIter.next();
+
+                RTCCategory cat = (RTCCategory) m_categories.get(catlabel);
+
+                // get nodes in this category
+                List<Integer> catNodes = cat.getNodes();
+
+                // check if the category contains this node
+                int nIndex = catNodes.indexOf(rtcN.getNodeID());
+                if (nIndex != -1) {
+                    // remove from the category if it is the only service left.
+                    if (m_map.getServiceCount(nodeid, catlabel) == 1) {
+                        catNodes.remove(nIndex);
+                        LOG.info("Removing node from category: {}", catlabel);
+                    }
+
+                    // let the node know that this category is out
+                    catIter.remove();
+                }
             }
-        }
 
-        // finally remove from map
-        
-        m_map.delete(rtcN);
+            // finally remove from map
 
+            m_map.delete(rtcN);
+        } finally {
+            m_lock.writeLock().unlock();
+        }
     }
     
     /**
@@ -508,7 +615,7 @@ public class DataManager implements AvailabilityService, InitializingBean {
      *
      * @param nodeid a long.
      */
-    public synchronized void assetInfoChanged(int nodeid) {
+    public void assetInfoChanged(int nodeid) {
         try {
         	rtcNodeRescan(nodeid);
         } catch (FilterParseException ex) {
@@ -530,7 +637,7 @@ public class DataManager implements AvailabilityService, InitializingBean {
      *
      * @param nodeid a long.
      */
-    public synchronized void nodeCategoryMembershipChanged(int nodeid) {
+    public void nodeCategoryMembershipChanged(int nodeid) {
         try {
         	rtcNodeRescan(nodeid);
         } catch (FilterParseException ex) {
@@ -560,16 +667,25 @@ public class DataManager implements AvailabilityService, InitializingBean {
      *             if the database read or filtering the data against the
      *             category rule fails for some reason
      */
-    public synchronized void rtcNodeRescan(int nodeid) throws SQLException, FilterParseException, RTCException {
-    	
-    	for (RTCCategory cat : m_categories.values()) {
-			cat.deleteNode(nodeid);
-		}
-    	
-    	m_map.deleteNode(nodeid);
-    	
-    	populateNodesFromDB("ifsvc.nodeid = ?", new Object[] { Long.valueOf(nodeid) });
-    	
+    public void rtcNodeRescan(int nodeid) throws SQLException, FilterParseException, RTCException {
+        m_lock.writeLock().lock();
+        try {
+            for (RTCCategory cat : m_categories.values()) {
+                cat.deleteNode(nodeid);
+            }
+
+            for (RTCNode rtcN : m_map.getRTCNodes(nodeid)) {
+                for (String catlabel : rtcN.getCategories()) {
+                    removeNodeFromCategoryDowntime(rtcN, catlabel);
+                }
+            }
+
+            m_map.deleteNode(nodeid);
+
+            populateNodesFromDB("ifsvc.nodeid = ?", new Object[] { Long.valueOf(nodeid) });
+        } finally {
+            m_lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -592,9 +708,18 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @param newNodeId
      *            the node that the IP now belongs to
      */
-    public synchronized void interfaceReparented(InetAddress ip, int oldNodeId, int newNodeId) {
-        // get all RTCNodes with the IP/old node ID
-        for (RTCNode rtcN : m_map.getRTCNodes(oldNodeId, ip)) {
+    public void interfaceReparented(InetAddress ip, int oldNodeId, int newNodeId) {
+        m_lock.writeLock().lock();
+        try {
+            doInterfaceReparented(ip, oldNodeId, newNodeId);
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    private void doInterfaceReparented(InetAddress ip, int oldNodeId, int newNodeId) {
+        // get all RTCNodes with the IP/old node ID, the map is modified as we go
+        for (RTCNode rtcN : new ArrayList<RTCNode>(m_map.getRTCNodes(oldNodeId, ip))) {
 
             // remove the node with the old node id from the map
             m_map.delete(rtcN);
@@ -629,8 +754,48 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @return the value(uptime) for the category in the last 'rollingWindow'
      *         starting at current time
      */
-    public synchronized double getValue(RTCCategory category, long curTime, long rollingWindow) {
-        return m_map.getValue(category.getLabel(), curTime, rollingWindow);
+    public double getValue(RTCCategory category, long curTime, long rollingWindow) {
+        return getDowntime(category, rollingWindow).getValue(curTime);
+    }
+
+    /**
+     * Get the running downtime totals of the category for the given window,
+     * starting to keep them if this window has not been asked for before.
+     */
+    private RTCCategoryDowntime getDowntime(RTCCategory category, long rollingWindow) {
+        final List<RTCCategoryDowntime> downtimes = m_downtimesByCategory.get(category.getLabel());
+        if (downtimes == null) {
+            throw new IllegalArgumentException("Unknown category: " + category.getLabel());
+        }
+        for (RTCCategoryDowntime downtime : downtimes) {
+            if (downtime.getRollingWindow() == rollingWindow) {
+                return downtime;
+            }
+        }
+
+        // The write lock keeps the services of the category from changing while
+        // their outages are added to the new totals
+        m_lock.writeLock().lock();
+        try {
+            for (RTCCategoryDowntime downtime : downtimes) {
+                if (downtime.getRollingWindow() == rollingWindow) {
+                    return downtime;
+                }
+            }
+
+            final RTCCategoryDowntime downtime = new RTCCategoryDowntime(rollingWindow);
+            for (Integer nodeid : category.getNodes()) {
+                for (RTCNode rtcN : m_map.getRTCNodes(nodeid)) {
+                    if (rtcN.belongsTo(category.getLabel())) {
+                        addNodeToCategoryDowntime(rtcN, downtime);
+                    }
+                }
+            }
+            downtimes.add(downtime);
+            return downtime;
+        } finally {
+            m_lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -648,8 +813,13 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @return the value(uptime) for the node in the last 'rollingWindow'
      *         starting at current time in the context of the passed category
      */
-    public synchronized double getValue(int nodeid, RTCCategory category, long curTime, long rollingWindow) {
-        return m_map.getValue(nodeid, category.getLabel(), curTime, rollingWindow);
+    public double getValue(int nodeid, RTCCategory category, long curTime, long rollingWindow) {
+        m_lock.readLock().lock();
+        try {
+            return m_map.getValue(nodeid, category.getLabel(), curTime, rollingWindow);
+        } finally {
+            m_lock.readLock().unlock();
+        }
     }
 
     /**
@@ -663,8 +833,13 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @return the service count for the nodeid in the context of the passed
      *         category
      */
-    public synchronized int getServiceCount(int nodeid, RTCCategory category) {
-        return m_map.getServiceCount(nodeid, category.getLabel());
+    public int getServiceCount(int nodeid, RTCCategory category) {
+        m_lock.readLock().lock();
+        try {
+            return m_map.getServiceCount(nodeid, category.getLabel());
+        } finally {
+            m_lock.readLock().unlock();
+        }
     }
 
     /**
@@ -678,8 +853,13 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @return the service down count for the nodeid in the context of the
      *         passed category
      */
-    public synchronized int getServiceDownCount(int nodeid, RTCCategory category) {
-        return m_map.getServiceDownCount(nodeid, category.getLabel());
+    public int getServiceDownCount(int nodeid, RTCCategory category) {
+        m_lock.readLock().lock();
+        try {
+            return m_map.getServiceDownCount(nodeid, category.getLabel());
+        } finally {
+            m_lock.readLock().unlock();
+        }
     }
 
     /**
@@ -688,7 +868,7 @@ public class DataManager implements AvailabilityService, InitializingBean {
      * @return the categories
      */
     @Override
-    public synchronized Map<String, RTCCategory> getCategories() {
+    public Map<String, RTCCategory> getCategories() {
         return m_categories;
     }
 
@@ -0,0 +1,365 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.rtc.datablock;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import org.opennms.netmgt.rtc.RTCUtils;
+
+/**
+ * Running downtime totals for the services of a single category over the
+ * rolling window.
+ *
+ * The window is divided into fixed width time buckets kept in a ring of
+ * primitive arrays. The downtime of resolved outages is spread over the
+ * buckets it overlaps, while outstanding outages are tracked by the bucket
+ * they started in, so that their downtime can be derived from the current
+ * time. Totals over all of the buckets are maintained as outages are added
+ * and as buckets fall out of the window, which makes the availability of the
+ * category available in constant time.
+ *
+ * The availability is precise to the width of a bucket: a bucket that is
+ * partially in the window is counted until it has fallen out of it completely.
+ *
+ * Readers use optimistic reads and do not block the updates, which only hold
+ * the lock for the time it takes to update the buckets. A reader only takes
+ * the lock when an update raced with it, or when buckets have to be expired.
+ *
+ * @author <A HREF="http://www.opennms.org">OpenNMS.org </A>
+ */
+public class RTCCategoryDowntime {
+
+    /**
+     * The default width of a bucket, one minute
+     */
+    public static final long DEFAULT_BUCKET_WIDTH = 60L * 1000L;
+
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+
+    private final long m_rollingWindow;
+
+    private final long m_bucketWidth;
+
+    /**
+     * The origin of the times stored in the buckets, keeps the sums of
+     * the outage start times well within the range of a long.
+     */
+    private final long m_origin;
+
+    private final StampedLock m_lock = new StampedLock();
+
+    /**
+     * The bucket stored in each slot of the ring
+     */
+    private final long[] m_bucketIds;
+
+    /**
+     * The downtime of the resolved outages, by bucket
+     */
+    private final long[] m_resolvedDowntime;
+
+    /**
+     * The number of outstanding outages that started in each bucket
+     */
+    private final int[] m_outstandingCount;
+
+    /**
+     * The sum of the start times of the outstanding outages that started in each bucket
+     */
+    private final long[] m_outstandingLostTimeSum;
+
+    /**
+     * All buckets up to and including this one have fallen out of the window
+     */
+    private long m_expiredBucket;
+
+    private long m_resolvedDowntimeTotal;
+
+    private int m_outstandingCountTotal;
+
+    private long m_outstandingLostTimeSumTotal;
+
+    /**
+     * The number of outstanding outages that started before the window
+     */
+    private int m_outstandingBeforeWindow;
+
+    private int m_serviceCount;
+
+    /**
+     * Constructor
+     *
+     * @param rollingWindow
+     *            the window for which the availability is calculated
+     * @param bucketWidth
+     *            the width of a bucket
+     * @param curTime
+     *            the current time
+     */
+    public RTCCategoryDowntime(long rollingWindow, long bucketWidth, long curTime) {
+        if (rollingWindow <= 0 || bucketWidth <= 0) {
+            throw new IllegalArgumentException("The rolling window and the bucket width must be strictly positive");
+        }
+        m_rollingWindow = rollingWindow;
+        m_bucketWidth = bucketWidth;
+        m_origin = curTime - rollingWindow;
+
+        // One extra bucket for the bucket that is partially in the window
+        final int size = (int)((rollingWindow + bucketWidth - 1) / bucketWidth) + 1;
+        m_bucketIds = new long[size];
+        m_resolvedDowntime = new long[size];
+        m_outstandingCount = new int[size];
+        m_outstandingLostTimeSum = new long[size];
+        Arrays.fill(m_bucketIds, NO_BUCKET);
+        m_expiredBucket = getBucket(curTime - rollingWindow) - 1;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param rollingWindow
+     *            the window for which the availability is calculated
+     */
+    public RTCCategoryDowntime(long rollingWindow) {
+        this(rollingWindow, DEFAULT_BUCKET_WIDTH, System.currentTimeMillis());
+    }
+
+    /**
+     * <p>getRollingWindow</p>
+     *
+     * @return the window for which the availability is calculated
+     */
+    public long getRollingWindow() {
+        return m_rollingWindow;
+    }
+
+    /**
+     * Add or remove a service from the category
+     *
+     * @param delta
+     *            the number of services to add, negative to remove
+     */
+    public void addServices(int delta) {
+        final long stamp = m_lock.writeLock();
+        try {
+            m_serviceCount += delta;
+        } finally {
+            m_lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Add the outage of one of the services in the category
+     *
+     * @param lostTime
+     *            the time at which the service was lost
+     * @param regainedTime
+     *            the time at which the service was regained, -1 if the
+     *            outage is outstanding
+     */
+    public void addOutage(long lostTime, long regainedTime) {
+        updateOutage(lostTime, regainedTime, 1);
+    }
+
+    /**
+     * Remove an outage that was previously added with
+     * {@link #addOutage(long, long)}
+     *
+     * @param lostTime
+     *            the time at which the service was lost
+     * @param regainedTime
+     *            the time at which the service was regained, -1 if the
+     *            outage is outstanding
+     */
+    public void removeOutage(long lostTime, long regainedTime) {
+        updateOutage(lostTime, regainedTime, -1);
+    }
+
+    /**
+     * Resolve an outstanding outage that was previously added with
+     * {@link #addOutage(long, long)}
+     *
+     * @param lostTime
+     *            the time at which the service was lost
+     * @param regainedTime
+     *            the time at which the service was regained
+     */
+    public void resolveOutage(long lostTime, long regainedTime) {
+        final long stamp = m_lock.writeLock();
+        try {
+            expire(System.currentTimeMillis());
+            updateOutstanding(lostTime, -1);
+            updateResolved(lostTime, regainedTime, 1);
+        } finally {
+            m_lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the downtime of all of the services in the category over the
+     * rolling window ending at the given time
+     *
+     * @param curTime
+     *            the current time
+     * @return the downtime in milliseconds
+     */
+    public long getDownTime(long curTime) {
+        return (long)read(curTime)[0];
+    }
+
+    /**
+     * Get the value (uptime) for the category over the rolling window ending
+     * at the given time
+     *
+     * @param curTime
+     *            the current time
+     * @return the value(uptime) for the category
+     */
+    public double getValue(long curTime) {
+        final double[] downTimeAndServices = read(curTime);
+        return RTCUtils.getOutagePercentage(downTimeAndServices[0], m_rollingWindow, (long)downTimeAndServices[1]);
+    }
+
+    private double[] read(long curTime) {
+        long stamp = m_lock.tryOptimisticRead();
+        final boolean expired = getBucket(curTime - m_rollingWindow) - 1 > m_expiredBucket;
+        final double[] downTimeAndServices = getDownTimeAndServices(curTime);
+        if (!expired && m_lock.validate(stamp)) {
+            return downTimeAndServices;
+        }
+
+        // Some buckets have fallen out of the window since the last update,
+        // or an update raced with us
+        stamp = m_lock.writeLock();
+        try {
+            expire(curTime);
+            return getDownTimeAndServices(curTime);
+        } finally {
+            m_lock.unlockWrite(stamp);
+        }
+    }
+
+    private double[] getDownTimeAndServices(long curTime) {
+        final long outstandingDownTime = m_outstandingCountTotal * (curTime - m_origin) - m_outstandingLostTimeSumTotal;
+        final long downTime = m_resolvedDowntimeTotal
+                + Math.max(0, outstandingDownTime)
+                + m_outstandingBeforeWindow * m_rollingWindow;
+        return new double[] { downTime, m_serviceCount };
+    }
+
+    private void updateOutage(long lostTime, long regainedTime, int sign) {
+        final long stamp = m_lock.writeLock();
+        try {
+            expire(System.currentTimeMillis());
+            if (regainedTime < 0) {
+                updateOutstanding(lostTime, sign);
+            } else {
+                updateResolved(lostTime, regainedTime, sign);
+            }
+        } finally {
+            m_lock.unlockWrite(stamp);
+        }
+    }
+
+    private void updateOutstanding(long lostTime, int sign) {
+        final long bucket = getBucket(lostTime);
+        final int slot = getSlot(bucket);
+        if (bucket <= m_expiredBucket || !claim(slot, bucket)) {
+            m_outstandingBeforeWindow += sign;
+            return;
+        }
+        m_outstandingCount[slot] += sign;
+        m_outstandingLostTimeSum[slot] += sign * (lostTime - m_origin);
+        m_outstandingCountTotal += sign;
+        m_outstandingLostTimeSumTotal += sign * (lostTime - m_origin);
+    }
+
+    private void updateResolved(long lostTime, long regainedTime, int sign) {
+        // Skip the part of the outage that has already fallen out of the window
+        long start = Math.max(lostTime, (m_expiredBucket + 1) * m_bucketWidth + m_origin);
+        while (start < regainedTime) {
+            final long bucket = getBucket(start);
+            final long end = Math.min(regainedTime, (bucket + 1) * m_bucketWidth + m_origin);
+            final int slot = getSlot(bucket);
+            if (claim(slot, bucket)) {
+                m_resolvedDowntime[slot] += sign * (end - start);
+                m_resolvedDowntimeTotal += sign * (end - start);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Make sure the given slot holds the given bucket, expiring the
+     * bucket it held before if required.
+     *
+     * @return false if the slot holds a more recent bucket
+     */
+    private boolean claim(int slot, long bucket) {
+        if (m_bucketIds[slot] == bucket) {
+            return true;
+        } else if (m_bucketIds[slot] > bucket) {
+            return false;
+        }
+        expireSlot(slot);
+        m_bucketIds[slot] = bucket;
+        return true;
+    }
+
+    private void expire(long curTime) {
+        final long lastExpiredBucket = getBucket(curTime - m_rollingWindow) - 1;
+        if (lastExpiredBucket <= m_expiredBucket) {
+            return;
+        }
+        // There's no need to look at more buckets than there are slots
+        for (long bucket = Math.max(m_expiredBucket + 1, lastExpiredBucket - m_bucketIds.length + 1); bucket <= lastExpiredBucket; bucket++) {
+            final int slot = getSlot(bucket);
+            if (m_bucketIds[slot] == bucket) {
+                expireSlot(slot);
+            }
+        }
+        m_expiredBucket = lastExpiredBucket;
+    }
+
+    private void expireSlot(int slot) {
+        if (m_bucketIds[slot] == NO_BUCKET) {
+            return;
+        }
+        m_resolvedDowntimeTotal -= m_resolvedDowntime[slot];
+        m_outstandingCountTotal -= m_outstandingCount[slot];
+        m_outstandingLostTimeSumTotal -= m_outstandingLostTimeSum[slot];
+        m_outstandingBeforeWindow += m_outstandingCount[slot];
+        m_resolvedDowntime[slot] = 0;
+        m_outstandingCount[slot] = 0;
+        m_outstandingLostTimeSum[slot] = 0;
+        m_bucketIds[slot] = NO_BUCKET;
+    }
+
+    private long getBucket(long time) {
+        return Math.floorDiv(time - m_origin, m_bucketWidth);
+    }
+
+    private int getSlot(long bucket) {
+        return (int)Math.floorMod(bucket, (long)m_bucketIds.length);
+    }
+}
@@ -120,9 +120,19 @@ public class RTCNode {
      *            time at which service was lost
      * @param regainedtime
      *            time at which service was regained
+     * @return true if the entry was added, false if it was rejected
      */
-    public void addSvcTime(long losttime, long regainedtime) {
-        m_svcTimesList.addSvcTime(losttime, regainedtime);
+    public synchronized boolean addSvcTime(long losttime, long regainedtime) {
+        return m_svcTimesList.addSvcTime(losttime, regainedtime);
+    }
+
+    /**
+     * Return a copy of the 'RTCNodeSvcTime' entries for this node.
+     *
+     * @return the service time entries
+     */
+    public synchronized List<RTCNodeSvcTime> getSvcTimes() {
+        return new ArrayList<>(m_svcTimesList);
     }
 
     /**
@@ -158,8 +168,9 @@ public class RTCNode {
      *
      * @param t
      *            the time at which service was lost
+     * @return true if a new service time entry was created
      */
-    public synchronized void nodeLostService(long t) {
+    public synchronized boolean nodeLostService(long t) {
         // check if the last element in the times list is 'open'
         // i.e. is waiting for a regained service - if yes,
         // don't add anything
@@ -171,13 +182,14 @@ public class RTCNode {
             if (stime.getRegainedTime() == -1) {
                 // last event was a 'lostService'
                 // ignore this event
-                return;
+                return false;
             }
         }
 
         // create a new entry
         RTCNodeSvcTime newStime = new RTCNodeSvcTime(t);
         m_svcTimesList.add(newStime);
+        return true;
     }
 
     /**
@@ -187,8 +199,10 @@ public class RTCNode {
      *
      * @param t
      *            the time at which node regained service
+     * @return the time at which the service was lost, or -1 if no service
+     *         time entry was closed
      */
-    public synchronized void nodeRegainedService(long t) {
+    public synchronized long nodeRegainedService(long t) {
         int listsize = m_svcTimesList.size();
         if (listsize > 0) {
             RTCNodeSvcTime stime = (RTCNodeSvcTime) m_svcTimesList.get(listsize - 1);
@@ -196,11 +210,15 @@ public class RTCNode {
             if (stime.getRegainedTime() != -1) {
                 // last event was a 'regainedService'
                 // ignore this event
-                return;
+                return -1;
             }
 
             stime.setRegainedTime(t);
+            if (stime.getRegainedTime() != -1) {
+                return stime.getLostTime();
+            }
         }
+        return -1;
     }
 
     /**
@@ -268,7 +286,7 @@ public class RTCNode {
      * @return the total outage time for this node
      * @throws NodeNotInCategoryException 
      */
-    public long getDownTime(String cat, long curTime, long rollingWindow) throws NodeNotInCategoryException {
+    public synchronized long getDownTime(String cat, long curTime, long rollingWindow) throws NodeNotInCategoryException {
         // get the down time for this node in the context of the
         // category.
         // if the service is not in 'context', throw an exception
@@ -284,7 +302,7 @@ public class RTCNode {
      *
      * @return true if the service is currently down
      */
-    public boolean isServiceCurrentlyDown() {
+    public synchronized boolean isServiceCurrentlyDown() {
         int size = m_svcTimesList.size();
         if (size == 0) {
             return false;
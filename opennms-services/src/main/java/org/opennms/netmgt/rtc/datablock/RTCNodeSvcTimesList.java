@@ -104,18 +104,20 @@ public class RTCNodeSvcTimesList extends LinkedList<RTCNodeSvcTime> {
      *            time at which service was lost
      * @param regainedtime
      *            time at which service was regained
+     * @return true if the entry was added, false if it was rejected
      */
-    public void addSvcTime(long losttime, long regainedtime) {
+    public boolean addSvcTime(long losttime, long regainedtime) {
         // remove expired outages
         removeExpiredOutages();
 
         if (regainedtime > 0 && regainedtime < losttime) {
             LOG.warn("RTCNodeSvcTimesList: Rejecting service time pair since regained time in milliseconds: {} less than lost time -> losttime in milliseconds: {}", regainedtime, losttime);
 
-            return;
+            return false;
         }
 
         addLast(new RTCNodeSvcTime(losttime, regainedtime));
+        return true;
     }
 
     /**
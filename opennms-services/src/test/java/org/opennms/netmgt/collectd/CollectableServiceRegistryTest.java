@@ -0,0 +1,131 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.collectd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.opennms.core.utils.InetAddressUtils;
+
+public class CollectableServiceRegistryTest {
+
+    private final CollectableServiceRegistry registry = new CollectableServiceRegistry();
+
+    @Test
+    public void canIndexServicesByNodeInterfaceServiceAndPackage() {
+        final CollectableService svc1 = service(1, "192.168.1.1", "SNMP", "pkg1");
+        final CollectableService svc2 = service(1, "192.168.1.1", "SNMP", "pkg2");
+        final CollectableService svc3 = service(2, "192.168.1.1", "SNMP", "pkg1");
+
+        assertTrue(registry.add(svc1));
+        assertTrue(registry.add(svc2));
+        assertTrue(registry.add(svc3));
+        // Same node, interface, service and package
+        assertFalse(registry.add(service(1, "192.168.1.1", "SNMP", "pkg1")));
+
+        assertEquals(3, registry.size());
+        assertTrue(registry.contains(1, "192.168.1.1", "SNMP", "pkg2"));
+        assertFalse(registry.contains(1, "192.168.1.2", "SNMP", "pkg2"));
+        assertFalse(registry.contains(3, "192.168.1.1", "SNMP", "pkg1"));
+        assertEquals(2, registry.getByNode(1).size());
+        assertEquals(3, registry.getByAddress("192.168.1.1").size());
+    }
+
+    @Test
+    public void canRemoveServicesByNodeInterfaceAndService() {
+        final CollectableService snmp = service(1, "192.168.1.1", "SNMP", "pkg");
+        final CollectableService jmx = service(1, "192.168.1.1", "JMX", "pkg");
+        final CollectableService other = service(1, "192.168.1.2", "SNMP", "pkg");
+        final CollectableService node2 = service(2, "192.168.1.1", "SNMP", "pkg");
+        registry.add(snmp);
+        registry.add(jmx);
+        registry.add(other);
+        registry.add(node2);
+
+        assertEquals(Collections.singletonList(jmx), registry.removeByService(1, "192.168.1.1", "JMX"));
+        assertEquals(Collections.singletonList(snmp), registry.removeByInterface(1, "192.168.1.1"));
+        assertEquals(Collections.singletonList(other), registry.removeByNode(1));
+        assertEquals(Collections.emptyList(), registry.removeByNode(1));
+
+        assertEquals(1, registry.size());
+        assertEquals(Collections.singletonList(node2), registry.removeByAddress("192.168.1.1"));
+        assertEquals(0, registry.size());
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void canMoveServicesToAnotherNode() {
+        final CollectableService svc = service(1, "192.168.1.1", "SNMP", "pkg");
+        registry.add(svc);
+
+        assertTrue(registry.move(svc, 1, 2));
+
+        assertTrue(registry.getByNode(1).isEmpty());
+        assertEquals(Collections.singletonList(svc), registry.getByInterface(2, "192.168.1.1"));
+        assertEquals(1, registry.size());
+
+        // Removal finds the service even though it still reports its old node
+        assertTrue(registry.remove(svc));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void dropsMovedServiceAlreadyRegisteredOnTheNewNode() {
+        final CollectableService moved = service(1, "192.168.1.1", "SNMP", "pkg");
+        final CollectableService existing = service(2, "192.168.1.1", "SNMP", "pkg");
+        registry.add(moved);
+        registry.add(existing);
+
+        assertFalse(registry.move(moved, 1, 2));
+
+        assertTrue(registry.getByNode(1).isEmpty());
+        assertEquals(Collections.singletonList(existing), registry.getByNode(2));
+        assertEquals(1, registry.size());
+        assertFalse(registry.remove(moved));
+    }
+
+    @Test
+    public void canRemoveThroughIterator() {
+        registry.add(service(1, "192.168.1.1", "SNMP", "pkg"));
+        registry.add(service(2, "192.168.1.2", "JMX", "pkg"));
+
+        registry.removeIf(svc -> "JMX".equals(svc.getServiceName()));
+
+        assertEquals(1, registry.size());
+        assertEquals("SNMP", registry.iterator().next().getServiceName());
+    }
+
+    private static CollectableService service(final int nodeId, final String ipAddress, final String svcName, final String pkgName) {
+        final CollectableService svc = mock(CollectableService.class);
+        when(svc.getNodeId()).thenReturn(nodeId);
+        when(svc.getAddress()).thenReturn(InetAddressUtils.addr(ipAddress));
+        when(svc.getServiceName()).thenReturn(svcName);
+        when(svc.getPackageName()).thenReturn(pkgName);
+        return svc;
+    }
+}
@@ -92,9 +92,15 @@ public class CollectdEventHandlingTest {
         assertFalse("deletion flag was set on svc2!", svc2.getCollectorUpdates().isDeletionFlagSet());
 
         verify(svc1, times(2)).getCollectorUpdates();
+        verify(svc1, times(1)).getAddress();
         verify(svc1, times(3)).getNodeId();
+        verify(svc1, times(1)).getServiceName();
+        verify(svc1, times(1)).getPackageName();
+        verify(svc2, times(1)).getAddress();
         verify(svc2, times(1)).getCollectorUpdates();
         verify(svc2, times(1)).getNodeId();
+        verify(svc2, times(1)).getServiceName();
+        verify(svc2, times(1)).getPackageName();
     }
 
     @Test
@@ -118,11 +124,15 @@ public class CollectdEventHandlingTest {
         assertFalse("deletion flag was set on svc2!", svc2.getCollectorUpdates().isDeletionFlagSet());
 
         verify(svc1, times(2)).getCollectorUpdates();
-        verify(svc1, times(2)).getAddress();
+        verify(svc1, times(3)).getAddress();
         verify(svc1, times(3)).getNodeId();
+        verify(svc1, times(1)).getServiceName();
+        verify(svc1, times(1)).getPackageName();
         verify(svc2, times(1)).getAddress();
         verify(svc2, times(1)).getCollectorUpdates();
         verify(svc2, times(1)).getNodeId();
+        verify(svc2, times(1)).getServiceName();
+        verify(svc2, times(1)).getPackageName();
     }
 
     @Test
@@ -149,9 +159,12 @@ public class CollectdEventHandlingTest {
         verify(svc1, times(1)).getAddress();
         verify(svc1, times(1)).getCollectorUpdates();
         verify(svc1, times(1)).getNodeId();
-        verify(svc2, times(2)).getAddress();
+        verify(svc1, times(1)).getServiceName();
+        verify(svc1, times(1)).getPackageName();
+        verify(svc2, times(3)).getAddress();
         verify(svc2, times(2)).getCollectorUpdates();
         verify(svc2, times(3)).getNodeId();
         verify(svc2, times(3)).getServiceName();
+        verify(svc2, times(1)).getPackageName();
     }
 }
@@ -283,7 +283,7 @@ public class CollectdIT {
     public void testNoMatchingSpecs() throws Exception {
 
         setupCollector("SNMP");
-        when(m_ipIfDao.findByServiceType("SNMP")).thenReturn(new ArrayList<OnmsIpInterface>(0));
+        when(m_ipIfDao.findIdsByServiceType("SNMP")).thenReturn(new ArrayList<Integer>(0));
         setupTransactionManager();
 
         m_collectd.afterPropertiesSet();
@@ -399,7 +399,7 @@ public class CollectdIT {
     }
 
     private void setupInterface(OnmsIpInterface iface) {
-        when(m_ipIfDao.findByServiceType("SNMP")).thenReturn(Collections.singletonList(iface));
+        when(m_ipIfDao.findIdsByServiceType("SNMP")).thenReturn(Collections.singletonList(iface.getId()));
         when(m_ipIfDao.load(iface.getId())).thenReturn(iface);
     }
 
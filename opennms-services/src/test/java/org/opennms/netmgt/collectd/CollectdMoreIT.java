@@ -193,8 +193,8 @@ public class CollectdMoreIT {
         ifaceBlder.addSnmpInterface(1);
         OnmsMonitoredService svc = netBuilder.addService(snmp);
         
-        List<OnmsIpInterface> initialIfs = Collections.emptyList();
-        when(m_ifaceDao.findByServiceType(snmp.getName())).thenReturn(initialIfs);
+        List<Integer> initialIfs = Collections.emptyList();
+        when(m_ifaceDao.findIdsByServiceType(snmp.getName())).thenReturn(initialIfs);
         
         m_filterDao.flushActiveIpAddressListCache();
         verify(m_filterDao, atLeastOnce()).flushActiveIpAddressListCache();
@@ -267,7 +267,7 @@ public class CollectdMoreIT {
         verify(m_collectdConfigFactory, atLeastOnce()).getCollectors();
         verify(m_collectdConfigFactory, atLeastOnce()).getPackages();
         verify(m_collectdConfigFactory, atLeastOnce()).getThreads();
-        verify(m_ifaceDao, atLeastOnce()).findByServiceType("SNMP");
+        verify(m_ifaceDao, atLeastOnce()).findIdsByServiceType("SNMP");
         verify(m_ifaceDao, atLeastOnce()).load(anyInt());
         verify(m_nodeDao, atLeastOnce()).load(anyInt());
     }
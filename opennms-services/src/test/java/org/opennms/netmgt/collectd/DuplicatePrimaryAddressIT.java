@@ -154,7 +154,7 @@ public class DuplicatePrimaryAddressIT {
         Mockito.verify(m_collectdConfigFactory, atLeastOnce()).getPackages();
         Mockito.verify(m_collectdConfigFactory, atLeastOnce()).interfaceInPackage(any(OnmsIpInterface.class), any(Package.class));
         Mockito.verify(m_collectdConfigFactory, atLeastOnce()).getThreads();
-        Mockito.verify(m_ifaceDao, atLeastOnce()).findByServiceType(anyString());
+        Mockito.verify(m_ifaceDao, atLeastOnce()).findIdsByServiceType(anyString());
         Mockito.verify(m_ifaceDao, atLeastOnce()).load(anyInt());
     }
 
@@ -194,7 +194,7 @@ public class DuplicatePrimaryAddressIT {
         Mockito.verify(m_collectdConfigFactory, atLeastOnce()).getPackages();
         Mockito.verify(m_collectdConfigFactory, atLeastOnce()).interfaceInPackage(any(OnmsIpInterface.class), any(Package.class));
         Mockito.verify(m_collectdConfigFactory, atLeastOnce()).getThreads();
-        Mockito.verify(m_ifaceDao, atLeastOnce()).findByServiceType(anyString());
+        Mockito.verify(m_ifaceDao, atLeastOnce()).findIdsByServiceType(anyString());
         Mockito.verify(m_ifaceDao, atLeastOnce()).load(anyInt());
         Mockito.verify(m_nodeDao, atLeastOnce()).load(anyInt());
     }
@@ -257,12 +257,12 @@ public class DuplicatePrimaryAddressIT {
 
         Assert.assertNotSame(ip1.getNode().getId(), ip2.getNode().getId());
 
-        List<OnmsIpInterface> initialIfs = new ArrayList<>();
+        List<Integer> initialIfs = new ArrayList<>();
         if (scheduleExistingNodes) {
-            initialIfs.add(ip1);
-            initialIfs.add(ip2);
+            initialIfs.add(ip1.getId());
+            initialIfs.add(ip2.getId());
         }
-        when(m_ifaceDao.findByServiceType(snmp.getName())).thenReturn(initialIfs);
+        when(m_ifaceDao.findIdsByServiceType(snmp.getName())).thenReturn(initialIfs);
 
         m_filterDao.flushActiveIpAddressListCache();
 
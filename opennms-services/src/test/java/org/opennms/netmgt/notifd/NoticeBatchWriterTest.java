@@ -0,0 +1,84 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.notifd;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.opennms.netmgt.config.NotificationManager;
+import org.opennms.netmgt.config.NotificationManager.Notice;
+
+public class NoticeBatchWriterTest {
+
+    private final List<Integer> m_scheduled = Collections.synchronizedList(new ArrayList<>());
+
+    private NoticeBatchWriter writer() {
+        return new NoticeBatchWriter(mock(NotificationManager.class),
+                notice -> m_scheduled.add(notice.getNotice().getNoticeId()),
+                new NotificationStageMetrics(), 10);
+    }
+
+    private static NoticeBatchWriter.PlannedNotice notice(final int noticeId) {
+        return new NoticeBatchWriter.PlannedNotice(new Notice(noticeId, Collections.emptyMap(), "default", null), null, null, 0, 1, "127.0.0.1");
+    }
+
+    @Test
+    public void shouldWriteInSubmissionOrder() throws Exception {
+        final NoticeBatchWriter writer = writer();
+        writer.start();
+        for (int i = 0; i < 100; i++) {
+            writer.submit(notice(i));
+        }
+        writer.flush();
+        assertEquals(100, m_scheduled.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) m_scheduled.get(i));
+        }
+        writer.stop();
+    }
+
+    @Test
+    public void shouldNotLoseNoticesSubmittedDuringShutdown() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            m_scheduled.clear();
+
+            final NoticeBatchWriter writer = writer();
+            writer.start();
+            final Thread submitter = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    writer.submit(notice(i));
+                }
+            });
+            submitter.start();
+            writer.stop();
+            submitter.join();
+
+            // Notices submitted after stopping are written on the calling thread
+            assertEquals(1000, m_scheduled.size());
+        }
+    }
+}
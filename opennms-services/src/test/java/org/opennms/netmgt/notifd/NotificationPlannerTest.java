@@ -0,0 +1,125 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.notifd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.netmgt.config.DestinationPathManager;
+import org.opennms.netmgt.config.GroupManager;
+import org.opennms.netmgt.config.UserManager;
+import org.opennms.netmgt.config.destinationPaths.Escalate;
+import org.opennms.netmgt.config.destinationPaths.Path;
+import org.opennms.netmgt.config.destinationPaths.Target;
+
+public class NotificationPlannerTest {
+
+    private static final long BUCKET = 60000;
+
+    private DestinationPathManager m_destinationPathManager;
+    private GroupManager m_groupManager;
+    private UserManager m_userManager;
+
+    @Before
+    public void setUp() throws Exception {
+        m_destinationPathManager = mock(DestinationPathManager.class);
+        m_groupManager = mock(GroupManager.class);
+        m_userManager = mock(UserManager.class);
+
+        when(m_userManager.hasOnCallRole("oncall")).thenReturn(true);
+        when(m_userManager.countUsersWithRole("oncall")).thenReturn(3);
+        when(m_userManager.hasUser("admin")).thenReturn(true);
+    }
+
+    @Test
+    public void shouldCachePathsUntilInvalidated() throws Exception {
+        final Path path = new Path();
+        path.setName("Email-Admin");
+        when(m_destinationPathManager.getPath("Email-Admin")).thenReturn(path);
+
+        final NotificationPlanner planner = new NotificationPlanner(m_destinationPathManager, m_groupManager, m_userManager, 60000, BUCKET);
+        assertSame(path, planner.getPath("Email-Admin"));
+        assertSame(path, planner.getPath("Email-Admin"));
+        assertNull(planner.getPath("Missing"));
+        assertNull(planner.getPath("Missing"));
+        verify(m_destinationPathManager, times(1)).getPath("Email-Admin");
+        verify(m_destinationPathManager, times(1)).getPath("Missing");
+
+        planner.invalidate();
+        assertSame(path, planner.getPath("Email-Admin"));
+        verify(m_destinationPathManager, times(2)).getPath("Email-Admin");
+    }
+
+    @Test
+    public void shouldCountUsersPerTarget() throws Exception {
+        final NotificationPlanner planner = new NotificationPlanner(m_destinationPathManager, m_groupManager, m_userManager, 60000, BUCKET);
+        final Target[] targets = new Target[] {
+                new Target("oncall"), new Target("admin"), new Target("someone@example.com"), new Target("nobody")
+        };
+
+        assertEquals(5, planner.getUserCount(targets, new Escalate[0]));
+        assertEquals(5, planner.getUserCount(targets, new Escalate[0]));
+        verify(m_userManager, times(1)).countUsersWithRole("oncall");
+
+        assertEquals(NotificationPlanner.TargetType.ROLE, planner.getTargetType("oncall"));
+        assertEquals(NotificationPlanner.TargetType.USER, planner.getTargetType("admin"));
+        assertEquals(NotificationPlanner.TargetType.EMAIL, planner.getTargetType("someone@example.com"));
+        assertEquals(NotificationPlanner.TargetType.UNKNOWN, planner.getTargetType("nobody"));
+    }
+
+    @Test
+    public void shouldResolveRolesOncePerBucket() throws Exception {
+        final long bucketStart = 1000 * BUCKET;
+        final String[] users = new String[] { "admin" };
+        when(m_userManager.getUsersScheduledForRole("oncall", new Date(bucketStart))).thenReturn(users);
+
+        final NotificationPlanner planner = new NotificationPlanner(m_destinationPathManager, m_groupManager, m_userManager, 60000, BUCKET);
+        assertArrayEquals(users, planner.getUsersScheduledForRole("oncall", bucketStart + 10));
+        assertArrayEquals(users, planner.getUsersScheduledForRole("oncall", bucketStart + BUCKET - 1));
+        verify(m_userManager, times(1)).getUsersScheduledForRole("oncall", new Date(bucketStart));
+
+        planner.getUsersScheduledForRole("oncall", bucketStart + BUCKET);
+        verify(m_userManager, times(1)).getUsersScheduledForRole("oncall", new Date(bucketStart + BUCKET));
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() throws Exception {
+        final NotificationPlanner planner = new NotificationPlanner(m_destinationPathManager, m_groupManager, m_userManager, 0, BUCKET);
+        planner.getPath("Email-Admin");
+        planner.getPath("Email-Admin");
+        verify(m_destinationPathManager, times(2)).getPath("Email-Admin");
+
+        planner.getUsersScheduledForRole("oncall", 12345);
+        planner.getUsersScheduledForRole("oncall", 12345);
+        verify(m_userManager, times(2)).getUsersScheduledForRole("oncall", new Date(12345));
+    }
+}
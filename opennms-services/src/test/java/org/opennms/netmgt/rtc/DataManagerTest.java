@@ -0,0 +1,142 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.rtc;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opennms.core.utils.InetAddressUtils;
+import org.opennms.netmgt.config.RTCConfigFactory;
+import org.opennms.netmgt.config.categories.Category;
+import org.opennms.netmgt.dao.api.MonitoredServiceDao;
+import org.opennms.netmgt.filter.api.FilterDao;
+import org.opennms.netmgt.rtc.datablock.RTCCategory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class DataManagerTest {
+
+    private static final long MINUTE = 60L * 1000L;
+
+    private static final long HOUR = 60L * MINUTE;
+
+    private static final long DAY = 24L * HOUR;
+
+    private final List<ResultSet> m_rows = new ArrayList<>();
+
+    private DataManager m_dataManager;
+
+    private RTCCategory m_category;
+
+    private long m_now;
+
+    @Before
+    public void setUp() throws Exception {
+        m_now = System.currentTimeMillis();
+
+        final RTCConfigFactory configFactory = new RTCConfigFactory(new ByteArrayInputStream(
+                "<RTCConfiguration xmlns=\"http://xmlns.opennms.org/xsd/config/rtc\" updaters=\"1\" senders=\"1\" rollingWindow=\"24h\" maxEventsBeforeResend=\"100\" lowThresholdInterval=\"20s\" highThresholdInterval=\"45s\" userRefreshInterval=\"2m\" errorsBeforeUrlUnsubscribe=\"5\"/>"
+                .getBytes(StandardCharsets.UTF_8)));
+
+        final FilterDao filterDao = mock(FilterDao.class);
+        final TreeMap<Integer, String> nodes = new TreeMap<>();
+        nodes.put(1, "node1");
+        nodes.put(2, "node2");
+        when(filterDao.getNodeMap(anyString())).thenReturn(nodes);
+
+        final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            final RowCallbackHandler handler = invocation.getArgument(2);
+            for (final ResultSet row : m_rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowCallbackHandler.class));
+
+        // An outage that is both open and closed within the last hour, a service
+        // without outages and an outstanding outage
+        m_rows.add(row(1, "192.168.1.1", "ICMP", m_now - 50 * MINUTE, m_now - 30 * MINUTE));
+        m_rows.add(row(1, "192.168.1.1", "HTTP", null, null));
+        m_rows.add(row(2, "192.168.1.2", "ICMP", m_now - 10 * MINUTE, null));
+
+        m_category = new RTCCategory(new Category("Servers", null, 99.99, 97.0, "IPADDR != '0.0.0.0'"), "IPADDR != '0.0.0.0'");
+
+        m_dataManager = new DataManager(filterDao, configFactory, transactionTemplate, jdbcTemplate, mock(MonitoredServiceDao.class));
+        m_dataManager.initialize(Collections.singletonMap(m_category.getLabel(), m_category));
+    }
+
+    @Test
+    public void canCalculateAvailabilityForAnyWindow() {
+        // The configured window
+        assertEquals(RTCUtils.getOutagePercentage(30 * MINUTE, DAY, 3), m_dataManager.getValue(m_category, m_now, DAY), 0.0001);
+
+        // Any other window
+        assertEquals(RTCUtils.getOutagePercentage(30 * MINUTE, HOUR, 3), m_dataManager.getValue(m_category, m_now, HOUR), 0.0001);
+    }
+
+    @Test
+    public void canUpdateAvailabilityForAllWindows() {
+        // Start keeping the totals for a second window
+        m_dataManager.getValue(m_category, m_now, HOUR);
+
+        m_dataManager.outageCreated(1, InetAddressUtils.addr("192.168.1.1"), "HTTP", m_now - 5 * MINUTE);
+        m_dataManager.outageResolved(2, InetAddressUtils.addr("192.168.1.2"), "ICMP", m_now - 2 * MINUTE);
+
+        assertEquals(RTCUtils.getOutagePercentage(33 * MINUTE, DAY, 3), m_dataManager.getValue(m_category, m_now, DAY), 0.0001);
+        assertEquals(RTCUtils.getOutagePercentage(33 * MINUTE, HOUR, 3), m_dataManager.getValue(m_category, m_now, HOUR), 0.0001);
+
+        m_dataManager.serviceDeleted(1, InetAddressUtils.addr("192.168.1.1"), "ICMP");
+
+        assertEquals(RTCUtils.getOutagePercentage(13 * MINUTE, DAY, 2), m_dataManager.getValue(m_category, m_now, DAY), 0.0001);
+        assertEquals(RTCUtils.getOutagePercentage(13 * MINUTE, HOUR, 2), m_dataManager.getValue(m_category, m_now, HOUR), 0.0001);
+    }
+
+    private static ResultSet row(final int nodeId, final String ipAddress, final String serviceName, final Long lostTime, final Long regainedTime) throws Exception {
+        final ResultSet row = mock(ResultSet.class);
+        when(row.getInt("nodeid")).thenReturn(nodeId);
+        when(row.getString("ipaddr")).thenReturn(ipAddress);
+        when(row.getString("servicename")).thenReturn(serviceName);
+        when(row.getTimestamp("ifLostService")).thenReturn(lostTime == null ? null : new Timestamp(lostTime));
+        when(row.getTimestamp("ifRegainedService")).thenReturn(regainedTime == null ? null : new Timestamp(regainedTime));
+        return row;
+    }
+}
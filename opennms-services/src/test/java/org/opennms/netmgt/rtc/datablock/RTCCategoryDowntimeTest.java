@@ -0,0 +1,112 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.netmgt.rtc.datablock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.opennms.netmgt.rtc.RTCUtils;
+
+public class RTCCategoryDowntimeTest {
+
+    private static final long WINDOW = 24L * 60L * 60L * 1000L;
+
+    private static final long BUCKET = 60L * 1000L;
+
+    @Test
+    public void canTrackOutstandingAndResolvedOutages() {
+        final long now = System.currentTimeMillis();
+        final RTCCategoryDowntime downtime = new RTCCategoryDowntime(WINDOW, BUCKET, now);
+        downtime.addServices(6);
+        assertEquals(100.0, downtime.getValue(now), 0.0001);
+
+        // An outage that was both opened and closed within the window
+        downtime.addOutage(now - 60 * 60 * 1000, now - 30 * 60 * 1000);
+        assertEquals(30 * 60 * 1000, downtime.getDownTime(now));
+        assertEquals(RTCUtils.getOutagePercentage(1800000, WINDOW, 6), downtime.getValue(now), 0.0001);
+
+        // An outstanding outage grows with the current time
+        downtime.addOutage(now - 10 * 60 * 1000, -1);
+        assertEquals(40 * 60 * 1000, downtime.getDownTime(now));
+        assertEquals(45 * 60 * 1000, downtime.getDownTime(now + 5 * 60 * 1000));
+
+        // Resolve it
+        downtime.resolveOutage(now - 10 * 60 * 1000, now - 5 * 60 * 1000);
+        assertEquals(35 * 60 * 1000, downtime.getDownTime(now));
+
+        // Remove the first outage
+        downtime.removeOutage(now - 60 * 60 * 1000, now - 30 * 60 * 1000);
+        assertEquals(5 * 60 * 1000, downtime.getDownTime(now));
+    }
+
+    @Test
+    public void canExpireOutagesFromTheWindow() {
+        final long now = System.currentTimeMillis();
+        final RTCCategoryDowntime downtime = new RTCCategoryDowntime(WINDOW, BUCKET, now);
+        downtime.addServices(1);
+        downtime.addOutage(now - 60 * 60 * 1000, now - 30 * 60 * 1000);
+        downtime.addOutage(now - 20 * 60 * 1000, -1);
+
+        // A day later, the resolved outage has fallen out of the window while the
+        // outstanding one spans all of it
+        final long later = now + WINDOW;
+        assertEquals(WINDOW, downtime.getDownTime(later));
+        assertEquals(0.0, downtime.getValue(later), 0.0001);
+
+        // It no longer counts once it has been resolved and has fallen out of the window
+        downtime.resolveOutage(now - 20 * 60 * 1000, now - 10 * 60 * 1000);
+        assertEquals(0, downtime.getDownTime(now + 2 * WINDOW));
+    }
+
+    @Test
+    public void canCalculateTheSameDowntimeAsTheServiceTimes() {
+        final long now = System.currentTimeMillis();
+        final RTCCategoryDowntime downtime = new RTCCategoryDowntime(WINDOW, BUCKET, now);
+        final List<RTCNodeSvcTime> svcTimes = new ArrayList<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            final long lostTime = now - (long)(random.nextDouble() * 2 * WINDOW);
+            final long regainedTime = random.nextBoolean() ? -1 : Math.min(now, lostTime + (long)(random.nextDouble() * WINDOW));
+            svcTimes.add(new RTCNodeSvcTime(lostTime, regainedTime));
+            downtime.addOutage(lostTime, regainedTime);
+        }
+        downtime.addServices(svcTimes.size());
+
+        for (long curTime = now; curTime < now + WINDOW; curTime += WINDOW / 7) {
+            long expected = 0;
+            for (RTCNodeSvcTime svcTime : svcTimes) {
+                // Outages resolved before the start of the window are normally removed by the
+                // RTCNodeSvcTimesList, and would yield a negative downtime here
+                expected += Math.max(0, svcTime.getDownTime(curTime, WINDOW));
+            }
+            // The outages overlapping the start of the window can be off by up to a bucket
+            final long actual = downtime.getDownTime(curTime);
+            assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= svcTimes.size() * BUCKET);
+            assertEquals(RTCUtils.getOutagePercentage(expected, WINDOW, svcTimes.size()), downtime.getValue(curTime), 1.0);
+        }
+    }
+}
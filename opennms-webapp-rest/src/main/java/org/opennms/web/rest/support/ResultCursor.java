@@ -0,0 +1,132 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.web.rest.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in a result set that is paged through by its identifier (keyset pagination),
+ * rather than by an offset.
+ * <p>
+ * The cursor is handed to clients as an opaque token which holds the sort direction and
+ * the identifier of the last object that was returned. The next page only contains the
+ * objects sorted after that identifier, so the database can seek to it using the primary
+ * key index instead of scanning and discarding all of the previous pages.
+ */
+public final class ResultCursor {
+
+    private static final String ASCENDING = "asc";
+    private static final String DESCENDING = "desc";
+
+    private final boolean m_ascending;
+    private final Long m_last;
+
+    private ResultCursor(final boolean ascending, final Long last) {
+        m_ascending = ascending;
+        m_last = last;
+    }
+
+    /**
+     * Returns a cursor pointing before the first page.
+     */
+    public static ResultCursor first(final boolean ascending) {
+        return new ResultCursor(ascending, null);
+    }
+
+    /**
+     * Parses a token previously generated by {@link #next(long)}. An empty token
+     * points before the first page, sorted in the given default direction.
+     *
+     * @throws IllegalArgumentException if the token is invalid
+     */
+    public static ResultCursor parse(final String token, final boolean defaultAscending) {
+        if (token == null || token.isEmpty()) {
+            return first(defaultAscending);
+        }
+
+        final String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+
+        final int separator = decoded.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+
+        final String direction = decoded.substring(0, separator);
+        if (!ASCENDING.equals(direction) && !DESCENDING.equals(direction)) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        try {
+            return new ResultCursor(ASCENDING.equals(direction), Long.parseLong(decoded.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    public boolean isAscending() {
+        return m_ascending;
+    }
+
+    /**
+     * Returns the identifier of the last object that was returned, or
+     * {@code null} if the cursor points before the first page.
+     */
+    public Long getLast() {
+        return m_last;
+    }
+
+    /**
+     * Returns the token of the page that follows the object with the given identifier.
+     */
+    public String next(final long last) {
+        final String value = (m_ascending ? ASCENDING : DESCENDING) + ":" + last;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ResultCursor)) {
+            return false;
+        }
+        final ResultCursor that = (ResultCursor) obj;
+        return m_ascending == that.m_ascending && Objects.equals(m_last, that.m_last);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(m_ascending, m_last);
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCursor[ascending=" + m_ascending + ", last=" + m_last + "]";
+    }
+}
@@ -21,8 +21,15 @@
  */
 package org.opennms.web.rest.v2;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -48,25 +55,36 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.annotation.XmlElement;
 
 import org.apache.cxf.jaxrs.ext.search.SearchBean;
 import org.apache.cxf.jaxrs.ext.search.SearchCondition;
 import org.apache.cxf.jaxrs.ext.search.SearchConditionVisitor;
 import org.apache.cxf.jaxrs.ext.search.SearchContext;
 import org.apache.cxf.jaxrs.ext.search.SearchParseException;
+import org.codehaus.jackson.annotate.JsonProperty;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.metadata.ClassMetadata;
 import org.opennms.core.config.api.JaxbListWrapper;
 import org.opennms.core.criteria.Criteria;
 import org.opennms.core.criteria.CriteriaBuilder;
 import org.opennms.core.criteria.Order;
+import org.opennms.core.criteria.restrictions.Restrictions;
 import org.opennms.core.utils.InetAddressUtils;
 import org.opennms.netmgt.dao.api.OnmsDao;
 import org.opennms.netmgt.events.api.EventProxy;
@@ -81,6 +99,7 @@ import org.opennms.web.rest.support.FloatCollection;
 import org.opennms.web.rest.support.IntegerCollection;
 import org.opennms.web.rest.support.LongCollection;
 import org.opennms.web.rest.support.MultivaluedMapImpl;
+import org.opennms.web.rest.support.ResultCursor;
 import org.opennms.web.rest.support.SearchProperty;
 import org.opennms.web.rest.support.SearchPropertyCollection;
 import org.opennms.web.rest.support.StringCollection;
@@ -95,6 +114,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.HibernateTemplate;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
 import com.google.common.base.Strings;
 import com.googlecode.concurentlocks.ReadWriteUpdateLock;
@@ -128,11 +148,29 @@ public abstract class AbstractDaoRestServiceWithDTO<T,D,Q,K extends Serializable
     @Autowired
     private SessionFactory m_sessionFactory;
 
+    @Autowired
+    private TransactionOperations m_transactionOperations;
+
+    @Context
+    private Providers m_providers;
+
+    @Context
+    private Request m_request;
+
     private final ReadWriteUpdateLock m_globalLock = new ReentrantReadWriteUpdateLock();
     private final Lock m_writeLock = m_globalLock.writeLock();
 
     protected static final int DEFAULT_LIMIT = 10;
 
+    protected static final String CURSOR_PARAMETER = "cursor";
+    protected static final String TOTAL_COUNT_PARAMETER = "totalCount";
+    protected static final String STREAM_PARAMETER = "stream";
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    // Same order as the media types produced by get(), so that a wildcard selects JSON as well
+    private static final List<Variant> LIST_VARIANTS = Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE, MediaType.APPLICATION_XML_TYPE, MediaType.APPLICATION_ATOM_XML_TYPE).build();
+
     protected abstract OnmsDao<T,K> getDao();
     protected abstract Class<T> getDaoClass();
     protected abstract Class<Q> getQueryBeanClass();
@@ -244,21 +282,42 @@ public abstract class AbstractDaoRestServiceWithDTO<T,D,Q,K extends Serializable
         return crit;
     }
 
+    /**
+     * <p>Returns the objects matching the FIQL search, one page at a time.</p>
+     * <p>Besides {@code limit}, {@code offset}, {@code orderBy} and {@code order}, the following
+     * query parameters are supported:</p>
+     * <ul>
+     * <li>{@code cursor}: Page through the objects sorted by their identifier, starting after the
+     * position held by the cursor instead of at an offset. An empty value requests the first page.
+     * The cursor of the next page is returned in a {@code Link} header with {@code rel="next"}.</li>
+     * <li>{@code totalCount=false}: Skip the query counting all of the matching objects.</li>
+     * <li>{@code stream=true}: Stream the objects as JSON while they are read from the database,
+     * instead of loading the whole page into memory first. Other representations are not streamed
+     * and are returned as if the parameter was not given.</li>
+     * </ul>
+     */
     @GET
     @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_ATOM_XML})
     public Response get(@Context final UriInfo uriInfo, @Context final SearchContext searchContext) {
-        Criteria crit = getCriteria(uriInfo, searchContext);
+        final MultivaluedMap<String, String> params = uriInfo.getQueryParameters();
+        final Criteria crit = getCriteria(uriInfo, searchContext);
+        final ResultCursor cursor = params.containsKey(CURSOR_PARAMETER) ? applyCursor(params, crit) : null;
+        final boolean withTotalCount = !"false".equalsIgnoreCase(params.getFirst(TOTAL_COUNT_PARAMETER));
+
+        if (Boolean.parseBoolean(params.getFirst(STREAM_PARAMETER)) && isJsonSelected()) {
+            if (isPageEmpty(crit)) {
+                return Response.status(Status.NO_CONTENT).build();
+            }
+            final Integer totalCount = withTotalCount ? getTotalCount(uriInfo, searchContext) : null;
+            return Response.ok(new EntityStreamingOutput(crit, cursor, totalCount), MediaType.APPLICATION_JSON_TYPE).build();
+        }
+
         final List<T> coll = getDao().findMatching(crit);
         if (coll == null || coll.size() < 1) {
             return Response.status(Status.NO_CONTENT).build();
         } else {
             Integer offset = crit.getOffset();
-
-            // Remove limit, offset and ordering when fetching count
-            crit.setLimit(null);
-            crit.setOffset(null);
-            crit.setOrders(new ArrayList<Order>());
-            int totalCount = getDao().countMatching(crit);
+            final Integer totalCount = withTotalCount ? getTotalCount(uriInfo, searchContext) : null;
 
             // Map the entities to the corresponding DTOs
             final List<D> collOfDtos = coll.stream()
@@ -270,8 +329,175 @@ public abstract class AbstractDaoRestServiceWithDTO<T,D,Q,K extends Serializable
 
             // Make sure that offset is set to a numeric value when setting the Content-Range header
             offset = (offset == null ? 0 : offset);
-            return Response.ok(list).header("Content-Range", String.format("items %d-%d/%d", offset, offset + coll.size() - 1, totalCount)).build();
+            final ResponseBuilder response = Response.ok(list).header("Content-Range", String.format("items %d-%d/%s", offset, offset + coll.size() - 1, totalCount == null ? "*" : totalCount));
+            // Only link to the next page if this one is full, there is nothing left otherwise
+            if (cursor != null && crit.getLimit() != null && coll.size() >= crit.getLimit()) {
+                final String next = cursor.next(getIdentifier(coll.get(coll.size() - 1)));
+                response.link(uriInfo.getRequestUriBuilder().replaceQueryParam(CURSOR_PARAMETER, next).build(), "next");
+            }
+            return response.build();
+        }
+    }
+
+    /**
+     * Checks if JSON is the representation negotiated for the list of objects.
+     */
+    private boolean isJsonSelected() {
+        final Variant variant = m_request.selectVariant(LIST_VARIANTS);
+        return variant != null && MediaType.APPLICATION_JSON_TYPE.isCompatible(variant.getMediaType());
+    }
+
+    /**
+     * Checks if the requested page is empty by fetching at most one of its objects, so that a
+     * streamed response can be answered the same way as a buffered one.
+     */
+    private boolean isPageEmpty(final Criteria crit) {
+        final Integer limit = crit.getLimit();
+        crit.setLimit(1);
+        try {
+            final List<T> coll = getDao().findMatching(crit);
+            return coll == null || coll.isEmpty();
+        } finally {
+            crit.setLimit(limit);
+        }
+    }
+
+    /**
+     * Counts all of the objects matching the FIQL search, regardless of the requested page.
+     */
+    private int getTotalCount(final UriInfo uriInfo, final SearchContext searchContext) {
+        final Criteria crit = getCriteria(uriInfo, searchContext);
+        crit.setLimit(null);
+        crit.setOffset(null);
+        crit.setOrders(new ArrayList<Order>());
+        return getDao().countMatching(crit);
+    }
+
+    /**
+     * Replaces the offset and ordering of the criteria with the position held by the cursor.
+     */
+    private ResultCursor applyCursor(final MultivaluedMap<String, String> params, final Criteria crit) {
+        final ClassMetadata metadata = m_sessionFactory.getClassMetadata(getDaoClass());
+        if (metadata == null || !(Integer.class.equals(metadata.getIdentifierType().getReturnedClass())
+                || Long.class.equals(metadata.getIdentifierType().getReturnedClass()))) {
+            throw getException(Status.BAD_REQUEST, "The {} parameter is not supported by this endpoint", CURSOR_PARAMETER);
+        }
+
+        final ResultCursor cursor = ResultCursor.parse(params.getFirst(CURSOR_PARAMETER), !"desc".equalsIgnoreCase(params.getFirst("order")));
+        final String idProperty = metadata.getIdentifierPropertyName();
+        crit.setOffset(null);
+        crit.setOrders(Collections.singletonList(cursor.isAscending() ? Order.asc(idProperty) : Order.desc(idProperty)));
+        if (cursor.getLast() != null) {
+            // Compare against a value of the same type as the identifier
+            final Object last = Integer.class.equals(metadata.getIdentifierType().getReturnedClass()) ? (Object) cursor.getLast().intValue() : cursor.getLast();
+            crit.addRestriction(cursor.isAscending() ? Restrictions.gt(idProperty, last) : Restrictions.lt(idProperty, last));
+        }
+        return cursor;
+    }
+
+    /**
+     * Returns the identifier of the given entity, which must be attached to the current session.
+     */
+    private long getIdentifier(final T entity) {
+        return ((Number) m_sessionFactory.getCurrentSession().getIdentifier(entity)).longValue();
+    }
+
+    /**
+     * Writes the matching objects as JSON while scrolling through them, using the same
+     * layout as the list wrapper. This runs after the resource method has returned and
+     * therefore reads the entities in its own transaction.
+     */
+    private class EntityStreamingOutput implements StreamingOutput {
+        private final Criteria m_criteria;
+        private final ResultCursor m_cursor;
+        private final Integer m_totalCount;
+
+        private EntityStreamingOutput(final Criteria criteria, final ResultCursor cursor, final Integer totalCount) {
+            m_criteria = criteria;
+            m_cursor = cursor;
+            m_totalCount = totalCount;
+        }
+
+        @Override
+        public void write(final OutputStream output) throws IOException {
+            // The message body writers may close the stream they write to
+            final OutputStream entityOutput = new FilterOutputStream(output) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            final int[] count = new int[1];
+            final long[] last = new long[1];
+
+            output.write(("{\"" + getListElementName() + "\":[").getBytes(StandardCharsets.UTF_8));
+            try {
+                m_transactionOperations.execute(status -> {
+                    getDao().forEachMatching(m_criteria, entity -> {
+                        final D dto = mapEntityToDTO(entity);
+                        if (m_cursor != null) {
+                            last[0] = getIdentifier(entity);
+                        }
+                        try {
+                            if (count[0]++ > 0) {
+                                output.write(',');
+                            }
+                            writeDTO(dto, entityOutput);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    return null;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            final StringBuilder trailer = new StringBuilder("],\"count\":").append(count[0])
+                    .append(",\"offset\":").append(m_criteria.getOffset() == null ? 0 : m_criteria.getOffset());
+            if (m_totalCount != null) {
+                trailer.append(",\"totalCount\":").append(m_totalCount);
+            }
+            if (m_cursor != null && m_criteria.getLimit() != null && count[0] >= m_criteria.getLimit()) {
+                trailer.append(",\"nextCursor\":\"").append(m_cursor.next(last[0])).append('"');
+            }
+            output.write(trailer.append('}').toString().getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void writeDTO(final D dto, final OutputStream output) throws IOException {
+            final MessageBodyWriter writer = m_providers.getMessageBodyWriter(dto.getClass(), dto.getClass(), NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE);
+            if (writer == null) {
+                throw new IOException("No JSON writer available for " + dto.getClass());
+            }
+            writer.writeTo(dto, dto.getClass(), dto.getClass(), NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<String, Object>(), output);
+        }
+    }
+
+    /**
+     * Returns the JSON property holding the objects in the list wrapper of this endpoint.
+     */
+    private String getListElementName() {
+        try {
+            final Method getObjects = createListWrapper(Collections.emptyList()).getClass().getMethod("getObjects");
+            final JsonProperty jsonProperty = getObjects.getAnnotation(JsonProperty.class);
+            if (jsonProperty != null && !jsonProperty.value().isEmpty()) {
+                return jsonProperty.value();
+            }
+            final XmlElement xmlElement = getObjects.getAnnotation(XmlElement.class);
+            if (xmlElement != null && !"##default".equals(xmlElement.name())) {
+                return xmlElement.name();
+            }
+        } catch (NoSuchMethodException e) {
+            LOG.debug("List wrapper without a getObjects() method, using the default property name", e);
         }
+        return "objects";
     }
 
     @GET
@@ -0,0 +1,64 @@
+/*
+ * Licensed to The OpenNMS Group, Inc (TOG) under one or more
+ * contributor license agreements.  See the LICENSE.md file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * TOG licenses this file to You under the GNU Affero General
+ * Public License Version 3 (the "License") or (at your option)
+ * any later version.  You may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at:
+ *
+ *      https://www.gnu.org/licenses/agpl-3.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package org.opennms.web.rest.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ResultCursorTest {
+
+    @Test
+    public void canStartWithoutAToken() {
+        assertEquals(ResultCursor.first(true), ResultCursor.parse(null, true));
+        assertEquals(ResultCursor.first(false), ResultCursor.parse("", false));
+        assertNull(ResultCursor.parse("", true).getLast());
+    }
+
+    @Test
+    public void canRoundTripTheToken() {
+        final String ascending = ResultCursor.first(true).next(42);
+        final ResultCursor cursor = ResultCursor.parse(ascending, false);
+        assertTrue(cursor.isAscending());
+        assertEquals(Long.valueOf(42), cursor.getLast());
+
+        final String descending = ResultCursor.first(false).next(Long.MAX_VALUE);
+        assertFalse(ResultCursor.parse(descending, true).isAscending());
+        assertEquals(Long.valueOf(Long.MAX_VALUE), ResultCursor.parse(descending, true).getLast());
+
+        // Tokens are safe to use in URLs
+        assertTrue(descending.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void cannotParseAnInvalidToken() {
+        ResultCursor.parse("not a cursor", true);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void cannotParseAnInvalidDirection() {
+        ResultCursor.parse(ResultCursor.first(true).next(1).replace('Y', 'Z'), true);
+    }
+}
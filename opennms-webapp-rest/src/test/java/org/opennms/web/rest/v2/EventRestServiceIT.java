@@ -22,6 +22,9 @@
 package org.opennms.web.rest.v2;
 
 import java.util.Date;
+import java.util.Map;
+
+import javax.ws.rs.core.MediaType;
 
 import org.json.JSONObject;
 import org.junit.Assert;
@@ -41,6 +44,8 @@ import org.opennms.netmgt.model.OnmsServiceType;
 import org.opennms.netmgt.model.OnmsSeverity;
 import org.opennms.test.JUnitConfigurationEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.transaction.annotation.Transactional;
@@ -126,6 +131,86 @@ public class EventRestServiceIT extends AbstractSpringJerseyRestTestCase {
         sendPost(url, event, 204);
     }
 
+    @Test
+    @JUnitTemporaryDatabase
+    public void testCursor() throws Exception {
+        MockHttpServletResponse response = sendGet("/events", "limit=4&cursor=", MediaType.APPLICATION_JSON);
+        Assert.assertEquals(200, response.getStatus());
+        JSONObject object = new JSONObject(response.getContentAsString());
+        Assert.assertEquals(4, object.getJSONArray("event").length());
+        Assert.assertEquals(6, object.getInt("totalCount"));
+
+        final String next = getNextCursor(response);
+        Assert.assertNotNull(next);
+
+        response = sendGet("/events", "limit=4&totalCount=false&cursor=" + next, MediaType.APPLICATION_JSON);
+        Assert.assertEquals(200, response.getStatus());
+        object = new JSONObject(response.getContentAsString());
+        Assert.assertEquals(2, object.getJSONArray("event").length());
+        Assert.assertTrue(object.isNull("totalCount"));
+        Assert.assertNull(getNextCursor(response));
+    }
+
+    @Test
+    @JUnitTemporaryDatabase
+    public void testStream() throws Exception {
+        MockHttpServletResponse response = sendGet("/events", "stream=true", MediaType.APPLICATION_JSON);
+        Assert.assertEquals(200, response.getStatus());
+        JSONObject object = new JSONObject(response.getContentAsString());
+        Assert.assertEquals(6, object.getJSONArray("event").length());
+        Assert.assertEquals(6, object.getInt("count"));
+        Assert.assertEquals(6, object.getInt("totalCount"));
+
+        response = sendGet("/events", "stream=true&totalCount=false&limit=4&cursor=", MediaType.APPLICATION_JSON);
+        Assert.assertEquals(200, response.getStatus());
+        object = new JSONObject(response.getContentAsString());
+        Assert.assertEquals(4, object.getJSONArray("event").length());
+        Assert.assertFalse(object.has("totalCount"));
+
+        response = sendGet("/events", "stream=true&limit=4&cursor=" + object.getString("nextCursor"), MediaType.APPLICATION_JSON);
+        Assert.assertEquals(200, response.getStatus());
+        object = new JSONObject(response.getContentAsString());
+        Assert.assertEquals(2, object.getJSONArray("event").length());
+        Assert.assertFalse(object.has("nextCursor"));
+
+        // Empty results are answered the same way with and without streaming
+        response = sendGet("/events", "_s=node.label==nothing", MediaType.APPLICATION_JSON);
+        Assert.assertEquals(204, response.getStatus());
+        response = sendGet("/events", "stream=true&_s=node.label==nothing", MediaType.APPLICATION_JSON);
+        Assert.assertEquals(204, response.getStatus());
+
+        // Other representations than JSON are not streamed
+        response = sendGet("/events", "stream=true", MediaType.APPLICATION_XML);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertTrue(response.getContentType().startsWith(MediaType.APPLICATION_XML));
+        Assert.assertTrue(response.getContentAsString().contains("count=\"6\""));
+    }
+
+    private MockHttpServletResponse sendGet(final String url, final String parameters, final String accept) throws Exception {
+        final Map<String, String> parameterMap = parseParamData(parameters);
+        final MockHttpServletRequest request = createRequest(GET, url);
+        request.addHeader(ACCEPT, accept);
+        request.setParameters(parameterMap);
+        request.setQueryString(getQueryString(parameterMap));
+        final MockHttpServletResponse response = createResponse();
+        dispatch(request, response);
+        return response;
+    }
+
+    private static String getNextCursor(final MockHttpServletResponse response) throws Exception {
+        final Object link = response.getHeader("Link");
+        if (link == null) {
+            return null;
+        }
+        final String uri = link.toString().substring(link.toString().indexOf('<') + 1, link.toString().indexOf('>'));
+        for (final String parameter : uri.substring(uri.indexOf('?') + 1).split("&")) {
+            if (parameter.startsWith("cursor=")) {
+                return parameter.substring("cursor=".length());
+            }
+        }
+        return null;
+    }
+
     private OnmsNode createNode(final NetworkBuilder builder, final String label, final String ipAddress, final OnmsCategory category) {
         builder.addNode(label).setForeignSource("JUnit").setForeignId(label).setType(NodeType.ACTIVE);
         builder.addCategory(category);